@@ -32,10 +32,14 @@ import org.pentaho.di.core.variables.VariableSpace;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -128,4 +132,29 @@ public class HttpUtil {
     }
     return baos.toString();
   }
+
+  /**
+   * Opens a writer that compresses and base 64 encodes the text written to it, in the same format as
+   * {@link #encodeBase64ZippedString(String)}. This way large texts can be sent without building the encoded string
+   * in memory first. Closing the writer completes the encoding but leaves the output stream open.
+   *
+   * @param out the stream to write the encoded text to
+   * @return the writer to write the text with
+   * @throws IOException
+   */
+  public static Writer createBase64ZippedWriter( OutputStream out ) throws IOException {
+    OutputStream unclosable = new FilterOutputStream( out ) {
+      @Override
+      public void write( byte[] b, int off, int len ) throws IOException {
+        out.write( b, off, len );
+      }
+
+      @Override
+      public void close() throws IOException {
+        flush();
+      }
+    };
+    return new OutputStreamWriter( new GZIPOutputStream( new Base64OutputStream( unclosable ), ZIP_BUFFER_SIZE ),
+      Charset.forName( Const.XML_ENCODING ) );
+  }
 }
@@ -48,6 +48,7 @@ abstract class BaseRowSet implements Comparable<RowSet>, RowSet {
   protected AtomicInteger destinationStepCopy;
 
   protected volatile String remoteSlaveServerName;
+  protected volatile WakeupSignal consumerSignal;
   private ReadWriteLock lock;
 
   public BaseRowSet() {
@@ -136,6 +137,27 @@ abstract class BaseRowSet implements Comparable<RowSet>, RowSet {
   @Override
   public void setDone() {
     done.set( true );
+    signalConsumer();
+  }
+
+  @Override
+  public void setConsumerSignal( WakeupSignal signal ) {
+    consumerSignal = signal;
+  }
+
+  @Override
+  public boolean supportsConsumerSignal() {
+    return true;
+  }
+
+  /**
+   * Wakes up the consumer of this row set if it is waiting for rows. Call this after a row was added.
+   */
+  protected void signalConsumer() {
+    WakeupSignal signal = consumerSignal;
+    if ( signal != null ) {
+      signal.signal();
+    }
   }
 
   /*
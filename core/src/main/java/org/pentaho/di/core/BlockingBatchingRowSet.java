@@ -106,6 +106,7 @@ public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<Row
       try {
         getArray.offer( inputBuffer, time, tu );
         inputBuffer = null;
+        signalConsumer();
       } catch ( InterruptedException e ) {
         return false;
       }
@@ -161,6 +162,36 @@ public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<Row
     return row;
   }
 
+  /**
+   * Hands out the rows of the current output buffer without waiting for a new buffer to be delivered.
+   */
+  @Override
+  public int getRows( Object[][] rows, int offset, int maxRows ) {
+    int nrRows = 0;
+    while ( nrRows < maxRows ) {
+      if ( outputBuffer == null ) {
+        outputBuffer = getArray.poll();
+        if ( outputBuffer == null ) {
+          break;
+        }
+        getIndex = 0;
+      }
+
+      Object[] row = outputBuffer[getIndex];
+      outputBuffer[getIndex++] = null; // prevent any hold-up to GC
+      if ( getIndex == size ) {
+        putArray.offer( outputBuffer );
+        outputBuffer = null;
+      }
+      if ( row == null ) {
+        // the end of a partially filled buffer, see setDone()
+        break;
+      }
+      rows[offset + nrRows++] = row;
+    }
+    return nrRows;
+  }
+
   @Override
   public int size() {
     // does BlockingQueue.size() grab a lock? If so, frequent call to this method
@@ -179,6 +210,7 @@ public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<Row
       getArray.offer( inputBuffer );
     }
     putArray.clear();
+    signalConsumer();
   }
 
   @Override
@@ -22,6 +22,8 @@
 
 package org.pentaho.di.core;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +44,9 @@ public class BlockingRowSet extends BaseRowSet implements Comparable<RowSet>, Ro
   private int timeoutPut;
   private int timeoutGet;
 
+  /** Only used by the consumer to drain batches of rows from the queue */
+  private List<Object[]> drainBuffer;
+
   /**
    * Create new non-blocking-queue with maxSize capacity.
    *
@@ -77,8 +82,11 @@ public class BlockingRowSet extends BaseRowSet implements Comparable<RowSet>, Ro
   public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
     this.rowMeta = rowMeta;
     try {
-
-      return queArray.offer( rowData, time, tu );
+      if ( queArray.offer( rowData, time, tu ) ) {
+        signalConsumer();
+        return true;
+      }
+      return false;
     } catch ( InterruptedException e ) {
       return false;
     } catch ( NullPointerException e ) {
@@ -125,6 +133,25 @@ public class BlockingRowSet extends BaseRowSet implements Comparable<RowSet>, Ro
     }
   }
 
+  /**
+   * Drains the available rows while taking the queue lock only once.
+   */
+  @Override
+  public int getRows( Object[][] rows, int offset, int maxRows ) {
+    if ( maxRows <= 0 ) {
+      return 0;
+    }
+    if ( drainBuffer == null ) {
+      drainBuffer = new ArrayList<>();
+    }
+    int nrRows = queArray.drainTo( drainBuffer, maxRows );
+    for ( int i = 0; i < nrRows; i++ ) {
+      rows[offset + i] = drainBuffer.get( i );
+    }
+    drainBuffer.clear();
+    return nrRows;
+  }
+
   @Override
   public int size() {
     return queArray.size();
@@ -860,6 +860,24 @@ public class Const {
    */
   public static final String KETTLE_MAX_LOG_TIMEOUT_IN_MINUTES = "KETTLE_MAX_LOG_TIMEOUT_IN_MINUTES";
 
+  /**
+   * System wide flag to deliver the log lines to the logging event listeners (log files, slf4j, console) in batches on a
+   * background thread instead of on the threads doing the logging. Will deliver asynchronously if the value is equal
+   * ignoring case to the string "Y"
+   */
+  public static final String KETTLE_ASYNC_LOGGING = "KETTLE_ASYNC_LOGGING";
+
+  /**
+   * The number of log lines a thread can have waiting for asynchronous delivery. Default: 1024
+   */
+  public static final String KETTLE_ASYNC_LOGGING_BUFFER_SIZE = "KETTLE_ASYNC_LOGGING_BUFFER_SIZE";
+
+  /**
+   * What a thread does when it has the maximum number of log lines waiting for asynchronous delivery: BLOCK (default)
+   * waits for the delivery, DROP doesn't deliver the line to the listeners. The line is kept in the log buffer either way.
+   */
+  public static final String KETTLE_ASYNC_LOGGING_OVERFLOW = "KETTLE_ASYNC_LOGGING_OVERFLOW";
+
   /**
    * System wide flag to determine whether standard error will be redirected to Kettle logging facilities. Will redirect
    * if the value is equal ignoring case to the string "Y"
@@ -1046,6 +1064,152 @@ public class Const {
    */
   public static final String KETTLE_BATCHING_ROWSET = "KETTLE_BATCHING_ROWSET";
 
+  /**
+   * The name of the variable that selects the row set implementation used for the hops of a normal transformation:
+   * BLOCKING (default), BATCHING or SPSC (lock-free single producer/single consumer ring buffer).
+   */
+  public static final String KETTLE_ROWSET_IMPL = "KETTLE_ROWSET_IMPL";
+
+  /**
+   * The name of the variable that selects how an SPSC row set waits for space or rows: BUSY_SPIN, YIELD or PARK
+   * (default).
+   */
+  public static final String KETTLE_ROWSET_WAIT_STRATEGY = "KETTLE_ROWSET_WAIT_STRATEGY";
+
+  /**
+   * The name of the variable that sets the maximum number of rows that steps supporting batches read and write at once.
+   */
+  public static final String KETTLE_ROW_BATCH_SIZE = "KETTLE_ROW_BATCH_SIZE";
+
+  /**
+   * The default maximum number of rows in a batch, see {@link #KETTLE_ROW_BATCH_SIZE}
+   */
+  public static final int DEFAULT_ROW_BATCH_SIZE = 256;
+
+  /**
+   * Set this variable to N to have the steps with a columnar implementation (Filter Rows, Calculator, Group By and
+   * Memory Group By) process their row batches row by row again. The default is Y.
+   */
+  public static final String KETTLE_COLUMNAR_BATCHES = "KETTLE_COLUMNAR_BATCHES";
+
+  /**
+   * The memory budget of a Sort Rows step copy: a number of bytes, optionally followed by k, m or g. When it's set the
+   * rows are sorted in memory until their estimated size reaches the budget, instead of using the sort size or the free
+   * memory limit of the step.
+   */
+  public static final String KETTLE_SORT_MEMORY_BUDGET = "KETTLE_SORT_MEMORY_BUDGET";
+
+  /**
+   * The memory budget of a Memory Group By step copy: a number of bytes, optionally followed by k, m or g. When the
+   * aggregates take more memory than the budget, partitions of the groups are spilled to temp files and aggregated
+   * after all rows are read. Without a budget all aggregates are kept in memory.
+   */
+  public static final String KETTLE_MEMORY_GROUP_BY_MEMORY_BUDGET = "KETTLE_MEMORY_GROUP_BY_MEMORY_BUDGET";
+
+  /**
+   * The directory the steps that spill over their memory budget write their temp files to. Variables in it are resolved
+   * by the step. When it's not set the java.io.tmpdir directory is used.
+   */
+  public static final String KETTLE_SPILL_DIRECTORY = "KETTLE_SPILL_DIRECTORY";
+
+  /**
+   * Set this variable to Y to keep the lookup data of the Stream Lookup steps in an off-heap hash index instead of on
+   * the Java heap. This doesn't apply when the sorted list or integer pair algorithms are used.
+   */
+  public static final String KETTLE_STREAM_LOOKUP_OFF_HEAP_INDEX = "KETTLE_STREAM_LOOKUP_OFF_HEAP_INDEX";
+
+  /**
+   * The direct memory budget of an off-heap Stream Lookup index: a number of bytes, optionally followed by k, m or g.
+   * Lookup data beyond the budget is stored in a memory-mapped temp file. Without a budget all of it is kept in direct
+   * memory.
+   */
+  public static final String KETTLE_STREAM_LOOKUP_MEMORY_BUDGET = "KETTLE_STREAM_LOOKUP_MEMORY_BUDGET";
+
+  /**
+   * Set this variable to Y to execute the JDBC batches of a connection in batches sized from the observed throughput and
+   * latency instead of one batch per commit. The commit size is still the largest batch size.
+   */
+  public static final String KETTLE_ADAPTIVE_BATCH_SIZE = "KETTLE_ADAPTIVE_BATCH_SIZE";
+
+  /**
+   * The longest an adaptively sized JDBC batch should take to execute, in milliseconds. Default: 1000
+   */
+  public static final String KETTLE_ADAPTIVE_BATCH_TARGET_LATENCY = "KETTLE_ADAPTIVE_BATCH_TARGET_LATENCY";
+
+  /**
+   * Set this variable to STEP to let the copies of a caching Database Lookup step share one cache, or to JVM to share the
+   * cache with all Database Lookup steps running the same lookup on the same connection in this JVM. This only applies
+   * when all lookup conditions are "=" or "IS NULL" and not all data is loaded in the cache.
+   */
+  public static final String KETTLE_DATABASE_LOOKUP_SHARED_CACHE = "KETTLE_DATABASE_LOOKUP_SHARED_CACHE";
+
+  /**
+   * The memory budget of a shared Database Lookup cache: a number of bytes, optionally followed by k, m or g. Default: 64m
+   */
+  public static final String KETTLE_DATABASE_LOOKUP_CACHE_MEMORY = "KETTLE_DATABASE_LOOKUP_CACHE_MEMORY";
+
+  /**
+   * The memory budget of a Merge Join step copy doing a hash join: a number of bytes, optionally followed by k, m or g.
+   * When the rows waiting to be joined take more memory, partitions of them are spilled to temp files and joined after
+   * both inputs have ended. Without a budget all rows are kept in memory.
+   */
+  public static final String KETTLE_HASH_JOIN_MEMORY_BUDGET = "KETTLE_HASH_JOIN_MEMORY_BUDGET";
+
+  /**
+   * The direct memory budget of a Unique Rows (HashSet) step copy in off-heap mode: a number of bytes, optionally
+   * followed by k, m or g. When the keys take more memory, partitions of them are spilled to temp files and the rows
+   * of these partitions are checked after the input has ended. Without a budget all keys are kept in memory.
+   */
+  public static final String KETTLE_UNIQUE_ROWS_MEMORY_BUDGET = "KETTLE_UNIQUE_ROWS_MEMORY_BUDGET";
+
+  /**
+   * Set this variable to Y to run the step copies of normal transformations on virtual threads instead of one platform
+   * thread per step copy. This requires Java 21 or later, older JVMs keep using platform threads.
+   */
+  public static final String KETTLE_TRANS_VIRTUAL_THREADS = "KETTLE_TRANS_VIRTUAL_THREADS";
+
+  /**
+   * Set this variable to Y to run the step copies of normal transformations as tasks on a shared pool of worker threads
+   * instead of one thread per step copy.
+   */
+  public static final String KETTLE_TRANS_COOPERATIVE_SCHEDULER = "KETTLE_TRANS_COOPERATIVE_SCHEDULER";
+
+  /**
+   * The number of worker threads shared by all transformations using the cooperative scheduler. Defaults to the number
+   * of available processors.
+   */
+  public static final String KETTLE_COOPERATIVE_POOL_SIZE = "KETTLE_COOPERATIVE_POOL_SIZE";
+
+  /**
+   * A comma separated list of step IDs that keep running on a thread of their own when a transformation uses the
+   * cooperative scheduler, for example because they bind state to their thread or wait outside of their row sets.
+   */
+  public static final String KETTLE_COOPERATIVE_DEDICATED_STEPS = "KETTLE_COOPERATIVE_DEDICATED_STEPS";
+
+  /**
+   * The default list of steps that keep their own thread with the cooperative scheduler, see
+   * {@link #KETTLE_COOPERATIVE_DEDICATED_STEPS}
+   */
+  public static final String DEFAULT_COOPERATIVE_DEDICATED_STEPS = "ScriptValueMod,Delay,BlockUntilStepsFinish";
+
+  /**
+   * The number of threads decompressing the blocks of a BGZF gzip or zstd file in parallel. Defaults to the number of
+   * available processors, 1 reads the files with a single thread.
+   */
+  public static final String KETTLE_DECOMPRESSION_THREADS = "KETTLE_DECOMPRESSION_THREADS";
+
+  /**
+   * Set this variable to Y to send the rows of clustered transformations in compressed column batches, with all the
+   * remote step streams between two slave servers sharing a single connection.
+   */
+  public static final String KETTLE_REMOTE_STEP_MULTIPLEXING = "KETTLE_REMOTE_STEP_MULTIPLEXING";
+
+  /**
+   * The block compression of the multiplexed remote step streams when the cluster schema compresses the socket streams:
+   * LZ4 (default) or ZSTD. ZSTD needs the zstd-jni library on all slave servers.
+   */
+  public static final String KETTLE_REMOTE_STEP_COMPRESSION = "KETTLE_REMOTE_STEP_COMPRESSION";
+
   /**
    * Set this variable to limit max number of files the Text File Output step can have open at one time.
    */
@@ -1842,6 +2006,39 @@ public class Const {
     return retval;
   }
 
+  /**
+   * Convert a memory size like 512m into a number of bytes. If the conversion fails, assign a default value.
+   *
+   * @param str
+   *          A number of bytes, optionally followed by k, m or g
+   * @param def
+   *          The default value
+   * @return The number of bytes or the default when the size is empty, not valid or not positive.
+   */
+  public static long toMemorySize( String str, long def ) {
+    if ( str == null || str.trim().isEmpty() ) {
+      return def;
+    }
+    String number = str.trim().toLowerCase();
+    long multiplier = 1L;
+    switch ( number.charAt( number.length() - 1 ) ) {
+      case 'g':
+        multiplier *= 1024L;
+        // fall through
+      case 'm':
+        multiplier *= 1024L;
+        // fall through
+      case 'k':
+        multiplier *= 1024L;
+        number = number.substring( 0, number.length() - 1 ).trim();
+        break;
+      default:
+        break;
+    }
+    long bytes = toLong( number, -1L );
+    return bytes > 0 ? bytes * multiplier : def;
+  }
+
   /**
    * Convert a String into a double. If the conversion fails, assign a default value.
    *
@@ -60,6 +60,7 @@ public class QueueRowSet extends BaseRowSet implements Comparable<RowSet>, RowSe
   public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
     this.rowMeta = rowMeta;
     buffer.add( rowData );
+    signalConsumer();
     return true;
   }
 
@@ -56,6 +56,30 @@ public interface RowSet {
    */
   boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu );
 
+  /**
+   * Offer a batch of rows to this rowset. Every row waits (blocks) for a small period of time if the buffer is full, in
+   * the same way as {@link #putRow(RowMetaInterface, Object[])}. Implementations can override this to hand over the
+   * whole batch at once.
+   *
+   * @param rowMeta
+   *          The description of the row data
+   * @param rows
+   *          the buffer holding the rows to put
+   * @param offset
+   *          the position of the first row to put in the buffer
+   * @param nrRows
+   *          the number of rows to put
+   * @return the number of rows that were added, starting at offset. This is less than nrRows if the buffer stayed full.
+   */
+  default int putRows( RowMetaInterface rowMeta, Object[][] rows, int offset, int nrRows ) {
+    for ( int i = 0; i < nrRows; i++ ) {
+      if ( !putRow( rowMeta, rows[offset + i] ) ) {
+        return i;
+      }
+    }
+    return nrRows;
+  }
+
   /**
    * Get a row from the input buffer, it blocks for a short period until a new row becomes available. Otherwise, it
    * returns null.
@@ -78,6 +102,46 @@ public interface RowSet {
    */
   Object[] getRowWait( long timeout, TimeUnit tu );
 
+  /**
+   * Get the rows that are available in the buffer immediately, without waiting.
+   *
+   * @param rows
+   *          the buffer to store the rows in
+   * @param offset
+   *          the position in the buffer to store the first row at
+   * @param maxRows
+   *          the maximum number of rows to get
+   * @return the number of rows that were stored in the buffer, 0 if no row is available.
+   */
+  default int getRows( Object[][] rows, int offset, int maxRows ) {
+    int nrRows = 0;
+    Object[] row;
+    while ( nrRows < maxRows && ( row = getRowImmediate() ) != null ) {
+      rows[offset + nrRows++] = row;
+    }
+    return nrRows;
+  }
+
+  /**
+   * Register the signal to give when a row is added to this row set or when it is marked as done. The consumer can then
+   * sleep until something happens on any of its input row sets instead of polling them. Row sets that don't support
+   * this ignore the signal and the consumer falls back to polling.
+   *
+   * @param signal
+   *          the signal of the consuming step or null to stop signalling
+   */
+  default void setConsumerSignal( WakeupSignal signal ) {
+    // Polling only
+  }
+
+  /**
+   * @return true if this row set gives the signal set with {@link #setConsumerSignal(WakeupSignal)}, false if the
+   *         consumer has to poll it.
+   */
+  default boolean supportsConsumerSignal() {
+    return false;
+  }
+
   /**
    * @return Set indication that there is no more input
    */
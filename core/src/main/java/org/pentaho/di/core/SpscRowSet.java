@@ -0,0 +1,321 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A bounded, lock-free row set for a single producer thread and a single consumer thread. Every hop between two step
+ * copies has exactly one writer and one reader, so the two sides only need to publish their own position in a ring
+ * buffer instead of sharing a lock like {@link BlockingRowSet} does.<br>
+ * <br>
+ * When the buffer is full (put) or empty (get) the calling thread waits using the configured {@link WaitStrategy}
+ * until the timeout expires.
+ *
+ * @since 10.3
+ */
+public class SpscRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+
+  /**
+   * The way a producer or consumer waits for the other side to make progress.
+   */
+  public enum WaitStrategy {
+    /** Spin on the CPU, lowest latency but burns a core while waiting. */
+    BUSY_SPIN,
+    /** Give the CPU to other runnable threads between attempts. */
+    YIELD,
+    /** Spin and yield for a short while, then park the thread for a few microseconds. */
+    PARK;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos( 50 );
+
+    /**
+     * Wait a little while.
+     *
+     * @param attempt
+     *          the number of unsuccessful attempts so far
+     */
+    void idle( int attempt ) {
+      switch ( this ) {
+        case BUSY_SPIN:
+          Thread.onSpinWait();
+          break;
+        case YIELD:
+          Thread.yield();
+          break;
+        default:
+          if ( attempt < SPIN_TRIES ) {
+            Thread.onSpinWait();
+          } else if ( attempt < SPIN_TRIES + YIELD_TRIES ) {
+            Thread.yield();
+          } else {
+            LockSupport.parkNanos( PARK_NANOS );
+          }
+          break;
+      }
+    }
+
+    /**
+     * @param name
+     *          the name of the wait strategy, case insensitive
+     * @return the wait strategy with the given name or PARK if the name is empty or unknown.
+     */
+    public static WaitStrategy getWaitStrategy( String name ) {
+      for ( WaitStrategy strategy : values() ) {
+        if ( strategy.name().equalsIgnoreCase( Const.trim( name ) ) ) {
+          return strategy;
+        }
+      }
+      return PARK;
+    }
+  }
+
+  private final Object[][] buffer;
+  private final int mask;
+  private final int capacity;
+
+  private final WaitStrategy waitStrategy;
+
+  /** The next position to read, only written by the consumer */
+  private final AtomicLong head = new AtomicLong();
+
+  /** The next position to write, only written by the producer */
+  private final AtomicLong tail = new AtomicLong();
+
+  /** The producer's last known value of head */
+  private long headCache;
+
+  /** The consumer's last known value of tail */
+  private long tailCache;
+
+  private int timeoutPut;
+  private int timeoutGet;
+
+  /**
+   * Create a new single producer/single consumer row set using the PARK wait strategy.
+   *
+   * @param maxSize
+   *          the maximum number of rows this row set can hold
+   */
+  public SpscRowSet( int maxSize ) {
+    this( maxSize, WaitStrategy.PARK );
+  }
+
+  /**
+   * Create a new single producer/single consumer row set.
+   *
+   * @param maxSize
+   *          the maximum number of rows this row set can hold
+   * @param waitStrategy
+   *          the way to wait for a free slot or for a row to arrive
+   */
+  public SpscRowSet( int maxSize, WaitStrategy waitStrategy ) {
+    super();
+
+    capacity = Math.max( 1, maxSize );
+    // The ring itself is sized to a power of 2 so the position can be masked, we still only hold capacity rows
+    //
+    int ringSize = Integer.highestOneBit( capacity );
+    if ( ringSize < capacity ) {
+      ringSize <<= 1;
+    }
+    buffer = new Object[ringSize][];
+    mask = ringSize - 1;
+    this.waitStrategy = waitStrategy == null ? WaitStrategy.PARK : waitStrategy;
+
+    timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    if ( rowData == null ) {
+      return false;
+    }
+    this.rowMeta = rowMeta;
+
+    long position = tail.get();
+    if ( position - headCache >= capacity ) {
+      headCache = head.get();
+      if ( position - headCache >= capacity ) {
+        long deadline = System.nanoTime() + tu.toNanos( time );
+        int attempt = 0;
+        while ( position - headCache >= capacity ) {
+          if ( Thread.currentThread().isInterrupted() || System.nanoTime() - deadline >= 0 ) {
+            return false;
+          }
+          waitStrategy.idle( attempt++ );
+          headCache = head.get();
+        }
+      }
+    }
+
+    buffer[(int) position & mask] = rowData;
+    // Publish the row to the consumer. This has to be a full volatile write: with a lazySet the read of the waiter in
+    // signalConsumer() can move ahead of it, and a consumer that is just arming its signal would miss the row.
+    tail.set( position + 1 );
+    signalConsumer();
+    return true;
+  }
+
+  /**
+   * Puts as many rows of the batch as there is room for in one go and only waits when the buffer is full.
+   */
+  @Override
+  public int putRows( RowMetaInterface rowMeta, Object[][] rows, int offset, int nrRows ) {
+    this.rowMeta = rowMeta;
+
+    int nrPut = 0;
+    while ( nrPut < nrRows ) {
+      long position = tail.get();
+      int free = (int) ( capacity - ( position - headCache ) );
+      if ( free <= 0 ) {
+        headCache = head.get();
+        free = (int) ( capacity - ( position - headCache ) );
+      }
+      if ( free <= 0 ) {
+        // Wait for room using the regular single row logic
+        if ( !putRowWait( rowMeta, rows[offset + nrPut], timeoutPut, TimeUnit.MILLISECONDS ) ) {
+          return nrPut;
+        }
+        nrPut++;
+        continue;
+      }
+
+      int count = Math.min( free, nrRows - nrPut );
+      for ( int i = 0; i < count; i++ ) {
+        buffer[(int) ( position + i ) & mask] = rows[offset + nrPut + i];
+      }
+      // Publish the whole batch to the consumer at once, a full volatile write for the same reason as in putRowWait()
+      tail.set( position + count );
+      signalConsumer();
+      nrPut += count;
+    }
+    return nrPut;
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    long position = head.get();
+    if ( position >= tailCache ) {
+      tailCache = tail.get();
+      if ( position >= tailCache ) {
+        return null;
+      }
+    }
+    return take( position );
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    long position = head.get();
+    if ( position >= tailCache ) {
+      tailCache = tail.get();
+      if ( position >= tailCache ) {
+        long deadline = System.nanoTime() + tu.toNanos( timeout );
+        int attempt = 0;
+        while ( position >= tailCache ) {
+          if ( Thread.currentThread().isInterrupted() || System.nanoTime() - deadline >= 0 ) {
+            return null;
+          }
+          waitStrategy.idle( attempt++ );
+          tailCache = tail.get();
+        }
+      }
+    }
+    return take( position );
+  }
+
+  @Override
+  public int getRows( Object[][] rows, int offset, int maxRows ) {
+    long position = head.get();
+    tailCache = tail.get();
+    int count = (int) Math.min( maxRows, tailCache - position );
+    if ( count <= 0 ) {
+      return 0;
+    }
+    for ( int i = 0; i < count; i++ ) {
+      int index = (int) ( position + i ) & mask;
+      rows[offset + i] = buffer[index];
+      buffer[index] = null; // prevent any hold-up to GC
+    }
+    // Hand all the slots back to the producer at once
+    head.lazySet( position + count );
+    return count;
+  }
+
+  private Object[] take( long position ) {
+    int index = (int) position & mask;
+    Object[] row = buffer[index];
+    buffer[index] = null; // prevent any hold-up to GC
+    // Hand the slot back to the producer
+    head.lazySet( position + 1 );
+    return row;
+  }
+
+  @Override
+  public int size() {
+    // Read head first so that a concurrent get can never make the size negative
+    long h = head.get();
+    long t = tail.get();
+    return (int) Math.max( 0, Math.min( capacity, t - h ) );
+  }
+
+  /**
+   * @return the wait strategy used by this row set
+   */
+  public WaitStrategy getWaitStrategy() {
+    return waitStrategy;
+  }
+
+  /**
+   * Clear the row set. This can only be done when neither the producer nor the consumer is active.
+   */
+  @Override
+  public void clear() {
+    for ( int i = 0; i < buffer.length; i++ ) {
+      buffer[i] = null;
+    }
+    long position = tail.get();
+    head.set( position );
+    headCache = position;
+    tailCache = position;
+    done.set( false );
+  }
+}
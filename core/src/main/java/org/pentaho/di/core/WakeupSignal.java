@@ -0,0 +1,99 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.pentaho.di.core.util.BlockingUtil;
+
+/**
+ * Lets a thread sleep until something it is interested in happens, for example a row arriving in one of the input row
+ * sets of a step, instead of polling. Signalling is cheap when nobody is waiting: it is a single volatile read.<br>
+ * <br>
+ * A waiting thread should:
+ * <ol>
+ * <li>call {@link #arm()}</li>
+ * <li>check once more whether the thing it waits for happened in the meantime</li>
+ * <li>if not, call {@link #await(long)}, which always disarms the signal again</li>
+ * </ol>
+ * Waits are always bounded so a signal that slips through costs latency, never progress.
+ *
+ * @since 10.3
+ */
+public class WakeupSignal {
+
+  private volatile Thread waiter;
+  private volatile boolean signalled;
+
+  /**
+   * Register the current thread as the one to wake up with the next {@link #signal()}.
+   */
+  public void arm() {
+    signalled = false;
+    waiter = Thread.currentThread();
+  }
+
+  /**
+   * Unregister the waiting thread without waiting.
+   */
+  public void disarm() {
+    waiter = null;
+  }
+
+  /**
+   * Park the current thread until the signal is given, the timeout expires or the thread is interrupted. The signal is
+   * disarmed afterwards.
+   *
+   * @param timeoutNanos
+   *          the maximum time to wait in nanoseconds
+   * @return true if the signal was given, false on a timeout or interruption
+   */
+  public boolean await( long timeoutNanos ) {
+    try {
+      BlockingUtil.block( () -> park( timeoutNanos ) );
+      return signalled;
+    } finally {
+      waiter = null;
+    }
+  }
+
+  private void park( long timeoutNanos ) {
+    long deadline = System.nanoTime() + timeoutNanos;
+    long remaining = timeoutNanos;
+    while ( !signalled && remaining > 0 && !Thread.currentThread().isInterrupted() ) {
+      LockSupport.parkNanos( this, remaining );
+      remaining = deadline - System.nanoTime();
+    }
+  }
+
+  /**
+   * Wake up the waiting thread, if any.
+   */
+  public void signal() {
+    Thread thread = waiter;
+    if ( thread != null ) {
+      signalled = true;
+      LockSupport.unpark( thread );
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.database;
+
+/**
+ * Chooses the number of rows to send to the database per JDBC batch from the throughput and latency of the previous
+ * batches of a connection.<br>
+ * The size climbs towards the highest rows per second: it keeps moving in the same direction while the throughput
+ * improves and turns around when it drops. A batch taking longer than the target latency always shrinks the size, so
+ * a single batch never holds locks or driver buffers for too long. The size stays between a minimum and the commit
+ * size.
+ *
+ * @since 10.3
+ */
+public class AdaptiveBatchSizer {
+
+  public static final int DEFAULT_MIN_BATCH_SIZE = 16;
+  public static final int DEFAULT_INITIAL_BATCH_SIZE = 100;
+  public static final long DEFAULT_TARGET_LATENCY_MS = 1000L;
+
+  private static final double GROWTH_FACTOR = 1.5;
+
+  /** Throughput changes within this fraction are considered noise */
+  private static final double TOLERANCE = 0.05;
+
+  private final int minBatchSize;
+  private final int maxBatchSize;
+  private final long targetLatencyNanos;
+
+  private int batchSize;
+  private boolean growing = true;
+  private double previousRowsPerSecond = -1;
+
+  private long nrBatches;
+  private long nrRows;
+  private long totalNanos;
+
+  /**
+   * @param maxBatchSize
+   *          the largest batch size, usually the commit size
+   * @param targetLatencyMs
+   *          the longest a batch should take to execute, in milliseconds
+   */
+  public AdaptiveBatchSizer( int maxBatchSize, long targetLatencyMs ) {
+    this.maxBatchSize = Math.max( 1, maxBatchSize );
+    this.minBatchSize = Math.min( DEFAULT_MIN_BATCH_SIZE, this.maxBatchSize );
+    this.targetLatencyNanos = Math.max( 1L, targetLatencyMs ) * 1000000L;
+    this.batchSize = Math.max( minBatchSize, Math.min( DEFAULT_INITIAL_BATCH_SIZE, this.maxBatchSize ) );
+  }
+
+  /**
+   * @return the number of rows to add before the batch is executed
+   */
+  public synchronized int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Report the execution of a batch.
+   *
+   * @param rows
+   *          the number of rows in the batch
+   * @param nanos
+   *          the execution time of the batch in nanoseconds
+   */
+  public synchronized void batchExecuted( int rows, long nanos ) {
+    nrBatches++;
+    nrRows += rows;
+    totalNanos += nanos;
+
+    // Partial batches, executed at a commit or at the end of the data, say little about the current size
+    //
+    if ( rows < batchSize ) {
+      return;
+    }
+
+    if ( nanos > targetLatencyNanos ) {
+      growing = false;
+      previousRowsPerSecond = -1;
+      resize( 1 / GROWTH_FACTOR );
+      return;
+    }
+
+    double rowsPerSecond = rows * 1000000000.0 / Math.max( 1L, nanos );
+    if ( previousRowsPerSecond >= 0 && rowsPerSecond < previousRowsPerSecond * ( 1 - TOLERANCE ) ) {
+      growing = !growing;
+    }
+    previousRowsPerSecond = rowsPerSecond;
+    resize( growing ? GROWTH_FACTOR : 1 / GROWTH_FACTOR );
+  }
+
+  private void resize( double factor ) {
+    int newSize = (int) Math.round( batchSize * factor );
+    if ( newSize == batchSize ) {
+      newSize += factor > 1 ? 1 : -1;
+    }
+    batchSize = Math.max( minBatchSize, Math.min( maxBatchSize, newSize ) );
+  }
+
+  public synchronized long getNrBatches() {
+    return nrBatches;
+  }
+
+  public synchronized long getNrRows() {
+    return nrRows;
+  }
+
+  /**
+   * @return the average number of rows written per second while executing batches
+   */
+  public synchronized long getRowsPerSecond() {
+    return totalNanos == 0L ? 0L : Math.round( nrRows * 1000000000.0 / totalNanos );
+  }
+}
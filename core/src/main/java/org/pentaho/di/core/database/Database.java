@@ -49,6 +49,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -158,6 +159,13 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
 
   private int written;
 
+  /** null until the adaptive batching variable is read */
+  private Boolean adaptiveBatching;
+  private AdaptiveBatchSizer batchSizer;
+
+  /** The rows added to the batch of each prepared statement since its last execution */
+  private final Map<PreparedStatement, Integer> pendingBatchRows = new IdentityHashMap<>();
+
   private LogChannelInterface log;
   private LoggingObjectInterface parentLoggingObject;
   private static final String[] TABLE_TYPES_TO_GET = { "TABLE", "VIEW" };
@@ -648,6 +656,11 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     if ( connection == null ) {
       return; // Nothing to do...
     }
+    pendingBatchRows.clear();
+    if ( batchSizer != null && batchSizer.getNrBatches() > 0 && log.isDetailed() ) {
+      log.logDetailed( "Adaptive batching executed " + batchSizer.getNrRows() + " rows in " + batchSizer.getNrBatches()
+        + " batches at " + batchSizer.getRowsPerSecond() + " rows/s, last batch size " + batchSizer.getBatchSize() );
+    }
     try {
       if ( connection.isClosed() ) {
         return; // Nothing to do...
@@ -1046,6 +1059,7 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
 
   public void closePreparedStatement( PreparedStatement ps ) throws KettleDatabaseException {
     if ( ps != null ) {
+      pendingBatchRows.remove( ps );
       try {
         ps.close();
       } catch ( SQLException e ) {
@@ -1342,6 +1356,8 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
         if ( useBatchInsert ) {
           debug = "insertRow add batch";
           ps.addBatch(); // Add the batch, but don't forget to run the batch
+          Integer pending = pendingBatchRows.get( ps );
+          pendingBatchRows.put( ps, pending == null ? 1 : pending + 1 );
         } else {
           debug = "insertRow exec update";
           ps.executeUpdate();
@@ -1358,7 +1374,7 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
           if ( useBatchInsert ) {
             isBatchUpdate = true;
             debug = "insertRow executeBatch commit";
-            ps.executeBatch();
+            executeBatch( ps );
             commit();
             ps.clearBatch();
           } else {
@@ -1370,6 +1386,16 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
         }
       }
 
+      // With adaptive batching the rows are sent to the database before the commit size is reached
+      //
+      AdaptiveBatchSizer sizer = useBatchInsert && !isAutoCommit() ? getBatchSizer() : null;
+      if ( sizer != null && getPendingBatchRows( ps ) >= sizer.getBatchSize() ) {
+        isBatchUpdate = true;
+        debug = "insertRow executeBatch";
+        executeBatch( ps );
+        ps.clearBatch();
+      }
+
       return rowsAreSafe;
     } catch ( BatchUpdateException ex ) {
       throw createKettleDatabaseBatchException( "Error updating batch", ex );
@@ -1395,9 +1421,90 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     clearBatch( prepStatementInsert );
   }
 
+  /**
+   * Execute the rows added to the batch of a prepared statement since its last execution. The execution is timed for
+   * the database metrics and, with adaptive batching, to size the next batches of this connection.
+   *
+   * @param ps
+   *          the prepared statement
+   * @return the update counts, an empty array if no rows were added since the last execution
+   * @throws SQLException
+   *           in case the batch fails
+   */
+  public int[] executeBatch( PreparedStatement ps ) throws SQLException {
+    // Statements filled without insertRow() are executed regardless, some drivers fail on empty batches
+    //
+    Integer pending = pendingBatchRows.get( ps );
+    if ( pending != null && pending == 0 ) {
+      return new int[0];
+    }
+    long startTime = System.nanoTime();
+    int[] updateCounts = ps.executeBatch();
+    long nanos = System.nanoTime() - startTime;
+
+    if ( pending != null ) {
+      pendingBatchRows.put( ps, 0 );
+      if ( batchSizer != null ) {
+        batchSizer.batchExecuted( pending, nanos );
+      }
+    }
+    if ( log.isGatheringMetrics() ) {
+      long time = nanos / 1000000L;
+      log.snap( Metrics.METRIC_DATABASE_EXECUTE_BATCH_COUNT, databaseMeta.getName() );
+      log.snap( Metrics.METRIC_DATABASE_EXECUTE_BATCH_SUM_TIME, databaseMeta.getName(), time );
+      log.snap( Metrics.METRIC_DATABASE_EXECUTE_BATCH_MIN_TIME, databaseMeta.getName(), time );
+      log.snap( Metrics.METRIC_DATABASE_EXECUTE_BATCH_MAX_TIME, databaseMeta.getName(), time );
+      if ( pending != null ) {
+        log.snap( Metrics.METRIC_DATABASE_EXECUTE_BATCH_SUM_ROWS, databaseMeta.getName(), pending );
+        log.snap( Metrics.METRIC_DATABASE_EXECUTE_BATCH_MIN_SIZE, databaseMeta.getName(), pending );
+        log.snap( Metrics.METRIC_DATABASE_EXECUTE_BATCH_MAX_SIZE, databaseMeta.getName(), pending );
+      }
+    }
+    return updateCounts;
+  }
+
+  /**
+   * @return the number of rows added to the batch of the prepared statement by insertRow() since its last execution
+   */
+  public int getPendingBatchRows( PreparedStatement ps ) {
+    Integer pending = pendingBatchRows.get( ps );
+    return pending == null ? 0 : pending;
+  }
+
+  /**
+   * Enable or disable adaptive batching for this connection. By default it's enabled with the
+   * KETTLE_ADAPTIVE_BATCH_SIZE variable. Steps that match the update counts of a failed batch with their own buffer of
+   * rows since the last commit need to disable it.
+   *
+   * @param adaptiveBatching
+   *          true to execute batches sized from the observed throughput before the commit size is reached
+   */
+  public void setAdaptiveBatching( boolean adaptiveBatching ) {
+    this.adaptiveBatching = adaptiveBatching;
+  }
+
+  /**
+   * @return the batch sizer of this connection or null if adaptive batching isn't used
+   */
+  public AdaptiveBatchSizer getBatchSizer() {
+    if ( adaptiveBatching == null ) {
+      adaptiveBatching = "Y".equalsIgnoreCase( getVariable( Const.KETTLE_ADAPTIVE_BATCH_SIZE, "N" ) );
+    }
+    if ( !adaptiveBatching || commitsize <= 0 ) {
+      return null;
+    }
+    if ( batchSizer == null ) {
+      long targetLatency = Const.toLong( getVariable( Const.KETTLE_ADAPTIVE_BATCH_TARGET_LATENCY ),
+        AdaptiveBatchSizer.DEFAULT_TARGET_LATENCY_MS );
+      batchSizer = new AdaptiveBatchSizer( commitsize, targetLatency );
+    }
+    return batchSizer;
+  }
+
   public void clearBatch( PreparedStatement preparedStatement ) throws KettleDatabaseException {
     try {
       preparedStatement.clearBatch();
+      pendingBatchRows.remove( preparedStatement );
     } catch ( SQLException e ) {
       throw new KettleDatabaseException( "Unable to clear batch for prepared statement", e );
     }
@@ -1406,11 +1513,12 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
   public void executeAndClearBatch( PreparedStatement preparedStatement ) throws KettleDatabaseException {
     try {
       if ( written > 0 && getDatabaseMetaData().supportsBatchUpdates() ) {
-        preparedStatement.executeBatch();
+        executeBatch( preparedStatement );
       }
 
       written = 0;
       preparedStatement.clearBatch();
+      pendingBatchRows.remove( preparedStatement );
     } catch ( SQLException e ) {
       throw new KettleDatabaseException( "Unable to clear batch for prepared statement", e );
     }
@@ -1458,7 +1566,7 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
             // That leaves the task of keeping track of the number of rows up to
             // our responsibility.
             isBatchUpdate = true;
-            ps.executeBatch();
+            executeBatch( ps );
             commit();
             ps.clearBatch();
           } else {
@@ -1468,6 +1576,7 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
 
         // Let's not forget to close the prepared statement.
         //
+        pendingBatchRows.remove( ps );
         ps.close();
       }
     } catch ( BatchUpdateException ex ) {
@@ -1533,7 +1642,7 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
             // That leaves the task of keeping track of the number of rows up to
             // our responsibility.
             isBatchUpdate = true;
-            ps.executeBatch();
+            executeBatch( ps );
             commit();
           } else {
             commit();
@@ -1542,6 +1651,7 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
 
         // Let's not forget to close the prepared statement.
         //
+        pendingBatchRows.remove( ps );
         ps.close();
       }
     } catch ( BatchUpdateException ex ) {
@@ -0,0 +1,383 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.hash;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.pentaho.di.core.exception.KettleValueException;
+
+/**
+ * An open addressing hash index of serialized keys and values which keeps all its data outside of the Java heap. The
+ * slots are kept in direct buffers and the records are appended to direct buffer segments. Once the segments reach the
+ * memory limit, new segments are memory-mapped from a temp file so the operating system can page them out.<br>
+ * Keys are compared on their bytes, like {@link ByteArrayHashIndex} does. Putting an existing key replaces its value.
+ *
+ * @since 10.3
+ */
+public class OffHeapHashIndex implements Closeable {
+
+  private static final int STANDARD_INDEX_SIZE = 512;
+  private static final float STANDARD_LOAD_FACTOR = 0.75f;
+  private static final int MAX_CAPACITY = 1 << 28;
+  private static final int STANDARD_SEGMENT_SIZE = 64 * 1024 * 1024;
+  private static final int INITIAL_SEGMENT_SIZE = 16 * 1024;
+
+  /** The key length and value length in front of every record */
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  private final long memoryLimit;
+  private final String directory;
+  private final int segmentSize;
+
+  private IntBuffer hashes;
+  private LongBuffer addresses;
+  private int capacity;
+  private int size;
+  private int resizeThreshold;
+
+  private final List<ByteBuffer> segments = new ArrayList<>();
+  private ByteBuffer currentSegment;
+  private int nextSegmentSize;
+  private long allocated;
+
+  private File spillFile;
+  private RandomAccessFile spillRandomAccessFile;
+  private long spillSize;
+
+  /**
+   * Create an off-heap hash index.
+   *
+   * @param size
+   *          the expected number of keys
+   * @param memoryLimit
+   *          the number of bytes of records to keep in direct memory before mapping a temp file, -1 for no limit
+   * @param directory
+   *          the directory of the temp file
+   */
+  public OffHeapHashIndex( int size, long memoryLimit, String directory ) {
+    this( size, memoryLimit, directory, STANDARD_SEGMENT_SIZE );
+  }
+
+  public OffHeapHashIndex() {
+    this( STANDARD_INDEX_SIZE, -1L, null );
+  }
+
+  /**
+   * Create an off-heap hash index with records appended to segments of the given size.
+   *
+   * @param segmentSize
+   *          the largest number of bytes allocated at once for records, the first segments are smaller so that
+   *          small indexes stay small
+   */
+  public OffHeapHashIndex( int size, long memoryLimit, String directory, int segmentSize ) {
+    this.memoryLimit = memoryLimit;
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.nextSegmentSize = Math.min( INITIAL_SEGMENT_SIZE, segmentSize );
+
+    int factor2Size = STANDARD_INDEX_SIZE;
+    while ( factor2Size < size / STANDARD_LOAD_FACTOR && factor2Size < MAX_CAPACITY ) {
+      factor2Size <<= 1;
+    }
+    allocateSlots( factor2Size );
+  }
+
+  /**
+   * @return the number of keys in the index
+   */
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return true if part of the records are stored in a memory-mapped temp file
+   */
+  public boolean isSpilled() {
+    return spillFile != null;
+  }
+
+  /**
+   * @return the number of bytes of direct memory taken by the slots and the record segments
+   */
+  public long getMemorySize() {
+    return capacity * 12L + allocated;
+  }
+
+  public byte[] get( byte[] key ) {
+    long address = addresses.get( findSlot( hash( key ), key ) );
+    if ( address == 0L ) {
+      return null;
+    }
+    ByteBuffer segment = getSegment( address );
+    int offset = getOffset( address );
+    byte[] value = new byte[segment.getInt( offset + 4 )];
+    ByteBuffer buffer = segment.duplicate();
+    buffer.position( offset + RECORD_HEADER_SIZE + segment.getInt( offset ) );
+    buffer.get( value );
+    return value;
+  }
+
+  public void put( byte[] key, byte[] value ) throws KettleValueException {
+    int hashCode = hash( key );
+    int slot = findSlot( hashCode, key );
+    boolean newKey = addresses.get( slot ) == 0L;
+
+    // Replaced values are left behind in their segment, the index is meant to be loaded once
+    //
+    addresses.put( slot, append( key, value ) );
+    if ( newKey ) {
+      hashes.put( slot, hashCode );
+      size++;
+      if ( size >= resizeThreshold ) {
+        resize();
+      }
+    }
+  }
+
+  /**
+   * Put a key unless the index holds it already.
+   *
+   * @return true if the key was added, false if the index already held the key
+   */
+  public boolean putIfAbsent( byte[] key, byte[] value ) throws KettleValueException {
+    int hashCode = hash( key );
+    int slot = findSlot( hashCode, key );
+    if ( addresses.get( slot ) != 0L ) {
+      return false;
+    }
+    addresses.put( slot, append( key, value ) );
+    hashes.put( slot, hashCode );
+    size++;
+    if ( size >= resizeThreshold ) {
+      resize();
+    }
+    return true;
+  }
+
+  /**
+   * @return the keys of the index in no particular order, the index can't be changed while iterating
+   */
+  public Iterator<byte[]> keyIterator() {
+    return new Iterator<byte[]>() {
+      private int slot = nextSlot( 0 );
+
+      @Override
+      public boolean hasNext() {
+        return slot < capacity;
+      }
+
+      @Override
+      public byte[] next() {
+        if ( slot >= capacity ) {
+          throw new NoSuchElementException();
+        }
+        long address = addresses.get( slot );
+        slot = nextSlot( slot + 1 );
+
+        ByteBuffer segment = getSegment( address );
+        int offset = getOffset( address );
+        byte[] key = new byte[segment.getInt( offset )];
+        ByteBuffer buffer = segment.duplicate();
+        buffer.position( offset + RECORD_HEADER_SIZE );
+        buffer.get( key );
+        return key;
+      }
+
+      private int nextSlot( int from ) {
+        int next = from;
+        while ( next < capacity && addresses.get( next ) == 0L ) {
+          next++;
+        }
+        return next;
+      }
+    };
+  }
+
+  /**
+   * Release the memory and delete the temp file, if any.
+   */
+  @Override
+  public void close() {
+    hashes = null;
+    addresses = null;
+    segments.clear();
+    currentSegment = null;
+    size = 0;
+    capacity = 0;
+    allocated = 0L;
+    if ( spillRandomAccessFile != null ) {
+      try {
+        spillRandomAccessFile.close();
+      } catch ( IOException e ) {
+        // Ignore, we're only cleaning up
+      }
+      spillRandomAccessFile = null;
+    }
+    if ( spillFile != null ) {
+      // A mapped file can't be deleted on every platform before its buffers are collected
+      //
+      if ( !spillFile.delete() ) {
+        spillFile.deleteOnExit();
+      }
+      spillFile = null;
+    }
+  }
+
+  private int findSlot( int hashCode, byte[] key ) {
+    int mask = capacity - 1;
+    int slot = hashCode & mask;
+    while ( true ) {
+      long address = addresses.get( slot );
+      if ( address == 0L || ( hashes.get( slot ) == hashCode && equalsKey( address, key ) ) ) {
+        return slot;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+  }
+
+  private boolean equalsKey( long address, byte[] key ) {
+    ByteBuffer segment = getSegment( address );
+    int offset = getOffset( address );
+    if ( segment.getInt( offset ) != key.length ) {
+      return false;
+    }
+    offset += RECORD_HEADER_SIZE;
+    for ( int i = 0; i < key.length; i++ ) {
+      if ( segment.get( offset + i ) != key[i] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private long append( byte[] key, byte[] value ) throws KettleValueException {
+    int recordSize = RECORD_HEADER_SIZE + key.length + value.length;
+    if ( currentSegment == null || currentSegment.remaining() < recordSize ) {
+      currentSegment = allocateSegment( Math.max( nextSegmentSize, recordSize ) );
+      segments.add( currentSegment );
+      nextSegmentSize = (int) Math.min( segmentSize, nextSegmentSize * 2L );
+    }
+    long address = ( (long) segments.size() << 32 ) | currentSegment.position();
+    currentSegment.putInt( key.length );
+    currentSegment.putInt( value.length );
+    currentSegment.put( key );
+    currentSegment.put( value );
+    return address;
+  }
+
+  private ByteBuffer allocateSegment( int bytes ) throws KettleValueException {
+    if ( memoryLimit < 0 || allocated + bytes <= memoryLimit ) {
+      allocated += bytes;
+      return ByteBuffer.allocateDirect( bytes );
+    }
+    try {
+      if ( spillFile == null ) {
+        spillFile = File.createTempFile( "hashindex", ".tmp", directory == null ? null : new File( directory ) );
+        spillRandomAccessFile = new RandomAccessFile( spillFile, "rw" );
+      }
+      ByteBuffer segment =
+        spillRandomAccessFile.getChannel().map( FileChannel.MapMode.READ_WRITE, spillSize, bytes );
+      spillSize += bytes;
+      return segment;
+    } catch ( IOException e ) {
+      throw new KettleValueException( "Unable to map a temp file for the off-heap hash index", e );
+    }
+  }
+
+  private ByteBuffer getSegment( long address ) {
+    return segments.get( (int) ( address >>> 32 ) - 1 );
+  }
+
+  private static int getOffset( long address ) {
+    return (int) address;
+  }
+
+  private void allocateSlots( int newCapacity ) {
+    capacity = newCapacity;
+    resizeThreshold = (int) ( newCapacity * STANDARD_LOAD_FACTOR );
+    hashes = ByteBuffer.allocateDirect( newCapacity * 4 ).order( ByteOrder.nativeOrder() ).asIntBuffer();
+    addresses = ByteBuffer.allocateDirect( newCapacity * 8 ).order( ByteOrder.nativeOrder() ).asLongBuffer();
+  }
+
+  private void resize() throws KettleValueException {
+    if ( capacity >= MAX_CAPACITY ) {
+      if ( size < capacity - 1 ) {
+        return; // keep filling the table beyond its load factor
+      }
+      throw new KettleValueException( "The off-heap hash index can't hold more than " + ( capacity - 1 ) + " keys" );
+    }
+
+    IntBuffer oldHashes = hashes;
+    LongBuffer oldAddresses = addresses;
+    int oldCapacity = capacity;
+    allocateSlots( capacity * 2 );
+
+    // Keys are unique already so we only need to find an empty slot
+    //
+    int mask = capacity - 1;
+    for ( int i = 0; i < oldCapacity; i++ ) {
+      long address = oldAddresses.get( i );
+      if ( address != 0L ) {
+        int hashCode = oldHashes.get( i );
+        int slot = hashCode & mask;
+        while ( addresses.get( slot ) != 0L ) {
+          slot = ( slot + 1 ) & mask;
+        }
+        hashes.put( slot, hashCode );
+        addresses.put( slot, address );
+      }
+    }
+  }
+
+  /**
+   * Hash the key bytes, spreading the bits so that the lower bits of the slot are usable for any type of key.
+   */
+  static int hash( byte[] key ) {
+    int h = 1;
+    for ( byte b : key ) {
+      h = 31 * h + b;
+    }
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
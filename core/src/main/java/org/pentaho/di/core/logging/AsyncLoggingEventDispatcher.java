@@ -0,0 +1,313 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.logging;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.pentaho.di.core.util.BlockingUtil;
+
+/**
+ * Delivers the logging events of a {@link LoggingBuffer} to its listeners on a background thread.<br>
+ * Every logging thread puts its events in a ring buffer of its own, so logging threads never wait for each other or for
+ * the listeners. The delivery thread takes the events of all ring buffers in batches, puts them back in the order they
+ * were logged and hands each batch to the listeners with {@link KettleLoggingEventListener#eventsAdded(List)}.<br>
+ * When the ring buffer of a thread is full the thread waits for the delivery thread ({@link OverflowPolicy#BLOCK}) or
+ * the event is not delivered to the listeners ({@link OverflowPolicy#DROP}). Either way the event is in the log buffer.
+ *
+ * @since 10.3
+ */
+public class AsyncLoggingEventDispatcher {
+
+  /**
+   * What a logging thread does when its ring buffer is full
+   */
+  public enum OverflowPolicy {
+    /** Wait until the delivery thread made room */
+    BLOCK,
+    /** Don't deliver the event to the listeners */
+    DROP;
+
+    public static OverflowPolicy getPolicy( String code ) {
+      for ( OverflowPolicy policy : values() ) {
+        if ( policy.name().equalsIgnoreCase( code ) ) {
+          return policy;
+        }
+      }
+      return BLOCK;
+    }
+  }
+
+  public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos( 1 );
+  private static final long WAIT_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos( 100 );
+
+  private final List<KettleLoggingEventListener> listeners;
+  private final int bufferSize;
+  private final int ringSize;
+  private final OverflowPolicy overflowPolicy;
+
+  private final List<Ring> rings = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<Ring> threadRing = ThreadLocal.withInitial( this::createRing );
+  private final AtomicLong nrDropped = new AtomicLong();
+
+  private final Thread deliveryThread;
+  private final Thread shutdownHook;
+  private volatile boolean running = true;
+
+  /**
+   * @param listeners      the listeners to deliver to, changes to the list are picked up
+   * @param bufferSize     the number of events a logging thread can have waiting, rounded up to a power of 2
+   * @param overflowPolicy what to do when a logging thread has that many events waiting
+   */
+  public AsyncLoggingEventDispatcher( List<KettleLoggingEventListener> listeners, int bufferSize,
+                                      OverflowPolicy overflowPolicy ) {
+    this.listeners = listeners;
+    this.bufferSize = bufferSize;
+    this.ringSize = Integer.highestOneBit( Math.max( 2, bufferSize ) - 1 ) << 1;
+    this.overflowPolicy = overflowPolicy == null ? OverflowPolicy.BLOCK : overflowPolicy;
+
+    deliveryThread = new Thread( this::deliverEvents, "Kettle logging event delivery" );
+    deliveryThread.setDaemon( true );
+    deliveryThread.start();
+
+    // Don't lose the last lines when the JVM exits
+    shutdownHook = new Thread( this::flush, "Kettle logging event flush" );
+    Runtime.getRuntime().addShutdownHook( shutdownHook );
+  }
+
+  /**
+   * Queue an event for delivery to the listeners.
+   */
+  public void dispatch( KettleLoggingEvent event ) {
+    if ( !running ) {
+      // Shut down: deliver right away like without a dispatcher
+      deliver( Collections.singletonList( event ) );
+      return;
+    }
+
+    Ring ring = threadRing.get();
+    if ( ring.offer( event ) ) {
+      return;
+    }
+
+    // Listeners logging on the delivery thread can't wait for themselves
+    //
+    if ( overflowPolicy == OverflowPolicy.DROP || Thread.currentThread() == deliveryThread ) {
+      nrDropped.incrementAndGet();
+      return;
+    }
+    LockSupport.unpark( deliveryThread );
+    BlockingUtil.block( () -> {
+      while ( !ring.offer( event ) ) {
+        if ( !running ) {
+          deliver( Collections.singletonList( event ) );
+          return;
+        }
+        LockSupport.parkNanos( this, WAIT_PARK_NANOS );
+      }
+    } );
+  }
+
+  /**
+   * Wait until the events logged so far, by any thread, are delivered to the listeners.
+   */
+  public void flush() {
+    if ( Thread.currentThread() == deliveryThread ) {
+      return;
+    }
+    List<Ring> pendingRings = new ArrayList<>();
+    List<Long> pendingTails = new ArrayList<>();
+    for ( Ring ring : rings ) {
+      long tail = ring.tail.get();
+      if ( ring.delivered < tail ) {
+        pendingRings.add( ring );
+        pendingTails.add( tail );
+      }
+    }
+    if ( pendingRings.isEmpty() ) {
+      return;
+    }
+
+    LockSupport.unpark( deliveryThread );
+    BlockingUtil.block( () -> {
+      for ( int i = 0; i < pendingRings.size(); i++ ) {
+        while ( pendingRings.get( i ).delivered < pendingTails.get( i ) && deliveryThread.isAlive() ) {
+          LockSupport.parkNanos( this, WAIT_PARK_NANOS );
+        }
+      }
+    } );
+  }
+
+  /**
+   * Deliver the waiting events and stop the delivery thread. Events dispatched afterwards are delivered right away.
+   */
+  public void shutdown() {
+    try {
+      Runtime.getRuntime().removeShutdownHook( shutdownHook );
+    } catch ( IllegalStateException e ) {
+      // The JVM is shutting down already
+    }
+    running = false;
+    LockSupport.unpark( deliveryThread );
+    if ( Thread.currentThread() != deliveryThread ) {
+      try {
+        deliveryThread.join();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      // Events put in a ring buffer while the delivery thread stopped
+      deliverBatch( new ArrayList<>() );
+    }
+  }
+
+  /**
+   * @return the number of events that weren't delivered to the listeners because a ring buffer was full
+   */
+  public long getNrDropped() {
+    return nrDropped.get();
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  private Ring createRing() {
+    Ring ring = new Ring( Thread.currentThread(), ringSize );
+    rings.add( ring );
+    return ring;
+  }
+
+  private void deliverEvents() {
+    List<KettleLoggingEvent> batch = new ArrayList<>();
+    while ( running ) {
+      if ( !deliverBatch( batch ) ) {
+        LockSupport.parkNanos( this, IDLE_PARK_NANOS );
+      }
+    }
+    while ( deliverBatch( batch ) ) {
+      // Deliver what was left at shutdown
+    }
+  }
+
+  /**
+   * Take the waiting events of all ring buffers and deliver them in the order they were logged.
+   *
+   * @return true if there were events to deliver
+   */
+  private boolean deliverBatch( List<KettleLoggingEvent> batch ) {
+    for ( Ring ring : rings ) {
+      ring.drainTo( batch );
+    }
+    boolean delivered = !batch.isEmpty();
+    if ( delivered ) {
+      // Each ring buffer is in order already, a stable sort keeps it that way
+      batch.sort( Comparator.comparingLong( KettleLoggingEvent::getTimeStamp ) );
+      deliver( batch );
+      batch.clear();
+    }
+
+    for ( Ring ring : rings ) {
+      ring.delivered = ring.drained;
+      if ( ring.isAbandoned() ) {
+        rings.remove( ring );
+      }
+    }
+    return delivered;
+  }
+
+  private void deliver( List<KettleLoggingEvent> events ) {
+    for ( KettleLoggingEventListener listener : listeners ) {
+      try {
+        listener.eventsAdded( events );
+      } catch ( RuntimeException e ) {
+        // The other listeners still get the events
+        e.printStackTrace( KettleLogStore.OriginalSystemErr );
+      }
+    }
+  }
+
+  /**
+   * The events of one logging thread. Only that thread adds events, only the delivery thread takes them.
+   */
+  private static class Ring {
+    private final WeakReference<Thread> owner;
+    private final KettleLoggingEvent[] events;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /** The position up to where the delivery thread took events */
+    private long drained;
+    /** The position up to where events were delivered */
+    private volatile long delivered;
+
+    Ring( Thread owner, int size ) {
+      this.owner = new WeakReference<>( owner );
+      this.events = new KettleLoggingEvent[ size ];
+      this.mask = size - 1;
+    }
+
+    boolean offer( KettleLoggingEvent event ) {
+      long t = tail.get();
+      if ( t - head.get() >= events.length ) {
+        return false;
+      }
+      events[ (int) t & mask ] = event;
+      tail.lazySet( t + 1 );
+      return true;
+    }
+
+    void drainTo( List<KettleLoggingEvent> batch ) {
+      long h = head.get();
+      long t = tail.get();
+      for ( long i = h; i < t; i++ ) {
+        int index = (int) i & mask;
+        batch.add( events[ index ] );
+        events[ index ] = null;
+      }
+      drained = t;
+      head.lazySet( t );
+    }
+
+    boolean isAbandoned() {
+      Thread thread = owner.get();
+      return ( thread == null || !thread.isAlive() ) && tail.get() == head.get();
+    }
+  }
+}
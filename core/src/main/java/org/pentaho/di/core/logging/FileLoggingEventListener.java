@@ -23,7 +23,10 @@
 package org.pentaho.di.core.logging;
 
 import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.Const;
@@ -83,26 +86,33 @@ public class FileLoggingEventListener implements KettleLoggingEventListener {
 
   @Override
   public void eventAdded( KettleLoggingEvent event ) {
+    eventsAdded( Collections.singletonList( event ) );
+  }
+
+  /**
+   * Writes a batch of events, looking up the children of the log channel only once.
+   */
+  @Override
+  public void eventsAdded( List<KettleLoggingEvent> events ) {
 
     try {
-      Object messageObject = event.getMessage();
-      if ( messageObject instanceof LogMessage ) {
-        boolean logToFile = false;
+      Set<String> logChannelChildren = null;
+      if ( logChannelId != null ) {
+        // This should be fast enough cause cached.
+        logChannelChildren = new HashSet<>( LoggingRegistry.getInstance().getLogChannelChildren( logChannelId ) );
+      }
 
-        if ( logChannelId == null ) {
-          logToFile = true;
-        } else {
+      for ( KettleLoggingEvent event : events ) {
+        Object messageObject = event.getMessage();
+        if ( messageObject instanceof LogMessage ) {
           LogMessage message = (LogMessage) messageObject;
-          // This should be fast enough cause cached.
-          List<String> logChannelChildren = LoggingRegistry.getInstance().getLogChannelChildren( logChannelId );
-          // This could be non-optimal, consider keeping the list sorted in the logging registry
-          logToFile = Const.indexOfString( message.getLogChannelId(), logChannelChildren ) >= 0;
-        }
+          boolean logToFile = logChannelChildren == null || logChannelChildren.contains( message.getLogChannelId() );
 
-        if ( logToFile ) {
-          String logText = layout.format( event );
-          outputStream.write( logText.getBytes() );
-          outputStream.write( Const.CR.getBytes() );
+          if ( logToFile ) {
+            String logText = layout.format( event );
+            outputStream.write( logText.getBytes() );
+            outputStream.write( Const.CR.getBytes() );
+          }
         }
       }
     } catch ( Exception e ) {
@@ -110,7 +120,12 @@ public class FileLoggingEventListener implements KettleLoggingEventListener {
     }
   }
 
+  /**
+   * Closes the file once the events logged so far are written to it.
+   */
   public void close() throws KettleException {
+    // With asynchronous delivery the last lines can still be on their way
+    KettleLogStore.flush();
     try {
       if ( outputStream != null ) {
         outputStream.close();
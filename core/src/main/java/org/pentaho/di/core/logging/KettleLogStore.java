@@ -172,9 +172,30 @@ public class KettleLogStore {
     } else {
       store = new KettleLogStore( maxSize, maxLogTimeoutMinutes, redirectStdOut, redirectStdErr );
     }
+    store.configureAsyncDelivery();
     initialized.set( true );
   }
 
+  private void configureAsyncDelivery() {
+    int bufferSize = 0;
+    if ( EnvUtil.getSystemProperty( Const.KETTLE_ASYNC_LOGGING, "N" ).equalsIgnoreCase( "Y" ) ) {
+      bufferSize = Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_ASYNC_LOGGING_BUFFER_SIZE ),
+        AsyncLoggingEventDispatcher.DEFAULT_BUFFER_SIZE );
+    }
+    appender.setAsyncDelivery( bufferSize, AsyncLoggingEventDispatcher.OverflowPolicy.getPolicy(
+      EnvUtil.getSystemProperty( Const.KETTLE_ASYNC_LOGGING_OVERFLOW ) ) );
+  }
+
+  /**
+   * Wait until the log lines logged so far are delivered to the logging event listeners. This only waits with
+   * asynchronous delivery, see {@link Const#KETTLE_ASYNC_LOGGING}.
+   */
+  public static void flush() {
+    if ( isInitialized() ) {
+      getAppender().flush();
+    }
+  }
+
   public static KettleLogStore getInstance() {
     if ( store == null ) {
       throw new RuntimeException( "Central Log Store is not initialized!!!" );
@@ -267,6 +288,7 @@ public class KettleLogStore {
 
   public void reset() {
     if ( initialized.compareAndSet( true, false ) ) {
+      appender.setAsyncDelivery( 0, null );
       appender = null;
       if ( logCleanerTimer != null ) {
         logCleanerTimer.cancel();
@@ -22,6 +22,21 @@
 
 package org.pentaho.di.core.logging;
 
+import java.util.List;
+
 public interface KettleLoggingEventListener {
   public void eventAdded( KettleLoggingEvent event );
+
+  /**
+   * Receive a batch of events in the order they were logged. Listeners that can handle a batch at once more cheaply
+   * than one event at a time can override this.
+   *
+   * @param events the events
+   * @since 10.3
+   */
+  default void eventsAdded( List<KettleLoggingEvent> events ) {
+    for ( KettleLoggingEvent event : events ) {
+      eventAdded( event );
+    }
+  }
 }
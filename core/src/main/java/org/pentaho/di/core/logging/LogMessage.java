@@ -39,6 +39,8 @@ public class LogMessage implements LogMessageInterface {
   private Object[] arguments;
   private LogLevel level;
   private String copy;
+  /** The message formatted with the arguments, only once it's asked for */
+  private String formattedMessage;
 
   /**
    * Backward compatibility : no registry used, just log the subject as part of the message
@@ -158,6 +160,18 @@ public class LogMessage implements LogMessageInterface {
    */
   @Override
   public String getMessage() {
+    if ( arguments == null ) {
+      return message;
+    }
+    String formatted = formattedMessage;
+    if ( formatted == null ) {
+      formatted = formatMessage();
+      formattedMessage = formatted;
+    }
+    return formatted;
+  }
+
+  private String formatMessage() {
     String formatted = message;
     if ( arguments != null ) {
       // get all "tokens" enclosed by curly brackets within the message
@@ -186,6 +200,7 @@ public class LogMessage implements LogMessageInterface {
   @Deprecated
   public void setMessage( String message ) {
     this.message = message;
+    this.formattedMessage = null;
   }
 
   /**
@@ -237,6 +252,7 @@ public class LogMessage implements LogMessageInterface {
   @Deprecated
   public void setArguments( Object[] arguments ) {
     this.arguments = arguments;
+    this.formattedMessage = null;
   }
 
   public boolean isError() {
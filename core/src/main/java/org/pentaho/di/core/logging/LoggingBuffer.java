@@ -27,10 +27,19 @@ import org.apache.commons.lang3.mutable.MutableInt;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -38,18 +47,24 @@ import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
- * This class keeps the last N lines in a buffer
+ * This class keeps the last N lines in a buffer.<br>
+ * Next to the buffer itself the lines are indexed per log channel, so the lines of a transformation or job can be
+ * looked up without going over the lines of all the others.
  *
  * @author matt
  */
 public class LoggingBuffer {
+  /** Index key of the lines without a log channel */
+  private static final String NO_CHANNEL = "";
+
   private String name;
 
   private ConcurrentSkipListMap<Integer, BufferLine> buffer;
 
+  private Map<String, ConcurrentSkipListMap<Integer, BufferLine>> channelIndex = new ConcurrentHashMap<>();
+
   //Keeps track of the lead line number sent for a tail.  So the next time it can start from there instead of filtering
   //the entire buffer.  This matters when bufferSize is large
   private Map<String, Integer> tailMap = new ConcurrentHashMap<>();
@@ -62,6 +77,8 @@ public class LoggingBuffer {
 
   private List<KettleLoggingEventListener> eventListeners;
 
+  private volatile AsyncLoggingEventDispatcher asyncDispatcher;
+
   private LoggingRegistry loggingRegistry = LoggingRegistry.getInstance();
 
   public LoggingBuffer( int bufferSize ) {
@@ -104,42 +121,153 @@ public class LoggingBuffer {
    */
   public List<KettleLoggingEvent> getLogBufferFromTo( List<String> channelId, boolean includeGeneral, int from,
                                                       int to, int tailLines, String parentLogChannelId ) {
+    List<BufferLine> lines = tailLines > 0
+      ? getBufferTail( channelId, includeGeneral, from, to, tailLines, parentLogChannelId )
+      : getBufferLines( channelId, includeGeneral, from, to, 0, false );
+    return lines.stream().map( BufferLine::getEvent ).collect( Collectors.toList() );
+  }
 
-    if ( from > to ) {
-      return Collections.<KettleLoggingEvent>emptyList();
+  /**
+   * Get a page of buffer lines without formatting them. To read the next page, continue from the number of the last
+   * line returned + 1.
+   *
+   * @param parentLogChannelId the parent log channel ID to grab, null for all lines
+   * @param includeGeneral     include general log lines
+   * @param from               the first line number to consider
+   * @param to                 the last line number to consider
+   * @param maxLines           the maximum number of lines to return, 0 or lower means: no limit
+   * @return the lines in the order they were logged
+   */
+  public List<BufferLine> getBufferLines( String parentLogChannelId, boolean includeGeneral, int from, int to,
+                                          int maxLines ) {
+    List<String> childIds = loggingRegistry.getLogChannelChildren( parentLogChannelId );
+    return getBufferLines( childIds, includeGeneral, from, to, maxLines, false );
+  }
+
+  /**
+   * Get the last lines of a log channel without formatting them.
+   *
+   * @param parentLogChannelId the parent log channel ID to grab
+   * @param includeGeneral     include general log lines
+   * @param from               the first line number to consider
+   * @param to                 the last line number to consider
+   * @param tailLines          the number of lines at the end to return
+   * @return the lines in the order they were logged
+   */
+  public List<BufferLine> getBufferTail( String parentLogChannelId, boolean includeGeneral, int from, int to,
+                                         int tailLines ) {
+    List<String> childIds = loggingRegistry.getLogChannelChildren( parentLogChannelId );
+    return getBufferTail( childIds, includeGeneral, from, to, tailLines, parentLogChannelId );
+  }
+
+  /**
+   * Format buffer lines with the layout of this buffer, one line of text per line.
+   *
+   * @param lines  the lines to format, see {@link #getBufferLines(String, boolean, int, int, int)}
+   * @param writer the writer to format the lines to
+   * @throws IOException in case the writer fails
+   */
+  public void writeBuffer( List<BufferLine> lines, Writer writer ) throws IOException {
+    for ( BufferLine line : lines ) {
+      writer.write( layout.format( line.getEvent() ) );
+      writer.write( Const.CR );
     }
+  }
+
+  private List<BufferLine> getBufferTail( List<String> channelId, boolean includeGeneral, int from, int to,
+                                          int tailLines, String parentLogChannelId ) {
     Integer lastLineUsed;
-    if ( tailLines > 0 && !Utils.isEmpty( parentLogChannelId )
-      && ( lastLineUsed = tailMap.get( parentLogChannelId ) ) != null ) {
+    if ( !Utils.isEmpty( parentLogChannelId ) && ( lastLineUsed = tailMap.get( parentLogChannelId ) ) != null ) {
       from = Math.max( from, lastLineUsed );
     }
 
-    //System.out.println(
-    //  "****" + channelId.get( 0 ) + "   size:" + channelId.size() + "  general:" + includeGeneral + "  from:" + from
-    //    + "  to:" + to + "  tailLines: " + tailLines );
+    // Walk back from the end, one line more than asked tells us whether the tail was cut off
+    List<BufferLine> lines = getBufferLines( channelId, includeGeneral, from, to, tailLines + 1, true );
+    if ( lines.size() > tailLines ) {
+      lines = new ArrayList<>( lines.subList( 0, tailLines ) );
+      if ( !Utils.isEmpty( parentLogChannelId ) ) {
+        tailMap.put( parentLogChannelId, lines.get( tailLines - 1 ).getNr() ); //remember the first item so we can start there next time
+      }
+    }
+    Collections.reverse( lines );
+    return lines;
+  }
 
-    Stream<BufferLine> bufferStream = buffer.subMap( from, true, to, true ).values().stream();
-    if ( !Utils.isEmpty( channelId ) ) {
-      bufferStream = bufferStream.filter( line -> {
-        String logChannelId = getLogChId( line );
-        return includeGeneral ? isGeneral( logChannelId ) || channelId.contains( logChannelId )
-          : channelId.contains( logChannelId );
-      } );
+  private List<BufferLine> getBufferLines( List<String> channelId, boolean includeGeneral, int from, int to,
+                                           int maxLines, boolean descending ) {
+    if ( from > to ) {
+      return new ArrayList<>();
+    }
+    int limit = maxLines > 0 ? maxLines : Integer.MAX_VALUE;
+
+    if ( Utils.isEmpty( channelId ) ) {
+      NavigableMap<Integer, BufferLine> lines = buffer.subMap( from, true, to, true );
+      return limit( ( descending ? lines.descendingMap() : lines ).values(), limit );
     }
 
-    if ( tailLines > 0 ) {
-      //We have to make a list so we can get the line number since we can't tap a stream twice
-      List<BufferLine> bl = bufferStream.collect( Collectors.toList() );
-      int count = bl.size();  //Is this expensive? Not sure but just compute it once
-      if ( count > tailLines ) {
-        bl = bl.subList( count - tailLines, count );
-        tailMap.put( parentLogChannelId, bl.get( 0 ).getNr() ); //remember the first item so we can start there next time
+    // Only look at the index segments of the requested channels
+    //
+    Set<String> channelIds = new LinkedHashSet<>( channelId );
+    List<Collection<BufferLine>> segments = new ArrayList<>();
+    for ( String logChannelId : channelIds ) {
+      addSegment( segments, channelIndex.get( logChannelId ), from, to, descending );
+    }
+    if ( includeGeneral ) {
+      for ( Map.Entry<String, ConcurrentSkipListMap<Integer, BufferLine>> entry : channelIndex.entrySet() ) {
+        if ( !channelIds.contains( entry.getKey() ) && isGeneral( entry.getKey() ) ) {
+          addSegment( segments, entry.getValue(), from, to, descending );
+        }
       }
-      return bl.stream().map( BufferLine:: getEvent ).collect( Collectors.toList() );
     }
 
-    return bufferStream.map( BufferLine::getEvent ).collect( Collectors.toList() );
+    if ( segments.isEmpty() ) {
+      return new ArrayList<>();
+    }
+    if ( segments.size() == 1 ) {
+      return limit( segments.get( 0 ), limit );
+    }
+    return merge( segments, limit, descending );
+  }
+
+  private static void addSegment( List<Collection<BufferLine>> segments, ConcurrentSkipListMap<Integer, BufferLine> lines,
+                                  int from, int to, boolean descending ) {
+    if ( lines != null ) {
+      NavigableMap<Integer, BufferLine> range = lines.subMap( from, true, to, true );
+      segments.add( ( descending ? range.descendingMap() : range ).values() );
+    }
+  }
+
+  private static List<BufferLine> limit( Collection<BufferLine> lines, int limit ) {
+    List<BufferLine> list = new ArrayList<>();
+    for ( Iterator<BufferLine> it = lines.iterator(); it.hasNext() && list.size() < limit; ) {
+      list.add( it.next() );
+    }
+    return list;
+  }
+
+  /**
+   * Merges the lines of a number of channel segments in line number order.
+   */
+  private static List<BufferLine> merge( List<Collection<BufferLine>> segments, int limit, boolean descending ) {
+    Comparator<SegmentCursor> order = Comparator.comparingInt( cursor -> cursor.line.getNr() );
+    PriorityQueue<SegmentCursor> cursors =
+      new PriorityQueue<>( segments.size(), descending ? order.reversed() : order );
+    for ( Collection<BufferLine> segment : segments ) {
+      SegmentCursor cursor = new SegmentCursor( segment.iterator() );
+      if ( cursor.next() ) {
+        cursors.add( cursor );
+      }
+    }
 
+    List<BufferLine> list = new ArrayList<>();
+    while ( !cursors.isEmpty() && list.size() < limit ) {
+      SegmentCursor cursor = cursors.poll();
+      list.add( cursor.line );
+      if ( cursor.next() ) {
+        cursors.add( cursor );
+      }
+    }
+    return list;
   }
 
   /**
@@ -215,14 +343,24 @@ public class LoggingBuffer {
   }
 
   public void close() {
+    flush();
   }
 
   public void doAppend( KettleLoggingEvent event ) {
     if ( event.getMessage() instanceof LogMessage ) {
       BufferLine bufferLine = new BufferLine( event );
       buffer.put( bufferLine.getNr(), bufferLine );
+      channelIndex.compute( getIndexKey( bufferLine ), ( key, lines ) -> {
+        lines = lines == null ? new ConcurrentSkipListMap<>() : lines;
+        lines.put( bufferLine.getNr(), bufferLine );
+        return lines;
+      } );
       while ( bufferSize > 0 && buffer.size() > bufferSize ) {
-        buffer.remove( buffer.firstKey() );
+        Map.Entry<Integer, BufferLine> first = buffer.pollFirstEntry();
+        if ( first == null ) {
+          break;
+        }
+        removeFromIndex( first.getValue() );
       }
     }
   }
@@ -249,6 +387,7 @@ public class LoggingBuffer {
 
   public void clear() {
     buffer.clear();
+    channelIndex.clear();
   }
 
   /**
@@ -278,14 +417,11 @@ public class LoggingBuffer {
    * @param id the id of the logging channel to remove
    */
   public void removeChannelFromBuffer( String id ) {
-    buffer.values().stream().filter( line -> id.equals( getLogChId( line ) ) ).forEach( line -> buffer.remove( line.getNr() ) );
+    ConcurrentSkipListMap<Integer, BufferLine> lines = channelIndex.remove( id );
+    if ( lines != null ) {
+      lines.keySet().forEach( buffer::remove );
+    }
     tailMap.remove( id );
-
-/*    for ( BufferLine line : buffer.values() ) {
-      if ( id.equals( getLogChId( line ) ) ) {
-        buffer.remove( line.getNr() );
-      }
-    }*/
   }
 
   public int size() {
@@ -293,9 +429,9 @@ public class LoggingBuffer {
   }
 
   public void removeGeneralMessages() {
-    for ( BufferLine line : buffer.values() ) {
-      if ( isGeneral( getLogChId( line ) ) ) {
-        buffer.remove( line.getNr() );
+    for ( String logChannelId : channelIndex.keySet() ) {
+      if ( isGeneral( logChannelId ) ) {
+        removeChannelFromBuffer( logChannelId );
       }
     }
   }
@@ -335,7 +471,7 @@ public class LoggingBuffer {
    */
   @Deprecated
   public void removeBufferLines( List<BufferLine> linesToRemove ) {
-    linesToRemove.stream().forEach( v -> buffer.remove( v.getNr() ) );
+    linesToRemove.stream().forEach( this::removeBufferLine );
   }
 
   /**
@@ -349,22 +485,72 @@ public class LoggingBuffer {
   }
 
   public void removeBufferLinesBefore( long minTimeBoundary ) {
-    buffer.values().stream().filter( v -> v.getEvent().timeStamp < minTimeBoundary ).forEach( v -> buffer.remove( v.getNr() ) );
+    buffer.values().stream().filter( v -> v.getEvent().timeStamp < minTimeBoundary ).forEach( this::removeBufferLine );
   }
 
   public void addLogggingEvent( KettleLoggingEvent loggingEvent ) {
     doAppend( loggingEvent );
-    eventListeners.forEach( event -> event.eventAdded( loggingEvent ) );
+    AsyncLoggingEventDispatcher dispatcher = asyncDispatcher;
+    if ( dispatcher != null ) {
+      dispatcher.dispatch( loggingEvent );
+    } else {
+      eventListeners.forEach( event -> event.eventAdded( loggingEvent ) );
+    }
   }
 
   public void addLoggingEventListener( KettleLoggingEventListener listener ) {
     eventListeners.add( listener );
   }
 
+  /**
+   * Removes a listener after it received the events logged so far.
+   */
   public void removeLoggingEventListener( KettleLoggingEventListener listener ) {
+    flush();
     eventListeners.remove( listener );
   }
 
+  /**
+   * Deliver the events to the listeners in batches on a background thread instead of on the logging threads. The lines
+   * are still added to this buffer right away.
+   *
+   * @param bufferSize     the number of events each logging thread can have waiting for delivery, 0 or lower to
+   *                       deliver the events on the logging threads again
+   * @param overflowPolicy what a logging thread does when it has that many events waiting
+   */
+  public synchronized void setAsyncDelivery( int bufferSize, AsyncLoggingEventDispatcher.OverflowPolicy overflowPolicy ) {
+    AsyncLoggingEventDispatcher previous = asyncDispatcher;
+    if ( bufferSize > 0 ) {
+      if ( previous != null && previous.getBufferSize() == bufferSize
+        && previous.getOverflowPolicy() == overflowPolicy ) {
+        return;
+      }
+      asyncDispatcher = new AsyncLoggingEventDispatcher( eventListeners, bufferSize, overflowPolicy );
+    } else {
+      asyncDispatcher = null;
+    }
+    if ( previous != null ) {
+      previous.shutdown();
+    }
+  }
+
+  /**
+   * @return the dispatcher delivering the events on a background thread, null if they're delivered by the logging threads
+   */
+  public AsyncLoggingEventDispatcher getAsyncDispatcher() {
+    return asyncDispatcher;
+  }
+
+  /**
+   * Wait until the events logged so far are delivered to the listeners.
+   */
+  public void flush() {
+    AsyncLoggingEventDispatcher dispatcher = asyncDispatcher;
+    if ( dispatcher != null ) {
+      dispatcher.flush();
+    }
+  }
+
   private boolean isGeneral( String logChannelId ) {
     LoggingObjectInterface loggingObject = loggingRegistry.getLoggingObject( logChannelId );
     return loggingObject != null && LoggingObjectType.GENERAL.equals( loggingObject.getObjectType() );
@@ -373,4 +559,39 @@ public class LoggingBuffer {
   private static String getLogChId( BufferLine bufferLine ) {
     return ( (LogMessage) bufferLine.getEvent().getMessage() ).getLogChannelId();
   }
+
+  private static String getIndexKey( BufferLine bufferLine ) {
+    String logChannelId = getLogChId( bufferLine );
+    return logChannelId == null ? NO_CHANNEL : logChannelId;
+  }
+
+  private void removeBufferLine( BufferLine line ) {
+    if ( buffer.remove( line.getNr() ) != null ) {
+      removeFromIndex( line );
+    }
+  }
+
+  private void removeFromIndex( BufferLine line ) {
+    channelIndex.computeIfPresent( getIndexKey( line ), ( key, lines ) -> {
+      lines.remove( line.getNr() );
+      return lines.isEmpty() ? null : lines;
+    } );
+  }
+
+  /**
+   * The next line of an index segment while merging segments
+   */
+  private static class SegmentCursor {
+    private final Iterator<BufferLine> iterator;
+    private BufferLine line;
+
+    SegmentCursor( Iterator<BufferLine> iterator ) {
+      this.iterator = iterator;
+    }
+
+    boolean next() {
+      line = iterator.hasNext() ? iterator.next() : null;
+      return line != null;
+    }
+  }
 }
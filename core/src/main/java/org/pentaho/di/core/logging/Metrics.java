@@ -94,6 +94,33 @@ public class Metrics implements MetricsInterface {
   public static Metrics METRIC_DATABASE_GET_ROW_MAX_TIME = new Metrics(
     MetricsSnapshotType.MAX, "METRIC_DATABASE_GET_ROW_MAX_TIME", "Get row from DB (max time)" );
 
+  public static Metrics METRIC_DATABASE_EXECUTE_BATCH_COUNT = new Metrics(
+    MetricsSnapshotType.COUNT, "METRIC_DATABASE_EXECUTE_BATCH_COUNT", "Execute batch (count)" );
+  public static Metrics METRIC_DATABASE_EXECUTE_BATCH_SUM_TIME = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_DATABASE_EXECUTE_BATCH_SUM_TIME", "Execute batch (total time)" );
+  public static Metrics METRIC_DATABASE_EXECUTE_BATCH_MIN_TIME = new Metrics(
+    MetricsSnapshotType.MIN, "METRIC_DATABASE_EXECUTE_BATCH_MIN_TIME", "Execute batch (min time)" );
+  public static Metrics METRIC_DATABASE_EXECUTE_BATCH_MAX_TIME = new Metrics(
+    MetricsSnapshotType.MAX, "METRIC_DATABASE_EXECUTE_BATCH_MAX_TIME", "Execute batch (max time)" );
+  public static Metrics METRIC_DATABASE_EXECUTE_BATCH_SUM_ROWS = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_DATABASE_EXECUTE_BATCH_SUM_ROWS", "Execute batch (total rows)" );
+  public static Metrics METRIC_DATABASE_EXECUTE_BATCH_MIN_SIZE = new Metrics(
+    MetricsSnapshotType.MIN, "METRIC_DATABASE_EXECUTE_BATCH_MIN_SIZE", "Execute batch (min batch size)" );
+  public static Metrics METRIC_DATABASE_EXECUTE_BATCH_MAX_SIZE = new Metrics(
+    MetricsSnapshotType.MAX, "METRIC_DATABASE_EXECUTE_BATCH_MAX_SIZE", "Execute batch (max batch size)" );
+
+  public static Metrics METRIC_DATABASE_LOOKUP_CACHE_HITS = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_DATABASE_LOOKUP_CACHE_HITS", "Shared lookup cache (hits)" );
+  public static Metrics METRIC_DATABASE_LOOKUP_CACHE_MISSES = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_DATABASE_LOOKUP_CACHE_MISSES", "Shared lookup cache (misses)" );
+  public static Metrics METRIC_DATABASE_LOOKUP_CACHE_EVICTIONS = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_DATABASE_LOOKUP_CACHE_EVICTIONS", "Shared lookup cache (evictions)" );
+
+  public static Metrics METRIC_UNIQUE_ROWS_MEMORY_SIZE = new Metrics(
+    MetricsSnapshotType.MAX, "METRIC_UNIQUE_ROWS_MEMORY_SIZE", "Unique rows keys (max memory in bytes)" );
+  public static Metrics METRIC_UNIQUE_ROWS_SPILLED_PARTITIONS = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_UNIQUE_ROWS_SPILLED_PARTITIONS", "Unique rows keys (spilled partitions)" );
+
   // Plugin registry...
   //
   public static Metrics METRIC_PLUGIN_REGISTRY_REGISTER_EXTENSIONS_START = new Metrics(
@@ -0,0 +1,120 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.columnar;
+
+import java.util.Arrays;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * The values of one field for all the rows in a {@link ColumnarRowBatch}. Null values are kept in a bitmap next to the
+ * values, so primitive vectors don't need a boxed object per cell.
+ *
+ * @since 10.3
+ */
+public abstract class ColumnVector {
+
+  private long[] nulls;
+  protected int size;
+
+  protected ColumnVector( int capacity ) {
+    nulls = new long[ words( capacity ) ];
+  }
+
+  /**
+   * @return the number of rows in this vector
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param row
+   *          the row number
+   * @return true if the value in the row is null
+   */
+  public boolean isNull( int row ) {
+    return ( nulls[ row >>> 6 ] & ( 1L << row ) ) != 0;
+  }
+
+  /**
+   * Flags the value in a row as null.
+   *
+   * @param row
+   *          the row number
+   */
+  public void setNull( int row ) {
+    nulls[ row >>> 6 ] |= 1L << row;
+  }
+
+  /**
+   * Empties the vector to hold a new set of rows. All values start out as not null.
+   *
+   * @param size
+   *          the number of rows
+   */
+  public void reset( int size ) {
+    int nrWords = words( size );
+    if ( nulls.length < nrWords ) {
+      nulls = new long[ nrWords ];
+    } else {
+      Arrays.fill( nulls, 0, nrWords, 0L );
+    }
+    ensureCapacity( size );
+    this.size = size;
+  }
+
+  /**
+   * Stores a value taken from a row in the vector.
+   *
+   * @param row
+   *          the row number
+   * @param valueMeta
+   *          the metadata of the value
+   * @param value
+   *          the value in any storage type
+   * @throws KettleValueException
+   *           in case the value can't be converted
+   */
+  public abstract void load( int row, ValueMetaInterface valueMeta, Object value ) throws KettleValueException;
+
+  /**
+   * @param row
+   *          the row number
+   * @return the value of the row in normal storage, null for null values
+   */
+  public abstract Object getObject( int row );
+
+  /**
+   * Grow the value storage to hold at least the given number of rows.
+   *
+   * @param capacity
+   *          the number of rows
+   */
+  protected abstract void ensureCapacity( int capacity );
+
+  private static int words( int capacity ) {
+    return Math.max( 1, ( capacity + 63 ) >>> 6 );
+  }
+}
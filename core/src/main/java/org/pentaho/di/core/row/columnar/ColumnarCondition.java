@@ -0,0 +1,402 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.columnar;
+
+import java.util.Arrays;
+
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.util.Utils;
+
+/**
+ * Evaluates a {@link Condition} for a whole {@link ColumnarRowBatch} at once, with the same outcome as
+ * {@link Condition#evaluate(RowMetaInterface, Object[])} for every row. Integer, Number and Date comparisons work on
+ * the primitive vectors and conditions on a String field are evaluated once per distinct value. Conditions that can't
+ * be handled this way, like comparing a String field to another field, are not compiled: use the row by row
+ * evaluation for those.
+ *
+ * @since 10.3
+ */
+public class ColumnarCondition {
+
+  private final Node root;
+
+  private ColumnarCondition( Node root ) {
+    this.root = root;
+  }
+
+  /**
+   * Compiles a condition for the given row layout.
+   *
+   * @param condition
+   *          the condition, it is cloned so it can be shared
+   * @param rowMeta
+   *          the layout of the rows to evaluate
+   * @return the compiled condition or null if the condition can't be evaluated on columns
+   */
+  public static ColumnarCondition compile( Condition condition, RowMetaInterface rowMeta ) {
+    Node root = compileNode( (Condition) condition.clone(), rowMeta );
+    return root == null ? null : new ColumnarCondition( root );
+  }
+
+  /**
+   * Evaluates the condition for all the rows in the batch.
+   *
+   * @param batch
+   *          the rows
+   * @param result
+   *          receives the outcome for every row, at least as large as the batch
+   * @throws KettleValueException
+   *           in case a value can't be converted
+   */
+  public void evaluate( ColumnarRowBatch batch, boolean[] result ) throws KettleValueException {
+    root.evaluate( batch, result );
+  }
+
+  private static Node compileNode( Condition condition, RowMetaInterface rowMeta ) {
+    if ( condition.isComposite() ) {
+      Node[] children = new Node[ condition.nrConditions() ];
+      int[] operators = new int[ children.length ];
+      for ( int i = 0; i < children.length; i++ ) {
+        Condition child = condition.getCondition( i );
+        children[ i ] = compileNode( child, rowMeta );
+        if ( children[ i ] == null ) {
+          return null;
+        }
+        operators[ i ] = child.getOperator();
+      }
+      return new CompositeNode( children, operators, condition.isNegated() );
+    }
+
+    int function = condition.getFunction();
+    boolean negate = condition.isNegated();
+    if ( function == Condition.FUNC_TRUE ) {
+      return new ConstantNode( !negate );
+    }
+    int leftIndex =
+      Utils.isEmpty( condition.getLeftValuename() ) ? -1 : rowMeta.indexOfValue( condition.getLeftValuename() );
+    if ( leftIndex < 0 ) {
+      // Nothing to evaluate, never true
+      return new ConstantNode( false );
+    }
+    ValueMetaInterface leftMeta = rowMeta.getValueMeta( leftIndex );
+    if ( function == Condition.FUNC_NULL || function == Condition.FUNC_NOT_NULL ) {
+      return new NullNode( leftIndex, ( function == Condition.FUNC_NULL ) != negate );
+    }
+
+    ValueMetaAndData rightExact = condition.getRightExact();
+    boolean rightIsField =
+      ( rightExact == null || rightExact.getValueData() == null ) && !Utils.isEmpty( condition.getRightValuename() );
+
+    if ( leftMeta.getType() == ValueMetaInterface.TYPE_STRING && leftMeta.isStorageNormal() && !rightIsField ) {
+      return new DictionaryNode( leftIndex, condition, rowMeta.size() );
+    }
+    if ( function > Condition.FUNC_LARGER_EQUAL || !isPrimitiveComparable( leftMeta ) ) {
+      return null;
+    }
+
+    boolean nullIsNotZero =
+      "Y".equalsIgnoreCase( System.getProperty( Const.KETTLE_FILTER_TREAT_NULLS_AS_NOT_ZERO, "N" ) );
+    if ( rightIsField ) {
+      int rightIndex = rowMeta.indexOfValue( condition.getRightValuename() );
+      if ( rightIndex < 0 || rowMeta.getValueMeta( rightIndex ).getClass() != leftMeta.getClass()
+        || !isPrimitiveComparable( rowMeta.getValueMeta( rightIndex ) ) ) {
+        return null;
+      }
+      return new CompareNode( leftIndex, rightIndex, 0L, 0.0, false, false, function, negate, nullIsNotZero );
+    }
+    if ( rightExact == null || rightExact.getValueMeta() == null ) {
+      return null;
+    }
+
+    try {
+      ValueMetaInterface rightMeta = rightExact.getValueMeta();
+      Object right = rightExact.getValueData();
+      if ( right == null ) {
+        return new CompareNode( leftIndex, -1, 0L, 0.0, true, false, function, negate, nullIsNotZero );
+      }
+      if ( leftMeta instanceof ValueMetaInteger && rightMeta.getType() == ValueMetaInterface.TYPE_NUMBER ) {
+        // Integers are compared to a Number as doubles
+        if ( rightMeta.isSortedDescending() ) {
+          return null;
+        }
+        return new CompareNode( leftIndex, -1, 0L, rightMeta.getNumber( right ), false, true, function, negate,
+          nullIsNotZero );
+      }
+      Object constant =
+        leftMeta.getType() == rightMeta.getType() ? rightMeta.convertToNormalStorageType( right ) : leftMeta
+          .convertData( rightMeta, right );
+      if ( constant == null ) {
+        return new CompareNode( leftIndex, -1, 0L, 0.0, true, false, function, negate, nullIsNotZero );
+      }
+      switch ( leftMeta.getType() ) {
+        case ValueMetaInterface.TYPE_NUMBER:
+          return new CompareNode( leftIndex, -1, 0L, leftMeta.getNumber( constant ), false, false, function, negate,
+            nullIsNotZero );
+        case ValueMetaInterface.TYPE_DATE:
+          return new CompareNode( leftIndex, -1, leftMeta.getDate( constant ).getTime(), 0.0, false, false, function,
+            negate, nullIsNotZero );
+        default:
+          return new CompareNode( leftIndex, -1, leftMeta.getInteger( constant ), 0.0, false, false, function, negate,
+            nullIsNotZero );
+      }
+    } catch ( KettleValueException e ) {
+      // Leave the conversion errors to the row by row evaluation
+      return null;
+    }
+  }
+
+  /**
+   * Only the standard value types compare the way the primitive vectors do: plugins can override compare().
+   */
+  private static boolean isPrimitiveComparable( ValueMetaInterface valueMeta ) {
+    Class<?> clazz = valueMeta.getClass();
+    return ( clazz == ValueMetaInteger.class || clazz == ValueMetaNumber.class || clazz == ValueMetaDate.class )
+      && valueMeta.isStorageNormal() && !valueMeta.isSortedDescending();
+  }
+
+  private static boolean matches( int function, int cmp ) {
+    switch ( function ) {
+      case Condition.FUNC_EQUAL:
+        return cmp == 0;
+      case Condition.FUNC_NOT_EQUAL:
+        return cmp != 0;
+      case Condition.FUNC_SMALLER:
+        return cmp < 0;
+      case Condition.FUNC_SMALLER_EQUAL:
+        return cmp <= 0;
+      case Condition.FUNC_LARGER:
+        return cmp > 0;
+      default:
+        return cmp >= 0;
+    }
+  }
+
+  private abstract static class Node {
+    abstract void evaluate( ColumnarRowBatch batch, boolean[] result ) throws KettleValueException;
+  }
+
+  private static final class ConstantNode extends Node {
+    private final boolean value;
+
+    ConstantNode( boolean value ) {
+      this.value = value;
+    }
+
+    @Override
+    void evaluate( ColumnarRowBatch batch, boolean[] result ) {
+      Arrays.fill( result, 0, batch.size(), value );
+    }
+  }
+
+  private static final class NullNode extends Node {
+    private final int index;
+    private final boolean whenNull;
+
+    NullNode( int index, boolean whenNull ) {
+      this.index = index;
+      this.whenNull = whenNull;
+    }
+
+    @Override
+    void evaluate( ColumnarRowBatch batch, boolean[] result ) throws KettleValueException {
+      ColumnVector column = batch.getColumn( index );
+      for ( int i = 0; i < batch.size(); i++ ) {
+        result[ i ] = column.isNull( i ) == whenNull;
+      }
+    }
+  }
+
+  /**
+   * Compares an Integer, Number or Date field to a constant or to another field of the same type.
+   */
+  private static final class CompareNode extends Node {
+    private final int leftIndex;
+    private final int rightIndex;
+    private final long longConstant;
+    private final double doubleConstant;
+    private final boolean constantIsNull;
+    private final boolean compareAsDouble;
+    private final int function;
+    private final boolean negate;
+    private final boolean nullIsNotZero;
+
+    CompareNode( int leftIndex, int rightIndex, long longConstant, double doubleConstant, boolean constantIsNull,
+      boolean compareAsDouble, int function, boolean negate, boolean nullIsNotZero ) {
+      this.leftIndex = leftIndex;
+      this.rightIndex = rightIndex;
+      this.longConstant = longConstant;
+      this.doubleConstant = doubleConstant;
+      this.constantIsNull = constantIsNull;
+      this.compareAsDouble = compareAsDouble;
+      this.function = function;
+      this.negate = negate;
+      this.nullIsNotZero =
+        nullIsNotZero && ( function == Condition.FUNC_SMALLER || function == Condition.FUNC_SMALLER_EQUAL );
+    }
+
+    @Override
+    void evaluate( ColumnarRowBatch batch, boolean[] result ) throws KettleValueException {
+      ColumnVector left = batch.getColumn( leftIndex );
+      ColumnVector right = rightIndex >= 0 ? batch.getColumn( rightIndex ) : null;
+      for ( int i = 0; i < batch.size(); i++ ) {
+        boolean leftNull = left.isNull( i );
+        boolean rightNull = right == null ? constantIsNull : right.isNull( i );
+        boolean match;
+        if ( leftNull && nullIsNotZero ) {
+          match = false;
+        } else if ( leftNull || rightNull ) {
+          // Null is smaller than any value
+          match = matches( function, leftNull == rightNull ? 0 : ( leftNull ? -1 : 1 ) );
+        } else {
+          match = matches( function, compare( left, right, i ) );
+        }
+        result[ i ] = match != negate;
+      }
+    }
+
+    private int compare( ColumnVector left, ColumnVector right, int row ) {
+      if ( left instanceof DoubleColumnVector ) {
+        double value = ( (DoubleColumnVector) left ).get( row );
+        return Double.compare( value, right == null ? doubleConstant : ( (DoubleColumnVector) right ).get( row ) );
+      }
+      long value = ( (LongColumnVector) left ).get( row );
+      if ( compareAsDouble ) {
+        return Double.compare( (double) value, doubleConstant );
+      }
+      return Long.compare( value, right == null ? longConstant : ( (LongColumnVector) right ).get( row ) );
+    }
+  }
+
+  /**
+   * Evaluates any condition on a String field once per distinct value, remembering the outcome per dictionary code.
+   */
+  private static final class DictionaryNode extends Node {
+    private final int index;
+    private final Condition condition;
+    private final Object[] scratchRow;
+    private byte[] outcomes = new byte[ 0 ];
+    private byte nullOutcome;
+    private DictionaryColumnVector cachedColumn;
+    private int cachedGeneration;
+
+    DictionaryNode( int index, Condition condition, int rowSize ) {
+      this.index = index;
+      this.condition = condition;
+      this.scratchRow = new Object[ rowSize ];
+    }
+
+    @Override
+    void evaluate( ColumnarRowBatch batch, boolean[] result ) throws KettleValueException {
+      DictionaryColumnVector column = (DictionaryColumnVector) batch.getColumn( index );
+      if ( column != cachedColumn || column.getGeneration() != cachedGeneration ) {
+        cachedColumn = column;
+        cachedGeneration = column.getGeneration();
+        Arrays.fill( outcomes, (byte) 0 );
+      }
+      if ( outcomes.length < column.getDictionarySize() ) {
+        outcomes = Arrays.copyOf( outcomes, Math.max( column.getDictionarySize(), outcomes.length * 2 ) );
+      }
+
+      RowMetaInterface rowMeta = batch.getRowMeta();
+      for ( int i = 0; i < batch.size(); i++ ) {
+        if ( column.isNull( i ) ) {
+          if ( nullOutcome == 0 ) {
+            nullOutcome = evaluateValue( rowMeta, null );
+          }
+          result[ i ] = nullOutcome == 2;
+        } else {
+          int code = column.getCode( i );
+          if ( outcomes[ code ] == 0 ) {
+            outcomes[ code ] = evaluateValue( rowMeta, column.getDictionaryValue( code ) );
+          }
+          result[ i ] = outcomes[ code ] == 2;
+        }
+      }
+    }
+
+    private byte evaluateValue( RowMetaInterface rowMeta, String value ) {
+      scratchRow[ index ] = value;
+      return condition.evaluate( rowMeta, scratchRow ) ? (byte) 2 : (byte) 1;
+    }
+  }
+
+  private static final class CompositeNode extends Node {
+    private final Node[] children;
+    private final int[] operators;
+    private final boolean negate;
+    private boolean[] scratch = new boolean[ 0 ];
+
+    CompositeNode( Node[] children, int[] operators, boolean negate ) {
+      this.children = children;
+      this.operators = operators;
+      this.negate = negate;
+    }
+
+    @Override
+    void evaluate( ColumnarRowBatch batch, boolean[] result ) throws KettleValueException {
+      int size = batch.size();
+      if ( scratch.length < size ) {
+        scratch = new boolean[ size ];
+      }
+      children[ 0 ].evaluate( batch, result );
+      for ( int c = 1; c < children.length; c++ ) {
+        children[ c ].evaluate( batch, scratch );
+        int operator = operators[ c ];
+        for ( int i = 0; i < size; i++ ) {
+          switch ( operator ) {
+            case Condition.OPERATOR_OR:
+              result[ i ] = result[ i ] || scratch[ i ];
+              break;
+            case Condition.OPERATOR_AND:
+              result[ i ] = result[ i ] && scratch[ i ];
+              break;
+            case Condition.OPERATOR_OR_NOT:
+              result[ i ] = result[ i ] || !scratch[ i ];
+              break;
+            case Condition.OPERATOR_AND_NOT:
+              result[ i ] = result[ i ] && !scratch[ i ];
+              break;
+            case Condition.OPERATOR_XOR:
+              result[ i ] = result[ i ] ^ scratch[ i ];
+              break;
+            default:
+              break;
+          }
+        }
+      }
+      if ( negate ) {
+        for ( int i = 0; i < size; i++ ) {
+          result[ i ] = !result[ i ];
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,221 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.columnar;
+
+import java.util.Arrays;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * A columnar view on a batch of Object[] rows described by a {@link RowMetaInterface}. Columns are only converted to
+ * vectors when they are asked for, so a step pays for the fields it works on. Integer, Date and Boolean fields become
+ * {@link LongColumnVector}s, Number fields {@link DoubleColumnVector}s, String fields {@link DictionaryColumnVector}s
+ * and all other types {@link ObjectColumnVector}s.<br>
+ * <br>
+ * Vectors created with {@link #newLongColumn(int)} or {@link #newDoubleColumn(int)} hold calculated values,
+ * {@link #writeRows()} puts those back in the rows. The other fields of the rows are left untouched. The vectors are
+ * reused from one batch to the next.
+ *
+ * @since 10.3
+ */
+public class ColumnarRowBatch {
+
+  private final RowMetaInterface rowMeta;
+  private final ColumnVector[] columns;
+  private final boolean[] loaded;
+  private final boolean[] modified;
+
+  private Object[][] rows;
+  private int size;
+
+  /**
+   * @param rowMeta
+   *          the layout of the rows
+   */
+  public ColumnarRowBatch( RowMetaInterface rowMeta ) {
+    this.rowMeta = rowMeta;
+    this.columns = new ColumnVector[ rowMeta.size() ];
+    this.loaded = new boolean[ columns.length ];
+    this.modified = new boolean[ columns.length ];
+  }
+
+  /**
+   * Makes this batch a view on a new set of rows.
+   *
+   * @param rows
+   *          the buffer holding the rows
+   * @param size
+   *          the number of rows in the buffer
+   */
+  public void setRows( Object[][] rows, int size ) {
+    this.rows = rows;
+    this.size = size;
+    Arrays.fill( loaded, false );
+    Arrays.fill( modified, false );
+  }
+
+  /**
+   * @return the number of rows in the batch
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the layout of the rows
+   */
+  public RowMetaInterface getRowMeta() {
+    return rowMeta;
+  }
+
+  /**
+   * @return the rows this batch is a view on
+   */
+  public Object[][] getRows() {
+    return rows;
+  }
+
+  /**
+   * Gets the values of a field, converting them from the rows the first time they are asked for.
+   *
+   * @param index
+   *          the field index
+   * @return the vector holding the values of the field
+   * @throws KettleValueException
+   *           in case a value can't be converted
+   */
+  public ColumnVector getColumn( int index ) throws KettleValueException {
+    if ( !loaded[ index ] ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( index );
+      ColumnVector column = prepareColumn( index );
+      for ( int i = 0; i < size; i++ ) {
+        Object[] row = rows[ i ];
+        column.load( i, valueMeta, index < row.length ? row[ index ] : null );
+      }
+      loaded[ index ] = true;
+    }
+    return columns[ index ];
+  }
+
+  /**
+   * @param index
+   *          the index of an Integer, Date or Boolean field
+   * @return the values of the field
+   * @throws KettleValueException
+   *           in case a value can't be converted
+   */
+  public LongColumnVector getLongColumn( int index ) throws KettleValueException {
+    return (LongColumnVector) getColumn( index );
+  }
+
+  /**
+   * @param index
+   *          the index of a Number field
+   * @return the values of the field
+   * @throws KettleValueException
+   *           in case a value can't be converted
+   */
+  public DoubleColumnVector getDoubleColumn( int index ) throws KettleValueException {
+    return (DoubleColumnVector) getColumn( index );
+  }
+
+  /**
+   * Gets an empty vector to calculate new values for an Integer, Date or Boolean field in.
+   *
+   * @param index
+   *          the field index
+   * @return the empty vector, written back to the rows by {@link #writeRows()}
+   */
+  public LongColumnVector newLongColumn( int index ) {
+    LongColumnVector column = (LongColumnVector) prepareColumn( index );
+    loaded[ index ] = true;
+    modified[ index ] = true;
+    return column;
+  }
+
+  /**
+   * Gets an empty vector to calculate new values for a Number field in.
+   *
+   * @param index
+   *          the field index
+   * @return the empty vector, written back to the rows by {@link #writeRows()}
+   */
+  public DoubleColumnVector newDoubleColumn( int index ) {
+    DoubleColumnVector column = (DoubleColumnVector) prepareColumn( index );
+    loaded[ index ] = true;
+    modified[ index ] = true;
+    return column;
+  }
+
+  /**
+   * Puts the values of the vectors created with {@link #newLongColumn(int)} and {@link #newDoubleColumn(int)} in the
+   * rows. The rows need to be large enough to hold the fields.
+   */
+  public void writeRows() {
+    for ( int index = 0; index < columns.length; index++ ) {
+      if ( modified[ index ] ) {
+        ColumnVector column = columns[ index ];
+        for ( int i = 0; i < size; i++ ) {
+          rows[ i ][ index ] = column.getObject( i );
+        }
+        modified[ index ] = false;
+      }
+    }
+  }
+
+  /**
+   * Creates an empty vector for values of the given type.
+   *
+   * @param valueMeta
+   *          the metadata of the values
+   * @param capacity
+   *          the initial number of rows
+   * @return the vector
+   */
+  public static ColumnVector createColumn( ValueMetaInterface valueMeta, int capacity ) {
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+      case ValueMetaInterface.TYPE_DATE:
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return new LongColumnVector( valueMeta.getType(), capacity );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return new DoubleColumnVector( capacity );
+      case ValueMetaInterface.TYPE_STRING:
+        return new DictionaryColumnVector( capacity );
+      default:
+        return new ObjectColumnVector( capacity );
+    }
+  }
+
+  private ColumnVector prepareColumn( int index ) {
+    ColumnVector column = columns[ index ];
+    if ( column == null ) {
+      column = createColumn( rowMeta.getValueMeta( index ), size );
+      columns[ index ] = column;
+    }
+    column.reset( size );
+    return column;
+  }
+}
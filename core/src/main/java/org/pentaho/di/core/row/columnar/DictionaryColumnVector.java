@@ -0,0 +1,137 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.columnar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * A dictionary encoded vector of String values: every row holds the code of its value in a dictionary of distinct
+ * values. Work that depends on the value only, like evaluating a condition, can then be done once per distinct value.
+ * The dictionary is kept over batches until it grows too large.
+ *
+ * @since 10.3
+ */
+public class DictionaryColumnVector extends ColumnVector {
+
+  /** The dictionary is emptied when a new batch starts and it holds more values than this */
+  private static final int MAX_DICTIONARY_SIZE = 65536;
+
+  private int[] codes;
+  private final List<String> dictionary = new ArrayList<>();
+  private final Map<String, Integer> index = new HashMap<>();
+  private int generation;
+
+  public DictionaryColumnVector( int capacity ) {
+    super( capacity );
+    this.codes = new int[ Math.max( 1, capacity ) ];
+  }
+
+  /**
+   * @param row
+   *          the row number
+   * @return the dictionary code of the value in the row, undefined for null values
+   */
+  public int getCode( int row ) {
+    return codes[ row ];
+  }
+
+  /**
+   * @return the number of distinct values in the dictionary
+   */
+  public int getDictionarySize() {
+    return dictionary.size();
+  }
+
+  /**
+   * @return a number that changes whenever the dictionary is emptied, invalidating the codes handed out before
+   */
+  public int getGeneration() {
+    return generation;
+  }
+
+  /**
+   * @param code
+   *          the dictionary code
+   * @return the value for the code
+   */
+  public String getDictionaryValue( int code ) {
+    return dictionary.get( code );
+  }
+
+  /**
+   * Sets a value. This doesn't change the null flag of the row.
+   *
+   * @param row
+   *          the row number
+   * @param value
+   *          the value, not null
+   */
+  public void set( int row, String value ) {
+    Integer code = index.get( value );
+    if ( code == null ) {
+      code = dictionary.size();
+      dictionary.add( value );
+      index.put( value, code );
+    }
+    codes[ row ] = code;
+  }
+
+  @Override
+  public void reset( int size ) {
+    if ( dictionary.size() > MAX_DICTIONARY_SIZE ) {
+      dictionary.clear();
+      index.clear();
+      generation++;
+    }
+    super.reset( size );
+  }
+
+  @Override
+  public void load( int row, ValueMetaInterface valueMeta, Object value ) throws KettleValueException {
+    if ( valueMeta.isNull( value ) ) {
+      setNull( row );
+    } else {
+      Object normal = valueMeta.convertToNormalStorageType( value );
+      set( row, normal instanceof String ? (String) normal : valueMeta.getString( normal ) );
+    }
+  }
+
+  @Override
+  public Object getObject( int row ) {
+    return isNull( row ) ? null : dictionary.get( codes[ row ] );
+  }
+
+  @Override
+  protected void ensureCapacity( int capacity ) {
+    if ( codes.length < capacity ) {
+      codes = Arrays.copyOf( codes, capacity );
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.columnar;
+
+import java.util.Arrays;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * A vector of double values, used for Number fields.
+ *
+ * @since 10.3
+ */
+public class DoubleColumnVector extends ColumnVector {
+
+  private double[] values;
+
+  public DoubleColumnVector( int capacity ) {
+    super( capacity );
+    this.values = new double[ Math.max( 1, capacity ) ];
+  }
+
+  /**
+   * @param row
+   *          the row number
+   * @return the value of the row, undefined for null values
+   */
+  public double get( int row ) {
+    return values[ row ];
+  }
+
+  /**
+   * Sets a value. This doesn't change the null flag of the row.
+   *
+   * @param row
+   *          the row number
+   * @param value
+   *          the value
+   */
+  public void set( int row, double value ) {
+    values[ row ] = value;
+  }
+
+  /**
+   * @return the backing array, valid up to {@link #size()}
+   */
+  public double[] getValues() {
+    return values;
+  }
+
+  @Override
+  public void load( int row, ValueMetaInterface valueMeta, Object value ) throws KettleValueException {
+    if ( valueMeta.isNull( value ) ) {
+      setNull( row );
+    } else {
+      values[ row ] = valueMeta.getNumber( value );
+    }
+  }
+
+  @Override
+  public Object getObject( int row ) {
+    return isNull( row ) ? null : Double.valueOf( values[ row ] );
+  }
+
+  @Override
+  protected void ensureCapacity( int capacity ) {
+    if ( values.length < capacity ) {
+      values = Arrays.copyOf( values, capacity );
+    }
+  }
+}
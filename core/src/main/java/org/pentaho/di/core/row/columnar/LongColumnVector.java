@@ -0,0 +1,129 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.columnar;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * A vector of long values. It holds Integer values, Dates as milliseconds since the epoch and Booleans as 0 or 1.
+ *
+ * @since 10.3
+ */
+public class LongColumnVector extends ColumnVector {
+
+  private final int type;
+  private long[] values;
+
+  /**
+   * @param type
+   *          the value type: {@link ValueMetaInterface#TYPE_INTEGER}, {@link ValueMetaInterface#TYPE_DATE} or
+   *          {@link ValueMetaInterface#TYPE_BOOLEAN}
+   * @param capacity
+   *          the initial number of rows
+   */
+  public LongColumnVector( int type, int capacity ) {
+    super( capacity );
+    this.type = type;
+    this.values = new long[ Math.max( 1, capacity ) ];
+  }
+
+  /**
+   * @return the value type of the vector
+   */
+  public int getType() {
+    return type;
+  }
+
+  /**
+   * @param row
+   *          the row number
+   * @return the value of the row, undefined for null values
+   */
+  public long get( int row ) {
+    return values[ row ];
+  }
+
+  /**
+   * Sets a value. This doesn't change the null flag of the row.
+   *
+   * @param row
+   *          the row number
+   * @param value
+   *          the value
+   */
+  public void set( int row, long value ) {
+    values[ row ] = value;
+  }
+
+  /**
+   * @return the backing array, valid up to {@link #size()}
+   */
+  public long[] getValues() {
+    return values;
+  }
+
+  @Override
+  public void load( int row, ValueMetaInterface valueMeta, Object value ) throws KettleValueException {
+    if ( valueMeta.isNull( value ) ) {
+      setNull( row );
+      return;
+    }
+    switch ( type ) {
+      case ValueMetaInterface.TYPE_DATE:
+        values[ row ] = valueMeta.getDate( value ).getTime();
+        break;
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        values[ row ] = valueMeta.getBoolean( value ) ? 1L : 0L;
+        break;
+      default:
+        values[ row ] = valueMeta.getInteger( value );
+        break;
+    }
+  }
+
+  @Override
+  public Object getObject( int row ) {
+    if ( isNull( row ) ) {
+      return null;
+    }
+    switch ( type ) {
+      case ValueMetaInterface.TYPE_DATE:
+        return new Date( values[ row ] );
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return values[ row ] != 0L;
+      default:
+        return values[ row ];
+    }
+  }
+
+  @Override
+  protected void ensureCapacity( int capacity ) {
+    if ( values.length < capacity ) {
+      values = Arrays.copyOf( values, capacity );
+    }
+  }
+}
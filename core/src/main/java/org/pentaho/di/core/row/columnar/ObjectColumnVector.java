@@ -0,0 +1,83 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.columnar;
+
+import java.util.Arrays;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * A vector of values in normal storage for the types that don't have a primitive vector, like BigNumber or Binary.
+ *
+ * @since 10.3
+ */
+public class ObjectColumnVector extends ColumnVector {
+
+  private Object[] values;
+
+  public ObjectColumnVector( int capacity ) {
+    super( capacity );
+    this.values = new Object[ Math.max( 1, capacity ) ];
+  }
+
+  /**
+   * Sets a value. This doesn't change the null flag of the row.
+   *
+   * @param row
+   *          the row number
+   * @param value
+   *          the value in normal storage
+   */
+  public void set( int row, Object value ) {
+    values[ row ] = value;
+  }
+
+  @Override
+  public void reset( int size ) {
+    // Don't hold on to the values of the previous batch
+    Arrays.fill( values, 0, Math.min( this.size, values.length ), null );
+    super.reset( size );
+  }
+
+  @Override
+  public void load( int row, ValueMetaInterface valueMeta, Object value ) throws KettleValueException {
+    if ( valueMeta.isNull( value ) ) {
+      setNull( row );
+    } else {
+      values[ row ] = valueMeta.convertToNormalStorageType( value );
+    }
+  }
+
+  @Override
+  public Object getObject( int row ) {
+    return isNull( row ) ? null : values[ row ];
+  }
+
+  @Override
+  protected void ensureCapacity( int capacity ) {
+    if ( values.length < capacity ) {
+      values = Arrays.copyOf( values, capacity );
+    }
+  }
+}
@@ -770,6 +770,13 @@ public class ValueMetaBase implements ValueMetaInterface {
     this.collatorDisabled = collatorDisabled;
   }
 
+  /**
+   * @return the comparator used to compare values instead of the comparison of the data type, or null
+   */
+  public Comparator<Object> getComparator() {
+    return comparator;
+  }
+
   @Override
   public Locale getCollatorLocale() {
     return this.collatorLocale;
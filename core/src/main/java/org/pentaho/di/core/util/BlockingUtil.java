@@ -0,0 +1,71 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs code that can wait for a while, for example for room in a row set. When called from a fork/join worker thread
+ * the pool is told about the wait so it can activate a spare worker in the meantime. Otherwise a pool with a few
+ * workers could end up with all of them waiting for work that is queued behind them.
+ *
+ * @since 10.3
+ */
+public class BlockingUtil {
+
+  private BlockingUtil() {
+  }
+
+  /**
+   * Run a piece of code that can block.
+   *
+   * @param wait
+   *          the code that waits
+   */
+  public static void block( Runnable wait ) {
+    if ( !ForkJoinTask.inForkJoinPool() ) {
+      wait.run();
+      return;
+    }
+    try {
+      ForkJoinPool.managedBlock( new ForkJoinPool.ManagedBlocker() {
+        private boolean released;
+
+        @Override
+        public boolean block() {
+          wait.run();
+          released = true;
+          return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+          return released;
+        }
+      } );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * Creates virtual threads when the running JVM supports them (Java 21 and later) and platform threads otherwise. The
+ * virtual thread API is looked up through reflection so this class also loads on older Java versions.<br>
+ * <br>
+ * Virtual threads run on a shared pool of carrier threads, sized with the jdk.virtualThreadScheduler.parallelism
+ * system property, so thousands of them only cost a few OS threads.
+ *
+ * @since 10.3
+ */
+public class VirtualThreadUtil {
+
+  private static final Method OF_VIRTUAL;
+  private static final Method BUILDER_NAME;
+  private static final Method BUILDER_UNSTARTED;
+
+  static {
+    Method ofVirtual = null;
+    Method builderName = null;
+    Method builderUnstarted = null;
+    try {
+      Class<?> builderClass = Class.forName( "java.lang.Thread$Builder" );
+      ofVirtual = Thread.class.getMethod( "ofVirtual" );
+      builderName = builderClass.getMethod( "name", String.class );
+      builderUnstarted = builderClass.getMethod( "unstarted", Runnable.class );
+      // On Java 19 and 20 this is a preview API which fails unless previews are enabled
+      ofVirtual.invoke( null );
+    } catch ( Exception | LinkageError e ) {
+      ofVirtual = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    BUILDER_NAME = builderName;
+    BUILDER_UNSTARTED = builderUnstarted;
+  }
+
+  private VirtualThreadUtil() {
+  }
+
+  /**
+   * @return true if this JVM can create virtual threads
+   */
+  public static boolean isVirtualThreadSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Create a new thread that isn't started yet.
+   *
+   * @param runnable
+   *          the code to run in the thread
+   * @param name
+   *          the name of the thread or null for a default name
+   * @param virtual
+   *          true to create a virtual thread if the JVM supports it
+   * @return a virtual thread if one was requested and supported, a platform thread otherwise
+   */
+  public static Thread newThread( Runnable runnable, String name, boolean virtual ) {
+    if ( virtual && isVirtualThreadSupported() ) {
+      try {
+        Object builder = OF_VIRTUAL.invoke( null );
+        if ( name != null ) {
+          builder = BUILDER_NAME.invoke( builder, name );
+        }
+        return (Thread) BUILDER_UNSTARTED.invoke( builder, runnable );
+      } catch ( ReflectiveOperationException e ) {
+        // Fall back to a platform thread
+      }
+    }
+    return name == null ? new Thread( runnable ) : new Thread( runnable, name );
+  }
+}
@@ -31,6 +31,7 @@ import org.pentaho.di.junit.rules.RestorePDIEnvironment;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
@@ -89,6 +90,22 @@ public class HttpUtilTest {
     Assert.assertEquals( "Strings are the same after transformation", STANDART, decoded );
   }
 
+  @Test
+  public void testBase64ZippedWriter() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write( '[' );
+    try ( Writer writer = HttpUtil.createBase64ZippedWriter( out ) ) {
+      writer.write( STANDART );
+      writer.write( STANDART );
+    }
+    out.write( ']' );
+
+    String written = out.toString( DEFAULT_ENCODING );
+    Assert.assertTrue( written.startsWith( "[" ) && written.endsWith( "]" ) );
+    Assert.assertEquals( STANDART + STANDART,
+      HttpUtil.decodeBase64ZippedString( written.substring( 1, written.length() - 1 ) ) );
+  }
+
   /**
    * https://www.securecoding.cert.org/confluence/display/java/IDS12-J.+Perform+lossless+conversion+
    * of+String+data+between+differing+character+encodings
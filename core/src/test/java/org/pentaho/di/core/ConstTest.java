@@ -1867,6 +1867,18 @@ public class ConstTest {
     assertEquals( -1447252914241L, Const.toLong( null, -1447252914241L ) );
   }
 
+  @Test
+  public void testToMemorySize() {
+    assertEquals( 1000L, Const.toMemorySize( "1000", -1L ) );
+    assertEquals( 2048L, Const.toMemorySize( "2k", -1L ) );
+    assertEquals( 512L * 1024 * 1024, Const.toMemorySize( " 512M ", -1L ) );
+    assertEquals( 3L * 1024 * 1024 * 1024, Const.toMemorySize( "3g", -1L ) );
+    assertEquals( -1L, Const.toMemorySize( "0", -1L ) );
+    assertEquals( -1L, Const.toMemorySize( "12x", -1L ) );
+    assertEquals( -1L, Const.toMemorySize( "", -1L ) );
+    assertEquals( -1L, Const.toMemorySize( null, -1L ) );
+  }
+
   @Test
   public void testToDouble() {
     Assert.assertEquals( 123.45, Const.toDouble( "123.45", -12.34 ), 1e-15 );
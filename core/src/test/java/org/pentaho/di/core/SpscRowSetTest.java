@@ -0,0 +1,219 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEnvironment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SpscRowSetTest {
+  @ClassRule public static RestorePDIEnvironment env = new RestorePDIEnvironment();
+
+  private RowMetaInterface createRowMetaInterface() {
+    RowMetaInterface rm = new RowMeta();
+    rm.addValueMeta( new ValueMetaInteger( "ROWNR" ) );
+    return rm;
+  }
+
+  @Test
+  public void testBasicCreation() {
+    RowSet set = new SpscRowSet( 10 );
+
+    assertFalse( set.isDone() );
+    assertEquals( 0, set.size() );
+    assertNull( set.getRowImmediate() );
+  }
+
+  @Test
+  public void testPutAndGetInOrder() {
+    SpscRowSet set = new SpscRowSet( 3, SpscRowSet.WaitStrategy.YIELD );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    assertTrue( set.putRow( rm, new Object[] { 1L } ) );
+    assertTrue( set.putRow( rm, new Object[] { 2L } ) );
+    assertTrue( set.putRow( rm, new Object[] { 3L } ) );
+    assertEquals( 3, set.size() );
+    assertSame( rm, set.getRowMeta() );
+
+    // The row set holds exactly the requested number of rows, even though the ring is larger
+    assertFalse( set.putRowWait( rm, new Object[] { 4L }, 1, TimeUnit.MILLISECONDS ) );
+
+    assertArrayEquals( new Object[] { 1L }, set.getRow() );
+    assertTrue( set.putRowWait( rm, new Object[] { 4L }, 1, TimeUnit.MILLISECONDS ) );
+    assertArrayEquals( new Object[] { 2L }, set.getRowImmediate() );
+    assertArrayEquals( new Object[] { 3L }, set.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+    assertArrayEquals( new Object[] { 4L }, set.getRow() );
+    assertNull( set.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+    assertEquals( 0, set.size() );
+  }
+
+  @Test
+  public void testPutAndGetRowsInBatches() {
+    SpscRowSet set = new SpscRowSet( 4 );
+    RowMetaInterface rm = createRowMetaInterface();
+    Object[][] rows = new Object[][] { { 1L }, { 2L }, { 3L } };
+
+    assertEquals( 3, set.putRows( rm, rows, 0, 3 ) );
+    assertEquals( 3, set.size() );
+    // Only one more row fits
+    assertEquals( 1, set.putRows( rm, rows, 1, 2 ) );
+
+    Object[][] batch = new Object[5][];
+    assertEquals( 3, set.getRows( batch, 1, 3 ) );
+    assertArrayEquals( new Object[] { 1L }, batch[1] );
+    assertArrayEquals( new Object[] { 3L }, batch[3] );
+    assertEquals( 1, set.getRows( batch, 0, 5 ) );
+    assertArrayEquals( new Object[] { 2L }, batch[0] );
+    assertEquals( 0, set.getRows( batch, 0, 5 ) );
+  }
+
+  @Test
+  public void testClear() {
+    SpscRowSet set = new SpscRowSet( 2 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    set.putRow( rm, new Object[] { 1L } );
+    set.setDone();
+    set.clear();
+
+    assertFalse( set.isDone() );
+    assertEquals( 0, set.size() );
+    assertNull( set.getRowImmediate() );
+  }
+
+  @Test
+  public void testWaitStrategyByName() {
+    assertEquals( SpscRowSet.WaitStrategy.BUSY_SPIN, SpscRowSet.WaitStrategy.getWaitStrategy( "busy_spin" ) );
+    assertEquals( SpscRowSet.WaitStrategy.YIELD, SpscRowSet.WaitStrategy.getWaitStrategy( " YIELD " ) );
+    assertEquals( SpscRowSet.WaitStrategy.PARK, SpscRowSet.WaitStrategy.getWaitStrategy( null ) );
+    assertEquals( SpscRowSet.WaitStrategy.PARK, SpscRowSet.WaitStrategy.getWaitStrategy( "unknown" ) );
+  }
+
+  @Test( timeout = 30000 )
+  public void testConcurrentProducerAndConsumer() throws Exception {
+    final int nrRows = 100000;
+    final SpscRowSet set = new SpscRowSet( 16 );
+    final RowMetaInterface rm = createRowMetaInterface();
+    final AtomicReference<String> error = new AtomicReference<>();
+
+    Thread producer = new Thread( () -> {
+      for ( long i = 0; i < nrRows; i++ ) {
+        Object[] row = new Object[] { i };
+        while ( !set.putRow( rm, row ) ) {
+          // retry until the consumer made room
+        }
+      }
+      set.setDone();
+    } );
+
+    Thread consumer = new Thread( () -> {
+      long expected = 0;
+      while ( true ) {
+        Object[] row = set.getRow();
+        if ( row == null ) {
+          if ( set.isDone() && set.size() == 0 ) {
+            break;
+          }
+          continue;
+        }
+        if ( !Long.valueOf( expected ).equals( row[0] ) ) {
+          error.set( "Expected " + expected + " but got " + row[0] );
+          return;
+        }
+        expected++;
+      }
+      if ( expected != nrRows ) {
+        error.set( "Expected " + nrRows + " rows but got " + expected );
+      }
+    } );
+
+    producer.start();
+    consumer.start();
+    producer.join();
+    consumer.join();
+
+    assertNull( error.get() );
+  }
+
+  @Test( timeout = 60000 )
+  public void testConsumerSignalIsNeverMissed() throws Exception {
+    final int nrRows = 20000;
+    final long timeoutMillis = 2000;
+    final SpscRowSet set = new SpscRowSet( 16 );
+    final WakeupSignal signal = new WakeupSignal();
+    set.setConsumerSignal( signal );
+    final RowMetaInterface rm = createRowMetaInterface();
+    final AtomicLong slowestWait = new AtomicLong();
+
+    // A slow producer keeps the row set nearly empty so the consumer goes to sleep on the signal all the time
+    Thread producer = new Thread( () -> {
+      for ( long i = 0; i < nrRows; i++ ) {
+        set.putRow( rm, new Object[] { i } );
+        for ( int spin = 0; spin < ( i & 63 ); spin++ ) {
+          Thread.onSpinWait();
+        }
+      }
+      set.setDone();
+    } );
+
+    Thread consumer = new Thread( () -> {
+      long received = 0;
+      while ( received < nrRows ) {
+        long start = System.nanoTime();
+        signal.arm();
+        if ( set.size() == 0 && !set.isDone() ) {
+          signal.await( TimeUnit.MILLISECONDS.toNanos( timeoutMillis ) );
+        } else {
+          signal.disarm();
+        }
+        if ( set.getRowWait( timeoutMillis, TimeUnit.MILLISECONDS ) != null ) {
+          received++;
+        }
+        slowestWait.accumulateAndGet( System.nanoTime() - start, Math::max );
+      }
+    } );
+
+    producer.start();
+    consumer.start();
+    producer.join();
+    consumer.join();
+
+    // A missed wakeup leaves the consumer asleep until the timeout even though a row is waiting
+    assertTrue( "slowest wait " + TimeUnit.NANOSECONDS.toMillis( slowestWait.get() ) + "ms",
+      slowestWait.get() < TimeUnit.MILLISECONDS.toNanos( timeoutMillis / 2 ) );
+  }
+}
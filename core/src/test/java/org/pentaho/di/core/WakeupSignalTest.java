@@ -0,0 +1,83 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WakeupSignalTest {
+
+  @Test
+  public void testAwaitTimesOutWithoutSignal() {
+    WakeupSignal signal = new WakeupSignal();
+    signal.arm();
+    assertFalse( signal.await( TimeUnit.MILLISECONDS.toNanos( 5 ) ) );
+  }
+
+  @Test
+  public void testSignalBeforeAwaitIsNotLost() {
+    WakeupSignal signal = new WakeupSignal();
+    signal.arm();
+    signal.signal();
+    assertTrue( signal.await( TimeUnit.SECONDS.toNanos( 10 ) ) );
+  }
+
+  @Test
+  public void testSignalWithoutWaiterIsIgnored() {
+    WakeupSignal signal = new WakeupSignal();
+    signal.signal();
+    signal.arm();
+    assertFalse( signal.await( TimeUnit.MILLISECONDS.toNanos( 5 ) ) );
+  }
+
+  @Test( timeout = 10000 )
+  public void testRowSetWakesUpConsumer() throws Exception {
+    final WakeupSignal signal = new WakeupSignal();
+    final RowSet rowSet = new BlockingRowSet( 10 );
+    assertTrue( rowSet.supportsConsumerSignal() );
+    rowSet.setConsumerSignal( signal );
+
+    signal.arm();
+    Thread producer = new Thread( () -> rowSet.putRow( new RowMeta(), new Object[] { 1L } ) );
+    producer.start();
+
+    assertTrue( signal.await( TimeUnit.SECONDS.toNanos( 10 ) ) );
+    producer.join();
+  }
+
+  @Test
+  public void testDoneWakesUpConsumer() {
+    WakeupSignal signal = new WakeupSignal();
+    RowSet rowSet = new SpscRowSet( 10 );
+    rowSet.setConsumerSignal( signal );
+
+    signal.arm();
+    rowSet.setDone();
+    assertTrue( signal.await( TimeUnit.SECONDS.toNanos( 10 ) ) );
+  }
+}
@@ -0,0 +1,84 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveBatchSizerTest {
+
+  /** A fixed round trip cost and a cost per row: larger batches always have a better throughput */
+  private static long roundTripNanos( int rows ) {
+    return 5000000L + rows * 10000L;
+  }
+
+  @Test
+  public void testGrowsWhileThroughputImproves() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer( 5000, 1000L );
+    assertEquals( AdaptiveBatchSizer.DEFAULT_INITIAL_BATCH_SIZE, sizer.getBatchSize() );
+    for ( int i = 0; i < 20; i++ ) {
+      int rows = sizer.getBatchSize();
+      sizer.batchExecuted( rows, roundTripNanos( rows ) );
+    }
+    assertEquals( 5000, sizer.getBatchSize() );
+    assertEquals( 20, sizer.getNrBatches() );
+  }
+
+  @Test
+  public void testShrinksOverTargetLatency() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer( 5000, 100L );
+    for ( int i = 0; i < 20; i++ ) {
+      sizer.batchExecuted( sizer.getBatchSize(), 500000000L );
+    }
+    assertEquals( AdaptiveBatchSizer.DEFAULT_MIN_BATCH_SIZE, sizer.getBatchSize() );
+  }
+
+  @Test
+  public void testTurnsAroundWhenThroughputDrops() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer( 5000, 10000L );
+    // Throughput collapses beyond 300 rows per batch
+    for ( int i = 0; i < 50; i++ ) {
+      int rows = sizer.getBatchSize();
+      sizer.batchExecuted( rows, rows <= 300 ? roundTripNanos( rows ) : rows * 1000000L );
+    }
+    assertTrue( sizer.getBatchSize() <= 450 );
+  }
+
+  @Test
+  public void testPartialBatchesAreIgnored() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer( 5000, 1000L );
+    sizer.batchExecuted( 10, 1000000000L );
+    assertEquals( AdaptiveBatchSizer.DEFAULT_INITIAL_BATCH_SIZE, sizer.getBatchSize() );
+    assertEquals( 10, sizer.getNrRows() );
+  }
+
+  @Test
+  public void testSmallCommitSize() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer( 10, 1000L );
+    assertEquals( 10, sizer.getBatchSize() );
+    sizer.batchExecuted( 10, 1000L );
+    assertEquals( 10, sizer.getBatchSize() );
+  }
+}
@@ -414,6 +414,47 @@ public class DatabaseTest {
     verify( ps ).clearBatch();
   }
 
+  @Test
+  public void adaptiveBatchingExecutesBatchesBeforeCommitSize() throws Exception {
+    when( meta.supportsBatchUpdates() ).thenReturn( true );
+    when( dbMetaData.supportsBatchUpdates() ).thenReturn( true );
+
+    Database db = new Database( log, meta );
+    db.setConnection( mockConnection( dbMetaData ) );
+    db.setCommit( 1000 );
+    db.setAdaptiveBatching( true );
+    int batchSize = db.getBatchSizer().getBatchSize();
+    for ( int i = 0; i < batchSize; i++ ) {
+      db.insertRow( ps, true, true );
+    }
+    verify( ps, times( batchSize ) ).addBatch();
+    verify( ps ).executeBatch();
+    assertEquals( 0, db.getPendingBatchRows( ps ) );
+
+    // Nothing is left to execute at the commit
+    db.emptyAndCommit( ps, true, batchSize );
+    verify( ps ).executeBatch();
+  }
+
+  @Test
+  public void insertRowWithoutAdaptiveBatchingExecutesAtCommitSize() throws Exception {
+    when( meta.supportsBatchUpdates() ).thenReturn( true );
+    when( dbMetaData.supportsBatchUpdates() ).thenReturn( true );
+
+    Database db = new Database( log, meta );
+    db.setConnection( mockConnection( dbMetaData ) );
+    db.setCommit( 1000 );
+    db.setAdaptiveBatching( false );
+    for ( int i = 0; i < 999; i++ ) {
+      db.insertRow( ps, true, true );
+    }
+    verify( ps, never() ).executeBatch();
+    assertEquals( 999, db.getPendingBatchRows( ps ) );
+
+    db.insertRow( ps, true, true );
+    verify( ps ).executeBatch();
+  }
+
   @Test
   public void insertRowWhenDbDoNotSupportBatchLeadsToCommit() throws Exception {
     when( meta.supportsBatchUpdates() ).thenReturn( false );
@@ -0,0 +1,131 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.hash;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapHashIndexTest {
+
+  @Test
+  public void testPutAndGet() throws KettleValueException {
+    OffHeapHashIndex index = new OffHeapHashIndex();
+    try {
+      for ( int i = 0; i < 10000; i++ ) {
+        index.put( bytes( "key" + i ), bytes( "value" + i ) );
+      }
+      assertEquals( 10000, index.getSize() );
+      assertFalse( index.isSpilled() );
+      for ( int i = 0; i < 10000; i++ ) {
+        assertArrayEquals( bytes( "value" + i ), index.get( bytes( "key" + i ) ) );
+      }
+      assertNull( index.get( bytes( "key10000" ) ) );
+      assertNull( index.get( new byte[0] ) );
+    } finally {
+      index.close();
+    }
+  }
+
+  @Test
+  public void testPutReplacesValue() throws KettleValueException {
+    OffHeapHashIndex index = new OffHeapHashIndex();
+    try {
+      index.put( bytes( "key" ), bytes( "one" ) );
+      index.put( bytes( "key" ), bytes( "two" ) );
+      assertEquals( 1, index.getSize() );
+      assertArrayEquals( bytes( "two" ), index.get( bytes( "key" ) ) );
+    } finally {
+      index.close();
+    }
+  }
+
+  @Test
+  public void testPutIfAbsentKeepsValue() throws KettleValueException {
+    OffHeapHashIndex index = new OffHeapHashIndex();
+    try {
+      assertTrue( index.putIfAbsent( bytes( "key" ), bytes( "one" ) ) );
+      assertFalse( index.putIfAbsent( bytes( "key" ), bytes( "two" ) ) );
+      assertEquals( 1, index.getSize() );
+      assertArrayEquals( bytes( "one" ), index.get( bytes( "key" ) ) );
+    } finally {
+      index.close();
+    }
+  }
+
+  @Test
+  public void testKeyIteratorAndMemorySize() throws KettleValueException {
+    OffHeapHashIndex index = new OffHeapHashIndex( 16, -1L, null, 1024 );
+    try {
+      long emptySize = index.getMemorySize();
+      for ( int i = 0; i < 1000; i++ ) {
+        index.putIfAbsent( bytes( "key" + i ), new byte[0] );
+      }
+      assertTrue( index.getMemorySize() > emptySize );
+
+      Set<String> keys = new HashSet<>();
+      Iterator<byte[]> iterator = index.keyIterator();
+      while ( iterator.hasNext() ) {
+        keys.add( new String( iterator.next(), StandardCharsets.UTF_8 ) );
+      }
+      assertEquals( 1000, keys.size() );
+      assertTrue( keys.contains( "key999" ) );
+    } finally {
+      index.close();
+    }
+    assertEquals( 0L, index.getMemorySize() );
+  }
+
+  @Test
+  public void testSpillToMappedFile() throws KettleValueException {
+    OffHeapHashIndex index = new OffHeapHashIndex( 16, 4096, System.getProperty( "java.io.tmpdir" ), 1024 );
+    try {
+      for ( int i = 0; i < 1000; i++ ) {
+        index.put( bytes( "key" + i ), bytes( "value" + i ) );
+      }
+      // A record larger than a segment gets a segment of its own
+      index.put( bytes( "large" ), new byte[5000] );
+      assertTrue( index.isSpilled() );
+      for ( int i = 0; i < 1000; i++ ) {
+        assertArrayEquals( bytes( "value" + i ), index.get( bytes( "key" + i ) ) );
+      }
+      assertEquals( 5000, index.get( bytes( "large" ) ).length );
+    } finally {
+      index.close();
+    }
+  }
+
+  private static byte[] bytes( String string ) {
+    return string.getBytes( StandardCharsets.UTF_8 );
+  }
+}
@@ -0,0 +1,221 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.logging;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.pentaho.di.core.logging.AsyncLoggingEventDispatcher.OverflowPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncLoggingEventDispatcherTest {
+
+  private AsyncLoggingEventDispatcher dispatcher;
+
+  @After
+  public void tearDown() {
+    if ( dispatcher != null ) {
+      dispatcher.shutdown();
+    }
+  }
+
+  @Test
+  public void testEventsOfAllThreadsAreDeliveredInOrder() throws Exception {
+    CollectingListener listener = new CollectingListener();
+    dispatcher = new AsyncLoggingEventDispatcher( Collections.singletonList( listener ), 16, OverflowPolicy.BLOCK );
+
+    int nrThreads = 4;
+    int nrEvents = 1000;
+    Thread[] threads = new Thread[ nrThreads ];
+    for ( int t = 0; t < nrThreads; t++ ) {
+      String name = "thread " + t;
+      threads[ t ] = new Thread( () -> {
+        for ( int i = 0; i < nrEvents; i++ ) {
+          dispatcher.dispatch( new KettleLoggingEvent( name + ":" + i, System.currentTimeMillis(), LogLevel.BASIC ) );
+        }
+      } );
+      threads[ t ].start();
+    }
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+    dispatcher.flush();
+
+    List<KettleLoggingEvent> events = listener.getEvents();
+    assertEquals( nrThreads * nrEvents, events.size() );
+    int[] next = new int[ nrThreads ];
+    for ( KettleLoggingEvent event : events ) {
+      String[] parts = ( (String) event.getMessage() ).split( ":" );
+      int t = Integer.parseInt( parts[ 0 ].substring( "thread ".length() ) );
+      assertEquals( next[ t ]++, Integer.parseInt( parts[ 1 ] ) );
+    }
+    assertEquals( 0L, dispatcher.getNrDropped() );
+  }
+
+  @Test
+  public void testDropWhenBufferIsFull() throws Exception {
+    CountDownLatch release = new CountDownLatch( 1 );
+    CollectingListener listener = new CollectingListener( release );
+    dispatcher = new AsyncLoggingEventDispatcher( Collections.singletonList( listener ), 2, OverflowPolicy.DROP );
+
+    for ( int i = 0; i < 100; i++ ) {
+      dispatcher.dispatch( new KettleLoggingEvent( "message " + i, i, LogLevel.BASIC ) );
+    }
+    release.countDown();
+    dispatcher.flush();
+
+    assertTrue( dispatcher.getNrDropped() > 0 );
+    assertEquals( 100L, dispatcher.getNrDropped() + listener.getEvents().size() );
+  }
+
+  @Test
+  public void testBlockWhenBufferIsFull() throws Exception {
+    CountDownLatch release = new CountDownLatch( 1 );
+    CollectingListener listener = new CollectingListener( release );
+    dispatcher = new AsyncLoggingEventDispatcher( Collections.singletonList( listener ), 2, OverflowPolicy.BLOCK );
+
+    CountDownLatch logged = new CountDownLatch( 1 );
+    Thread producer = new Thread( () -> {
+      for ( int i = 0; i < 100; i++ ) {
+        dispatcher.dispatch( new KettleLoggingEvent( "message " + i, i, LogLevel.BASIC ) );
+      }
+      logged.countDown();
+    } );
+    producer.start();
+
+    assertFalse( logged.await( 200, TimeUnit.MILLISECONDS ) );
+    release.countDown();
+    assertTrue( logged.await( 10, TimeUnit.SECONDS ) );
+    dispatcher.flush();
+
+    assertEquals( 100, listener.getEvents().size() );
+    assertEquals( 0L, dispatcher.getNrDropped() );
+  }
+
+  @Test
+  public void testRemovedListenerGotAllEvents() {
+    LoggingBuffer buffer = new LoggingBuffer( 100 );
+    buffer.setAsyncDelivery( 8, OverflowPolicy.BLOCK );
+    try {
+      CollectingListener listener = new CollectingListener();
+      buffer.addLoggingEventListener( listener );
+      for ( int i = 0; i < 50; i++ ) {
+        LogMessage message = new LogMessage( "message " + i, LogLevel.BASIC );
+        buffer.addLogggingEvent( new KettleLoggingEvent( message, i, LogLevel.BASIC ) );
+      }
+      buffer.removeLoggingEventListener( listener );
+
+      assertEquals( 50, listener.getEvents().size() );
+      assertEquals( 50, buffer.getNrLines() );
+    } finally {
+      buffer.setAsyncDelivery( 0, null );
+    }
+  }
+
+  @Test
+  public void testFileListenerClosedWithPendingEvents() throws Exception {
+    KettleLogStore.init();
+    LoggingBuffer buffer = KettleLogStore.getAppender();
+    buffer.setAsyncDelivery( 64, OverflowPolicy.BLOCK );
+    CountDownLatch release = new CountDownLatch( 1 );
+    CollectingListener blocker = new CollectingListener( release );
+    File logFile = File.createTempFile( "async-logging", ".log" );
+    logFile.deleteOnExit();
+    FileLoggingEventListener fileListener = new FileLoggingEventListener( logFile.getAbsolutePath(), false );
+    try {
+      // The events wait for the blocking listener, so they're still pending when the file is closed
+      buffer.addLoggingEventListener( blocker );
+      buffer.addLoggingEventListener( fileListener );
+      for ( int i = 0; i < 20; i++ ) {
+        LogMessage message = new LogMessage( "message " + i, "async-test", LogLevel.BASIC );
+        buffer.addLogggingEvent( new KettleLoggingEvent( message, i, LogLevel.BASIC ) );
+      }
+      Thread releaser = new Thread( () -> {
+        try {
+          Thread.sleep( 200 );
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+        release.countDown();
+      } );
+      releaser.start();
+
+      fileListener.close();
+      assertNull( fileListener.getException() );
+      List<String> lines = Files.readAllLines( logFile.toPath() );
+      assertEquals( 20, lines.size() );
+      assertTrue( lines.get( 19 ).endsWith( "message 19" ) );
+    } finally {
+      release.countDown();
+      buffer.removeLoggingEventListener( fileListener );
+      buffer.removeLoggingEventListener( blocker );
+      buffer.setAsyncDelivery( 0, null );
+    }
+  }
+
+  @Test
+  public void testGetPolicy() {
+    assertEquals( OverflowPolicy.DROP, OverflowPolicy.getPolicy( "drop" ) );
+    assertEquals( OverflowPolicy.BLOCK, OverflowPolicy.getPolicy( "BLOCK" ) );
+    assertEquals( OverflowPolicy.BLOCK, OverflowPolicy.getPolicy( null ) );
+  }
+
+  private static class CollectingListener implements KettleLoggingEventListener {
+    private final List<KettleLoggingEvent> events = Collections.synchronizedList( new ArrayList<>() );
+    private final CountDownLatch release;
+
+    CollectingListener() {
+      this( new CountDownLatch( 0 ) );
+    }
+
+    CollectingListener( CountDownLatch release ) {
+      this.release = release;
+    }
+
+    @Override
+    public void eventAdded( KettleLoggingEvent event ) {
+      try {
+        release.await();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+      events.add( event );
+    }
+
+    List<KettleLoggingEvent> getEvents() {
+      return new ArrayList<>( events );
+    }
+  }
+}
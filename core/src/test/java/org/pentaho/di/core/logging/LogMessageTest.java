@@ -23,6 +23,7 @@
 package org.pentaho.di.core.logging;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.After;
@@ -120,6 +121,15 @@ public class LogMessageTest {
     assertEquals( "m Foo, {abc}, , null, 123.00, {5} {foe}", msg.getMessage() );
   }
 
+  @Test
+  public void testGetMessageIsFormattedOnce() {
+    LogMessage msg = new LogMessage( "m {0}", "Channel 01", new Object[] { "Foo" }, LogLevel.DEBUG );
+    assertSame( msg.getMessage(), msg.getMessage() );
+
+    msg.setArguments( new Object[] { "Bar" } );
+    assertEquals( "m Bar", msg.getMessage() );
+  }
+
   private void turnOnLogMarkMapping() {
     System.getProperties().put( Const.KETTLE_LOG_MARK_MAPPINGS, "Y" );
   }
@@ -26,7 +26,11 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.pentaho.di.core.Const;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -184,6 +188,72 @@ public class LoggingBufferTest {
     }
     loggingBuffer.removeChannelFromBuffer( logChannelId );
     Assert.assertEquals( 10, loggingBuffer.size() );
+    Assert.assertTrue( loggingBuffer.getBufferLines( logChannelId, false, 0, Integer.MAX_VALUE, 0 ).isEmpty() );
+    Assert.assertEquals( 3, loggingBuffer.getBufferLines( otherLogChannelId, false, 0, Integer.MAX_VALUE, 0 ).size() );
+  }
+
+  @Test
+  public void testChannelLinesAreMergedInOrder() {
+    LoggingBuffer loggingBuffer = new LoggingBuffer( 0 );
+    for ( int i = 0; i < 30; i++ ) {
+      addEvent( loggingBuffer, String.valueOf( i % 3 ), "line " + i );
+    }
+
+    List<KettleLoggingEvent> events =
+      loggingBuffer.getLogBufferFromTo( Arrays.asList( "0", "2", "0" ), false, 0, Integer.MAX_VALUE );
+    Assert.assertEquals( 20, events.size() );
+    for ( int i = 0, line = 0; i < events.size(); i++, line++ ) {
+      if ( line % 3 == 1 ) {
+        line++;
+      }
+      Assert.assertEquals( "line " + line, ( (LogMessage) events.get( i ).getMessage() ).getMessage() );
+    }
+
+    List<KettleLoggingEvent> tail =
+      loggingBuffer.getLogBufferFromTo( Arrays.asList( "0", "2" ), false, 0, Integer.MAX_VALUE, 4, "parent" );
+    Assert.assertEquals( events.subList( 16, 20 ), tail );
+  }
+
+  @Test
+  public void testBufferLinePages() {
+    LoggingBuffer loggingBuffer = new LoggingBuffer( 50 );
+    for ( int i = 0; i < 100; i++ ) {
+      addEvent( loggingBuffer, i % 2 == 0 ? "even" : "odd", "line " + i );
+    }
+    // Only the last 50 lines are kept, in the index as well
+    Assert.assertEquals( 25, loggingBuffer.getBufferLines( "even", false, 0, Integer.MAX_VALUE, 0 ).size() );
+
+    int from = 0;
+    int to = loggingBuffer.getLastBufferLineNr();
+    List<BufferLine> page;
+    int nrLines = 0;
+    while ( !( page = loggingBuffer.getBufferLines( "odd", false, from, to, 10 ) ).isEmpty() ) {
+      Assert.assertTrue( page.size() <= 10 );
+      for ( BufferLine line : page ) {
+        Assert.assertEquals( "line " + ( 51 + nrLines * 2 ), ( (LogMessage) line.getEvent().getMessage() ).getMessage() );
+        nrLines++;
+      }
+      from = page.get( page.size() - 1 ).getNr() + 1;
+    }
+    Assert.assertEquals( 25, nrLines );
+  }
+
+  @Test
+  public void testWriteBuffer() throws IOException {
+    LoggingBuffer loggingBuffer = new LoggingBuffer( 10 );
+    addEvent( loggingBuffer, "channel", "first" );
+    addEvent( loggingBuffer, "channel", "second" );
+
+    StringWriter writer = new StringWriter();
+    loggingBuffer.writeBuffer( loggingBuffer.getBufferLines( "channel", false, 0, Integer.MAX_VALUE, 0 ), writer );
+    Assert.assertEquals( loggingBuffer.getBuffer( "channel", false ).toString(), writer.toString() );
+    Assert.assertTrue( writer.toString().contains( "second" ) );
+  }
+
+  private static void addEvent( LoggingBuffer loggingBuffer, String logChannelId, String message ) {
+    KettleLoggingEvent event = new KettleLoggingEvent();
+    event.setMessage( new LogMessage( message, logChannelId, LogLevel.BASIC ) );
+    loggingBuffer.addLogggingEvent( event );
   }
 
 }
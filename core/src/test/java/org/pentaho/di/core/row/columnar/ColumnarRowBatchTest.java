@@ -0,0 +1,158 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.columnar;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ColumnarRowBatchTest {
+
+  private RowMetaInterface rowMeta;
+  private Object[][] rows;
+
+  @Before
+  public void setUp() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "country" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "result" ) );
+
+    String[] countries = { "BE", "NL", "US", null };
+    Random random = new Random( 42 );
+    rows = new Object[ 500 ][];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[ i ] = new Object[] {
+        i % 7 == 0 ? null : Long.valueOf( random.nextInt( 100 ) ),
+        i % 11 == 0 ? null : Double.valueOf( random.nextInt( 1000 ) / 10.0 ),
+        countries[ i % countries.length ],
+        new Date( 1000000L * random.nextInt( 1000 ) ),
+        null, };
+    }
+  }
+
+  @Test
+  public void testReadColumns() throws Exception {
+    ColumnarRowBatch batch = new ColumnarRowBatch( rowMeta );
+    batch.setRows( rows, rows.length );
+
+    LongColumnVector ids = batch.getLongColumn( 0 );
+    DoubleColumnVector amounts = batch.getDoubleColumn( 1 );
+    DictionaryColumnVector countries = (DictionaryColumnVector) batch.getColumn( 2 );
+    LongColumnVector dates = batch.getLongColumn( 3 );
+    for ( int i = 0; i < rows.length; i++ ) {
+      assertEquals( rows[ i ][ 0 ], ids.getObject( i ) );
+      assertEquals( rows[ i ][ 1 ], amounts.getObject( i ) );
+      assertEquals( rows[ i ][ 2 ], countries.getObject( i ) );
+      assertEquals( rows[ i ][ 3 ], dates.getObject( i ) );
+    }
+    assertEquals( 3, countries.getDictionarySize() );
+    assertSame( ids, batch.getLongColumn( 0 ) );
+  }
+
+  @Test
+  public void testWriteCalculatedColumn() throws Exception {
+    ColumnarRowBatch batch = new ColumnarRowBatch( rowMeta );
+    batch.setRows( rows, 10 );
+
+    DoubleColumnVector amounts = batch.getDoubleColumn( 1 );
+    DoubleColumnVector result = batch.newDoubleColumn( 4 );
+    for ( int i = 0; i < batch.size(); i++ ) {
+      if ( amounts.isNull( i ) ) {
+        result.setNull( i );
+      } else {
+        result.set( i, amounts.get( i ) * 2 );
+      }
+    }
+    Object country = rows[ 1 ][ 2 ];
+    batch.writeRows();
+
+    assertNull( rows[ 0 ][ 4 ] );
+    assertEquals( (Double) rows[ 1 ][ 1 ] * 2, (Double) rows[ 1 ][ 4 ], 0.0 );
+    // Other fields are left alone
+    assertSame( country, rows[ 1 ][ 2 ] );
+    // Rows outside of the batch too
+    assertNull( rows[ 10 ][ 4 ] );
+  }
+
+  @Test
+  public void testConditionMatchesRowByRowEvaluation() throws Exception {
+    Condition condition = new Condition( "amount", Condition.FUNC_LARGER, null,
+      new ValueMetaAndData( new ValueMetaNumber( "constant" ), 50.0 ) );
+    condition.addCondition( new Condition( Condition.OPERATOR_AND, "country", Condition.FUNC_NOT_EQUAL, null,
+      new ValueMetaAndData( new ValueMetaString( "constant" ), "US" ) ) );
+    Condition either = new Condition( Condition.OPERATOR_OR, "id", Condition.FUNC_SMALLER_EQUAL, null,
+      new ValueMetaAndData( new ValueMetaInteger( "constant" ), 10L ) );
+    either.addCondition( new Condition( Condition.OPERATOR_AND, "country", Condition.FUNC_NULL, null, null ) );
+    condition.addCondition( either );
+    condition.addCondition( new Condition( Condition.OPERATOR_OR_NOT, "id", Condition.FUNC_LARGER_EQUAL, null,
+      new ValueMetaAndData( new ValueMetaNumber( "constant" ), 3.5 ) ) );
+
+    assertConditionMatches( condition );
+  }
+
+  @Test
+  public void testStringFunctions() throws Exception {
+    assertConditionMatches( new Condition( "country", Condition.FUNC_IN_LIST, null,
+      new ValueMetaAndData( new ValueMetaString( "constant" ), "NL;US" ) ) );
+    assertConditionMatches( new Condition( true, "country", Condition.FUNC_STARTS_WITH, null,
+      new ValueMetaAndData( new ValueMetaString( "constant" ), "B" ) ) );
+  }
+
+  @Test
+  public void testFieldComparison() throws Exception {
+    assertConditionMatches( new Condition( "amount", Condition.FUNC_SMALLER, "amount", null ) );
+    assertNull( ColumnarCondition.compile( new Condition( "id", Condition.FUNC_SMALLER, "amount", null ), rowMeta ) );
+  }
+
+  private void assertConditionMatches( Condition condition ) throws Exception {
+    ColumnarCondition columnar = ColumnarCondition.compile( condition, rowMeta );
+    assertNotNull( columnar );
+
+    ColumnarRowBatch batch = new ColumnarRowBatch( rowMeta );
+    boolean[] result = new boolean[ rows.length ];
+    batch.setRows( rows, rows.length );
+    columnar.evaluate( batch, result );
+
+    for ( int i = 0; i < rows.length; i++ ) {
+      assertEquals( "row " + i, condition.evaluate( rowMeta, rows[ i ] ), result[ i ] );
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadUtilTest {
+
+  @Test
+  public void testPlatformThread() throws Exception {
+    AtomicBoolean ran = new AtomicBoolean();
+    Thread thread = VirtualThreadUtil.newThread( () -> ran.set( true ), "platform", false );
+
+    assertEquals( "platform", thread.getName() );
+    assertFalse( thread.isAlive() );
+    thread.start();
+    thread.join();
+    assertTrue( ran.get() );
+  }
+
+  @Test
+  public void testVirtualThreadOrFallback() throws Exception {
+    AtomicBoolean ran = new AtomicBoolean();
+    Thread thread = VirtualThreadUtil.newThread( () -> ran.set( true ), "virtual", true );
+
+    // Whether or not virtual threads are supported we always get a named, unstarted thread
+    assertEquals( "virtual", thread.getName() );
+    assertFalse( thread.isAlive() );
+    thread.start();
+    thread.join();
+    assertTrue( ran.get() );
+  }
+}
@@ -0,0 +1,211 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.util.EnvUtil;
+import org.pentaho.di.core.util.ExecutorUtil;
+
+/**
+ * Decompresses a stream made of independently compressed blocks with a number of threads.<br>
+ * A reader task reads the compressed blocks in order and hands each of them to a decompression task, reading ahead up
+ * to twice the number of threads. The decompressed blocks are returned in the order of the stream.
+ *
+ * @since 10.3
+ */
+public abstract class BlockDecompressionInputStream extends InputStream {
+  private static final byte[] EMPTY = new byte[0];
+
+  protected final InputStream in;
+
+  private final BlockingQueue<Future<byte[]>> blocks;
+  private Future<?> reader;
+  private volatile boolean closed;
+
+  private byte[] block = EMPTY;
+  private int position;
+  private boolean ended;
+
+  protected BlockDecompressionInputStream( InputStream in, int threads ) {
+    this.in = in;
+    blocks = new ArrayBlockingQueue<>( 2 * Math.max( 1, threads ) );
+  }
+
+  /**
+   * @return the number of threads to decompress with, from the KETTLE_DECOMPRESSION_THREADS variable
+   */
+  public static int getDecompressionThreads() {
+    return Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_DECOMPRESSION_THREADS ),
+      Runtime.getRuntime().availableProcessors() );
+  }
+
+  /**
+   * Read the next compressed block, on the reader task.
+   *
+   * @return the block or null at the end of the stream
+   */
+  protected abstract byte[] readBlock() throws IOException;
+
+  /**
+   * Decompress a block, on a decompression task.
+   */
+  protected abstract byte[] decompress( byte[] block ) throws IOException;
+
+  /**
+   * Start the decompression of a block. By default a task of the shared executor decompresses it.
+   */
+  protected Future<byte[]> decompressAsync( final byte[] block ) {
+    return ExecutorUtil.getExecutor().submit( () -> decompress( block ) );
+  }
+
+  private void readBlocks() {
+    try {
+      try {
+        byte[] compressed = readBlock();
+        while ( compressed != null && !closed ) {
+          blocks.put( decompressAsync( compressed ) );
+          compressed = readBlock();
+        }
+        blocks.put( CompletableFuture.completedFuture( (byte[]) null ) );
+      } catch ( IOException | RuntimeException e ) {
+        CompletableFuture<byte[]> failure = new CompletableFuture<>();
+        failure.completeExceptionally( e );
+        blocks.put( failure );
+      }
+    } catch ( InterruptedException e ) {
+      // closed while waiting for the blocks to be read
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Make sure there is a decompressed byte to read.
+   *
+   * @return false at the end of the stream
+   */
+  private boolean fill() throws IOException {
+    if ( closed ) {
+      throw new IOException( "Stream closed" );
+    }
+    if ( reader == null ) {
+      reader = ExecutorUtil.getExecutor().submit( this::readBlocks );
+    }
+    while ( position >= block.length ) {
+      if ( ended ) {
+        return false;
+      }
+      try {
+        byte[] next = blocks.take().get();
+        if ( next == null ) {
+          ended = true;
+          return false;
+        }
+        block = next;
+        position = 0;
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      } catch ( ExecutionException e ) {
+        ended = true;
+        block = EMPTY;
+        if ( e.getCause() instanceof IOException ) {
+          throw (IOException) e.getCause();
+        }
+        throw new IOException( e.getCause() );
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    return fill() ? block[position++] & 0xFF : -1;
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len ) throws IOException {
+    if ( len == 0 ) {
+      return 0;
+    }
+    if ( !fill() ) {
+      return -1;
+    }
+    int n = Math.min( len, block.length - position );
+    System.arraycopy( block, position, b, off, n );
+    position += n;
+    return n;
+  }
+
+  @Override
+  public int available() {
+    return block.length - position;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if ( closed ) {
+      return;
+    }
+    closed = true;
+    if ( reader != null ) {
+      reader.cancel( true );
+    }
+    for ( Future<byte[]> pending : blocks ) {
+      pending.cancel( true );
+    }
+    blocks.clear();
+    in.close();
+  }
+
+  /**
+   * Read exactly length bytes, unless the stream ends before the first byte.
+   *
+   * @return false if the stream ended before the first byte
+   * @throws EOFException
+   *           if the stream ended after the first byte
+   */
+  protected static boolean readFully( InputStream in, byte[] b, int off, int length ) throws IOException {
+    int done = 0;
+    while ( done < length ) {
+      int n = in.read( b, off + done, length - done );
+      if ( n < 0 ) {
+        if ( done == 0 ) {
+          return false;
+        }
+        throw new EOFException( "Unexpected end of a compressed block" );
+      }
+      done += n;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,192 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.gzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.pentaho.di.core.compress.BlockDecompressionInputStream;
+
+/**
+ * Decompresses a BGZF file, as written by bgzip, with a number of threads.<br>
+ * A BGZF file is a series of gzip members of at most 64KB, each storing its compressed size in a BC extra subfield, so
+ * the members can be split off without inflating them.
+ *
+ * @since 10.3
+ */
+public class BGZFInputStream extends BlockDecompressionInputStream {
+  private static final int ID1 = 31;
+  private static final int ID2 = 139;
+  private static final int CM_DEFLATE = 8;
+
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+
+  /** Fixed header and the length of the extra field */
+  private static final int HEADER_SIZE = 12;
+
+  /** CRC32 and ISIZE */
+  private static final int TRAILER_SIZE = 8;
+
+  public BGZFInputStream( InputStream in, int threads ) {
+    super( in, threads );
+  }
+
+  /**
+   * Tell whether a stream starts with a BGZF block, leaving the stream where it was.
+   *
+   * @param in
+   *          a stream supporting mark and reset
+   */
+  public static boolean isBGZF( InputStream in ) throws IOException {
+    byte[] header = new byte[HEADER_SIZE + 6];
+    in.mark( header.length );
+    try {
+      if ( !readFully( in, header, 0, header.length ) ) {
+        return false;
+      }
+    } catch ( IOException e ) {
+      return false;
+    } finally {
+      in.reset();
+    }
+    return isGzipHeader( header ) && ( header[3] & FEXTRA ) != 0
+      && findBlockSize( header, HEADER_SIZE, HEADER_SIZE + getShort( header, 10 ) ) >= 0;
+  }
+
+  @Override
+  protected byte[] readBlock() throws IOException {
+    byte[] header = new byte[HEADER_SIZE];
+    if ( !readFully( in, header, 0, HEADER_SIZE ) ) {
+      return null;
+    }
+    if ( !isGzipHeader( header ) || ( header[3] & FEXTRA ) == 0 ) {
+      throw new IOException( "Not a BGZF block" );
+    }
+    int extraLength = getShort( header, 10 );
+    byte[] extra = new byte[extraLength];
+    readFully( in, extra, 0, extraLength );
+    int blockSize = findBlockSize( extra, 0, extraLength );
+    if ( blockSize < HEADER_SIZE + extraLength + TRAILER_SIZE ) {
+      throw new IOException( "BGZF block without a valid BC subfield" );
+    }
+
+    byte[] block = new byte[blockSize];
+    System.arraycopy( header, 0, block, 0, HEADER_SIZE );
+    System.arraycopy( extra, 0, block, HEADER_SIZE, extraLength );
+    int done = HEADER_SIZE + extraLength;
+    if ( !readFully( in, block, done, blockSize - done ) ) {
+      throw new IOException( "Unexpected end of a BGZF block" );
+    }
+    return block;
+  }
+
+  @Override
+  protected byte[] decompress( byte[] block ) throws IOException {
+    int flags = block[3];
+    int start = HEADER_SIZE + getShort( block, 10 );
+    if ( ( flags & FNAME ) != 0 ) {
+      start = skipZeroTerminated( block, start );
+    }
+    if ( ( flags & FCOMMENT ) != 0 ) {
+      start = skipZeroTerminated( block, start );
+    }
+    if ( ( flags & FHCRC ) != 0 ) {
+      start += 2;
+    }
+    int end = block.length - TRAILER_SIZE;
+    if ( start > end ) {
+      throw new IOException( "Corrupt BGZF block header" );
+    }
+
+    long crc = getInt( block, end ) & 0xFFFFFFFFL;
+    int size = getInt( block, end + 4 );
+    byte[] data = new byte[size];
+    Inflater inflater = new Inflater( true );
+    try {
+      inflater.setInput( block, start, end - start );
+      int done = 0;
+      while ( done < size && !inflater.finished() ) {
+        int n = inflater.inflate( data, done, size - done );
+        if ( n == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) ) {
+          break;
+        }
+        done += n;
+      }
+      if ( done != size ) {
+        throw new IOException( "BGZF block size mismatch" );
+      }
+    } catch ( DataFormatException e ) {
+      throw new IOException( "Corrupt BGZF block", e );
+    } finally {
+      inflater.end();
+    }
+
+    CRC32 checksum = new CRC32();
+    checksum.update( data, 0, size );
+    if ( checksum.getValue() != crc ) {
+      throw new IOException( "BGZF block CRC mismatch" );
+    }
+    return data;
+  }
+
+  private static boolean isGzipHeader( byte[] header ) {
+    return ( header[0] & 0xFF ) == ID1 && ( header[1] & 0xFF ) == ID2 && header[2] == CM_DEFLATE;
+  }
+
+  /**
+   * @return the total size of the block from the BC subfield, or -1 if there is none
+   */
+  private static int findBlockSize( byte[] extra, int from, int to ) {
+    int i = from;
+    while ( i + 4 <= to ) {
+      int length = getShort( extra, i + 2 );
+      if ( extra[i] == 'B' && extra[i + 1] == 'C' && length == 2 && i + 6 <= to ) {
+        return getShort( extra, i + 4 ) + 1;
+      }
+      i += 4 + length;
+    }
+    return -1;
+  }
+
+  private static int skipZeroTerminated( byte[] block, int from ) {
+    int i = from;
+    while ( i < block.length && block[i] != 0 ) {
+      i++;
+    }
+    return i + 1;
+  }
+
+  private static int getShort( byte[] b, int off ) {
+    return ( b[off] & 0xFF ) | ( b[off + 1] & 0xFF ) << 8;
+  }
+
+  private static int getInt( byte[] b, int off ) {
+    return getShort( b, off ) | getShort( b, off + 2 ) << 16;
+  }
+}
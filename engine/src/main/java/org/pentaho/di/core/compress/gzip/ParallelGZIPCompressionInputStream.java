@@ -0,0 +1,59 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.gzip;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.pentaho.di.core.compress.BlockDecompressionInputStream;
+import org.pentaho.di.core.compress.CompressionInputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+/**
+ * Reads a gzip file with the number of threads of the KETTLE_DECOMPRESSION_THREADS variable.
+ *
+ * @since 10.3
+ */
+public class ParallelGZIPCompressionInputStream extends CompressionInputStream {
+
+  public ParallelGZIPCompressionInputStream( InputStream in, CompressionProvider provider ) throws IOException {
+    super( open( in, BlockDecompressionInputStream.getDecompressionThreads() ), provider );
+  }
+
+  /**
+   * Open a gzip stream. BGZF files are decompressed by the given number of threads, other gzip files are inflated ahead
+   * of the reader by a thread of their own. With a single thread the file is read with a {@link GZIPInputStream}.
+   */
+  public static InputStream open( InputStream in, int threads ) throws IOException {
+    if ( threads <= 1 ) {
+      return new GZIPInputStream( in );
+    }
+    InputStream markable = in.markSupported() ? in : new BufferedInputStream( in );
+    if ( BGZFInputStream.isBGZF( markable ) ) {
+      return new BGZFInputStream( markable, threads );
+    }
+    return new ReadAheadGZIPInputStream( markable );
+  }
+}
@@ -0,0 +1,72 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.gzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.pentaho.di.core.compress.CompressionProvider;
+
+/**
+ * Reads gzip files with a number of threads, see {@link ParallelGZIPCompressionInputStream}. Writes plain gzip files.
+ *
+ * @since 10.3
+ */
+public class ParallelGZIPCompressionProvider implements CompressionProvider {
+
+  @Override
+  public ParallelGZIPCompressionInputStream createInputStream( InputStream in ) throws IOException {
+    return new ParallelGZIPCompressionInputStream( in, this );
+  }
+
+  @Override
+  public boolean supportsInput() {
+    return true;
+  }
+
+  @Override
+  public GZIPCompressionOutputStream createOutputStream( OutputStream out ) throws IOException {
+    return new GZIPCompressionOutputStream( out, this );
+  }
+
+  @Override
+  public boolean supportsOutput() {
+    return true;
+  }
+
+  @Override
+  public String getDescription() {
+    return "GZIP compression, BGZF files decompressed in parallel";
+  }
+
+  @Override
+  public String getName() {
+    return "Parallel GZip";
+  }
+
+  @Override
+  public String getDefaultExtension() {
+    return "gz";
+  }
+}
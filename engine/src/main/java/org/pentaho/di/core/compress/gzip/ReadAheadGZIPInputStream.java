@@ -0,0 +1,78 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.gzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import org.pentaho.di.core.compress.BlockDecompressionInputStream;
+
+/**
+ * Inflates a gzip file on a thread of its own, ahead of the reader.<br>
+ * The members of a plain gzip file don't store their compressed size, so they can't be split off without inflating
+ * them: the file is inflated by one thread while the step parses the previous blocks.
+ *
+ * @since 10.3
+ */
+public class ReadAheadGZIPInputStream extends BlockDecompressionInputStream {
+  private static final int BLOCK_SIZE = 1024 * 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Blocks inflated ahead of the reader: twice this number */
+  private static final int READ_AHEAD = 2;
+
+  public ReadAheadGZIPInputStream( InputStream in ) throws IOException {
+    super( new GZIPInputStream( in, BUFFER_SIZE ), READ_AHEAD );
+  }
+
+  @Override
+  protected byte[] readBlock() throws IOException {
+    byte[] block = new byte[BLOCK_SIZE];
+    int done = 0;
+    while ( done < BLOCK_SIZE ) {
+      int n = in.read( block, done, BLOCK_SIZE - done );
+      if ( n < 0 ) {
+        break;
+      }
+      done += n;
+    }
+    if ( done == 0 ) {
+      return null;
+    }
+    return done == BLOCK_SIZE ? block : Arrays.copyOf( block, done );
+  }
+
+  @Override
+  protected byte[] decompress( byte[] block ) {
+    return block;
+  }
+
+  @Override
+  protected Future<byte[]> decompressAsync( byte[] block ) {
+    return CompletableFuture.completedFuture( block );
+  }
+}
@@ -0,0 +1,51 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.zstd;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.pentaho.di.core.compress.BlockDecompressionInputStream;
+import org.pentaho.di.core.compress.CompressionInputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+/**
+ * Reads a zstd file, decompressing its frames with the number of threads of the KETTLE_DECOMPRESSION_THREADS variable.
+ *
+ * @since 10.3
+ */
+public class ZstdCompressionInputStream extends CompressionInputStream {
+
+  public ZstdCompressionInputStream( InputStream in, CompressionProvider provider ) throws IOException {
+    super( open( in, BlockDecompressionInputStream.getDecompressionThreads() ), provider );
+  }
+
+  protected static InputStream open( InputStream in, int threads ) throws IOException {
+    ZstdCompressionProvider.checkAvailable();
+    if ( threads <= 1 ) {
+      return new ZstdCompressorInputStream( in );
+    }
+    return new ZstdFrameInputStream( in, threads );
+  }
+}
@@ -0,0 +1,45 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.zstd;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+import org.pentaho.di.core.compress.CompressionOutputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+/**
+ * @since 10.3
+ */
+public class ZstdCompressionOutputStream extends CompressionOutputStream {
+
+  public ZstdCompressionOutputStream( OutputStream out, CompressionProvider provider ) throws IOException {
+    super( getDelegate( out ), provider );
+  }
+
+  protected static OutputStream getDelegate( OutputStream out ) throws IOException {
+    ZstdCompressionProvider.checkAvailable();
+    return new ZstdCompressorOutputStream( out );
+  }
+}
@@ -0,0 +1,80 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.zstd;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.compress.compressors.zstandard.ZstdUtils;
+import org.pentaho.di.core.compress.CompressionProvider;
+
+/**
+ * Zstandard compression through commons-compress. Needs the zstd-jni library on the classpath, which isn't shipped
+ * with Kettle.
+ *
+ * @since 10.3
+ */
+public class ZstdCompressionProvider implements CompressionProvider {
+
+  @Override
+  public ZstdCompressionInputStream createInputStream( InputStream in ) throws IOException {
+    return new ZstdCompressionInputStream( in, this );
+  }
+
+  @Override
+  public boolean supportsInput() {
+    return true;
+  }
+
+  @Override
+  public ZstdCompressionOutputStream createOutputStream( OutputStream out ) throws IOException {
+    return new ZstdCompressionOutputStream( out, this );
+  }
+
+  @Override
+  public boolean supportsOutput() {
+    return ZstdUtils.isZstdCompressionAvailable();
+  }
+
+  @Override
+  public String getDescription() {
+    return "Zstandard compression";
+  }
+
+  @Override
+  public String getName() {
+    return "Zstd";
+  }
+
+  @Override
+  public String getDefaultExtension() {
+    return "zst";
+  }
+
+  static void checkAvailable() throws IOException {
+    if ( !ZstdUtils.isZstdCompressionAvailable() ) {
+      throw new IOException( "Zstandard compression needs the zstd-jni library" );
+    }
+  }
+}
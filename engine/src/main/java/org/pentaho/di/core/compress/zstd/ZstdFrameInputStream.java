@@ -0,0 +1,149 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.zstd;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.pentaho.di.core.compress.BlockDecompressionInputStream;
+
+/**
+ * Decompresses the frames of a zstd file with a number of threads.<br>
+ * The frames are split off by walking their block headers, without decoding them. A file written as a single frame is
+ * decompressed by one thread, ahead of the reader.
+ *
+ * @since 10.3
+ */
+public class ZstdFrameInputStream extends BlockDecompressionInputStream {
+  private static final int FRAME_MAGIC = 0xFD2FB528;
+  private static final int SKIPPABLE_MAGIC = 0x184D2A50;
+  private static final int SKIPPABLE_MAGIC_MASK = 0xFFFFFFF0;
+
+  private static final int[] DICTIONARY_ID_SIZES = { 0, 1, 2, 4 };
+
+  private static final int BLOCK_HEADER_SIZE = 3;
+  private static final int BLOCK_TYPE_RLE = 1;
+  private static final int BLOCK_TYPE_RESERVED = 3;
+  private static final int CHECKSUM_SIZE = 4;
+
+  public ZstdFrameInputStream( InputStream in, int threads ) {
+    super( in, threads );
+  }
+
+  @Override
+  protected byte[] readBlock() throws IOException {
+    byte[] word = new byte[4];
+    while ( true ) {
+      if ( !readFully( in, word, 0, 4 ) ) {
+        return null;
+      }
+      int magic = getInt( word, 0 );
+      if ( magic == FRAME_MAGIC ) {
+        return readFrame( word );
+      }
+      if ( ( magic & SKIPPABLE_MAGIC_MASK ) != SKIPPABLE_MAGIC ) {
+        throw new IOException( "Not a zstd frame" );
+      }
+      if ( !readFully( in, word, 0, 4 ) ) {
+        throw new IOException( "Unexpected end of a skippable zstd frame" );
+      }
+      skipFully( getInt( word, 0 ) & 0xFFFFFFFFL );
+    }
+  }
+
+  private byte[] readFrame( byte[] magic ) throws IOException {
+    ByteArrayOutputStream frame = new ByteArrayOutputStream();
+    frame.write( magic, 0, 4 );
+
+    int descriptor = copy( frame, 1 )[0] & 0xFF;
+    int contentSizeFlag = descriptor >>> 6;
+    boolean singleSegment = ( descriptor & 0x20 ) != 0;
+    boolean checksum = ( descriptor & 0x04 ) != 0;
+    int contentSizeSize = contentSizeFlag == 0 ? ( singleSegment ? 1 : 0 ) : 1 << contentSizeFlag;
+    copy( frame, ( singleSegment ? 0 : 1 ) + DICTIONARY_ID_SIZES[descriptor & 0x03] + contentSizeSize );
+
+    boolean last = false;
+    while ( !last ) {
+      byte[] header = copy( frame, BLOCK_HEADER_SIZE );
+      int blockHeader = ( header[0] & 0xFF ) | ( header[1] & 0xFF ) << 8 | ( header[2] & 0xFF ) << 16;
+      last = ( blockHeader & 1 ) != 0;
+      int type = ( blockHeader >>> 1 ) & 0x03;
+      if ( type == BLOCK_TYPE_RESERVED ) {
+        throw new IOException( "Corrupt zstd block header" );
+      }
+      copy( frame, type == BLOCK_TYPE_RLE ? 1 : blockHeader >>> 3 );
+    }
+    if ( checksum ) {
+      copy( frame, CHECKSUM_SIZE );
+    }
+    return frame.toByteArray();
+  }
+
+  @Override
+  protected byte[] decompress( byte[] frame ) throws IOException {
+    ByteArrayOutputStream data = new ByteArrayOutputStream( frame.length * 4 );
+    try ( InputStream zin = new ZstdCompressorInputStream( new ByteArrayInputStream( frame ) ) ) {
+      byte[] buffer = new byte[64 * 1024];
+      int n;
+      while ( ( n = zin.read( buffer ) ) >= 0 ) {
+        data.write( buffer, 0, n );
+      }
+    }
+    return data.toByteArray();
+  }
+
+  /**
+   * Copy length bytes of the stream to the frame.
+   *
+   * @return the bytes copied
+   */
+  private byte[] copy( ByteArrayOutputStream frame, int length ) throws IOException {
+    byte[] bytes = new byte[length];
+    if ( length > 0 && !readFully( in, bytes, 0, length ) ) {
+      throw new IOException( "Unexpected end of a zstd frame" );
+    }
+    frame.write( bytes, 0, length );
+    return bytes;
+  }
+
+  private void skipFully( long length ) throws IOException {
+    long remaining = length;
+    while ( remaining > 0 ) {
+      long n = in.skip( remaining );
+      if ( n <= 0 ) {
+        if ( in.read() < 0 ) {
+          throw new IOException( "Unexpected end of a skippable zstd frame" );
+        }
+        n = 1;
+      }
+      remaining -= n;
+    }
+  }
+
+  private static int getInt( byte[] b, int off ) {
+    return ( b[off] & 0xFF ) | ( b[off + 1] & 0xFF ) << 8 | ( b[off + 2] & 0xFF ) << 16 | ( b[off + 3] & 0xFF ) << 24;
+  }
+}
@@ -289,8 +289,8 @@ public class Kitchen {
 
     } finally {
       if ( fileAppender != null ) {
-        fileAppender.close();
         KettleLogStore.getAppender().removeLoggingEventListener( fileAppender );
+        fileAppender.close();
       }
     }
 
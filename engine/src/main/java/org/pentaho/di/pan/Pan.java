@@ -299,13 +299,13 @@ public class Pan {
     // Let's not forget to close the log file we're writing to...
     //
     if ( fileLoggingEventListener != null ) {
+      KettleLogStore.getAppender().removeLoggingEventListener( fileLoggingEventListener );
       try {
         fileLoggingEventListener.close();
       } catch ( Exception e ) {
         e.printStackTrace( System.err );
         status = 1;
       }
-      KettleLogStore.getAppender().removeLoggingEventListener( fileLoggingEventListener );
     }
 
     System.exit( status );
@@ -784,6 +784,8 @@ public class KettleDatabaseRepositoryTransDelegate extends KettleDatabaseReposit
           transMeta.getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_FEEDBACK_SIZE ) );
         transMeta.setUsingThreadPriorityManagment( !"N".equalsIgnoreCase( getTransAttributeString( transMeta
           .getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_USING_THREAD_PRIORITIES ) ) );
+        transMeta.setUsingVirtualThreads( "Y".equalsIgnoreCase( getTransAttributeString( transMeta
+          .getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_USING_VIRTUAL_THREADS ) ) );
 
         // Performance monitoring for steps...
         //
@@ -1354,6 +1356,9 @@ public class KettleDatabaseRepositoryTransDelegate extends KettleDatabaseReposit
     repository.connectionDelegate.insertTransAttribute(
       transMeta.getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_USING_THREAD_PRIORITIES, 0, transMeta
         .isUsingThreadPriorityManagment() ? "Y" : "N" );
+    repository.connectionDelegate.insertTransAttribute(
+      transMeta.getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_USING_VIRTUAL_THREADS, 0, transMeta
+        .isUsingVirtualThreads() ? "Y" : "N" );
     repository.connectionDelegate.insertTransAttribute(
       transMeta.getObjectId(), 0, KettleDatabaseRepository.TRANS_ATTRIBUTE_SHARED_FILE, 0, transMeta
         .getSharedObjectsFile() );
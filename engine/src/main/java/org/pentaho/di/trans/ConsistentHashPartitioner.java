@@ -0,0 +1,179 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.w3c.dom.Node;
+
+/**
+ * Partitions rows on a hash ring. Every partition is placed on the ring a number of times (virtual nodes) at the hash
+ * of its partition ID, and a key goes to the first partition following its own hash.<br>
+ * Unlike the {@link ModPartitioner}, adding a partition to the schema only moves the keys taken over by the new
+ * partition, about 1/n of them, instead of nearly all keys.
+ *
+ * @since 10.3
+ */
+public class ConsistentHashPartitioner extends FieldPartitioner {
+
+  public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+  private int virtualNodes = DEFAULT_VIRTUAL_NODES;
+
+  private volatile Ring ring;
+
+  public ConsistentHashPartitioner() {
+    super();
+  }
+
+  public Partitioner getInstance() {
+    Partitioner partitioner = new ConsistentHashPartitioner();
+    partitioner.setId( getId() );
+    partitioner.setDescription( getDescription() );
+    return partitioner;
+  }
+
+  public ConsistentHashPartitioner clone() {
+    ConsistentHashPartitioner partitioner = (ConsistentHashPartitioner) super.clone();
+    partitioner.virtualNodes = virtualNodes;
+
+    return partitioner;
+  }
+
+  public String getDialogClassName() {
+    return "org.pentaho.di.ui.trans.dialog.ConsistentHashPartitionerDialog";
+  }
+
+  public int getPartition( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
+    Ring currentRing = ring;
+    if ( currentRing == null ) {
+      init( rowMeta );
+      currentRing = ring = new Ring( getPartitionIDs(), virtualNodes );
+    }
+
+    int index = getPartitionColumnIndex( rowMeta );
+    long hash = PartitionKeyHasher.hash( rowMeta.getValueMeta( index ), row[index] );
+
+    return currentRing.getPartition( hash );
+  }
+
+  private String[] getPartitionIDs() {
+    String[] partitionIDs = new String[nrPartitions];
+    List<String> schemaIDs = meta == null || meta.getPartitionSchema() == null
+      ? null : meta.getPartitionSchema().getPartitionIDs();
+    for ( int i = 0; i < nrPartitions; i++ ) {
+      partitionIDs[i] = schemaIDs != null && i < schemaIDs.size() ? schemaIDs.get( i ) : "P" + i;
+    }
+    return partitionIDs;
+  }
+
+  public String getDescription() {
+    return getDescription( "Consistent hash partitioner" );
+  }
+
+  public String getXML() {
+    StringBuilder xml = new StringBuilder( 150 );
+    xml.append( super.getXML() );
+    xml.append( "           " ).append( XMLHandler.addTagValue( "virtual_nodes", virtualNodes ) );
+    return xml.toString();
+  }
+
+  public void loadXML( Node partitioningMethodNode ) throws KettleXMLException {
+    super.loadXML( partitioningMethodNode );
+    virtualNodes = Const.toInt( XMLHandler.getTagValue( partitioningMethodNode, "virtual_nodes" ),
+      DEFAULT_VIRTUAL_NODES );
+  }
+
+  public void saveRep( Repository rep, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
+    super.saveRep( rep, id_transformation, id_step );
+    rep.saveStepAttribute( id_transformation, id_step, "PARTITIONING_VIRTUAL_NODES", virtualNodes );
+  }
+
+  public void loadRep( Repository rep, ObjectId id_step ) throws KettleException {
+    super.loadRep( rep, id_step );
+    virtualNodes = (int) rep.getStepAttributeInteger( id_step, "PARTITIONING_VIRTUAL_NODES" );
+    if ( virtualNodes <= 0 ) {
+      virtualNodes = DEFAULT_VIRTUAL_NODES;
+    }
+  }
+
+  public int getVirtualNodes() {
+    return virtualNodes;
+  }
+
+  public void setVirtualNodes( int virtualNodes ) {
+    this.virtualNodes = virtualNodes;
+  }
+
+  /**
+   * The sorted positions of the virtual nodes on the ring, with the partition owning each of them.
+   */
+  private static class Ring {
+    private final long[] positions;
+    private final int[] partitions;
+
+    Ring( String[] partitionIDs, int virtualNodes ) {
+      int nrNodes = partitionIDs.length * Math.max( 1, virtualNodes );
+      final long[] nodePositions = new long[nrNodes];
+      Integer[] order = new Integer[nrNodes];
+      for ( int node = 0; node < nrNodes; node++ ) {
+        int partition = node % partitionIDs.length;
+        nodePositions[node] = PartitionKeyHasher.hash( partitionIDs[partition] + "#" + node / partitionIDs.length );
+        order[node] = node;
+      }
+      Arrays.sort( order, new Comparator<Integer>() {
+        @Override
+        public int compare( Integer node1, Integer node2 ) {
+          return Long.compare( nodePositions[node1], nodePositions[node2] );
+        }
+      } );
+
+      positions = new long[nrNodes];
+      partitions = new int[nrNodes];
+      for ( int i = 0; i < nrNodes; i++ ) {
+        positions[i] = nodePositions[order[i]];
+        partitions[i] = order[i] % partitionIDs.length;
+      }
+    }
+
+    int getPartition( long hash ) {
+      int index = Arrays.binarySearch( positions, hash );
+      if ( index < 0 ) {
+        index = -index - 1;
+        if ( index == positions.length ) {
+          index = 0;
+        }
+      }
+      return partitions[index];
+    }
+  }
+}
@@ -0,0 +1,337 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.util.EnvUtil;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.trans.step.RunThread;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMetaDataCombi;
+
+/**
+ * Runs the step copies of a normal transformation as tasks on a work-stealing pool shared by all transformations,
+ * rather than giving every step copy a thread of its own. It generalizes the idea of the
+ * {@link SingleThreadedTransExecutor} to any transformation: a step copy only gets a turn when it has input rows to
+ * work on and room in its output row sets, and it gives the worker back after a limited number of rows. Whenever a step
+ * copy makes progress the steps on both sides of its row sets are woken up.<br>
+ * <br>
+ * Steps that can still block a worker, waiting for a row set that is being filled by another step for example, tell
+ * the pool so it can bring in a spare worker. Steps that bind state to their thread or wait outside of their row sets
+ * (see {@link Const#KETTLE_COOPERATIVE_DEDICATED_STEPS}) keep running on a thread of their own.
+ *
+ * @since 10.3
+ */
+public class CooperativeTransExecutor {
+
+  /** The maximum number of rows a step copy processes before it gives other step copies a turn */
+  private static final int QUANTUM = 1024;
+
+  /** How often waiting step copies are checked, catching rows or state changes nobody told us about */
+  private static final long SWEEP_INTERVAL_MS = 20;
+
+  private static final int IDLE = 0;
+  private static final int SCHEDULED = 1;
+  private static final int RUNNING = 2;
+  private static final int RUNNING_WOKEN = 3;
+  private static final int DONE = 4;
+
+  private static final Object POOL_LOCK = new Object();
+  private static volatile ForkJoinPool pool;
+  private static volatile ScheduledExecutorService sweeper;
+
+  private final int rowSetSize;
+  private final Set<String> dedicatedStepIds;
+  private final List<StepTask> tasks = new ArrayList<>();
+  private final AtomicInteger nrActiveTasks = new AtomicInteger();
+  private volatile ScheduledFuture<?> sweep;
+
+  public CooperativeTransExecutor( Trans trans ) {
+    this.rowSetSize = Math.max( 1, trans.getTransMeta().getSizeRowset() );
+    this.dedicatedStepIds = new HashSet<>();
+    String dedicated =
+      Const.NVL( trans.getVariable( Const.KETTLE_COOPERATIVE_DEDICATED_STEPS ),
+        Const.DEFAULT_COOPERATIVE_DEDICATED_STEPS );
+    for ( String stepId : dedicated.split( "," ) ) {
+      if ( !Utils.isEmpty( stepId.trim() ) ) {
+        dedicatedStepIds.add( stepId.trim() );
+      }
+    }
+  }
+
+  /**
+   * @return the worker pool shared by all transformations running with the cooperative scheduler
+   */
+  static ForkJoinPool getPool() {
+    synchronized ( POOL_LOCK ) {
+      if ( pool == null ) {
+        int size =
+          Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_COOPERATIVE_POOL_SIZE ), Runtime.getRuntime()
+            .availableProcessors() );
+        final AtomicInteger threadNr = new AtomicInteger();
+        pool = new ForkJoinPool( Math.max( 1, size ), forkJoinPool -> {
+          ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread( forkJoinPool );
+          thread.setName( "Kettle cooperative worker " + threadNr.incrementAndGet() );
+          return thread;
+        }, null, true );
+        sweeper = Executors.newSingleThreadScheduledExecutor( runnable -> {
+          Thread thread = new Thread( runnable, "Kettle cooperative scheduler" );
+          thread.setDaemon( true );
+          return thread;
+        } );
+      }
+      return pool;
+    }
+  }
+
+  /**
+   * Schedule a step copy on the shared pool. Call {@link #start()} once all step copies are added.
+   *
+   * @param combi the step copy
+   * @return true if the step copy is scheduled, false if it needs a thread of its own
+   */
+  public boolean schedule( StepMetaDataCombi combi ) {
+    if ( dedicatedStepIds.contains( combi.stepMeta.getStepID() ) ) {
+      return false;
+    }
+    tasks.add( new StepTask( combi ) );
+    return true;
+  }
+
+  /**
+   * Start running the scheduled step copies.
+   */
+  public void start() {
+    getPool();
+
+    Map<String, StepTask> taskMap = new HashMap<>();
+    for ( StepTask task : tasks ) {
+      taskMap.put( getKey( task.combi.stepname, task.combi.copy ), task );
+    }
+    for ( StepTask task : tasks ) {
+      for ( RowSet rowSet : task.combi.step.getOutputRowSets() ) {
+        task.addNeighbour( taskMap.get( getKey( rowSet.getDestinationStepName(), rowSet.getDestinationStepCopy() ) ) );
+      }
+      for ( RowSet rowSet : task.combi.step.getInputRowSets() ) {
+        task.addNeighbour( taskMap.get( getKey( rowSet.getOriginStepName(), rowSet.getOriginStepCopy() ) ) );
+      }
+    }
+
+    nrActiveTasks.set( tasks.size() );
+    if ( tasks.isEmpty() ) {
+      return;
+    }
+    sweep = sweeper.scheduleWithFixedDelay( this::wakeAll, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS );
+    wakeAll();
+  }
+
+  /**
+   * @return the number of step copies that are scheduled and haven't finished yet
+   */
+  public int getNrActiveTasks() {
+    return nrActiveTasks.get();
+  }
+
+  private void wakeAll() {
+    for ( StepTask task : tasks ) {
+      task.wake();
+    }
+  }
+
+  private void taskFinished() {
+    if ( nrActiveTasks.decrementAndGet() == 0 ) {
+      ScheduledFuture<?> future = sweep;
+      if ( future != null ) {
+        future.cancel( false );
+      }
+    }
+  }
+
+  private static String getKey( String stepname, int copy ) {
+    return stepname + "." + copy;
+  }
+
+  private final class StepTask implements Runnable {
+
+    private final StepMetaDataCombi combi;
+    private final RunThread runThread;
+    private final List<StepTask> neighbours = new ArrayList<>();
+    private final AtomicInteger state = new AtomicInteger( IDLE );
+    private boolean started;
+
+    StepTask( StepMetaDataCombi combi ) {
+      this.combi = combi;
+      this.runThread = new RunThread( combi );
+    }
+
+    void addNeighbour( StepTask task ) {
+      if ( task != null && task != this && !neighbours.contains( task ) ) {
+        neighbours.add( task );
+      }
+    }
+
+    /**
+     * Make sure the step copy gets another turn, either right away or after the turn it's having now.
+     */
+    void wake() {
+      while ( true ) {
+        int current = state.get();
+        if ( current == IDLE ) {
+          if ( state.compareAndSet( IDLE, SCHEDULED ) ) {
+            pool.execute( this );
+            return;
+          }
+        } else if ( current == RUNNING ) {
+          if ( state.compareAndSet( RUNNING, RUNNING_WOKEN ) ) {
+            return;
+          }
+        } else {
+          return;
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      state.set( RUNNING );
+
+      StepInterface step = combi.step;
+      boolean finished = false;
+      int processed = 0;
+      try {
+        if ( !started ) {
+          started = true;
+          runThread.startProcessing();
+        }
+        while ( !finished && processed < QUANTUM ) {
+          if ( step.isStopped() ) {
+            finished = true;
+            break;
+          }
+          int budget = getBudget( QUANTUM - processed );
+          if ( budget == 0 ) {
+            break;
+          }
+          while ( budget > 0 ) {
+            long linesRead = step.getLinesRead();
+            long linesWritten = step.getLinesWritten();
+            if ( !step.processRow( combi.meta, combi.data ) || step.isStopped() ) {
+              finished = true;
+              break;
+            }
+            // Charge the rows the call moved: steps working on row batches move many rows per call
+            long moved = Math.max( step.getLinesRead() - linesRead, step.getLinesWritten() - linesWritten );
+            int rows = (int) Math.min( QUANTUM, Math.max( 1L, moved ) );
+            processed += rows;
+            budget -= rows;
+          }
+        }
+      } catch ( Throwable t ) {
+        runThread.handleError( t );
+        finished = true;
+      }
+
+      if ( finished ) {
+        state.set( DONE );
+        try {
+          runThread.finishProcessing();
+        } finally {
+          wakeNeighbours();
+          taskFinished();
+        }
+        return;
+      }
+
+      if ( processed > 0 ) {
+        wakeNeighbours();
+      }
+      // Take another turn if we used up the quantum or were woken up in the meantime, go idle otherwise
+      if ( processed >= QUANTUM || !state.compareAndSet( RUNNING, IDLE ) ) {
+        state.set( SCHEDULED );
+        pool.execute( this );
+      }
+    }
+
+    /**
+     * Calculates how many rows the step copy can process without blocking: limited by the room left in its output row
+     * sets and the rows waiting in its input row sets.
+     *
+     * @param max the maximum number of rows
+     * @return the number of rows the step copy can process, 0 if the step copy isn't ready
+     */
+    private int getBudget( int max ) {
+      StepInterface step = combi.step;
+      if ( step.isPaused() ) {
+        return 0;
+      }
+
+      // Index loops: row sets can be added to these lists while we look at them
+      int budget = max;
+      List<RowSet> outputRowSets = step.getOutputRowSets();
+      for ( int i = 0; i < outputRowSets.size(); i++ ) {
+        budget = Math.min( budget, rowSetSize - outputRowSets.get( i ).size() );
+      }
+      if ( budget <= 0 ) {
+        return 0;
+      }
+
+      List<RowSet> inputRowSets = step.getInputRowSets();
+      if ( inputRowSets.isEmpty() ) {
+        return budget;
+      }
+      int available = 0;
+      boolean done = false;
+      for ( int i = 0; i < inputRowSets.size(); i++ ) {
+        RowSet rowSet = inputRowSets.get( i );
+        available += rowSet.size();
+        done |= rowSet.isDone();
+      }
+      if ( available == 0 ) {
+        // A finished input row set still needs one call to be noticed and removed
+        return done ? 1 : 0;
+      }
+      return Math.min( budget, available );
+    }
+
+    private void wakeNeighbours() {
+      for ( StepTask neighbour : neighbours ) {
+        neighbour.wake();
+      }
+    }
+  }
+}
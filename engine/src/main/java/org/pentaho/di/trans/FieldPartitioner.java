@@ -0,0 +1,114 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.w3c.dom.Node;
+
+/**
+ * Base class of the partitioners that route a row on the value of a single field. The field name is serialized like
+ * the one of the {@link ModPartitioner}.<br>
+ * The partitioner of a step is shared by all copies of the previous step, so subclasses keep their runtime state
+ * thread-safe.
+ *
+ * @since 10.3
+ */
+public abstract class FieldPartitioner extends BasePartitioner {
+
+  private String fieldName;
+  protected int partitionColumnIndex = -1;
+
+  public FieldPartitioner() {
+    super();
+  }
+
+  public FieldPartitioner clone() {
+    FieldPartitioner fieldPartitioner = (FieldPartitioner) super.clone();
+    fieldPartitioner.fieldName = fieldName;
+
+    return fieldPartitioner;
+  }
+
+  /**
+   * Look up the partitioning field in the row, once.
+   *
+   * @return the index of the partitioning field
+   * @throws KettleStepException
+   *           if the field isn't in the row
+   */
+  protected int getPartitionColumnIndex( RowMetaInterface rowMeta ) throws KettleStepException {
+    if ( partitionColumnIndex < 0 ) {
+      int index = rowMeta.indexOfValue( fieldName );
+      if ( index < 0 ) {
+        throw new KettleStepException( "Unable to find partitioning field name ["
+          + fieldName + "] in the output row..." + rowMeta );
+      }
+      partitionColumnIndex = index;
+    }
+    return partitionColumnIndex;
+  }
+
+  /**
+   * @return the description of the partitioner followed by the field name
+   */
+  protected String getDescription( String description ) {
+    if ( !Utils.isEmpty( fieldName ) ) {
+      description += "(" + fieldName + ")";
+    }
+    return description;
+  }
+
+  public String getXML() {
+    StringBuilder xml = new StringBuilder( 150 );
+    xml.append( "           " ).append( XMLHandler.addTagValue( "field_name", fieldName ) );
+    return xml.toString();
+  }
+
+  public void loadXML( Node partitioningMethodNode ) throws KettleXMLException {
+    fieldName = XMLHandler.getTagValue( partitioningMethodNode, "field_name" );
+  }
+
+  public void saveRep( Repository rep, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
+    rep.saveStepAttribute( id_transformation, id_step, "PARTITIONING_FIELDNAME", fieldName );
+  }
+
+  public void loadRep( Repository rep, ObjectId id_step ) throws KettleException {
+    fieldName = rep.getStepAttributeString( id_step, "PARTITIONING_FIELDNAME" );
+  }
+
+  public String getFieldName() {
+    return fieldName;
+  }
+
+  public void setFieldName( String fieldName ) {
+    this.fieldName = fieldName;
+  }
+
+}
@@ -0,0 +1,174 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * Fast non-cryptographic 64-bit hashing of partitioning keys, modelled after MurmurHash3.<br>
+ * Values are hashed over their binary form (the characters of a string, the bytes of a binary, the bits of a number)
+ * instead of Object.hashCode(), after conversion to normal storage so lazily converted rows are routed like converted
+ * ones.
+ *
+ * @since 10.3
+ */
+public class PartitionKeyHasher {
+
+  private static final long SEED = 0x9E3779B97F4A7C15L;
+  private static final long C1 = 0x87C37B91114253D5L;
+  private static final long C2 = 0x4CF5AD432745937FL;
+
+  /** The hash of a null key */
+  public static final long NULL_HASH = fmix64( SEED );
+
+  private PartitionKeyHasher() {
+  }
+
+  /**
+   * Hash a value of the given metadata.
+   *
+   * @param valueMeta
+   *          the metadata of the value
+   * @param value
+   *          the value, in any storage type
+   * @return the 64-bit hash of the value
+   * @throws KettleValueException
+   *           if a lazily converted value can't be converted
+   */
+  public static long hash( ValueMetaInterface valueMeta, Object value ) throws KettleValueException {
+    Object data = valueMeta.convertToNormalStorageType( value );
+    if ( data == null ) {
+      return NULL_HASH;
+    }
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_STRING:
+        return hash( (String) data );
+      case ValueMetaInterface.TYPE_INTEGER:
+        return hash( ( (Long) data ).longValue() );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return hash( Double.doubleToLongBits( ( (Double) data ).doubleValue() ) );
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return hash( ( (Boolean) data ).booleanValue() ? 1L : 0L );
+      case ValueMetaInterface.TYPE_DATE:
+        return hash( ( (Date) data ).getTime() );
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        Timestamp timestamp = (Timestamp) data;
+        return hash( timestamp.getTime() * 31L + timestamp.getNanos() );
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        // 1.0 and 1.00 are the same key
+        BigDecimal bigNumber = ( (BigDecimal) data ).stripTrailingZeros();
+        return hash( bigNumber.unscaledValue().toByteArray() ) * 31L + bigNumber.scale();
+      case ValueMetaInterface.TYPE_BINARY:
+        return hash( (byte[]) data );
+      case ValueMetaInterface.TYPE_INET:
+        return hash( ( (InetAddress) data ).getAddress() );
+      default:
+        return hash( valueMeta.getString( data ) );
+    }
+  }
+
+  /**
+   * @return the hash of a long value
+   */
+  public static long hash( long value ) {
+    return fmix64( mixBlock( SEED ^ 8L, value ) );
+  }
+
+  /**
+   * @return the hash of the characters of a string, four at a time
+   */
+  public static long hash( CharSequence string ) {
+    int length = string.length();
+    long h = SEED ^ ( length * 2L );
+    int i = 0;
+    for ( ; i + 4 <= length; i += 4 ) {
+      long block = string.charAt( i )
+        | (long) string.charAt( i + 1 ) << 16
+        | (long) string.charAt( i + 2 ) << 32
+        | (long) string.charAt( i + 3 ) << 48;
+      h = mixBlock( h, block );
+    }
+    long tail = 0L;
+    for ( int shift = 0; i < length; i++, shift += 16 ) {
+      tail |= (long) string.charAt( i ) << shift;
+    }
+    return fmix64( mixBlock( h, tail ) );
+  }
+
+  /**
+   * @return the hash of a byte array, eight bytes at a time
+   */
+  public static long hash( byte[] bytes ) {
+    int length = bytes.length;
+    long h = SEED ^ length;
+    int i = 0;
+    for ( ; i + 8 <= length; i += 8 ) {
+      long block = 0L;
+      for ( int b = 7; b >= 0; b-- ) {
+        block = ( block << 8 ) | ( bytes[i + b] & 0xFFL );
+      }
+      h = mixBlock( h, block );
+    }
+    long tail = 0L;
+    for ( int shift = 0; i < length; i++, shift += 8 ) {
+      tail |= ( bytes[i] & 0xFFL ) << shift;
+    }
+    return fmix64( mixBlock( h, tail ) );
+  }
+
+  /**
+   * Map a hash uniformly to a partition without a division.
+   *
+   * @param hash
+   *          the hash of a key
+   * @param nrPartitions
+   *          the number of partitions
+   * @return a partition between 0 and nrPartitions-1
+   */
+  public static int toPartition( long hash, int nrPartitions ) {
+    return (int) ( ( ( hash >>> 32 ) * nrPartitions ) >>> 32 );
+  }
+
+  private static long mixBlock( long h, long block ) {
+    block *= C1;
+    block = Long.rotateLeft( block, 31 );
+    block *= C2;
+    h ^= block;
+    return Long.rotateLeft( h, 27 ) * 5 + 0x52DCE729L;
+  }
+
+  private static long fmix64( long h ) {
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -0,0 +1,243 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaFactory;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.w3c.dom.Node;
+
+/**
+ * Partitions rows on ranges of the field value. The n-1 boundaries split the values in n ranges: partition p receives
+ * the values from boundary p-1 (inclusive) up to boundary p (exclusive), nulls go to the first partition.<br>
+ * Every partition holds a contiguous range of keys, so once each partition is sorted, reading the partitions in order
+ * gives the sorted data set and a Sorted Merge doesn't need to interleave them.<br>
+ * The boundaries are typically sampled from the data with {@link #sampleBoundaries(ValueMetaInterface, List, int)}.
+ *
+ * @since 10.3
+ */
+public class RangePartitioner extends FieldPartitioner {
+
+  private String[] boundaries = new String[0];
+
+  private volatile Ranges ranges;
+
+  public RangePartitioner() {
+    super();
+  }
+
+  public Partitioner getInstance() {
+    Partitioner partitioner = new RangePartitioner();
+    partitioner.setId( getId() );
+    partitioner.setDescription( getDescription() );
+    return partitioner;
+  }
+
+  public RangePartitioner clone() {
+    RangePartitioner partitioner = (RangePartitioner) super.clone();
+    partitioner.boundaries = boundaries.clone();
+
+    return partitioner;
+  }
+
+  public String getDialogClassName() {
+    return "org.pentaho.di.ui.trans.dialog.RangePartitionerDialog";
+  }
+
+  public int getPartition( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
+    int index = getPartitionColumnIndex( rowMeta );
+    ValueMetaInterface valueMeta = rowMeta.getValueMeta( index );
+
+    Ranges currentRanges = ranges;
+    if ( currentRanges == null ) {
+      init( rowMeta );
+      if ( boundaries.length >= nrPartitions ) {
+        throw new KettleStepException( "The range partitioner on field [" + getFieldName() + "] has "
+          + boundaries.length + " boundaries for " + nrPartitions + " partitions, specify at most "
+          + ( nrPartitions - 1 ) );
+      }
+      currentRanges = ranges = new Ranges( valueMeta, boundaries );
+    }
+
+    return currentRanges.getPartition( valueMeta.convertToNormalStorageType( row[index] ) );
+  }
+
+  /**
+   * Determine the boundaries splitting a sample of values in ranges of about the same size.
+   *
+   * @param valueMeta
+   *          the metadata of the sampled values
+   * @param sample
+   *          the sampled values, in any storage type
+   * @param nrPartitions
+   *          the number of partitions
+   * @return at most nrPartitions-1 distinct boundaries in ascending order, formatted with the value metadata
+   * @throws KettleValueException
+   *           if a value can't be converted
+   */
+  public static String[] sampleBoundaries( final ValueMetaInterface valueMeta, List<Object> sample, int nrPartitions )
+    throws KettleValueException {
+    List<Object> values = new ArrayList<>( sample.size() );
+    for ( Object value : sample ) {
+      Object data = valueMeta.convertToNormalStorageType( value );
+      if ( data != null ) {
+        values.add( data );
+      }
+    }
+
+    final ValueMetaInterface keyMeta = toNormalStorage( valueMeta );
+    try {
+      Collections.sort( values, new Comparator<Object>() {
+        @Override
+        public int compare( Object value1, Object value2 ) {
+          try {
+            return keyMeta.compare( value1, value2 );
+          } catch ( KettleValueException e ) {
+            throw new IllegalArgumentException( e );
+          }
+        }
+      } );
+    } catch ( IllegalArgumentException e ) {
+      throw (KettleValueException) e.getCause();
+    }
+
+    List<String> boundaries = new ArrayList<>();
+    Object previous = null;
+    for ( int p = 1; p < nrPartitions && !values.isEmpty(); p++ ) {
+      Object boundary = values.get( (int) ( (long) p * values.size() / nrPartitions ) );
+      // A value frequent enough to span several ranges ends up in one partition
+      if ( previous == null || keyMeta.compare( previous, boundary ) < 0 ) {
+        boundaries.add( keyMeta.getString( boundary ) );
+        previous = boundary;
+      }
+    }
+    return boundaries.toArray( new String[boundaries.size()] );
+  }
+
+  private static ValueMetaInterface toNormalStorage( ValueMetaInterface valueMeta ) {
+    ValueMetaInterface keyMeta = valueMeta.clone();
+    keyMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+    keyMeta.setStorageMetadata( null );
+    return keyMeta;
+  }
+
+  public String getDescription() {
+    return getDescription( "Range partitioner" );
+  }
+
+  public String getXML() {
+    StringBuilder xml = new StringBuilder( 150 );
+    xml.append( super.getXML() );
+    xml.append( "           " ).append( XMLHandler.openTag( "boundaries" ) );
+    for ( String boundary : boundaries ) {
+      xml.append( XMLHandler.addTagValue( "boundary", boundary, false ) );
+    }
+    xml.append( XMLHandler.closeTag( "boundaries" ) ).append( Const.CR );
+    return xml.toString();
+  }
+
+  public void loadXML( Node partitioningMethodNode ) throws KettleXMLException {
+    super.loadXML( partitioningMethodNode );
+    Node boundariesNode = XMLHandler.getSubNode( partitioningMethodNode, "boundaries" );
+    List<Node> boundaryNodes = XMLHandler.getNodes( boundariesNode, "boundary" );
+    boundaries = new String[boundaryNodes.size()];
+    for ( int i = 0; i < boundaries.length; i++ ) {
+      boundaries[i] = XMLHandler.getNodeValue( boundaryNodes.get( i ) );
+    }
+  }
+
+  public void saveRep( Repository rep, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
+    super.saveRep( rep, id_transformation, id_step );
+    for ( int i = 0; i < boundaries.length; i++ ) {
+      rep.saveStepAttribute( id_transformation, id_step, i, "PARTITIONING_BOUNDARY", boundaries[i] );
+    }
+  }
+
+  public void loadRep( Repository rep, ObjectId id_step ) throws KettleException {
+    super.loadRep( rep, id_step );
+    int nrBoundaries = rep.countNrStepAttributes( id_step, "PARTITIONING_BOUNDARY" );
+    boundaries = new String[nrBoundaries];
+    for ( int i = 0; i < nrBoundaries; i++ ) {
+      boundaries[i] = rep.getStepAttributeString( id_step, i, "PARTITIONING_BOUNDARY" );
+    }
+  }
+
+  public String[] getBoundaries() {
+    return boundaries;
+  }
+
+  public void setBoundaries( String[] boundaries ) {
+    this.boundaries = boundaries == null ? new String[0] : boundaries;
+  }
+
+  /**
+   * The boundaries converted to the type of the partitioning field.
+   */
+  private static class Ranges {
+    private final ValueMetaInterface keyMeta;
+    private final Object[] upperBounds;
+
+    Ranges( ValueMetaInterface valueMeta, String[] boundaries ) throws KettleException {
+      keyMeta = toNormalStorage( valueMeta );
+      ValueMetaInterface stringMeta = ValueMetaFactory.cloneValueMeta( keyMeta, ValueMetaInterface.TYPE_STRING );
+      upperBounds = new Object[boundaries.length];
+      for ( int i = 0; i < boundaries.length; i++ ) {
+        upperBounds[i] = keyMeta.convertData( stringMeta, boundaries[i] );
+        if ( upperBounds[i] == null || i > 0 && keyMeta.compare( upperBounds[i - 1], upperBounds[i] ) >= 0 ) {
+          throw new KettleStepException( "The range partitioning boundaries of field [" + valueMeta.getName()
+            + "] need to be distinct non-empty values in ascending order, found [" + boundaries[i] + "]" );
+        }
+      }
+    }
+
+    /**
+     * @return the number of boundaries smaller than or equal to the value
+     */
+    int getPartition( Object value ) throws KettleValueException {
+      int low = 0;
+      int high = upperBounds.length;
+      while ( low < high ) {
+        int middle = ( low + high ) >>> 1;
+        if ( keyMeta.compare( value, upperBounds[middle] ) < 0 ) {
+          high = middle;
+        } else {
+          low = middle + 1;
+        }
+      }
+      return low;
+    }
+  }
+}
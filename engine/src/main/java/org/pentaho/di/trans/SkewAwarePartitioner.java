@@ -0,0 +1,180 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.w3c.dom.Node;
+
+/**
+ * Hash partitioner that spreads hot keys. The frequency of every key is estimated with a count-min sketch, and once a
+ * key accounts for more than the hot key percentage of the rows, its rows are distributed round robin over a number of
+ * partitions starting at its own partition.<br>
+ * Rows with a hot key no longer all end up in the same partition, so this partitioner only fits steps which combine
+ * their results per key afterwards, like a partial aggregation followed by a final Group By.
+ *
+ * @since 10.3
+ */
+public class SkewAwarePartitioner extends FieldPartitioner {
+
+  public static final int DEFAULT_HOT_KEY_PERCENTAGE = 5;
+
+  /** The number of rows to see before keys are considered hot */
+  static final long MIN_ROWS = 1000L;
+
+  private static final int SKETCH_DEPTH = 4;
+  private static final int SKETCH_WIDTH = 4096;
+
+  private int hotKeyPercentage = DEFAULT_HOT_KEY_PERCENTAGE;
+  private int hotKeySpread;
+
+  private volatile Sketch sketch;
+
+  public SkewAwarePartitioner() {
+    super();
+  }
+
+  public Partitioner getInstance() {
+    Partitioner partitioner = new SkewAwarePartitioner();
+    partitioner.setId( getId() );
+    partitioner.setDescription( getDescription() );
+    return partitioner;
+  }
+
+  public SkewAwarePartitioner clone() {
+    SkewAwarePartitioner partitioner = (SkewAwarePartitioner) super.clone();
+    partitioner.hotKeyPercentage = hotKeyPercentage;
+    partitioner.hotKeySpread = hotKeySpread;
+
+    return partitioner;
+  }
+
+  public String getDialogClassName() {
+    return "org.pentaho.di.ui.trans.dialog.SkewAwarePartitionerDialog";
+  }
+
+  public int getPartition( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
+    Sketch currentSketch = sketch;
+    if ( currentSketch == null ) {
+      init( rowMeta );
+      currentSketch = sketch = new Sketch();
+    }
+
+    int index = getPartitionColumnIndex( rowMeta );
+    long hash = PartitionKeyHasher.hash( rowMeta.getValueMeta( index ), row[index] );
+    int partition = PartitionKeyHasher.toPartition( hash, nrPartitions );
+
+    long nrRows = currentSketch.nrRows.incrementAndGet();
+    long frequency = currentSketch.add( hash );
+    if ( nrRows >= MIN_ROWS && frequency * 100L > nrRows * hotKeyPercentage ) {
+      int spread = hotKeySpread <= 0 || hotKeySpread > nrPartitions ? nrPartitions : hotKeySpread;
+      partition = (int) ( ( partition + currentSketch.nrHotRows.getAndIncrement() % spread ) % nrPartitions );
+    }
+    return partition;
+  }
+
+  public String getDescription() {
+    return getDescription( "Skew-aware partitioner" );
+  }
+
+  public String getXML() {
+    StringBuilder xml = new StringBuilder( 150 );
+    xml.append( super.getXML() );
+    xml.append( "           " ).append( XMLHandler.addTagValue( "hot_key_percentage", hotKeyPercentage ) );
+    xml.append( "           " ).append( XMLHandler.addTagValue( "hot_key_spread", hotKeySpread ) );
+    return xml.toString();
+  }
+
+  public void loadXML( Node partitioningMethodNode ) throws KettleXMLException {
+    super.loadXML( partitioningMethodNode );
+    hotKeyPercentage = Const.toInt( XMLHandler.getTagValue( partitioningMethodNode, "hot_key_percentage" ),
+      DEFAULT_HOT_KEY_PERCENTAGE );
+    hotKeySpread = Const.toInt( XMLHandler.getTagValue( partitioningMethodNode, "hot_key_spread" ), 0 );
+  }
+
+  public void saveRep( Repository rep, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
+    super.saveRep( rep, id_transformation, id_step );
+    rep.saveStepAttribute( id_transformation, id_step, "PARTITIONING_HOT_KEY_PERCENTAGE", hotKeyPercentage );
+    rep.saveStepAttribute( id_transformation, id_step, "PARTITIONING_HOT_KEY_SPREAD", hotKeySpread );
+  }
+
+  public void loadRep( Repository rep, ObjectId id_step ) throws KettleException {
+    super.loadRep( rep, id_step );
+    hotKeyPercentage = (int) rep.getStepAttributeInteger( id_step, "PARTITIONING_HOT_KEY_PERCENTAGE" );
+    if ( hotKeyPercentage <= 0 ) {
+      hotKeyPercentage = DEFAULT_HOT_KEY_PERCENTAGE;
+    }
+    hotKeySpread = (int) rep.getStepAttributeInteger( id_step, "PARTITIONING_HOT_KEY_SPREAD" );
+  }
+
+  /**
+   * @return the percentage of the rows above which a key is hot
+   */
+  public int getHotKeyPercentage() {
+    return hotKeyPercentage;
+  }
+
+  public void setHotKeyPercentage( int hotKeyPercentage ) {
+    this.hotKeyPercentage = hotKeyPercentage;
+  }
+
+  /**
+   * @return the number of partitions the rows of a hot key are spread over, 0 for all partitions
+   */
+  public int getHotKeySpread() {
+    return hotKeySpread;
+  }
+
+  public void setHotKeySpread( int hotKeySpread ) {
+    this.hotKeySpread = hotKeySpread;
+  }
+
+  /**
+   * Count-min sketch of the key hashes, shared by the threads of all copies of the previous step.
+   */
+  private static class Sketch {
+    private final AtomicLong nrRows = new AtomicLong();
+    private final AtomicLong nrHotRows = new AtomicLong();
+    private final AtomicLongArray counters = new AtomicLongArray( SKETCH_DEPTH * SKETCH_WIDTH );
+
+    /**
+     * @return the estimated number of occurrences of the key, including this one
+     */
+    long add( long hash ) {
+      long frequency = Long.MAX_VALUE;
+      for ( int row = 0; row < SKETCH_DEPTH; row++ ) {
+        int column = (int) ( hash >>> ( row * 16 ) ) & ( SKETCH_WIDTH - 1 );
+        frequency = Math.min( frequency, counters.incrementAndGet( row * SKETCH_WIDTH + column ) );
+      }
+      return frequency;
+    }
+  }
+}
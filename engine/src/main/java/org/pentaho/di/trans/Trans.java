@@ -48,6 +48,8 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -64,6 +66,7 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.database.ConnectionPoolUtil;
 import org.pentaho.di.core.util.ConnectionUtil;
 import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.util.VirtualThreadUtil;
 import org.pentaho.di.core.Counter;
 import org.pentaho.di.core.ExecutorInterface;
 import org.pentaho.di.core.ExtensionDataInterface;
@@ -74,6 +77,7 @@ import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.SingleRowRowSet;
+import org.pentaho.di.core.SpscRowSet;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.database.DatabaseTransactionListener;
@@ -133,6 +137,7 @@ import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
 import org.pentaho.di.trans.step.RunThread;
 import org.pentaho.di.trans.step.StepAdapter;
+import org.pentaho.di.trans.step.StepCounters;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInitThread;
 import org.pentaho.di.trans.step.StepInterface;
@@ -387,6 +392,16 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   private boolean safeModeEnabled;
 
+  /**
+   * Whether the step copies run on virtual threads, in addition to the transformation setting.
+   */
+  private boolean usingVirtualThreads;
+
+  /**
+   * Whether the step copies run as tasks on the shared cooperative scheduler.
+   */
+  private boolean usingCooperativeScheduler;
+
   /**
    * The thread name.
    */
@@ -403,6 +418,13 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   private AtomicInteger status;
 
+  /**
+   * Steps that wait for the transformation to start running wait on this condition. This is a lock rather than a
+   * monitor so waiting virtual threads don't pin their carrier thread.
+   */
+  private final ReentrantLock runningLock = new ReentrantLock();
+  private final Condition runningCondition = runningLock.newCondition();
+
   /**
    * <p>This enum stores bit masks which are used to manipulate with
    * statuses over field {@link Trans#status}
@@ -946,18 +968,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
             RowSet rowSet;
             switch ( transMeta.getTransformationType() ) {
               case Normal:
-                // This is a temporary patch until the batching rowset has proven
-                // to be working in all situations.
-                // Currently there are stalling problems when dealing with small
-                // amounts of rows.
-                //
-                Boolean batchingRowSet =
-                  ValueMetaString.convertStringToBoolean( System.getProperty( Const.KETTLE_BATCHING_ROWSET ) );
-                if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
-                  rowSet = new BlockingBatchingRowSet( transMeta.getSizeRowset() );
-                } else {
-                  rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
-                }
+                rowSet = createHopRowSet();
                 break;
 
               case SerialSingleThreaded:
@@ -1002,7 +1013,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
           // distribution...
           for ( int s = 0; s < thisCopies; s++ ) {
             for ( int t = 0; t < nextCopies; t++ ) {
-              BlockingRowSet rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
+              RowSet rowSet = createHopRowSet();
               rowSet.setThreadNameFromToCopy( thisStep.getName(), s, nextStep.getName(), t );
               rowsets.add( rowSet );
               if ( log.isDetailed() ) {
@@ -1209,6 +1220,10 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
     StepInitThread[] initThreads = new StepInitThread[ steps.size() ];
     Thread[] threads = new Thread[ steps.size() ];
+    boolean virtualThreads = isUsingVirtualThreads();
+    if ( virtualThreads && log.isDetailed() ) {
+      log.logDetailed( "Running the steps on virtual threads" );
+    }
 
     // Initialize all the threads...
     //
@@ -1223,7 +1238,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
       // Put it in a separate thread!
       //
-      threads[ i ] = new Thread( initThreads[ i ] );
+      threads[ i ] = VirtualThreadUtil.newThread( initThreads[ i ], null, virtualThreads );
       threads[ i ].setName( "init of " + sid.stepname + "." + sid.copy + " (" + threads[ i ].getName() + ")" );
 
       ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepBeforeInitialize.id, initThreads[ i ] );
@@ -1316,6 +1331,39 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     setReadyToStart( true );
   }
 
+  /**
+   * Creates the row set for a hop between two step copies in a normal transformation. Every such row set has exactly
+   * one producing and one consuming step copy. The implementation is chosen with the KETTLE_ROWSET_IMPL variable
+   * (BLOCKING, BATCHING or SPSC) which can be set globally or on the transformation itself.
+   *
+   * @return a new, empty row set
+   */
+  protected RowSet createHopRowSet() {
+    String rowSetImpl = transMeta.getVariable( Const.KETTLE_ROWSET_IMPL );
+    if ( "SPSC".equalsIgnoreCase( Const.trim( rowSetImpl ) ) ) {
+      SpscRowSet.WaitStrategy waitStrategy =
+        SpscRowSet.WaitStrategy.getWaitStrategy( transMeta.getVariable( Const.KETTLE_ROWSET_WAIT_STRATEGY ) );
+      if ( waitStrategy == SpscRowSet.WaitStrategy.BUSY_SPIN && isUsingVirtualThreads() ) {
+        // A spinning virtual thread would never hand its carrier thread to the other steps
+        waitStrategy = SpscRowSet.WaitStrategy.PARK;
+      }
+      return new SpscRowSet( transMeta.getSizeRowset(), waitStrategy );
+    }
+
+    // This is a temporary patch until the batching rowset has proven
+    // to be working in all situations.
+    // Currently there are stalling problems when dealing with small
+    // amounts of rows.
+    //
+    Boolean batchingRowSet =
+      ValueMetaString.convertStringToBoolean( System.getProperty( Const.KETTLE_BATCHING_ROWSET ) );
+    if ( "BATCHING".equalsIgnoreCase( Const.trim( rowSetImpl ) )
+      || ( batchingRowSet != null && batchingRowSet.booleanValue() ) ) {
+      return new BlockingBatchingRowSet( transMeta.getSizeRowset() );
+    }
+    return new BlockingRowSet( transMeta.getSizeRowset() );
+  }
+
   @SuppressWarnings ( "deprecation" )
   private void checkCompatibility() {
     // If we don't have a previous result and transMeta does have one, someone has been using a deprecated method.
@@ -1518,11 +1566,11 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
         // Now start all the threads...
         //
+        boolean virtualThreads = isUsingVirtualThreads();
+        CooperativeTransExecutor cooperativeExecutor =
+          isUsingCooperativeScheduler() ? new CooperativeTransExecutor( this ) : null;
         for ( int i = 0; i < steps.size(); i++ ) {
           final StepMetaDataCombi combi = steps.get( i );
-          RunThread runThread = new RunThread( combi );
-          Thread thread = new Thread( runThread );
-          thread.setName( getName() + " - " + combi.stepname );
           ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepBeforeStart.id, combi );
           // Call an extension point at the end of the step
           //
@@ -1539,8 +1587,16 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
           } );
 
+          if ( cooperativeExecutor != null && cooperativeExecutor.schedule( combi ) ) {
+            continue;
+          }
+          RunThread runThread = new RunThread( combi );
+          Thread thread = VirtualThreadUtil.newThread( runThread, getName() + " - " + combi.stepname, virtualThreads );
           thread.start();
         }
+        if ( cooperativeExecutor != null ) {
+          cooperativeExecutor.start();
+        }
         break;
 
       case SerialSingleThreaded:
@@ -1690,10 +1746,11 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
         StepMeta stepMeta = steps.get( i ).stepMeta;
         StepInterface step = steps.get( i ).step;
 
+        StepCounters.Snapshot counters = step.getCountersSnapshot();
         StepPerformanceSnapShot snapShot =
           new StepPerformanceSnapShot( seqNr, getBatchId(), new Date(), getName(), stepMeta.getName(), step.getCopy(),
-            step.getLinesRead(), step.getLinesWritten(), step.getLinesInput(), step.getLinesOutput(), step
-            .getLinesUpdated(), step.getLinesRejected(), step.getErrors() );
+            counters.getLinesRead(), counters.getLinesWritten(), counters.getLinesInput(), counters.getLinesOutput(),
+            counters.getLinesUpdated(), counters.getLinesRejected(), step.getErrors() );
 
         synchronized ( stepPerformanceSnapShots ) {
           List<StepPerformanceSnapShot> snapShotList = stepPerformanceSnapShots.get( step.toString() );
@@ -3407,6 +3464,53 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     return safeModeEnabled;
   }
 
+  /**
+   * Run the step copies on virtual threads, even if the transformation itself doesn't ask for it.
+   *
+   * @param usingVirtualThreads true to run the step copies on virtual threads
+   */
+  public void setUsingVirtualThreads( boolean usingVirtualThreads ) {
+    this.usingVirtualThreads = usingVirtualThreads;
+  }
+
+  /**
+   * Checks whether the step copies run on virtual threads. This is the case when it was asked for on this
+   * transformation, in the transformation metadata or with the KETTLE_TRANS_VIRTUAL_THREADS variable, and the JVM
+   * supports virtual threads.
+   *
+   * @return true if the step copies run on virtual threads, false if each one runs on its own platform thread
+   */
+  public boolean isUsingVirtualThreads() {
+    if ( !VirtualThreadUtil.isVirtualThreadSupported() ) {
+      return false;
+    }
+    return usingVirtualThreads
+      || ( transMeta != null && transMeta.isUsingVirtualThreads() )
+      || "Y".equalsIgnoreCase( getVariable( Const.KETTLE_TRANS_VIRTUAL_THREADS ) );
+  }
+
+  /**
+   * Run the step copies as tasks on the shared cooperative scheduler, even if the KETTLE_TRANS_COOPERATIVE_SCHEDULER
+   * variable doesn't ask for it.
+   *
+   * @param usingCooperativeScheduler true to run the step copies on the cooperative scheduler
+   */
+  public void setUsingCooperativeScheduler( boolean usingCooperativeScheduler ) {
+    this.usingCooperativeScheduler = usingCooperativeScheduler;
+  }
+
+  /**
+   * Checks whether the step copies of a normal transformation run as tasks on the shared cooperative scheduler instead
+   * of on threads of their own. This takes precedence over virtual threads.
+   *
+   * @return true if the step copies run on the cooperative scheduler
+   * @see CooperativeTransExecutor
+   */
+  public boolean isUsingCooperativeScheduler() {
+    return usingCooperativeScheduler
+      || "Y".equalsIgnoreCase( getVariable( Const.KETTLE_TRANS_COOPERATIVE_SCHEDULER ) );
+  }
+
   /**
    * This adds a row producer to the transformation that just got set up. It is preferable to run this BEFORE execute()
    * but after prepareExecution()
@@ -3695,6 +3799,39 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   public void setRunning( boolean running ) {
     status.updateAndGet( v -> running ? v | RUNNING.mask : ( BIT_STATUS_SUM ^ RUNNING.mask ) & v );
+    if ( running ) {
+      notifyRunningWaiters();
+    }
+  }
+
+  /**
+   * Waits until the transformation is running or stopped, or until the timeout expires. Steps call this while the step
+   * threads are being started instead of polling {@link #isRunning()}.
+   *
+   * @param timeoutMillis the maximum time to wait in milliseconds
+   * @return true if the transformation is running, false otherwise
+   */
+  public boolean waitUntilRunning( long timeoutMillis ) {
+    runningLock.lock();
+    try {
+      if ( !isRunning() && !isStopped() ) {
+        runningCondition.await( timeoutMillis, TimeUnit.MILLISECONDS );
+      }
+    } catch ( InterruptedException e ) {
+      // Ignore, the caller checks the status again
+    } finally {
+      runningLock.unlock();
+    }
+    return isRunning();
+  }
+
+  private void notifyRunningWaiters() {
+    runningLock.lock();
+    try {
+      runningCondition.signalAll();
+    } finally {
+      runningLock.unlock();
+    }
   }
 
   /**
@@ -4816,6 +4953,9 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
   public void setStopped( boolean stopped ) {
     status.updateAndGet( v -> stopped ? v | STOPPED.mask : ( BIT_STATUS_SUM ^ STOPPED.mask ) & v );
+    if ( stopped ) {
+      notifyRunningWaiters();
+    }
   }
 
   /**
@@ -87,6 +87,7 @@ public class TransExecutionConfiguration implements ExecutionConfiguration {
   private Repository repository;
 
   private boolean gatheringMetrics;
+  private boolean usingVirtualThreads;
   private boolean showingSubComponents;
   private boolean setLogfile;
   private boolean setAppendLogfile;
@@ -519,6 +520,7 @@ public class TransExecutionConfiguration implements ExecutionConfiguration {
     xml.append( "    " ).append( XMLHandler.addTagValue( "create_parent_folder", createParentFolder ) );
     xml.append( "    " ).append( XMLHandler.addTagValue( "clear_log", clearingLog ) );
     xml.append( "    " ).append( XMLHandler.addTagValue( "gather_metrics", gatheringMetrics ) );
+    xml.append( "    " ).append( XMLHandler.addTagValue( "virtual_threads", usingVirtualThreads ) );
     xml.append( "    " ).append( XMLHandler.addTagValue( "show_subcomponents", showingSubComponents ) );
     if ( passedBatchId != null ) {
       xml.append( "    " ).append( XMLHandler.addTagValue( "passedBatchId", passedBatchId ) );
@@ -618,6 +620,7 @@ public class TransExecutionConfiguration implements ExecutionConfiguration {
     createParentFolder = "Y".equalsIgnoreCase( XMLHandler.getTagValue( trecNode, "create_parent_folder" ) );
     clearingLog = "Y".equalsIgnoreCase( XMLHandler.getTagValue( trecNode, "clear_log" ) );
     gatheringMetrics = "Y".equalsIgnoreCase( XMLHandler.getTagValue( trecNode, "gather_metrics" ) );
+    usingVirtualThreads = "Y".equalsIgnoreCase( XMLHandler.getTagValue( trecNode, "virtual_threads" ) );
     showingSubComponents = "Y".equalsIgnoreCase( XMLHandler.getTagValue( trecNode, "show_subcomponents" ) );
     String sPassedBatchId = XMLHandler.getTagValue( trecNode, "passedBatchId" );
     if ( !StringUtils.isEmpty( sPassedBatchId ) ) {
@@ -784,6 +787,21 @@ public class TransExecutionConfiguration implements ExecutionConfiguration {
     this.gatheringMetrics = gatheringMetrics;
   }
 
+  /**
+   * @return true if the step copies should run on virtual threads, regardless of the transformation setting
+   */
+  public boolean isUsingVirtualThreads() {
+    return usingVirtualThreads;
+  }
+
+  /**
+   * @param usingVirtualThreads
+   *          true to run the step copies on virtual threads, regardless of the transformation setting
+   */
+  public void setUsingVirtualThreads( boolean usingVirtualThreads ) {
+    this.usingVirtualThreads = usingVirtualThreads;
+  }
+
   /**
    * @return the showingSubComponents
    */
@@ -270,6 +270,9 @@ public class TransMeta extends AbstractMeta
    */
   protected boolean usingThreadPriorityManagment;
 
+  /** Flag to indicate that the step copies run on virtual threads instead of one platform thread each. */
+  protected boolean usingVirtualThreads;
+
   /** The slave-step-copy/partition distribution. Only used for slave transformations in a clustering environment. */
   protected SlaveStepCopyPartitionDistribution slaveStepCopyPartitionDistribution;
 
@@ -695,6 +698,8 @@ public class TransMeta extends AbstractMeta
     //
     usingThreadPriorityManagment = true;
 
+    usingVirtualThreads = false;
+
     // The performance monitoring options
     //
     capturingStepPerformanceSnapShots = false;
@@ -2485,6 +2490,7 @@ public class TransMeta extends AbstractMeta
     retval.append( "    " ).append( XMLHandler.addTagValue( "feedback_shown", feedbackShown ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "feedback_size", feedbackSize ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "using_thread_priorities", usingThreadPriorityManagment ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "using_virtual_threads", usingVirtualThreads ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "shared_objects_file", sharedObjectsFile ) );
 
     // Performance monitoring
@@ -3405,6 +3411,7 @@ public class TransMeta extends AbstractMeta
         feedbackSize = Const.toInt( XMLHandler.getTagValue( infonode, "feedback_size" ), Const.ROWS_UPDATE );
         usingThreadPriorityManagment =
             !"N".equalsIgnoreCase( XMLHandler.getTagValue( infonode, "using_thread_priorities" ) );
+        usingVirtualThreads = "Y".equalsIgnoreCase( XMLHandler.getTagValue( infonode, "using_virtual_threads" ) );
 
         // Performance monitoring for steps...
         //
@@ -5607,6 +5614,26 @@ public class TransMeta extends AbstractMeta
     this.usingThreadPriorityManagment = usingThreadPriorityManagment;
   }
 
+  /**
+   * Checks whether the step copies of the transformation run on virtual threads.
+   *
+   * @return true if the step copies run on virtual threads, false if each one gets its own platform thread
+   */
+  public boolean isUsingVirtualThreads() {
+    return usingVirtualThreads;
+  }
+
+  /**
+   * Sets whether the step copies of the transformation run on virtual threads. This only has an effect on Java 21 and
+   * later.
+   *
+   * @param usingVirtualThreads
+   *          true to run the step copies on virtual threads, false to give each one its own platform thread
+   */
+  public void setUsingVirtualThreads( boolean usingVirtualThreads ) {
+    this.usingVirtualThreads = usingVirtualThreads;
+  }
+
   /**
    * Check a step to see if there are no multiple steps to read from. If so, check to see if the receiving rows are all
    * the same in layout. We only want to ONLY use the DBCache for this to prevent GUI stalls.
@@ -6396,6 +6423,7 @@ public class TransMeta extends AbstractMeta
         .append( this.isFeedbackShown() )
         .append( this.getFeedbackSize() )
         .append( this.isUsingThreadPriorityManagment() )
+        .append( this.isUsingVirtualThreads() )
         .append( this.getSharedObjectsFile() )
         .append( this.isCapturingStepPerformanceSnapShots() )
         .append( this.getStepPerformanceCapturingDelay() )
@@ -74,6 +74,9 @@ public class TransSplitter {
   private static final int FANOUT = 30;
   private static final int SPLIT = 120;
 
+  /** The step name the ports of multiplexed connections are allocated for */
+  private static final String MULTIPLEXED_STREAMS = "multiplexed streams";
+
   private TransMeta originalTransformation;
   private Map<SlaveServer, TransMeta> slaveTransMap;
   private TransMeta masterTransMeta;
@@ -89,6 +92,7 @@ public class TransSplitter {
     new SlaveStepCopyPartitionDistribution();
   private int socketsBufferSize;
   private boolean compressingSocketStreams;
+  private boolean multiplexingSocketStreams;
 
   private Map<String, Integer> portCache;
 
@@ -195,6 +199,8 @@ public class TransSplitter {
           Const.toInt(
             originalTransformation.environmentSubstitute( clusterSchema.getSocketsBufferSize() ), 50000 );
         compressingSocketStreams = clusterSchema.isSocketsCompressed();
+        multiplexingSocketStreams =
+          "Y".equalsIgnoreCase( originalTransformation.getVariable( Const.KETTLE_REMOTE_STEP_MULTIPLEXING, "N" ) );
 
         // Validate the number of slaves. We need at least one to have a valid cluster
         //
@@ -278,6 +284,19 @@ public class TransSplitter {
     return port;
   }
 
+  /**
+   * Get the port for a remote step. With multiplexed streams all the remote steps sending rows from one slave server to
+   * another share a port and a connection.
+   */
+  private int getRemoteStepPort( ClusterSchema clusterSchema, SlaveServer sourceSlave, String sourceStepName,
+    int sourceStepCopy, SlaveServer targetSlave, String targetStepName, int targetStepCopy ) throws Exception {
+    if ( multiplexingSocketStreams ) {
+      return getPort( clusterSchema, sourceSlave, MULTIPLEXED_STREAMS, 0, targetSlave, MULTIPLEXED_STREAMS, 0 );
+    }
+    return getPort(
+      clusterSchema, sourceSlave, sourceStepName, sourceStepCopy, targetSlave, targetStepName, targetStepCopy );
+  }
+
   public String createPortCacheKey( SlaveServer sourceSlave, String sourceStepName, int sourceStepCopy,
     SlaveServer targetSlave, String targetStepName, int targetStepCopy ) {
     return clusteredRunId
@@ -592,7 +611,7 @@ public class TransSplitter {
                     // So the source is the slave server, the target the master.
                     //
                     int port =
-                      getPort(
+                      getRemoteStepPort(
                         clusterSchema, sourceSlaveServer, slaveStep.getName(), sourceCopyNr,
                         masterSlaveServer, masterStep.getName(), masterStepCopyNr );
 
@@ -605,6 +624,7 @@ public class TransSplitter {
                           .getStepFields( previousStep ) );
                     remoteMasterStep.setEncryptingStreams( encrypt );
                     remoteMasterStep.setKey( transformationKey );
+                    remoteMasterStep.setMultiplexingStreams( multiplexingSocketStreams && !encrypt );
                     masterStep.getRemoteInputSteps().add( remoteMasterStep );
 
                     RemoteStep remoteSlaveStep =
@@ -616,6 +636,7 @@ public class TransSplitter {
                           .getStepFields( previousStep ) );
                     remoteSlaveStep.setEncryptingStreams( encrypt );
                     remoteSlaveStep.setKey( transformationKey );
+                    remoteSlaveStep.setMultiplexingStreams( multiplexingSocketStreams && !encrypt );
                     slaveStep.getRemoteOutputSteps().add( remoteSlaveStep );
 
                     // OK, create a partition number for the target step in the partition distribution...
@@ -738,7 +759,7 @@ public class TransSplitter {
                     // So the IP address should be the same, in this case, the master...
                     //
                     int port =
-                      getPort(
+                      getRemoteStepPort(
                         clusterSchema, masterSlaveServer, sourceStep.getName(), masterStepCopyNr,
                         targetSlaveServer, referenceStep.getName(), targetCopyNr );
 
@@ -751,6 +772,7 @@ public class TransSplitter {
                           .getStepFields( previousStep ) );
                     remoteMasterStep.setEncryptingStreams( encrypt );
                     remoteMasterStep.setKey( transformationKey );
+                    remoteMasterStep.setMultiplexingStreams( multiplexingSocketStreams && !encrypt );
                     sourceStep.getRemoteOutputSteps().add( remoteMasterStep );
 
                     RemoteStep remoteSlaveStep =
@@ -762,6 +784,7 @@ public class TransSplitter {
                           .getStepFields( previousStep ) );
                     remoteSlaveStep.setEncryptingStreams( encrypt );
                     remoteSlaveStep.setKey( transformationKey );
+                    remoteSlaveStep.setMultiplexingStreams( multiplexingSocketStreams && !encrypt );
                     targetStep.getRemoteInputSteps().add( remoteSlaveStep );
 
                     // OK, create a partition number for the target step in the partition distribution...
@@ -953,7 +976,7 @@ public class TransSplitter {
                               // That's why it's OK to generate all combinations.
                               //
                               int outPort =
-                                getPort(
+                                getRemoteStepPort(
                                   clusterSchema, targetSlaveServer, sourceStep.getName(), sourceCopyNr,
                                   sourceSlaveServer, targetStep.getName(), targetCopyNr );
                               RemoteStep remoteOutputStep =
@@ -965,13 +988,14 @@ public class TransSplitter {
                                   originalTransformation.getStepFields( previousStep ) );
                               remoteOutputStep.setEncryptingStreams( encrypt );
                               remoteOutputStep.setKey( transformationKey );
+                              remoteOutputStep.setMultiplexingStreams( multiplexingSocketStreams && !encrypt );
                               sourceStep.getRemoteOutputSteps().add( remoteOutputStep );
 
                               // OK, so the source step is sending rows out on the reserved ports
                               // What we need to do now is link all the OTHER slaves up to them.
                               //
                               int inPort =
-                                getPort(
+                                getRemoteStepPort(
                                   clusterSchema, sourceSlaveServer, sourceStep.getName(), sourceCopyNr,
                                   targetSlaveServer, targetStep.getName(), targetCopyNr );
                               RemoteStep remoteInputStep =
@@ -983,6 +1007,7 @@ public class TransSplitter {
                                   originalTransformation.getStepFields( previousStep ) );
                               remoteInputStep.setEncryptingStreams( encrypt );
                               remoteInputStep.setKey( transformationKey );
+                              remoteInputStep.setMultiplexingStreams( multiplexingSocketStreams && !encrypt );
                               targetStep.getRemoteInputSteps().add( remoteInputStep );
                             }
                             // OK, save the partition number for the target step in the partition distribution...
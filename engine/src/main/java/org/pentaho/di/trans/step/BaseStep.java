@@ -41,6 +41,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
@@ -48,11 +49,13 @@ import com.google.common.base.Preconditions;
 import org.apache.commons.lang.StringUtils;
 import org.pentaho.di.core.BlockingRowSet;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.util.BlockingUtil;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.ExtensionDataInterface;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.WakeupSignal;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleRowException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -165,12 +168,11 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private Trans trans;
 
-  private final Object statusCountersLock = new Object();
-
   /**
    * nr of lines read from previous step(s)
    *
-   * @deprecated use {@link #getLinesRead()}, {@link #incrementLinesRead()}, or {@link #decrementLinesRead()}
+   * @deprecated no longer updated or read, the counters are kept in a {@link StepCounters}. Use
+   *             {@link #getLinesRead()}, {@link #incrementLinesRead()}, or {@link #decrementLinesRead()}
    */
   @Deprecated
   public long linesRead;
@@ -178,7 +180,8 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   /**
    * nr of lines written to next step(s)
    *
-   * @deprecated use {@link #getLinesWritten()}, {@link #incrementLinesWritten()}, or {@link #decrementLinesWritten()}
+   * @deprecated no longer updated or read, the counters are kept in a {@link StepCounters}. Use
+   *             {@link #getLinesWritten()}, {@link #incrementLinesWritten()}, or {@link #decrementLinesWritten()}
    */
   @Deprecated
   public long linesWritten;
@@ -186,7 +189,8 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   /**
    * nr of lines read from file or database
    *
-   * @deprecated use {@link #getLinesInput()} or {@link #incrementLinesInput()}
+   * @deprecated no longer updated or read, the counters are kept in a {@link StepCounters}. Use
+   *             {@link #getLinesInput()} or {@link #incrementLinesInput()}
    */
   @Deprecated
   public long linesInput;
@@ -194,7 +198,8 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   /**
    * nr of lines written to file or database
    *
-   * @deprecated use {@link #getLinesOutput()} or {@link #incrementLinesOutput()}
+   * @deprecated no longer updated or read, the counters are kept in a {@link StepCounters}. Use
+   *             {@link #getLinesOutput()} or {@link #incrementLinesOutput()}
    */
   @Deprecated
   public long linesOutput;
@@ -202,7 +207,8 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   /**
    * nr of updates in a database table or file
    *
-   * @deprecated use {@link #getLinesUpdated()} or {@link #incrementLinesUpdated()}
+   * @deprecated no longer updated or read, the counters are kept in a {@link StepCounters}. Use
+   *             {@link #getLinesUpdated()} or {@link #incrementLinesUpdated()}
    */
   @Deprecated
   public long linesUpdated;
@@ -210,25 +216,34 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   /**
    * nr of lines skipped
    *
-   * @deprecated use {@link #getLinesSkipped()} or {@link #incrementLinesSkipped()}
+   * @deprecated no longer updated or read, the counters are kept in a {@link StepCounters}. Use
+   *             {@link #getLinesSkipped()} or {@link #incrementLinesSkipped()}
    */
   @Deprecated
   public long linesSkipped;
 
   /**
-   * total sleep time in ns caused by an empty input buffer (previous step is slow)
+   * nr of lines rejected
    *
-   * @deprecated use {@link #getLinesRejected()} or {@link #incrementLinesRejected()}
+   * @deprecated no longer updated or read, the counters are kept in a {@link StepCounters}. Use
+   *             {@link #getLinesRejected()} or {@link #incrementLinesRejected()}
    */
   @Deprecated
   public long linesRejected;
 
+  /**
+   * The line counters of this step copy: read, written, input, output, updated, skipped and rejected.
+   */
+  private final StepCounters counters = new StepCounters();
+
   private boolean distributed;
 
   private String rowDistributionCode;
 
   private RowDistributionInterface rowDistribution;
 
+  private RowDistributionLoad rowDistributionLoad;
+
   private long errors;
 
   private StepMeta[] nextSteps;
@@ -375,6 +390,22 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private int blockPointer;
 
+  private Object[][] rowBatch;
+
+  /** How long to sleep at most while waiting for the transformation to start or for the step to be resumed */
+  private static final long STATE_WAIT_MILLIS = 100;
+
+  /** How long to sleep at most while waiting for input rows on row sets that wake up this step */
+  private static final long INPUT_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos( 100 );
+
+  /** How long to sleep at most while waiting for input rows on row sets that have to be polled */
+  private static final long INPUT_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos( 1 );
+
+  /**
+   * Wakes up the step thread when rows arrive on the input row sets or when the step is stopped or resumed.
+   */
+  private final WakeupSignal wakeupSignal = new WakeupSignal();
+
   /**
    * A flag to indicate that clustered partitioning was not yet initialized
    */
@@ -486,15 +517,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     init = false;
 
-    synchronized ( statusCountersLock ) {
-      linesRead = 0L; // new AtomicLong(0L); // Keep some statistics!
-      linesWritten = 0L; // new AtomicLong(0L);
-      linesUpdated = 0L; // new AtomicLong(0L);
-      linesSkipped = 0L; // new AtomicLong(0L);
-      linesRejected = 0L; // new AtomicLong(0L);
-      linesInput = 0L; // new AtomicLong(0L);
-      linesOutput = 0L; // new AtomicLong(0L);
-    }
+    counters.reset(); // Keep some statistics!
 
     inputRowSets = null;
     outputRowSets = null;
@@ -907,14 +930,22 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     errors = e;
   }
 
+  /**
+   * Takes a copy of all the line counters of this step without blocking the step thread.
+   *
+   * @return the current values of the line counters
+   */
+  @Override
+  public StepCounters.Snapshot getCountersSnapshot() {
+    return counters.snapshot();
+  }
+
   /**
    * @return Returns the number of lines read from previous steps
    */
   @Override
   public long getLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return linesRead;
-    }
+    return counters.getLinesRead();
   }
 
   /**
@@ -923,9 +954,17 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long incrementLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return ++linesRead;
-    }
+    return counters.addLinesRead( 1 );
+  }
+
+  /**
+   * Increments the number of lines read from previous steps
+   *
+   * @param nrLines the number of lines to add
+   * @return Returns the new value
+   */
+  public long incrementLinesRead( long nrLines ) {
+    return counters.addLinesRead( nrLines );
   }
 
   /**
@@ -934,18 +973,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long decrementLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return --linesRead;
-    }
+    return counters.addLinesRead( -1 );
   }
 
   /**
    * @param newLinesReadValue the new number of lines read from previous steps
    */
   public void setLinesRead( long newLinesReadValue ) {
-    synchronized ( statusCountersLock ) {
-      linesRead = newLinesReadValue;
-    }
+    counters.setLinesRead( newLinesReadValue );
   }
 
   /**
@@ -953,9 +988,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesInput() {
-    synchronized ( statusCountersLock ) {
-      return linesInput;
-    }
+    return counters.getLinesInput();
   }
 
   /**
@@ -964,18 +997,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesInput() {
-    synchronized ( statusCountersLock ) {
-      return ++linesInput;
-    }
+    return counters.addLinesInput( 1 );
   }
 
   /**
    * @param newLinesInputValue the new number of lines read from an input source: database, file, socket, etc.
    */
   public void setLinesInput( long newLinesInputValue ) {
-    synchronized ( statusCountersLock ) {
-      linesInput = newLinesInputValue;
-    }
+    counters.setLinesInput( newLinesInputValue );
   }
 
   /**
@@ -983,9 +1012,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesOutput() {
-    synchronized ( statusCountersLock ) {
-      return linesOutput;
-    }
+    return counters.getLinesOutput();
   }
 
   /**
@@ -994,18 +1021,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesOutput() {
-    synchronized ( statusCountersLock ) {
-      return ++linesOutput;
-    }
+    return counters.addLinesOutput( 1 );
   }
 
   /**
    * @param newLinesOutputValue the new number of lines written to an output target: database, file, socket, etc.
    */
   public void setLinesOutput( long newLinesOutputValue ) {
-    synchronized ( statusCountersLock ) {
-      linesOutput = newLinesOutputValue;
-    }
+    counters.setLinesOutput( newLinesOutputValue );
   }
 
   /**
@@ -1013,9 +1036,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return linesWritten;
-    }
+    return counters.getLinesWritten();
   }
 
   /**
@@ -1024,9 +1045,17 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long incrementLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return ++linesWritten;
-    }
+    return counters.addLinesWritten( 1 );
+  }
+
+  /**
+   * Increments the number of lines written to next steps
+   *
+   * @param nrLines the number of lines to add
+   * @return Returns the new value
+   */
+  public long incrementLinesWritten( long nrLines ) {
+    return counters.addLinesWritten( nrLines );
   }
 
   /**
@@ -1035,18 +1064,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long decrementLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return --linesWritten;
-    }
+    return counters.addLinesWritten( -1 );
   }
 
   /**
    * @param newLinesWrittenValue the new number of lines written to next steps
    */
   public void setLinesWritten( long newLinesWrittenValue ) {
-    synchronized ( statusCountersLock ) {
-      linesWritten = newLinesWrittenValue;
-    }
+    counters.setLinesWritten( newLinesWrittenValue );
   }
 
   /**
@@ -1054,9 +1079,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesUpdated() {
-    synchronized ( statusCountersLock ) {
-      return linesUpdated;
-    }
+    return counters.getLinesUpdated();
   }
 
   /**
@@ -1065,18 +1088,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesUpdated() {
-    synchronized ( statusCountersLock ) {
-      return ++linesUpdated;
-    }
+    return counters.addLinesUpdated( 1 );
   }
 
   /**
    * @param newLinesUpdatedValue the new number of lines updated in an output target: database, file, socket, etc.
    */
   public void setLinesUpdated( long newLinesUpdatedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesUpdated = newLinesUpdatedValue;
-    }
+    counters.setLinesUpdated( newLinesUpdatedValue );
   }
 
   /**
@@ -1084,9 +1103,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesRejected() {
-    synchronized ( statusCountersLock ) {
-      return linesRejected;
-    }
+    return counters.getLinesRejected();
   }
 
   /**
@@ -1095,9 +1112,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesRejected() {
-    synchronized ( statusCountersLock ) {
-      return ++linesRejected;
-    }
+    return counters.addLinesRejected( 1 );
   }
 
   /**
@@ -1105,18 +1120,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void setLinesRejected( long newLinesRejectedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesRejected = newLinesRejectedValue;
-    }
+    counters.setLinesRejected( newLinesRejectedValue );
   }
 
   /**
    * @return the number of lines skipped
    */
   public long getLinesSkipped() {
-    synchronized ( statusCountersLock ) {
-      return linesSkipped;
-    }
+    return counters.getLinesSkipped();
   }
 
   /**
@@ -1125,18 +1136,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesSkipped() {
-    synchronized ( statusCountersLock ) {
-      return ++linesSkipped;
-    }
+    return counters.addLinesSkipped( 1 );
   }
 
   /**
    * @param newLinesSkippedValue lines number of lines skipped
    */
   public void setLinesSkipped( long newLinesSkippedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesSkipped = newLinesSkippedValue;
-    }
+    counters.setLinesSkipped( newLinesSkippedValue );
   }
 
   /*
@@ -1252,6 +1259,11 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void putRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+    verifyOutputRowMeta( rowMeta );
+    getRowHandler().putRow( rowMeta, row );
+  }
+
+  private void verifyOutputRowMeta( RowMetaInterface rowMeta ) throws KettleStepException {
     if ( rowMeta != null ) {
       if ( !allowEmptyFieldNamesAndTypes ) {
         // check row meta for empty field name (BACKLOG-18004)
@@ -1265,19 +1277,87 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         }
       }
     }
-    getRowHandler().putRow( rowMeta, row );
   }
 
-  private void handlePutRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
-    // Are we pausing the step? If so, stall forever...
-    //
-    while ( paused.get() && !stopped.get() ) {
-      try {
-        Thread.sleep( 1 );
-      } catch ( InterruptedException e ) {
-        throw new KettleStepException( e );
+  /**
+   * putRows is the batch equivalent of {@link #putRow(RowMetaInterface, Object[])}. When the rows go to a single
+   * output rowset without row listeners or special partitioning, the whole batch is handed over to the rowset at once
+   * and the per-row overhead (pause checks, counters, ...) is only paid once per batch. In all other cases the rows are
+   * put one by one.
+   *
+   * @param rowMeta The row meta-data of the rows
+   * @param rows    The buffer holding the rows to put
+   * @param nrRows  The number of rows to put, starting at the beginning of the buffer
+   * @throws KettleStepException
+   */
+  @Override
+  public void putRows( RowMetaInterface rowMeta, Object[][] rows, int nrRows ) throws KettleStepException {
+    if ( nrRows <= 0 ) {
+      return;
+    }
+    if ( nrRows == 1 || !isBatchPutPossible() ) {
+      for ( int i = 0; i < nrRows; i++ ) {
+        putRow( rowMeta, rows[i] );
+      }
+      return;
+    }
+
+    verifyOutputRowMeta( rowMeta );
+    if ( !waitUntilRowsCanBePut() ) {
+      return;
+    }
+
+    outputRowSetsLock.readLock().lock();
+    try {
+      if ( outputRowSets.isEmpty() ) {
+        incrementLinesWritten( nrRows );
+        return;
+      }
+      if ( outputRowSets.size() > 1 ) {
+        // The output row sets changed in the meantime
+        for ( int i = 0; i < nrRows; i++ ) {
+          noPartitioning( rowMeta, rows[i] );
+        }
+        return;
+      }
+
+      RowSet rs = outputRowSets.get( 0 );
+      RowMetaInterface toBeSent = rs.getRowMeta() == null ? rowMeta.clone() : rs.getRowMeta();
+      int[] nrPut = new int[] { rs.putRows( toBeSent, rows, 0, nrRows ) };
+      if ( nrPut[0] < nrRows ) {
+        // The row set is full, wait for the next step to catch up
+        //
+        BlockingUtil.block( () -> {
+          while ( nrPut[0] < nrRows && !( isStopped() && !safeStopped.get() ) ) {
+            nrPut[0] += rs.putRows( toBeSent, rows, nrPut[0], nrRows - nrPut[0] );
+          }
+        } );
       }
+      incrementLinesWritten( nrPut[0] );
+    } finally {
+      outputRowSetsLock.readLock().unlock();
     }
+  }
+
+  private boolean isBatchPutPossible() {
+    return getRowHandler() instanceof DefaultRowHandler
+      && rowListeners.isEmpty()
+      && !terminator
+      && repartitioning == StepPartitioningMeta.PARTITIONING_METHOD_NONE
+      && ( !distributed || rowDistribution == null )
+      && outputRowSets.size() <= 1;
+  }
+
+  /**
+   * Waits while the step is paused and until the transformation is running.
+   *
+   * @return false if the step was stopped and no rows should be put anymore.
+   * @throws KettleStepException in case the wait is interrupted.
+   */
+  private boolean waitUntilRowsCanBePut() throws KettleStepException {
+    // Are we pausing the step? If so, stall forever...
+    //
+    waitWhilePaused();
 
     // Right after the pause loop we have to check if this thread is stopped or
     // not.
@@ -1287,22 +1367,87 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         logDebug( BaseMessages.getString( PKG, "BaseStep.Log.StopPuttingARow" ) );
       }
       stopAll();
-      return;
+      return false;
     }
 
     // Have all threads started?
-    // Are we running yet? If not, wait a bit until all threads have been
-    // started.
     //
-    if ( this.checkTransRunning == false ) {
-      while ( !trans.isRunning() && !stopped.get() ) {
-        try {
-          Thread.sleep( 1 );
-        } catch ( InterruptedException e ) {
-          // Ignore
-        }
+    waitUntilTransformationIsStarted();
+    return true;
+  }
+
+  /**
+   * Sleeps while the step is paused. Resuming or stopping the step wakes it up.
+   *
+   * @throws KettleStepException in case the wait is interrupted.
+   */
+  private void waitWhilePaused() throws KettleStepException {
+    while ( paused.get() && !stopped.get() ) {
+      wakeupSignal.arm();
+      if ( paused.get() && !stopped.get() ) {
+        wakeupSignal.await( TimeUnit.MILLISECONDS.toNanos( STATE_WAIT_MILLIS ) );
+      } else {
+        wakeupSignal.disarm();
+      }
+      if ( Thread.interrupted() ) {
+        throw new KettleStepException( new InterruptedException() );
       }
-      this.checkTransRunning = true;
+    }
+  }
+
+  /**
+   * Sleeps until a row arrives on one of the input row sets, one of them is done or the step is stopped. The caller
+   * holds the read lock on the input row sets.
+   */
+  private void waitForInputRows() {
+    waitForRows( inputRowSets );
+  }
+
+  /**
+   * Sleeps until a row arrives on one of the given input row sets, one of them is done or the step is stopped. Row
+   * sets that can't wake up this step are polled every millisecond.
+   *
+   * @param rowSets the input row sets to wait for
+   * @since 10.3
+   */
+  protected void waitForRows( List<RowSet> rowSets ) {
+    waitForRows( rowSets, rowSet -> rowSet.size() > 0 || rowSet.isDone() );
+  }
+
+  /**
+   * Sleeps until one of the given input row sets is ready or the step is stopped. The step wakes up whenever a row
+   * arrives on one of the row sets or one of them is done, to check them again.
+   *
+   * @param rowSets the input row sets to wait for
+   * @param ready tells whether the step can continue with a row set
+   * @since 10.3
+   */
+  protected void waitForRows( List<RowSet> rowSets, Predicate<RowSet> ready ) {
+    boolean signalled = true;
+    wakeupSignal.arm();
+    for ( RowSet rowSet : rowSets ) {
+      // Register first, then check, so a row arriving in between is never missed
+      //
+      if ( rowSet.supportsConsumerSignal() ) {
+        rowSet.setConsumerSignal( wakeupSignal );
+      } else {
+        signalled = false;
+      }
+      if ( ready.test( rowSet ) ) {
+        wakeupSignal.disarm();
+        return;
+      }
+    }
+    if ( stopped.get() ) {
+      wakeupSignal.disarm();
+      return;
+    }
+    wakeupSignal.await( signalled ? INPUT_WAIT_NANOS : INPUT_POLL_NANOS );
+  }
+
+  private void handlePutRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+    if ( !waitUntilRowsCanBePut() ) {
+      return;
     }
 
     // call all row listeners...
@@ -1597,11 +1742,18 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       toBeSent = metaFromRs;
     }
 
-    while ( !rs.putRow( toBeSent, row ) ) {
-      if ( isStopped() && !safeStopped.get() ) {
-        return;
-      }
+    if ( rs.putRow( toBeSent, row ) ) {
+      return;
     }
+    // The row set is full, wait for the next step to catch up
+    //
+    BlockingUtil.block( () -> {
+      while ( !rs.putRow( toBeSent, row ) ) {
+        if ( isStopped() && !safeStopped.get() ) {
+          return;
+        }
+      }
+    } );
   }
 
   /**
@@ -1620,13 +1772,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     // Are we pausing the step? If so, stall forever...
     //
-    while ( paused.get() && !stopped.get() ) {
-      try {
-        Thread.sleep( 1 );
-      } catch ( InterruptedException e ) {
-        throw new KettleStepException( e );
-      }
-    }
+    waitWhilePaused();
 
     // call all row listeners...
     //
@@ -1653,10 +1799,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     // Don't distribute or anything, only go to this rowset!
     //
-    while ( !rowSet.putRow( rowMeta, row ) ) {
-      if ( isStopped() ) {
-        break;
-      }
+    if ( !rowSet.putRow( rowMeta, row ) ) {
+      BlockingUtil.block( () -> {
+        while ( !rowSet.putRow( rowMeta, row ) ) {
+          if ( isStopped() ) {
+            break;
+          }
+        }
+      } );
     }
     incrementLinesWritten();
   }
@@ -1805,11 +1955,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     //
     if ( this.checkTransRunning == false ) {
       while ( !trans.isRunning() && !stopped.get() ) {
-        try {
-          Thread.sleep( 1 );
-        } catch ( InterruptedException e ) {
-          // Ignore sleep interruption exception
-        }
+        trans.waitUntilRunning( STATE_WAIT_MILLIS );
       }
       this.checkTransRunning = true;
     }
@@ -1826,17 +1972,80 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   }
 
 
+  /**
+   * getRows is the batch equivalent of {@link #getRow()}. It waits for the first row like getRow() does. If this step
+   * reads from a single input rowset without row listeners, all the rows that are immediately available are added to
+   * the batch as well.
+   *
+   * @param rows    The buffer to store the rows in
+   * @param maxRows The maximum number of rows to get
+   * @return the number of rows stored at the beginning of the buffer or 0 if there is no more input.
+   * @throws KettleException
+   */
+  @Override
+  public int getRows( Object[][] rows, int maxRows ) throws KettleException {
+    if ( maxRows <= 0 ) {
+      return 0;
+    }
+    Object[] row = getRow();
+    if ( row == null ) {
+      return 0;
+    }
+    rows[0] = row;
+    if ( maxRows == 1 || !( getRowHandler() instanceof DefaultRowHandler ) || !rowListeners.isEmpty() ) {
+      return 1;
+    }
+
+    int nrRows = 1;
+    inputRowSetsLock.readLock().lock();
+    try {
+      if ( inputRowSets.size() == 1 ) {
+        int nrExtra = inputRowSets.get( 0 ).getRows( rows, 1, maxRows - 1 );
+        if ( nrExtra > 0 ) {
+          incrementLinesRead( nrExtra );
+          nrRows += nrExtra;
+        }
+      }
+    } finally {
+      inputRowSetsLock.readLock().unlock();
+    }
+    return nrRows;
+  }
+
+  /**
+   * @return the maximum number of rows a step should process in one batch, see {@link Const#KETTLE_ROW_BATCH_SIZE}
+   */
+  protected int getRowBatchSize() {
+    int batchSize = Const.toInt( getVariable( Const.KETTLE_ROW_BATCH_SIZE ), Const.DEFAULT_ROW_BATCH_SIZE );
+    return batchSize > 0 ? batchSize : 1;
+  }
+
+  /**
+   * @return true unless columnar processing of row batches is switched off with the KETTLE_COLUMNAR_BATCHES variable
+   */
+  protected boolean isUsingColumnarBatches() {
+    return !"N".equalsIgnoreCase( getVariable( Const.KETTLE_COLUMNAR_BATCHES ) );
+  }
+
+  /**
+   * Gives steps processing rows in batches a reusable buffer to use with {@link #getRows(Object[][], int)} and
+   * {@link #putRows(RowMetaInterface, Object[][], int)}. Since every output row replaces at most one input row, steps
+   * can store the rows to pass on in the same buffer.
+   *
+   * @return the row batch buffer of this step copy, sized to {@link #getRowBatchSize()}
+   */
+  protected Object[][] getRowBatch() {
+    if ( rowBatch == null ) {
+      rowBatch = new Object[getRowBatchSize()][];
+    }
+    return rowBatch;
+  }
+
   private Object[] handleGetRow() throws KettleException {
 
     // Are we pausing the step? If so, stall forever...
     //
-    while ( paused.get() && !stopped.get() ) {
-      try {
-        Thread.sleep( 100 );
-      } catch ( InterruptedException e ) {
-        throw new KettleStepException( e );
-      }
-    }
+    waitWhilePaused();
 
     if ( stopped.get() ) {
       if ( log.isDebug() ) {
@@ -1911,12 +2120,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       // rowset, then switch to another etc.
       // We can use timeouts to switch from one to another...
       //
+      int emptyRowSets = 0;
       while ( row == null && !isStopped() ) {
         // Get a row from the input in row set ...
         // Timeout immediately if nothing is there to read.
         // We will then switch to the next row set to read from...
         //
-        row = inputRowSet.getRowWait( 1, TimeUnit.MILLISECONDS );
+        row = inputRowSet.getRowWait( 0, TimeUnit.MILLISECONDS );
         if ( row != null ) {
           incrementLinesRead();
           blockPointer++;
@@ -1954,6 +2164,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
           }
           nextInputStream();
           inputRowSet = currentInputStream();
+
+          // Nothing on any of the input row sets: sleep until one of the previous steps puts a row
+          //
+          if ( row == null && ++emptyRowSets >= inputRowSets.size() ) {
+            waitForInputRows();
+            emptyRowSets = 0;
+          }
         }
       }
 
@@ -2216,27 +2433,11 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   public Object[] handleGetRowFrom( RowSet rowSet ) throws KettleStepException {
     // Are we pausing the step? If so, stall forever...
     //
-    while ( paused.get() && !stopped.get() ) {
-      try {
-        Thread.sleep( 10 );
-      } catch ( InterruptedException e ) {
-        throw new KettleStepException( e );
-      }
-    }
+    waitWhilePaused();
 
     // Have all threads started?
-    // Are we running yet? If not, wait a bit until all threads have been
-    // started.
-    if ( this.checkTransRunning == false ) {
-      while ( !trans.isRunning() && !stopped.get() ) {
-        try {
-          Thread.sleep( 1 );
-        } catch ( InterruptedException e ) {
-          // Ignore sleep interruption exception
-        }
-      }
-      this.checkTransRunning = true;
-    }
+    //
+    waitUntilTransformationIsStarted();
     Object[] rowData = null;
 
     // To reduce stress on the locking system we are going to allow
@@ -2255,15 +2456,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     // Grab a row... If nothing received after a timeout, try again.
     //
     rowData = rowSet.getRow();
-    while ( rowData == null && !rowSet.isDone() && !stopped.get() ) {
-      rowData = rowSet.getRow();
-
-      // Verify deadlocks!
-      //
-      /*
-       * if (rowData==null) { if (getInputRowSets().size()>1 && getLinesRead()==deadLockCounter) {
-       * verifyInputDeadLock(); } deadLockCounter=getLinesRead(); }
-       */
+    if ( rowData == null && !rowSet.isDone() && !stopped.get() ) {
+      Object[][] received = new Object[1][];
+      BlockingUtil.block( () -> {
+        while ( received[0] == null && !rowSet.isDone() && !stopped.get() ) {
+          received[0] = rowSet.getRow();
+        }
+      } );
+      rowData = received[0];
     }
 
     // Still nothing: no more rows to be had?
@@ -3005,6 +3205,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   @Override
   public void stopAll() {
     stopped.set( true );
+    wakeupSignal.signal();
     trans.stopAll();
   }
 
@@ -3046,6 +3247,9 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
   @Override
   public void setStopped( boolean stopped ) {
     this.stopped.set( stopped );
+    if ( stopped ) {
+      wakeupSignal.signal();
+    }
   }
 
   @Override
@@ -3095,6 +3299,9 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   public void setPaused( boolean paused ) {
     this.paused.set( paused );
+    if ( !paused ) {
+      wakeupSignal.signal();
+    }
   }
 
   /**
@@ -3384,22 +3591,21 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * Log summary.
    */
   public void logSummary() {
-    synchronized ( statusCountersLock ) {
-      long li = getLinesInput();
-      long lo = getLinesOutput();
-      long lr = getLinesRead();
-      long lw = getLinesWritten();
-      long lu = getLinesUpdated();
-      long lj = getLinesRejected();
-      if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || errors > 0 ) {
-        logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
-          .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
-          .valueOf( errors + lj ) ) );
-      } else {
-        logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
-          .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
-          .valueOf( errors + lj ) ) );
-      }
+    StepCounters.Snapshot snapshot = getCountersSnapshot();
+    long li = snapshot.getLinesInput();
+    long lo = snapshot.getLinesOutput();
+    long lr = snapshot.getLinesRead();
+    long lw = snapshot.getLinesWritten();
+    long lu = snapshot.getLinesUpdated();
+    long lj = snapshot.getLinesRejected();
+    if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || errors > 0 ) {
+      logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
+        .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
+        .valueOf( errors + lj ) ) );
+    } else {
+      logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
+        .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
+        .valueOf( errors + lj ) ) );
     }
   }
 
@@ -3500,6 +3706,22 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     }
   }
 
+  /**
+   * The load is tracked again from scratch when the output row sets change.
+   */
+  @Override
+  public RowDistributionLoad getRowDistributionLoad() {
+    outputRowSetsLock.readLock().lock();
+    try {
+      if ( rowDistributionLoad == null || !rowDistributionLoad.isFor( outputRowSets ) ) {
+        rowDistributionLoad = new RowDistributionLoad( outputRowSets );
+      }
+      return rowDistributionLoad;
+    } finally {
+      outputRowSetsLock.readLock().unlock();
+    }
+  }
+
   @Override
   public void addRowSetToOutputRowSets( RowSet rowSet ) {
     outputRowSetsLock.writeLock().lock();
@@ -3734,6 +3956,21 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       && ( lines % getTransMeta().getFeedbackSize() ) == 0;
   }
 
+  /**
+   * Feedback check for steps that process rows in batches: the line counter can skip over the feedback size.
+   *
+   * @param linesBefore the number of lines before the batch was processed
+   * @param linesAfter  the number of lines after the batch was processed
+   * @return true if a feedback line should be logged for this batch
+   */
+  protected boolean checkFeedback( long linesBefore, long linesAfter ) {
+    if ( !getTransMeta().isFeedbackShown() || getTransMeta().getFeedbackSize() <= 0 || linesAfter <= 0 ) {
+      return false;
+    }
+    int feedbackSize = getTransMeta().getFeedbackSize();
+    return linesBefore / feedbackSize != linesAfter / feedbackSize;
+  }
+
   /**
    * @return the rowMeta
    */
@@ -3786,6 +4023,15 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     variables.copyVariablesFrom( space );
   }
 
+  /**
+   * @return the directory for the temp files of a step that spills over its memory budget: the KETTLE_SPILL_DIRECTORY
+   *         variable with its variables resolved, or the java.io.tmpdir directory when it's not set
+   * @since 10.3
+   */
+  public String getSpillDirectory() {
+    return environmentSubstitute( Const.NVL( getVariable( Const.KETTLE_SPILL_DIRECTORY ), "%%java.io.tmpdir%%" ) );
+  }
+
   /*
    * (non-Javadoc)
    *
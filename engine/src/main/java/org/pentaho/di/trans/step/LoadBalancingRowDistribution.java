@@ -0,0 +1,149 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.gui.PrimitiveGCInterface.EImage;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.util.BlockingUtil;
+
+/**
+ * Distributes the rows to the least loaded copy of the next step instead of in strict rotation. The load of a copy is
+ * the expected wait of its row set, the rows waiting divided by the rate at which the copy takes them, so a copy stuck
+ * on a slow row doesn't get new rows while the other copies are idle.<br>
+ * With a few copies the least loaded one of all is chosen, with more copies the least loaded of two random copies
+ * (power of two choices), which balances nearly as well without looking at every row set for every row.<br>
+ * The instance is shared by all copies of the step, the load is kept per copy by {@link RowDistributionLoad}.
+ *
+ * @since 10.3
+ */
+@RowDistributionPlugin( code = LoadBalancingRowDistribution.CODE, name = "Load balancing",
+  description = "Send every row to the least loaded copy of the next step" )
+public class LoadBalancingRowDistribution implements RowDistributionInterface {
+
+  public static final String CODE = "LoadBalancing";
+
+  /** Up to this number of row sets all of them are compared */
+  static final int SHORTEST_QUEUE_MAX_ROW_SETS = 4;
+
+  @Override
+  public String getCode() {
+    return CODE;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Load balancing";
+  }
+
+  @Override
+  public void distributeRow( RowMetaInterface rowMeta, Object[] row, StepInterface stepInterface )
+    throws KettleStepException {
+    RowDistributionLoad load = stepInterface.getRowDistributionLoad();
+    if ( load == null ) {
+      distributeRoundRobin( rowMeta, row, stepInterface );
+      return;
+    }
+    if ( load.getNrRowSets() == 0 ) {
+      return;
+    }
+
+    if ( load.putRow( selectRowSet( load ), rowMeta, row ) ) {
+      return;
+    }
+    // The chosen row set is full, which changes the load of all row sets: choose again until one takes the row
+    //
+    BlockingUtil.block( () -> {
+      while ( !load.putRow( selectRowSet( load ), rowMeta, row ) ) {
+        if ( stepInterface.isStopped() && !stepInterface.isSafeStopped() ) {
+          return;
+        }
+      }
+    } );
+  }
+
+  /**
+   * @return the index of the least loaded row set
+   */
+  static int selectRowSet( RowDistributionLoad load ) {
+    int nrRowSets = load.getNrRowSets();
+    if ( nrRowSets == 1 ) {
+      return 0;
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    if ( nrRowSets <= SHORTEST_QUEUE_MAX_ROW_SETS ) {
+      // Start at a random row set so ties don't always go to the first one
+      int start = random.nextInt( nrRowSets );
+      int best = start;
+      for ( int i = 1; i < nrRowSets; i++ ) {
+        int index = ( start + i ) % nrRowSets;
+        if ( isLessLoaded( load, index, best ) ) {
+          best = index;
+        }
+      }
+      return best;
+    }
+    int first = random.nextInt( nrRowSets );
+    int second = random.nextInt( nrRowSets - 1 );
+    if ( second >= first ) {
+      second++;
+    }
+    return isLessLoaded( load, second, first ) ? second : first;
+  }
+
+  private static boolean isLessLoaded( RowDistributionLoad load, int index, int other ) {
+    double wait = load.getExpectedWait( index );
+    double otherWait = load.getExpectedWait( other );
+    if ( wait != otherWait ) {
+      return wait < otherWait;
+    }
+    return load.getQueueDepth( index ) < load.getQueueDepth( other );
+  }
+
+  /**
+   * Steps that don't track their load get the rows in rotation.
+   */
+  private void distributeRoundRobin( RowMetaInterface rowMeta, Object[] row, StepInterface stepInterface ) {
+    List<RowSet> rowSets = stepInterface.getOutputRowSets();
+    if ( rowSets.isEmpty() ) {
+      return;
+    }
+    int index = stepInterface.getCurrentOutputRowSetNr() % rowSets.size();
+    RowSet rowSet = rowSets.get( index );
+    while ( !rowSet.putRow( rowMeta, row ) ) {
+      if ( stepInterface.isStopped() ) {
+        break;
+      }
+    }
+    stepInterface.setCurrentOutputRowSetNr( ( index + 1 ) % rowSets.size() );
+  }
+
+  @Override
+  public EImage getDistributionImage() {
+    return EImage.LOAD_BALANCE;
+  }
+}
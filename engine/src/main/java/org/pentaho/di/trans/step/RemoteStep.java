@@ -54,6 +54,13 @@ import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.core.xml.XMLInterface;
+import org.pentaho.di.trans.step.remote.BlockCompression;
+import org.pentaho.di.trans.step.remote.MultiplexedConnection;
+import org.pentaho.di.trans.step.remote.MultiplexedServer;
+import org.pentaho.di.trans.step.remote.RemoteStreamReader;
+import org.pentaho.di.trans.step.remote.RemoteStreamWriter;
+import org.pentaho.di.trans.step.remote.RowBatchDecoder;
+import org.pentaho.di.trans.step.remote.RowBatchEncoder;
 import org.pentaho.di.www.SocketRepository;
 import org.w3c.dom.Node;
 
@@ -71,6 +78,9 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
 
   private static final long TIMEOUT_IN_SECONDS = 30;
 
+  /** The number of row batches a multiplexed stream reader takes in advance */
+  private static final int MULTIPLEXED_WINDOW = 4;
+
   /** The target or source slave server with which we're exchanging data */
   private String targetSlaveServerName;
 
@@ -105,6 +115,10 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
   private int bufferSize;
   private boolean compressingStreams;
 
+  /** Send the rows in batches over a connection shared with the other remote steps between the same servers */
+  private boolean multiplexingStreams;
+  private MultiplexedServer multiplexedServer;
+
   private boolean encryptingStreams;
   private byte[] key;
   private CipherInputStream cipherInputStream;
@@ -180,6 +194,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     xml.append( XMLHandler.addTagValue( "port", port, false ) );
     xml.append( XMLHandler.addTagValue( "buffer_size", bufferSize, false ) );
     xml.append( XMLHandler.addTagValue( "compressed_streams", compressingStreams, false ) );
+    xml.append( XMLHandler.addTagValue( "multiplexed_streams", multiplexingStreams, false ) );
 
     xml.append( XMLHandler.addTagValue( "source_step_name", sourceStep, false ) );
     xml.append( XMLHandler.addTagValue( "source_step_copy", sourceStepCopyNr, false ) );
@@ -213,6 +228,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     port = XMLHandler.getTagValue( node, "port" );
     bufferSize = Integer.parseInt( XMLHandler.getTagValue( node, "buffer_size" ) );
     compressingStreams = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "compressed_streams" ) );
+    multiplexingStreams = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "multiplexed_streams" ) );
 
     sourceStep = XMLHandler.getTagValue( node, "source_step_name" );
     sourceStepCopyNr = Integer.parseInt( XMLHandler.getTagValue( node, "source_step_copy" ) );
@@ -289,6 +305,13 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     this.baseStep = baseStep;
     int portNumber = Integer.parseInt( baseStep.environmentSubstitute( port ) );
 
+    if ( multiplexingStreams ) {
+      // The port is shared by all the remote steps sending rows to the same server
+      //
+      multiplexedServer = MultiplexedServer.acquire( portNumber );
+      return;
+    }
+
     SocketRepository socketRepository = baseStep.getSocketRepository();
     serverSocket =
       socketRepository.openServerSocket( portNumber, baseStep.getTransMeta().getName()
@@ -341,6 +364,11 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     rowSet.setThreadNameFromToCopy( sourceStep, sourceStepCopyNr, targetStep, targetStepCopyNr );
     rowSet.setRemoteSlaveServerName( targetSlaveServerName );
 
+    if ( multiplexingStreams ) {
+      new Thread( () -> writeMultiplexedRows( rowSet ) ).start();
+      return rowSet;
+    }
+
     // Start a thread that will read out the output row set and send the data over the wire...
     // This will make everything else transparent, copying, distributing, including partitioning, etc.
     //
@@ -480,6 +508,10 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
    * Close left-over sockets, streams and so on.
    */
   public void cleanup() {
+    if ( multiplexedServer != null ) {
+      multiplexedServer.release();
+      multiplexedServer = null;
+    }
     if ( socket != null && socket.isConnected() && !socket.isClosed() ) {
       try {
         if ( socket != null && !socket.isOutputShutdown() ) {
@@ -559,6 +591,10 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     final int portNumber = Integer.parseInt( baseStep.environmentSubstitute( port ) );
     final String realHostname = baseStep.environmentSubstitute( hostname );
 
+    if ( multiplexingStreams ) {
+      return openMultiplexedReader( rowSet, realHostname, portNumber );
+    }
+
     // Connect to the server socket (started during BaseStep.init())
     // Because the accept() call on the server socket can be called after we
     // reached this code
@@ -786,6 +822,153 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     return rowSet;
   }
 
+  /**
+   * Send the rows of the row set in batches over the multiplexed connection the reader opened the stream on.
+   */
+  private void writeMultiplexedRows( BlockingRowSet rowSet ) {
+    RemoteStreamWriter writer = null;
+    try {
+      byte codec =
+        BlockCompression.getCodec( compressingStreams, baseStep.getVariable( Const.KETTLE_REMOTE_STEP_COMPRESSION ) );
+      writer = multiplexedServer.openStream( getStreamKey(), codec );
+      if ( !writer.awaitOpen( baseStep::isStopped ) ) {
+        return;
+      }
+      baseStep.logBasic( "Multiplexed stream opened on port ["
+        + port + "], reading from server " + targetSlaveServerName );
+
+      // get a row of data...
+      Object[] rowData = baseStep.getRowFrom( rowSet );
+      RowBatchEncoder encoder = null;
+      if ( rowData != null ) {
+        writer.sendMeta( rowSet.getRowMeta() );
+        encoder = new RowBatchEncoder( rowSet.getRowMeta() );
+      }
+
+      while ( rowData != null && !baseStep.isStopped() ) {
+        // It's too confusing to count these twice, so decrement
+        baseStep.decrementLinesRead();
+        baseStep.decrementLinesWritten();
+
+        encoder.addRow( rowData );
+        baseStep.incrementLinesOutput();
+
+        if ( baseStep.log.isDebug() ) {
+          baseStep.logDebug( "Sent row to port " + port + " : " + rowSet.getRowMeta().getString( rowData ) );
+        }
+
+        // Send a full batch, or what we have when no rows are waiting and the reader has room for it.
+        // While the reader is behind, the batch keeps filling up.
+        //
+        if ( encoder.isFull() || ( rowSet.size() == 0 && writer.hasCredit() ) ) {
+          if ( !writer.sendBatch( encoder.finishBatch(), baseStep::isStopped ) ) {
+            break;
+          }
+        }
+        rowData = baseStep.getRowFrom( rowSet );
+      }
+
+      if ( encoder != null && encoder.getNrRows() > 0 && !baseStep.isStopped() ) {
+        writer.sendBatch( encoder.finishBatch(), baseStep::isStopped );
+      }
+      writer.end();
+    } catch ( Exception e ) {
+      baseStep.logError( "Error writing to remote step", e );
+      baseStep.setErrors( 1 );
+      baseStep.stopAll();
+      if ( writer != null ) {
+        writer.fail( e.getMessage() );
+      }
+    } finally {
+      if ( writer != null ) {
+        writer.close();
+      }
+    }
+  }
+
+  private BlockingRowSet openMultiplexedReader( final BlockingRowSet rowSet, String realHostname, int portNumber )
+    throws KettleException {
+    // The writer opens its port during initialisation, retry until it's there
+    //
+    long startTime = System.currentTimeMillis();
+    MultiplexedConnection connection = null;
+    IOException lastException = null;
+    while ( connection == null
+      && ( TIMEOUT_IN_SECONDS > ( System.currentTimeMillis() - startTime ) / 1000 ) && !baseStep.isStopped() ) {
+      try {
+        connection = MultiplexedConnection.connect( realHostname, portNumber );
+      } catch ( IOException e ) {
+        lastException = e;
+        try {
+          Thread.sleep( 250 );
+        } catch ( InterruptedException ie ) {
+          Thread.currentThread().interrupt();
+          throw new KettleException( "Interrupted while trying to connect to server socket: " + ie.toString() );
+        }
+      }
+    }
+    if ( connection == null ) {
+      throw new KettleException( "Unable to open socket to server " + realHostname + " port " + portNumber,
+        lastException );
+    }
+
+    final RemoteStreamReader reader;
+    try {
+      reader = connection.openStream( getStreamKey(), MULTIPLEXED_WINDOW );
+    } catch ( IOException e ) {
+      throw new KettleException( "Unable to open the stream of remote step " + toString(), e );
+    }
+    baseStep.logDetailed( "Opened multiplexed stream to read rows from remote step on server "
+      + realHostname + " port " + portNumber );
+
+    new Thread( () -> readMultiplexedRows( reader, rowSet ) ).start();
+
+    return rowSet;
+  }
+
+  private void readMultiplexedRows( RemoteStreamReader reader, BlockingRowSet rowSet ) {
+    try {
+      RowMetaInterface rowMeta = reader.readMeta( baseStep::isStopped );
+      if ( rowMeta != null ) {
+        RowBatchDecoder decoder = new RowBatchDecoder( rowMeta );
+        byte[] batch = reader.readBatch( baseStep::isStopped );
+        while ( batch != null && !baseStep.isStopped() ) {
+          for ( Object[] rowData : decoder.decode( batch ) ) {
+            baseStep.incrementLinesInput();
+            baseStep.decrementLinesRead();
+
+            if ( baseStep.log.isDebug() ) {
+              baseStep.logDebug( "Received row from remote step: " + rowMeta.getString( rowData ) );
+            }
+
+            baseStep.putRowTo( rowMeta, rowData, rowSet );
+            baseStep.decrementLinesWritten();
+          }
+          batch = reader.readBatch( baseStep::isStopped );
+        }
+      }
+    } catch ( Exception e ) {
+      baseStep.logError( "Error reading from client socket to remote step", e );
+      baseStep.setErrors( 1 );
+      baseStep.stopAll();
+    } finally {
+      reader.close();
+    }
+
+    // signal baseStep that nothing else comes from this step.
+    //
+    rowSet.setDone();
+  }
+
+  /**
+   * @return the key identifying the stream of this remote step on a multiplexed connection
+   */
+  public String getStreamKey() {
+    return sourceSlaveServerName
+      + "/" + sourceStep + "." + sourceStepCopyNr + " --> " + targetSlaveServerName + "/" + targetStep + "."
+      + targetStepCopyNr;
+  }
+
   /**
    * @return the sourceStep
    */
@@ -947,6 +1130,21 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     this.rowMeta = rowMeta;
   }
 
+  /**
+   * @return true if the rows are sent in batches over a connection shared with other remote steps
+   */
+  public boolean isMultiplexingStreams() {
+    return multiplexingStreams;
+  }
+
+  /**
+   * @param multiplexingStreams
+   *          true to send the rows in batches over a connection shared with other remote steps
+   */
+  public void setMultiplexingStreams( boolean multiplexingStreams ) {
+    this.multiplexingStreams = multiplexingStreams;
+  }
+
   public boolean isEncryptingStreams() {
     return encryptingStreams;
   }
@@ -0,0 +1,169 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * The load of the output row sets of a step copy, for row distribution plugins that route rows to the least loaded
+ * copy of the next step.<br>
+ * Rows put through {@link #putRow(int, RowMetaInterface, Object[])} are counted, so the rows taken by a target copy
+ * are the rows put minus the rows still queued. The service rate of a copy is measured from the rows it took while it
+ * had rows waiting, so an idle copy doesn't look slow.<br>
+ * An instance belongs to a single step copy and is only used by its thread.
+ *
+ * @since 10.3
+ */
+public class RowDistributionLoad {
+
+  /** The minimum time between two measurements of the service rates */
+  static final long SAMPLE_INTERVAL_NANOS = 10000000L;
+
+  /** Check the clock once every so many rows */
+  private static final int SAMPLE_EVERY_ROWS = 64;
+
+  /** The weight of the last measurement in the service rate */
+  private static final double SMOOTHING = 0.3;
+
+  private final RowSet[] rowSets;
+  private final long[] nrRowsPut;
+  private final long[] lastNrRowsTaken;
+  private final int[] lastQueueDepths;
+  private final double[] serviceRates;
+
+  private long lastSampleTime;
+  private int nrRowsSinceCheck;
+
+  public RowDistributionLoad( List<RowSet> rowSets ) {
+    this.rowSets = rowSets.toArray( new RowSet[rowSets.size()] );
+    nrRowsPut = new long[this.rowSets.length];
+    lastNrRowsTaken = new long[this.rowSets.length];
+    lastQueueDepths = new int[this.rowSets.length];
+    serviceRates = new double[this.rowSets.length];
+    Arrays.fill( serviceRates, Double.NaN );
+    lastSampleTime = System.nanoTime();
+  }
+
+  /**
+   * @return true if this load is tracked for exactly these row sets, in this order
+   */
+  public boolean isFor( List<RowSet> outputRowSets ) {
+    if ( outputRowSets.size() != rowSets.length ) {
+      return false;
+    }
+    for ( int i = 0; i < rowSets.length; i++ ) {
+      if ( outputRowSets.get( i ) != rowSets[i] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int getNrRowSets() {
+    return rowSets.length;
+  }
+
+  public RowSet getRowSet( int index ) {
+    return rowSets[index];
+  }
+
+  /**
+   * @return the number of rows waiting in the row set
+   */
+  public int getQueueDepth( int index ) {
+    return rowSets[index].size();
+  }
+
+  /**
+   * @return the number of rows the target copy took from the row set
+   */
+  public long getNrRowsTaken( int index ) {
+    return nrRowsPut[index] - rowSets[index].size();
+  }
+
+  /**
+   * @return the smoothed number of rows per second the target copy takes from the row set while it has rows waiting,
+   *         NaN if it wasn't measured yet
+   */
+  public double getServiceRate( int index ) {
+    return serviceRates[index];
+  }
+
+  /**
+   * @return the estimated number of seconds before a row put now is taken by the target copy: 0 if the row set is
+   *         empty, infinite if the service rate is unknown or zero
+   */
+  public double getExpectedWait( int index ) {
+    int queueDepth = getQueueDepth( index );
+    if ( queueDepth == 0 ) {
+      return 0.0;
+    }
+    double serviceRate = serviceRates[index];
+    return serviceRate > 0.0 ? ( queueDepth + 1 ) / serviceRate : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Offer a row to a row set, waiting a short while if it's full, and count it.
+   *
+   * @return true if the row was added, false if the row set stayed full
+   */
+  public boolean putRow( int index, RowMetaInterface rowMeta, Object[] row ) {
+    RowSet rowSet = rowSets[index];
+    RowMetaInterface metaFromRs = rowSet.getRowMeta();
+    if ( !rowSet.putRow( metaFromRs == null ? rowMeta.clone() : metaFromRs, row ) ) {
+      return false;
+    }
+    nrRowsPut[index]++;
+    if ( ++nrRowsSinceCheck >= SAMPLE_EVERY_ROWS ) {
+      nrRowsSinceCheck = 0;
+      sample( System.nanoTime() );
+    }
+    return true;
+  }
+
+  /**
+   * Measure the service rates if enough time passed since the previous measurement.
+   */
+  void sample( long now ) {
+    long elapsed = now - lastSampleTime;
+    if ( elapsed < SAMPLE_INTERVAL_NANOS ) {
+      return;
+    }
+    for ( int i = 0; i < rowSets.length; i++ ) {
+      int queueDepth = rowSets[i].size();
+      long nrRowsTaken = Math.max( lastNrRowsTaken[i], nrRowsPut[i] - queueDepth );
+      if ( lastQueueDepths[i] > 0 ) {
+        double serviceRate = ( nrRowsTaken - lastNrRowsTaken[i] ) * 1000000000.0 / elapsed;
+        serviceRates[i] = Double.isNaN( serviceRates[i] )
+          ? serviceRate : SMOOTHING * serviceRate + ( 1.0 - SMOOTHING ) * serviceRates[i];
+      }
+      lastNrRowsTaken[i] = nrRowsTaken;
+      lastQueueDepths[i] = queueDepth;
+    }
+    lastSampleTime = now;
+  }
+}
@@ -23,6 +23,7 @@
 package org.pentaho.di.trans.step;
 
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
 import java.util.Map;
 
 import org.pentaho.di.core.exception.KettlePluginException;
@@ -59,7 +60,9 @@ public class RowDistributionPluginType extends BasePluginType implements PluginT
    */
   @Override
   protected void registerNatives() throws KettlePluginException {
-    // None at this moment
+    handlePluginAnnotation( LoadBalancingRowDistribution.class,
+      LoadBalancingRowDistribution.class.getAnnotation( RowDistributionPlugin.class ), new ArrayList<String>(), true,
+      null );
   }
 
   @Override
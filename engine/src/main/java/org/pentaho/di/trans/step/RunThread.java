@@ -25,6 +25,7 @@ package org.pentaho.di.trans.step;
 import java.util.List;
 
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.KettleLogStore;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
@@ -51,13 +52,7 @@ public class RunThread implements Runnable {
 
   public void run() {
     try {
-      step.setRunning( true );
-      step.getLogChannel().snap( Metrics.METRIC_STEP_EXECUTION_START );
-
-      step.beforeStartProcessing( meta, data );
-      if ( log.isDetailed() ) {
-        log.logDetailed( BaseMessages.getString( "System.Log.StartingToRun" ) );
-      }
+      startProcessing();
 
       // Wait
       while ( step.processRow( meta, data ) ) {
@@ -66,63 +61,95 @@ public class RunThread implements Runnable {
         }
       }
     } catch ( Throwable t ) {
-      try {
-        // check for OOME
-        if ( t instanceof OutOfMemoryError ) {
-          // Handle this different with as less overhead as possible to get an error message in the log.
-          // Otherwise it crashes likely with another OOME in Me$$ages.getString() and does not log
-          // nor call the setErrors() and stopAll() below.
-          log.logError( "UnexpectedError: ", t );
-        } else {
-          t.printStackTrace();
-          log.logError( BaseMessages.getString( "System.Log.UnexpectedError" ), t );
-        }
+      handleError( t );
+    } finally {
+      finishProcessing();
+    }
+  }
 
-        String logChannelId = log.getLogChannelId();
-        LoggingObjectInterface loggingObject = LoggingRegistry.getInstance().getLoggingObject( logChannelId );
-        String parentLogChannelId = loggingObject.getParent().getLogChannelId();
-        List<String> logChannelChildren = LoggingRegistry.getInstance().getLogChannelChildren( parentLogChannelId );
-        int childIndex = Const.indexOfString( log.getLogChannelId(), logChannelChildren );
-        if ( log.isDebug() ) {
-          log.logDebug( "child index = " + childIndex + ", logging object : " + loggingObject.toString() + " parent=" + parentLogChannelId );
-        }
-        KettleLogStore.getAppender().getBuffer( "2bcc6b3f-c660-4a8b-8b17-89e8cbd5b29b", false );
-        // baseStep.logError(Const.getStackTracker(t));
-      } catch ( OutOfMemoryError e ) {
-        e.printStackTrace();
-      } finally {
-        step.setErrors( 1 );
-        step.stopAll();
+  /**
+   * Marks the step as running and calls {@link StepInterface#beforeStartProcessing(StepMetaInterface,
+   * StepDataInterface)}. Call this before the first processRow().
+   *
+   * @throws KettleException in case the step can't start
+   */
+  public void startProcessing() throws KettleException {
+    step.setRunning( true );
+    step.getLogChannel().snap( Metrics.METRIC_STEP_EXECUTION_START );
+
+    step.beforeStartProcessing( meta, data );
+    if ( log.isDetailed() ) {
+      log.logDetailed( BaseMessages.getString( "System.Log.StartingToRun" ) );
+    }
+  }
+
+  /**
+   * Logs an unexpected error thrown while running the step and stops the transformation.
+   *
+   * @param t the error
+   */
+  public void handleError( Throwable t ) {
+    try {
+      // check for OOME
+      if ( t instanceof OutOfMemoryError ) {
+        // Handle this different with as less overhead as possible to get an error message in the log.
+        // Otherwise it crashes likely with another OOME in Me$$ages.getString() and does not log
+        // nor call the setErrors() and stopAll() below.
+        log.logError( "UnexpectedError: ", t );
+      } else {
+        t.printStackTrace();
+        log.logError( BaseMessages.getString( "System.Log.UnexpectedError" ), t );
+      }
+
+      String logChannelId = log.getLogChannelId();
+      LoggingObjectInterface loggingObject = LoggingRegistry.getInstance().getLoggingObject( logChannelId );
+      String parentLogChannelId = loggingObject.getParent().getLogChannelId();
+      List<String> logChannelChildren = LoggingRegistry.getInstance().getLogChannelChildren( parentLogChannelId );
+      int childIndex = Const.indexOfString( log.getLogChannelId(), logChannelChildren );
+      if ( log.isDebug() ) {
+        log.logDebug( "child index = " + childIndex + ", logging object : " + loggingObject.toString() + " parent=" + parentLogChannelId );
       }
+      KettleLogStore.getAppender().getBuffer( "2bcc6b3f-c660-4a8b-8b17-89e8cbd5b29b", false );
+      // baseStep.logError(Const.getStackTracker(t));
+    } catch ( OutOfMemoryError e ) {
+      e.printStackTrace();
     } finally {
-      step.afterFinishProcessing( meta, data );
-      step.dispose( meta, data );
-      step.getLogChannel().snap( Metrics.METRIC_STEP_EXECUTION_STOP );
-      try {
-        long li = step.getLinesInput();
-        long lo = step.getLinesOutput();
-        long lr = step.getLinesRead();
-        long lw = step.getLinesWritten();
-        long lu = step.getLinesUpdated();
-        long lj = step.getLinesRejected();
-        long e = step.getErrors();
-        if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || e > 0 ) {
-          log.logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ),
-            String.valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ),
-            String.valueOf( lu ), String.valueOf( e + lj ) ) );
-        } else {
-          log.logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ),
-            String.valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ),
-            String.valueOf( lu ), String.valueOf( e + lj ) ) );
-        }
-      } catch ( Throwable t ) {
-        //
-        // it's likely an OOME, so we don't want to introduce overhead by using BaseMessages.getString(), see above
-        //
-        log.logError( "UnexpectedError: " + Const.getStackTracker( t ) );
-      } finally {
-        step.markStop();
+      step.setErrors( 1 );
+      step.stopAll();
+    }
+  }
+
+  /**
+   * Disposes the step, logs its summary and marks it as stopped. Call this once after the last processRow().
+   */
+  public void finishProcessing() {
+    step.afterFinishProcessing( meta, data );
+    step.dispose( meta, data );
+    step.getLogChannel().snap( Metrics.METRIC_STEP_EXECUTION_STOP );
+    try {
+      long li = step.getLinesInput();
+      long lo = step.getLinesOutput();
+      long lr = step.getLinesRead();
+      long lw = step.getLinesWritten();
+      long lu = step.getLinesUpdated();
+      long lj = step.getLinesRejected();
+      long e = step.getErrors();
+      if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || e > 0 ) {
+        log.logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ),
+          String.valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ),
+          String.valueOf( lu ), String.valueOf( e + lj ) ) );
+      } else {
+        log.logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ),
+          String.valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ),
+          String.valueOf( lu ), String.valueOf( e + lj ) ) );
       }
+    } catch ( Throwable t ) {
+      //
+      // it's likely an OOME, so we don't want to introduce overhead by using BaseMessages.getString(), see above
+      //
+      log.logError( "UnexpectedError: " + Const.getStackTracker( t ) );
+    } finally {
+      step.markStop();
     }
   }
 }
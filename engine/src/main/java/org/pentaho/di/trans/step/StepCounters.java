@@ -0,0 +1,224 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The line counters of a step copy. The step thread updates these on every row while monitoring (Carte status,
+ * performance snapshots, the UI) reads them. The counters are striped {@link LongAdder}s so neither side ever waits for
+ * the other.<br>
+ * <br>
+ * Readers that need several counters at once should use {@link #snapshot()}. Each value in a snapshot is read exactly
+ * once so the values can be compared and combined without racing the step thread between two reads. The counters are
+ * read one after the other though: while the step is running a snapshot is approximate, the counters read last can
+ * include a few rows more than the ones read first.
+ *
+ * @since 10.3
+ */
+public class StepCounters {
+
+  private final LongAdder linesRead = new LongAdder();
+  private final LongAdder linesWritten = new LongAdder();
+  private final LongAdder linesInput = new LongAdder();
+  private final LongAdder linesOutput = new LongAdder();
+  private final LongAdder linesUpdated = new LongAdder();
+  private final LongAdder linesSkipped = new LongAdder();
+  private final LongAdder linesRejected = new LongAdder();
+
+  /**
+   * A point in time copy of the counters of a step copy.
+   */
+  public static final class Snapshot {
+    private final long linesRead;
+    private final long linesWritten;
+    private final long linesInput;
+    private final long linesOutput;
+    private final long linesUpdated;
+    private final long linesSkipped;
+    private final long linesRejected;
+
+    public Snapshot( long linesRead, long linesWritten, long linesInput, long linesOutput, long linesUpdated,
+      long linesSkipped, long linesRejected ) {
+      this.linesRead = linesRead;
+      this.linesWritten = linesWritten;
+      this.linesInput = linesInput;
+      this.linesOutput = linesOutput;
+      this.linesUpdated = linesUpdated;
+      this.linesSkipped = linesSkipped;
+      this.linesRejected = linesRejected;
+    }
+
+    public long getLinesRead() {
+      return linesRead;
+    }
+
+    public long getLinesWritten() {
+      return linesWritten;
+    }
+
+    public long getLinesInput() {
+      return linesInput;
+    }
+
+    public long getLinesOutput() {
+      return linesOutput;
+    }
+
+    public long getLinesUpdated() {
+      return linesUpdated;
+    }
+
+    public long getLinesSkipped() {
+      return linesSkipped;
+    }
+
+    public long getLinesRejected() {
+      return linesRejected;
+    }
+  }
+
+  /**
+   * @return a copy of all the counters, taken without blocking the step. This is exact once the step stopped counting
+   *         and approximate while it runs.
+   */
+  public Snapshot snapshot() {
+    return new Snapshot( linesRead.sum(), linesWritten.sum(), linesInput.sum(), linesOutput.sum(),
+      linesUpdated.sum(), linesSkipped.sum(), linesRejected.sum() );
+  }
+
+  /**
+   * Resets all the counters to 0.
+   */
+  public void reset() {
+    linesRead.reset();
+    linesWritten.reset();
+    linesInput.reset();
+    linesOutput.reset();
+    linesUpdated.reset();
+    linesSkipped.reset();
+    linesRejected.reset();
+  }
+
+  /**
+   * Adds a number of lines to a counter and returns the new total. The total is exact when the step thread is the only
+   * one updating the counter, which is the normal case.
+   */
+  private static long add( LongAdder adder, long nrLines ) {
+    adder.add( nrLines );
+    return adder.sum();
+  }
+
+  /**
+   * Sets a counter to a new value. Updates done by other threads at the same time can get lost, this is meant for
+   * initialization and corrections by the step itself.
+   */
+  private static void set( LongAdder adder, long value ) {
+    adder.reset();
+    adder.add( value );
+  }
+
+  public long getLinesRead() {
+    return linesRead.sum();
+  }
+
+  public long addLinesRead( long nrLines ) {
+    return add( linesRead, nrLines );
+  }
+
+  public void setLinesRead( long value ) {
+    set( linesRead, value );
+  }
+
+  public long getLinesWritten() {
+    return linesWritten.sum();
+  }
+
+  public long addLinesWritten( long nrLines ) {
+    return add( linesWritten, nrLines );
+  }
+
+  public void setLinesWritten( long value ) {
+    set( linesWritten, value );
+  }
+
+  public long getLinesInput() {
+    return linesInput.sum();
+  }
+
+  public long addLinesInput( long nrLines ) {
+    return add( linesInput, nrLines );
+  }
+
+  public void setLinesInput( long value ) {
+    set( linesInput, value );
+  }
+
+  public long getLinesOutput() {
+    return linesOutput.sum();
+  }
+
+  public long addLinesOutput( long nrLines ) {
+    return add( linesOutput, nrLines );
+  }
+
+  public void setLinesOutput( long value ) {
+    set( linesOutput, value );
+  }
+
+  public long getLinesUpdated() {
+    return linesUpdated.sum();
+  }
+
+  public long addLinesUpdated( long nrLines ) {
+    return add( linesUpdated, nrLines );
+  }
+
+  public void setLinesUpdated( long value ) {
+    set( linesUpdated, value );
+  }
+
+  public long getLinesSkipped() {
+    return linesSkipped.sum();
+  }
+
+  public long addLinesSkipped( long nrLines ) {
+    return add( linesSkipped, nrLines );
+  }
+
+  public void setLinesSkipped( long value ) {
+    set( linesSkipped, value );
+  }
+
+  public long getLinesRejected() {
+    return linesRejected.sum();
+  }
+
+  public long addLinesRejected( long nrLines ) {
+    return add( linesRejected, nrLines );
+  }
+
+  public void setLinesRejected( long value ) {
+    set( linesRejected, value );
+  }
+}
@@ -255,6 +255,16 @@ public interface StepInterface extends VariableSpace, HasLogChannelInterface {
    */
   long getLinesRead();
 
+  /**
+   * Monitoring code should use this method to get all the line counters of a step at once.
+   *
+   * @return a copy of the line counters of this step.
+   */
+  default StepCounters.Snapshot getCountersSnapshot() {
+    return new StepCounters.Snapshot( getLinesRead(), getLinesWritten(), getLinesInput(), getLinesOutput(),
+      getLinesUpdated(), 0L, getLinesRejected() );
+  }
+
   /**
    * @return Returns the linesWritten.
    */
@@ -289,6 +299,44 @@ public interface StepInterface extends VariableSpace, HasLogChannelInterface {
    */
   Object[] getRow() throws KettleException;
 
+  /**
+   * Put a batch of rows on the destination rowsets. By default this puts the rows one by one.
+   *
+   * @param rowMeta
+   *          The description of the rows
+   * @param rows
+   *          The buffer holding the rows to send to the destination steps
+   * @param nrRows
+   *          The number of rows to send, starting at the beginning of the buffer
+   */
+  default void putRows( RowMetaInterface rowMeta, Object[][] rows, int nrRows ) throws KettleException {
+    for ( int i = 0; i < nrRows; i++ ) {
+      putRow( rowMeta, rows[i] );
+    }
+  }
+
+  /**
+   * Get a batch of rows from the source step(s). This waits for at least one row just like {@link #getRow()}. By
+   * default only that single row is returned.
+   *
+   * @param rows
+   *          The buffer to store the rows in
+   * @param maxRows
+   *          The maximum number of rows to get
+   * @return the number of rows stored at the beginning of the buffer or 0 if there is no more input.
+   */
+  default int getRows( Object[][] rows, int maxRows ) throws KettleException {
+    if ( maxRows <= 0 ) {
+      return 0;
+    }
+    Object[] row = getRow();
+    if ( row == null ) {
+      return 0;
+    }
+    rows[0] = row;
+    return 1;
+  }
+
   /**
    * Signal output done to destination steps
    */
@@ -505,4 +553,13 @@ public interface StepInterface extends VariableSpace, HasLogChannelInterface {
     getOutputRowSets().add( rowSet );
   }
 
+  /**
+   * Row distribution plugins use this to route rows on the queue depth and service rate of the next step copies.
+   *
+   * @return the load of the output row sets of this step copy, or null if this step doesn't track it.
+   */
+  default RowDistributionLoad getRowDistributionLoad() {
+    return null;
+  }
+
 }
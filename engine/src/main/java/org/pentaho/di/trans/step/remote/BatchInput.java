@@ -0,0 +1,133 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step.remote;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the encodings written by {@link BatchOutput} from a byte array.
+ *
+ * @since 10.3
+ */
+class BatchInput extends InputStream {
+  private final byte[] buffer;
+  private final int end;
+  private int position;
+
+  BatchInput( byte[] buffer, int offset, int length ) {
+    this.buffer = buffer;
+    this.position = offset;
+    this.end = offset + length;
+  }
+
+  @Override
+  public int read() {
+    return position < end ? buffer[position++] & 0xFF : -1;
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len ) {
+    if ( position >= end ) {
+      return -1;
+    }
+    int n = Math.min( len, end - position );
+    System.arraycopy( buffer, position, b, off, n );
+    position += n;
+    return n;
+  }
+
+  @Override
+  public int available() {
+    return end - position;
+  }
+
+  int readByte() throws IOException {
+    if ( position >= end ) {
+      throw new EOFException( "Unexpected end of row batch" );
+    }
+    return buffer[position++] & 0xFF;
+  }
+
+  long readVarLong() throws IOException {
+    long value = 0L;
+    for ( int shift = 0; shift < 64; shift += 7 ) {
+      int b = readByte();
+      value |= (long) ( b & 0x7F ) << shift;
+      if ( ( b & 0x80 ) == 0 ) {
+        return value;
+      }
+    }
+    throw new IOException( "Malformed variable length value in row batch" );
+  }
+
+  int readLength() throws IOException {
+    long length = readVarLong();
+    if ( length < 0 || length > end - position ) {
+      throw new EOFException( "Length " + length + " exceeds the remaining row batch" );
+    }
+    return (int) length;
+  }
+
+  long readZigZag() throws IOException {
+    long value = readVarLong();
+    return ( value >>> 1 ) ^ -( value & 1 );
+  }
+
+  long readLong() throws IOException {
+    long value = 0L;
+    for ( int i = 0; i < 8; i++ ) {
+      value = ( value << 8 ) | readByte();
+    }
+    return value;
+  }
+
+  byte[] readBytes() throws IOException {
+    int length = readLength();
+    byte[] bytes = new byte[length];
+    System.arraycopy( buffer, position, bytes, 0, length );
+    position += length;
+    return bytes;
+  }
+
+  /**
+   * @return a view of the next length bytes, which are skipped
+   */
+  BatchInput slice( int length ) throws IOException {
+    if ( length < 0 || length > end - position ) {
+      throw new EOFException( "Length " + length + " exceeds the remaining row batch" );
+    }
+    BatchInput slice = new BatchInput( buffer, position, length );
+    position += length;
+    return slice;
+  }
+
+  String readString() throws IOException {
+    int length = readLength();
+    String string = new String( buffer, position, length, StandardCharsets.UTF_8 );
+    position += length;
+    return string;
+  }
+}
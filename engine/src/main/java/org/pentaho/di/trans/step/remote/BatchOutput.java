@@ -0,0 +1,106 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step.remote;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A growable byte array with the variable length encodings used by the row batches.
+ *
+ * @since 10.3
+ */
+class BatchOutput extends OutputStream {
+  private byte[] buffer;
+  private int size;
+
+  BatchOutput( int capacity ) {
+    buffer = new byte[Math.max( capacity, 16 )];
+  }
+
+  @Override
+  public void write( int b ) {
+    ensureCapacity( size + 1 );
+    buffer[size++] = (byte) b;
+  }
+
+  @Override
+  public void write( byte[] b, int off, int len ) {
+    ensureCapacity( size + len );
+    System.arraycopy( b, off, buffer, size, len );
+    size += len;
+  }
+
+  /**
+   * Write an unsigned value in 7 bit groups, least significant group first.
+   */
+  void writeVarLong( long value ) {
+    ensureCapacity( size + 10 );
+    while ( ( value & ~0x7FL ) != 0 ) {
+      buffer[size++] = (byte) ( ( value & 0x7F ) | 0x80 );
+      value >>>= 7;
+    }
+    buffer[size++] = (byte) value;
+  }
+
+  /**
+   * Write a signed value so that small negative values take few bytes as well.
+   */
+  void writeZigZag( long value ) {
+    writeVarLong( ( value << 1 ) ^ ( value >> 63 ) );
+  }
+
+  void writeLong( long value ) {
+    ensureCapacity( size + 8 );
+    for ( int shift = 56; shift >= 0; shift -= 8 ) {
+      buffer[size++] = (byte) ( value >>> shift );
+    }
+  }
+
+  void writeBytes( byte[] bytes ) {
+    writeVarLong( bytes.length );
+    write( bytes, 0, bytes.length );
+  }
+
+  void writeTo( BatchOutput output ) {
+    output.write( buffer, 0, size );
+  }
+
+  int size() {
+    return size;
+  }
+
+  void reset() {
+    size = 0;
+  }
+
+  byte[] toByteArray() {
+    return Arrays.copyOf( buffer, size );
+  }
+
+  private void ensureCapacity( int capacity ) {
+    if ( capacity > buffer.length ) {
+      buffer = Arrays.copyOf( buffer, Math.max( capacity, buffer.length * 2 ) );
+    }
+  }
+}
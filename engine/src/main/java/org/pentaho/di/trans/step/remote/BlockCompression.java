@@ -0,0 +1,131 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step.remote;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdUtils;
+
+/**
+ * Compresses the row batches of a multiplexed stream one by one.<br>
+ * A compressed block starts with the codec and the uncompressed length, so the receiving side doesn't need to know
+ * which codec the sender picked. Blocks that don't get smaller are sent uncompressed.
+ *
+ * @since 10.3
+ */
+public final class BlockCompression {
+  public static final byte NONE = 0;
+  public static final byte LZ4 = 1;
+  public static final byte ZSTD = 2;
+
+  /** Smaller blocks are not worth compressing */
+  private static final int MIN_COMPRESSED_SIZE = 256;
+
+  private BlockCompression() {
+  }
+
+  /**
+   * @param compressing
+   *          true if the streams should be compressed
+   * @param codecName
+   *          LZ4 or ZSTD, ZSTD falls back to LZ4 when the zstd-jni library is not available
+   * @return the codec to compress the blocks with
+   */
+  public static byte getCodec( boolean compressing, String codecName ) {
+    if ( !compressing ) {
+      return NONE;
+    }
+    if ( "ZSTD".equalsIgnoreCase( codecName ) && ZstdUtils.isZstdCompressionAvailable() ) {
+      return ZSTD;
+    }
+    return LZ4;
+  }
+
+  /**
+   * @return the block to send for the given data
+   */
+  public static byte[] compress( byte codec, byte[] data ) throws IOException {
+    BatchOutput block = new BatchOutput( data.length + 16 );
+    if ( codec != NONE && data.length >= MIN_COMPRESSED_SIZE ) {
+      block.write( codec );
+      block.writeVarLong( data.length );
+      int headerSize = block.size();
+      try ( OutputStream out = codec == ZSTD ? new ZstdCompressorOutputStream( block )
+        : new BlockLZ4CompressorOutputStream( block ) ) {
+        out.write( data );
+      }
+      if ( block.size() - headerSize < data.length ) {
+        return block.toByteArray();
+      }
+      block.reset();
+    }
+    block.write( NONE );
+    block.writeVarLong( data.length );
+    block.write( data, 0, data.length );
+    return block.toByteArray();
+  }
+
+  /**
+   * @return the data of a block created by {@link #compress(byte, byte[])}
+   */
+  public static byte[] decompress( byte[] block ) throws IOException {
+    BatchInput input = new BatchInput( block, 0, block.length );
+    int codec = input.readByte();
+    long length = input.readVarLong();
+    if ( length < 0 || length > Integer.MAX_VALUE ) {
+      throw new IOException( "Invalid block length " + length );
+    }
+    byte[] data = new byte[(int) length];
+    InputStream in;
+    switch ( codec ) {
+      case NONE:
+        in = input;
+        break;
+      case LZ4:
+        in = new BlockLZ4CompressorInputStream( input );
+        break;
+      case ZSTD:
+        in = new ZstdCompressorInputStream( input );
+        break;
+      default:
+        throw new IOException( "Unknown block compression codec " + codec );
+    }
+    try ( InputStream blockIn = in ) {
+      int offset = 0;
+      while ( offset < data.length ) {
+        int n = blockIn.read( data, offset, data.length - offset );
+        if ( n < 0 ) {
+          throw new IOException( "Block ended after " + offset + " of " + data.length + " bytes" );
+        }
+        offset += n;
+      }
+    }
+    return data;
+  }
+}
@@ -0,0 +1,295 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step.remote;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.di.core.util.ExecutorUtil;
+
+/**
+ * A connection between two JVMs carrying any number of remote step streams.<br>
+ * Every message is a frame with the payload length, the frame type and the id of the stream it belongs to. The
+ * connecting side opens the streams and grants the sending side credits, one per row batch it has room for. That way a
+ * stream whose reader falls behind never holds up the other streams of the connection.
+ *
+ * @since 10.3
+ */
+public class MultiplexedConnection {
+  /** Opens a stream: the initial number of credits and the stream key */
+  static final byte OPEN = 1;
+  /** The row metadata of a stream */
+  static final byte META = 2;
+  /** A compressed row batch */
+  static final byte DATA = 3;
+  /** The number of row batches the reader has room for */
+  static final byte CREDIT = 4;
+  /** No more row batches follow */
+  static final byte END = 5;
+  /** The sending side failed, with the error message */
+  static final byte ERROR = 6;
+  /** The reader stopped reading */
+  static final byte CANCEL = 7;
+
+  private static final int HEADER_SIZE = 9;
+  private static final int MAX_FRAME_SIZE = 256 * 1024 * 1024;
+  private static final int CONNECT_TIMEOUT_MS = 5000;
+
+  /** The connections opened from this JVM, by host and port */
+  private static final Map<String, MultiplexedConnection> connections = new HashMap<>();
+
+  private final SocketChannel channel;
+  private final MultiplexedServer server;
+  private final String connectionKey;
+  private final Map<Integer, RemoteStreamReader> readers = new ConcurrentHashMap<>();
+  private final Map<Integer, RemoteStreamWriter> writers = new ConcurrentHashMap<>();
+  private final AtomicInteger lastStreamId = new AtomicInteger();
+  private final ByteBuffer writeHeader = ByteBuffer.allocate( HEADER_SIZE );
+  private int nrUsers;
+  private volatile boolean closed;
+
+  MultiplexedConnection( SocketChannel channel, MultiplexedServer server, String connectionKey ) throws IOException {
+    this.channel = channel;
+    this.server = server;
+    this.connectionKey = connectionKey;
+    channel.configureBlocking( true );
+    // The rows are batched already
+    channel.socket().setTcpNoDelay( true );
+  }
+
+  /**
+   * Get the connection to a multiplexed server, connecting if there is no connection yet.<br>
+   * Every call needs a matching {@link #release()}, which happens when a stream opened with
+   * {@link #openStream(String, int)} is closed.
+   *
+   * @return the shared connection to the given host and port
+   * @throws IOException
+   *           if the connection can't be made
+   */
+  public static MultiplexedConnection connect( String hostname, int port ) throws IOException {
+    String key = hostname + ":" + port;
+    synchronized ( connections ) {
+      MultiplexedConnection connection = connections.get( key );
+      if ( connection == null || connection.closed ) {
+        SocketChannel channel = SocketChannel.open();
+        try {
+          channel.socket().connect( new InetSocketAddress( hostname, port ), CONNECT_TIMEOUT_MS );
+          connection = new MultiplexedConnection( channel, null, key );
+        } catch ( IOException e ) {
+          channel.close();
+          throw e;
+        }
+        connections.put( key, connection );
+        connection.start();
+      }
+      connection.nrUsers++;
+      return connection;
+    }
+  }
+
+  /**
+   * Open a stream to read the rows of the remote step with the given key.
+   *
+   * @param streamKey
+   *          identifies the remote step on the server
+   * @param window
+   *          the number of row batches the reader takes in advance
+   */
+  public RemoteStreamReader openStream( String streamKey, int window ) throws IOException {
+    int streamId = lastStreamId.incrementAndGet();
+    RemoteStreamReader reader = new RemoteStreamReader( this, streamId );
+    readers.put( streamId, reader );
+    byte[] key = streamKey.getBytes( StandardCharsets.UTF_8 );
+    ByteBuffer payload = ByteBuffer.allocate( 4 + key.length );
+    payload.putInt( window ).put( key );
+    try {
+      send( OPEN, streamId, payload.array() );
+    } catch ( IOException e ) {
+      closeStream( reader );
+      throw e;
+    }
+    return reader;
+  }
+
+  void closeStream( RemoteStreamReader reader ) {
+    readers.remove( reader.getStreamId() );
+    release();
+  }
+
+  /**
+   * Release a connection obtained with {@link #connect(String, int)}, closing it when it's no longer used.
+   */
+  public void release() {
+    synchronized ( connections ) {
+      if ( --nrUsers <= 0 ) {
+        connections.remove( connectionKey, this );
+        close();
+      }
+    }
+  }
+
+  void addWriter( int streamId, RemoteStreamWriter writer ) {
+    writers.put( streamId, writer );
+  }
+
+  void removeWriter( int streamId ) {
+    writers.remove( streamId );
+  }
+
+  void sendCredit( int streamId, int credits ) throws IOException {
+    send( CREDIT, streamId, ByteBuffer.allocate( 4 ).putInt( credits ).array() );
+  }
+
+  void send( byte type, int streamId, byte[] payload ) throws IOException {
+    synchronized ( writeHeader ) {
+      if ( closed ) {
+        throw new IOException( "The connection to " + channel.socket().getRemoteSocketAddress() + " is closed" );
+      }
+      writeHeader.clear();
+      writeHeader.putInt( payload.length ).put( type ).putInt( streamId ).flip();
+      ByteBuffer[] buffers = new ByteBuffer[] { writeHeader, ByteBuffer.wrap( payload ) };
+      long remaining = HEADER_SIZE + payload.length;
+      while ( remaining > 0 ) {
+        remaining -= channel.write( buffers );
+      }
+    }
+  }
+
+  void start() {
+    ExecutorUtil.getExecutor().submit( this::readFrames );
+  }
+
+  /**
+   * Reads the frames of all streams and hands them to the streams. This never waits for a stream: the credits limit
+   * what a stream can receive.
+   */
+  private void readFrames() {
+    String failure = "The connection was closed";
+    ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+    try {
+      while ( !closed ) {
+        header.clear();
+        if ( !readFully( header, true ) ) {
+          break;
+        }
+        header.flip();
+        int length = header.getInt();
+        byte type = header.get();
+        int streamId = header.getInt();
+        if ( length < 0 || length > MAX_FRAME_SIZE ) {
+          throw new IOException( "Invalid frame length " + length );
+        }
+        ByteBuffer payload = ByteBuffer.allocate( length );
+        readFully( payload, false );
+        dispatch( type, streamId, payload.array() );
+      }
+    } catch ( IOException e ) {
+      failure = "The connection failed: " + e.getMessage();
+    } finally {
+      close();
+      for ( RemoteStreamReader reader : readers.values() ) {
+        reader.connectionClosed( failure );
+      }
+      for ( RemoteStreamWriter writer : writers.values() ) {
+        writer.connectionClosed();
+      }
+      if ( server != null ) {
+        server.connectionClosed( this );
+      }
+    }
+  }
+
+  private boolean readFully( ByteBuffer buffer, boolean endAllowed ) throws IOException {
+    while ( buffer.hasRemaining() ) {
+      if ( channel.read( buffer ) < 0 ) {
+        if ( endAllowed && buffer.position() == 0 ) {
+          return false;
+        }
+        throw new EOFException( "Unexpected end of stream in the middle of a frame" );
+      }
+    }
+    return true;
+  }
+
+  private void dispatch( byte type, int streamId, byte[] payload ) throws IOException {
+    switch ( type ) {
+      case OPEN:
+        if ( server == null ) {
+          throw new IOException( "Unexpected request to open a stream" );
+        }
+        ByteBuffer open = ByteBuffer.wrap( payload );
+        int window = open.getInt();
+        String streamKey = new String( payload, 4, payload.length - 4, StandardCharsets.UTF_8 );
+        server.openRequested( this, streamId, window, streamKey );
+        break;
+      case CREDIT:
+        RemoteStreamWriter writer = writers.get( streamId );
+        if ( writer != null ) {
+          writer.addCredits( ByteBuffer.wrap( payload ).getInt() );
+        }
+        break;
+      case CANCEL:
+        RemoteStreamWriter cancelled = writers.remove( streamId );
+        if ( cancelled != null ) {
+          cancelled.cancel();
+        }
+        break;
+      case META:
+      case DATA:
+      case END:
+      case ERROR:
+        // The reader may have stopped already
+        RemoteStreamReader reader = readers.get( streamId );
+        if ( reader != null ) {
+          reader.receive( type, payload );
+        }
+        break;
+      default:
+        throw new IOException( "Unknown frame type " + type );
+    }
+  }
+
+  /**
+   * Close the connection, the streams still using it fail.
+   */
+  public void close() {
+    closed = true;
+    try {
+      channel.close();
+    } catch ( IOException e ) {
+      // Ignore errors
+    }
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+}
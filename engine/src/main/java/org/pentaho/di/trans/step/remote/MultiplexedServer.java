@@ -0,0 +1,203 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step.remote;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.pentaho.di.core.util.ExecutorUtil;
+
+/**
+ * Accepts the multiplexed connections on a port and hands the streams the readers open to the remote steps writing
+ * them, whichever comes first.<br>
+ * All the remote steps of a JVM sending rows over the same port share one server.
+ *
+ * @since 10.3
+ */
+public class MultiplexedServer {
+  /** The servers of this JVM by port */
+  private static final Map<Integer, MultiplexedServer> servers = new HashMap<>();
+
+  private final int port;
+  private final ServerSocketChannel serverChannel;
+  private final List<MultiplexedConnection> connections = new CopyOnWriteArrayList<>();
+  private final Map<String, RemoteStreamWriter> writers = new HashMap<>();
+  private final Map<String, OpenRequest> openRequests = new HashMap<>();
+  private int nrUsers;
+
+  private MultiplexedServer( int port ) throws IOException {
+    this.port = port;
+    serverChannel = ServerSocketChannel.open();
+    try {
+      serverChannel.socket().setReuseAddress( true );
+      serverChannel.bind( new InetSocketAddress( port ) );
+    } catch ( IOException e ) {
+      serverChannel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Get the server listening on the given port, starting it if needed. Every call needs a matching
+   * {@link #release()}.
+   */
+  public static MultiplexedServer acquire( int port ) throws IOException {
+    synchronized ( servers ) {
+      MultiplexedServer server = servers.get( port );
+      if ( server == null ) {
+        server = new MultiplexedServer( port );
+        servers.put( port, server );
+        ExecutorUtil.getExecutor().submit( server::accept );
+      }
+      server.nrUsers++;
+      return server;
+    }
+  }
+
+  /**
+   * Release a server obtained with {@link #acquire(int)}, closing it with its connections when it's no longer used.
+   */
+  public void release() {
+    synchronized ( servers ) {
+      if ( --nrUsers <= 0 ) {
+        servers.remove( port, this );
+        close();
+      }
+    }
+  }
+
+  /**
+   * Register a stream to be opened by a reader.
+   *
+   * @param streamKey
+   *          identifies the stream for the reader
+   * @param codec
+   *          the {@link BlockCompression} codec for the row batches
+   */
+  public synchronized RemoteStreamWriter openStream( String streamKey, byte codec ) {
+    RemoteStreamWriter writer = new RemoteStreamWriter( this, streamKey, codec );
+    OpenRequest request = openRequests.remove( streamKey );
+    if ( request == null ) {
+      writers.put( streamKey, writer );
+    } else {
+      bind( writer, request );
+    }
+    return writer;
+  }
+
+  synchronized void openRequested( MultiplexedConnection connection, int streamId, int window, String streamKey ) {
+    OpenRequest request = new OpenRequest( connection, streamId, window );
+    RemoteStreamWriter writer = writers.remove( streamKey );
+    if ( writer == null ) {
+      openRequests.put( streamKey, request );
+    } else {
+      bind( writer, request );
+    }
+  }
+
+  private void bind( RemoteStreamWriter writer, OpenRequest request ) {
+    request.connection.addWriter( request.streamId, writer );
+    writer.opened( request.connection, request.streamId, request.window );
+  }
+
+  synchronized void closeStream( RemoteStreamWriter writer ) {
+    writers.remove( writer.getStreamKey(), writer );
+    MultiplexedConnection connection = writer.getConnection();
+    if ( connection != null ) {
+      connection.removeWriter( writer.getStreamId() );
+    }
+  }
+
+  synchronized void connectionClosed( MultiplexedConnection connection ) {
+    connections.remove( connection );
+    for ( Iterator<OpenRequest> iterator = openRequests.values().iterator(); iterator.hasNext(); ) {
+      if ( iterator.next().connection == connection ) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private void accept() {
+    while ( serverChannel.isOpen() ) {
+      SocketChannel channel;
+      try {
+        channel = serverChannel.accept();
+      } catch ( IOException e ) {
+        // Closed by release()
+        continue;
+      }
+      try {
+        MultiplexedConnection connection = new MultiplexedConnection( channel, this, null );
+        connections.add( connection );
+        connection.start();
+      } catch ( IOException e ) {
+        try {
+          channel.close();
+        } catch ( IOException e1 ) {
+          // Ignore errors
+        }
+      }
+    }
+  }
+
+  private void close() {
+    try {
+      serverChannel.close();
+    } catch ( IOException e ) {
+      // Ignore errors
+    }
+    for ( MultiplexedConnection connection : connections ) {
+      connection.close();
+    }
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  /**
+   * @return the number of open connections
+   */
+  public int getNrConnections() {
+    return connections.size();
+  }
+
+  private static class OpenRequest {
+    private final MultiplexedConnection connection;
+    private final int streamId;
+    private final int window;
+
+    OpenRequest( MultiplexedConnection connection, int streamId, int window ) {
+      this.connection = connection;
+      this.streamId = streamId;
+      this.window = window;
+    }
+  }
+}
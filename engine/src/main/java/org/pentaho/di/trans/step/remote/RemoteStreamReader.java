@@ -0,0 +1,173 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step.remote;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * The receiving end of a remote step stream on a {@link MultiplexedConnection}.<br>
+ * Row batches are decompressed by the thread reading them, not by the thread of the connection.
+ *
+ * @since 10.3
+ */
+public class RemoteStreamReader {
+  private static final long POLL_MS = 100L;
+
+  private final MultiplexedConnection connection;
+  private final int streamId;
+  private final BlockingQueue<Frame> frames = new LinkedBlockingQueue<>();
+  private boolean ended;
+  private boolean closed;
+
+  RemoteStreamReader( MultiplexedConnection connection, int streamId ) {
+    this.connection = connection;
+    this.streamId = streamId;
+  }
+
+  int getStreamId() {
+    return streamId;
+  }
+
+  void receive( byte type, byte[] payload ) {
+    frames.add( new Frame( type, payload ) );
+  }
+
+  void connectionClosed( String message ) {
+    frames.add( new Frame( MultiplexedConnection.ERROR, message.getBytes( StandardCharsets.UTF_8 ) ) );
+  }
+
+  /**
+   * @param stopped
+   *          tells when to stop waiting
+   * @return the row metadata of the stream or null if the stream ended without rows or the reader was stopped
+   * @throws KettleException
+   *           if the sending side failed
+   */
+  public RowMetaInterface readMeta( BooleanSupplier stopped ) throws KettleException {
+    Frame frame = next( stopped );
+    if ( frame == null ) {
+      return null;
+    }
+    if ( frame.type != MultiplexedConnection.META ) {
+      throw new KettleException( "Expected the row metadata of the remote step stream, received frame type "
+        + frame.type );
+    }
+    try {
+      return new RowMeta( new DataInputStream( new ByteArrayInputStream( frame.payload ) ) );
+    } catch ( IOException e ) {
+      throw new KettleException( e );
+    }
+  }
+
+  /**
+   * @param stopped
+   *          tells when to stop waiting
+   * @return the next row batch or null at the end of the stream or if the reader was stopped
+   * @throws KettleException
+   *           if the sending side failed
+   */
+  public byte[] readBatch( BooleanSupplier stopped ) throws KettleException {
+    Frame frame = next( stopped );
+    if ( frame == null ) {
+      return null;
+    }
+    if ( frame.type != MultiplexedConnection.DATA ) {
+      throw new KettleException( "Expected a row batch, received frame type " + frame.type );
+    }
+    try {
+      // The batch left the queue: there is room for another one
+      connection.sendCredit( streamId, 1 );
+      return BlockCompression.decompress( frame.payload );
+    } catch ( IOException e ) {
+      throw new KettleException( "Unable to read a row batch from the remote step stream", e );
+    }
+  }
+
+  private Frame next( BooleanSupplier stopped ) throws KettleException {
+    if ( ended ) {
+      return null;
+    }
+    try {
+      while ( !stopped.getAsBoolean() ) {
+        Frame frame = frames.poll( POLL_MS, TimeUnit.MILLISECONDS );
+        if ( frame == null ) {
+          continue;
+        }
+        switch ( frame.type ) {
+          case MultiplexedConnection.END:
+            ended = true;
+            return null;
+          case MultiplexedConnection.ERROR:
+            ended = true;
+            throw new KettleException( "The remote step stream failed: "
+              + new String( frame.payload, StandardCharsets.UTF_8 ) );
+          default:
+            return frame;
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    }
+    return null;
+  }
+
+  /**
+   * Stop reading, telling the sending side if the stream didn't end, and release the connection.
+   */
+  public void close() {
+    if ( closed ) {
+      return;
+    }
+    closed = true;
+    if ( !ended && !connection.isClosed() ) {
+      try {
+        connection.send( MultiplexedConnection.CANCEL, streamId, new byte[0] );
+      } catch ( IOException e ) {
+        // The sending side notices the connection is gone
+      }
+    }
+    connection.closeStream( this );
+  }
+
+  private static class Frame {
+    private final byte type;
+    private final byte[] payload;
+
+    Frame( byte type, byte[] payload ) {
+      this.type = type;
+      this.payload = payload;
+    }
+  }
+}
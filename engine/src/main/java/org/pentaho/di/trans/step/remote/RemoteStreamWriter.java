@@ -0,0 +1,211 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step.remote;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BooleanSupplier;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * The sending end of a remote step stream, registered with a {@link MultiplexedServer}.<br>
+ * A row batch is only sent when the reader granted a credit for it.
+ *
+ * @since 10.3
+ */
+public class RemoteStreamWriter {
+  private static final long WAIT_MS = 100L;
+
+  private final MultiplexedServer server;
+  private final String streamKey;
+  private final byte codec;
+
+  private MultiplexedConnection connection;
+  private int streamId;
+  private int credits;
+  private boolean cancelled;
+  private boolean connectionLost;
+
+  RemoteStreamWriter( MultiplexedServer server, String streamKey, byte codec ) {
+    this.server = server;
+    this.streamKey = streamKey;
+    this.codec = codec;
+  }
+
+  String getStreamKey() {
+    return streamKey;
+  }
+
+  synchronized MultiplexedConnection getConnection() {
+    return connection;
+  }
+
+  synchronized int getStreamId() {
+    return streamId;
+  }
+
+  synchronized void opened( MultiplexedConnection connection, int streamId, int window ) {
+    this.connection = connection;
+    this.streamId = streamId;
+    this.credits = window;
+    notifyAll();
+  }
+
+  synchronized void addCredits( int nrCredits ) {
+    credits += nrCredits;
+    notifyAll();
+  }
+
+  synchronized void cancel() {
+    cancelled = true;
+    notifyAll();
+  }
+
+  synchronized void connectionClosed() {
+    connectionLost = true;
+    notifyAll();
+  }
+
+  /**
+   * Wait until the reader opened the stream.
+   *
+   * @param stopped
+   *          tells when to stop waiting
+   * @return true if the stream was opened, false if stopped
+   */
+  public synchronized boolean awaitOpen( BooleanSupplier stopped ) throws InterruptedException {
+    while ( connection == null && !stopped.getAsBoolean() ) {
+      wait( WAIT_MS );
+    }
+    return connection != null;
+  }
+
+  /**
+   * @return true if a row batch can be sent without waiting
+   */
+  public synchronized boolean hasCredit() {
+    return credits > 0;
+  }
+
+  public void sendMeta( RowMetaInterface rowMeta ) throws KettleException {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream dataOutputStream = new DataOutputStream( bytes );
+      rowMeta.writeMeta( dataOutputStream );
+      dataOutputStream.flush();
+      send( MultiplexedConnection.META, bytes.toByteArray() );
+    } catch ( IOException e ) {
+      throw new KettleException( "Unable to send the row metadata to the remote step", e );
+    }
+  }
+
+  /**
+   * Compress a row batch and send it as soon as the reader has room for it.
+   *
+   * @param batch
+   *          the encoded row batch
+   * @param stopped
+   *          tells when to stop waiting
+   * @return true if the batch was sent, false if stopped
+   * @throws KettleException
+   *           if the reader cancelled the stream or the connection was lost
+   */
+  public boolean sendBatch( byte[] batch, BooleanSupplier stopped ) throws KettleException {
+    try {
+      byte[] block = BlockCompression.compress( codec, batch );
+      synchronized ( this ) {
+        while ( credits <= 0 && !cancelled && !connectionLost && !stopped.getAsBoolean() ) {
+          wait( WAIT_MS );
+        }
+        checkStream();
+        if ( credits <= 0 ) {
+          return false;
+        }
+        credits--;
+      }
+      send( MultiplexedConnection.DATA, block );
+      return true;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    } catch ( IOException e ) {
+      throw new KettleException( "Unable to send a row batch to the remote step", e );
+    }
+  }
+
+  /**
+   * Tell the reader no more row batches follow.
+   */
+  public void end() throws KettleException {
+    try {
+      send( MultiplexedConnection.END, new byte[0] );
+    } catch ( IOException e ) {
+      throw new KettleException( "Unable to end the stream to the remote step", e );
+    }
+  }
+
+  /**
+   * Tell the reader this side failed, ignoring errors since the stream is in trouble already.
+   */
+  public void fail( String message ) {
+    try {
+      send( MultiplexedConnection.ERROR, String.valueOf( message ).getBytes( StandardCharsets.UTF_8 ) );
+    } catch ( Exception e ) {
+      // The reader fails on the lost connection instead
+    }
+  }
+
+  /**
+   * Unregister the stream from the server.
+   */
+  public void close() {
+    server.closeStream( this );
+  }
+
+  private synchronized void checkStream() throws KettleException {
+    if ( cancelled ) {
+      throw new KettleException( "The remote step stopped reading" );
+    }
+    if ( connectionLost ) {
+      throw new KettleException( "The connection to the remote step was lost" );
+    }
+  }
+
+  private void send( byte type, byte[] payload ) throws IOException, KettleException {
+    MultiplexedConnection target;
+    int id;
+    synchronized ( this ) {
+      checkStream();
+      target = connection;
+      id = streamId;
+    }
+    if ( target == null ) {
+      throw new IOException( "The remote step stream " + streamKey + " was not opened" );
+    }
+    target.send( type, id, payload );
+  }
+}
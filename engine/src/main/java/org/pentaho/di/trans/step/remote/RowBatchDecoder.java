@@ -0,0 +1,177 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step.remote;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * Decodes the row batches written by a {@link RowBatchEncoder} for the same row layout, in the order they were
+ * encoded.
+ *
+ * @since 10.3
+ */
+public class RowBatchDecoder {
+  private final RowMetaInterface rowMeta;
+  private final ValueMetaInterface[] valueMetas;
+  private final int[] encodings;
+  private final List<List<String>> dictionaries;
+
+  public RowBatchDecoder( RowMetaInterface rowMeta ) {
+    this.rowMeta = rowMeta;
+    valueMetas = new ValueMetaInterface[rowMeta.size()];
+    encodings = new int[valueMetas.length];
+    dictionaries = new ArrayList<>( valueMetas.length );
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      valueMetas[i] = rowMeta.getValueMeta( i );
+      encodings[i] = RowBatchFormat.getEncoding( valueMetas[i] );
+      dictionaries.add( encodings[i] == RowBatchFormat.STRING ? new ArrayList<>() : null );
+    }
+  }
+
+  /**
+   * @param batch
+   *          an encoded row batch
+   * @return the rows of the batch
+   * @throws KettleFileException
+   *           if the batch can't be decoded
+   */
+  public Object[][] decode( byte[] batch ) throws KettleFileException {
+    try {
+      BatchInput input = new BatchInput( batch, 0, batch.length );
+      int nrRows = (int) input.readVarLong();
+      int nrColumns = (int) input.readVarLong();
+      if ( nrColumns != valueMetas.length ) {
+        throw new KettleFileException( "Received a row batch with " + nrColumns + " columns, expected "
+          + valueMetas.length + " for " + rowMeta );
+      }
+      Object[][] rows = new Object[nrRows][];
+      for ( int r = 0; r < nrRows; r++ ) {
+        rows[r] = RowDataUtil.allocateRowData( valueMetas.length );
+      }
+      for ( int c = 0; c < nrColumns; c++ ) {
+        boolean[] nulls = readNulls( input, nrRows );
+        BatchInput values = input.slice( input.readLength() );
+        decodeColumn( c, values, nulls, rows );
+      }
+      return rows;
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to decode row batch for " + rowMeta, e );
+    }
+  }
+
+  private static boolean[] readNulls( BatchInput input, int nrRows ) throws IOException {
+    if ( input.readByte() == 0 ) {
+      return null;
+    }
+    boolean[] nulls = new boolean[nrRows];
+    for ( int i = 0; i < nrRows; i += 8 ) {
+      int bits = input.readByte();
+      for ( int j = 0; j < 8 && i + j < nrRows; j++ ) {
+        nulls[i + j] = ( bits & ( 1 << j ) ) != 0;
+      }
+    }
+    return nulls;
+  }
+
+  private void decodeColumn( int column, BatchInput values, boolean[] nulls, Object[][] rows )
+    throws IOException, KettleFileException {
+    ValueMetaInterface valueMeta = valueMetas[column];
+    List<String> dictionary = dictionaries.get( column );
+    DataInputStream dataInputStream = null;
+    long previous = 0L;
+
+    for ( int r = 0; r < rows.length; r++ ) {
+      if ( nulls != null && nulls[r] ) {
+        continue;
+      }
+      Object value;
+      switch ( encodings[column] ) {
+        case RowBatchFormat.STRING:
+          value = readString( values, dictionary );
+          break;
+        case RowBatchFormat.INTEGER:
+          previous += values.readZigZag();
+          value = previous;
+          break;
+        case RowBatchFormat.NUMBER:
+          value = Double.longBitsToDouble( values.readLong() );
+          break;
+        case RowBatchFormat.DATE:
+          previous += values.readZigZag();
+          value = new Date( previous );
+          break;
+        case RowBatchFormat.TIMESTAMP:
+          previous += values.readZigZag();
+          Timestamp timestamp = new Timestamp( previous );
+          timestamp.setNanos( (int) values.readVarLong() );
+          value = timestamp;
+          break;
+        case RowBatchFormat.BOOLEAN:
+          value = values.readByte() != 0;
+          break;
+        case RowBatchFormat.BINARY:
+          value = values.readBytes();
+          break;
+        case RowBatchFormat.BIGNUMBER:
+          int scale = (int) values.readZigZag();
+          value = new BigDecimal( new BigInteger( values.readBytes() ), scale );
+          break;
+        default:
+          if ( dataInputStream == null ) {
+            dataInputStream = new DataInputStream( values );
+          }
+          value = valueMeta.readData( dataInputStream );
+          break;
+      }
+      rows[r][column] = value;
+    }
+  }
+
+  private static String readString( BatchInput values, List<String> dictionary ) throws IOException {
+    int reference = (int) values.readVarLong();
+    if ( reference >= RowBatchFormat.STRING_FIRST_ENTRY ) {
+      int entry = reference - RowBatchFormat.STRING_FIRST_ENTRY;
+      if ( entry >= dictionary.size() ) {
+        throw new IOException( "Unknown dictionary entry " + entry );
+      }
+      return dictionary.get( entry );
+    }
+    String string = values.readString();
+    if ( reference == RowBatchFormat.STRING_NEW_ENTRY ) {
+      dictionary.add( string );
+    }
+    return string;
+  }
+}
@@ -0,0 +1,232 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step.remote;
+
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * Collects rows column by column and encodes them as a row batch, see {@link RowBatchFormat}.<br>
+ * The string dictionaries are kept from one batch to the next, so the batches of a stream have to be decoded in order
+ * by a single {@link RowBatchDecoder}.
+ *
+ * @since 10.3
+ */
+public class RowBatchEncoder {
+  public static final int DEFAULT_MAX_ROWS = 1000;
+  public static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+
+  private final Column[] columns;
+  private final int maxRows;
+  private final int maxBytes;
+  private int nrRows;
+
+  public RowBatchEncoder( RowMetaInterface rowMeta ) {
+    this( rowMeta, DEFAULT_MAX_ROWS, DEFAULT_MAX_BYTES );
+  }
+
+  /**
+   * @param rowMeta
+   *          the layout of the rows to encode
+   * @param maxRows
+   *          the number of rows after which the batch is full
+   * @param maxBytes
+   *          the encoded size after which the batch is full
+   */
+  public RowBatchEncoder( RowMetaInterface rowMeta, int maxRows, int maxBytes ) {
+    this.maxRows = maxRows;
+    this.maxBytes = maxBytes;
+    columns = new Column[rowMeta.size()];
+    for ( int i = 0; i < columns.length; i++ ) {
+      columns[i] = new Column( rowMeta.getValueMeta( i ) );
+    }
+  }
+
+  /**
+   * Add a row to the current batch.
+   */
+  public void addRow( Object[] row ) throws KettleFileException {
+    for ( int i = 0; i < columns.length; i++ ) {
+      columns[i].add( nrRows, i < row.length ? row[i] : null );
+    }
+    nrRows++;
+  }
+
+  /**
+   * @return the number of rows in the current batch
+   */
+  public int getNrRows() {
+    return nrRows;
+  }
+
+  /**
+   * @return the approximate encoded size of the current batch
+   */
+  public int getSize() {
+    int size = 0;
+    for ( Column column : columns ) {
+      size += column.values.size();
+    }
+    return size;
+  }
+
+  /**
+   * @return true if the current batch should be sent before adding more rows
+   */
+  public boolean isFull() {
+    return nrRows >= maxRows || getSize() >= maxBytes;
+  }
+
+  /**
+   * Encode the current batch and start a new one.
+   *
+   * @return the encoded batch
+   */
+  public byte[] finishBatch() {
+    BatchOutput output = new BatchOutput( getSize() + columns.length * 8 + ( nrRows / 8 + 1 ) * columns.length + 16 );
+    output.writeVarLong( nrRows );
+    output.writeVarLong( columns.length );
+    for ( Column column : columns ) {
+      column.finish( output, nrRows );
+    }
+    nrRows = 0;
+    return output.toByteArray();
+  }
+
+  private static class Column {
+    private final ValueMetaInterface valueMeta;
+    private final int encoding;
+    private final BatchOutput values = new BatchOutput( 256 );
+    private final BitSet nulls = new BitSet();
+    private DataOutputStream dataOutputStream;
+    private Map<String, Integer> dictionary;
+    private long previous;
+
+    Column( ValueMetaInterface valueMeta ) {
+      this.valueMeta = valueMeta;
+      this.encoding = RowBatchFormat.getEncoding( valueMeta );
+      if ( encoding == RowBatchFormat.STRING ) {
+        dictionary = new HashMap<>();
+      } else if ( encoding == RowBatchFormat.GENERIC ) {
+        dataOutputStream = new DataOutputStream( values );
+      }
+    }
+
+    void add( int rowNr, Object value ) throws KettleFileException {
+      if ( value == null ) {
+        nulls.set( rowNr );
+        return;
+      }
+      try {
+        switch ( encoding ) {
+          case RowBatchFormat.STRING:
+            addString( (String) value );
+            break;
+          case RowBatchFormat.INTEGER:
+            long longValue = (Long) value;
+            values.writeZigZag( longValue - previous );
+            previous = longValue;
+            break;
+          case RowBatchFormat.NUMBER:
+            values.writeLong( Double.doubleToLongBits( (Double) value ) );
+            break;
+          case RowBatchFormat.DATE:
+            long time = ( (Date) value ).getTime();
+            values.writeZigZag( time - previous );
+            previous = time;
+            break;
+          case RowBatchFormat.TIMESTAMP:
+            Date date = (Date) value;
+            values.writeZigZag( date.getTime() - previous );
+            values.writeVarLong( date instanceof Timestamp ? ( (Timestamp) date ).getNanos()
+              : (int) Math.floorMod( date.getTime(), 1000L ) * 1000000 );
+            previous = date.getTime();
+            break;
+          case RowBatchFormat.BOOLEAN:
+            values.write( ( (Boolean) value ) ? 1 : 0 );
+            break;
+          case RowBatchFormat.BINARY:
+            values.writeBytes( (byte[]) value );
+            break;
+          case RowBatchFormat.BIGNUMBER:
+            BigDecimal bigDecimal = (BigDecimal) value;
+            values.writeZigZag( bigDecimal.scale() );
+            values.writeBytes( bigDecimal.unscaledValue().toByteArray() );
+            break;
+          default:
+            valueMeta.writeData( dataOutputStream, value );
+            break;
+        }
+      } catch ( ClassCastException e ) {
+        throw new KettleFileException( "Unexpected data type " + value.getClass().getName() + " for value "
+          + valueMeta.toStringMeta(), e );
+      }
+    }
+
+    private void addString( String string ) {
+      Integer entry = dictionary.get( string );
+      if ( entry != null ) {
+        values.writeVarLong( RowBatchFormat.STRING_FIRST_ENTRY + entry );
+        return;
+      }
+      if ( dictionary.size() < RowBatchFormat.MAX_DICTIONARY_SIZE
+        && string.length() <= RowBatchFormat.MAX_DICTIONARY_STRING_LENGTH ) {
+        dictionary.put( string, dictionary.size() );
+        values.writeVarLong( RowBatchFormat.STRING_NEW_ENTRY );
+      } else {
+        values.writeVarLong( RowBatchFormat.STRING_LITERAL );
+      }
+      values.writeBytes( string.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    void finish( BatchOutput output, int nrRows ) {
+      if ( nulls.isEmpty() ) {
+        output.write( 0 );
+      } else {
+        output.write( 1 );
+        byte[] bitmap = nulls.toByteArray();
+        output.write( bitmap, 0, bitmap.length );
+        // The bitmap is trimmed after the last null, pad it to the number of rows
+        for ( int i = bitmap.length; i < ( nrRows + 7 ) / 8; i++ ) {
+          output.write( 0 );
+        }
+      }
+      output.writeVarLong( values.size() );
+      values.writeTo( output );
+
+      values.reset();
+      nulls.clear();
+      previous = 0L;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step.remote;
+
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * The layout of a row batch, shared by {@link RowBatchEncoder} and {@link RowBatchDecoder}.<br>
+ * A batch starts with the number of rows and columns, followed by the columns one after the other. A column starts with
+ * a flag telling if it contains nulls, the null bitmap if it does, and the length of the encoded non-null values.<br>
+ * Strings are replaced by a reference to a per column dictionary once they were sent, integers and dates are written
+ * as the variable length difference with the previous value of the batch. Values with another type or storage are
+ * written with {@link ValueMetaInterface#writeData(java.io.DataOutputStream, Object)}.
+ *
+ * @since 10.3
+ */
+final class RowBatchFormat {
+  static final int GENERIC = 0;
+  static final int STRING = 1;
+  static final int INTEGER = 2;
+  static final int NUMBER = 3;
+  static final int DATE = 4;
+  static final int TIMESTAMP = 5;
+  static final int BOOLEAN = 6;
+  static final int BINARY = 7;
+  static final int BIGNUMBER = 8;
+
+  /** String reference: a literal that isn't added to the dictionary */
+  static final int STRING_LITERAL = 0;
+  /** String reference: a literal that gets the next dictionary entry */
+  static final int STRING_NEW_ENTRY = 1;
+  /** String reference: the first dictionary entry, later entries follow */
+  static final int STRING_FIRST_ENTRY = 2;
+
+  /** The maximum number of strings kept in the dictionary of a column */
+  static final int MAX_DICTIONARY_SIZE = 4096;
+  /** Longer strings are always sent as literals */
+  static final int MAX_DICTIONARY_STRING_LENGTH = 256;
+
+  private RowBatchFormat() {
+  }
+
+  static int getEncoding( ValueMetaInterface valueMeta ) {
+    if ( valueMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+      return GENERIC;
+    }
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_STRING:
+        return STRING;
+      case ValueMetaInterface.TYPE_INTEGER:
+        return INTEGER;
+      case ValueMetaInterface.TYPE_NUMBER:
+        return NUMBER;
+      case ValueMetaInterface.TYPE_DATE:
+        return DATE;
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        return TIMESTAMP;
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return BOOLEAN;
+      case ValueMetaInterface.TYPE_BINARY:
+        return BINARY;
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        return BIGNUMBER;
+      default:
+        return GENERIC;
+    }
+  }
+}
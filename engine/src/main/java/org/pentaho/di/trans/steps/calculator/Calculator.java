@@ -33,6 +33,9 @@ import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueDataUtil;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.columnar.ColumnarRowBatch;
+import org.pentaho.di.core.row.columnar.DoubleColumnVector;
+import org.pentaho.di.core.row.columnar.LongColumnVector;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
@@ -72,8 +75,10 @@ public class Calculator extends BaseStep implements StepInterface {
     meta = (CalculatorMeta) smi;
     data = (CalculatorData) sdi;
 
-    Object[] r = getRow(); // get row, set busy!
-    if ( r == null ) { // no more input to be expected...
+    Object[][] rows = getRowBatch();
+    long linesBefore = getLinesRead();
+    int nrRows = getRows( rows, rows.length ); // get rows, set busy!
+    if ( nrRows == 0 ) { // no more input to be expected...
       setOutputDone();
       data.clearValuesMetaMapping();
       return false;
@@ -153,31 +158,61 @@ public class Calculator extends BaseStep implements StepInterface {
       for ( int i = 0; i < data.getTempIndexes().length; i++ ) {
         data.getTempIndexes()[i] = tempIndexes.get( i );
       }
+
+      if ( isUsingColumnarBatches() && isColumnarCalculation() ) {
+        data.setColumnarBatch( new ColumnarRowBatch( data.getCalcRowMeta() ) );
+      }
     }
 
-    if ( log.isRowLevel() ) {
-      logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
-        + getLinesRead() + " : " + getInputRowMeta().getString( r ) );
+    if ( data.getColumnarBatch() != null && !log.isRowLevel() ) {
+      try {
+        calcFieldsColumnar( rows, nrRows );
+      } catch ( KettleException e ) {
+        logError( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" + " : " + e.getMessage() ) );
+        throw new KettleStepException( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" ), e );
+      }
+      putRows( data.getOutputRowMeta(), rows, nrRows );
+      if ( checkFeedback( linesBefore, getLinesRead() ) ) {
+        if ( log.isBasic() ) {
+          logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + getLinesRead() ) );
+        }
+      }
+      return true;
     }
 
+    // Every calculated row replaces its input row in the batch
+    //
+    int nrOutputRows = 0;
     try {
-      Object[] row = calcFields( getInputRowMeta(), r );
-      putRow( data.getOutputRowMeta(), row ); // copy row to possible alternate rowset(s).
+      for ( int i = 0; i < nrRows; i++ ) {
+        Object[] r = rows[i];
+        if ( log.isRowLevel() ) {
+          logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
+            + ( linesBefore + i + 1 ) + " : " + getInputRowMeta().getString( r ) );
+        }
+
+        try {
+          Object[] row = calcFields( getInputRowMeta(), r );
+          rows[nrOutputRows++] = row;
+        } catch ( KettleFileNotFoundException e ) {
+          if ( meta.isFailIfNoFile() ) {
+            logError( BaseMessages.getString( PKG, "Calculator.Log.NoFile" ) + " : " + e.getFilepath() );
+            setErrors( getErrors() + 1 );
+            putRows( data.getOutputRowMeta(), rows, nrOutputRows );
+            return false;
+          }
+        }
+      }
+      putRows( data.getOutputRowMeta(), rows, nrOutputRows ); // copy rows to possible alternate rowset(s).
 
       if ( log.isRowLevel() ) {
-        logRowlevel( "Wrote row #" + getLinesWritten() + " : " + getInputRowMeta().getString( r ) );
+        logRowlevel( "Wrote " + nrOutputRows + " rows, total #" + getLinesWritten() );
       }
-      if ( checkFeedback( getLinesRead() ) ) {
+      if ( checkFeedback( linesBefore, getLinesRead() ) ) {
         if ( log.isBasic() ) {
           logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + getLinesRead() ) );
         }
       }
-    } catch ( KettleFileNotFoundException e ) {
-      if ( meta.isFailIfNoFile() ) {
-        logError( BaseMessages.getString( PKG, "Calculator.Log.NoFile" ) + " : " + e.getFilepath() );
-        setErrors( getErrors() + 1 );
-        return false;
-      }
     } catch ( KettleException e ) {
       logError( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" + " : " + e.getMessage() ) );
       throw new KettleStepException( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" ), e );
@@ -185,6 +220,152 @@ public class Calculator extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * The calculations can be done on columns when they are all plain arithmetic on Integer or Number fields of the same
+   * type as the result, so no conversions are involved.
+   *
+   * @return true if all calculations can be done on columns
+   */
+  private boolean isColumnarCalculation() {
+    RowMetaInterface calcRowMeta = data.getCalcRowMeta();
+    int inputSize = getInputRowMeta().size();
+    for ( int i = 0; i < meta.getCalculation().length; i++ ) {
+      int calcType = meta.getCalculation()[i].getCalcType();
+      FieldIndexes indexes = data.getFieldIndexes()[i];
+      int index = inputSize + i;
+      int indexB = calcType == CalculatorMetaFunction.CALC_SQUARE ? indexes.indexA : indexes.indexB;
+      switch ( calcType ) {
+        case CalculatorMetaFunction.CALC_ADD:
+        case CalculatorMetaFunction.CALC_SUBTRACT:
+        case CalculatorMetaFunction.CALC_MULTIPLY:
+        case CalculatorMetaFunction.CALC_DIVIDE:
+        case CalculatorMetaFunction.CALC_SQUARE:
+          break;
+        default:
+          return false;
+      }
+      // The arguments need to be input fields or earlier calculations
+      if ( indexes.indexA < 0 || indexes.indexA >= index || indexB < 0 || indexB >= index ) {
+        return false;
+      }
+      ValueMetaInterface targetMeta = calcRowMeta.getValueMeta( index );
+      ValueMetaInterface metaA = calcRowMeta.getValueMeta( indexes.indexA );
+      ValueMetaInterface metaB = calcRowMeta.getValueMeta( indexB );
+      if ( !targetMeta.isInteger() && !targetMeta.isNumber() ) {
+        return false;
+      }
+      if ( metaA.getType() != targetMeta.getType() || metaB.getType() != targetMeta.getType()
+        || !metaA.isStorageNormal() || !metaB.isStorageNormal() ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Does the calculations for a batch of rows on columns, see {@link #isColumnarCalculation()}. The rows in the batch
+   * are replaced by the output rows.
+   */
+  private void calcFieldsColumnar( Object[][] rows, int nrRows ) throws KettleValueException {
+    int calcRowSize = data.getCalcRowMeta().size();
+    for ( int i = 0; i < nrRows; i++ ) {
+      rows[i] = RowDataUtil.resizeArray( rows[i], calcRowSize );
+    }
+    ColumnarRowBatch batch = data.getColumnarBatch();
+    batch.setRows( rows, nrRows );
+
+    int inputSize = getInputRowMeta().size();
+    for ( int c = 0; c < meta.getCalculation().length; c++ ) {
+      int calcType = meta.getCalculation()[c].getCalcType();
+      FieldIndexes indexes = data.getFieldIndexes()[c];
+      int index = inputSize + c;
+      int indexB = calcType == CalculatorMetaFunction.CALC_SQUARE ? indexes.indexA : indexes.indexB;
+      if ( data.getCalcRowMeta().getValueMeta( index ).isInteger() ) {
+        calcLongs( calcType, batch.getLongColumn( indexes.indexA ), batch.getLongColumn( indexB ),
+          batch.newLongColumn( index ), nrRows );
+      } else {
+        calcDoubles( calcType, batch.getDoubleColumn( indexes.indexA ), batch.getDoubleColumn( indexB ),
+          batch.newDoubleColumn( index ), nrRows );
+      }
+    }
+    batch.writeRows();
+
+    for ( int i = 0; i < nrRows; i++ ) {
+      rows[i] = RowDataUtil.removeItems( rows[i], data.getTempIndexes() );
+    }
+  }
+
+  private static void calcLongs( int calcType, LongColumnVector a, LongColumnVector b, LongColumnVector result,
+    int nrRows ) {
+    long[] valuesA = a.getValues();
+    long[] valuesB = b.getValues();
+    long[] values = result.getValues();
+    for ( int i = 0; i < nrRows; i++ ) {
+      if ( a.isNull( i ) || b.isNull( i ) ) {
+        result.setNull( i );
+      }
+    }
+    switch ( calcType ) {
+      case CalculatorMetaFunction.CALC_ADD:
+        for ( int i = 0; i < nrRows; i++ ) {
+          values[i] = valuesA[i] + valuesB[i];
+        }
+        break;
+      case CalculatorMetaFunction.CALC_SUBTRACT:
+        for ( int i = 0; i < nrRows; i++ ) {
+          values[i] = valuesA[i] - valuesB[i];
+        }
+        break;
+      case CalculatorMetaFunction.CALC_DIVIDE:
+        for ( int i = 0; i < nrRows; i++ ) {
+          // Null values are undefined, don't divide by them
+          if ( !result.isNull( i ) ) {
+            values[i] = valuesA[i] / valuesB[i];
+          }
+        }
+        break;
+      default: // multiply and square
+        for ( int i = 0; i < nrRows; i++ ) {
+          values[i] = valuesA[i] * valuesB[i];
+        }
+        break;
+    }
+  }
+
+  private static void calcDoubles( int calcType, DoubleColumnVector a, DoubleColumnVector b,
+    DoubleColumnVector result, int nrRows ) {
+    double[] valuesA = a.getValues();
+    double[] valuesB = b.getValues();
+    double[] values = result.getValues();
+    for ( int i = 0; i < nrRows; i++ ) {
+      if ( a.isNull( i ) || b.isNull( i ) ) {
+        result.setNull( i );
+      }
+    }
+    switch ( calcType ) {
+      case CalculatorMetaFunction.CALC_ADD:
+        for ( int i = 0; i < nrRows; i++ ) {
+          values[i] = valuesA[i] + valuesB[i];
+        }
+        break;
+      case CalculatorMetaFunction.CALC_SUBTRACT:
+        for ( int i = 0; i < nrRows; i++ ) {
+          values[i] = valuesA[i] - valuesB[i];
+        }
+        break;
+      case CalculatorMetaFunction.CALC_DIVIDE:
+        for ( int i = 0; i < nrRows; i++ ) {
+          values[i] = valuesA[i] / valuesB[i];
+        }
+        break;
+      default: // multiply and square
+        for ( int i = 0; i < nrRows; i++ ) {
+          values[i] = valuesA[i] * valuesB[i];
+        }
+        break;
+    }
+  }
+
   /**
    * @param inputRowMeta
    *          the input row metadata
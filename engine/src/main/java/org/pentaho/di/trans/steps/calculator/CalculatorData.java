@@ -25,6 +25,7 @@ package org.pentaho.di.trans.steps.calculator;
 import org.pentaho.di.core.exception.KettlePluginException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.columnar.ColumnarRowBatch;
 import org.pentaho.di.core.row.value.ValueMetaFactory;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -46,6 +47,8 @@ public class CalculatorData extends BaseStepData implements StepDataInterface {
 
   private final Map<Integer, ValueMetaInterface> resultMetaMapping;
 
+  private ColumnarRowBatch columnarBatch;
+
   public CalculatorData() {
     super();
     resultMetaMapping = new HashMap<Integer, ValueMetaInterface>();
@@ -83,6 +86,17 @@ public class CalculatorData extends BaseStepData implements StepDataInterface {
     this.tempIndexes = tempIndexes;
   }
 
+  /**
+   * @return the columnar view on the row batches, null if the calculations are done row by row
+   */
+  public ColumnarRowBatch getColumnarBatch() {
+    return columnarBatch;
+  }
+
+  public void setColumnarBatch( ColumnarRowBatch columnarBatch ) {
+    this.columnarBatch = columnarBatch;
+  }
+
   public ValueMetaInterface getValueMetaFor( int resultType, String name ) throws KettlePluginException {
     // don't need any synchronization as data instance belongs only to one step instance
     ValueMetaInterface meta = resultMetaMapping.get( resultType );
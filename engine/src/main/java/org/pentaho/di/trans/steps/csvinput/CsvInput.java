@@ -27,9 +27,10 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.io.BufferedInputStream;
-import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.io.ByteOrderMark;
 import org.apache.commons.io.input.BOMInputStream;
@@ -46,6 +47,7 @@ import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.ExecutorUtil;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
@@ -72,6 +74,9 @@ import org.pentaho.di.trans.steps.textfileinput.TextFileInputMeta;
 public class CsvInput extends BaseStep implements StepInterface {
   private static Class<?> PKG = CsvInput.class; // for i18n purposes, needed by Translator2!!
 
+  /** The size of the splits the files are read in by the reader threads */
+  static final long SPLIT_SIZE = 8L * 1024 * 1024;
+
   private CsvInputMeta meta;
   private CsvInputData data;
 
@@ -90,6 +95,11 @@ public class CsvInput extends BaseStep implements StepInterface {
       data.outputRowMeta = new RowMeta();
       meta.getFields( data.outputRowMeta, getStepname(), null, null, this, repository, metaStore );
 
+      //Set file format to mixed if empty
+      if ( StringUtils.isBlank( meta.getFileFormat() ) ) {
+        meta.setFileFormat( "mixed" );
+      }
+
       if ( data.filenames == null ) {
         // We're expecting the list of filenames from the previous step(s)...
         //
@@ -132,6 +142,14 @@ public class CsvInput extends BaseStep implements StepInterface {
         prepareToRunInParallel();
       }
 
+      // With reader threads the files are split up and the threads read the splits, the rows are passed on in order
+      //
+      if ( data.readerThreads > 1 ) {
+        prepareSplits();
+        submitSplits();
+        return processSplitRows();
+      }
+
       // Open the next file...
       //
       if ( !openNextFile() ) {
@@ -140,6 +158,10 @@ public class CsvInput extends BaseStep implements StepInterface {
       }
     }
 
+    if ( data.readerThreads > 1 ) {
+      return processSplitRows();
+    }
+
     // If we are running in parallel, make sure we don't read too much in this step copy...
     //
     if ( data.parallel ) {
@@ -150,7 +172,7 @@ public class CsvInput extends BaseStep implements StepInterface {
     }
 
     try {
-      Object[] outputRowData = readOneRow( false, false ); // get row, set busy!
+      Object[] outputRowData = readOneRow( data, false, false ); // get row, set busy!
       // no more input to be expected...
       if ( outputRowData == null ) {
         if ( openNextFile() ) {
@@ -168,29 +190,41 @@ public class CsvInput extends BaseStep implements StepInterface {
         }
       }
     } catch ( KettleConversionException e ) {
-      if ( getStepMeta().isDoingErrorHandling() ) {
-        StringBuilder errorDescriptions = new StringBuilder( 100 );
-        StringBuilder errorFields = new StringBuilder( 50 );
-        for ( int i = 0; i < e.getCauses().size(); i++ ) {
-          if ( i > 0 ) {
-            errorDescriptions.append( ", " );
-            errorFields.append( ", " );
-          }
-          errorDescriptions.append( e.getCauses().get( i ).getMessage() );
-          errorFields.append( e.getFields().get( i ).toStringMeta() );
-        }
+      handleConversionError( e );
+    }
 
-        putError(
-          data.outputRowMeta, e.getRowData(), e.getCauses().size(), errorDescriptions.toString(), errorFields
-            .toString(), "CSVINPUT001" );
-      } else {
-        // Only forward the first cause.
-        //
-        throw new KettleException( e.getMessage(), e.getCauses().get( 0 ) );
+    return true;
+  }
+
+  private void handleConversionError( KettleConversionException e ) throws KettleException {
+    if ( getStepMeta().isDoingErrorHandling() ) {
+      StringBuilder errorDescriptions = new StringBuilder( 100 );
+      StringBuilder errorFields = new StringBuilder( 50 );
+      for ( int i = 0; i < e.getCauses().size(); i++ ) {
+        if ( i > 0 ) {
+          errorDescriptions.append( ", " );
+          errorFields.append( ", " );
+        }
+        errorDescriptions.append( e.getCauses().get( i ).getMessage() );
+        errorFields.append( e.getFields().get( i ).toStringMeta() );
       }
+
+      putError(
+        data.outputRowMeta, e.getRowData(), e.getCauses().size(), errorDescriptions.toString(), errorFields
+          .toString(), "CSVINPUT001" );
+    } else {
+      // Only forward the first cause.
+      //
+      throw new KettleException( e.getMessage(), e.getCauses().get( 0 ) );
     }
+  }
 
-    return true;
+  private void determineFileSizes() throws KettleException {
+    for ( String filename : data.filenames ) {
+      long size = KettleVFS.getFileObject( filename, getTransMeta() ).getContent().getSize();
+      data.fileSizes.add( size );
+      data.totalFileSize += size;
+    }
   }
 
   private void prepareToRunInParallel() throws KettleException {
@@ -198,11 +232,7 @@ public class CsvInput extends BaseStep implements StepInterface {
       // At this point it doesn't matter if we have 1 or more files.
       // We'll use the same algorithm...
       //
-      for ( String filename : data.filenames ) {
-        long size = KettleVFS.getFileObject( filename, getTransMeta() ).getContent().getSize();
-        data.fileSizes.add( size );
-        data.totalFileSize += size;
-      }
+      determineFileSizes();
 
       // Now we can determine the range to read.
       //
@@ -263,6 +293,193 @@ public class CsvInput extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Split the part of the files this step copy reads into splits of at most data.splitSize bytes.<br>
+   * A split is read like the block of a step copy running in parallel: the row that starts in the split is read
+   * completely, the partial row at the start of the split belongs to the previous split.
+   */
+  private void prepareSplits() throws KettleException {
+    if ( !data.parallel ) {
+      try {
+        determineFileSizes();
+      } catch ( Exception e ) {
+        throw new KettleException( BaseMessages.getString( PKG, "CsvInput.Exception.ErrorPreparingParallelRun" ), e );
+      }
+    }
+
+    // The last step copy reads up to the end, whatever the rounding of the block size
+    //
+    long rangeStart = data.parallel ? data.startPosition : 0L;
+    long rangeEnd =
+      data.parallel && data.stepNumber < data.totalNumberOfSteps - 1 ? data.endPosition : data.totalFileSize;
+
+    data.pendingSplits = new ArrayDeque<>();
+    data.readingSplits = new ArrayDeque<>();
+    long fileStart = 0L;
+    for ( int i = 0; i < data.filenames.length; i++ ) {
+      long size = data.fileSizes.get( i );
+      long start = Math.max( rangeStart, fileStart ) - fileStart;
+      long end = Math.min( rangeEnd, fileStart + size ) - fileStart;
+      if ( size == 0 && !data.parallel ) {
+        // Still an empty file gets added to the result
+        data.pendingSplits.add( new CsvInputSplit( i, 0L, 0L, true ) );
+      }
+      for ( long splitStart = start; splitStart < end; splitStart += data.splitSize ) {
+        long length = Math.min( data.splitSize, end - splitStart );
+        data.pendingSplits.add( new CsvInputSplit( i, splitStart, length, splitStart == start ) );
+      }
+      fileStart += size;
+    }
+
+    logBasic( BaseMessages.getString( PKG, "CsvInput.Log.ReaderThreads", Integer.toString( data.readerThreads ),
+      Integer.toString( data.pendingSplits.size() ) ) );
+  }
+
+  /**
+   * Hand splits to the reader threads until twice as many splits as there are threads are being read.
+   */
+  private void submitSplits() throws KettleException {
+    while ( !data.pendingSplits.isEmpty() && data.readingSplits.size() < 2 * data.readerThreads ) {
+      final CsvInputSplit split = data.pendingSplits.poll();
+      if ( split.firstOfFile ) {
+        prepareSplitFile( split );
+      } else {
+        split.vfsFilename = data.submittedSplit.vfsFilename;
+        split.bomSize = data.submittedSplit.bomSize;
+        split.fieldsMapping = data.submittedSplit.fieldsMapping;
+      }
+      split.rows = ExecutorUtil.getExecutor().submit( () -> readSplit( split ) );
+      data.readingSplits.add( split );
+      data.submittedSplit = split;
+    }
+  }
+
+  /**
+   * Look at the file of the first split read from it, once for all its splits.
+   */
+  private void prepareSplitFile( CsvInputSplit split ) throws KettleException {
+    try {
+      String filename = data.filenames[ split.filenr ];
+      split.fieldsMapping = createFieldMapping( filename, meta );
+      FileObject fileObject = KettleVFS.getFileObject( filename, getTransMeta() );
+      if ( !( fileObject instanceof LocalFile ) ) {
+        throw new KettleException( BaseMessages.getString( PKG, "CsvInput.Log.OnlyLocalFilesAreSupported" ) );
+      }
+      split.vfsFilename = KettleVFS.getFilename( fileObject );
+      split.bomSize = getBOMSize( split.vfsFilename );
+
+      if ( meta.isAddResultFile() ) {
+        ResultFile resultFile =
+          new ResultFile( ResultFile.FILE_TYPE_GENERAL, fileObject, getTransMeta().getName(), toString() );
+        resultFile.setComment( "File was read by a Csv input step" );
+        addResultFile( resultFile );
+      }
+      if ( meta.isHeaderPresent() && split.start == 0 ) {
+        logBasic( BaseMessages.getString( PKG, "CsvInput.Log.HeaderRowSkipped", filename ) );
+      }
+    } catch ( KettleException e ) {
+      throw e;
+    } catch ( Exception e ) {
+      throw new KettleException( e );
+    }
+  }
+
+  /**
+   * Read the rows of a split, on a reader thread.
+   */
+  private List<Object> readSplit( CsvInputSplit split ) throws KettleException {
+    CsvInputData splitData = data.createSplitData();
+    splitData.filenr = split.filenr + 1;
+    splitData.fieldsMapping = split.fieldsMapping;
+    if ( meta.isLazyConversionActive() ) {
+      splitData.binaryFilename = data.filenames[ split.filenr ].getBytes();
+    }
+    splitData.bytesToSkipInFirstFile = split.start;
+    splitData.blockToRead = split.start == 0 ? split.length - split.bomSize : split.length;
+
+    List<Object> rows = new ArrayList<>();
+    try {
+      openFile( splitData, split.vfsFilename, split.bomSize );
+      if ( meta.isHeaderPresent() && split.start == 0 ) {
+        readOneRow( splitData, true, false ); // skip this row.
+      }
+      if ( splitData.fieldsMapping.size() == 0 ) {
+        return rows;
+      }
+      while ( splitData.totalBytesRead < splitData.blockToRead && !isStopped() ) {
+        try {
+          Object[] row = readOneRow( splitData, false, false );
+          if ( row == null ) {
+            break;
+          }
+          rows.add( row );
+        } catch ( KettleConversionException e ) {
+          // The step thread handles the error in the order of the rows
+          rows.add( e );
+        }
+      }
+      return rows;
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Exception reading line using NIO", e );
+    } finally {
+      splitData.closeFile();
+    }
+  }
+
+  /**
+   * Pass on the next row read by the reader threads.
+   *
+   * @return false if all splits were read
+   */
+  private boolean processSplitRows() throws KettleException {
+    while ( data.splitRows == null || data.splitRowIndex >= data.splitRows.size() ) {
+      CsvInputSplit split = data.readingSplits.poll();
+      if ( split == null ) {
+        setOutputDone();
+        return false;
+      }
+      try {
+        data.splitRows = split.rows.get();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new KettleException( e );
+      } catch ( ExecutionException e ) {
+        if ( e.getCause() instanceof KettleException ) {
+          throw (KettleException) e.getCause();
+        }
+        throw new KettleException( e.getCause() );
+      }
+      data.splitRowIndex = 0;
+      if ( split.firstOfFile ) {
+        // Reset the row number pointer...
+        data.rowNumber = 1L;
+      }
+      submitSplits();
+    }
+
+    Object splitRow = data.splitRows.get( data.splitRowIndex );
+    data.splitRows.set( data.splitRowIndex++, null );
+    if ( splitRow instanceof KettleConversionException ) {
+      KettleConversionException e = (KettleConversionException) splitRow;
+      if ( data.isAddingRowNumber ) {
+        e.getRowData()[ data.rownumFieldIndex ] = data.rowNumber++;
+      }
+      handleConversionError( e );
+    } else {
+      Object[] outputRowData = (Object[]) splitRow;
+      if ( data.isAddingRowNumber ) {
+        outputRowData[ data.rownumFieldIndex ] = data.rowNumber++;
+      }
+      putRow( data.outputRowMeta, outputRowData );
+      if ( checkFeedback( getLinesInput() ) ) {
+        if ( log.isBasic() ) {
+          logBasic( BaseMessages.getString( PKG, "CsvInput.Log.LineNumber", Long.toString( getLinesInput() ) ) );
+        }
+      }
+    }
+    return true;
+  }
+
   private void getFilenamesFromPreviousSteps() throws KettleException {
     List<String> filenames = new ArrayList<>();
     boolean firstRow = true;
@@ -315,6 +532,16 @@ public class CsvInput extends BaseStep implements StepInterface {
       logError( "Error closing file input stream", e );
     }
 
+    if ( data.readingSplits != null ) {
+      for ( CsvInputSplit split : data.readingSplits ) {
+        split.rows.cancel( true );
+      }
+      data.readingSplits = null;
+      data.pendingSplits = null;
+      data.submittedSplit = null;
+      data.splitRows = null;
+    }
+
     super.dispose( smi, sdi );
   }
 
@@ -347,40 +574,7 @@ public class CsvInput extends BaseStep implements StepInterface {
 
       int bomSize = getBOMSize( vfsFilename );
 
-      data.fis = new FileInputStream( vfsFilename );
-      if ( 0 != bomSize ) {
-        data.fis.skip( bomSize );
-      }
-
-      data.fc = data.fis.getChannel();
-      data.bb = ByteBuffer.allocateDirect( data.preferredBufferSize );
-
-      // If we are running in parallel and we need to skip bytes in the first file, let's do so here.
-      //
-      if ( data.parallel ) {
-        if ( data.bytesToSkipInFirstFile > 0 ) {
-          data.fc.position( data.bytesToSkipInFirstFile );
-
-          // evaluate whether there is a need to skip a row
-          if ( needToSkipRow() ) {
-            // PDI-16589 - when reading in parallel, the previous code would introduce additional rows and / or invalid data in the output.
-            // in parallel mode we don't support new lines inside field data so it's safe to fast forward until we find a new line.
-            // when a newline is found we need to check for an additional new line character, while in unix systems it's just a single '\n',
-            // on windows systems, it's a sequence of '\r' and '\n'. finally we set the start of the buffer to the end buffer position.
-            while ( !data.newLineFound() ) {
-              data.moveEndBufferPointer();
-            }
-
-            data.moveEndBufferPointer();
-
-            if ( data.newLineFound() ) {
-              data.moveEndBufferPointer();
-            }
-          }
-
-          data.setStartBuffer( data.getEndBuffer() );
-        }
-      }
+      openFile( data, vfsFilename, bomSize );
 
       // Add filename to result filenames ?
       if ( meta.isAddResultFile() ) {
@@ -401,7 +595,7 @@ public class CsvInput extends BaseStep implements StepInterface {
       if ( meta.isHeaderPresent() ) {
         // Standard flat file : skip header
         if ( !data.parallel || data.bytesToSkipInFirstFile <= 0 ) {
-          readOneRow( true, false ); // skip this row.
+          readOneRow( data, true, false ); // skip this row.
           logBasic( BaseMessages.getString( PKG, "CsvInput.Log.HeaderRowSkipped", data.filenames[ data.filenr - 1 ] ) );
           if ( data.fieldsMapping.size() == 0 ) {
             return false;
@@ -424,6 +618,39 @@ public class CsvInput extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Open a file behind its byte order mark or, if we are running in parallel and we need to skip bytes in the first
+   * file, at the start of the first row after these bytes.
+   */
+  private void openFile( CsvInputData data, String vfsFilename, int bomSize ) throws IOException {
+    boolean skipBytes = data.parallel && data.bytesToSkipInFirstFile > 0;
+
+    // When skipping bytes, we start at the last byte of the previous step to see if it ends a line
+    //
+    data.openFile( vfsFilename, skipBytes ? data.bytesToSkipInFirstFile - 1 : bomSize );
+
+    if ( skipBytes ) {
+      // evaluate whether there is a need to skip a row
+      if ( needToSkipRow( data ) ) {
+        // PDI-16589 - when reading in parallel, the previous code would introduce additional rows and / or invalid data in the output.
+        // in parallel mode we don't support new lines inside field data so it's safe to fast forward until we find a new line.
+        // when a newline is found we need to check for an additional new line character, while in unix systems it's just a single '\n',
+        // on windows systems, it's a sequence of '\r' and '\n'. finally we set the start of the buffer to the end buffer position.
+        boolean endOfFile = false;
+        while ( !endOfFile && !data.newLineFound() ) {
+          // the last line doesn't need to end with a new line
+          endOfFile = data.moveEndBufferPointer();
+        }
+
+        if ( !endOfFile && !data.moveEndBufferPointer() && data.newLineFound() ) {
+          data.moveEndBufferPointer();
+        }
+      }
+
+      data.setStartBuffer( data.getEndBuffer() );
+    }
+  }
+
   protected int getBOMSize( String vfsFilename ) throws Exception {
     int bomSize = 0;
     try ( FileInputStream fis = new FileInputStream( vfsFilename );
@@ -520,11 +747,9 @@ public class CsvInput extends BaseStep implements StepInterface {
    * So, we DON'T skip line only if the previous char is new line indicator AND we are not between '\r\n'.
    *
    */
-  private boolean needToSkipRow() {
+  private boolean needToSkipRow( CsvInputData data ) {
     try {
-      // first we move pointer to the last byte of the previous step
-      data.fc.position( data.fc.position() - 1 );
-      // read data, if not yet
+      // the file is opened at the last byte of the previous step, read data, if not yet
       data.resizeBufferIfNeeded();
 
       // check whether the last symbol from the previous step is a new line
@@ -543,12 +768,6 @@ public class CsvInput extends BaseStep implements StepInterface {
 
     } catch ( IOException e ) {
       e.printStackTrace();
-    } finally {
-      try {
-        data.fc.position( data.fc.position() + 1 );
-      } catch ( IOException e ) {
-        // nothing to do here
-      }
     }
 
     return true;
@@ -557,13 +776,14 @@ public class CsvInput extends BaseStep implements StepInterface {
   /**
    * Read a single row of data from the file...
    *
+   * @param data             the data of the file to read from, the step data or that of a split
    * @param skipRow          if row should be skipped: header row or part of row in case of parallel read
    * @param ignoreEnclosures if enclosures should be ignored, i.e. in case of we need to skip part of the row during
    *                         parallel read
    * @return a row of data...
    * @throws KettleException
    */
-  private Object[] readOneRow( boolean skipRow, boolean ignoreEnclosures ) throws KettleException {
+  private Object[] readOneRow( CsvInputData data, boolean skipRow, boolean ignoreEnclosures ) throws KettleException {
 
     try {
 
@@ -574,11 +794,6 @@ public class CsvInput extends BaseStep implements StepInterface {
       List<Exception> conversionExceptions = null;
       List<ValueMetaInterface> exceptionFields = null;
 
-      //Set file format to mixed if empty
-      if ( StringUtils.isBlank( meta.getFileFormat() ) ) {
-        meta.setFileFormat( "mixed" );
-      }
-
       // The strategy is as follows...
       // We read a block of byte[] from the file.
       // We scan for the separators in the file (NOT for line feeds etc)
@@ -704,6 +919,7 @@ public class CsvInput extends BaseStep implements StepInterface {
               ignoreEnclosuresInField = true;
             }
           } else {
+            data.skipPlainBytes();
             if ( data.moveEndBufferPointer() ) {
               endOfBuffer = true;
               break;
@@ -932,6 +1148,19 @@ public class CsvInput extends BaseStep implements StepInterface {
         data.totalFileSize = 0L;
       }
 
+      // Reader threads split up the files like step copies running in parallel do, with the same limitation
+      //
+      data.readerThreads = Const.toInt( environmentSubstitute( meta.getReaderThreads() ), 1 );
+      data.splitSize = SPLIT_SIZE;
+      if ( data.readerThreads > 1 && meta.isNewlinePossibleInFields() ) {
+        logBasic( BaseMessages.getString( PKG, "CsvInput.Log.ReaderThreadsNewlinePossible" ) );
+        data.readerThreads = 1;
+      }
+      if ( data.readerThreads > 1 && data.fileSizes == null ) {
+        data.fileSizes = new ArrayList<Long>();
+        data.totalFileSize = 0L;
+      }
+
       // Set the most efficient pattern matcher to match the delimiter.
       //
       if ( data.delimiter.length == 1 ) {
@@ -964,6 +1193,16 @@ public class CsvInput extends BaseStep implements StepInterface {
           break;
       }
 
+      // Bytes that can't start a delimiter, an enclosure or a new line are skipped without looking at them one by one
+      //
+      if ( data.encodingType.getLength() == 1 && data.delimiter.length > 0 ) {
+        if ( data.enclosure == null || data.enclosure.length == 0 ) {
+          data.scanner = new SpecialByteScanner( data.delimiter[ 0 ], (byte) '\r', (byte) '\n' );
+        } else {
+          data.scanner = new SpecialByteScanner( data.delimiter[ 0 ], data.enclosure[ 0 ], (byte) '\r', (byte) '\n' );
+        }
+      }
+
       return true;
 
     }
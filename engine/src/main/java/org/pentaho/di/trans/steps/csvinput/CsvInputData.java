@@ -24,8 +24,8 @@ package org.pentaho.di.trans.steps.csvinput;
 
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.Deque;
 import java.util.List;
 
 import org.pentaho.di.core.exception.KettleException;
@@ -40,7 +40,7 @@ import org.pentaho.di.trans.steps.textfileinput.EncodingType;
  */
 public class CsvInputData extends BaseStepData implements StepDataInterface {
   public FileChannel fc;
-  public ByteBuffer bb;
+  public MappedFileReader reader;
   public RowMetaInterface convertRowMeta;
   public RowMetaInterface outputRowMeta;
 
@@ -48,6 +48,8 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
   private int startBuffer;
   private int endBuffer;
   private int bufferSize;
+  /** The number of bytes the buffer is filled up to from the file */
+  private int readSize;
 
   public byte[] delimiter;
   public byte[] enclosure;
@@ -83,6 +85,22 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
 
   public FieldsMapping fieldsMapping;
 
+  /** Finds the next byte that needs to be looked at, null if every byte needs to be looked at */
+  public SpecialByteScanner scanner;
+
+  /** The number of threads reading splits of the files */
+  public int readerThreads;
+  /** The size of the splits the files are read in by the reader threads */
+  public long splitSize;
+  /** The splits that still need to be handed to the reader threads */
+  Deque<CsvInputSplit> pendingSplits;
+  /** The splits handed to the reader threads, in the order of their rows */
+  Deque<CsvInputSplit> readingSplits;
+  /** The split last handed to the reader threads */
+  CsvInputSplit submittedSplit;
+  List<Object> splitRows;
+  int splitRowIndex;
+
   /**
    * Data class for CsvInput step
    *
@@ -124,40 +142,40 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
     // Since this method doesn't get called every other character, I'm sure we can spend a bit of time here without
     // major performance loss.
     //
-    if ( endBuffer >= bb.capacity() ) {
-      resizeByteBuffer( (int) ( bb.capacity() * 1.5 ) );
+    if ( endBuffer >= readSize ) {
+      readSize = (int) ( readSize * 1.5 );
+    }
+
+    // Make sure we have room in the target byte buffer array
+    //
+    if ( byteBuffer.length < readSize ) {
+      byte[] newByteBuffer = new byte[readSize];
+      System.arraycopy( byteBuffer, 0, newByteBuffer, 0, byteBuffer.length );
+      byteBuffer = newByteBuffer;
     }
 
-    bb.position( endBuffer );
-    int n = fc.read( bb );
+    // Copy the data straight from the mapped file into our byte array
+    //
+    int n = reader.read( byteBuffer, endBuffer, readSize - endBuffer );
     if ( n >= 0 ) {
 
       // adjust the highest used position...
       //
       bufferSize = endBuffer + n;
-
-      // Make sure we have room in the target byte buffer array
-      //
-      if ( byteBuffer.length < bufferSize ) {
-        byte[] newByteBuffer = new byte[bufferSize];
-        System.arraycopy( byteBuffer, 0, newByteBuffer, 0, byteBuffer.length );
-        byteBuffer = newByteBuffer;
-      }
-
-      // Store the data in our byte array
-      //
-      bb.position( endBuffer );
-      bb.get( byteBuffer, endBuffer, n );
     }
 
     return n;
   }
 
-  private void resizeByteBuffer( int newSize ) {
-    ByteBuffer newBuffer = ByteBuffer.allocateDirect( newSize ); // Increase by 50%
-    newBuffer.position( 0 );
-    newBuffer.put( bb );
-    bb = newBuffer;
+  /**
+   * Open a file to read from the given position on.
+   */
+  void openFile( String vfsFilename, long position ) throws IOException {
+    fis = new FileInputStream( vfsFilename );
+    fc = fis.getChannel();
+    reader = new MappedFileReader( fc );
+    reader.position( position );
+    readSize = preferredBufferSize;
   }
 
   /**
@@ -207,6 +225,20 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
     }
   }
 
+  /**
+   * Moves the endBuffer pointer up to the byte before the next delimiter, enclosure or line end in the buffer, as if
+   * {@link #moveEndBufferPointer()} was called for each byte in between.
+   */
+  void skipPlainBytes() {
+    if ( scanner != null ) {
+      int skipped = scanner.indexOf( byteBuffer, endBuffer + 1, bufferSize ) - 1 - endBuffer;
+      if ( skipped > 0 ) {
+        endBuffer += skipped;
+        totalBytesRead += skipped;
+      }
+    }
+  }
+
   /**
    * This method should be used very carefully. Moving pointer without increasing number of written bytes
    * can lead to data corruption.
@@ -274,11 +306,34 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
       if ( fis != null ) {
         fis.close();
       }
+      reader = null;
     } catch ( IOException e ) {
       throw new KettleException( "Unable to close file channel for file '" + filenames[filenr - 1], e );
     }
   }
 
+  /**
+   * Create the data to read a split of a file with, sharing the configuration of this step copy.
+   */
+  CsvInputData createSplitData() {
+    CsvInputData splitData = new CsvInputData();
+    splitData.convertRowMeta = convertRowMeta.clone(); // the conversions are not thread safe
+    splitData.outputRowMeta = outputRowMeta;
+    splitData.delimiter = delimiter;
+    splitData.enclosure = enclosure;
+    splitData.preferredBufferSize = preferredBufferSize;
+    splitData.filenames = filenames;
+    splitData.filenameFieldIndex = filenameFieldIndex;
+    splitData.rownumFieldIndex = rownumFieldIndex;
+    splitData.encodingType = encodingType;
+    splitData.delimiterMatcher = delimiterMatcher;
+    splitData.enclosureMatcher = enclosureMatcher;
+    splitData.crLfMatcher = crLfMatcher;
+    splitData.scanner = scanner;
+    splitData.parallel = true;
+    return splitData;
+  }
+
   int getStartBuffer() {
     return startBuffer;
   }
@@ -108,6 +108,9 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
 
   private boolean newlinePossibleInFields;
 
+  /** The number of threads reading splits of the files, empty or 1 to read on the step thread */
+  private String readerThreads;
+
   public CsvInputMeta() {
     super(); // allocate BaseStepMeta
     allocate( 0 );
@@ -166,6 +169,7 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
       }
       fileFormat = XMLHandler.getTagValue( stepnode, getXmlCode( "FORMAT" ) );
       encoding = XMLHandler.getTagValue( stepnode, getXmlCode( "ENCODING" ) );
+      readerThreads = XMLHandler.getTagValue( stepnode, getXmlCode( "READER_THREADS" ) );
 
       Node fields = XMLHandler.getSubNode( stepnode, getXmlCode( "FIELDS" ) );
       int nrfields = XMLHandler.countNodes( fields, getXmlCode( "FIELD" ) );
@@ -220,6 +224,7 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
       XMLHandler.addTagValue( getXmlCode( "NEWLINE_POSSIBLE" ), newlinePossibleInFields ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "FORMAT" ), fileFormat ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "ENCODING" ), encoding ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "READER_THREADS" ), readerThreads ) );
 
     retval.append( "    " ).append( XMLHandler.openTag( getXmlCode( "FIELDS" ) ) ).append( Const.CR );
     for ( int i = 0; i < inputFields.length; i++ ) {
@@ -269,6 +274,7 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
         rep.getStepAttributeBoolean( id_step, 0, getRepCode( "NEWLINE_POSSIBLE" ), !runningInParallel );
       fileFormat = rep.getStepAttributeString( id_step, getRepCode( "FORMAT" ) );
       encoding = rep.getStepAttributeString( id_step, getRepCode( "ENCODING" ) );
+      readerThreads = rep.getStepAttributeString( id_step, getRepCode( "READER_THREADS" ) );
 
       int nrfields = rep.countNrStepAttributes( id_step, getRepCode( "FIELD_NAME" ) );
 
@@ -315,6 +321,7 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
           id_transformation, id_step, getRepCode( "NEWLINE_POSSIBLE" ), newlinePossibleInFields );
       rep.saveStepAttribute( id_transformation, id_step, getRepCode( "FORMAT" ), fileFormat );
       rep.saveStepAttribute( id_transformation, id_step, getRepCode( "ENCODING" ), encoding );
+      rep.saveStepAttribute( id_transformation, id_step, getRepCode( "READER_THREADS" ), readerThreads );
 
       for ( int i = 0; i < inputFields.length; i++ ) {
         TextFileInputField field = inputFields[i];
@@ -836,6 +843,8 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
           fileFormat = (String) entry.getValue();
         } else if ( attr.getKey().equals( "ENCODING" ) ) {
           encoding = (String) entry.getValue();
+        } else if ( attr.getKey().equals( "READER_THREADS" ) ) {
+          readerThreads = (String) entry.getValue();
         } else {
           throw new RuntimeException( "Unhandled metadata injection of attribute: "
             + attr.toString() + " - " + attr.getDescription() );
@@ -918,6 +927,21 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
     this.newlinePossibleInFields = newlinePossibleInFields;
   }
 
+  /**
+   * @return the number of threads reading splits of the files
+   */
+  public String getReaderThreads() {
+    return readerThreads;
+  }
+
+  /**
+   * @param readerThreads
+   *          the number of threads reading splits of the files
+   */
+  public void setReaderThreads( String readerThreads ) {
+    this.readerThreads = readerThreads;
+  }
+
   @Override
   public FileObject getHeaderFileObject( final TransMeta transMeta ) {
     final String filename = transMeta.environmentSubstitute( getFilename() );
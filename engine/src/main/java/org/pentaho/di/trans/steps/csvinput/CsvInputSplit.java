@@ -0,0 +1,55 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * A byte range of one of the files of a CSV Input step copy, read by one of its reader threads.
+ *
+ * @since 10.3
+ */
+class CsvInputSplit {
+  /** The index of the file in the file names */
+  final int filenr;
+  /** The position of the first byte of the split in the file */
+  final long start;
+  final long length;
+  /** true if this is the first split this step copy reads from the file */
+  final boolean firstOfFile;
+
+  String vfsFilename;
+  int bomSize;
+  FieldsMapping fieldsMapping;
+
+  /** The rows read from the split, with a KettleConversionException in place of each row that failed to convert */
+  Future<List<Object>> rows;
+
+  CsvInputSplit( int filenr, long start, long length, boolean firstOfFile ) {
+    this.filenr = filenr;
+    this.start = start;
+    this.length = length;
+    this.firstOfFile = firstOfFile;
+  }
+}
@@ -0,0 +1,96 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a file through read-only memory-mapped windows instead of copying it through a direct buffer.<br>
+ * The windows start at multiples of 2MB so they line up with large pages where the operating system uses them, and
+ * the next window is only mapped once the current one is read completely.
+ *
+ * @since 10.3
+ */
+public class MappedFileReader {
+  /** Windows start at a multiple of this, a large page on most platforms */
+  static final long MAP_ALIGNMENT = 2L * 1024 * 1024;
+
+  static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+  private final FileChannel channel;
+  private final long size;
+
+  private MappedByteBuffer window;
+  private long windowStart;
+  private long position;
+
+  public MappedFileReader( FileChannel channel ) throws IOException {
+    this.channel = channel;
+    this.size = channel.size();
+  }
+
+  /**
+   * @return the position in the file of the next byte to read
+   */
+  public long position() {
+    return position;
+  }
+
+  /**
+   * @param position
+   *          the position in the file of the next byte to read
+   */
+  public void position( long position ) {
+    this.position = position;
+  }
+
+  /**
+   * @return the size of the file when the reader was created
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Read bytes from the current position, at most up to the end of the current window.
+   *
+   * @return the number of bytes read, or -1 at the end of the file
+   */
+  public int read( byte[] target, int offset, int length ) throws IOException {
+    if ( position >= size ) {
+      return -1;
+    }
+    if ( window == null || position < windowStart || position >= windowStart + window.capacity() ) {
+      windowStart = position - position % MAP_ALIGNMENT;
+      window = channel.map( FileChannel.MapMode.READ_ONLY, windowStart, Math.min( WINDOW_SIZE, size - windowStart ) );
+    }
+    int windowPosition = (int) ( position - windowStart );
+    int n = Math.min( length, window.capacity() - windowPosition );
+    window.position( windowPosition );
+    window.get( target, offset, n );
+    position += n;
+    return n;
+  }
+}
@@ -0,0 +1,84 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Finds the next byte that can start a delimiter, an enclosure or a line end in a buffer of a single byte encoded
+ * file.<br>
+ * The buffer is compared 8 bytes at a time: each candidate byte is broadcast over a long and a word contains it if the
+ * exclusive or of both contains a zero byte.
+ *
+ * @since 10.3
+ */
+public class SpecialByteScanner {
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGHS = 0x8080808080808080L;
+
+  private final boolean[] special = new boolean[256];
+  private final long[] patterns;
+
+  public SpecialByteScanner( byte... specialBytes ) {
+    int nrPatterns = 0;
+    long[] candidates = new long[specialBytes.length];
+    for ( byte specialByte : specialBytes ) {
+      if ( !special[specialByte & 0xFF] ) {
+        special[specialByte & 0xFF] = true;
+        candidates[nrPatterns++] = ( specialByte & 0xFFL ) * ONES;
+      }
+    }
+    patterns = new long[nrPatterns];
+    System.arraycopy( candidates, 0, patterns, 0, nrPatterns );
+  }
+
+  /**
+   * @return the index of the first special byte in bytes[from, to[, or to if there is none
+   */
+  public int indexOf( byte[] bytes, int from, int to ) {
+    int i = from;
+    if ( to - from >= 8 ) {
+      ByteBuffer words = ByteBuffer.wrap( bytes ).order( ByteOrder.LITTLE_ENDIAN );
+      while ( i + 8 <= to && !containsSpecial( words.getLong( i ) ) ) {
+        i += 8;
+      }
+    }
+    for ( ; i < to; i++ ) {
+      if ( special[bytes[i] & 0xFF] ) {
+        return i;
+      }
+    }
+    return to;
+  }
+
+  private boolean containsSpecial( long word ) {
+    for ( long pattern : patterns ) {
+      long x = word ^ pattern;
+      if ( ( ( x - ONES ) & ~x & HIGHS ) != 0 ) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
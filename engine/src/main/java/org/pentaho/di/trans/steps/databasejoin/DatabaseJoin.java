@@ -23,8 +23,12 @@
 package org.pentaho.di.trans.steps.databasejoin;
 
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -82,6 +86,10 @@ public class DatabaseJoin extends BaseDatabaseStep implements StepInterface {
 
           data.lookupRowMeta.addValueMeta( rowMeta.getValueMeta( data.keynrs[i] ).clone() );
         }
+
+        if ( meta.getBatchSize() > 1 ) {
+          data.windowResults = new HashMap<>();
+        }
       }
 
       // Construct the parameters row...
@@ -90,6 +98,11 @@ public class DatabaseJoin extends BaseDatabaseStep implements StepInterface {
         lookupRowData[i] = rowData[data.keynrs[i]];
       }
 
+      if ( data.windowResults != null ) {
+        joinWindowRow( meta, data, rowMeta, rowData, lookupRowData );
+        return;
+      }
+
       // Set the values on the prepared statement (for faster exec.)
       rs = data.db.openQuery( data.pstmt, data.lookupRowMeta, lookupRowData );
 
@@ -145,6 +158,69 @@ public class DatabaseJoin extends BaseDatabaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Join a row of a window of input rows: every distinct set of parameters is only queried once per window, the rows
+   * of the other input rows with the same parameters are taken from the window.
+   */
+  private void joinWindowRow( DatabaseJoinMeta meta, DatabaseJoinData data, RowMetaInterface rowMeta,
+      Object[] rowData, Object[] lookupRowData ) throws KettleException {
+    if ( data.windowRows >= meta.getBatchSize() ) {
+      data.windowResults.clear();
+      data.windowRows = 0;
+    }
+    data.windowRows++;
+
+    RowMetaAndData key = new RowMetaAndData( data.lookupRowMeta, lookupRowData );
+    List<Object[]> found = data.windowResults.get( key );
+    if ( found == null ) {
+      found = queryRows( meta, data, lookupRowData );
+      data.windowResults.put( key, found );
+    }
+
+    for ( Object[] add : found ) {
+      Object[] newRow = RowDataUtil.resizeArray( rowData, data.outputRowMeta.size() );
+      System.arraycopy( add, 0, newRow, rowMeta.size(), add.length );
+      putRow( data.outputRowMeta, data.outputRowMeta.cloneRow( newRow ) );
+
+      if ( log.isRowLevel() ) {
+        logRowlevel( BaseMessages.getString( PKG, "DatabaseJoin.Log.PutoutRow" )
+            + data.outputRowMeta.getString( newRow ) );
+      }
+    }
+
+    // Nothing found? Perhaps we have to put something out after all?
+    if ( found.isEmpty() && meta.isOuterJoin() ) {
+      Object[] newRow = RowDataUtil.resizeArray( rowData, data.outputRowMeta.size() );
+      for ( int i = rowMeta.size(); i < newRow.length; i++ ) {
+        newRow[i] = null;
+      }
+      putRow( data.outputRowMeta, newRow );
+    }
+  }
+
+  /**
+   * @return the rows found for the parameters, up to the row limit
+   */
+  private List<Object[]> queryRows( DatabaseJoinMeta meta, DatabaseJoinData data, Object[] lookupRowData )
+    throws KettleException {
+    List<Object[]> found = new ArrayList<>();
+    ResultSet rs = data.db.openQuery( data.pstmt, data.lookupRowMeta, lookupRowData );
+    try {
+      Object[] add = data.db.getRow( rs );
+      incrementLinesInput();
+      while ( add != null && ( meta.getRowLimit() == 0 || found.size() < meta.getRowLimit() ) ) {
+        found.add( add );
+        if ( meta.getRowLimit() == 0 || found.size() < meta.getRowLimit() ) {
+          add = data.db.getRow( rs );
+          incrementLinesInput();
+        }
+      }
+    } finally {
+      data.db.closeQuery( rs );
+    }
+    return found;
+  }
+
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
 
     boolean sendToErrorRow = false;
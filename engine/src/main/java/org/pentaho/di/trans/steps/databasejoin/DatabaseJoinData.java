@@ -23,7 +23,10 @@
 package org.pentaho.di.trans.steps.databasejoin;
 
 import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
 
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseDatabaseStepData;
@@ -44,6 +47,10 @@ public class DatabaseJoinData extends BaseDatabaseStepData implements StepDataIn
   public Object[] notfound; // Values in case nothing is found...
   public boolean isCanceled;
 
+  /** The rows found per set of parameters in the current window of input rows, null when querying row by row */
+  Map<RowMetaAndData, List<Object[]>> windowResults;
+  int windowRows; // input rows in the current window
+
   public DatabaseJoinData() {
     super();
   }
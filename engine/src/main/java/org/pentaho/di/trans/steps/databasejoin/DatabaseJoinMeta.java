@@ -63,6 +63,9 @@ public class DatabaseJoinMeta extends BaseDatabaseStepMeta implements StepMetaIn
   /** Number of rows to return (0=ALL) */
   private int rowLimit;
 
+  /** Number of input rows to gather before querying each distinct set of parameters once (0 or 1=row by row) */
+  private int batchSize;
+
   /**
    * false: don't return rows where nothing is found true: at least return one source row, the rest is NULL
    */
@@ -173,6 +176,22 @@ public class DatabaseJoinMeta extends BaseDatabaseStepMeta implements StepMetaIn
     this.rowLimit = rowLimit;
   }
 
+  /**
+   * @return the number of input rows gathered before each distinct set of parameters is queried once
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @param batchSize
+   *          the number of input rows to gather before each distinct set of parameters is queried once, 0 or 1 to
+   *          query row by row
+   */
+  public void setBatchSize( int batchSize ) {
+    this.batchSize = batchSize;
+  }
+
   /**
    * @return Returns the sql.
    */
@@ -224,6 +243,7 @@ public class DatabaseJoinMeta extends BaseDatabaseStepMeta implements StepMetaIn
       outerJoin = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "outer_join" ) );
       replacevars = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "replace_vars" ) );
       rowLimit = Const.toInt( XMLHandler.getTagValue( stepnode, "rowlimit" ), 0 );
+      batchSize = Const.toInt( XMLHandler.getTagValue( stepnode, "batch_size" ), 0 );
 
       Node param = XMLHandler.getSubNode( stepnode, "parameter" );
       int nrparam = XMLHandler.countNodes( param, "field" );
@@ -246,6 +266,7 @@ public class DatabaseJoinMeta extends BaseDatabaseStepMeta implements StepMetaIn
   public void setDefault() {
     databaseMeta = null;
     rowLimit = 0;
+    batchSize = 0;
     sql = "";
     outerJoin = false;
     parameterField = null;
@@ -338,6 +359,7 @@ public class DatabaseJoinMeta extends BaseDatabaseStepMeta implements StepMetaIn
       .append( "    " ).append(
         XMLHandler.addTagValue( "connection", databaseMeta == null ? "" : databaseMeta.getName() ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "rowlimit", rowLimit ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "batch_size", batchSize ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "sql", sql ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "outer_join", outerJoin ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "replace_vars", replacevars ) );
@@ -359,6 +381,7 @@ public class DatabaseJoinMeta extends BaseDatabaseStepMeta implements StepMetaIn
     try {
       databaseMeta = rep.loadDatabaseMetaFromStepAttribute( id_step, "id_connection", databases );
       rowLimit = (int) rep.getStepAttributeInteger( id_step, "rowlimit" );
+      batchSize = (int) rep.getStepAttributeInteger( id_step, "batch_size" );
       sql = rep.getStepAttributeString( id_step, "sql" );
       outerJoin = rep.getStepAttributeBoolean( id_step, "outer_join" );
       replacevars = rep.getStepAttributeBoolean( id_step, "replace_vars" );
@@ -383,6 +406,7 @@ public class DatabaseJoinMeta extends BaseDatabaseStepMeta implements StepMetaIn
     try {
       rep.saveDatabaseMetaStepAttribute( id_transformation, id_step, "id_connection", databaseMeta );
       rep.saveStepAttribute( id_transformation, id_step, "rowlimit", rowLimit );
+      rep.saveStepAttribute( id_transformation, id_step, "batch_size", batchSize );
       rep.saveStepAttribute( id_transformation, id_step, "sql", sql );
       rep.saveStepAttribute( id_transformation, id_step, "outer_join", outerJoin );
       rep.saveStepAttribute( id_transformation, id_step, "replace_vars", replacevars );
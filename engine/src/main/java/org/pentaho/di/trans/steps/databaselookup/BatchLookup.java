@@ -0,0 +1,313 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.i18n.BaseMessages;
+
+/**
+ * Looks up the keys of a window of input rows of a Database Lookup step with one query per batch of distinct keys:
+ * {@code SELECT <return fields>, <key fields> FROM <table> WHERE <key> IN ( ?, ... )}, or an OR of the key conditions
+ * when there are several key fields. The returned rows are matched with the keys on the key fields. Like with the
+ * lookup of a single key, the first row of a key wins.<br>
+ * Only lookups with "=" conditions can be batched.
+ *
+ * @since 10.3
+ */
+class BatchLookup {
+  private static Class<?> PKG = DatabaseLookupMeta.class; // for i18n purposes, needed by Translator2!!
+
+  /** The window is flushed at this many rows per key of the batch, even if it has fewer distinct keys */
+  private static final int MAX_ROWS_PER_KEY = 10;
+
+  /** Marks the keys for which more than one row was found when that is an error */
+  private static final Object[] MULTIPLE_RESULTS = new Object[0];
+
+  private final DatabaseLookupMeta meta;
+  private final DatabaseLookupData data;
+  private final int batchSize;
+  private final int nrReturnValues;
+
+  private PreparedStatement statement;
+  private RowMetaInterface parameterMeta;
+
+  private final List<WindowRow> rows = new ArrayList<>();
+  private final Map<RowMetaAndData, Object[]> pendingKeys = new LinkedHashMap<>();
+
+  /**
+   * An input row waiting for the lookup of its key.
+   */
+  static class WindowRow {
+    final Object[] row;
+    final Object[] lookupRow;
+    final boolean cacheHit;
+    private Object[] values;
+
+    WindowRow( Object[] row, Object[] lookupRow, Object[] cachedValues ) {
+      this.row = row;
+      this.lookupRow = lookupRow;
+      this.cacheHit = cachedValues != null;
+      this.values = cachedValues;
+    }
+
+    /**
+     * @return the looked up values or null if nothing was found
+     * @throws KettleDatabaseException
+     *           if more than one row was found while the step fails on multiple results
+     */
+    Object[] getValues() throws KettleDatabaseException {
+      if ( values == MULTIPLE_RESULTS ) {
+        throw new KettleDatabaseException( BaseMessages.getString( PKG, "DatabaseLookup.Exception.MultipleResults" ) );
+      }
+      return values;
+    }
+  }
+
+  BatchLookup( DatabaseLookupMeta meta, DatabaseLookupData data, int batchSize ) {
+    this.meta = meta;
+    this.data = data;
+    this.batchSize = batchSize;
+    this.nrReturnValues = meta.getReturnValueField().length;
+  }
+
+  /**
+   * @return true if all key conditions of the step are "="
+   */
+  static boolean isBatchable( DatabaseLookupMeta meta ) {
+    String[] conditions = meta.getKeyCondition();
+    if ( conditions == null || conditions.length == 0 ) {
+      return false;
+    }
+    for ( String condition : conditions ) {
+      if ( !"=".equals( condition ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Prepare the batch query, the key values of data.lookupMeta are repeated once per key of the batch.
+   */
+  void prepare( String schemaName, String tableName ) throws KettleDatabaseException {
+    statement = data.db.prepareSQL( getSql( schemaName, tableName ) );
+    parameterMeta = new RowMeta();
+    for ( int i = 0; i < batchSize; i++ ) {
+      parameterMeta.addRowMeta( data.lookupMeta );
+    }
+  }
+
+  String getSql( String schemaName, String tableName ) {
+    DatabaseMeta databaseMeta = meta.getDatabaseMeta();
+    String[] gets = meta.getReturnValueField();
+    String[] rename = meta.getReturnValueNewName();
+    String[] keys = meta.getTableKeyField();
+
+    StringBuilder sql = new StringBuilder( "SELECT " );
+    for ( int i = 0; i < gets.length; i++ ) {
+      if ( i != 0 ) {
+        sql.append( ", " );
+      }
+      sql.append( databaseMeta.quoteField( gets[ i ] ) );
+      if ( rename != null && rename[ i ] != null && !gets[ i ].equalsIgnoreCase( rename[ i ] ) ) {
+        sql.append( " AS " ).append( databaseMeta.quoteField( rename[ i ] ) );
+      }
+    }
+    // The keys come last so the return values are at the same index as in a lookup of a single key
+    //
+    for ( int i = 0; i < keys.length; i++ ) {
+      if ( gets.length != 0 || i != 0 ) {
+        sql.append( ", " );
+      }
+      sql.append( databaseMeta.quoteField( keys[ i ] ) );
+    }
+
+    sql.append( " FROM " ).append( databaseMeta.getQuotedSchemaTableCombination( schemaName, tableName ) );
+    sql.append( " WHERE " );
+    if ( keys.length == 1 ) {
+      sql.append( databaseMeta.quoteField( keys[ 0 ] ) ).append( " IN ( " );
+      for ( int i = 0; i < batchSize; i++ ) {
+        sql.append( i == 0 ? "?" : ", ?" );
+      }
+      sql.append( " )" );
+    } else {
+      for ( int i = 0; i < batchSize; i++ ) {
+        sql.append( i == 0 ? "( " : " OR ( " );
+        for ( int k = 0; k < keys.length; k++ ) {
+          if ( k != 0 ) {
+            sql.append( " AND " );
+          }
+          sql.append( databaseMeta.quoteField( keys[ k ] ) ).append( " = ?" );
+        }
+        sql.append( " )" );
+      }
+    }
+
+    String orderBy = meta.getOrderByClause();
+    if ( orderBy != null && orderBy.length() != 0 ) {
+      sql.append( " ORDER BY " ).append( orderBy );
+    }
+    return sql.toString();
+  }
+
+  /**
+   * Add an input row to the window.
+   *
+   * @param cachedValues
+   *          the values of the key found in the cache, null if the key needs to be looked up
+   * @return true if the window is full
+   */
+  boolean add( Object[] row, Object[] lookupRow, Object[] cachedValues ) {
+    rows.add( new WindowRow( row, lookupRow, cachedValues ) );
+
+    // A key with a null value can't be equal to anything, there's no point in sending it
+    //
+    if ( cachedValues == null && !hasNullValue( lookupRow ) ) {
+      pendingKeys.putIfAbsent( new RowMetaAndData( data.lookupMeta, lookupRow ), lookupRow );
+    }
+    return pendingKeys.size() >= batchSize || rows.size() >= batchSize * MAX_ROWS_PER_KEY;
+  }
+
+  boolean isEmpty() {
+    return rows.isEmpty();
+  }
+
+  /**
+   * @return the rows of the window in their original order
+   */
+  List<WindowRow> getRows() {
+    return rows;
+  }
+
+  /**
+   * Look up the keys of the window that weren't found in the cache.
+   *
+   * @return the rows of the window in their original order, with their values
+   */
+  List<WindowRow> resolve() throws KettleException {
+    Map<RowMetaAndData, Object[]> results = new HashMap<>();
+    List<Object[]> keys = new ArrayList<>( pendingKeys.values() );
+    for ( int i = 0; i < keys.size(); i += batchSize ) {
+      List<Object[]> batch = keys.subList( i, Math.min( keys.size(), i + batchSize ) );
+      if ( query( batch, results ) ) {
+        // The database returned keys which aren't equal to any of ours in Java: a case insensitive collation, padded
+        // CHAR columns, ... Look up the keys without a match on their own so every returned row belongs to them.
+        //
+        for ( Object[] key : batch ) {
+          if ( !results.containsKey( new RowMetaAndData( data.lookupMeta, key ) ) ) {
+            query( Collections.singletonList( key ), results );
+          }
+        }
+      }
+    }
+
+    for ( WindowRow windowRow : rows ) {
+      if ( !windowRow.cacheHit ) {
+        windowRow.values = results.get( new RowMetaAndData( data.lookupMeta, windowRow.lookupRow ) );
+      }
+    }
+    return rows;
+  }
+
+  void clear() {
+    rows.clear();
+    pendingKeys.clear();
+  }
+
+  void close() throws KettleDatabaseException {
+    if ( statement != null ) {
+      data.db.closePreparedStatement( statement );
+      statement = null;
+    }
+  }
+
+  /**
+   * @return true if rows were returned which don't match any of the keys
+   */
+  private boolean query( List<Object[]> keys, Map<RowMetaAndData, Object[]> results ) throws KettleException {
+    // Fill the unused parameters with the last key, it doesn't change the result
+    //
+    int nrKeyValues = data.lookupMeta.size();
+    Object[] parameters = new Object[ parameterMeta.size() ];
+    for ( int i = 0; i < batchSize; i++ ) {
+      Object[] key = keys.get( Math.min( i, keys.size() - 1 ) );
+      System.arraycopy( key, 0, parameters, i * nrKeyValues, nrKeyValues );
+    }
+
+    boolean unmatched = false;
+    ResultSet resultSet = data.db.openQuery( statement, parameterMeta, parameters );
+    try {
+      RowMetaInterface returnRowMeta = data.db.getReturnRowMeta();
+      Object[] row = data.db.getRow( resultSet );
+      while ( row != null ) {
+        RowMetaAndData key;
+        if ( keys.size() == 1 ) {
+          key = new RowMetaAndData( data.lookupMeta, keys.get( 0 ) );
+        } else {
+          Object[] keyData = new Object[ nrKeyValues ];
+          for ( int i = 0; i < nrKeyValues; i++ ) {
+            keyData[ i ] = data.lookupMeta.getValueMeta( i ).convertData(
+              returnRowMeta.getValueMeta( nrReturnValues + i ), row[ nrReturnValues + i ] );
+          }
+          key = new RowMetaAndData( data.lookupMeta, keyData );
+        }
+
+        if ( keys.size() > 1 && !pendingKeys.containsKey( key ) ) {
+          unmatched = true;
+        } else if ( !results.containsKey( key ) ) {
+          results.put( key, Arrays.copyOf( row, nrReturnValues ) );
+        } else if ( meta.isFailingOnMultipleResults() ) {
+          results.put( key, MULTIPLE_RESULTS );
+        }
+        row = data.db.getRow( resultSet );
+      }
+    } finally {
+      data.db.closeQuery( resultSet );
+    }
+    return unmatched;
+  }
+
+  private static boolean hasNullValue( Object[] lookupRow ) {
+    for ( Object value : lookupRow ) {
+      if ( value == null ) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
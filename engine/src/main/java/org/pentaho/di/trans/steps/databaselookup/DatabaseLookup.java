@@ -34,6 +34,7 @@ import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.logging.Metrics;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -78,8 +79,47 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
    */
   @VisibleForTesting
   synchronized Object[] lookupValues( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
-    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
+    Object[] lookupRow = getLookupRow( inputRowMeta, row );
+
+    Object[] add;
+    boolean cache_now = false;
+    boolean cacheHit = false;
+
+    // First, check if we looked up before
+    if ( meta.isCached() ) {
+      add = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
+      if ( add != null ) {
+        cacheHit = true;
+      }
+    } else {
+      add = null;
+    }
+
+    if ( add == null ) {
+      if ( !( meta.isCached() && meta.isLoadingAllDataInCache() ) || data.hasDBCondition ) { // do not go to the
+        // database when all rows
+        // are in (exception LIKE
+        // operator)
+        if ( log.isRowLevel() ) {
+          logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow1" )
+            + meta.getStreamKeyField1().length
+            + BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow2" )
+            + data.lookupMeta.getString( lookupRow ) );
+        }
 
+        data.db.setValuesLookup( data.lookupMeta, lookupRow );
+        add = data.db.getLookup( meta.isFailingOnMultipleResults() );
+        cache_now = true;
+      }
+    }
+
+    return addLookupValues( inputRowMeta, row, lookupRow, add, cacheHit, cache_now );
+  }
+
+  /**
+   * Get the values of the lookup keys from an input row, converted to the types of the key fields.
+   */
+  private Object[] getLookupRow( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
     Object[] lookupRow = new Object[ data.lookupMeta.size() ];
     int lookupIndex = 0;
 
@@ -118,38 +158,17 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         lookupIndex++;
       }
     }
+    return lookupRow;
+  }
 
-    Object[] add;
-    boolean cache_now = false;
-    boolean cacheHit = false;
-
-    // First, check if we looked up before
-    if ( meta.isCached() ) {
-      add = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
-      if ( add != null ) {
-        cacheHit = true;
-      }
-    } else {
-      add = null;
-    }
-
-    if ( add == null ) {
-      if ( !( meta.isCached() && meta.isLoadingAllDataInCache() ) || data.hasDBCondition ) { // do not go to the
-        // database when all rows
-        // are in (exception LIKE
-        // operator)
-        if ( log.isRowLevel() ) {
-          logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow1" )
-            + meta.getStreamKeyField1().length
-            + BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow2" )
-            + data.lookupMeta.getString( lookupRow ) );
-        }
-
-        data.db.setValuesLookup( data.lookupMeta, lookupRow );
-        add = data.db.getLookup( meta.isFailingOnMultipleResults() );
-        cache_now = true;
-      }
-    }
+  /**
+   * Add the looked up values, or the defaults if nothing was found, to an input row.
+   *
+   * @return the output row or null if the row was eaten or sent to the error handling
+   */
+  private Object[] addLookupValues( RowMetaInterface inputRowMeta, Object[] row, Object[] lookupRow, Object[] add,
+    boolean cacheHit, boolean cache_now ) throws KettleException {
+    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
 
     if ( add == null ) { // nothing was found, unknown code: add default values
       if ( meta.isEatingRowOnLookupFailure() ) {
@@ -356,14 +375,18 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
   @Override
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     Object[] r = getRow(); // Get row from input rowset & set row busy!
+
+    meta = (DatabaseLookupMeta) smi;
+    data = (DatabaseLookupData) sdi;
+
     if ( r == null ) { // no more input to be expected...
+      if ( data.batchLookup != null && !flushBatch() ) {
+        return false;
+      }
       setOutputDone();
       return false;
     }
 
-    meta = (DatabaseLookupMeta) smi;
-    data = (DatabaseLookupData) sdi;
-
     if ( first ) {
       first = false;
 
@@ -425,12 +448,25 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
 
       initReturnMeta();
 
+      if ( meta.isCached() && !meta.isLoadingAllDataInCache() && data.allEquals ) {
+        initSharedCache();
+      }
+
       // If the user selected to load all data into the cache at startup, that's what we do now...
       //
       if ( meta.isCached() && meta.isLoadingAllDataInCache() ) {
         loadAllTableDataIntoTheCache();
       }
 
+      if ( meta.getBatchSize() > 1 && !( meta.isCached() && meta.isLoadingAllDataInCache() ) ) {
+        if ( BatchLookup.isBatchable( meta ) ) {
+          data.batchLookup = new BatchLookup( meta, data, meta.getBatchSize() );
+          data.batchLookup.prepare(
+            environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTablename() ) );
+        } else {
+          logBasic( BaseMessages.getString( PKG, "DatabaseLookup.Log.BatchLookupNotUsed" ) );
+        }
+      }
     }
 
     if ( log.isRowLevel() ) {
@@ -439,37 +475,156 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     }
 
     try {
+      if ( data.batchLookup != null ) {
+        return addToBatch( r );
+      }
+
       // add new lookup values to the row
-      Object[] outputRow = lookupValues( getInputRowMeta(), r );
+      putOutputRow( r, lookupValues( getInputRowMeta(), r ) );
+    } catch ( KettleException e ) {
+      return handleLookupError( r, e );
+    }
 
-      if ( outputRow != null ) {
-        // copy row to output rowset(s);
-        putRow( data.outputRowMeta, outputRow );
+    return true;
+  }
 
-        if ( log.isRowLevel() ) {
-          logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.WroteRowToNextStep" )
-            + getInputRowMeta().getString( r ) );
-        }
-        if ( checkFeedback( getLinesRead() ) ) {
-          logBasic( "linenr " + getLinesRead() );
-        }
+  private void putOutputRow( Object[] row, Object[] outputRow ) throws KettleException {
+    if ( outputRow != null ) {
+      // copy row to output rowset(s);
+      putRow( data.outputRowMeta, outputRow );
+
+      if ( log.isRowLevel() ) {
+        logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.WroteRowToNextStep" )
+          + getInputRowMeta().getString( row ) );
       }
-    } catch ( KettleException e ) {
-      if ( getStepMeta().isDoingErrorHandling() ) {
-        putError( getInputRowMeta(), r, 1, e.getMessage(), null, "DBLOOKUPD001" );
-      } else {
-        logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR003.UnexpectedErrorDuringProcessing" )
-          + e.getMessage() );
-        setErrors( 1 );
-        stopAll();
-        setOutputDone(); // signal end to receiver(s)
-        return false;
+      if ( checkFeedback( getLinesRead() ) ) {
+        logBasic( "linenr " + getLinesRead() );
       }
     }
+  }
 
+  /**
+   * @return false if the step has to stop
+   */
+  private boolean handleLookupError( Object[] row, KettleException e ) {
+    if ( getStepMeta().isDoingErrorHandling() ) {
+      putError( getInputRowMeta(), row, 1, e.getMessage(), null, "DBLOOKUPD001" );
+      return true;
+    }
+    logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR003.UnexpectedErrorDuringProcessing" )
+      + e.getMessage() );
+    setErrors( 1 );
+    stopAll();
+    setOutputDone(); // signal end to receiver(s)
+    return false;
+  }
+
+  /**
+   * Add a row to the window of the batch lookup, looking up the window once it holds enough keys. Rows found in the
+   * cache are passed on right away when no other rows are waiting, otherwise the window keeps the order of the rows.
+   */
+  private boolean addToBatch( Object[] row ) throws KettleException {
+    Object[] lookupRow = getLookupRow( getInputRowMeta(), row );
+    Object[] add = meta.isCached() ? data.cache.getRowFromCache( data.lookupMeta, lookupRow ) : null;
+    if ( add != null && data.batchLookup.isEmpty() ) {
+      putOutputRow( row, addLookupValues( getInputRowMeta(), row, lookupRow, add, true, false ) );
+      return true;
+    }
+    if ( data.batchLookup.add( row, lookupRow, add ) ) {
+      return flushBatch();
+    }
     return true;
   }
 
+  /**
+   * Look up the keys of the window of the batch lookup and pass on its rows.
+   *
+   * @return false if the step has to stop
+   */
+  private boolean flushBatch() {
+    try {
+      List<BatchLookup.WindowRow> windowRows;
+      try {
+        windowRows = data.batchLookup.resolve();
+      } catch ( KettleException e ) {
+        // The query failed for all the rows in the window
+        //
+        for ( BatchLookup.WindowRow windowRow : data.batchLookup.getRows() ) {
+          if ( !handleLookupError( windowRow.row, e ) ) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      for ( BatchLookup.WindowRow windowRow : windowRows ) {
+        try {
+          putOutputRow( windowRow.row, addLookupValues( getInputRowMeta(), windowRow.row, windowRow.lookupRow,
+            windowRow.getValues(), windowRow.cacheHit, !windowRow.cacheHit ) );
+        } catch ( KettleException e ) {
+          if ( !handleLookupError( windowRow.row, e ) ) {
+            return false;
+          }
+        }
+      }
+      return true;
+    } finally {
+      data.batchLookup.clear();
+    }
+  }
+
+  /**
+   * Replace the cache of this step copy with a shared cache if the KETTLE_DATABASE_LOOKUP_SHARED_CACHE variable asks
+   * for one.
+   */
+  private void initSharedCache() throws KettleDatabaseException {
+    String scope = getVariable( Const.KETTLE_DATABASE_LOOKUP_SHARED_CACHE, "N" );
+    boolean jvmScope = "JVM".equalsIgnoreCase( scope );
+    if ( !jvmScope && !"STEP".equalsIgnoreCase( scope ) ) {
+      return;
+    }
+    long maxBytes = Const.toMemorySize(
+      getVariable( Const.KETTLE_DATABASE_LOOKUP_CACHE_MEMORY ), SharedLookupCache.DEFAULT_MAX_BYTES );
+    data.cache = SharedLookupCache.acquire( getSharedCacheName( jvmScope ), maxBytes, meta.getCacheSize() );
+  }
+
+  /**
+   * The name of a shared cache holds everything that determines the cached values: the connection, the query and the
+   * types and defaults of the values.
+   */
+  private String getSharedCacheName( boolean jvmScope ) throws KettleDatabaseException {
+    DatabaseMeta dbMeta = meta.getDatabaseMeta();
+    StringBuilder name = new StringBuilder();
+    if ( !jvmScope ) {
+      name.append( getTrans().getLogChannelId() ).append( '|' ).append( getStepname() ).append( '|' );
+    }
+    name.append( environmentSubstitute( dbMeta.getURL( getPartitionID() ) ) ).append( '|' );
+    name.append( environmentSubstitute( dbMeta.getUsername() ) ).append( '|' );
+    name.append( environmentSubstitute( meta.getSchemaName() ) ).append( '|' );
+    name.append( environmentSubstitute( meta.getTablename() ) ).append( '|' );
+    name.append( Arrays.toString( meta.getTableKeyField() ) ).append( Arrays.toString( meta.getKeyCondition() ) );
+    name.append( Arrays.toString( meta.getReturnValueField() ) ).append( '|' );
+    name.append( meta.getOrderByClause() ).append( '|' ).append( meta.isFailingOnMultipleResults() ).append( '|' );
+    name.append( data.lookupMeta.toStringMeta() ).append( '|' ).append( data.returnMeta.toStringMeta() ).append( '|' );
+    name.append( Arrays.toString( data.nullif ) );
+    return name.toString();
+  }
+
+  private void releaseSharedCache( SharedLookupCache cache ) {
+    if ( !SharedLookupCache.release( cache ) ) {
+      return;
+    }
+    // The last step copy using the cache reports on it
+    //
+    logBasic( BaseMessages.getString( PKG, "DatabaseLookup.Log.SharedCacheStatistics", cache.getHits(),
+      cache.getMisses(), cache.getEvictions(), cache.getSize(), cache.getWeightedSize() ) );
+    if ( log.isGatheringMetrics() ) {
+      log.snap( Metrics.METRIC_DATABASE_LOOKUP_CACHE_HITS, getStepname(), cache.getHits() );
+      log.snap( Metrics.METRIC_DATABASE_LOOKUP_CACHE_MISSES, getStepname(), cache.getMisses() );
+      log.snap( Metrics.METRIC_DATABASE_LOOKUP_CACHE_EVICTIONS, getStepname(), cache.getEvictions() );
+    }
+  }
+
   private void loadAllTableDataIntoTheCache() throws KettleException {
     DatabaseMeta dbMeta = meta.getDatabaseMeta();
 
@@ -651,12 +806,23 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     meta = (DatabaseLookupMeta) smi;
     data = (DatabaseLookupData) sdi;
 
+    if ( data.batchLookup != null ) {
+      try {
+        data.batchLookup.close();
+      } catch ( KettleDatabaseException e ) {
+        logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR0005.UnableToCloseBatchLookup" ), e );
+      }
+      data.batchLookup = null;
+    }
     if ( data.db != null ) {
       data.db.disconnect();
     }
 
     // Recover memory immediately, allow in-memory data to be garbage collected
     //
+    if ( data.cache instanceof SharedLookupCache ) {
+      releaseSharedCache( (SharedLookupCache) data.cache );
+    }
     data.cache = null;
 
     super.dispose( smi, sdi );
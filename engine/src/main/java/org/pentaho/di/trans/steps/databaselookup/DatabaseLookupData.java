@@ -49,6 +49,9 @@ public class DatabaseLookupData extends BaseStepData implements StepDataInterfac
   public int[] conditions;
   public boolean hasDBCondition;
 
+  /** Looks up the keys of a window of rows at once, null when the keys are looked up one by one */
+  BatchLookup batchLookup;
+
   public DatabaseLookupData() {
     super();
 
@@ -126,6 +126,9 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
   /** Have the lookup eat the incoming row when nothing gets found */
   private boolean eatingRowOnLookupFailure;
 
+  /** Look up this many distinct keys with a single query, 0 or 1 to look up the keys one by one */
+  private int batchSize;
+
   public DatabaseLookupMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -160,6 +163,21 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     this.cacheSize = cacheSize;
   }
 
+  /**
+   * @return the number of distinct keys looked up with a single query
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @param batchSize
+   *          the number of distinct keys to look up with a single query, 0 or 1 to look up the keys one by one
+   */
+  public void setBatchSize( int batchSize ) {
+    this.batchSize = batchSize;
+  }
+
   /**
    * @return Returns the database.
    */
@@ -397,6 +415,7 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       loadingAllDataInCache = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "cache_load_all" ) );
       csize = XMLHandler.getTagValue( stepnode, "cache_size" );
       cacheSize = Const.toInt( csize, 0 );
+      batchSize = Const.toInt( XMLHandler.getTagValue( stepnode, "batch_size" ), 0 );
       schemaName = XMLHandler.getTagValue( stepnode, "lookup", "schema" );
       tablename = XMLHandler.getTagValue( stepnode, "lookup", "table" );
 
@@ -451,6 +470,7 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     databaseMeta = null;
     cached = false;
     cacheSize = 0;
+    batchSize = 0;
     schemaName = "";
     tablename = BaseMessages.getString( PKG, "DatabaseLookupMeta.Default.TableName" );
 
@@ -516,6 +536,7 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     retval.append( "    " ).append( XMLHandler.addTagValue( "cache", cached ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "cache_load_all", loadingAllDataInCache ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "cache_size", cacheSize ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "batch_size", batchSize ) );
     retval.append( "    <lookup>" ).append( Const.CR );
     retval.append( "      " ).append( XMLHandler.addTagValue( "schema", schemaName ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "table", tablename ) );
@@ -555,6 +576,7 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       cached = rep.getStepAttributeBoolean( id_step, "cache" );
       loadingAllDataInCache = rep.getStepAttributeBoolean( id_step, "cache_load_all" );
       cacheSize = (int) rep.getStepAttributeInteger( id_step, "cache_size" );
+      batchSize = (int) rep.getStepAttributeInteger( id_step, "batch_size" );
       schemaName = rep.getStepAttributeString( id_step, "lookup_schema" );
       tablename = rep.getStepAttributeString( id_step, "lookup_table" );
       orderByClause = rep.getStepAttributeString( id_step, "lookup_orderby" );
@@ -593,6 +615,7 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       rep.saveStepAttribute( id_transformation, id_step, "cache", cached );
       rep.saveStepAttribute( id_transformation, id_step, "cache_load_all", loadingAllDataInCache );
       rep.saveStepAttribute( id_transformation, id_step, "cache_size", cacheSize );
+      rep.saveStepAttribute( id_transformation, id_step, "batch_size", batchSize );
       rep.saveStepAttribute( id_transformation, id_step, "lookup_schema", schemaName );
       rep.saveStepAttribute( id_transformation, id_step, "lookup_table", tablename );
       rep.saveStepAttribute( id_transformation, id_step, "lookup_orderby", orderByClause );
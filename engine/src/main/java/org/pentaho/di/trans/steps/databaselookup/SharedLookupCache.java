@@ -0,0 +1,400 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A lookup cache which can be shared by the copies of a Database Lookup step, or by all Database Lookup steps in the
+ * JVM that run the same query on the same connection. The cache is bounded by the estimated memory taken by its
+ * entries and optionally by a number of entries.<br>
+ * Entries are kept with a W-TinyLFU policy: new keys enter a small LRU window. When they leave the window they are
+ * only admitted to the main segmented LRU if they were looked up more often than the entry they would replace. The
+ * lookup frequencies are kept in a count-min sketch which is halved periodically, so a scan of one-off keys doesn't
+ * flush the keys that are looked up all the time.<br>
+ * Only exact key lookups are supported, so the cache is only used when all lookup conditions are "=" or "IS NULL".
+ *
+ * @since 10.3
+ */
+public class SharedLookupCache implements DatabaseLookupData.Cache {
+
+  public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+  /** The share of the memory taken by the window of new entries */
+  private static final double WINDOW_SHARE = 0.01;
+
+  /** The share of the main memory taken by the entries which were looked up again after their admission */
+  private static final double PROTECTED_SHARE = 0.8;
+
+  /** The estimated memory taken by the map entry, the node and the key object of an entry */
+  private static final long ENTRY_OVERHEAD = 128L;
+
+  private static final Map<String, SharedLookupCache> caches = new HashMap<>();
+
+  private final String name;
+  private int references;
+
+  private final long maxBytes;
+  private final long windowMaxBytes;
+  private final long protectedMaxBytes;
+  private final int maxEntries;
+
+  private final Map<RowMetaAndData, Node> nodes = new HashMap<>();
+  private final AccessQueue window = new AccessQueue();
+  private final AccessQueue probation = new AccessQueue();
+  private final AccessQueue protectedQueue = new AccessQueue();
+  private final FrequencySketch sketch;
+
+  private long windowBytes;
+  private long mainBytes;
+  private long protectedBytes;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Get the cache with the given name, creating it if there is none yet. Every call must be followed by a call to
+   * {@link #release(SharedLookupCache)}.
+   *
+   * @param name
+   *          the name of the cache: the scope of the cache, the connection and the query
+   * @param maxBytes
+   *          the estimated memory the entries may take, only used when the cache is created
+   * @param maxEntries
+   *          the maximum number of entries, 0 for no limit, only used when the cache is created
+   */
+  public static synchronized SharedLookupCache acquire( String name, long maxBytes, int maxEntries ) {
+    SharedLookupCache cache = caches.get( name );
+    if ( cache == null ) {
+      cache = new SharedLookupCache( name, maxBytes, maxEntries );
+      caches.put( name, cache );
+    }
+    cache.references++;
+    return cache;
+  }
+
+  /**
+   * Release a cache. The last release removes the cache, so the next transformation doesn't get stale data.
+   *
+   * @return true if this was the last reference to the cache
+   */
+  public static synchronized boolean release( SharedLookupCache cache ) {
+    if ( --cache.references > 0 ) {
+      return false;
+    }
+    caches.remove( cache.name );
+    return true;
+  }
+
+  SharedLookupCache( String name, long maxBytes, int maxEntries ) {
+    this.name = name;
+    this.maxBytes = maxBytes;
+    this.maxEntries = maxEntries;
+    windowMaxBytes = Math.max( 1L, (long) ( maxBytes * WINDOW_SHARE ) );
+    protectedMaxBytes = (long) ( ( maxBytes - windowMaxBytes ) * PROTECTED_SHARE );
+
+    // Size the sketch on the number of entries we expect to fit
+    //
+    long expectedEntries = maxEntries > 0 ? maxEntries : maxBytes / 256;
+    sketch = new FrequencySketch( (int) Math.max( 64L, Math.min( expectedEntries, 1 << 24 ) ) );
+  }
+
+  @Override
+  public synchronized Object[] getRowFromCache( RowMetaInterface lookupMeta, Object[] lookupRow ) {
+    RowMetaAndData key = new RowMetaAndData( lookupMeta, lookupRow );
+    Node node = nodes.get( key );
+    sketch.increment( node == null ? key.hashCode() : node.hash );
+    if ( node == null ) {
+      misses++;
+      return null;
+    }
+    hits++;
+
+    if ( node.queue == window ) {
+      window.moveToTail( node );
+    } else if ( node.queue == probation ) {
+      // Looked up again after its admission: protect it from the new entries
+      //
+      probation.remove( node );
+      protectedQueue.add( node );
+      protectedBytes += node.weight;
+      while ( protectedBytes > protectedMaxBytes ) {
+        Node demoted = protectedQueue.peek();
+        protectedQueue.remove( demoted );
+        protectedBytes -= demoted.weight;
+        probation.add( demoted );
+      }
+    } else {
+      protectedQueue.moveToTail( node );
+    }
+    return node.value;
+  }
+
+  @Override
+  public synchronized void storeRowInCache( DatabaseLookupMeta meta, RowMetaInterface lookupMeta,
+    Object[] lookupRow, Object[] add ) {
+    RowMetaAndData key = new RowMetaAndData( lookupMeta, lookupRow );
+    if ( nodes.containsKey( key ) ) {
+      return;
+    }
+    long weight = ENTRY_OVERHEAD + estimateSize( lookupRow ) + estimateSize( add );
+    if ( weight > maxBytes ) {
+      return;
+    }
+
+    Node node = new Node( key, add, weight );
+    nodes.put( key, node );
+    window.add( node );
+    windowBytes += weight;
+
+    // Entries leaving the window compete with the least recently used entries of the main area
+    //
+    while ( windowBytes > windowMaxBytes || ( isOverMaxEntries() && window.peek() != null ) ) {
+      Node candidate = window.peek();
+      window.remove( candidate );
+      windowBytes -= candidate.weight;
+      admit( candidate );
+    }
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return the number of entries in the cache
+   */
+  public synchronized int getSize() {
+    return nodes.size();
+  }
+
+  /**
+   * @return the estimated memory taken by the entries in the cache
+   */
+  public synchronized long getWeightedSize() {
+    return windowBytes + mainBytes;
+  }
+
+  private void admit( Node candidate ) {
+    long mainMaxBytes = maxBytes - windowMaxBytes;
+    if ( candidate.weight > mainMaxBytes ) {
+      evict( candidate );
+      return;
+    }
+    while ( mainBytes + candidate.weight > mainMaxBytes || isOverMaxEntries() ) {
+      Node victim = probation.peek() != null ? probation.peek() : protectedQueue.peek();
+      if ( victim == null ) {
+        break;
+      }
+      if ( sketch.frequency( candidate.hash ) <= sketch.frequency( victim.hash ) ) {
+        evict( candidate );
+        return;
+      }
+      removeFromMain( victim );
+      evict( victim );
+    }
+    probation.add( candidate );
+    mainBytes += candidate.weight;
+  }
+
+  private boolean isOverMaxEntries() {
+    return maxEntries > 0 && nodes.size() > maxEntries;
+  }
+
+  private void removeFromMain( Node node ) {
+    if ( node.queue == protectedQueue ) {
+      protectedBytes -= node.weight;
+    }
+    node.queue.remove( node );
+    mainBytes -= node.weight;
+  }
+
+  private void evict( Node node ) {
+    nodes.remove( node.key );
+    evictions++;
+  }
+
+  /**
+   * Estimates the memory taken by the values of a row.
+   */
+  static long estimateSize( Object[] row ) {
+    if ( row == null ) {
+      return 0L;
+    }
+    long size = 16L + 8L * row.length;
+    for ( Object value : row ) {
+      if ( value == null ) {
+        continue;
+      } else if ( value instanceof String ) {
+        size += 56L + ( (String) value ).length();
+      } else if ( value instanceof byte[] ) {
+        size += 16L + ( (byte[]) value ).length;
+      } else if ( value instanceof BigDecimal ) {
+        size += 72L;
+      } else if ( value instanceof Date ) {
+        size += 32L;
+      } else {
+        size += 24L;
+      }
+    }
+    return size;
+  }
+
+  private static class Node {
+    final RowMetaAndData key;
+    final int hash;
+    final Object[] value;
+    final long weight;
+
+    AccessQueue queue;
+    Node previous;
+    Node next;
+
+    Node( RowMetaAndData key, Object[] value, long weight ) {
+      this.key = key;
+      this.hash = key.hashCode();
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * A doubly linked list of nodes from the least to the most recently used.
+   */
+  private static class AccessQueue {
+    private Node head;
+    private Node tail;
+
+    Node peek() {
+      return head;
+    }
+
+    void add( Node node ) {
+      node.queue = this;
+      node.previous = tail;
+      node.next = null;
+      if ( tail == null ) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+    }
+
+    void remove( Node node ) {
+      if ( node.previous == null ) {
+        head = node.next;
+      } else {
+        node.previous.next = node.next;
+      }
+      if ( node.next == null ) {
+        tail = node.previous;
+      } else {
+        node.next.previous = node.previous;
+      }
+      node.queue = null;
+      node.previous = null;
+      node.next = null;
+    }
+
+    void moveToTail( Node node ) {
+      if ( node != tail ) {
+        remove( node );
+        add( node );
+      }
+    }
+  }
+
+  /**
+   * A count-min sketch of 4-bit counters estimating how often a hash code was seen. All counters are halved once the
+   * number of increments reaches 10 times the width, so old popularity fades away.
+   */
+  static class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = { 0x97cb3127, 0x7ed7a8c5, 0x4f6bd8cb, 0xe8a3b2e5 };
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int resetSize;
+    private int size;
+
+    FrequencySketch( int expectedEntries ) {
+      int width = Integer.highestOneBit( Math.max( 16, expectedEntries - 1 ) ) << 1;
+      counters = new byte[ DEPTH ][ width ];
+      mask = width - 1;
+      resetSize = 10 * width;
+    }
+
+    void increment( int hash ) {
+      boolean added = false;
+      for ( int i = 0; i < DEPTH; i++ ) {
+        int index = index( hash, i );
+        if ( counters[ i ][ index ] < MAX_COUNT ) {
+          counters[ i ][ index ]++;
+          added = true;
+        }
+      }
+      if ( added && ++size >= resetSize ) {
+        reset();
+      }
+    }
+
+    int frequency( int hash ) {
+      int frequency = MAX_COUNT;
+      for ( int i = 0; i < DEPTH; i++ ) {
+        frequency = Math.min( frequency, counters[ i ][ index( hash, i ) ] );
+      }
+      return frequency;
+    }
+
+    private int index( int hash, int row ) {
+      int h = ( hash ^ ( hash >>> 16 ) ) * SEEDS[ row ];
+      return ( h ^ ( h >>> 15 ) ) & mask;
+    }
+
+    private void reset() {
+      for ( byte[] row : counters ) {
+        for ( int i = 0; i < row.length; i++ ) {
+          row[ i ] >>= 1;
+        }
+      }
+      size /= 2;
+    }
+  }
+}
@@ -47,16 +47,18 @@ public class DummyTrans extends BaseStep implements StepInterface {
   }
 
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
-    Object[] r = getRow(); // get row, set busy!
+    Object[][] rows = getRowBatch();
+    long linesBefore = getLinesRead();
+    int nrRows = getRows( rows, rows.length ); // get rows, set busy!
     // no more input to be expected...
-    if ( r == null ) {
+    if ( nrRows == 0 ) {
       setOutputDone();
       return false;
     }
 
-    putRow( getInputRowMeta(), r ); // copy row to possible alternate rowset(s).
+    putRows( getInputRowMeta(), rows, nrRows ); // copy rows to possible alternate rowset(s).
 
-    if ( checkFeedback( getLinesRead() ) ) {
+    if ( checkFeedback( linesBefore, getLinesRead() ) ) {
       if ( log.isBasic() ) {
         logBasic( BaseMessages.getString( PKG, "DummyTrans.Log.LineNumber" ) + getLinesRead() );
       }
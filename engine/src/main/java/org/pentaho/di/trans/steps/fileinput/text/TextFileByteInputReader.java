@@ -0,0 +1,331 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.fileinput.text;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.compress.CompressionInputStream;
+import org.pentaho.di.core.compress.CompressionProvider;
+import org.pentaho.di.core.compress.CompressionProviderFactory;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+import org.pentaho.di.core.util.EnvUtil;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.errorhandling.AbstractFileErrorHandler;
+import org.pentaho.di.trans.steps.file.BaseFileField;
+import org.pentaho.di.trans.steps.file.IBaseFileInputReader;
+import org.pentaho.di.trans.steps.file.IBaseFileInputStepControl;
+
+/**
+ * Reader for one CSV file with lazy conversion: the fields are passed on as binary strings, split off the lines by a
+ * {@link TextFileByteReader} without building Strings. Lines are only decoded when filters need them.
+ *
+ * @since 10.3
+ */
+public class TextFileByteInputReader implements IBaseFileInputReader {
+  private static Class<?> PKG = TextFileInputMeta.class; // for i18n purposes, needed by Translator2!!
+
+  private static final int BUFFER_SIZE_INPUT_STREAM = 8192;
+
+  private final IBaseFileInputStepControl step;
+  private final TextFileInputMeta meta;
+  private final TextFileInputData data;
+  private final LogChannelInterface log;
+
+  private final CompressionInputStream in;
+  private final TextFileByteReader reader;
+  private final Charset charset;
+  private final boolean filtered;
+
+  private final String[] nullIfs;
+  private final String[] ifNulls;
+
+  /** The last lines of the file read so far, until they are known not to be footer lines */
+  private final Deque<Line> pendingLines;
+
+  private boolean doneReading;
+  private int headerLinesRead;
+
+  protected long lineNumberInFile;
+
+  protected long lineInFile;
+
+  protected long linesWritten;
+
+  private static class Line {
+    private final byte[][] fields;
+    private final long lineNumber;
+
+    Line( byte[][] fields, long lineNumber ) {
+      this.fields = fields;
+      this.lineNumber = lineNumber;
+    }
+  }
+
+  public TextFileByteInputReader( IBaseFileInputStepControl step, TextFileInputMeta meta, TextFileInputData data,
+      FileObject file, LogChannelInterface log ) throws Exception {
+    this.step = step;
+    this.meta = meta;
+    this.data = data;
+    this.log = log;
+
+    CompressionProvider provider =
+        CompressionProviderFactory.getInstance().getCompressionProviderByName( meta.content.fileCompression );
+
+    if ( log.isDetailed() ) {
+      log.logDetailed( "This is a compressed file being handled by the " + provider.getName() + " provider" );
+    }
+
+    in = provider.createInputStream( KettleVFS.getInputStream( file ) );
+
+    in.nextEntry();
+
+    BufferedInputStream inStream = new BufferedInputStream( in, BUFFER_SIZE_INPUT_STREAM );
+    BOMDetector bom = new BOMDetector( inStream );
+
+    charset = Utils.isEmpty( meta.getEncoding() ) ? Charset.defaultCharset() : Charset.forName( meta.getEncoding() );
+    if ( bom.bomExist() && !charset.equals( Charset.forName( bom.getCharset() ) ) ) {
+      // The binary strings are decoded with the encoding of the step
+      BaseStep.closeQuietly( in );
+      throw new KettleFileException( BaseMessages.getString( PKG, "TextFileInput.Exception.LazyConversionBOM", bom
+        .getCharset(), charset.name() ) );
+    }
+
+    boolean lenientEnclosureHandling = ValueMetaBase.convertStringToBoolean( Const.NVL( EnvUtil.getSystemProperty(
+      Const.KETTLE_COMPATIBILITY_TEXT_FILE_INPUT_USE_LENIENT_ENCLOSURE_HANDLING ), "N" ) );
+    reader = new TextFileByteReader( inStream, charset, data.fileFormatType, data.separator, data.enclosure,
+      data.escapeCharacter, !lenientEnclosureHandling );
+
+    filtered = meta.getFilter().length > 0;
+
+    int nrFields = meta.inputFields.length;
+    nullIfs = new String[nrFields];
+    ifNulls = new String[nrFields];
+    for ( int i = 0; i < nrFields; i++ ) {
+      BaseFileField field = meta.inputFields[i];
+      nullIfs[i] = Utils.isEmpty( field.getNullString() ) ? null : field.getNullString();
+      ifNulls[i] = Utils.isEmpty( field.getIfNullValue() ) ? null : field.getIfNullValue();
+    }
+
+    pendingLines = meta.content.footer && meta.content.nrFooterLines > 0 ? new ArrayDeque<>() : null;
+  }
+
+  @Override
+  public boolean readRow() throws KettleException {
+    if ( !readLine() ) {
+      // The lines still pending are the footer
+      return false;
+    }
+    step.incrementLinesInput();
+
+    if ( meta.content.header && headerLinesRead < meta.content.nrHeaderLines ) {
+      headerLinesRead++;
+      return true;
+    }
+
+    Line line = new Line( readFields(), lineNumberInFile - 1 );
+    if ( pendingLines != null ) {
+      pendingLines.addLast( line );
+      if ( pendingLines.size() <= meta.content.nrFooterLines ) {
+        return true;
+      }
+      line = pendingLines.removeFirst();
+    }
+
+    if ( data.filePlayList.isProcessingNeeded( data.file, line.lineNumber, AbstractFileErrorHandler.NO_PARTS ) ) {
+      lineInFile++;
+      long useNumber = meta.content.rowNumberByFile ? lineInFile : linesWritten + 1;
+      Object[] r = convertLineToRow( line, useNumber );
+
+      // See if the previous values need to be repeated!
+      if ( data.nr_repeats > 0 ) {
+        if ( data.previous_row == null ) { // First invocation...
+          data.previous_row = data.outputRowMeta.cloneRow( r );
+        } else {
+          for ( int i = 0; i < meta.inputFields.length; i++ ) {
+            if ( meta.inputFields[i].isRepeated() ) {
+              if ( r[i] == null ) {
+                r[i] = data.previous_row[i];
+              } else {
+                data.previous_row[i] = r[i];
+              }
+            }
+          }
+        }
+      }
+
+      if ( log.isRowLevel() ) {
+        log.logRowlevel( "Putting row: " + data.outputRowMeta.getString( r ) );
+      }
+      step.putRow( data.outputRowMeta, r );
+      linesWritten++;
+
+      if ( step.getLinesInput() >= meta.content.rowLimit && meta.content.rowLimit > 0 ) {
+        close();
+        return false;
+      }
+    }
+
+    if ( step.checkFeedback( step.getLinesInput() ) ) {
+      if ( log.isBasic() ) {
+        log.logBasic( "linenr " + step.getLinesInput() );
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Read the next line that isn't skipped as an empty line or by the filters.
+   *
+   * @return false at the end of the data
+   */
+  private boolean readLine() throws KettleException {
+    while ( !doneReading ) {
+      try {
+        if ( !reader.readLine() ) {
+          doneReading = true;
+          return false;
+        }
+      } catch ( IOException e ) {
+        throw new KettleFileException( BaseMessages.getString( PKG, "TextFileInput.Log.Error.ExceptionReadingLine", e
+          .toString() ), e );
+      }
+      lineNumberInFile += reader.getNrLineBreaks();
+
+      if ( meta.content.noEmptyLines && reader.isEmptyLine() ) {
+        continue;
+      }
+      boolean header = meta.content.header && headerLinesRead < meta.content.nrHeaderLines;
+      if ( filtered && !header && !data.filterProcessor.doFilters( reader.getLine( charset ) ) ) {
+        if ( data.filterProcessor.isStopProcessing() ) {
+          doneReading = true;
+        }
+        continue;
+      }
+      lineNumberInFile++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return the input fields of the last line as binary strings
+   */
+  private byte[][] readFields() {
+    byte[][] fields = new byte[meta.inputFields.length][];
+    int nrFields = Math.min( fields.length, reader.getNrFields() );
+    for ( int i = 0; i < nrFields; i++ ) {
+      byte[] field = reader.getField( i );
+      if ( nullIfs[i] != null || ifNulls[i] != null ) {
+        // Only these fields are decoded, to compare them like the String conversion does
+        String pol = new String( field, charset );
+        if ( nullIfs[i] != null && nullIfs[i].equals( pol ) ) {
+          pol = null;
+        }
+        if ( Utils.isEmpty( pol ) && ifNulls[i] != null ) {
+          pol = ifNulls[i];
+        }
+        field = pol == null ? null : pol.getBytes( charset );
+      }
+      fields[i] = field;
+    }
+    return fields;
+  }
+
+  private Object[] convertLineToRow( Line line, long rowNumber ) {
+    Object[] r = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+    int shiftFields = data.currentPassThruFieldsRow == null ? 0 : data.nrPassThruFields;
+    System.arraycopy( line.fields, 0, r, shiftFields, line.fields.length );
+
+    // No conversion errors can occur here, they are reported where the values are converted
+    int index = shiftFields + line.fields.length;
+    if ( meta.errorHandling.errorIgnored ) {
+      if ( !Utils.isEmpty( meta.getErrorCountField() ) ) {
+        r[index++] = 0L;
+      }
+      if ( !Utils.isEmpty( meta.getErrorFieldsField() ) ) {
+        r[index++] = "";
+      }
+      if ( !Utils.isEmpty( meta.getErrorTextField() ) ) {
+        r[index++] = "";
+      }
+    }
+    TextFileInputUtils.addAdditionalFields( r, index, meta, data.filename, rowNumber, meta.additionalOutputFields,
+      data.shortFilename, data.path, data.hidden, data.lastModificationDateTime, data.uriName, data.rootUriName,
+      data.extension, data.size );
+
+    if ( data.currentPassThruFieldsRow != null ) {
+      System.arraycopy( data.currentPassThruFieldsRow, 0, r, 0, data.nrPassThruFields );
+    }
+    return r;
+  }
+
+  @Override
+  public void close() {
+    try {
+      // Close previous file!
+      if ( data.filename != null ) {
+        if ( pendingLines != null ) {
+          pendingLines.clear();
+        }
+
+        // Increment the lines updated to reflect another file has been finished.
+        // This allows us to give a state of progress in the run time metrics
+        step.incrementLinesUpdated();
+        if ( in != null ) {
+          BaseStep.closeQuietly( in );
+        }
+        reader.close();
+        data.filename = null; // send it down the next time.
+        if ( data.file != null ) {
+          try {
+            data.file.close();
+          } catch ( Exception e ) {
+            log.logError( "Error closing file", e );
+          }
+          data.file = null;
+        }
+      }
+      data.dataErrorLineHandler.close();
+    } catch ( Exception e ) {
+      String errorMsg = "Couldn't close file : " + data.file.getName().getFriendlyURI() + " --> " + e.toString();
+      log.logError( errorMsg );
+      if ( step.failAfterBadFile( errorMsg ) ) {
+        step.stopAll();
+      }
+      step.setErrors( step.getErrors() + 1 );
+    }
+  }
+}
@@ -0,0 +1,456 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.fileinput.text;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.steps.csvinput.SpecialByteScanner;
+
+/**
+ * Reads the lines of a CSV file in a single byte encoding or UTF-8 and splits them into fields without decoding them.
+ * <br>
+ * The lines are scanned for enclosures, escape characters and delimiters in a reusable buffer. A field is only copied
+ * when it's asked for, removing its enclosures and escape characters. In UTF-8 the bytes of the multi-byte characters
+ * never match a delimiter, so the file can be scanned byte by byte.
+ *
+ * @since 10.3
+ */
+public class TextFileByteReader {
+  private static Class<?> PKG = TextFileInputMeta.class; // for i18n purposes, needed by Translator2!!
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int NEED_MORE_DATA = -1;
+
+  private final InputStream in;
+  private final int fileFormat;
+  private final byte[] delimiter;
+  private final byte[] enclosure;
+  private final byte[] escape;
+  private final boolean escapeIsEnclosure;
+  private final byte cr;
+  private final byte lf;
+  private final boolean breakInEnclosure;
+  private final SpecialByteScanner scanner;
+
+  /** The bytes needed after a position to tell which token starts there */
+  private final int lookAhead;
+
+  private byte[] buffer = new byte[BUFFER_SIZE];
+  private int position;
+  private int end;
+  private boolean endOfFile;
+
+  private int lineStart;
+  private int lineEnd;
+  private boolean lineEnded;
+  private int nrLineBreaks;
+
+  private int nrFields;
+  private int[] fieldStart = new int[16];
+  private int[] fieldEnd = new int[16];
+  private boolean[] fieldEnclosed = new boolean[16];
+  private boolean[] fieldEscaped = new boolean[16];
+
+  /**
+   * @param fileFormat
+   *          {@link TextFileInputMeta#FILE_FORMAT_DOS}, {@link TextFileInputMeta#FILE_FORMAT_UNIX} or
+   *          {@link TextFileInputMeta#FILE_FORMAT_MIXED}
+   * @param breakInEnclosure
+   *          true if a line break in an enclosed field is part of the field, false if it ends the line
+   */
+  public TextFileByteReader( InputStream in, Charset charset, int fileFormat, String delimiter, String enclosure,
+    String escape, boolean breakInEnclosure ) {
+    this.in = in;
+    this.fileFormat = fileFormat;
+    this.delimiter = getBytes( delimiter, charset );
+    this.enclosure = getBytes( enclosure, charset );
+    this.escape = getBytes( escape, charset );
+    this.escapeIsEnclosure = Arrays.equals( this.escape, this.enclosure );
+    this.cr = getBytes( "\r", charset )[0];
+    this.lf = getBytes( "\n", charset )[0];
+    this.breakInEnclosure = breakInEnclosure;
+
+    byte[] specialBytes = new byte[5];
+    int nrSpecialBytes = 0;
+    specialBytes[nrSpecialBytes++] = cr;
+    specialBytes[nrSpecialBytes++] = lf;
+    if ( this.delimiter.length > 0 ) {
+      specialBytes[nrSpecialBytes++] = this.delimiter[0];
+    }
+    if ( this.enclosure.length > 0 ) {
+      specialBytes[nrSpecialBytes++] = this.enclosure[0];
+    }
+    if ( this.escape.length > 0 ) {
+      specialBytes[nrSpecialBytes++] = this.escape[0];
+    }
+    scanner = new SpecialByteScanner( Arrays.copyOf( specialBytes, nrSpecialBytes ) );
+    lookAhead =
+      2 * Math.max( this.delimiter.length, Math.max( this.enclosure.length, this.escape.length ) ) + 2;
+  }
+
+  /**
+   * @return true if the files in this encoding can be read byte by byte: single byte encodings and UTF-8
+   */
+  public static boolean isSupported( String encoding ) {
+    try {
+      Charset charset = Utils.isEmpty( encoding ) ? Charset.defaultCharset() : Charset.forName( encoding );
+      return StandardCharsets.UTF_8.equals( charset )
+        || charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f;
+    } catch ( IllegalArgumentException e ) {
+      // Unknown or illegal charset name
+      return false;
+    }
+  }
+
+  /**
+   * Read the next line and split it into fields.
+   *
+   * @return false at the end of the file
+   */
+  public boolean readLine() throws IOException, KettleFileException {
+    while ( true ) {
+      if ( position >= end ) {
+        if ( endOfFile ) {
+          return false;
+        }
+        fill();
+        continue;
+      }
+      int next = parseLine();
+      if ( next != NEED_MORE_DATA ) {
+        position = next;
+        return true;
+      }
+      fill();
+    }
+  }
+
+  /**
+   * @return the number of fields found on the last line
+   */
+  public int getNrFields() {
+    return nrFields;
+  }
+
+  /**
+   * @return a copy of a field of the last line, without its enclosures and escape characters
+   */
+  public byte[] getField( int index ) {
+    if ( fieldEscaped[index] ) {
+      return unescape( fieldStart[index], fieldEnd[index], fieldEnclosed[index] );
+    }
+    return Arrays.copyOfRange( buffer, fieldStart[index], fieldEnd[index] );
+  }
+
+  /**
+   * @return true if the last line was empty
+   */
+  public boolean isEmptyLine() {
+    return lineEnd == lineStart;
+  }
+
+  /**
+   * @return the last line, without the line break that ended it
+   */
+  public String getLine( Charset charset ) {
+    return new String( buffer, lineStart, lineEnd - lineStart, charset );
+  }
+
+  /**
+   * @return the number of line breaks in the enclosed fields of the last line
+   */
+  public int getNrLineBreaks() {
+    return nrLineBreaks;
+  }
+
+  public void close() throws IOException {
+    in.close();
+  }
+
+  /**
+   * Keep the current line at the start of the buffer and read until the buffer is full, doubling it if the line
+   * doesn't fit.
+   */
+  private void fill() throws IOException {
+    if ( position > 0 ) {
+      System.arraycopy( buffer, position, buffer, 0, end - position );
+      end -= position;
+      position = 0;
+    }
+    if ( end == buffer.length ) {
+      buffer = Arrays.copyOf( buffer, buffer.length * 2 );
+    }
+    while ( end < buffer.length ) {
+      int n = in.read( buffer, end, buffer.length - end );
+      if ( n < 0 ) {
+        endOfFile = true;
+        return;
+      }
+      end += n;
+    }
+  }
+
+  /**
+   * @return the position after the line, or NEED_MORE_DATA if the line doesn't end in the buffer
+   */
+  private int parseLine() throws KettleFileException {
+    int p = position;
+    lineStart = p;
+    lineEnded = false;
+    nrLineBreaks = 0;
+    nrFields = 0;
+    while ( !lineEnded ) {
+      if ( p + lookAhead > end && !endOfFile ) {
+        return NEED_MORE_DATA;
+      }
+      if ( enclosure.length > 0 && matches( p, end, enclosure ) ) {
+        p = parseEnclosedField( p + enclosure.length );
+      } else {
+        p = parseField( p );
+      }
+      if ( p == NEED_MORE_DATA ) {
+        return NEED_MORE_DATA;
+      }
+    }
+    return p;
+  }
+
+  private int parseField( int start ) throws KettleFileException {
+    boolean escaped = false;
+    int p = start;
+    while ( true ) {
+      p = scanner.indexOf( buffer, p, end );
+      if ( p + lookAhead > end && !endOfFile ) {
+        return NEED_MORE_DATA;
+      }
+      if ( p >= end ) {
+        addField( start, end, false, escaped );
+        return endLine( end );
+      }
+      if ( escape.length > 0 && matches( p, end, escape ) ) {
+        if ( matches( p + escape.length, end, delimiter ) ) {
+          escaped = true;
+          p += escape.length + delimiter.length;
+          continue;
+        }
+        if ( matches( p + escape.length, end, escape ) ) {
+          escaped = true;
+          p += 2 * escape.length;
+          continue;
+        }
+      }
+      if ( matches( p, end, delimiter ) ) {
+        addField( start, p, false, escaped );
+        return p + delimiter.length;
+      }
+      if ( buffer[p] == cr || buffer[p] == lf ) {
+        addField( start, p, false, escaped );
+        return endLine( p );
+      }
+      p++;
+    }
+  }
+
+  private int parseEnclosedField( int start ) throws KettleFileException {
+    boolean escaped = false;
+    int p = start;
+    while ( true ) {
+      p = scanner.indexOf( buffer, p, end );
+      if ( p + lookAhead > end && !endOfFile ) {
+        return NEED_MORE_DATA;
+      }
+      if ( p >= end ) {
+        // No closing enclosure before the end of the file
+        addField( start, end, true, escaped );
+        return endLine( end );
+      }
+      if ( escape.length > 0 && !escapeIsEnclosure && matches( p, end, escape ) ) {
+        if ( matches( p + escape.length, end, enclosure ) ) {
+          escaped = true;
+          p += escape.length + enclosure.length;
+          continue;
+        }
+        if ( matches( p + escape.length, end, escape ) ) {
+          escaped = true;
+          p += 2 * escape.length;
+          continue;
+        }
+      }
+      if ( matches( p, end, enclosure ) ) {
+        if ( matches( p + enclosure.length, end, enclosure ) ) {
+          escaped = true;
+          p += 2 * enclosure.length;
+          continue;
+        }
+        addField( start, p, true, escaped );
+        return skipToDelimiter( p + enclosure.length );
+      }
+      if ( buffer[p] == cr || buffer[p] == lf ) {
+        if ( !breakInEnclosure ) {
+          addField( start, p, true, escaped );
+          return endLine( p );
+        }
+        // The line break is part of the field, as a single line feed
+        escaped = true;
+        nrLineBreaks++;
+        p += buffer[p] == cr && p + 1 < end && buffer[p + 1] == lf ? 2 : 1;
+        continue;
+      }
+      p++;
+    }
+  }
+
+  /**
+   * Skip anything between a closing enclosure and the next delimiter.
+   */
+  private int skipToDelimiter( int from ) throws KettleFileException {
+    int p = from;
+    while ( true ) {
+      p = scanner.indexOf( buffer, p, end );
+      if ( p + lookAhead > end && !endOfFile ) {
+        return NEED_MORE_DATA;
+      }
+      if ( p >= end ) {
+        return endLine( end );
+      }
+      if ( matches( p, end, delimiter ) ) {
+        return p + delimiter.length;
+      }
+      if ( buffer[p] == cr || buffer[p] == lf ) {
+        return endLine( p );
+      }
+      p++;
+    }
+  }
+
+  /**
+   * End the line at a line break or at the end of the file.
+   *
+   * @return the position after the line break
+   */
+  private int endLine( int p ) throws KettleFileException {
+    lineEnd = p;
+    lineEnded = true;
+    if ( p >= end ) {
+      return p;
+    }
+    switch ( fileFormat ) {
+      case TextFileInputMeta.FILE_FORMAT_DOS:
+        if ( p + 1 >= end ) {
+          return p + 1;
+        }
+        if ( buffer[p + 1] != cr && buffer[p + 1] != lf ) {
+          throw new KettleFileException( BaseMessages.getString( PKG, "TextFileInput.Log.SingleLineFound" ) );
+        }
+        return p + 2;
+      case TextFileInputMeta.FILE_FORMAT_UNIX:
+        return p + 1;
+      default:
+        return buffer[p] == cr && p + 1 < end && buffer[p + 1] == lf ? p + 2 : p + 1;
+    }
+  }
+
+  private void addField( int start, int stop, boolean enclosed, boolean escaped ) {
+    if ( nrFields == fieldStart.length ) {
+      int size = nrFields * 2;
+      fieldStart = Arrays.copyOf( fieldStart, size );
+      fieldEnd = Arrays.copyOf( fieldEnd, size );
+      fieldEnclosed = Arrays.copyOf( fieldEnclosed, size );
+      fieldEscaped = Arrays.copyOf( fieldEscaped, size );
+    }
+    fieldStart[nrFields] = start;
+    fieldEnd[nrFields] = stop;
+    fieldEnclosed[nrFields] = enclosed;
+    fieldEscaped[nrFields] = escaped;
+    nrFields++;
+  }
+
+  private byte[] unescape( int start, int stop, boolean enclosed ) {
+    byte[] field = new byte[stop - start];
+    int n = 0;
+    int p = start;
+    while ( p < stop ) {
+      byte[] literal = null;
+      int skip = 0;
+      if ( enclosed ) {
+        if ( escape.length > 0 && !escapeIsEnclosure && matches( p, stop, escape ) ) {
+          if ( matches( p + escape.length, stop, enclosure ) ) {
+            literal = enclosure;
+            skip = escape.length;
+          } else if ( matches( p + escape.length, stop, escape ) ) {
+            literal = escape;
+            skip = escape.length;
+          }
+        } else if ( matches( p, stop, enclosure ) && matches( p + enclosure.length, stop, enclosure ) ) {
+          literal = enclosure;
+          skip = enclosure.length;
+        } else if ( buffer[p] == cr ) {
+          field[n++] = lf;
+          p += p + 1 < stop && buffer[p + 1] == lf ? 2 : 1;
+          continue;
+        }
+      } else if ( escape.length > 0 && matches( p, stop, escape ) ) {
+        if ( matches( p + escape.length, stop, delimiter ) ) {
+          literal = delimiter;
+          skip = escape.length;
+        } else if ( matches( p + escape.length, stop, escape ) ) {
+          literal = escape;
+          skip = escape.length;
+        }
+      }
+      if ( literal != null ) {
+        System.arraycopy( literal, 0, field, n, literal.length );
+        n += literal.length;
+        p += skip + literal.length;
+      } else {
+        field[n++] = buffer[p++];
+      }
+    }
+    return n == field.length ? field : Arrays.copyOf( field, n );
+  }
+
+  private boolean matches( int p, int stop, byte[] pattern ) {
+    // An empty pattern never matches, so with an empty delimiter the whole line is one field
+    if ( pattern.length == 0 || p + pattern.length > stop ) {
+      return false;
+    }
+    for ( int i = 0; i < pattern.length; i++ ) {
+      if ( buffer[p + i] != pattern[i] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte[] getBytes( String string, Charset charset ) {
+    return Utils.isEmpty( string ) ? new byte[0] : string.getBytes( charset );
+  }
+}
@@ -53,6 +53,9 @@ public class TextFileInput extends BaseFileInputStep<TextFileInputMeta, TextFile
   @Override
   protected IBaseFileInputReader createReader( TextFileInputMeta meta, TextFileInputData data, FileObject file )
     throws Exception {
+    if ( meta.isLazyConversionActive() ) {
+      return new TextFileByteInputReader( this, meta, data, file, log );
+    }
     return new TextFileInputReader( this, meta, data, file, log );
   }
 
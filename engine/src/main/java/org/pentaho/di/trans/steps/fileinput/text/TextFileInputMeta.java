@@ -160,6 +160,10 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
     @Injection( name = "NO_EMPTY_LINES" )
     public boolean noEmptyLines;
 
+    /** Flag indicating that the fields are passed on as binary strings, converted only when they're used */
+    @Injection( name = "LAZY_CONVERSION" )
+    public boolean lazyConversionActive;
+
     /** Flag indicating that we should include the filename in the output */
     @Injection( name = "INCLUDE_FILENAME" )
     public boolean includeFilename;
@@ -301,6 +305,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
 
       String nempty = XMLHandler.getTagValue( stepnode, "noempty" );
       content.noEmptyLines = YES.equalsIgnoreCase( nempty ) || nempty == null;
+      content.lazyConversionActive = YES.equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "lazy_conversion" ) );
       content.includeFilename = YES.equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "include" ) );
       content.filenameField = XMLHandler.getTagValue( stepnode, "include_field" );
       content.includeRowNumber = YES.equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "rownum" ) );
@@ -494,6 +499,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
     content.nrLinesDocHeader = 0;
     content.fileCompression = "None";
     content.noEmptyLines = true;
+    content.lazyConversionActive = false;
     content.fileFormat = "DOS";
     content.fileType = "CSV";
     content.includeFilename = false;
@@ -554,6 +560,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
       }
     }
 
+    boolean lazyConversion = isLazyConversionActive();
     for ( int i = 0; i < inputFields.length; i++ ) {
       BaseFileField field = inputFields[i];
 
@@ -574,6 +581,16 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
         v.setDateFormatLenient( content.dateFormatLenient );
         v.setDateFormatLocale( content.dateFormatLocale );
         v.setTrimType( field.getTrimType() );
+        if ( lazyConversion ) {
+          v.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+          v.setStringEncoding( content.encoding );
+
+          // The values are converted with a copy of the metadata: the inner and outer format is the same
+          ValueMetaInterface storageMetadata = ValueMetaFactory.cloneValueMeta( v, ValueMetaInterface.TYPE_STRING );
+          storageMetadata.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+          storageMetadata.setLength( -1, -1 );
+          v.setStorageMetadata( storageMetadata );
+        }
 
         row.addValueMeta( v );
       } catch ( Exception e ) {
@@ -702,6 +719,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
     retval.append( "    " ).append( XMLHandler.addTagValue( "nr_lines_per_page", content.nrLinesPerPage ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "nr_lines_doc_header", content.nrLinesDocHeader ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "noempty", content.noEmptyLines ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "lazy_conversion", content.lazyConversionActive ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "include", content.includeFilename ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "include_field", content.filenameField ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "rownum", content.includeRowNumber ) );
@@ -866,6 +884,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
       content.nrLinesPerPage = (int) rep.getStepAttributeInteger( id_step, "nr_lines_per_page" );
       content.nrLinesDocHeader = (int) rep.getStepAttributeInteger( id_step, "nr_lines_doc_header" );
       content.noEmptyLines = rep.getStepAttributeBoolean( id_step, "noempty" );
+      content.lazyConversionActive = rep.getStepAttributeBoolean( id_step, "lazy_conversion" );
 
       content.includeFilename = rep.getStepAttributeBoolean( id_step, "include" );
       content.filenameField = rep.getStepAttributeString( id_step, "include_field" );
@@ -1006,6 +1025,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
       rep.saveStepAttribute( id_transformation, id_step, "nr_lines_doc_header", content.nrLinesDocHeader );
 
       rep.saveStepAttribute( id_transformation, id_step, "noempty", content.noEmptyLines );
+      rep.saveStepAttribute( id_transformation, id_step, "lazy_conversion", content.lazyConversionActive );
 
       rep.saveStepAttribute( id_transformation, id_step, "include", content.includeFilename );
       rep.saveStepAttribute( id_transformation, id_step, "include_field", content.filenameField );
@@ -1214,6 +1234,15 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
     }
   }
 
+  /**
+   * @return true if the fields are passed on as binary strings. Lazy conversion is possible for CSV files in a single
+   *         byte encoding or UTF-8, without a paged layout or wrapped lines.
+   */
+  public boolean isLazyConversionActive() {
+    return content.lazyConversionActive && getFileTypeNr() == FILE_TYPE_CSV && !Utils.isEmpty( content.separator )
+      && !content.layoutPaged && !content.lineWrapped && TextFileByteReader.isSupported( getEncoding() );
+  }
+
   public int getFileTypeNr() {
     // calculate the file type in advance CSV or Fixed?
     if ( content.fileType.equalsIgnoreCase( "CSV" ) ) {
@@ -594,58 +594,8 @@ public class TextFileInputUtils {
           index++;
         }
 
-        // Possibly add a filename...
-        if ( info.content.includeFilename ) {
-          r[index] = fname;
-          index++;
-        }
-
-        // Possibly add a row number...
-        if ( info.content.includeRowNumber ) {
-          r[index] = new Long( rowNr );
-          index++;
-        }
-
-        // Possibly add short filename...
-        if ( additionalOutputFields.shortFilenameField != null ) {
-          r[index] = shortFilename;
-          index++;
-        }
-        // Add Extension
-        if ( additionalOutputFields.extensionField != null ) {
-          r[index] = extension;
-          index++;
-        }
-        // add path
-        if ( additionalOutputFields.pathField != null ) {
-          r[index] = path;
-          index++;
-        }
-        // Add Size
-        if ( additionalOutputFields.sizeField != null ) {
-          r[index] = size;
-          index++;
-        }
-        // add Hidden
-        if ( additionalOutputFields.hiddenField != null ) {
-          r[index] = hidden;
-          index++;
-        }
-        // Add modification date
-        if ( additionalOutputFields.lastModificationField != null ) {
-          r[index] = modificationDateTime;
-          index++;
-        }
-        // Add Uri
-        if ( additionalOutputFields.uriField != null ) {
-          r[index] = uri;
-          index++;
-        }
-        // Add RootUri
-        if ( additionalOutputFields.rootUriField != null ) {
-          r[index] = rooturi;
-          index++;
-        }
+        addAdditionalFields( r, index, info, fname, rowNr, additionalOutputFields, shortFilename, path, hidden,
+          modificationDateTime, uri, rooturi, extension, size );
       } // End if r != null
     } catch ( Exception e ) {
       throw new KettleException( BaseMessages.getString( PKG, "TextFileInput.Log.Error.ErrorConvertingLineText" ), e );
@@ -661,6 +611,71 @@ public class TextFileInputUtils {
     return r;
   }
 
+  /**
+   * Add the filename, the row number and the additional output fields to a row.
+   *
+   * @param index
+   *          the index of the first of these fields in the row
+   * @return the index after the last field added
+   */
+  public static int addAdditionalFields( Object[] r, int index, TextFileInputMeta info, String fname, long rowNr,
+    BaseFileInputAdditionalField additionalOutputFields, String shortFilename, String path, boolean hidden,
+    Date modificationDateTime, String uri, String rooturi, String extension, Long size ) {
+    // Possibly add a filename...
+    if ( info.content.includeFilename ) {
+      r[index] = fname;
+      index++;
+    }
+
+    // Possibly add a row number...
+    if ( info.content.includeRowNumber ) {
+      r[index] = new Long( rowNr );
+      index++;
+    }
+
+    // Possibly add short filename...
+    if ( additionalOutputFields.shortFilenameField != null ) {
+      r[index] = shortFilename;
+      index++;
+    }
+    // Add Extension
+    if ( additionalOutputFields.extensionField != null ) {
+      r[index] = extension;
+      index++;
+    }
+    // add path
+    if ( additionalOutputFields.pathField != null ) {
+      r[index] = path;
+      index++;
+    }
+    // Add Size
+    if ( additionalOutputFields.sizeField != null ) {
+      r[index] = size;
+      index++;
+    }
+    // add Hidden
+    if ( additionalOutputFields.hiddenField != null ) {
+      r[index] = hidden;
+      index++;
+    }
+    // Add modification date
+    if ( additionalOutputFields.lastModificationField != null ) {
+      r[index] = modificationDateTime;
+      index++;
+    }
+    // Add Uri
+    if ( additionalOutputFields.uriField != null ) {
+      r[index] = uri;
+      index++;
+    }
+    // Add RootUri
+    if ( additionalOutputFields.rootUriField != null ) {
+      r[index] = rooturi;
+      index++;
+    }
+    return index;
+  }
+
   public static final String[] convertLineToStrings( LogChannelInterface log, String line, TextFileInputMeta inf,
       String delimiter, String enclosure, String escapeCharacters ) throws KettleException {
     String[] strings = new String[inf.inputFields.length];
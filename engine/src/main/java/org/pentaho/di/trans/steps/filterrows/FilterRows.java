@@ -28,6 +28,8 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.columnar.ColumnarCondition;
+import org.pentaho.di.core.row.columnar.ColumnarRowBatch;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -68,14 +70,31 @@ public class FilterRows extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Evaluates the condition for the whole batch at once, storing the outcome in data.keep.
+   *
+   * @return false if the batch needs to be evaluated row by row, for example to report an error on the right row
+   */
+  private boolean evaluateColumnar( Object[][] rows, int nrRows ) {
+    try {
+      data.columnarBatch.setRows( rows, nrRows );
+      data.columnarCondition.evaluate( data.columnarBatch, data.keep );
+      return true;
+    } catch ( Exception e ) {
+      return false;
+    }
+  }
+
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     meta = (FilterRowsMeta) smi;
     data = (FilterRowsData) sdi;
 
     boolean keep;
 
-    Object[] r = getRow(); // Get next usable row from input rowset(s)!
-    if ( r == null ) { // no more input to be expected...
+    Object[][] rows = getRowBatch();
+    long linesBefore = getLinesRead();
+    int nrRows = getRows( rows, rows.length ); // Get next usable rows from input rowset(s)!
+    if ( nrRows == 0 ) { // no more input to be expected...
 
       setOutputDone();
       return false;
@@ -90,6 +109,14 @@ public class FilterRows extends BaseStep implements StepInterface {
       // if filter refers to non-existing fields, throw exception
       checkNonExistingFields();
 
+      if ( isUsingColumnarBatches() ) {
+        data.columnarCondition = ColumnarCondition.compile( meta.getCondition(), getInputRowMeta() );
+        if ( data.columnarCondition != null ) {
+          data.columnarBatch = new ColumnarRowBatch( getInputRowMeta() );
+          data.keep = new boolean[ rows.length ];
+        }
+      }
+
       // Cache the position of the RowSet for the output.
       //
       if ( data.chosesTargetSteps ) {
@@ -116,30 +143,40 @@ public class FilterRows extends BaseStep implements StepInterface {
       }
     }
 
-    keep = keepRow( getInputRowMeta(), r ); // Keep this row?
-    if ( !data.chosesTargetSteps ) {
-      if ( keep ) {
-        putRow( data.outputRowMeta, r ); // copy row to output rowset(s);
-      }
-    } else {
-      if ( keep ) {
-        if ( data.trueRowSet != null ) {
-          if ( log.isRowLevel() ) {
-            logRowlevel( "Sending row to true  :" + data.trueStepname + " : " + getInputRowMeta().getString( r ) );
-          }
-          putRowTo( data.outputRowMeta, r, data.trueRowSet );
+    // The rows that are kept are moved to the front of the batch and passed on together
+    //
+    boolean columnar = data.columnarCondition != null && evaluateColumnar( rows, nrRows );
+    int nrKept = 0;
+    for ( int i = 0; i < nrRows; i++ ) {
+      Object[] r = rows[i];
+      keep = columnar ? data.keep[i] : keepRow( getInputRowMeta(), r ); // Keep this row?
+      if ( !data.chosesTargetSteps ) {
+        if ( keep ) {
+          rows[nrKept++] = r;
         }
       } else {
-        if ( data.falseRowSet != null ) {
-          if ( log.isRowLevel() ) {
-            logRowlevel( "Sending row to false :" + data.falseStepname + " : " + getInputRowMeta().getString( r ) );
+        if ( keep ) {
+          if ( data.trueRowSet != null ) {
+            if ( log.isRowLevel() ) {
+              logRowlevel( "Sending row to true  :" + data.trueStepname + " : " + getInputRowMeta().getString( r ) );
+            }
+            putRowTo( data.outputRowMeta, r, data.trueRowSet );
+          }
+        } else {
+          if ( data.falseRowSet != null ) {
+            if ( log.isRowLevel() ) {
+              logRowlevel( "Sending row to false :" + data.falseStepname + " : " + getInputRowMeta().getString( r ) );
+            }
+            putRowTo( data.outputRowMeta, r, data.falseRowSet );
           }
-          putRowTo( data.outputRowMeta, r, data.falseRowSet );
         }
       }
     }
+    if ( nrKept > 0 ) {
+      putRows( data.outputRowMeta, rows, nrKept ); // copy rows to output rowset(s);
+    }
 
-    if ( checkFeedback( getLinesRead() ) ) {
+    if ( checkFeedback( linesBefore, getLinesRead() ) ) {
       if ( log.isBasic() ) {
         logBasic( BaseMessages.getString( PKG, "FilterRows.Log.LineNumber" ) + getLinesRead() );
       }
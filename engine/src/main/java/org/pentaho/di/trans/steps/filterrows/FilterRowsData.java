@@ -24,6 +24,8 @@ package org.pentaho.di.trans.steps.filterrows;
 
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.columnar.ColumnarCondition;
+import org.pentaho.di.core.row.columnar.ColumnarRowBatch;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
@@ -41,6 +43,11 @@ public class FilterRowsData extends BaseStepData implements StepDataInterface {
   public String trueStepname;
   public String falseStepname;
 
+  /** The condition compiled for columnar evaluation, null to evaluate it row by row */
+  public ColumnarCondition columnarCondition;
+  public ColumnarRowBatch columnarBatch;
+  public boolean[] keep;
+
   public FilterRowsData() {
     super();
   }
@@ -22,7 +22,12 @@
 
 package org.pentaho.di.trans.steps.fuzzymatch;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.commons.codec.language.DoubleMetaphone;
 import org.apache.commons.codec.language.Metaphone;
@@ -39,6 +44,7 @@ import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.ExecutorUtil;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -61,6 +67,9 @@ import com.wcohen.ss.NeedlemanWunsch;
 public class FuzzyMatch extends BaseStep implements StepInterface {
   private static Class<?> PKG = FuzzyMatchMeta.class; // for i18n purposes, needed by Translator2!!
 
+  /** The number of main stream rows each scoring thread gets per batch */
+  private static final int BATCH_ROWS_PER_THREAD = 100;
+
   private FuzzyMatchMeta meta;
   private FuzzyMatchData data;
 
@@ -169,22 +178,25 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
     return true;
   }
 
+  private void prepareOutput() throws KettleException {
+    data.outputRowMeta = getInputRowMeta().clone();
+    meta.getFields(
+      data.outputRowMeta, getStepname(), new RowMetaInterface[] { data.infoMeta }, null, this, repository,
+      metaStore );
+
+    // Check lookup field
+    data.indexOfMainField = getInputRowMeta().indexOfValue( environmentSubstitute( meta.getMainStreamField() ) );
+    if ( data.indexOfMainField < 0 ) {
+      // The field is unreachable !
+      throw new KettleException( BaseMessages.getString( PKG, "FuzzyMatch.Exception.CouldnotFindMainField", meta
+        .getMainStreamField() ) );
+    }
+  }
+
   private Object[] lookupValues( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
     if ( first ) {
       first = false;
-
-      data.outputRowMeta = getInputRowMeta().clone();
-      meta.getFields(
-        data.outputRowMeta, getStepname(), new RowMetaInterface[] { data.infoMeta }, null, this, repository,
-        metaStore );
-
-      // Check lookup field
-      data.indexOfMainField = getInputRowMeta().indexOfValue( environmentSubstitute( meta.getMainStreamField() ) );
-      if ( data.indexOfMainField < 0 ) {
-        // The field is unreachable !
-        throw new KettleException( BaseMessages.getString( PKG, "FuzzyMatch.Exception.CouldnotFindMainField", meta
-          .getMainStreamField() ) );
-      }
+      prepareOutput();
     }
     Object[] add = null;
     if ( row[ data.indexOfMainField ] == null ) {
@@ -209,27 +221,56 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
   }
 
   private Object[] getFromCache( Object[] keyRow ) throws KettleValueException {
+    return match( getLookupValue( keyRow ) );
+  }
+
+  /**
+   * Get the value to match from a main stream row. This uses the row metadata, so it's done on the step thread.
+   */
+  private String getLookupValue( Object[] keyRow ) throws KettleValueException {
     if ( isDebug() ) {
       logDebug( BaseMessages.getString( PKG, "FuzzyMatch.Log.ReadingMainStreamRow", getInputRowMeta().getString(
         keyRow ) ) );
     }
+    switch ( meta.getAlgorithmType() ) {
+      case FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN:
+      case FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN:
+      case FuzzyMatchMeta.OPERATION_TYPE_NEEDLEMAN_WUNSH:
+        return getInputRowMeta().getString( keyRow, data.indexOfMainField );
+      case FuzzyMatchMeta.OPERATION_TYPE_DOUBLE_METAPHONE:
+      case FuzzyMatchMeta.OPERATION_TYPE_METAPHONE:
+      case FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX:
+      case FuzzyMatchMeta.OPERATION_TYPE_REFINED_SOUNDEX:
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO:
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER:
+      case FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY:
+        return (String) keyRow[data.indexOfMainField];
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Match a value against the lookup values. This only reads the step data, so the scoring threads can call it.
+   */
+  private Object[] match( String lookupvalue ) {
     Object[] retval = null;
     switch ( meta.getAlgorithmType() ) {
       case FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN:
       case FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN:
       case FuzzyMatchMeta.OPERATION_TYPE_NEEDLEMAN_WUNSH:
-        retval = doDistance( keyRow );
+        retval = doDistance( lookupvalue );
         break;
       case FuzzyMatchMeta.OPERATION_TYPE_DOUBLE_METAPHONE:
       case FuzzyMatchMeta.OPERATION_TYPE_METAPHONE:
       case FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX:
       case FuzzyMatchMeta.OPERATION_TYPE_REFINED_SOUNDEX:
-        retval = doPhonetic( keyRow );
+        retval = doPhonetic( lookupvalue );
         break;
       case FuzzyMatchMeta.OPERATION_TYPE_JARO:
       case FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER:
       case FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY:
-        retval = doSimilarity( keyRow );
+        retval = doSimilarity( lookupvalue );
         break;
       default:
 
@@ -239,17 +280,27 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
     return retval;
   }
 
-  private Object[] doDistance( Object[] row ) throws KettleValueException {
+  /**
+   * @return the lookup rows to score for a value, in cache order
+   */
+  private Collection<Object[]> getCandidates( String lookupvalue ) {
+    if ( data.index != null ) {
+      List<Object[]> candidates = data.index.getCandidates( lookupvalue );
+      if ( candidates != null ) {
+        return candidates;
+      }
+    }
+    return data.look;
+  }
+
+  private Object[] doDistance( String lookupvalue ) {
     // Reserve room
     Object[] rowData = buildEmptyRow();
 
-    Iterator<Object[]> it = data.look.iterator();
+    Iterator<Object[]> it = getCandidates( lookupvalue ).iterator();
 
     long distance = -1;
 
-    // Object o=row[data.indexOfMainField];
-    String lookupvalue = getInputRowMeta().getString( row, data.indexOfMainField );
-
     while ( it.hasNext() ) {
       // Get cached row data
       Object[] cachedData = it.next();
@@ -311,14 +362,11 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
     return rowData;
   }
 
-  private Object[] doPhonetic( Object[] row ) {
+  private Object[] doPhonetic( String lookupvalue ) {
     // Reserve room
     Object[] rowData = buildEmptyRow();
 
-    Iterator<Object[]> it = data.look.iterator();
-
-    Object o = row[data.indexOfMainField];
-    String lookupvalue = (String) o;
+    Iterator<Object[]> it = getCandidates( lookupvalue ).iterator();
 
     String lookupValueMF = getEncodedMF( lookupvalue, meta.getAlgorithmType() );
 
@@ -354,7 +402,7 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
     return rowData;
   }
 
-  private String getEncodedMF( String value, Integer algorithmType ) {
+  static String getEncodedMF( String value, int algorithmType ) {
     String encodedValueMF = "";
     switch ( algorithmType ) {
       case FuzzyMatchMeta.OPERATION_TYPE_METAPHONE:
@@ -375,19 +423,14 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
     return encodedValueMF;
   }
 
-  private Object[] doSimilarity( Object[] row ) {
+  private Object[] doSimilarity( String lookupvalue ) {
 
     // Reserve room
     Object[] rowData = buildEmptyRow();
     // prepare to read from cache ...
-    Iterator<Object[]> it = data.look.iterator();
+    Iterator<Object[]> it = getCandidates( lookupvalue ).iterator();
     double similarity = 0;
 
-    // get current value from main stream
-    Object o = row[data.indexOfMainField];
-
-    String lookupvalue = o == null ? "" : (String) o;
-
     while ( it.hasNext() ) {
       // Get cached row data
       Object[] cachedData = it.next();
@@ -473,10 +516,23 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
       if ( isDetailed() ) {
         logDetailed( BaseMessages.getString( PKG, "FuzzyMatch.Log.ReadValuesInMemory", data.look.size() ) );
       }
+
+      // Only the candidates from the index are scored, giving the same matches as scoring all lookup values
+      //
+      data.index =
+        FuzzyMatchIndex.create( data.look, meta.getAlgorithmType(), meta.isCaseSensitive(), data.maximalDistance,
+          data.minimalSimilarity );
+      if ( data.index != null && isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "FuzzyMatch.Log.IndexedLookupValues", data.index.size() ) );
+      }
     }
 
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) {
+      // Score the rows left in the batch
+      if ( data.batch != null && !data.batch.isEmpty() && !scoreBatch() ) {
+        return false;
+      }
       // no more input to be expected...
       if ( isDetailed() ) {
         logDetailed( BaseMessages.getString( PKG, "FuzzyMatch.Log.StoppedProcessingWithEmpty", getLinesRead() ) );
@@ -485,6 +541,14 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
       return false;
     }
 
+    if ( data.scoringThreads > 1 ) {
+      data.batch.add( r );
+      if ( data.batch.size() >= data.scoringThreads * BATCH_ROWS_PER_THREAD ) {
+        return scoreBatch();
+      }
+      return true;
+    }
+
     try {
 
       // Do the actual lookup in the hastable.
@@ -501,26 +565,132 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
         }
       }
     } catch ( KettleException e ) {
-      boolean sendToErrorRow = false;
-      String errorMessage = null;
+      return handleLookupError( r, e );
+    }
+
+    return true;
+  }
 
-      if ( getStepMeta().isDoingErrorHandling() ) {
-        sendToErrorRow = true;
-        errorMessage = e.toString();
+  /**
+   * Score the batched main stream rows with the scoring threads and pass them on in their original order.
+   */
+  private boolean scoreBatch() throws KettleException {
+    List<Object[]> rows = data.batch;
+    data.batch = new ArrayList<>( rows.size() );
+    int nrRows = rows.size();
+    String[] values = new String[nrRows];
+    boolean[] toScore = new boolean[nrRows];
+    Object[][] matches = new Object[nrRows][];
+    KettleException[] errors = new KettleException[nrRows];
+
+    // Everything using the row metadata stays on the step thread
+    //
+    for ( int i = 0; i < nrRows; i++ ) {
+      Object[] row = rows.get( i );
+      try {
+        if ( first ) {
+          first = false;
+          prepareOutput();
+        }
+      } catch ( KettleException e ) {
+        errors[i] = e;
+        continue;
+      }
+      if ( row[data.indexOfMainField] == null ) {
+        matches[i] = buildEmptyRow();
       } else {
-        logError( BaseMessages.getString( PKG, "FuzzyMatch.Log.ErrorInStepRunning" ) + e.getMessage() );
-        setErrors( 1 );
-        stopAll();
-        setOutputDone(); // signal end to receiver(s)
-        return false;
+        try {
+          values[i] = getLookupValue( row );
+          toScore[i] = true;
+        } catch ( Exception e ) {
+          errors[i] = new KettleStepException( e );
+        }
+      }
+    }
+
+    // Each thread scores a slice of the batch, the step thread takes the first one
+    //
+    int sliceSize = ( nrRows + data.scoringThreads - 1 ) / data.scoringThreads;
+    List<Runnable> slices = new ArrayList<>();
+    for ( int start = 0; start < nrRows; start += sliceSize ) {
+      int from = start;
+      int to = Math.min( nrRows, start + sliceSize );
+      slices.add( () -> {
+        for ( int i = from; i < to; i++ ) {
+          if ( toScore[i] ) {
+            try {
+              matches[i] = match( values[i] );
+            } catch ( Exception e ) {
+              errors[i] = new KettleStepException( e );
+            }
+          }
+        }
+      } );
+    }
+    List<Future<?>> futures = new ArrayList<>( slices.size() );
+    for ( int i = 1; i < slices.size(); i++ ) {
+      futures.add( ExecutorUtil.getExecutor().submit( slices.get( i ) ) );
+    }
+    slices.get( 0 ).run();
+    for ( Future<?> future : futures ) {
+      try {
+        future.get();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new KettleException( e );
+      } catch ( ExecutionException e ) {
+        throw new KettleException( e.getCause() );
       }
-      if ( sendToErrorRow ) {
-        // Simply add this row to the error row
-        putError( getInputRowMeta(), r, 1, errorMessage, meta.getMainStreamField(), "FuzzyMatch001" );
+    }
+
+    for ( int i = 0; i < nrRows; i++ ) {
+      Object[] row = rows.get( i );
+      if ( errors[i] != null ) {
+        if ( !handleLookupError( row, errors[i] ) ) {
+          return false;
+        }
+        continue;
       }
+      try {
+        putRow( data.outputRowMeta, RowDataUtil.addRowData( row, getInputRowMeta().size(), matches[i] ) );
 
+        if ( checkFeedback( getLinesRead() ) ) {
+          if ( log.isBasic() ) {
+            logBasic( BaseMessages.getString( PKG, "FuzzyMatch.Log.LineNumber" ) + getLinesRead() );
+          }
+        }
+      } catch ( KettleException e ) {
+        if ( !handleLookupError( row, e ) ) {
+          return false;
+        }
+      }
     }
+    return true;
+  }
 
+  /**
+   * Send a row that failed to the error handling or stop the transformation.
+   *
+   * @return true if the step can go on with the next row
+   */
+  private boolean handleLookupError( Object[] r, KettleException e ) throws KettleException {
+    boolean sendToErrorRow = false;
+    String errorMessage = null;
+
+    if ( getStepMeta().isDoingErrorHandling() ) {
+      sendToErrorRow = true;
+      errorMessage = e.toString();
+    } else {
+      logError( BaseMessages.getString( PKG, "FuzzyMatch.Log.ErrorInStepRunning" ) + e.getMessage() );
+      setErrors( 1 );
+      stopAll();
+      setOutputDone(); // signal end to receiver(s)
+      return false;
+    }
+    if ( sendToErrorRow ) {
+      // Simply add this row to the error row
+      putError( getInputRowMeta(), r, 1, errorMessage, meta.getMainStreamField(), "FuzzyMatch001" );
+    }
     return true;
   }
 
@@ -612,6 +782,14 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
           break;
       }
 
+      data.scoringThreads = Math.max( 1, Const.toInt( environmentSubstitute( meta.getScoringThreads() ), 1 ) );
+      if ( data.scoringThreads > 1 ) {
+        data.batch = new ArrayList<>( data.scoringThreads * BATCH_ROWS_PER_THREAD );
+        if ( isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "FuzzyMatch.Log.ScoringThreads", data.scoringThreads ) );
+        }
+      }
+
       data.readLookupValues = true;
 
       return true;
@@ -623,6 +801,8 @@ public class FuzzyMatch extends BaseStep implements StepInterface {
     meta = (FuzzyMatchMeta) smi;
     data = (FuzzyMatchData) sdi;
     data.look.clear();
+    data.index = null;
+    data.batch = null;
     super.dispose( smi, sdi );
   }
 
@@ -23,6 +23,7 @@
 package org.pentaho.di.trans.steps.fuzzymatch;
 
 import java.util.HashSet;
+import java.util.List;
 
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -40,6 +41,9 @@ public class FuzzyMatchData extends BaseStepData implements StepDataInterface {
   /** used to store values in used to look up things */
   public HashSet<Object[]> look;
 
+  /** candidate index over the look values, null to score all of them */
+  public FuzzyMatchIndex index;
+
   public boolean readLookupValues;
 
   /** index of main stream field **/
@@ -67,6 +71,12 @@ public class FuzzyMatchData extends BaseStepData implements StepDataInterface {
   public int nrCachedFields;
   public RowMetaInterface infoCache;
 
+  /** number of threads scoring the main stream rows */
+  public int scoringThreads;
+
+  /** main stream rows waiting for the scoring threads */
+  public List<Object[]> batch;
+
   public FuzzyMatchData() {
     super();
     this.look = new HashSet<Object[]>();
@@ -75,6 +85,7 @@ public class FuzzyMatchData extends BaseStepData implements StepDataInterface {
     this.valueSeparator = "";
     this.nrCachedFields = 1;
     this.addAdditionalFields = false;
+    this.scoringThreads = 1;
   }
 
 }
@@ -0,0 +1,433 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.fuzzymatch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * An index over the lookup rows of a Fuzzy Match step, narrowing down the rows to score for a main stream value.<br>
+ * The candidates include every row that can pass the configured thresholds and keep the order of the lookup rows, so
+ * scoring only the candidates gives the same result as scoring all rows:
+ * <ul>
+ * <li>Levenshtein and Damerau-Levenshtein: a BK-tree over the Levenshtein distance. A transposition costs at most two
+ * Levenshtein edits, so Damerau-Levenshtein searches twice the maximal distance.</li>
+ * <li>Metaphone, Double Metaphone, Soundex and Refined Soundex: the rows with the same encoded value.</li>
+ * <li>Letter pairs similarity: an inverted index of the letter pairs, keeping the rows sharing enough pairs.</li>
+ * <li>Jaro and Jaro-Winkler: the rows with a length that can still reach the minimal similarity.</li>
+ * </ul>
+ * Needleman-Wunsch isn't indexed. Once built the index is only read, so multiple threads can query it.
+ *
+ * @since 10.3
+ */
+public abstract class FuzzyMatchIndex {
+  /** Rounding margin when comparing a similarity upper bound with the minimal similarity */
+  private static final double SIMILARITY_EPSILON = 1e-9;
+
+  /** The lowest similarity Jaro gives to two non-empty strings of any length */
+  private static final double JARO_LENGTH_FLOOR = 2.0 / 3.0;
+
+  /** The Winkler prefix bonus: up to 4 common characters, 0.1 each */
+  private static final int WINKLER_PREFIX = 4;
+  private static final double WINKLER_SCALE = 0.1;
+
+  private final Object[][] rows;
+
+  protected FuzzyMatchIndex( Object[][] rows ) {
+    this.rows = rows;
+  }
+
+  /**
+   * Build the index for an algorithm.
+   *
+   * @param look
+   *          the cached lookup rows, the key value first
+   * @param algorithmType
+   *          the algorithm, one of the FuzzyMatchMeta.OPERATION_TYPE_* constants
+   * @param caseSensitive
+   *          false if the distances are calculated on lower case values
+   * @param maximalDistance
+   *          the maximal distance of the distance algorithms
+   * @param minimalSimilarity
+   *          the minimal similarity of the similarity algorithms
+   * @return the index or null if it can't prune any rows, all rows need to be scored then
+   */
+  public static FuzzyMatchIndex create( Collection<Object[]> look, int algorithmType, boolean caseSensitive,
+    int maximalDistance, double minimalSimilarity ) {
+    Object[][] rows = look.toArray( new Object[look.size()][] );
+    String[] keys = new String[rows.length];
+    for ( int i = 0; i < rows.length; i++ ) {
+      if ( !( rows[i][0] instanceof String ) ) {
+        return null;
+      }
+      keys[i] = (String) rows[i][0];
+    }
+
+    try {
+      switch ( algorithmType ) {
+        case FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN:
+          return new DistanceIndex( rows, keys, caseSensitive, maximalDistance );
+        case FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN:
+          return new DistanceIndex( rows, keys, caseSensitive, (int) Math.min( Integer.MAX_VALUE,
+            2L * maximalDistance ) );
+        case FuzzyMatchMeta.OPERATION_TYPE_METAPHONE:
+        case FuzzyMatchMeta.OPERATION_TYPE_DOUBLE_METAPHONE:
+        case FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX:
+        case FuzzyMatchMeta.OPERATION_TYPE_REFINED_SOUNDEX:
+          return new PhoneticIndex( rows, keys, algorithmType );
+        case FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY:
+          return minimalSimilarity > 0 ? new LetterPairIndex( rows, keys, minimalSimilarity ) : null;
+        case FuzzyMatchMeta.OPERATION_TYPE_JARO:
+          return minimalSimilarity > JARO_LENGTH_FLOOR
+            ? new LengthIndex( rows, keys, false, minimalSimilarity ) : null;
+        case FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER:
+          return minimalSimilarity > winklerBound( JARO_LENGTH_FLOOR )
+            ? new LengthIndex( rows, keys, true, minimalSimilarity ) : null;
+        default:
+          return null;
+      }
+    } catch ( RuntimeException e ) {
+      // An encoder failing on a lookup value, scoring all rows reports it for every main stream row
+      return null;
+    }
+  }
+
+  /**
+   * @param value
+   *          the main stream value
+   * @return the candidate rows in lookup order or null if all rows need to be scored
+   */
+  public List<Object[]> getCandidates( String value ) {
+    if ( value == null ) {
+      return null;
+    }
+    int[] positions = getCandidatePositions( value );
+    if ( positions == null ) {
+      return null;
+    }
+    Arrays.sort( positions );
+    List<Object[]> candidates = new ArrayList<>( positions.length );
+    for ( int position : positions ) {
+      candidates.add( rows[position] );
+    }
+    return candidates;
+  }
+
+  /**
+   * @return the number of indexed lookup rows
+   */
+  public int size() {
+    return rows.length;
+  }
+
+  /**
+   * @return the positions of the candidate rows in any order or null if all rows need to be scored
+   */
+  protected abstract int[] getCandidatePositions( String value );
+
+  private static double winklerBound( double jaro ) {
+    return jaro + WINKLER_PREFIX * WINKLER_SCALE * ( 1 - jaro );
+  }
+
+  /**
+   * BK-tree over the Levenshtein distance of the (lower case) key values.
+   */
+  private static class DistanceIndex extends FuzzyMatchIndex {
+    private final boolean caseSensitive;
+    private final int radius;
+    private Node root;
+
+    DistanceIndex( Object[][] rows, String[] keys, boolean caseSensitive, int radius ) {
+      super( rows );
+      this.caseSensitive = caseSensitive;
+      this.radius = radius;
+      for ( int i = 0; i < keys.length; i++ ) {
+        add( normalize( keys[i] ), i );
+      }
+    }
+
+    private String normalize( String value ) {
+      return caseSensitive ? value : value.toLowerCase();
+    }
+
+    private void add( String value, int position ) {
+      if ( root == null ) {
+        root = new Node( value );
+        root.positions.add( position );
+        return;
+      }
+      Node node = root;
+      while ( true ) {
+        int distance = StringUtils.getLevenshteinDistance( node.value, value );
+        if ( distance == 0 ) {
+          node.positions.add( position );
+          return;
+        }
+        Node child = node.children.get( distance );
+        if ( child == null ) {
+          child = new Node( value );
+          child.positions.add( position );
+          node.children.put( distance, child );
+          return;
+        }
+        node = child;
+      }
+    }
+
+    @Override
+    protected int[] getCandidatePositions( String value ) {
+      IntList positions = new IntList();
+      if ( root == null || radius < 0 ) {
+        return positions.toArray();
+      }
+      String search = normalize( value );
+      Deque<Node> nodes = new ArrayDeque<>();
+      nodes.push( root );
+      while ( !nodes.isEmpty() ) {
+        Node node = nodes.pop();
+        int distance = StringUtils.getLevenshteinDistance( node.value, search );
+        if ( distance <= radius ) {
+          positions.addAll( node.positions );
+        }
+        // Triangle inequality: only children at a distance within the radius of ours can be in range
+        //
+        for ( Map.Entry<Integer, Node> child : node.children.entrySet() ) {
+          if ( Math.abs( child.getKey() - distance ) <= radius ) {
+            nodes.push( child.getValue() );
+          }
+        }
+      }
+      return positions.toArray();
+    }
+
+    private static class Node {
+      private final String value;
+      private final IntList positions = new IntList();
+      private final Map<Integer, Node> children = new HashMap<>();
+
+      Node( String value ) {
+        this.value = value;
+      }
+    }
+  }
+
+  /**
+   * Buckets of rows by encoded key value.
+   */
+  private static class PhoneticIndex extends FuzzyMatchIndex {
+    private final int algorithmType;
+    private final Map<String, int[]> buckets = new HashMap<>();
+
+    PhoneticIndex( Object[][] rows, String[] keys, int algorithmType ) {
+      super( rows );
+      this.algorithmType = algorithmType;
+      Map<String, IntList> lists = new HashMap<>();
+      for ( int i = 0; i < keys.length; i++ ) {
+        String encoded = FuzzyMatch.getEncodedMF( keys[i], algorithmType );
+        // A value without encoding never matches
+        if ( encoded != null ) {
+          lists.computeIfAbsent( encoded, k -> new IntList() ).add( i );
+        }
+      }
+      for ( Map.Entry<String, IntList> entry : lists.entrySet() ) {
+        buckets.put( entry.getKey(), entry.getValue().toArray() );
+      }
+    }
+
+    @Override
+    protected int[] getCandidatePositions( String value ) {
+      String encoded = FuzzyMatch.getEncodedMF( value, algorithmType );
+      if ( encoded == null ) {
+        return null;
+      }
+      int[] bucket = buckets.get( encoded );
+      return bucket == null ? new int[0] : bucket.clone();
+    }
+  }
+
+  /**
+   * Inverted index of the letter pairs of the key values with their number of occurrences. The pairs shared with the
+   * main stream value give the exact letter pairs similarity, the other rows have a similarity of 0.
+   */
+  private static class LetterPairIndex extends FuzzyMatchIndex {
+    private final double minimalSimilarity;
+    private final int[] nrPairs;
+    /** For each pair the positions of the rows containing it, each followed by the number of occurrences */
+    private final Map<String, int[]> postings = new HashMap<>();
+    private final ThreadLocal<int[]> intersections;
+
+    LetterPairIndex( Object[][] rows, String[] keys, double minimalSimilarity ) {
+      super( rows );
+      this.minimalSimilarity = minimalSimilarity;
+      nrPairs = new int[keys.length];
+      Map<String, IntList> lists = new HashMap<>();
+      for ( int i = 0; i < keys.length; i++ ) {
+        Map<String, Integer> counts = countPairs( keys[i] );
+        for ( Map.Entry<String, Integer> count : counts.entrySet() ) {
+          IntList list = lists.computeIfAbsent( count.getKey(), k -> new IntList() );
+          list.add( i );
+          list.add( count.getValue() );
+          nrPairs[i] += count.getValue();
+        }
+      }
+      for ( Map.Entry<String, IntList> entry : lists.entrySet() ) {
+        postings.put( entry.getKey(), entry.getValue().toArray() );
+      }
+      intersections = ThreadLocal.withInitial( () -> new int[keys.length] );
+    }
+
+    private static Map<String, Integer> countPairs( String value ) {
+      Map<String, Integer> counts = new HashMap<>();
+      for ( String pair : LetterPairSimilarity.wordLetterPairs( value.toUpperCase() ) ) {
+        counts.merge( pair, 1, Integer::sum );
+      }
+      return counts;
+    }
+
+    @Override
+    protected int[] getCandidatePositions( String value ) {
+      Map<String, Integer> counts = countPairs( value );
+      if ( counts.isEmpty() ) {
+        return null;
+      }
+      int nrValuePairs = 0;
+      for ( int count : counts.values() ) {
+        nrValuePairs += count;
+      }
+
+      int[] intersection = intersections.get();
+      IntList touched = new IntList();
+      for ( Map.Entry<String, Integer> count : counts.entrySet() ) {
+        int[] posting = postings.get( count.getKey() );
+        if ( posting == null ) {
+          continue;
+        }
+        for ( int i = 0; i < posting.length; i += 2 ) {
+          int position = posting[i];
+          if ( intersection[position] == 0 ) {
+            touched.add( position );
+          }
+          intersection[position] += Math.min( count.getValue(), posting[i + 1] );
+        }
+      }
+
+      IntList positions = new IntList();
+      for ( int i = 0; i < touched.size; i++ ) {
+        int position = touched.values[i];
+        // Same expression as LetterPairSimilarity.getSimiliarity()
+        double similarity = ( 2.0 * intersection[position] ) / ( nrPairs[position] + nrValuePairs );
+        if ( minimalSimilarity <= similarity ) {
+          positions.add( position );
+        }
+        intersection[position] = 0;
+      }
+      return positions.toArray();
+    }
+  }
+
+  /**
+   * Rows grouped by key length. With m common characters Jaro is at most (m/l1 + m/l2 + 1) / 3 and m can't exceed the
+   * shortest length.
+   */
+  private static class LengthIndex extends FuzzyMatchIndex {
+    private final boolean winkler;
+    private final double minimalSimilarity;
+    private final int[] lengths;
+    private final int[][] positionsByLength;
+
+    LengthIndex( Object[][] rows, String[] keys, boolean winkler, double minimalSimilarity ) {
+      super( rows );
+      this.winkler = winkler;
+      this.minimalSimilarity = minimalSimilarity;
+      Map<Integer, IntList> lists = new HashMap<>();
+      for ( int i = 0; i < keys.length; i++ ) {
+        lists.computeIfAbsent( keys[i].length(), k -> new IntList() ).add( i );
+      }
+      lengths = new int[lists.size()];
+      positionsByLength = new int[lists.size()][];
+      int i = 0;
+      for ( Map.Entry<Integer, IntList> entry : lists.entrySet() ) {
+        lengths[i] = entry.getKey();
+        positionsByLength[i] = entry.getValue().toArray();
+        i++;
+      }
+    }
+
+    @Override
+    protected int[] getCandidatePositions( String value ) {
+      int length = value.length();
+      if ( length == 0 ) {
+        return null;
+      }
+      IntList positions = new IntList();
+      for ( int i = 0; i < lengths.length; i++ ) {
+        if ( lengths[i] == 0 || upperBound( length, lengths[i] ) >= minimalSimilarity - SIMILARITY_EPSILON ) {
+          positions.addAll( positionsByLength[i] );
+        }
+      }
+      return positions.toArray();
+    }
+
+    private double upperBound( int length1, int length2 ) {
+      double common = Math.min( length1, length2 );
+      double jaro = ( common / length1 + common / length2 + 1 ) / 3.0;
+      return winkler ? winklerBound( jaro ) : jaro;
+    }
+  }
+
+  private static class IntList {
+    private int[] values = new int[4];
+    private int size;
+
+    void add( int value ) {
+      if ( size == values.length ) {
+        values = Arrays.copyOf( values, size * 2 );
+      }
+      values[size++] = value;
+    }
+
+    void addAll( IntList list ) {
+      for ( int i = 0; i < list.size; i++ ) {
+        add( list.values[i] );
+      }
+    }
+
+    void addAll( int[] array ) {
+      for ( int value : array ) {
+        add( value );
+      }
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf( values, size );
+    }
+  }
+}
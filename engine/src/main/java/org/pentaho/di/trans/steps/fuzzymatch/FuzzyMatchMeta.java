@@ -135,6 +135,9 @@ public class FuzzyMatchMeta extends BaseStepMeta implements StepMetaInterface {
   /** get closer matching value **/
   private boolean closervalue;
 
+  /** The number of threads scoring the main stream rows, empty or 1 to score on the step thread **/
+  private String scoringThreads;
+
   /** return these field values from lookup */
   private String[] value;
 
@@ -328,6 +331,21 @@ public class FuzzyMatchMeta extends BaseStepMeta implements StepMetaInterface {
     this.separator = separator;
   }
 
+  /**
+   * @return Returns the number of scoring threads.
+   */
+  public String getScoringThreads() {
+    return scoringThreads;
+  }
+
+  /**
+   * @param scoringThreads
+   *          The number of scoring threads to set.
+   */
+  public void setScoringThreads( String scoringThreads ) {
+    this.scoringThreads = scoringThreads;
+  }
+
   public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore ) throws KettleXMLException {
     readData( stepnode, databases );
   }
@@ -389,6 +407,7 @@ public class FuzzyMatchMeta extends BaseStepMeta implements StepMetaInterface {
       minimalValue = XMLHandler.getTagValue( stepnode, "minimalValue" );
       maximalValue = XMLHandler.getTagValue( stepnode, "maximalValue" );
       separator = XMLHandler.getTagValue( stepnode, "separator" );
+      scoringThreads = XMLHandler.getTagValue( stepnode, "scoring_threads" );
 
       outputmatchfield = XMLHandler.getTagValue( stepnode, "outputmatchfield" );
       outputvaluefield = XMLHandler.getTagValue( stepnode, "outputvaluefield" );
@@ -428,6 +447,7 @@ public class FuzzyMatchMeta extends BaseStepMeta implements StepMetaInterface {
     valueName = null;
     separator = DEFAULT_SEPARATOR;
     closervalue = true;
+    scoringThreads = "1";
     minimalValue = "0";
     maximalValue = "1";
     caseSensitive = false;
@@ -527,6 +547,7 @@ public class FuzzyMatchMeta extends BaseStepMeta implements StepMetaInterface {
     retval.append( "    " + XMLHandler.addTagValue( "minimalValue", minimalValue ) );
     retval.append( "    " + XMLHandler.addTagValue( "maximalValue", maximalValue ) );
     retval.append( "    " + XMLHandler.addTagValue( "separator", separator ) );
+    retval.append( "    " + XMLHandler.addTagValue( "scoring_threads", scoringThreads ) );
 
     retval.append( "    " ).append( XMLHandler.addTagValue( "algorithm", getAlgorithmTypeCode( algorithm ) ) );
 
@@ -557,6 +578,7 @@ public class FuzzyMatchMeta extends BaseStepMeta implements StepMetaInterface {
       minimalValue = rep.getStepAttributeString( id_step, "minimalValue" );
       maximalValue = rep.getStepAttributeString( id_step, "maximalValue" );
       separator = rep.getStepAttributeString( id_step, "separator" );
+      scoringThreads = rep.getStepAttributeString( id_step, "scoring_threads" );
 
       algorithm = getAlgorithmTypeByCode( Const.NVL( rep.getStepAttributeString( id_step, "algorithm" ), "" ) );
 
@@ -587,6 +609,7 @@ public class FuzzyMatchMeta extends BaseStepMeta implements StepMetaInterface {
       rep.saveStepAttribute( id_transformation, id_step, "minimalValue", minimalValue );
       rep.saveStepAttribute( id_transformation, id_step, "maximalValue", maximalValue );
       rep.saveStepAttribute( id_transformation, id_step, "separator", separator );
+      rep.saveStepAttribute( id_transformation, id_step, "scoring_threads", scoringThreads );
       rep.saveStepAttribute( id_transformation, id_step, "algorithm", getAlgorithmTypeCode( algorithm ) );
 
       for ( int i = 0; i < value.length; i++ ) {
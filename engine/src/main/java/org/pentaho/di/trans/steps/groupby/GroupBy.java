@@ -427,10 +427,16 @@ public class GroupBy extends BaseStep implements StepInterface {
 
       switch ( meta.getAggregateType()[ i ] ) {
         case GroupByMeta.TYPE_GROUP_SUM:
-          data.agg[ i ] = ValueDataUtil.sum( valueMeta, value, subjMeta, subj );
+          if ( isPrimitiveSum( i ) ) {
+            addToPrimitiveSum( i, subjMeta, subj );
+          } else {
+            data.agg[ i ] = ValueDataUtil.sum( valueMeta, value, subjMeta, subj );
+          }
           break;
         case GroupByMeta.TYPE_GROUP_AVERAGE:
-          if ( !subjMeta.isNull( subj ) ) {
+          if ( isPrimitiveSum( i ) ) {
+            addToPrimitiveSum( i, subjMeta, subj );
+          } else if ( !subjMeta.isNull( subj ) ) {
             data.agg[ i ] = ValueDataUtil.sum( valueMeta, value, subjMeta, subj );
             data.counts[ i ]++;
           }
@@ -569,6 +575,66 @@ public class GroupBy extends BaseStep implements StepInterface {
     }
   }
 
+  private boolean isPrimitiveSum( int i ) {
+    return data.primitiveSumTypes != null && data.primitiveSumTypes[ i ] != ValueMetaInterface.TYPE_NONE;
+  }
+
+  /**
+   * Adds a value to a sum kept in a primitive, counting the values that aren't null in counts[i] like the average does.
+   */
+  private void addToPrimitiveSum( int i, ValueMetaInterface subjMeta, Object subj ) throws KettleValueException {
+    if ( subj == null ) {
+      return;
+    }
+    boolean first = data.counts[ i ] == 0;
+    if ( data.primitiveSumTypes[ i ] == ValueMetaInterface.TYPE_INTEGER ) {
+      long value = subjMeta.getInteger( subj );
+      data.longSums[ i ] = first ? value : data.longSums[ i ] + value;
+    } else {
+      double value = subjMeta.getNumber( subj );
+      data.doubleSums[ i ] = first ? value : data.doubleSums[ i ] + value;
+    }
+    data.counts[ i ]++;
+  }
+
+  private Object getPrimitiveSum( int i ) {
+    if ( data.counts[ i ] == 0 ) {
+      return null;
+    }
+    if ( data.primitiveSumTypes[ i ] == ValueMetaInterface.TYPE_INTEGER ) {
+      return data.longSums[ i ];
+    }
+    return data.doubleSums[ i ];
+  }
+
+  /**
+   * Sums and averages of Integer and Number fields are kept in primitives rather than in a new boxed value per row, when
+   * the aggregate has the same type as the subject.
+   */
+  private void initPrimitiveSums() {
+    data.primitiveSumTypes = null;
+    if ( !isUsingColumnarBatches() ) {
+      return;
+    }
+    int nrSubjects = data.subjectnrs.length;
+    for ( int i = 0; i < nrSubjects; i++ ) {
+      int aggType = meta.getAggregateType()[ i ];
+      ValueMetaInterface subjMeta = data.inputRowMeta.getValueMeta( data.subjectnrs[ i ] );
+      if ( ( aggType == GroupByMeta.TYPE_GROUP_SUM || aggType == GroupByMeta.TYPE_GROUP_AVERAGE )
+        && subjMeta != null && subjMeta.isStorageNormal() && ( subjMeta.isInteger() || subjMeta.isNumber() )
+        && data.aggMeta.getValueMeta( i ).getType() == subjMeta.getType() ) {
+        if ( data.primitiveSumTypes == null ) {
+          data.primitiveSumTypes = new int[ nrSubjects ];
+        }
+        data.primitiveSumTypes[ i ] = subjMeta.getType();
+      }
+    }
+    if ( data.primitiveSumTypes != null && ( data.longSums == null || data.longSums.length != nrSubjects ) ) {
+      data.longSums = new long[ nrSubjects ];
+      data.doubleSums = new double[ nrSubjects ];
+    }
+  }
+
   /**
    * used for junits in GroupByAggregationNullsTest
    *
@@ -651,6 +717,7 @@ public class GroupBy extends BaseStep implements StepInterface {
       data.agg[ i ] = v;
       data.aggMeta.addValueMeta( vMeta );
     }
+    initPrimitiveSums();
 
     // Also clear the cumulative data...
     //
@@ -701,7 +768,7 @@ public class GroupBy extends BaseStep implements StepInterface {
     Object[] result = new Object[ data.subjectnrs.length ];
 
     for ( int i = 0; i < data.subjectnrs.length; i++ ) {
-      Object ag = data.agg[ i ];
+      Object ag = isPrimitiveSum( i ) ? getPrimitiveSum( i ) : data.agg[ i ];
       switch ( meta.getAggregateType()[ i ] ) {
         case GroupByMeta.TYPE_GROUP_SUM:
           break;
@@ -101,6 +101,14 @@ public class GroupByData extends BaseStepData implements StepDataInterface {
 
   public double[] mean;
 
+  /**
+   * For every subject the type of its primitive sum (Integer or Number) or TYPE_NONE when it's aggregated on objects.
+   * Null when no subject of the current group is summed primitively.
+   */
+  public int[] primitiveSumTypes;
+  public long[] longSums;
+  public double[] doubleSums;
+
   public boolean newBatch;
 
   public GroupByData() {
@@ -29,5 +29,8 @@ public class Aggregate {
   public long[] counts;
   public Set<Object>[] distinctObjs;
   public double[] mean;
+  /** Primitive sums of the Integer and Number subjects, see MemoryGroupByData.primitiveSumTypes */
+  public long[] longSums;
+  public double[] doubleSums;
 
 }
@@ -0,0 +1,381 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
+
+/**
+ * Keeps the aggregates of a Memory Group By step within a memory budget. The groups are divided over 16 partitions on
+ * their hash code and the memory taken by the aggregates of every partition is estimated. When the total goes over the
+ * budget the coldest partition, the one taking the most memory for the rows it got lately, is spilled: its aggregates
+ * are written to a temp file and taken out of memory, the rows for the partition that still come in are written to a
+ * second temp file.<br>
+ * <br>
+ * Once all rows are in, every spilled partition is read back on its own and its rows are added to its aggregates again.
+ * A partition that still doesn't fit is split over 16 new partitions on other bits of the hash code.
+ *
+ * @since 10.3
+ */
+public class AggregateSpiller {
+
+  private static final int PARTITION_BITS = 4;
+  private static final int NR_PARTITIONS = 1 << PARTITION_BITS;
+  private static final int MAX_LEVEL = Integer.SIZE / PARTITION_BITS - 1;
+
+  private final RowMetaInterface inputRowMeta;
+  private final long budget;
+  private final String directory;
+  private final int level;
+
+  private final long[] bytes = new long[ NR_PARTITIONS ];
+  private final long[] hits = new long[ NR_PARTITIONS ];
+  private long totalBytes;
+  private final SpilledPartition[] spilled = new SpilledPartition[ NR_PARTITIONS ];
+
+  /**
+   * @param inputRowMeta
+   *          the layout of the input rows
+   * @param budget
+   *          the memory budget in bytes
+   * @param directory
+   *          the directory for the temp files
+   */
+  public AggregateSpiller( RowMetaInterface inputRowMeta, long budget, String directory ) {
+    this( inputRowMeta, budget, directory, 0 );
+  }
+
+  private AggregateSpiller( RowMetaInterface inputRowMeta, long budget, String directory, int level ) {
+    this.inputRowMeta = inputRowMeta;
+    this.budget = budget;
+    this.directory = directory;
+    this.level = level;
+  }
+
+  /**
+   * @param hashCode
+   *          the hash code of a group
+   * @return the partition of the group
+   */
+  public int getPartition( int hashCode ) {
+    // Spread the hash code over all bits, every level partitions on the next bits
+    int mixed = hashCode * 0x9E3779B9;
+    return ( mixed >>> ( Integer.SIZE - PARTITION_BITS * ( level + 1 ) ) ) & ( NR_PARTITIONS - 1 );
+  }
+
+  public boolean isSpilled( int partition ) {
+    return spilled[ partition ] != null;
+  }
+
+  /**
+   * Counts a row for a partition that is in memory.
+   */
+  public void hit( int partition ) {
+    hits[ partition ]++;
+  }
+
+  /**
+   * Adds to the estimated memory taken by the aggregates of a partition.
+   */
+  public void addBytes( int partition, long size ) {
+    bytes[ partition ] += size;
+    totalBytes += size;
+  }
+
+  public boolean isOverBudget() {
+    return totalBytes > budget;
+  }
+
+  /**
+   * @return the partition in memory taking the most memory for the number of rows it got since the last spill, -1 when
+   *         there's nothing left to spill
+   */
+  public int getColdestPartition() {
+    int coldest = -1;
+    double coldestScore = 0.0;
+    for ( int partition = 0; partition < NR_PARTITIONS; partition++ ) {
+      if ( spilled[ partition ] == null && bytes[ partition ] > 0 ) {
+        double score = (double) bytes[ partition ] / ( hits[ partition ] + 1 );
+        if ( score > coldestScore ) {
+          coldest = partition;
+          coldestScore = score;
+        }
+      }
+    }
+    return coldest;
+  }
+
+  /**
+   * Writes the aggregates of a partition to a temp file and removes them from the map. The rows of the partition that
+   * come in next have to be passed to {@link #writeRow(int, Object[])}.
+   *
+   * @param partition
+   *          the partition to spill
+   * @param map
+   *          the aggregates in memory
+   * @throws KettleException
+   *           in case the temp files can't be written
+   */
+  public void spill( int partition, Map<HashEntry, Aggregate> map ) throws KettleException {
+    SpilledPartition spill = new SpilledPartition();
+    spilled[ partition ] = spill;
+    spill.writeState( partition, map );
+    spill.openRows();
+
+    totalBytes -= bytes[ partition ];
+    bytes[ partition ] = 0;
+    Arrays.fill( hits, 0 );
+  }
+
+  /**
+   * Writes a row of a spilled partition to its temp file.
+   */
+  public void writeRow( int partition, Object[] row ) throws KettleException {
+    spilled[ partition ].writeRow( row );
+  }
+
+  /**
+   * Closes the row files of the spilled partitions.
+   *
+   * @return the spilled partitions, to aggregate one by one
+   * @throws KettleException
+   *           in case a temp file can't be closed
+   */
+  public List<SpilledPartition> close() throws KettleException {
+    List<SpilledPartition> partitions = new ArrayList<>();
+    for ( int partition = 0; partition < NR_PARTITIONS; partition++ ) {
+      if ( spilled[ partition ] != null ) {
+        spilled[ partition ].closeRows();
+        partitions.add( spilled[ partition ] );
+        spilled[ partition ] = null;
+      }
+    }
+    return partitions;
+  }
+
+  /**
+   * Removes the temp files of the partitions that are still spilled.
+   */
+  public void cleanUp() {
+    for ( int partition = 0; partition < NR_PARTITIONS; partition++ ) {
+      if ( spilled[ partition ] != null ) {
+        spilled[ partition ].delete();
+        spilled[ partition ] = null;
+      }
+    }
+  }
+
+  /**
+   * Estimates the memory taken by a new group: its entry in the map, its key and its aggregate.
+   */
+  static long estimateGroupSize( Object[] groupData, int nrSubjects ) {
+    long size = 160L + 40L * nrSubjects;
+    for ( Object value : groupData ) {
+      size += estimateSize( value );
+    }
+    return size;
+  }
+
+  /**
+   * Estimates the memory taken by a value in an aggregate.
+   */
+  static long estimateSize( Object value ) {
+    if ( value == null ) {
+      return 0L;
+    } else if ( value instanceof String ) {
+      return 56L + ( (String) value ).length();
+    } else if ( value instanceof byte[] ) {
+      return 16L + ( (byte[]) value ).length;
+    } else if ( value instanceof BigDecimal ) {
+      return 72L;
+    }
+    return 24L;
+  }
+
+  /**
+   * The temp files of a partition that has been spilled: the aggregates it had at that time and the rows that came in
+   * afterwards.
+   */
+  public class SpilledPartition {
+    private FileObject stateFile;
+    private FileObject rowFile;
+    private DataOutputStream rowOutput;
+    private DataInputStream rowInput;
+    private long nrRows;
+    private long nrRowsRead;
+
+    private void writeState( int partition, Map<HashEntry, Aggregate> map ) throws KettleException {
+      stateFile = KettleVFS.createTempFile( "memgroupby", ".tmp", directory );
+      try ( ObjectOutputStream output = new ObjectOutputStream(
+        new BufferedOutputStream( KettleVFS.getOutputStream( stateFile, false ), 500000 ) ) ) {
+        Iterator<Map.Entry<HashEntry, Aggregate>> iterator = map.entrySet().iterator();
+        while ( iterator.hasNext() ) {
+          Map.Entry<HashEntry, Aggregate> entry = iterator.next();
+          if ( getPartition( entry.getKey().hashCode() ) == partition ) {
+            Aggregate aggregate = entry.getValue();
+            output.writeBoolean( true );
+            output.writeObject( entry.getKey().getGroupData() );
+            output.writeObject( aggregate.agg );
+            output.writeObject( aggregate.counts );
+            output.writeObject( aggregate.distinctObjs );
+            output.writeObject( aggregate.mean );
+            output.writeObject( aggregate.longSums );
+            output.writeObject( aggregate.doubleSums );
+            // Don't keep track of the written objects: they are all distinct
+            output.reset();
+            iterator.remove();
+          }
+        }
+        output.writeBoolean( false );
+      } catch ( IOException e ) {
+        throw new KettleException( "Unable to write the aggregates of a partition to temp file " + stateFile, e );
+      }
+    }
+
+    private void openRows() throws KettleException {
+      rowFile = KettleVFS.createTempFile( "memgroupby", ".tmp", directory );
+      try {
+        rowOutput =
+          new DataOutputStream( new BufferedOutputStream( KettleVFS.getOutputStream( rowFile, false ), 500000 ) );
+      } catch ( IOException e ) {
+        throw new KettleException( "Unable to open temp file " + rowFile, e );
+      }
+    }
+
+    private void writeRow( Object[] row ) throws KettleException {
+      inputRowMeta.writeData( rowOutput, row );
+      nrRows++;
+    }
+
+    private void closeRows() throws KettleException {
+      try {
+        rowOutput.close();
+      } catch ( IOException e ) {
+        throw new KettleException( "Unable to close temp file " + rowFile, e );
+      }
+      rowOutput = null;
+    }
+
+    /**
+     * @return a spiller for the rows of this partition that splits it on the next bits of the hash codes, null when
+     *         all bits are used
+     */
+    public AggregateSpiller newSpiller() {
+      return level < MAX_LEVEL ? new AggregateSpiller( inputRowMeta, budget, directory, level + 1 ) : null;
+    }
+
+    /**
+     * Puts the aggregates of this partition back in the map of the step.
+     *
+     * @param data
+     *          the step data holding the map
+     * @param spiller
+     *          the spiller to account the memory of the aggregates to, can be null
+     * @throws KettleException
+     *           in case the temp file can't be read
+     */
+    @SuppressWarnings( "unchecked" )
+    public void readState( MemoryGroupByData data, AggregateSpiller spiller ) throws KettleException {
+      try ( ObjectInputStream input = new ObjectInputStream(
+        new BufferedInputStream( KettleVFS.getInputStream( stateFile ), 500000 ) ) ) {
+        while ( input.readBoolean() ) {
+          Object[] groupData = (Object[]) input.readObject();
+          Aggregate aggregate = new Aggregate();
+          aggregate.agg = (Object[]) input.readObject();
+          aggregate.counts = (long[]) input.readObject();
+          aggregate.distinctObjs = (Set<Object>[]) input.readObject();
+          aggregate.mean = (double[]) input.readObject();
+          aggregate.longSums = (long[]) input.readObject();
+          aggregate.doubleSums = (double[]) input.readObject();
+          HashEntry entry = data.getHashEntry( groupData );
+          data.map.put( entry, aggregate );
+          if ( spiller != null ) {
+            spiller.addBytes( spiller.getPartition( entry.hashCode() ),
+              estimateGroupSize( groupData, aggregate.agg.length ) );
+          }
+        }
+      } catch ( IOException | ClassNotFoundException e ) {
+        throw new KettleException( "Unable to read the aggregates of a partition from temp file " + stateFile, e );
+      }
+    }
+
+    /**
+     * @return the next row of this partition, null when all rows are read
+     * @throws KettleException
+     *           in case the temp file can't be read
+     */
+    public Object[] readRow() throws KettleException {
+      if ( nrRowsRead >= nrRows ) {
+        return null;
+      }
+      try {
+        if ( rowInput == null ) {
+          rowInput = new DataInputStream( new BufferedInputStream( KettleVFS.getInputStream( rowFile ), 500000 ) );
+        }
+        nrRowsRead++;
+        return inputRowMeta.readData( rowInput );
+      } catch ( Exception e ) {
+        throw new KettleException( "Unable to read a row from temp file " + rowFile, e );
+      }
+    }
+
+    /**
+     * Closes and removes the temp files of this partition.
+     */
+    public void delete() {
+      BaseStep.closeQuietly( rowOutput );
+      BaseStep.closeQuietly( rowInput );
+      deleteQuietly( stateFile );
+      deleteQuietly( rowFile );
+    }
+
+    private void deleteQuietly( FileObject file ) {
+      try {
+        if ( file != null ) {
+          file.delete();
+        }
+      } catch ( IOException e ) {
+        // Nothing to be done, it's a temp file
+      }
+    }
+  }
+}
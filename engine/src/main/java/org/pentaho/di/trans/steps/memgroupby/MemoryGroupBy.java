@@ -22,9 +22,12 @@
 
 package org.pentaho.di.trans.steps.memgroupby;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -158,6 +161,11 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       //
       initGroupMeta( data.inputRowMeta );
 
+      // Spill aggregates to disk when they outgrow the memory budget
+      //
+      data.memoryBudget = Const.toMemorySize( getVariable( Const.KETTLE_MEMORY_GROUP_BY_MEMORY_BUDGET ), -1L );
+      data.spiller = newSpiller();
+
     }
 
     if ( first ) {
@@ -199,28 +207,23 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     return true;
   }
 
-  private void handleLastOfGroup() throws KettleException {
-    // Dump the content of the map...
-    //
-    for ( HashEntry entry : data.map.keySet() ) {
-      Aggregate aggregate = data.map.get( entry );
-      Object[] aggregateResult = getAggregateResult( aggregate );
+  private AggregateSpiller newSpiller() {
+    if ( data.memoryBudget <= 0 ) {
+      return null;
+    }
+    return new AggregateSpiller( data.inputRowMeta, data.memoryBudget, getSpillDirectory() );
+  }
 
-      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
-      int index = 0;
-      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
-        outputRowData[index++] = data.groupMeta.getValueMeta( i ).convertToNormalStorageType( entry.getGroupData()[i] );
-      }
-      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
-        outputRowData[index++] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregateResult[i] );
-      }
-      putRow( data.outputRowMeta, outputRowData );
+  private void handleLastOfGroup() throws KettleException {
+    long nrGroups = writeGroups();
+    if ( data.spiller != null ) {
+      nrGroups += aggregateSpilledPartitions();
     }
 
     // What if we always need to give back one row?
     // This means we give back 0 for count all, count distinct, null for everything else
     //
-    if ( data.map.isEmpty() && meta.isAlwaysGivingBackOneRow() ) {
+    if ( nrGroups == 0 && meta.isAlwaysGivingBackOneRow() ) {
       Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
       int index = 0;
       for ( int i = 0; i < data.groupMeta.size(); i++ ) {
@@ -239,6 +242,88 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Aggregates the spilled partitions one by one: the aggregates they had are read back and their rows are added again.
+   * Partitions that still don't fit in the memory budget are split and spilled again.
+   *
+   * @return the number of groups written
+   */
+  private long aggregateSpilledPartitions() throws KettleException {
+    long nrGroups = 0;
+    Deque<AggregateSpiller.SpilledPartition> partitions = new ArrayDeque<>( data.spiller.close() );
+    try {
+      while ( !partitions.isEmpty() && !isStopped() ) {
+        AggregateSpiller.SpilledPartition partition = partitions.pop();
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.AggregatingSpilledPartition",
+            partitions.size() + 1 ) );
+        }
+        data.map = new HashMap<HashEntry, Aggregate>();
+        data.spiller = partition.newSpiller();
+        partition.readState( data, data.spiller );
+        if ( data.spiller != null ) {
+          spillIfOverBudget();
+        }
+        Object[] row;
+        while ( ( row = partition.readRow() ) != null && !isStopped() ) {
+          addToAggregate( row );
+        }
+        partition.delete();
+        nrGroups += writeGroups();
+        if ( data.spiller != null ) {
+          for ( AggregateSpiller.SpilledPartition split : data.spiller.close() ) {
+            partitions.push( split );
+          }
+        }
+      }
+    } finally {
+      for ( AggregateSpiller.SpilledPartition partition : partitions ) {
+        partition.delete();
+      }
+      data.map = new HashMap<HashEntry, Aggregate>();
+      data.spiller = newSpiller();
+    }
+    return nrGroups;
+  }
+
+  private void spillIfOverBudget() throws KettleException {
+    while ( data.spiller.isOverBudget() ) {
+      int partition = data.spiller.getColdestPartition();
+      if ( partition < 0 ) {
+        break;
+      }
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.SpillingPartition", data.map.size() ) );
+      }
+      data.spiller.spill( partition, data.map );
+    }
+  }
+
+  /**
+   * Writes the aggregates in the map.
+   *
+   * @return the number of groups written
+   */
+  private long writeGroups() throws KettleException {
+    // Dump the content of the map...
+    //
+    for ( Map.Entry<HashEntry, Aggregate> mapEntry : data.map.entrySet() ) {
+      HashEntry entry = mapEntry.getKey();
+      Object[] aggregateResult = getAggregateResult( mapEntry.getValue() );
+
+      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+      int index = 0;
+      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
+        outputRowData[index++] = data.groupMeta.getValueMeta( i ).convertToNormalStorageType( entry.getGroupData()[i] );
+      }
+      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
+        outputRowData[index++] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregateResult[i] );
+      }
+      putRow( data.outputRowMeta, outputRowData );
+    }
+    return data.map.size();
+  }
+
   @VisibleForTesting
   void updateValueMeta() throws KettleException {
 
@@ -268,6 +353,18 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     }
     HashEntry entry = data.getHashEntry( groupData );
 
+    int partition = -1;
+    if ( data.spiller != null ) {
+      partition = data.spiller.getPartition( entry.hashCode() );
+      if ( data.spiller.isSpilled( partition ) ) {
+        // The group is on disk, it's aggregated once all rows are in
+        data.spiller.writeRow( partition, r );
+        return;
+      }
+      data.spiller.hit( partition );
+    }
+    long grown = 0L;
+
     Aggregate aggregate = data.map.get( entry );
     if ( aggregate == null ) {
       // Create a new value...
@@ -278,6 +375,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       // Store it in the map!
       //
       data.map.put( entry, aggregate );
+      grown += AggregateSpiller.estimateGroupSize( groupData, data.subjectnrs.length );
     }
 
     for ( int i = 0; i < data.subjectnrs.length; i++ ) {
@@ -288,10 +386,16 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
       switch ( meta.getAggregateType()[i] ) {
         case MemoryGroupByMeta.TYPE_GROUP_SUM:
-          aggregate.agg[i] = ValueDataUtil.sum( valueMeta, value, subjMeta, subj );
+          if ( isPrimitiveSum( aggregate, i ) ) {
+            addToPrimitiveSum( aggregate, i, subjMeta, subj );
+          } else {
+            aggregate.agg[i] = ValueDataUtil.sum( valueMeta, value, subjMeta, subj );
+          }
           break;
         case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
-          if ( !subjMeta.isNull( subj ) ) {
+          if ( isPrimitiveSum( aggregate, i ) ) {
+            addToPrimitiveSum( aggregate, i, subjMeta, subj );
+          } else if ( !subjMeta.isNull( subj ) ) {
             aggregate.agg[i] = ValueDataUtil.sum( valueMeta, value, subjMeta, subj );
             aggregate.counts[i]++;
           }
@@ -300,6 +404,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
         case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE:
           if ( !subjMeta.isNull( subj ) ) {
             ( (List<Double>) aggregate.agg[i] ).add( subjMeta.getNumber( subj ) );
+            grown += 28L;
           }
           break;
         case MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
@@ -337,6 +442,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
             }
             if ( !aggregate.distinctObjs[i].contains( obj ) ) {
               aggregate.distinctObjs[i].add( obj );
+              grown += 40L + AggregateSpiller.estimateSize( obj );
             }
           }
           aggregate.counts[i] = aggregate.distinctObjs[i].size();
@@ -387,10 +493,12 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
         case MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA:
           if ( !( subj == null ) ) {
             StringBuilder sb = (StringBuilder) value;
-            if ( sb.length() > 0 ) {
+            int length = sb.length();
+            if ( length > 0 ) {
               sb.append( ", " );
             }
             sb.append( subjMeta.getString( subj ) );
+            grown += sb.length() - length;
           }
           break;
         case MemoryGroupByMeta.TYPE_GROUP_CONCAT_STRING:
@@ -400,16 +508,56 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
               separator = environmentSubstitute( meta.getValueField()[i] );
             }
             StringBuilder sb = (StringBuilder) value;
-            if ( sb.length() > 0 ) {
+            int length = sb.length();
+            if ( length > 0 ) {
               sb.append( separator );
             }
             sb.append( subjMeta.getString( subj ) );
+            grown += sb.length() - length;
           }
           break;
         default:
           break;
       }
     }
+
+    if ( data.spiller != null && grown > 0 ) {
+      data.spiller.addBytes( partition, grown );
+      spillIfOverBudget();
+    }
+  }
+
+  private boolean isPrimitiveSum( Aggregate aggregate, int i ) {
+    return aggregate.longSums != null && data.primitiveSumTypes[i] != ValueMetaInterface.TYPE_NONE;
+  }
+
+  /**
+   * Adds a value to a sum kept in a primitive, counting the values that aren't null in counts[i] like the average does.
+   */
+  private void addToPrimitiveSum( Aggregate aggregate, int i, ValueMetaInterface subjMeta, Object subj )
+    throws KettleValueException {
+    if ( subj == null ) {
+      return;
+    }
+    boolean first = aggregate.counts[i] == 0;
+    if ( data.primitiveSumTypes[i] == ValueMetaInterface.TYPE_INTEGER ) {
+      long value = subjMeta.getInteger( subj );
+      aggregate.longSums[i] = first ? value : aggregate.longSums[i] + value;
+    } else {
+      double value = subjMeta.getNumber( subj );
+      aggregate.doubleSums[i] = first ? value : aggregate.doubleSums[i] + value;
+    }
+    aggregate.counts[i]++;
+  }
+
+  private Object getPrimitiveSum( Aggregate aggregate, int i ) {
+    if ( aggregate.counts[i] == 0 ) {
+      return null;
+    }
+    if ( data.primitiveSumTypes[i] == ValueMetaInterface.TYPE_INTEGER ) {
+      return aggregate.longSums[i];
+    }
+    return aggregate.doubleSums[i];
   }
 
   /**
@@ -422,6 +570,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
   void newAggregate( Object[] r, Aggregate aggregate ) throws KettleException {
     if ( aggregate == null ) {
       data.aggMeta = new RowMeta();
+      data.primitiveSumTypes = null;
     } else {
       aggregate.counts = new long[data.subjectnrs.length];
 
@@ -432,6 +581,10 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       aggregate.distinctObjs = null;
       aggregate.agg = new Object[data.subjectnrs.length];
       aggregate.mean = new double[data.subjectnrs.length]; // sets all doubles to 0.0
+      if ( data.primitiveSumTypes != null ) {
+        aggregate.longSums = new long[data.subjectnrs.length];
+        aggregate.doubleSums = new double[data.subjectnrs.length];
+      }
     }
 
     for ( int i = 0; i < data.subjectnrs.length; i++ ) {
@@ -486,12 +639,30 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       }
       if ( aggregate == null ) {
         data.aggMeta.addValueMeta( vMeta );
+        setPrimitiveSumType( i, subjMeta, vMeta );
       } else {
         aggregate.agg[i] = v;
       }
     }
   }
 
+  /**
+   * Sums and averages of Integer and Number fields are kept in primitives rather than in a new boxed value per row, when
+   * the aggregate has the same type as the subject.
+   */
+  private void setPrimitiveSumType( int i, ValueMetaInterface subjMeta, ValueMetaInterface vMeta ) {
+    int aggType = meta.getAggregateType()[i];
+    if ( ( aggType != MemoryGroupByMeta.TYPE_GROUP_SUM && aggType != MemoryGroupByMeta.TYPE_GROUP_AVERAGE )
+      || subjMeta == null || !subjMeta.isStorageNormal() || vMeta.getType() != subjMeta.getType()
+      || ( !subjMeta.isInteger() && !subjMeta.isNumber() ) || !isUsingColumnarBatches() ) {
+      return;
+    }
+    if ( data.primitiveSumTypes == null ) {
+      data.primitiveSumTypes = new int[data.subjectnrs.length];
+    }
+    data.primitiveSumTypes[i] = subjMeta.getType();
+  }
+
   private void initGroupMeta( RowMetaInterface previousRowMeta ) throws KettleValueException {
     data.groupMeta = new RowMeta();
     data.entryMeta = new RowMeta();
@@ -519,7 +690,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     if ( data.subjectnrs != null ) {
       for ( int i = 0; i < data.subjectnrs.length; i++ ) {
-        Object ag = aggregate.agg[i];
+        Object ag = isPrimitiveSum( aggregate, i ) ? getPrimitiveSum( aggregate, i ) : aggregate.agg[i];
         switch ( meta.getAggregateType()[i] ) {
           case MemoryGroupByMeta.TYPE_GROUP_SUM:
             break;
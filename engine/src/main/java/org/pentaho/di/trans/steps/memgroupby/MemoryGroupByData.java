@@ -38,6 +38,8 @@ import org.pentaho.di.trans.step.StepDataInterface;
 public class MemoryGroupByData extends BaseStepData implements StepDataInterface {
   public class HashEntry {
     private Object[] groupData;
+    private int hash;
+    private boolean hashed;
 
     public HashEntry( Object[] groupData ) {
       this.groupData = groupData;
@@ -58,11 +60,15 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
     }
 
     public int hashCode() {
-      try {
-        return groupMeta.hashCode( getHashValue() );
-      } catch ( KettleValueException e ) {
-        throw new RuntimeException( e );
+      if ( !hashed ) {
+        try {
+          hash = groupMeta.hashCode( getHashValue() );
+        } catch ( KettleValueException e ) {
+          throw new RuntimeException( e );
+        }
+        hashed = true;
       }
+      return hash;
     }
 
     private Object[] getHashValue() throws KettleValueException {
@@ -99,6 +105,16 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
 
   public boolean newBatch;
 
+  /**
+   * For every subject the type of its primitive sum (Integer or Number) or TYPE_NONE when it's aggregated on objects.
+   * Null when no subject is summed primitively.
+   */
+  public int[] primitiveSumTypes;
+
+  /** Spills partitions of the aggregates to disk when they take more memory than the budget, null without a budget */
+  public AggregateSpiller spiller;
+  public long memoryBudget;
+
   public MemoryGroupByData() {
     super();
 
@@ -113,5 +129,8 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
    */
   public void clear() {
     map = new HashMap<MemoryGroupByData.HashEntry, Aggregate>();
+    if ( spiller != null ) {
+      spiller.cleanUp();
+    }
   }
 }
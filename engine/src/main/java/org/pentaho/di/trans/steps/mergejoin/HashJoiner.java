@@ -0,0 +1,518 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.mergejoin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.trans.step.BaseStep;
+
+/**
+ * Joins the rows of the two inputs of a Merge Join step on their keys without needing sorted inputs. The rows of both
+ * inputs are divided over 16 partitions on the hash code of their keys. The input that ends first is the build side:
+ * a hash table is built from its rows and the rows of the other input, the probe side, are looked up in it.<br>
+ * <br>
+ * When the rows take more memory than the budget before the build side is known, the biggest partition is spilled:
+ * the rows of both inputs for that partition are written to temp files, as are the rows that still come in for it. Once
+ * both inputs have ended the spilled partitions are joined one by one, splitting them again on the next bits of the
+ * hash code if they still don't fit.<br>
+ * <br>
+ * Keys are matched like the merge join does, with {@link RowMetaInterface#compare}, so null keys match each other.
+ * The output rows are not sorted.
+ *
+ * @since 10.3
+ */
+public class HashJoiner {
+
+  /**
+   * Receives the joined rows: the values of the first input followed by those of the second input.
+   */
+  public interface RowHandler {
+    void putRow( Object[] row ) throws KettleException;
+  }
+
+  private static final int PARTITION_BITS = 4;
+  private static final int NR_PARTITIONS = 1 << PARTITION_BITS;
+  private static final int MAX_LEVEL = Integer.SIZE / PARTITION_BITS - 1;
+
+  private final RowMetaInterface[] rowMetas;
+  private final int[][] keyNrs;
+  private final boolean[] keepUnmatched;
+  private final long budget;
+  private final String directory;
+  private final int level;
+  private final RowHandler output;
+  private final int outputSize;
+
+  private final Partition[] partitions = new Partition[ NR_PARTITIONS ];
+  private final boolean[] ended = new boolean[ 2 ];
+  private int buildSide = -1;
+  private long bytes;
+  private int nrSpilled;
+  /** The collators of the string keys that are compared with a collator, created when first needed */
+  private Collator[] collators = new Collator[ 0 ];
+
+  /**
+   * @param oneMeta
+   *          the layout of the rows of the first input
+   * @param keyNrs1
+   *          the indexes of the keys in the rows of the first input
+   * @param twoMeta
+   *          the layout of the rows of the second input
+   * @param keyNrs2
+   *          the indexes of the keys in the rows of the second input
+   * @param keepOne
+   *          true to pass on the rows of the first input without a match, with nulls for the second input
+   * @param keepTwo
+   *          true to pass on the rows of the second input without a match, with nulls for the first input
+   * @param budget
+   *          the memory budget in bytes, -1 to keep all rows in memory
+   * @param directory
+   *          the directory for the temp files
+   * @param output
+   *          receives the joined rows
+   */
+  public HashJoiner( RowMetaInterface oneMeta, int[] keyNrs1, RowMetaInterface twoMeta, int[] keyNrs2,
+    boolean keepOne, boolean keepTwo, long budget, String directory, RowHandler output ) {
+    this( new RowMetaInterface[] { oneMeta, twoMeta }, new int[][] { keyNrs1, keyNrs2 },
+      new boolean[] { keepOne, keepTwo }, budget, directory, 0, output );
+  }
+
+  private HashJoiner( RowMetaInterface[] rowMetas, int[][] keyNrs, boolean[] keepUnmatched, long budget,
+    String directory, int level, RowHandler output ) {
+    this.rowMetas = rowMetas;
+    this.keyNrs = keyNrs;
+    this.keepUnmatched = keepUnmatched;
+    this.budget = budget;
+    this.directory = directory;
+    this.level = level;
+    this.output = output;
+    this.outputSize = rowMetas[ 0 ].size() + rowMetas[ 1 ].size();
+    for ( int i = 0; i < NR_PARTITIONS; i++ ) {
+      partitions[ i ] = new Partition();
+    }
+  }
+
+  /**
+   * Add a row of an input that hasn't ended yet.
+   *
+   * @param side
+   *          0 for the first input, 1 for the second input
+   */
+  public void addRow( int side, Object[] row ) throws KettleException {
+    int hashCode = hashCode( side, row );
+    Partition partition = partitions[ getPartition( hashCode ) ];
+    if ( partition.isSpilled() ) {
+      partition.writeRow( side, row );
+    } else if ( buildSide < 0 ) {
+      partition.rows.get( side ).add( row );
+      long size = estimateSize( row );
+      partition.bytes += size;
+      bytes += size;
+      if ( budget > 0 && bytes > budget ) {
+        spill();
+      }
+    } else {
+      probe( partition, hashCode, row );
+    }
+  }
+
+  /**
+   * Signal the end of an input. The first input to end becomes the build side, the join is finished when both inputs
+   * have ended.
+   */
+  public void endOfSide( int side ) throws KettleException {
+    if ( ended[ side ] ) {
+      return;
+    }
+    ended[ side ] = true;
+    if ( buildSide < 0 ) {
+      buildSide = side;
+      build();
+    }
+    if ( ended[ 0 ] && ended[ 1 ] ) {
+      finish();
+    }
+  }
+
+  public boolean isEnded( int side ) {
+    return ended[ side ];
+  }
+
+  /**
+   * @return the side of the input the hash table was built from, -1 if neither input has ended yet
+   */
+  public int getBuildSide() {
+    return buildSide;
+  }
+
+  /**
+   * @return the number of partitions that were spilled to temp files, including those of spilled partitions
+   */
+  public int getNrSpilled() {
+    return nrSpilled;
+  }
+
+  /**
+   * Removes all temp files.
+   */
+  public void close() {
+    for ( Partition partition : partitions ) {
+      partition.delete();
+    }
+  }
+
+  private int getPartition( int hashCode ) {
+    // Spread the hash code over all bits, every level partitions on the next bits
+    int mixed = hashCode * 0x9E3779B9;
+    return ( mixed >>> ( Integer.SIZE - PARTITION_BITS * ( level + 1 ) ) ) & ( NR_PARTITIONS - 1 );
+  }
+
+  /**
+   * Hash the keys of a row in a way that equal keys of both inputs get the same hash code, whatever their storage type.
+   * Keys of the second input are converted to the type of the first input and the keys are normalized with the settings
+   * of the first input, like the comparison does.
+   */
+  private int hashCode( int side, Object[] row ) throws KettleException {
+    int hashCode = 1;
+    for ( int i = 0; i < keyNrs[ side ].length; i++ ) {
+      ValueMetaInterface valueMeta = rowMetas[ side ].getValueMeta( keyNrs[ side ][ i ] );
+      Object value = row[ keyNrs[ side ][ i ] ];
+      ValueMetaInterface oneMeta = side == 1 && keyNrs[ 0 ] != null
+        ? rowMetas[ 0 ].getValueMeta( keyNrs[ 0 ][ i ] ) : valueMeta;
+      if ( oneMeta.getType() != valueMeta.getType() ) {
+        value = oneMeta.convertData( valueMeta, value );
+      } else {
+        value = valueMeta.convertToNormalStorageType( value );
+      }
+      hashCode = 31 * hashCode + hashValue( oneMeta, i, value );
+    }
+    return hashCode;
+  }
+
+  /**
+   * Hash a key value in normal storage. Strings are trimmed and compared the way {@link ValueMetaInterface#compare}
+   * does for the value metadata, so strings that compare as equal get the same hash code.
+   */
+  private int hashValue( ValueMetaInterface meta, int keyIndex, Object value ) {
+    if ( value == null ) {
+      return 0;
+    } else if ( value instanceof String ) {
+      String string = Const.trimToType( (String) value, meta.getTrimType() );
+      if ( meta.isIgnoreWhitespace() ) {
+        string = string.trim();
+      }
+      if ( !meta.isCollatorDisabled() ) {
+        return getCollator( meta, keyIndex ).getCollationKey( string ).hashCode();
+      }
+      if ( !meta.isCaseInsensitive() ) {
+        return string.hashCode();
+      }
+      // Characters equal according to compareToIgnoreCase() get the same hash code
+      int hashCode = 0;
+      for ( int i = 0; i < string.length(); i++ ) {
+        hashCode = 31 * hashCode + Character.toLowerCase( Character.toUpperCase( string.charAt( i ) ) );
+      }
+      return hashCode;
+    } else if ( value instanceof BigDecimal ) {
+      // 1.0 and 1.00 compare as equal
+      return ( (BigDecimal) value ).stripTrailingZeros().hashCode();
+    } else if ( value instanceof byte[] ) {
+      return Arrays.hashCode( (byte[]) value );
+    }
+    return value.hashCode();
+  }
+
+  private Collator getCollator( ValueMetaInterface meta, int keyIndex ) {
+    if ( keyIndex >= collators.length ) {
+      collators = Arrays.copyOf( collators, keyIndex + 1 );
+    }
+    if ( collators[ keyIndex ] == null ) {
+      Collator collator = Collator.getInstance( meta.getCollatorLocale() );
+      collator.setStrength( meta.getCollatorStrength() );
+      collators[ keyIndex ] = collator;
+    }
+    return collators[ keyIndex ];
+  }
+
+  private boolean keysEqual( Object[] one, Object[] two ) throws KettleException {
+    return rowMetas[ 0 ].compare( one, rowMetas[ 1 ], two, keyNrs[ 0 ], keyNrs[ 1 ] ) == 0;
+  }
+
+  /**
+   * Spill the partition taking the most memory.
+   */
+  private void spill() throws KettleException {
+    Partition biggest = null;
+    for ( Partition partition : partitions ) {
+      if ( !partition.isSpilled() && ( biggest == null || partition.bytes > biggest.bytes ) ) {
+        biggest = partition;
+      }
+    }
+    if ( biggest == null || biggest.bytes == 0L ) {
+      return;
+    }
+    biggest.spill();
+    bytes -= biggest.bytes;
+    biggest.bytes = 0L;
+    nrSpilled++;
+  }
+
+  /**
+   * Build the hash tables of the partitions in memory and look up the rows of the probe side read so far.
+   */
+  private void build() throws KettleException {
+    int probeSide = 1 - buildSide;
+    for ( Partition partition : partitions ) {
+      if ( partition.isSpilled() ) {
+        // No more rows will come in for the build side
+        partition.closeOutput( buildSide );
+        continue;
+      }
+      partition.table = new HashMap<>();
+      for ( Object[] row : partition.rows.get( buildSide ) ) {
+        int hashCode = hashCode( buildSide, row );
+        List<BuildRow> bucket = partition.table.get( hashCode );
+        if ( bucket == null ) {
+          bucket = new ArrayList<>( 1 );
+          partition.table.put( hashCode, bucket );
+        }
+        bucket.add( new BuildRow( row ) );
+      }
+      partition.rows.get( buildSide ).clear();
+
+      List<Object[]> probeRows = partition.rows.get( probeSide );
+      for ( Object[] row : probeRows ) {
+        probe( partition, hashCode( probeSide, row ), row );
+      }
+      probeRows.clear();
+    }
+  }
+
+  private void probe( Partition partition, int hashCode, Object[] row ) throws KettleException {
+    int probeSide = 1 - buildSide;
+    boolean matched = false;
+    List<BuildRow> bucket = partition.table.get( hashCode );
+    if ( bucket != null ) {
+      for ( BuildRow buildRow : bucket ) {
+        Object[] one = probeSide == 0 ? row : buildRow.row;
+        Object[] two = probeSide == 0 ? buildRow.row : row;
+        if ( keysEqual( one, two ) ) {
+          matched = true;
+          buildRow.matched = true;
+          Object[] joined = RowDataUtil.createResizedCopy( one, outputSize );
+          output.putRow( RowDataUtil.addRowData( joined, rowMetas[ 0 ].size(), two ) );
+        }
+      }
+    }
+    if ( !matched && keepUnmatched[ probeSide ] ) {
+      putUnmatched( probeSide, row );
+    }
+  }
+
+  private void putUnmatched( int side, Object[] row ) throws KettleException {
+    if ( side == 0 ) {
+      output.putRow( RowDataUtil.createResizedCopy( row, outputSize ) );
+    } else {
+      output.putRow( RowDataUtil.addRowData( RowDataUtil.allocateRowData( outputSize ), rowMetas[ 0 ].size(), row ) );
+    }
+  }
+
+  /**
+   * Pass on the unmatched rows of the build side and join the spilled partitions.
+   */
+  private void finish() throws KettleException {
+    for ( Partition partition : partitions ) {
+      if ( !partition.isSpilled() ) {
+        if ( keepUnmatched[ buildSide ] ) {
+          for ( List<BuildRow> bucket : partition.table.values() ) {
+            for ( BuildRow buildRow : bucket ) {
+              if ( !buildRow.matched ) {
+                putUnmatched( buildSide, buildRow.row );
+              }
+            }
+          }
+        }
+        partition.table = null;
+      }
+    }
+
+    for ( Partition partition : partitions ) {
+      if ( partition.isSpilled() ) {
+        partition.join();
+        partition.delete();
+      }
+    }
+  }
+
+  /**
+   * Estimates the memory taken by a row that is kept in memory.
+   */
+  static long estimateSize( Object[] row ) {
+    long size = 64L + 8L * row.length;
+    for ( Object value : row ) {
+      if ( value == null ) {
+        continue;
+      } else if ( value instanceof String ) {
+        size += 56L + ( (String) value ).length();
+      } else if ( value instanceof byte[] ) {
+        size += 16L + ( (byte[]) value ).length;
+      } else if ( value instanceof BigDecimal ) {
+        size += 72L;
+      } else {
+        size += 24L;
+      }
+    }
+    return size;
+  }
+
+  private static class BuildRow {
+    final Object[] row;
+    boolean matched;
+
+    BuildRow( Object[] row ) {
+      this.row = row;
+    }
+  }
+
+  private class Partition {
+    private final List<List<Object[]>> rows = new ArrayList<>( 2 );
+    private long bytes;
+    private Map<Integer, List<BuildRow>> table;
+
+    private FileObject[] files;
+    private DataOutputStream[] outputs;
+    private long[] nrRows;
+
+    Partition() {
+      rows.add( new ArrayList<Object[]>() );
+      rows.add( new ArrayList<Object[]>() );
+    }
+
+    boolean isSpilled() {
+      return files != null;
+    }
+
+    void spill() throws KettleException {
+      files = new FileObject[ 2 ];
+      outputs = new DataOutputStream[ 2 ];
+      nrRows = new long[ 2 ];
+      for ( int side = 0; side < 2; side++ ) {
+        files[ side ] = KettleVFS.createTempFile( "hashjoin", ".tmp", directory );
+        try {
+          outputs[ side ] = new DataOutputStream(
+            new BufferedOutputStream( KettleVFS.getOutputStream( files[ side ], false ), 500000 ) );
+        } catch ( IOException e ) {
+          throw new KettleException( "Unable to open temp file " + files[ side ], e );
+        }
+        for ( Object[] row : rows.get( side ) ) {
+          writeRow( side, row );
+        }
+        rows.get( side ).clear();
+      }
+    }
+
+    void writeRow( int side, Object[] row ) throws KettleException {
+      rowMetas[ side ].writeData( outputs[ side ], row );
+      nrRows[ side ]++;
+    }
+
+    void closeOutput( int side ) throws KettleException {
+      if ( outputs[ side ] != null ) {
+        try {
+          outputs[ side ].close();
+        } catch ( IOException e ) {
+          throw new KettleException( "Unable to close temp file " + files[ side ], e );
+        }
+        outputs[ side ] = null;
+      }
+    }
+
+    /**
+     * Join the rows of this partition with a new joiner, which partitions on the next bits of the hash codes.
+     */
+    void join() throws KettleException {
+      closeOutput( 0 );
+      closeOutput( 1 );
+      long subBudget = level + 1 < MAX_LEVEL ? budget : -1L;
+      HashJoiner joiner =
+        new HashJoiner( rowMetas, keyNrs, keepUnmatched, subBudget, directory, level + 1, output );
+      try {
+        // Keep the build side, it's the one the caller expects to fit best
+        //
+        readRows( joiner, buildSide );
+        joiner.endOfSide( buildSide );
+        readRows( joiner, 1 - buildSide );
+        joiner.endOfSide( 1 - buildSide );
+        nrSpilled += joiner.getNrSpilled();
+      } finally {
+        joiner.close();
+      }
+    }
+
+    private void readRows( HashJoiner joiner, int side ) throws KettleException {
+      try ( DataInputStream input =
+        new DataInputStream( new BufferedInputStream( KettleVFS.getInputStream( files[ side ] ), 500000 ) ) ) {
+        for ( long i = 0; i < nrRows[ side ]; i++ ) {
+          joiner.addRow( side, rowMetas[ side ].readData( input ) );
+        }
+      } catch ( IOException e ) {
+        throw new KettleException( "Unable to read rows from temp file " + files[ side ], e );
+      }
+    }
+
+    void delete() {
+      if ( files == null ) {
+        return;
+      }
+      for ( int side = 0; side < 2; side++ ) {
+        BaseStep.closeQuietly( outputs[ side ] );
+        outputs[ side ] = null;
+        try {
+          if ( files[ side ] != null ) {
+            files[ side ].delete();
+          }
+        } catch ( IOException e ) {
+          // Nothing to be done, it's a temp file
+        }
+      }
+    }
+  }
+}
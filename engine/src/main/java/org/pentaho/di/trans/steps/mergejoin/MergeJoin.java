@@ -23,9 +23,13 @@
 package org.pentaho.di.trans.steps.mergejoin;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Predicate;
 
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.row.RowDataUtil;
@@ -52,6 +56,8 @@ import org.pentaho.di.trans.step.errorhandling.StreamInterface;
  * output ports as follows: a) Containing matched records b) Unmatched records for each input port 5) Support incoming
  * rows to be sorted either on ascending or descending order. The currently implementation only supports ascending
  *
+ * With the hash join option the inputs don't need to be sorted, they are joined by a {@link HashJoiner}.
+ *
  * @author Biswapesh
  * @since 24-nov-2006
  */
@@ -91,7 +97,9 @@ public class MergeJoin extends BaseStep implements StepInterface {
           PKG, "MergeJoin.Exception.UnableToFindSpecifiedStep", infoStreams.get( 1 ).getStepname() ) );
       }
 
-      data.one = getRowFrom( data.oneRowSet );
+      List<List<Object[]>> hashJoinRows = meta.isHashJoin() ? readFirstHashJoinRows() : null;
+
+      data.one = hashJoinRows == null ? getRowFrom( data.oneRowSet ) : hashJoinRows.get( 0 ).get( 0 );
       if ( data.one != null ) {
         data.oneMeta = data.oneRowSet.getRowMeta();
       } else {
@@ -99,7 +107,7 @@ public class MergeJoin extends BaseStep implements StepInterface {
         data.oneMeta = getTransMeta().getStepFields( infoStreams.get( 0 ).getStepname() );
       }
 
-      data.two = getRowFrom( data.twoRowSet );
+      data.two = hashJoinRows == null ? getRowFrom( data.twoRowSet ) : hashJoinRows.get( 1 ).get( 0 );
       if ( data.two != null ) {
         data.twoMeta = data.twoRowSet.getRowMeta();
       } else {
@@ -149,6 +157,21 @@ public class MergeJoin extends BaseStep implements StepInterface {
       // Calculate two_dummy... defaults to null
       //
       data.two_dummy = new Object[data.twoMeta.size()];
+
+      if ( meta.isHashJoin() ) {
+        long budget = Const.toMemorySize( getVariable( Const.KETTLE_HASH_JOIN_MEMORY_BUDGET ), -1L );
+        data.hashJoiner = new HashJoiner( data.oneMeta, data.keyNrs1, data.twoMeta, data.keyNrs2, data.two_optional,
+          data.one_optional, budget, getSpillDirectory(), row -> putRow( data.outputRowMeta, row ) );
+        for ( int side = 0; side < 2; side++ ) {
+          for ( Object[] row : hashJoinRows.get( side ) ) {
+            addHashJoinRow( side, row );
+          }
+        }
+      }
+    }
+
+    if ( data.hashJoiner != null ) {
+      return hashJoinRow();
     }
 
     if ( log.isRowLevel() ) {
@@ -394,6 +417,130 @@ public class MergeJoin extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Read a row from an input that has one and hand it to the hash joiner. The inputs take turns while both have rows.
+   * Only when both are empty does the step wait, for a row on either of them: a step writing to both inputs can then
+   * never block on a full input while this step waits for the other one.
+   */
+  private boolean hashJoinRow() throws KettleException {
+    HashJoiner joiner = data.hashJoiner;
+    if ( !joiner.isEnded( 0 ) || !joiner.isEnded( 1 ) ) {
+      int side = getHashJoinSide( joiner );
+      while ( side < 0 ) {
+        if ( isStopped() ) {
+          return false;
+        }
+        waitForRows( Arrays.asList( data.oneRowSet, data.twoRowSet ) );
+        side = getHashJoinSide( joiner );
+      }
+      data.hashJoinSide = 1 - side;
+      addHashJoinRow( side, getRowFrom( side == 0 ? data.oneRowSet : data.twoRowSet ) );
+    }
+
+    if ( joiner.isEnded( 0 ) && joiner.isEnded( 1 ) ) {
+      if ( log.isDetailed() ) {
+        String buildStep = meta.getStepIOMeta().getInfoStreams().get( joiner.getBuildSide() ).getStepname();
+        logDetailed( BaseMessages.getString( PKG, "MergeJoin.Log.HashJoinFinished", buildStep,
+          String.valueOf( joiner.getNrSpilled() ) ) );
+      }
+      joiner.close();
+      data.hashJoiner = null;
+      setOutputDone();
+      return false;
+    }
+
+    if ( checkFeedback( getLinesRead() ) ) {
+      logBasic( BaseMessages.getString( PKG, "MergeJoin.LineNumber" ) + getLinesRead() );
+    }
+    return true;
+  }
+
+  /**
+   * Read the first row of both inputs for the hash join, from whichever input has one. While one input has no rows yet
+   * the rows of the other input are read once its row set is full, so a step writing to both inputs never blocks.
+   *
+   * @return the rows read from each input, at least one per input: a row or null if the input ended
+   */
+  private List<List<Object[]>> readFirstHashJoinRows() throws KettleException {
+    List<List<Object[]>> rows = Arrays.asList( new ArrayList<>(), new ArrayList<>() );
+    List<RowSet> rowSets = Arrays.asList( data.oneRowSet, data.twoRowSet );
+    Predicate<RowSet> ready = rowSet -> isFirstRowReady( rows.get( rowSet == data.oneRowSet ? 0 : 1 ), rowSet );
+    while ( rows.get( 0 ).isEmpty() || rows.get( 1 ).isEmpty() ) {
+      // The first row of an input goes before more rows of the other one
+      int side = -1;
+      for ( int i = 0; i < 2; i++ ) {
+        if ( ( side < 0 || rows.get( i ).isEmpty() ) && ready.test( rowSets.get( i ) ) ) {
+          side = i;
+        }
+      }
+      if ( side < 0 ) {
+        if ( !isStopped() ) {
+          waitForRows( rowSets, ready );
+          continue;
+        }
+        // A stopped step gets null right away
+        side = rows.get( 0 ).isEmpty() ? 0 : 1;
+      }
+      rows.get( side ).add( getRowFrom( rowSets.get( side ) ) );
+    }
+    return rows;
+  }
+
+  /**
+   * @return true if a row can be read from the row set while the first rows of the hash join are read: it's the first
+   *         row of the input, or the input hasn't ended and its row set is full
+   */
+  private boolean isFirstRowReady( List<Object[]> read, RowSet rowSet ) {
+    if ( read.isEmpty() ) {
+      return hasRowOrIsDone( rowSet );
+    }
+    return read.get( read.size() - 1 ) != null && rowSet.size() >= getTransMeta().getSizeRowset();
+  }
+
+  /**
+   * @return the input to read the next row from without blocking, -1 if neither input has a row or has ended
+   */
+  private int getHashJoinSide( HashJoiner joiner ) {
+    if ( joiner.isEnded( 0 ) ) {
+      return 1;
+    }
+    if ( joiner.isEnded( 1 ) ) {
+      return 0;
+    }
+    int side = data.hashJoinSide;
+    if ( hasRowOrIsDone( side == 0 ? data.oneRowSet : data.twoRowSet ) ) {
+      return side;
+    }
+    if ( hasRowOrIsDone( side == 0 ? data.twoRowSet : data.oneRowSet ) ) {
+      return 1 - side;
+    }
+    return -1;
+  }
+
+  private static boolean hasRowOrIsDone( RowSet rowSet ) {
+    return rowSet.size() > 0 || rowSet.isDone();
+  }
+
+  private void addHashJoinRow( int side, Object[] row ) throws KettleException {
+    if ( row == null ) {
+      data.hashJoiner.endOfSide( side );
+    } else {
+      data.hashJoiner.addRow( side, row );
+    }
+  }
+
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    data = (MergeJoinData) sdi;
+
+    // Remove the temp files when the join was stopped
+    if ( data.hashJoiner != null ) {
+      data.hashJoiner.close();
+      data.hashJoiner = null;
+    }
+    super.dispose( smi, sdi );
+  }
+
   /**
    * @see StepInterface#init(org.pentaho.di.trans.step.StepMetaInterface , org.pentaho.di.trans.step.StepDataInterface)
    */
@@ -49,6 +49,10 @@ public class MergeJoinData extends BaseStepData implements StepDataInterface {
   public RowSet oneRowSet;
   public RowSet twoRowSet;
 
+  /** Joins the inputs when they aren't sorted, null for a merge join */
+  HashJoiner hashJoiner;
+  int hashJoinSide; // the input to read the next row from
+
   /**
    * Default initializer
    */
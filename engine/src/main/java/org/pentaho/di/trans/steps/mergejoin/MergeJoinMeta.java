@@ -78,6 +78,10 @@ public class MergeJoinMeta extends BaseStepMeta implements StepMetaInterface {
   @Injection( name = "KEY_FIELD2" )
   private String[] keyFields2;
 
+  /** Join with a hash table instead of merging sorted inputs */
+  @Injection( name = "HASH_JOIN" )
+  private boolean hashJoin;
+
   /**
    * The supported join types are INNER, LEFT OUTER, RIGHT OUTER and FULL OUTER
    *
@@ -96,6 +100,21 @@ public class MergeJoinMeta extends BaseStepMeta implements StepMetaInterface {
     this.joinType = joinType;
   }
 
+  /**
+   * @return true if the inputs are joined with a hash table, so they don't need to be sorted
+   */
+  public boolean isHashJoin() {
+    return hashJoin;
+  }
+
+  /**
+   * @param hashJoin
+   *          true to join the inputs with a hash table, so they don't need to be sorted
+   */
+  public void setHashJoin( boolean hashJoin ) {
+    this.hashJoin = hashJoin;
+  }
+
   /**
    * @return Returns the keyFields1.
    */
@@ -166,6 +185,7 @@ public class MergeJoinMeta extends BaseStepMeta implements StepMetaInterface {
     List<StreamInterface> infoStreams = getStepIOMeta().getInfoStreams();
 
     retval.append( XMLHandler.addTagValue( "join_type", getJoinType() ) );
+    retval.append( XMLHandler.addTagValue( "hash_join", hashJoin ) );
     retval.append( XMLHandler.addTagValue( "step1", infoStreams.get( 0 ).getStepname() ) );
     retval.append( XMLHandler.addTagValue( "step2", infoStreams.get( 1 ).getStepname() ) );
 
@@ -209,6 +229,7 @@ public class MergeJoinMeta extends BaseStepMeta implements StepMetaInterface {
       infoStreams.get( 0 ).setSubject( XMLHandler.getTagValue( stepnode, "step1" ) );
       infoStreams.get( 1 ).setSubject( XMLHandler.getTagValue( stepnode, "step2" ) );
       joinType = XMLHandler.getTagValue( stepnode, "join_type" );
+      hashJoin = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "hash_join" ) );
     } catch ( Exception e ) {
       throw new KettleXMLException(
         BaseMessages.getString( PKG, "MergeJoinMeta.Exception.UnableToLoadStepInfo" ), e );
@@ -217,6 +238,7 @@ public class MergeJoinMeta extends BaseStepMeta implements StepMetaInterface {
 
   public void setDefault() {
     joinType = join_types[0];
+    hashJoin = false;
     allocate( 0, 0 );
   }
 
@@ -238,6 +260,7 @@ public class MergeJoinMeta extends BaseStepMeta implements StepMetaInterface {
       infoStreams.get( 0 ).setSubject( rep.getStepAttributeString( id_step, "step1" ) );
       infoStreams.get( 1 ).setSubject( rep.getStepAttributeString( id_step, "step2" ) );
       joinType = rep.getStepAttributeString( id_step, "join_type" );
+      hashJoin = rep.getStepAttributeBoolean( id_step, "hash_join" );
     } catch ( Exception e ) {
       throw new KettleException( BaseMessages.getString(
         PKG, "MergeJoinMeta.Exception.UnexpectedErrorReadingStepInfo" ), e );
@@ -267,6 +290,7 @@ public class MergeJoinMeta extends BaseStepMeta implements StepMetaInterface {
       rep.saveStepAttribute( id_transformation, id_step, "step1", infoStreams.get( 0 ).getStepname() );
       rep.saveStepAttribute( id_transformation, id_step, "step2", infoStreams.get( 1 ).getStepname() );
       rep.saveStepAttribute( id_transformation, id_step, "join_type", getJoinType() );
+      rep.saveStepAttribute( id_transformation, id_step, "hash_join", hashJoin );
     } catch ( Exception e ) {
       throw new KettleException( BaseMessages.getString( PKG, "MergeJoinMeta.Exception.UnableToSaveStepInfo" )
         + id_step, e );
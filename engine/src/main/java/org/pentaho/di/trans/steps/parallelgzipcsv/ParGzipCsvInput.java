@@ -29,6 +29,8 @@ import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.ResultFile;
+import org.pentaho.di.core.compress.BlockDecompressionInputStream;
+import org.pentaho.di.core.compress.gzip.ParallelGZIPCompressionInputStream;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.row.RowDataUtil;
@@ -286,7 +288,14 @@ public class ParGzipCsvInput extends BaseStep implements StepInterface {
         data.binaryFilename = data.filenames[data.filenr].getBytes();
       }
 
-      data.gzis = new GZIPInputStream( data.fis, data.bufferSize );
+      // BGZF files are decompressed by a number of threads, other gzip files are inflated ahead of the parser
+      //
+      int threads = BlockDecompressionInputStream.getDecompressionThreads();
+      if ( threads > 1 ) {
+        data.gzis = ParallelGZIPCompressionInputStream.open( data.fis, threads );
+      } else {
+        data.gzis = new GZIPInputStream( data.fis, data.bufferSize );
+      }
 
       clearBuffer();
       data.fileReadPosition = 0L;
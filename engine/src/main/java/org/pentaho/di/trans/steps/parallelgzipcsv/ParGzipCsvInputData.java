@@ -24,7 +24,6 @@ package org.pentaho.di.trans.steps.parallelgzipcsv;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.GZIPInputStream;
 
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -55,7 +54,7 @@ public class ParGzipCsvInputData extends BaseStepData implements StepDataInterfa
   public boolean parallel;
   public int filenameFieldIndex;
   public int rownumFieldIndex;
-  public GZIPInputStream gzis;
+  public InputStream gzis;
   public int bufferSize;
   public byte[] delimiter;
   public byte[] enclosure;
@@ -340,23 +340,15 @@ public class SelectValues extends BaseStep implements StepInterface {
     meta = (SelectValuesMeta) smi;
     data = (SelectValuesData) sdi;
 
-    Object[] rowData = getRow(); // get row from rowset, wait for our turn, indicate busy!
-    if ( rowData == null ) { // no more input to be expected...
+    Object[][] rows = getRowBatch();
+    long linesBefore = getLinesRead();
+    int nrRows = getRows( rows, rows.length ); // get rows from rowset, wait for our turn, indicate busy!
+    if ( nrRows == 0 ) { // no more input to be expected...
 
       setOutputDone();
       return false;
     }
 
-    Object[] rowCopy = null;
-    if ( getStepMeta().isDoingErrorHandling() ) {
-      rowCopy = getInputRowMeta().cloneRow( rowData );
-    }
-
-    if ( log.isRowLevel() ) {
-      logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.GotRowFromPreviousStep" )
-        + getInputRowMeta().getString( rowData ) );
-    }
-
     if ( first ) {
       first = false;
 
@@ -368,48 +360,67 @@ public class SelectValues extends BaseStep implements StepInterface {
       meta.getMetadataFields( data.metadataRowMeta, getStepname(), this );
     }
 
-    try {
-      Object[] outputData = rowData;
-
-      if ( data.select ) {
-        outputData = selectValues( getInputRowMeta(), outputData );
-      }
-      if ( data.deselect ) {
-        outputData = removeValues( data.selectRowMeta, outputData );
-      }
-      if ( data.metadata ) {
-        outputData = metadataValues( data.deselectRowMeta, outputData );
-      }
+    // The rows to pass on are stored in the same batch, every input row gives at most one output row
+    //
+    int nrOutputRows = 0;
+    for ( int r = 0; r < nrRows; r++ ) {
+      Object[] rowData = rows[r];
 
-      if ( outputData == null ) {
-        setOutputDone(); // signal end to receiver(s)
-        return false;
+      Object[] rowCopy = null;
+      if ( getStepMeta().isDoingErrorHandling() ) {
+        rowCopy = getInputRowMeta().cloneRow( rowData );
       }
 
-      // Send the row on its way
-      //
-      putRow( data.metadataRowMeta, outputData );
       if ( log.isRowLevel() ) {
-        logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.WroteRowToNextStep" )
-          + data.metadataRowMeta.getString( outputData ) );
+        logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.GotRowFromPreviousStep" )
+          + getInputRowMeta().getString( rowData ) );
       }
 
-    } catch ( KettleException e ) {
-      if ( getStepMeta().isDoingErrorHandling() ) {
-        String field;
-        if ( e instanceof KettleConversionException ) {
-          List<ValueMetaInterface> fields = ( (KettleConversionException) e ).getFields();
-          field = fields.isEmpty() ? null : fields.get( 0 ).getName();
+      try {
+        Object[] outputData = rowData;
+
+        if ( data.select ) {
+          outputData = selectValues( getInputRowMeta(), outputData );
+        }
+        if ( data.deselect ) {
+          outputData = removeValues( data.selectRowMeta, outputData );
+        }
+        if ( data.metadata ) {
+          outputData = metadataValues( data.deselectRowMeta, outputData );
+        }
+
+        if ( outputData == null ) {
+          putRows( data.metadataRowMeta, rows, nrOutputRows );
+          setOutputDone(); // signal end to receiver(s)
+          return false;
+        }
+
+        // Send the row on its way
+        //
+        rows[nrOutputRows++] = outputData;
+        if ( log.isRowLevel() ) {
+          logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.WroteRowToNextStep" )
+            + data.metadataRowMeta.getString( outputData ) );
+        }
+
+      } catch ( KettleException e ) {
+        if ( getStepMeta().isDoingErrorHandling() ) {
+          String field;
+          if ( e instanceof KettleConversionException ) {
+            List<ValueMetaInterface> fields = ( (KettleConversionException) e ).getFields();
+            field = fields.isEmpty() ? null : fields.get( 0 ).getName();
+          } else {
+            field = null;
+          }
+          putError( getInputRowMeta(), rowCopy, 1, e.getMessage(), field, "SELECT001" );
         } else {
-          field = null;
+          throw e;
         }
-        putError( getInputRowMeta(), rowCopy, 1, e.getMessage(), field, "SELECT001" );
-      } else {
-        throw e;
       }
     }
+    putRows( data.metadataRowMeta, rows, nrOutputRows );
 
-    if ( checkFeedback( getLinesRead() ) ) {
+    if ( checkFeedback( linesBefore, getLinesRead() ) ) {
       logBasic( BaseMessages.getString( PKG, "SelectValues.Log.LineNumber" ) + getLinesRead() );
     }
 
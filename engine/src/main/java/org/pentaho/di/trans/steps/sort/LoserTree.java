@@ -0,0 +1,136 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A tournament tree of losers to merge k sorted sources. Every internal node keeps the source that lost the match
+ * played there, the root keeps the overall winner. Replacing the head of the winning source only replays the matches
+ * on its path to the root: log2(k) comparisons per merged element, against up to k for a sorted list of heads. When
+ * two heads are equal the source with the lowest number wins, which keeps the merge stable.
+ *
+ * @param <T>
+ *          the type of the merged elements
+ * @since 10.3
+ */
+public class LoserTree<T> {
+
+  /** Marks the matches that haven't been played while the tree is built */
+  private static final int NOBODY = -1;
+
+  private final Object[] heads;
+  private final int[] tree;
+  private final Comparator<? super T> comparator;
+
+  /**
+   * @param heads
+   *          the first element of every source, null for empty sources
+   * @param comparator
+   *          the order of the elements
+   */
+  public LoserTree( List<T> heads, Comparator<? super T> comparator ) {
+    this.heads = heads.toArray();
+    this.comparator = comparator;
+    this.tree = new int[ Math.max( 1, this.heads.length ) ];
+    if ( this.heads.length == 0 ) {
+      tree[ 0 ] = NOBODY;
+      return;
+    }
+    for ( int i = 0; i < tree.length; i++ ) {
+      tree[ i ] = NOBODY;
+    }
+    for ( int source = this.heads.length - 1; source >= 0; source-- ) {
+      replay( source );
+    }
+  }
+
+  /**
+   * @return true when all the sources are exhausted
+   */
+  public boolean isEmpty() {
+    return tree[ 0 ] == NOBODY || heads[ tree[ 0 ] ] == null;
+  }
+
+  /**
+   * @return the number of the source holding the smallest head
+   */
+  public int getWinner() {
+    return tree[ 0 ];
+  }
+
+  /**
+   * @return the smallest head of all sources, null when they are exhausted
+   */
+  @SuppressWarnings( "unchecked" )
+  public T peek() {
+    return isEmpty() ? null : (T) heads[ tree[ 0 ] ];
+  }
+
+  /**
+   * Replaces the smallest head by the next element of its source.
+   *
+   * @param next
+   *          the next element of the winning source, null when the source is exhausted
+   */
+  public void replaceWinner( T next ) {
+    int winner = tree[ 0 ];
+    heads[ winner ] = next;
+    replay( winner );
+  }
+
+  private void replay( int source ) {
+    int winner = source;
+    for ( int node = ( source + heads.length ) >>> 1; node > 0; node >>>= 1 ) {
+      int opponent = tree[ node ];
+      if ( opponent == NOBODY ) {
+        // The first source to get here waits for an opponent, the match is played by the one coming up after it
+        tree[ node ] = winner;
+        winner = NOBODY;
+        break;
+      }
+      if ( beats( opponent, winner ) ) {
+        tree[ node ] = winner;
+        winner = opponent;
+      }
+    }
+    if ( winner != NOBODY ) {
+      tree[ 0 ] = winner;
+    }
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private boolean beats( int source1, int source2 ) {
+    T head1 = (T) heads[ source1 ];
+    T head2 = (T) heads[ source2 ];
+    if ( head1 == null ) {
+      return false;
+    }
+    if ( head2 == null ) {
+      return true;
+    }
+    int cmp = comparator.compare( head1, head2 );
+    return cmp < 0 || ( cmp == 0 && source1 < source2 );
+  }
+}
@@ -23,14 +23,21 @@
 package org.pentaho.di.trans.steps.sort;
 
 /**
- * Keeps track of which temporary file a row is coming from
+ * Keeps track of which temporary file a row is coming from, together with its sort key
  */
 public class RowTempFile {
   public Object[] row;
+  public byte[] key;
   public int fileNumber;
 
   public RowTempFile( Object[] row, int fileNumber ) {
     this.row = row;
     this.fileNumber = fileNumber;
   }
+
+  public RowTempFile( Object[] row, byte[] key, int fileNumber ) {
+    this.row = row;
+    this.key = key;
+    this.fileNumber = fileNumber;
+  }
 }
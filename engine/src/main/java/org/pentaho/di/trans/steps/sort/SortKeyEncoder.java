@@ -0,0 +1,290 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * Encodes the sort fields of a row in a binary key. Comparing two keys byte by byte (unsigned) gives the same order as
+ * {@link RowMetaInterface#compare(Object[], Object[], int[])}, including descending fields and nulls, so sorting and
+ * merging compares byte arrays instead of going through the value metadata for every field.<br>
+ * <br>
+ * Integer, Number, Date, Boolean and String fields without a collator or custom comparator can be encoded. The key
+ * stops at the first sort field that can't, rows with equal keys are then compared on the values of the remaining sort
+ * fields.
+ *
+ * @since 10.3
+ */
+public class SortKeyEncoder {
+
+  /** Lists smaller than this are encoded on the calling thread */
+  private static final int MIN_PARALLEL_SIZE = 8192;
+
+  private static final byte NULL_VALUE = 0;
+  private static final byte NOT_NULL_VALUE = 1;
+
+  private final RowMetaInterface rowMeta;
+  private final int[] keyFieldNrs;
+  private final ValueMetaInterface[] keyMetas;
+  private final int[] remainingFieldNrs;
+
+  /**
+   * @param rowMeta
+   *          the layout of the rows, with the sort fields in normal storage
+   * @param fieldNrs
+   *          the indexes of the sort fields
+   */
+  public SortKeyEncoder( RowMetaInterface rowMeta, int[] fieldNrs ) {
+    this.rowMeta = rowMeta;
+    int nrKeyFields = 0;
+    while ( nrKeyFields < fieldNrs.length && isEncodable( rowMeta.getValueMeta( fieldNrs[ nrKeyFields ] ) ) ) {
+      nrKeyFields++;
+    }
+    keyFieldNrs = Arrays.copyOf( fieldNrs, nrKeyFields );
+    keyMetas = new ValueMetaInterface[ nrKeyFields ];
+    for ( int i = 0; i < nrKeyFields; i++ ) {
+      keyMetas[ i ] = rowMeta.getValueMeta( keyFieldNrs[ i ] );
+    }
+    remainingFieldNrs = Arrays.copyOfRange( fieldNrs, nrKeyFields, fieldNrs.length );
+  }
+
+  /**
+   * @return true if the keys hold all the sort fields, so rows never need to be compared on their values
+   */
+  public boolean isComplete() {
+    return remainingFieldNrs.length == 0;
+  }
+
+  /**
+   * @param row
+   *          the row
+   * @return the binary key of the row
+   * @throws KettleValueException
+   *           in case a sort field can't be read
+   */
+  public byte[] encode( Object[] row ) throws KettleValueException {
+    KeyWriter writer = new KeyWriter();
+    for ( int i = 0; i < keyMetas.length; i++ ) {
+      int start = writer.length;
+      ValueMetaInterface valueMeta = keyMetas[ i ];
+      Object value = row[ keyFieldNrs[ i ] ];
+      if ( valueMeta.isNull( value ) ) {
+        writer.put( NULL_VALUE );
+      } else {
+        writer.put( NOT_NULL_VALUE );
+        writeValue( writer, valueMeta, value );
+      }
+      if ( valueMeta.isSortedDescending() ) {
+        writer.invert( start );
+      }
+    }
+    return writer.toByteArray();
+  }
+
+  /**
+   * Encodes the keys of a list of rows, using all cores for large lists.
+   *
+   * @param rows
+   *          the rows
+   * @return the binary keys of the rows, in the same order
+   * @throws KettleValueException
+   *           in case a sort field can't be read
+   */
+  public byte[][] encode( List<Object[]> rows ) throws KettleValueException {
+    byte[][] keys = new byte[ rows.size() ][];
+    if ( keys.length < MIN_PARALLEL_SIZE ) {
+      for ( int i = 0; i < keys.length; i++ ) {
+        keys[ i ] = encode( rows.get( i ) );
+      }
+      return keys;
+    }
+    try {
+      IntStream.range( 0, keys.length ).parallel().forEach( i -> {
+        try {
+          keys[ i ] = encode( rows.get( i ) );
+        } catch ( KettleValueException e ) {
+          throw new IllegalStateException( e );
+        }
+      } );
+    } catch ( IllegalStateException e ) {
+      if ( e.getCause() instanceof KettleValueException ) {
+        throw (KettleValueException) e.getCause();
+      }
+      throw e;
+    }
+    return keys;
+  }
+
+  /**
+   * Compares two rows on their keys, and on the sort fields that aren't part of the keys when the keys are equal.
+   *
+   * @return a negative number, 0 or a positive number when the first row is smaller than, equal to or larger than the
+   *         second
+   * @throws KettleValueException
+   *           in case the values of the rows can't be compared
+   */
+  public int compare( byte[] key1, Object[] row1, byte[] key2, Object[] row2 ) throws KettleValueException {
+    int cmp = Arrays.compareUnsigned( key1, key2 );
+    if ( cmp != 0 || remainingFieldNrs.length == 0 ) {
+      return cmp;
+    }
+    return rowMeta.compare( row1, row2, remainingFieldNrs );
+  }
+
+  /**
+   * @param valueMeta
+   *          the metadata of a sort field
+   * @return true if the values of the field can be encoded in a binary key
+   */
+  static boolean isEncodable( ValueMetaInterface valueMeta ) {
+    if ( !valueMeta.isStorageNormal() || ( valueMeta instanceof ValueMetaBase
+      && ( (ValueMetaBase) valueMeta ).getComparator() != null ) ) {
+      return false;
+    }
+    Class<?> clazz = valueMeta.getClass();
+    if ( clazz == ValueMetaString.class ) {
+      return valueMeta.isCollatorDisabled();
+    }
+    return clazz == ValueMetaInteger.class || clazz == ValueMetaNumber.class || clazz == ValueMetaDate.class
+      || clazz == ValueMetaBoolean.class;
+  }
+
+  private static void writeValue( KeyWriter writer, ValueMetaInterface valueMeta, Object value )
+    throws KettleValueException {
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        writer.putLong( valueMeta.getInteger( value ) ^ Long.MIN_VALUE );
+        break;
+      case ValueMetaInterface.TYPE_NUMBER:
+        // Flip the sign bit of positive numbers and all bits of negative ones: this gives the order of Double.compare()
+        long bits = Double.doubleToLongBits( valueMeta.getNumber( value ) );
+        writer.putLong( bits ^ ( ( bits >> 63 ) | Long.MIN_VALUE ) );
+        break;
+      case ValueMetaInterface.TYPE_DATE:
+        writer.putLong( valueMeta.getDate( value ).getTime() ^ Long.MIN_VALUE );
+        break;
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        writer.put( (byte) ( valueMeta.getBoolean( value ) ? 1 : 0 ) );
+        break;
+      default:
+        String string = valueMeta.getString( value );
+        if ( valueMeta.isIgnoreWhitespace() ) {
+          string = string.trim();
+        }
+        if ( valueMeta.isCaseInsensitive() ) {
+          writeCaseInsensitive( writer, string );
+        } else {
+          writeCaseSensitive( writer, string );
+        }
+        break;
+    }
+  }
+
+  /**
+   * String.compareTo() compares UTF-16 code units. Each one is written in 2 bytes, a 0 is escaped as 0x0000 0x0001 so
+   * 0x0000 0x0000 can end the string: a shorter string sorts before the longer ones starting with it.
+   */
+  private static void writeCaseSensitive( KeyWriter writer, String string ) {
+    for ( int i = 0; i < string.length(); i++ ) {
+      char c = string.charAt( i );
+      if ( c == 0 ) {
+        writer.putChar( (char) 0 );
+        writer.putChar( (char) 1 );
+      } else {
+        writer.putChar( c );
+      }
+    }
+    writer.putChar( (char) 0 );
+    writer.putChar( (char) 0 );
+  }
+
+  /**
+   * String.compareToIgnoreCase() compares code points after converting them to upper and then to lower case. Each one
+   * is written plus one in 3 bytes, leaving 0x000000 to end the string.
+   */
+  private static void writeCaseInsensitive( KeyWriter writer, String string ) {
+    for ( int i = 0; i < string.length(); ) {
+      int codePoint = string.codePointAt( i );
+      i += Character.charCount( codePoint );
+      int folded = Character.toLowerCase( Character.toUpperCase( codePoint ) ) + 1;
+      writer.put( (byte) ( folded >>> 16 ) );
+      writer.put( (byte) ( folded >>> 8 ) );
+      writer.put( (byte) folded );
+    }
+    writer.put( (byte) 0 );
+    writer.put( (byte) 0 );
+    writer.put( (byte) 0 );
+  }
+
+  private static class KeyWriter {
+    private byte[] bytes = new byte[ 32 ];
+    private int length;
+
+    private void ensureCapacity( int extra ) {
+      if ( length + extra > bytes.length ) {
+        bytes = Arrays.copyOf( bytes, Math.max( bytes.length * 2, length + extra ) );
+      }
+    }
+
+    void put( byte b ) {
+      ensureCapacity( 1 );
+      bytes[ length++ ] = b;
+    }
+
+    void putChar( char c ) {
+      ensureCapacity( 2 );
+      bytes[ length++ ] = (byte) ( c >>> 8 );
+      bytes[ length++ ] = (byte) c;
+    }
+
+    void putLong( long value ) {
+      ensureCapacity( 8 );
+      for ( int shift = 56; shift >= 0; shift -= 8 ) {
+        bytes[ length++ ] = (byte) ( value >>> shift );
+      }
+    }
+
+    /** Descending fields sort on the complement of their bytes */
+    void invert( int start ) {
+      for ( int i = start; i < length; i++ ) {
+        bytes[ i ] = (byte) ~bytes[ i ];
+      }
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf( bytes, length );
+    }
+  }
+}
@@ -29,9 +29,10 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.math.BigDecimal;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
@@ -87,6 +88,15 @@ public class SortRows extends BaseStep implements StepInterface {
     // Save row
     data.buffer.add( r );
 
+    if ( data.memoryBudget > 0 ) {
+      // The buffer is full when its rows take up the memory budget: sort & dump to disk
+      data.bufferBytes += estimateRowSize( r, data.fieldnrs.length );
+      if ( data.bufferBytes >= data.memoryBudget ) {
+        sortExternalRows();
+      }
+      return;
+    }
+
     // Check the free memory every 1000 rows...
     //
     data.freeCounter++;
@@ -205,6 +215,7 @@ public class SortRows extends BaseStep implements StepInterface {
 
       // Clear the list
       data.buffer.clear();
+      data.bufferBytes = 0;
 
       // Close temp-file
       dos.close(); // close data stream
@@ -230,10 +241,88 @@ public class SortRows extends BaseStep implements StepInterface {
     data.getBufferIndex = 0;
   }
 
-  private DataInputStream getDataInputStream( GZIPInputStream gzipInputStream ) {
-    DataInputStream result = new DataInputStream( gzipInputStream );
-    data.gzis.add( gzipInputStream );
-    return result;
+  // Open all temp files at once, read one row from each file and put them in the merge tree.
+  private void openTempFiles() {
+    if ( log.isBasic() ) {
+      logBasic( BaseMessages.getString( PKG, "SortRows.Basic.OpeningTempFiles", data.files.size() ) );
+    }
+
+    int bufferSize = getReadBufferSize( data.files.size() );
+    List<RowTempFile> heads = new ArrayList<RowTempFile>( data.files.size() );
+    try {
+      for ( int f = 0; f < data.files.size() && !isStopped(); f++ ) {
+        FileObject fileObject = data.files.get( f );
+        String filename = KettleVFS.getFilename( fileObject );
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.OpeningTempFile", filename ) );
+        }
+        InputStream fi = KettleVFS.getInputStream( fileObject );
+        DataInputStream di;
+        GZIPInputStream gzfi = null;
+        data.fis.add( fi );
+        if ( data.compressFiles ) {
+          gzfi = new GZIPInputStream( new BufferedInputStream( fi, bufferSize ), 65536 );
+          di = new DataInputStream( new BufferedInputStream( gzfi, bufferSize ) );
+        } else {
+          di = new DataInputStream( new BufferedInputStream( fi, bufferSize ) );
+        }
+        data.gzis.add( gzfi );
+        data.dis.add( di );
+
+        // How long is the buffer?
+        int buffersize = data.bufferSizes.get( f );
+
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.FromFileExpectingRows",
+              filename, buffersize ) );
+        }
+
+        if ( buffersize > 0 ) {
+          Object[] row = data.outputRowMeta.readData( di );
+          heads.add( new RowTempFile( row, data.keyEncoder.encode( row ), f ) );
+        } else {
+          heads.add( null );
+        }
+      }
+    } catch ( Exception e ) {
+      logError( BaseMessages.getString( PKG, "SortRows.Error.ErrorReadingBackTempFiles" ), e );
+    }
+    data.mergeTree = new LoserTree<RowTempFile>( heads, data.comparator );
+  }
+
+  /**
+   * With a memory budget half of it is spread over the read buffers of the temp files, with a minimum of 8KB and a
+   * maximum of 4MB per file. Without it every file gets a 50KB buffer.
+   */
+  private int getReadBufferSize( int nrFiles ) {
+    if ( data.memoryBudget <= 0 ) {
+      return 50000;
+    }
+    long perFile = data.memoryBudget / 2 / Math.max( 1, nrFiles );
+    return (int) Math.max( 8192L, Math.min( 4L * 1024 * 1024, perFile ) );
+  }
+
+  // Close and remove a temp file that has been read to the end
+  private boolean closeTempFile( int fileNumber ) {
+    FileObject file = data.files.get( fileNumber );
+    GZIPInputStream gzfi = data.gzis.get( fileNumber );
+    try {
+      data.dis.get( fileNumber ).close();
+      data.fis.get( fileNumber ).close();
+      if ( gzfi != null ) {
+        gzfi.close();
+      }
+      file.delete();
+    } catch ( IOException e ) {
+      logError( BaseMessages.getString( PKG, "SortRows.Error.UnableToCloseFile", fileNumber, file.toString() ) );
+      setErrors( 1 );
+      stopAll();
+      return false;
+    }
+    data.dis.set( fileNumber, null );
+    data.fis.set( fileNumber, null );
+    data.gzis.set( fileNumber, null );
+    return true;
   }
 
   // get sorted rows from available files in iterative manner.
@@ -243,48 +332,8 @@ public class SortRows extends BaseStep implements StepInterface {
     Object[] retval;
 
     // Open all files at once and read one row from each file...
-    if ( data.files.size() > 0 && ( data.dis.size() == 0 || data.fis.size() == 0 ) ) {
-      if ( log.isBasic() ) {
-        logBasic( BaseMessages.getString( PKG, "SortRows.Basic.OpeningTempFiles", data.files.size() ) );
-      }
-
-      try {
-        for ( int f = 0; f < data.files.size() && !isStopped(); f++ ) {
-          FileObject fileObject = data.files.get( f );
-          String filename = KettleVFS.getFilename( fileObject );
-          if ( log.isDetailed() ) {
-            logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.OpeningTempFile", filename ) );
-          }
-          InputStream fi = KettleVFS.getInputStream( fileObject );
-          DataInputStream di;
-          data.fis.add( fi );
-          if ( data.compressFiles ) {
-            di = getDataInputStream( new GZIPInputStream( new BufferedInputStream( fi ) ) );
-          } else {
-            di = new DataInputStream( new BufferedInputStream( fi, 50000 ) );
-          }
-          data.dis.add( di );
-
-          // How long is the buffer?
-          int buffersize = data.bufferSizes.get( f );
-
-          if ( log.isDetailed() ) {
-            logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.FromFileExpectingRows",
-                filename, buffersize ) );
-          }
-
-          if ( buffersize > 0 ) {
-            Object[] row = data.outputRowMeta.readData( di );
-            data.rowbuffer.add( row ); // new row from input stream
-            data.tempRows.add( new RowTempFile( row, f ) );
-          }
-        }
-
-        // Sort the data row buffer
-        Collections.sort( data.tempRows, data.comparator );
-      } catch ( Exception e ) {
-        logError( BaseMessages.getString( PKG, "SortRows.Error.ErrorReadingBackTempFiles" ), e );
-      }
+    if ( data.files.size() > 0 && data.mergeTree == null ) {
+      openTempFiles();
     }
 
     if ( data.files.size() == 0 ) {
@@ -297,73 +346,24 @@ public class SortRows extends BaseStep implements StepInterface {
         retval = null;
       }
     } else {
-      // read from disk processing
+      // read from disk processing: the merge tree knows which file has the smallest row
 
-      if ( data.rowbuffer.size() == 0 ) {
+      RowTempFile rowTempFile = data.mergeTree.peek();
+      if ( rowTempFile == null ) {
         retval = null;
       } else {
-        // We now have "filenr" rows waiting: which one is the smallest?
-        //
-        if ( log.isRowLevel() ) {
-          for ( int i = 0; i < data.rowbuffer.size() && !isStopped(); i++ ) {
-            Object[] b = data.rowbuffer.get( i );
-            logRowlevel( BaseMessages
-                .getString( PKG, "SortRows.RowLevel.PrintRow", i, data.outputRowMeta.getString( b ) ) );
-          }
-        }
-
-        RowTempFile rowTempFile = data.tempRows.remove( 0 );
         retval = rowTempFile.row;
         int smallest = rowTempFile.fileNumber;
 
         // now get another Row for position smallest
-
-        FileObject file = data.files.get( smallest );
-        DataInputStream di = data.dis.get( smallest );
-        InputStream fi = data.fis.get( smallest );
-
         try {
-          Object[] row2 = data.outputRowMeta.readData( di );
-          RowTempFile extra = new RowTempFile( row2, smallest );
-
-          int index = Collections.binarySearch( data.tempRows, extra, data.comparator );
-          if ( index < 0 ) {
-            data.tempRows.add( index * ( -1 ) - 1, extra );
-          } else {
-            data.tempRows.add( index, extra );
-          }
+          Object[] row2 = data.outputRowMeta.readData( data.dis.get( smallest ) );
+          data.mergeTree.replaceWinner( new RowTempFile( row2, data.keyEncoder.encode( row2 ), smallest ) );
         } catch ( KettleFileException fe ) { // empty file or EOF mostly
-          GZIPInputStream gzfi = ( data.compressFiles ) ? data.gzis.get( smallest ) : null;
-          try {
-            di.close();
-            fi.close();
-            if ( gzfi != null ) {
-              gzfi.close();
-            }
-            file.delete();
-          } catch ( IOException e ) {
-            logError( BaseMessages.getString( PKG, "SortRows.Error.UnableToCloseFile", smallest, file.toString() ) );
-            setErrors( 1 );
-            stopAll();
+          data.mergeTree.replaceWinner( null );
+          if ( !closeTempFile( smallest ) ) {
             return null;
           }
-
-          data.files.remove( smallest );
-          data.dis.remove( smallest );
-          data.fis.remove( smallest );
-
-          if ( gzfi != null ) {
-            data.gzis.remove( smallest );
-          }
-
-          // Also update all file numbers in in data.tempRows if they are larger
-          // than smallest.
-          //
-          for ( RowTempFile rtf : data.tempRows ) {
-            if ( rtf.fileNumber > smallest ) {
-              rtf.fileNumber--;
-            }
-          }
         } catch ( SocketTimeoutException e ) {
           throw new KettleValueException( e ); // should never happen on local files
         }
@@ -437,7 +437,7 @@ public class SortRows extends BaseStep implements StepInterface {
         data.convertKeysToNative[i] = in;
         i++;
       }
-      data.rowComparator = new RowObjectArrayComparator( data.outputRowMeta, data.fieldnrs );
+      data.keyEncoder = new SortKeyEncoder( data.outputRowMeta, data.fieldnrs );
     } // end if first
 
     // it is not first row and it is null
@@ -560,7 +560,11 @@ public class SortRows extends BaseStep implements StepInterface {
 
     data.sortSize = Const.toInt( environmentSubstitute( meta.getSortSize() ), -1 );
     data.freeMemoryPctLimit = Const.toInt( meta.getFreeMemoryLimit(), -1 );
-    if ( data.sortSize <= 0 && data.freeMemoryPctLimit <= 0 ) {
+    data.memoryBudget = Const.toMemorySize( getVariable( Const.KETTLE_SORT_MEMORY_BUDGET ), -1L );
+    if ( data.memoryBudget > 0 && log.isDetailed() ) {
+      logDetailed( "Sorting with a memory budget of " + data.memoryBudget + " bytes" );
+    }
+    if ( data.sortSize <= 0 && data.freeMemoryPctLimit <= 0 && data.memoryBudget <= 0 ) {
       // Prefer the memory limit as it should never fail
       //
       data.freeMemoryPctLimit = 25;
@@ -570,14 +574,8 @@ public class SortRows extends BaseStep implements StepInterface {
     //
     data.buffer = new ArrayList<Object[]>( 5000 );
 
-    // Buffer for reading from disk
-    //
-    data.rowbuffer = new ArrayList<Object[]>( 5000 );
-
     data.compressFiles = getBooleanValueOfVariable( meta.getCompressFilesVariable(), meta.getCompressFiles() );
 
-    data.tempRows = new ArrayList<RowTempFile>();
-
     data.minSortSize = 5000;
 
     return true;
@@ -593,21 +591,29 @@ public class SortRows extends BaseStep implements StepInterface {
 
     // Clean out the sort buffer
     data.buffer.clear();
+    data.bufferBytes = 0;
     data.getBufferIndex = 0;
-    data.rowbuffer.clear();
+    data.mergeTree = null;
 
     // close any open DataInputStream objects
     if ( ( data.dis != null ) && ( data.dis.size() > 0 ) ) {
       for ( DataInputStream dis : data.dis ) {
-        BaseStep.closeQuietly( dis );
+        if ( dis != null ) {
+          BaseStep.closeQuietly( dis );
+        }
       }
+      data.dis.clear();
     }
     // close any open InputStream objects
     if ( ( data.fis != null ) && ( data.fis.size() > 0 ) ) {
       for ( InputStream is : data.fis ) {
-        BaseStep.closeQuietly( is );
+        if ( is != null ) {
+          BaseStep.closeQuietly( is );
+        }
       }
+      data.fis.clear();
     }
+    data.gzis.clear();
     // remove temp files
     for ( int f = 0; f < data.files.size(); f++ ) {
       FileObject fileToDelete = data.files.get( f );
@@ -619,14 +625,30 @@ public class SortRows extends BaseStep implements StepInterface {
         logError( e.getLocalizedMessage(), e );
       }
     }
+    data.files.clear();
+    data.bufferSizes.clear();
   }
 
   /**
-   * Sort the entire vector, if it is not empty.
+   * Sort the entire vector, if it is not empty. The rows are sorted on their binary keys, using all cores when the keys
+   * hold all the sort fields.
    */
   void quickSort( List<Object[]> elements ) throws KettleException {
     if ( elements.size() > 0 ) {
-      Collections.sort( elements, data.rowComparator );
+      byte[][] keys = data.keyEncoder.encode( elements );
+      RowTempFile[] sorted = new RowTempFile[ keys.length ];
+      for ( int i = 0; i < sorted.length; i++ ) {
+        sorted[ i ] = new RowTempFile( elements.get( i ), keys[ i ], -1 );
+      }
+      if ( data.keyEncoder.isComplete() ) {
+        Arrays.parallelSort( sorted, data.comparator );
+      } else {
+        // Comparing values can use a shared collator: stick to this thread
+        Arrays.sort( sorted, data.comparator );
+      }
+      for ( int i = 0; i < sorted.length; i++ ) {
+        elements.set( i, sorted[ i ].row );
+      }
 
       long nrConversions = 0L;
       for ( ValueMetaInterface valueMeta : data.outputRowMeta.getValueMetaList() ) {
@@ -660,6 +682,25 @@ public class SortRows extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Estimates the heap memory taken by a row in the sort buffer, including its sort key and the structures to sort it.
+   */
+  static long estimateRowSize( Object[] r, int nrSortFields ) {
+    long size = 56L + 4L * r.length + 12L * nrSortFields;
+    for ( Object value : r ) {
+      if ( value instanceof String ) {
+        size += 56L + ( (String) value ).length();
+      } else if ( value instanceof byte[] ) {
+        size += 16L + ( (byte[]) value ).length;
+      } else if ( value instanceof BigDecimal ) {
+        size += 72L;
+      } else if ( value != null ) {
+        size += 24L;
+      }
+    }
+    return size;
+  }
+
   /*
    * Group Fields Implementation heroic
    */
@@ -695,23 +736,7 @@ public class SortRows extends BaseStep implements StepInterface {
     @Override
     public int compare( RowTempFile o1, RowTempFile o2 ) {
       try {
-        return rowMeta.compare( o1.row, o2.row, fieldNrs );
-      } catch ( KettleValueException e ) {
-        logError( "Error comparing rows: " + e.toString() );
-        return 0;
-      }
-    }
-  }
-
-  private class RowObjectArrayComparator extends SortRowsComparator implements Comparator<Object[]> {
-    RowObjectArrayComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
-      super( rowMeta, fieldNrs );
-    }
-
-    @Override
-    public int compare( Object[] o1, Object[] o2 ) {
-      try {
-        return rowMeta.compare( o1, o2, fieldNrs );
+        return data.keyEncoder.compare( o1.key, o1.row, o2.key, o2.row );
       } catch ( KettleValueException e ) {
         logError( "Error comparing rows: " + e.toString() );
         return 0;
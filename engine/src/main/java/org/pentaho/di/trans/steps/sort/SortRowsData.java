@@ -46,11 +46,10 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public List<InputStream> fis;
   public List<GZIPInputStream> gzis;
   public List<DataInputStream> dis;
-  public List<Object[]> rowbuffer;
   public List<Integer> bufferSizes;
 
-  // To store rows and file references
-  public List<RowTempFile> tempRows;
+  // Merges the rows of the temp files
+  public LoserTree<RowTempFile> mergeTree;
 
   public int[] fieldnrs; // the corresponding field numbers;
   public FileObject fil;
@@ -60,8 +59,8 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public int[] convertKeysToNative;
   public boolean convertAnyKeysToNative;
 
+  public SortKeyEncoder keyEncoder;
   Comparator<RowTempFile> comparator;
-  Comparator<Object[]> rowComparator;
 
   public int freeCounter;
   public int freeMemoryPct;
@@ -69,6 +68,10 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public int freeMemoryPctLimit;
   public int memoryReporting;
 
+  // The memory budget in bytes, when it's set, and the estimated size of the rows in the buffer
+  public long memoryBudget;
+  public long bufferBytes;
+
   /*
    * Group Fields Implementation heroic
    */
@@ -26,12 +26,14 @@ import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.util.Collections;
 
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
+import org.pentaho.di.core.hash.OffHeapHashIndex;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -218,6 +220,11 @@ public class StreamLookup extends BaseStep implements StepInterface {
       rowData = getRowFrom( rowSet );
     }
 
+    if ( data.offHeapIndex != null && data.offHeapIndex.isSpilled() && log.isDetailed() ) {
+      logDetailed( BaseMessages.getString(
+        PKG, "StreamLookup.Log.OffHeapIndexSpilled", "" + data.offHeapIndex.getSize() ) );
+    }
+
     return true;
   }
 
@@ -294,7 +301,14 @@ public class StreamLookup extends BaseStep implements StepInterface {
 
   private void addToCache( RowMetaInterface keyMeta, Object[] keyData, RowMetaInterface valueMeta,
     Object[] valueData ) throws KettleValueException {
-    if ( meta.isMemoryPreservationActive() ) {
+    if ( data.useOffHeapIndex ) {
+      if ( data.offHeapIndex == null ) {
+        data.offHeapIndex = new OffHeapHashIndex( 512,
+          Const.toMemorySize( getVariable( Const.KETTLE_STREAM_LOOKUP_MEMORY_BUDGET ), -1L ), getSpillDirectory() );
+      }
+      data.offHeapIndex
+        .put( RowMeta.extractData( keyMeta, keyData ), RowMeta.extractData( valueMeta, valueData ) );
+    } else if ( meta.isMemoryPreservationActive() ) {
       if ( meta.isUsingSortedList() ) {
         KeyValue keyValue = new KeyValue( keyData, valueData );
         int idx = Collections.binarySearch( data.list, keyValue, data.comparator );
@@ -336,7 +350,13 @@ public class StreamLookup extends BaseStep implements StepInterface {
   }
 
   private Object[] getFromCache( RowMetaInterface keyMeta, Object[] keyData ) throws KettleValueException {
-    if ( meta.isMemoryPreservationActive() ) {
+    if ( data.useOffHeapIndex ) {
+      byte[] value = data.offHeapIndex.get( RowMeta.extractData( keyMeta, keyData ) );
+      if ( value == null ) {
+        return null;
+      }
+      return RowMeta.getRow( data.cacheValueMeta, value );
+    } else if ( meta.isMemoryPreservationActive() ) {
       if ( meta.isUsingSortedList() ) {
         KeyValue keyValue = new KeyValue( keyData, null );
         int idx = Collections.binarySearch( data.list, keyValue, data.comparator );
@@ -469,6 +489,11 @@ public class StreamLookup extends BaseStep implements StepInterface {
     if ( super.init( smi, sdi ) ) {
       data.readLookupValues = true;
 
+      // The sorted list and integer pair algorithms are explicit choices, leave those on the heap
+      //
+      data.useOffHeapIndex = "Y".equalsIgnoreCase( getVariable( Const.KETTLE_STREAM_LOOKUP_OFF_HEAP_INDEX ) )
+        && !( meta.isMemoryPreservationActive() && ( meta.isUsingSortedList() || meta.isUsingIntegerPair() ) );
+
       return true;
     }
 
@@ -483,6 +508,10 @@ public class StreamLookup extends BaseStep implements StepInterface {
     data.list = null;
     data.hashIndex = null;
     data.longIndex = null;
+    if ( data.offHeapIndex != null ) {
+      data.offHeapIndex.close();
+      data.offHeapIndex = null;
+    }
 
     super.dispose( smi, sdi );
   }
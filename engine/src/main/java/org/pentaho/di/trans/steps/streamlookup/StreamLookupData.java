@@ -32,6 +32,7 @@ import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
 import org.pentaho.di.core.hash.LongHashIndex;
+import org.pentaho.di.core.hash.OffHeapHashIndex;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -74,6 +75,10 @@ public class StreamLookupData extends BaseStepData implements StepDataInterface
   public ByteArrayHashIndex hashIndex;
   public LongHashIndex longIndex;
 
+  /** Keep the lookup data off the heap, see Const.KETTLE_STREAM_LOOKUP_OFF_HEAP_INDEX */
+  public boolean useOffHeapIndex;
+  public OffHeapHashIndex offHeapIndex;
+
   public RowMetaInterface lookupMeta;
 
   public RowMetaInterface infoMeta;
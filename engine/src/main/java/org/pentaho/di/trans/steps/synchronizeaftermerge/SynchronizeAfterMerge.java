@@ -876,6 +876,10 @@ public class SynchronizeAfterMerge extends BaseDatabaseStep implements StepInter
       }
       data.db.setCommitSize( data.commitSize );
 
+      // Inserts, updates and deletes use separate statements: executing one of their batches early changes the order
+      //
+      data.db.setAdaptiveBatching( false );
+
       return true;
     }
     return false;
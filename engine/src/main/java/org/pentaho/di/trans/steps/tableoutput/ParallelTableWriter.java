@@ -0,0 +1,346 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.tableoutput;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.database.AdaptiveBatchSizer;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.util.ExecutorUtil;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.step.BaseStep;
+
+/**
+ * Writes the rows of a Table Output step copy with a number of writer threads, each with its own database connection
+ * and prepared statement.<br>
+ * The step thread fills batches of rows and hands them to the writers through a bounded queue, so the next batch is
+ * filled while the writers execute the previous ones. The writers never commit: all connections are committed or
+ * rolled back together with {@link #end(boolean)}.<br>
+ * With the KETTLE_ADAPTIVE_BATCH_SIZE variable the batch size is tuned from the execution times reported by all writers,
+ * up to the configured batch size.
+ *
+ * @since 10.3
+ */
+public class ParallelTableWriter {
+  private static Class<?> PKG = TableOutputMeta.class; // for i18n purposes, needed by Translator2!!
+
+  /** Tells a writer there are no more batches */
+  private static final List<Object[]> END_OF_DATA = new ArrayList<>();
+
+  private static final long OFFER_TIMEOUT_MS = 100L;
+
+  private final BaseStep step;
+  private final DatabaseMeta databaseMeta;
+  private final String sql;
+  private final RowMetaInterface insertRowMeta;
+  private final int batchSize;
+  private final AdaptiveBatchSizer batchSizer;
+
+  private final BlockingQueue<List<Object[]>> queue;
+  private final List<Writer> writers;
+  private final List<Future<?>> futures;
+  private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+  private List<Object[]> batch;
+  private boolean ended;
+
+  public ParallelTableWriter( BaseStep step, DatabaseMeta databaseMeta, String sql, RowMetaInterface insertRowMeta,
+    int nrWriters, int batchSize ) {
+    this.step = step;
+    this.databaseMeta = databaseMeta;
+    this.sql = sql;
+    this.insertRowMeta = insertRowMeta;
+    this.batchSize = batchSize;
+    if ( "Y".equalsIgnoreCase( step.getVariable( Const.KETTLE_ADAPTIVE_BATCH_SIZE, "N" ) ) ) {
+      long targetLatency = Const.toLong( step.getVariable( Const.KETTLE_ADAPTIVE_BATCH_TARGET_LATENCY ),
+        AdaptiveBatchSizer.DEFAULT_TARGET_LATENCY_MS );
+      batchSizer = new AdaptiveBatchSizer( batchSize, targetLatency );
+    } else {
+      batchSizer = null;
+    }
+
+    // One batch waiting per writer is enough to keep them all busy
+    //
+    queue = new ArrayBlockingQueue<>( nrWriters );
+    writers = new ArrayList<>( nrWriters );
+    futures = new ArrayList<>( nrWriters );
+    for ( int i = 0; i < nrWriters; i++ ) {
+      writers.add( new Writer() );
+    }
+    batch = new ArrayList<>( batchSize );
+  }
+
+  /**
+   * Connect the writers and start their threads.
+   */
+  public void start() throws KettleException {
+    try {
+      for ( Writer writer : writers ) {
+        writer.connect();
+      }
+    } catch ( KettleException e ) {
+      close();
+      throw e;
+    }
+    for ( Writer writer : writers ) {
+      futures.add( ExecutorUtil.getExecutor().submit( writer ) );
+    }
+  }
+
+  /**
+   * Add a row to the current batch, handing the batch to the writers once it's full.
+   */
+  public void addRow( Object[] row ) throws KettleException {
+    batch.add( row );
+    if ( batch.size() >= getBatchSize() ) {
+      put( batch );
+      batch = new ArrayList<>( batchSize );
+    }
+  }
+
+  /**
+   * Hand the last batch to the writers and wait until they executed all batches.
+   *
+   * @throws KettleException
+   *           if one of the writers failed
+   */
+  public void finish() throws KettleException {
+    if ( !batch.isEmpty() ) {
+      put( batch );
+      batch = new ArrayList<>( batchSize );
+    }
+    for ( int i = 0; i < futures.size(); i++ ) {
+      put( END_OF_DATA );
+    }
+    for ( Future<?> future : futures ) {
+      try {
+        future.get();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new KettleException( e );
+      } catch ( ExecutionException e ) {
+        failure.compareAndSet( null, e );
+      }
+    }
+    checkFailure();
+  }
+
+  /**
+   * Commit or roll back all connections and disconnect. Only the first call has an effect.
+   *
+   * @param commit
+   *          true to commit, false to roll back
+   * @throws KettleException
+   *           if a commit failed, the connections that weren't committed yet are rolled back
+   */
+  public synchronized void end( boolean commit ) throws KettleException {
+    if ( ended ) {
+      return;
+    }
+    ended = true;
+
+    // Writers still waiting for batches after a failure of the step itself
+    //
+    for ( Future<?> future : futures ) {
+      future.cancel( true );
+    }
+
+    boolean committed = false;
+    try {
+      if ( commit ) {
+        for ( Writer writer : writers ) {
+          writer.commit();
+        }
+        committed = true;
+      }
+    } finally {
+      if ( !committed ) {
+        for ( Writer writer : writers ) {
+          writer.rollback();
+        }
+      }
+      close();
+    }
+  }
+
+  /**
+   * @return the number of rows executed by the writers
+   */
+  public long getNrRowsWritten() {
+    long nrRows = 0L;
+    for ( Writer writer : writers ) {
+      nrRows += writer.nrRowsWritten;
+    }
+    return nrRows;
+  }
+
+  /**
+   * @return the number of rows handed to a writer at once
+   */
+  public int getBatchSize() {
+    return batchSizer == null ? batchSize : batchSizer.getBatchSize();
+  }
+
+  private void put( List<Object[]> rows ) throws KettleException {
+    try {
+      while ( !queue.offer( rows, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS ) ) {
+        // Failed writers keep draining the queue, so the end of the data always gets through
+        //
+        if ( rows != END_OF_DATA ) {
+          checkFailure();
+        }
+        if ( allWritersDone() ) {
+          throw new KettleException( BaseMessages.getString( PKG, "TableOutput.Exception.ParallelWritersStopped" ) );
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    }
+    if ( rows != END_OF_DATA ) {
+      checkFailure();
+    }
+  }
+
+  private boolean allWritersDone() {
+    for ( Future<?> future : futures ) {
+      if ( !future.isDone() ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void checkFailure() throws KettleException {
+    Exception exception = failure.get();
+    if ( exception != null ) {
+      throw new KettleException( BaseMessages.getString( PKG, "TableOutput.Exception.ParallelWriterFailed" ),
+        exception );
+    }
+  }
+
+  private void close() {
+    for ( Writer writer : writers ) {
+      writer.close();
+    }
+  }
+
+  private class Writer implements Runnable {
+    private Database db;
+    private PreparedStatement insertStatement;
+    private volatile long nrRowsWritten;
+
+    private void connect() throws KettleException {
+      db = new Database( step, databaseMeta );
+      db.shareVariablesWith( step );
+      db.connect( step.getPartitionID() );
+      db.setAutoCommit( false );
+      // The batches are sized by this writer, not by the connection
+      db.setAdaptiveBatching( false );
+      insertStatement = db.prepareSQL( sql );
+    }
+
+    @Override
+    public void run() {
+      try {
+        List<Object[]> rows = queue.take();
+        while ( rows != END_OF_DATA ) {
+          // After a failure the batches are only taken from the queue to unblock the step
+          //
+          if ( failure.get() == null ) {
+            execute( rows );
+          }
+          rows = queue.take();
+        }
+      } catch ( InterruptedException e ) {
+        failure.compareAndSet( null, e );
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void execute( List<Object[]> rows ) {
+      try {
+        for ( Object[] row : rows ) {
+          db.setValues( insertRowMeta, row, insertStatement );
+          insertStatement.addBatch();
+        }
+        long startTime = System.nanoTime();
+        db.executeBatch( insertStatement );
+        if ( batchSizer != null ) {
+          batchSizer.batchExecuted( rows.size(), System.nanoTime() - startTime );
+        }
+        insertStatement.clearBatch();
+        nrRowsWritten += rows.size();
+      } catch ( SQLException e ) {
+        failure.compareAndSet( null, Database.createKettleDatabaseBatchException( "Error updating batch", e ) );
+      } catch ( Exception e ) {
+        failure.compareAndSet( null, e );
+      }
+    }
+
+    private void commit() throws KettleDatabaseException {
+      if ( db != null ) {
+        db.commit( true );
+      }
+    }
+
+    private void rollback() {
+      if ( db != null ) {
+        try {
+          db.rollback( true );
+        } catch ( KettleDatabaseException e ) {
+          step.logError( BaseMessages.getString( PKG, "TableOutput.Exception.ParallelWriterRollbackFailed" ), e );
+        }
+      }
+    }
+
+    private void close() {
+      if ( db != null ) {
+        try {
+          if ( insertStatement != null ) {
+            db.closePreparedStatement( insertStatement );
+          }
+        } catch ( KettleDatabaseException e ) {
+          step.logError( "Unable to close the insert statement", e );
+        }
+        db.disconnect();
+        db = null;
+        insertStatement = null;
+      }
+    }
+  }
+}
@@ -37,6 +37,7 @@ import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransAdapter;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.*;
 
@@ -67,8 +68,10 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     meta = (TableOutputMeta) smi;
     data = (TableOutputData) sdi;
 
-    Object[] r = getRow(); // this also waits for a previous step to be finished.
-    if ( r == null ) { // no more input to be expected...
+    Object[][] rows = getRowBatch();
+    long linesBefore = getLinesRead();
+    int nrRows = getRows( rows, rows.length ); // this also waits for a previous step to be finished.
+    if ( nrRows == 0 ) { // no more input to be expected...
       // truncate the table if there are no rows at all coming into this step
       if ( first && meta.truncateTable() ) {
         truncateTable();
@@ -115,16 +118,26 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
           }
         }
       }
+
+      if ( data.nrParallelWriters > 1 ) {
+        startParallelWriters();
+      }
     }
 
+    // The rows written to the table replace their input rows in the batch
+    //
+    int nrOutputRows = 0;
     try {
-      Object[] outputRowData = writeToTable( getInputRowMeta(), r );
-      if ( outputRowData != null ) {
-        putRow( data.outputRowMeta, outputRowData ); // in case we want it go further...
-        incrementLinesOutput();
+      for ( int i = 0; i < nrRows; i++ ) {
+        Object[] outputRowData = writeToTable( getInputRowMeta(), rows[i] );
+        if ( outputRowData != null ) {
+          rows[nrOutputRows++] = outputRowData;
+          incrementLinesOutput();
+        }
       }
+      putRows( data.outputRowMeta, rows, nrOutputRows ); // in case we want it go further...
 
-      if ( checkFeedback( getLinesRead() ) ) {
+      if ( checkFeedback( linesBefore, getLinesRead() ) ) {
         if ( log.isBasic() ) {
           logBasic( "linenr " + getLinesRead() );
         }
@@ -235,6 +248,13 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       throw new KettleStepException( "The tablename is not defined (empty)" );
     }
 
+    if ( data.parallelWriter != null ) {
+      // The row is passed on right away, copy it so later steps can't change it while it's being written
+      //
+      data.parallelWriter.addRow( insertRowData == r ? r.clone() : insertRowData );
+      return outputRowData;
+    }
+
     insertStatement = data.preparedStatements.get( tableName );
     if ( insertStatement == null ) {
       String sql =
@@ -284,7 +304,7 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       if ( ( data.commitSize > 0 ) && ( ( commitCounter % data.commitSize ) == 0 ) ) {
         if ( data.db.getUseBatchInsert( data.batchMode ) ) {
           try {
-            insertStatement.executeBatch();
+            data.db.executeBatch( insertStatement );
             data.db.commit();
             insertStatement.clearBatch();
           } catch ( SQLException ex ) {
@@ -427,6 +447,68 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     return log.isRowLevel();
   }
 
+  /**
+   * Start the writer threads of the parallel writer mode. Their connections are committed or rolled back together when
+   * the transformation finishes, or when the step is disposed if it doesn't run in a transformation.
+   */
+  private void startParallelWriters() throws KettleException {
+    if ( !data.db.getUseBatchInsert( data.batchMode ) ) {
+      logBasic( BaseMessages.getString( PKG, "TableOutput.Log.ParallelWritersNotUsed" ) );
+      data.nrParallelWriters = 1;
+      return;
+    }
+
+    String sql =
+      data.db.getInsertStatement( environmentSubstitute( meta.getSchemaName() ), data.tableName, data.insertRowMeta );
+    final ParallelTableWriter parallelWriter =
+      new ParallelTableWriter( this, data.databaseMeta, sql, data.insertRowMeta, data.nrParallelWriters,
+        data.commitSize );
+    parallelWriter.start();
+    data.parallelWriter = parallelWriter;
+    if ( log.isBasic() ) {
+      logBasic( BaseMessages.getString( PKG, "TableOutput.Log.ParallelWriters", "" + data.nrParallelWriters ) );
+    }
+
+    if ( getTrans() != null ) {
+      data.commitParallelWritersWithTrans = true;
+      getTrans().addTransListener( new TransAdapter() {
+        @Override
+        public void transFinished( Trans trans ) throws KettleException {
+          parallelWriter.end( trans.getErrors() == 0 && !trans.isStopped() );
+        }
+      } );
+    }
+  }
+
+  /**
+   * Wait for the parallel writers to execute all rows. They are rolled back right away if this step failed.
+   */
+  private void finishParallelWriters() {
+    ParallelTableWriter parallelWriter = data.parallelWriter;
+    data.parallelWriter = null;
+    try {
+      parallelWriter.finish();
+      if ( log.isDetailed() ) {
+        logDetailed( "Rows written by the parallel writers: " + parallelWriter.getNrRowsWritten() );
+      }
+    } catch ( KettleException e ) {
+      logError( BaseMessages.getString( PKG, "TableOutput.Exception.ParallelWriterFailed" ), e );
+      setErrors( 1 );
+      stopAll();
+    }
+    try {
+      if ( getErrors() > 0 ) {
+        parallelWriter.end( false );
+      } else if ( !data.commitParallelWritersWithTrans ) {
+        parallelWriter.end( true );
+      }
+    } catch ( KettleException e ) {
+      logError( BaseMessages.getString( PKG, "TableOutput.Exception.ParallelWriterFailed" ), e );
+      setErrors( 1 );
+      stopAll();
+    }
+  }
+
   private void processBatchException( String errorMessage, int[] updateCounts, List<Exception> exceptionsList ) throws KettleException {
     // There was an error with the commit
     // We should put all the failing rows out there...
@@ -515,10 +597,25 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
         }
         data.db.setCommitSize( data.commitSize );
 
+        // Rows in error are matched with the update counts of a single batch per commit
+        //
+        if ( getStepMeta().isDoingErrorHandling() ) {
+          data.db.setAdaptiveBatching( false );
+        }
+
         if ( !meta.isPartitioningEnabled() && !meta.isTableNameInField() ) {
           data.tableName = environmentSubstitute( meta.getTableName() );
         }
 
+        // Parallel writers only take plain batch inserts into a single table: rows in error can't be routed back
+        //
+        data.nrParallelWriters = Const.toInt( environmentSubstitute( meta.getParallelWriters() ), 1 );
+        if ( data.nrParallelWriters > 1
+          && ( !data.batchMode || data.tableName == null || getStepMeta().isDoingErrorHandling() ) ) {
+          logBasic( BaseMessages.getString( PKG, "TableOutput.Log.ParallelWritersNotUsed" ) );
+          data.nrParallelWriters = 1;
+        }
+
         return true;
       } catch ( KettleException e ) {
         logError( "An error occurred intialising this step: " + e.getMessage() );
@@ -543,6 +640,12 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
         data.db.truncateTable( environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta
           .getTableName() ) );
 
+        // The parallel writers insert on connections of their own: they would wait forever for the lock the
+        // uncommitted truncate holds, because this connection only commits after all the writers finished.
+        //
+        if ( data.nrParallelWriters > 1 ) {
+          data.db.commit( true );
+        }
       }
     }
   }
@@ -551,6 +654,10 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     meta = (TableOutputMeta) smi;
     data = (TableOutputData) sdi;
 
+    if ( data.parallelWriter != null ) {
+      finishParallelWriters();
+    }
+
     if ( data.db != null ) {
       try {
         for ( String schemaTable : data.preparedStatements.keySet() ) {
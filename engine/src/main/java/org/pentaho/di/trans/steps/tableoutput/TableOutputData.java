@@ -78,6 +78,13 @@ public class TableOutputData extends BaseDatabaseStepData implements StepDataInt
 
   public int commitSize;
 
+  /** The number of writer threads with their own connection, 1 to write on the step thread */
+  public int nrParallelWriters;
+  public ParallelTableWriter parallelWriter;
+
+  /** The parallel writers are committed or rolled back when the transformation finishes */
+  public boolean commitParallelWritersWithTrans;
+
   public TableOutputData() {
     super();
 
@@ -81,6 +81,10 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
   @Injection( name = "COMMIT_SIZE" )
   private String commitSize;
 
+  /** The number of writer threads with their own connection, empty or 1 to write on the step thread */
+  @Injection( name = "PARALLEL_WRITERS" )
+  private String parallelWriters;
+
   @Injection( name = "TRUNCATE_TABLE" )
   public void metaSetTruncateTable( String value ) {
     setTruncateTable( "Y".equalsIgnoreCase( value ) );
@@ -357,6 +361,20 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     this.commitSize = commitSize;
   }
 
+  /**
+   * @return Returns the number of parallel writers.
+   */
+  public String getParallelWriters() {
+    return parallelWriters;
+  }
+
+  /**
+   * @param parallelWriters The number of parallel writers to set.
+   */
+  public void setParallelWriters( String parallelWriters ) {
+    this.parallelWriters = parallelWriters;
+  }
+
   /**
    * @return the table name
    */
@@ -454,6 +472,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       schemaName = XMLHandler.getTagValue( stepnode, "schema" );
       tableName = XMLHandler.getTagValue( stepnode, "table" );
       commitSize = XMLHandler.getTagValue( stepnode, "commit" );
+      parallelWriters = XMLHandler.getTagValue( stepnode, "parallel_writers" );
       truncateTable = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "truncate" ) );
       ignoreErrors = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "ignore_errors" ) );
       useBatchUpdate = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "use_batch" ) );
@@ -512,6 +531,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     retval.append( "    " + XMLHandler.addTagValue( "schema", schemaName ) );
     retval.append( "    " + XMLHandler.addTagValue( "table", tableName ) );
     retval.append( "    " + XMLHandler.addTagValue( "commit", commitSize ) );
+    retval.append( "    " + XMLHandler.addTagValue( "parallel_writers", parallelWriters ) );
     retval.append( "    " + XMLHandler.addTagValue( "truncate", truncateTable ) );
     retval.append( "    " + XMLHandler.addTagValue( "ignore_errors", ignoreErrors ) );
     retval.append( "    " + XMLHandler.addTagValue( "use_batch", useBatchUpdate ) );
@@ -549,6 +569,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       schemaName = rep.getStepAttributeString( id_step, "schema" );
       tableName = rep.getStepAttributeString( id_step, "table" );
       commitSize = rep.getStepAttributeString( id_step, "commit" );
+      parallelWriters = rep.getStepAttributeString( id_step, "parallel_writers" );
       truncateTable = rep.getStepAttributeBoolean( id_step, "truncate" );
       ignoreErrors = rep.getStepAttributeBoolean( id_step, "ignore_errors" );
       useBatchUpdate = rep.getStepAttributeBoolean( id_step, "use_batch" );
@@ -588,6 +609,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       rep.saveStepAttribute( id_transformation, id_step, "schema", schemaName );
       rep.saveStepAttribute( id_transformation, id_step, "table", tableName );
       rep.saveStepAttribute( id_transformation, id_step, "commit", commitSize );
+      rep.saveStepAttribute( id_transformation, id_step, "parallel_writers", parallelWriters );
       rep.saveStepAttribute( id_transformation, id_step, "truncate", truncateTable );
       rep.saveStepAttribute( id_transformation, id_step, "ignore_errors", ignoreErrors );
       rep.saveStepAttribute( id_transformation, id_step, "use_batch", useBatchUpdate );
@@ -441,7 +441,9 @@ public class TextFileOutput extends BaseStep implements StepInterface {
       meta.setEncoding( CharsetToolkit.getDefaultSystemCharset().name() );
     }
 
-    Object[] row = getRow(); // This also waits for a row to be finished.
+    Object[][] rows = getRowBatch();
+    int nrRows = getRows( rows, rows.length ); // This also waits for a row to be finished.
+    Object[] row = nrRows > 0 ? rows[0] : null;
 
     if ( first ) {
 
@@ -460,7 +462,15 @@ public class TextFileOutput extends BaseStep implements StepInterface {
       }
     }
 
-    return writeRowTo( row );
+    if ( nrRows == 0 ) {
+      return writeRowTo( null );
+    }
+    for ( int i = 0; i < nrRows; i++ ) {
+      if ( !writeRowTo( rows[i] ) ) {
+        return false;
+      }
+    }
+    return true;
   }
 
   protected boolean writeRowTo( Object[] row ) throws KettleException {
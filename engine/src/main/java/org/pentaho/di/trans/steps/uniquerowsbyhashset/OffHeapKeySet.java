@@ -0,0 +1,404 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.uniquerowsbyhashset;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.hash.OffHeapHashIndex;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.trans.step.BaseStep;
+
+/**
+ * Keeps track of the keys of the rows seen so far in off-heap hash indexes, storing every key as its serialized bytes
+ * instead of as an object per row. The keys are divided over 16 partitions on their hash code.<br>
+ * <br>
+ * When the partitions take more direct memory than the budget, the biggest partition is spilled: its keys are written
+ * to a temp file and the rows that come in for it later are written to a second temp file. These rows are only checked
+ * by {@link #finish()}, which handles the spilled partitions one by one, splitting them again on the next bits of the
+ * hash code if they still don't fit. The rows of spilled partitions are therefore passed on later than the others.
+ *
+ * @since 10.3
+ */
+public class OffHeapKeySet {
+
+  /**
+   * Receives the rows once it's known whether their key was seen before.
+   */
+  public interface RowHandler {
+    void uniqueRow( Object[] row ) throws KettleException;
+
+    void duplicateRow( Object[] row ) throws KettleException;
+  }
+
+  private static final int PARTITION_BITS = 4;
+  private static final int NR_PARTITIONS = 1 << PARTITION_BITS;
+  private static final int MAX_LEVEL = Integer.SIZE / PARTITION_BITS - 1;
+
+  private static final int MAX_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+  /** Empty partitions take some memory too, smaller budgets would only make the partitions spill over and over */
+  private static final long MIN_BUDGET = 1024 * 1024;
+
+  private static final byte[] NO_VALUE = new byte[0];
+
+  private final RowMetaInterface rowMeta;
+  private final RowMetaInterface keyMeta;
+  private final int[] fieldnrs;
+  private final long budget;
+  private final String directory;
+  private final int level;
+  private final RowHandler handler;
+  private final int segmentSize;
+
+  private final Partition[] partitions = new Partition[ NR_PARTITIONS ];
+  private long memorySize;
+  private long maxMemorySize;
+  private int nrSpilled;
+
+  /**
+   * @param rowMeta
+   *          the layout of the rows
+   * @param fieldnrs
+   *          the indexes of the key fields, an empty array to use the complete row as key
+   * @param budget
+   *          the number of bytes of direct memory to use, at least 1 MB, -1 to keep all keys in memory
+   * @param directory
+   *          the directory for the temp files
+   * @param handler
+   *          receives the rows
+   */
+  public OffHeapKeySet( RowMetaInterface rowMeta, int[] fieldnrs, long budget, String directory,
+    RowHandler handler ) {
+    this( rowMeta, createKeyMeta( rowMeta, fieldnrs ), fieldnrs, budget > 0 ? Math.max( MIN_BUDGET, budget ) : -1L,
+      directory, 0, handler );
+  }
+
+  private OffHeapKeySet( RowMetaInterface rowMeta, RowMetaInterface keyMeta, int[] fieldnrs, long budget,
+    String directory, int level, RowHandler handler ) {
+    this.rowMeta = rowMeta;
+    this.keyMeta = keyMeta;
+    this.fieldnrs = fieldnrs;
+    this.budget = budget;
+    this.directory = directory;
+    this.level = level;
+    this.handler = handler;
+
+    // Small segments for small budgets, so a partition doesn't take much more than its share
+    this.segmentSize = (int) ( budget > 0 ? Math.min( MAX_SEGMENT_SIZE, budget / ( NR_PARTITIONS * 4 ) )
+      : MAX_SEGMENT_SIZE );
+    for ( int i = 0; i < NR_PARTITIONS; i++ ) {
+      partitions[ i ] = new Partition();
+    }
+  }
+
+  /**
+   * Check a row, the handler receives it now or, if its partition is spilled, in {@link #finish()}.
+   */
+  public void addRow( Object[] row ) throws KettleException {
+    byte[] key = extractKey( keyMeta, fieldnrs, row );
+    Partition partition = partitions[ getPartition( key ) ];
+    if ( partition.isSpilled() ) {
+      partition.writeRow( row );
+    } else if ( partition.add( key ) ) {
+      handler.uniqueRow( row );
+    } else {
+      handler.duplicateRow( row );
+    }
+  }
+
+  /**
+   * Check the rows of the spilled partitions, after the last row was added.
+   */
+  public void finish() throws KettleException {
+    // The rows of the partitions in memory are all checked, so their keys are no longer needed
+    //
+    for ( Partition partition : partitions ) {
+      partition.close();
+    }
+    memorySize = 0L;
+
+    for ( Partition partition : partitions ) {
+      if ( partition.isSpilled() ) {
+        partition.finish();
+        partition.delete();
+      }
+    }
+  }
+
+  /**
+   * @return the number of bytes of direct memory taken by the keys in memory
+   */
+  public long getMemorySize() {
+    return memorySize;
+  }
+
+  /**
+   * @return the highest number of bytes of direct memory taken so far, including that of spilled partitions
+   */
+  public long getMaxMemorySize() {
+    return maxMemorySize;
+  }
+
+  /**
+   * @return the number of partitions that were spilled to temp files, including those of spilled partitions
+   */
+  public int getNrSpilled() {
+    return nrSpilled;
+  }
+
+  /**
+   * Release the direct memory and remove all temp files.
+   */
+  public void close() {
+    for ( Partition partition : partitions ) {
+      partition.close();
+      partition.delete();
+    }
+    memorySize = 0L;
+  }
+
+  /**
+   * Serialize the key fields of a row, or the complete row if there are no key fields.
+   */
+  static byte[] extractKey( RowMetaInterface keyMeta, int[] fieldnrs, Object[] row ) {
+    if ( fieldnrs.length == 0 ) {
+      return RowMeta.extractData( keyMeta, row );
+    }
+    Object[] keyData = new Object[ fieldnrs.length ];
+    for ( int i = 0; i < fieldnrs.length; i++ ) {
+      keyData[ i ] = row[ fieldnrs[ i ] ];
+    }
+    return RowMeta.extractData( keyMeta, keyData );
+  }
+
+  static RowMetaInterface createKeyMeta( RowMetaInterface rowMeta, int[] fieldnrs ) {
+    if ( fieldnrs.length == 0 ) {
+      return rowMeta;
+    }
+    RowMetaInterface keyMeta = new RowMeta();
+    for ( int fieldnr : fieldnrs ) {
+      keyMeta.addValueMeta( rowMeta.getValueMeta( fieldnr ) );
+    }
+    return keyMeta;
+  }
+
+  private int getPartition( byte[] key ) {
+    int hashCode = 1;
+    for ( byte b : key ) {
+      hashCode = 31 * hashCode + b;
+    }
+    // Spread the hash code over all bits, every level partitions on the next bits
+    int mixed = hashCode * 0x9E3779B9;
+    return ( mixed >>> ( Integer.SIZE - PARTITION_BITS * ( level + 1 ) ) ) & ( NR_PARTITIONS - 1 );
+  }
+
+  /**
+   * Add a key seen before, read back from the temp file of a spilled partition.
+   */
+  private void addKey( byte[] key ) throws KettleException {
+    Partition partition = partitions[ getPartition( key ) ];
+    if ( partition.isSpilled() ) {
+      partition.writeKey( key );
+    } else {
+      partition.add( key );
+    }
+  }
+
+  private void memoryChanged( long delta ) throws KettleException {
+    memorySize += delta;
+    maxMemorySize = Math.max( maxMemorySize, memorySize );
+    if ( budget > 0 && memorySize > budget ) {
+      spill();
+    }
+  }
+
+  /**
+   * Spill the partition taking the most memory.
+   */
+  private void spill() throws KettleException {
+    Partition biggest = null;
+    for ( Partition partition : partitions ) {
+      if ( !partition.isSpilled() && ( biggest == null || partition.memorySize() > biggest.memorySize() ) ) {
+        biggest = partition;
+      }
+    }
+    if ( biggest == null || biggest.index == null || biggest.index.isEmpty() ) {
+      return;
+    }
+    long released = biggest.memorySize();
+    biggest.spill();
+    memorySize -= released;
+    nrSpilled++;
+  }
+
+  private class Partition {
+    private OffHeapHashIndex index;
+
+    private FileObject keyFile;
+    private FileObject rowFile;
+    private DataOutputStream keyOutput;
+    private DataOutputStream rowOutput;
+    private long nrKeys;
+    private long nrRows;
+
+    boolean isSpilled() {
+      return keyFile != null;
+    }
+
+    long memorySize() {
+      return index == null ? 0L : index.getMemorySize();
+    }
+
+    /**
+     * @return true if the key wasn't in this partition yet
+     */
+    boolean add( byte[] key ) throws KettleException {
+      if ( index == null ) {
+        index = new OffHeapHashIndex( 16, -1L, directory, segmentSize );
+        memoryChanged( index.getMemorySize() );
+      }
+      long before = index.getMemorySize();
+      boolean added = index.putIfAbsent( key, NO_VALUE );
+      long after = index.getMemorySize();
+      if ( after != before ) {
+        memoryChanged( after - before );
+      }
+      return added;
+    }
+
+    void spill() throws KettleException {
+      keyFile = KettleVFS.createTempFile( "uniquekeys", ".tmp", directory );
+      rowFile = KettleVFS.createTempFile( "uniquerows", ".tmp", directory );
+      try {
+        keyOutput =
+          new DataOutputStream( new BufferedOutputStream( KettleVFS.getOutputStream( keyFile, false ), 500000 ) );
+        rowOutput =
+          new DataOutputStream( new BufferedOutputStream( KettleVFS.getOutputStream( rowFile, false ), 500000 ) );
+      } catch ( IOException e ) {
+        throw new KettleException( "Unable to open temp file " + keyFile, e );
+      }
+      Iterator<byte[]> keys = index.keyIterator();
+      while ( keys.hasNext() ) {
+        writeKey( keys.next() );
+      }
+      close();
+    }
+
+    void writeKey( byte[] key ) throws KettleException {
+      try {
+        keyOutput.writeInt( key.length );
+        keyOutput.write( key );
+        nrKeys++;
+      } catch ( IOException e ) {
+        throw new KettleException( "Unable to write a key to temp file " + keyFile, e );
+      }
+    }
+
+    void writeRow( Object[] row ) throws KettleException {
+      rowMeta.writeData( rowOutput, row );
+      nrRows++;
+    }
+
+    /**
+     * Check the rows of this partition with a new key set, which partitions on the next bits of the hash codes.
+     */
+    void finish() throws KettleException {
+      closeOutputs();
+      long subBudget = level + 1 < MAX_LEVEL ? budget : -1L;
+      OffHeapKeySet keySet = new OffHeapKeySet( rowMeta, keyMeta, fieldnrs, subBudget, directory, level + 1, handler );
+      try {
+        try ( DataInputStream input =
+          new DataInputStream( new BufferedInputStream( KettleVFS.getInputStream( keyFile ), 500000 ) ) ) {
+          for ( long i = 0; i < nrKeys; i++ ) {
+            byte[] key = new byte[ input.readInt() ];
+            input.readFully( key );
+            keySet.addKey( key );
+          }
+        }
+        try ( DataInputStream input =
+          new DataInputStream( new BufferedInputStream( KettleVFS.getInputStream( rowFile ), 500000 ) ) ) {
+          for ( long i = 0; i < nrRows; i++ ) {
+            keySet.addRow( rowMeta.readData( input ) );
+          }
+        }
+        keySet.finish();
+        nrSpilled += keySet.getNrSpilled();
+        maxMemorySize = Math.max( maxMemorySize, keySet.getMaxMemorySize() );
+      } catch ( IOException e ) {
+        throw new KettleException( "Unable to read temp file " + keyFile + " or " + rowFile, e );
+      } finally {
+        keySet.close();
+      }
+    }
+
+    void close() {
+      if ( index != null ) {
+        index.close();
+        index = null;
+      }
+    }
+
+    private void closeOutputs() throws KettleException {
+      try {
+        if ( keyOutput != null ) {
+          keyOutput.close();
+          keyOutput = null;
+        }
+        if ( rowOutput != null ) {
+          rowOutput.close();
+          rowOutput = null;
+        }
+      } catch ( IOException e ) {
+        throw new KettleException( "Unable to close temp file " + keyFile + " or " + rowFile, e );
+      }
+    }
+
+    void delete() {
+      BaseStep.closeQuietly( keyOutput );
+      BaseStep.closeQuietly( rowOutput );
+      keyOutput = null;
+      rowOutput = null;
+      for ( FileObject file : new FileObject[] { keyFile, rowFile } ) {
+        try {
+          if ( file != null ) {
+            file.delete();
+          }
+        } catch ( IOException e ) {
+          // Nothing to be done, it's a temp file
+        }
+      }
+      keyFile = null;
+      rowFile = null;
+    }
+  }
+}
@@ -22,7 +22,9 @@
 
 package org.pentaho.di.trans.steps.uniquerowsbyhashset;
 
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.Metrics;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
@@ -33,6 +35,14 @@ import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * Passes on the rows with keys it didn't see before. The keys are kept in a hash set on the heap, in off-heap hash
+ * indexes which can spill to disk (see {@link OffHeapKeySet}) or in a Bloom filter, which takes a small fraction of the
+ * unique rows for duplicates.
+ */
 public class UniqueRowsByHashSet extends BaseStep implements StepInterface {
   private static Class<?> PKG = UniqueRowsByHashSetMeta.class; // for i18n purposes, needed by Translator2!!
 
@@ -47,10 +57,86 @@ public class UniqueRowsByHashSet extends BaseStep implements StepInterface {
     data = (UniqueRowsByHashSetData) stepDataInterface; // create new data object.
   }
 
+  private static final long DEFAULT_EXPECTED_ROWS = 1000000L;
+  private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.001;
+
   private boolean isUniqueRow( Object[] row ) {
+    if ( data.bloomFilter != null ) {
+      // The bits only stay the same if the key, or keys with the same bits, were put before
+      return data.bloomFilter.put( OffHeapKeySet.extractKey( data.keyMeta, data.fieldnrs, row ) );
+    }
     return data.seen.add( new RowKey( row, data ) );
   }
 
+  private void rejectRow( Object[] row ) throws KettleException {
+    incrementLinesRejected();
+    if ( data.sendDuplicateRows ) {
+      // Simply add this row to the error row
+      putError( getInputRowMeta(), row, 1, data.realErrorDescription, Utils.isEmpty( data.compareFields )
+        ? null : data.compareFields, "UNRH001" );
+    }
+  }
+
+  private void createKeyStore() throws KettleException {
+    String dedupMode = Const.NVL( meta.getDedupMode(), UniqueRowsByHashSetMeta.DEDUP_MODE_HASH_SET );
+    if ( UniqueRowsByHashSetMeta.DEDUP_MODE_OFF_HEAP.equals( dedupMode ) ) {
+      long budget = Const.toMemorySize( getVariable( Const.KETTLE_UNIQUE_ROWS_MEMORY_BUDGET ), -1L );
+      data.keySet = new OffHeapKeySet( data.inputRowMeta, data.fieldnrs, budget,
+        getSpillDirectory(), new OffHeapKeySet.RowHandler() {
+          @Override
+          public void uniqueRow( Object[] row ) throws KettleException {
+            putRow( data.outputRowMeta, row );
+          }
+
+          @Override
+          public void duplicateRow( Object[] row ) throws KettleException {
+            rejectRow( row );
+          }
+        } );
+    } else if ( UniqueRowsByHashSetMeta.DEDUP_MODE_BLOOM_FILTER.equals( dedupMode ) ) {
+      long expectedRows = Const.toLong( environmentSubstitute( meta.getExpectedRows() ), DEFAULT_EXPECTED_ROWS );
+      double falsePositiveRate =
+        Const.toDouble( environmentSubstitute( meta.getFalsePositiveRate() ), DEFAULT_FALSE_POSITIVE_RATE );
+      try {
+        data.bloomFilter = BloomFilter.create( Funnels.byteArrayFunnel(), expectedRows, falsePositiveRate );
+      } catch ( IllegalArgumentException e ) {
+        throw new KettleException( BaseMessages.getString( PKG, "UniqueRowsByHashSet.Exception.InvalidBloomFilter",
+          String.valueOf( expectedRows ), String.valueOf( falsePositiveRate ) ), e );
+      }
+      data.bloomFilterSize = getBloomFilterSize( expectedRows, falsePositiveRate );
+      data.keyMeta = OffHeapKeySet.createKeyMeta( data.inputRowMeta, data.fieldnrs );
+    }
+  }
+
+  /**
+   * @return the number of bytes of the bit array of a Bloom filter sized for the expected rows
+   */
+  static long getBloomFilterSize( long expectedRows, double falsePositiveRate ) {
+    long bits = (long) ( -expectedRows * Math.log( falsePositiveRate ) / ( Math.log( 2 ) * Math.log( 2 ) ) );
+    return ( ( bits + 63 ) / 64 ) * 8;
+  }
+
+  private void reportKeyMemory() {
+    long memorySize;
+    int nrSpilled = 0;
+    if ( data.keySet != null ) {
+      memorySize = data.keySet.getMaxMemorySize();
+      nrSpilled = data.keySet.getNrSpilled();
+    } else if ( data.bloomFilter != null ) {
+      memorySize = data.bloomFilterSize;
+    } else {
+      return;
+    }
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "UniqueRowsByHashSet.Log.KeyMemory", String.valueOf( memorySize ),
+        String.valueOf( nrSpilled ) ) );
+    }
+    if ( log.isGatheringMetrics() ) {
+      log.snap( Metrics.METRIC_UNIQUE_ROWS_MEMORY_SIZE, getStepname(), memorySize );
+      log.snap( Metrics.METRIC_UNIQUE_ROWS_SPILLED_PARTITIONS, getStepname(), nrSpilled );
+    }
+  }
+
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     meta = (UniqueRowsByHashSetMeta) smi;
     data = (UniqueRowsByHashSetData) sdi;
@@ -58,6 +144,10 @@ public class UniqueRowsByHashSet extends BaseStep implements StepInterface {
     Object[] r = getRow(); // get row!
     if ( r == null ) { // no more input to be expected...
 
+      if ( data.keySet != null ) {
+        data.keySet.finish();
+      }
+      reportKeyMemory();
       data.clearHashSet();
       setOutputDone();
       return false;
@@ -93,17 +183,16 @@ public class UniqueRowsByHashSet extends BaseStep implements StepInterface {
       if ( data.sendDuplicateRows && !Utils.isEmpty( meta.getErrorDescription() ) ) {
         data.realErrorDescription = environmentSubstitute( meta.getErrorDescription() );
       }
+      createKeyStore();
     }
 
-    if ( isUniqueRow( r ) ) {
+    if ( data.keySet != null ) {
+      // Passes the row on or rejects it, now or after the last row
+      data.keySet.addRow( r );
+    } else if ( isUniqueRow( r ) ) {
       putRow( data.outputRowMeta, r );
     } else {
-      incrementLinesRejected();
-      if ( data.sendDuplicateRows ) {
-        // Simply add this row to the error row
-        putError( getInputRowMeta(), r, 1, data.realErrorDescription, Utils.isEmpty( data.compareFields )
-          ? null : data.compareFields, "UNRH001" );
-      }
+      rejectRow( r );
     }
 
     if ( checkFeedback( getLinesRead() ) ) {
@@ -127,4 +216,15 @@ public class UniqueRowsByHashSet extends BaseStep implements StepInterface {
     return false;
   }
 
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    data = (UniqueRowsByHashSetData) sdi;
+
+    // Release the direct memory and remove the temp files when the step was stopped
+    if ( data.keySet != null ) {
+      data.keySet.close();
+      data.keySet = null;
+    }
+    super.dispose( smi, sdi );
+  }
 }
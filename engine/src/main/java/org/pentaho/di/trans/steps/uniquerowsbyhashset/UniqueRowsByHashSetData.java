@@ -28,6 +28,8 @@ import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
+import com.google.common.hash.BloomFilter;
+
 public class UniqueRowsByHashSetData extends BaseStepData implements StepDataInterface {
   public RowMetaInterface outputRowMeta;
   public RowMetaInterface inputRowMeta;
@@ -39,6 +41,14 @@ public class UniqueRowsByHashSetData extends BaseStepData implements StepDataInt
 
   public HashSet<RowKey> seen = new HashSet<RowKey>();
 
+  /** The keys in off-heap mode */
+  OffHeapKeySet keySet;
+
+  /** The keys in Bloom filter mode */
+  BloomFilter<byte[]> bloomFilter;
+  long bloomFilterSize;
+  RowMetaInterface keyMeta;
+
   public UniqueRowsByHashSetData() {
     super();
   }
@@ -47,5 +57,10 @@ public class UniqueRowsByHashSetData extends BaseStepData implements StepDataInt
     sendDuplicateRows = false;
     compareFields = null;
     realErrorDescription = null;
+    if ( keySet != null ) {
+      keySet.close();
+      keySet = null;
+    }
+    bloomFilter = null;
   }
 }
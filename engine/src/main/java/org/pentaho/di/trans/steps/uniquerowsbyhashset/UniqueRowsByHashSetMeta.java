@@ -26,6 +26,7 @@ import java.util.List;
 
 import org.pentaho.di.core.CheckResult;
 import org.pentaho.di.core.CheckResultInterface;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -49,6 +50,17 @@ import org.w3c.dom.Node;
 public class UniqueRowsByHashSetMeta extends BaseStepMeta implements StepMetaInterface {
   private static Class<?> PKG = UniqueRowsByHashSetMeta.class; // for i18n purposes, needed by Translator2!!
 
+  /** Keep the key values of every distinct row in a hash set on the heap */
+  public static final String DEDUP_MODE_HASH_SET = "HASH_SET";
+
+  /** Keep the serialized keys off-heap, spilling partitions to disk over KETTLE_UNIQUE_ROWS_MEMORY_BUDGET */
+  public static final String DEDUP_MODE_OFF_HEAP = "OFF_HEAP";
+
+  /** Keep the keys in a Bloom filter, a fraction of the unique rows is taken for duplicates */
+  public static final String DEDUP_MODE_BLOOM_FILTER = "BLOOM_FILTER";
+
+  public static final String[] DEDUP_MODES = { DEDUP_MODE_HASH_SET, DEDUP_MODE_OFF_HEAP, DEDUP_MODE_BLOOM_FILTER };
+
   /** Whether to compare strictly by hash value or to store the row values for strict equality checking */
   private boolean storeValues;
 
@@ -58,6 +70,15 @@ public class UniqueRowsByHashSetMeta extends BaseStepMeta implements StepMetaInt
   private boolean rejectDuplicateRow;
   private String errorDescription;
 
+  /** How the keys of the rows seen so far are kept, one of DEDUP_MODES */
+  private String dedupMode;
+
+  /** The number of distinct rows the Bloom filter is sized for */
+  private String expectedRows;
+
+  /** The fraction of unique rows the Bloom filter may take for duplicates, up to the expected number of rows */
+  private String falsePositiveRate;
+
   public UniqueRowsByHashSetMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -119,6 +140,30 @@ public class UniqueRowsByHashSetMeta extends BaseStepMeta implements StepMetaInt
     return errorDescription;
   }
 
+  public String getDedupMode() {
+    return dedupMode;
+  }
+
+  public void setDedupMode( String dedupMode ) {
+    this.dedupMode = dedupMode;
+  }
+
+  public String getExpectedRows() {
+    return expectedRows;
+  }
+
+  public void setExpectedRows( String expectedRows ) {
+    this.expectedRows = expectedRows;
+  }
+
+  public String getFalsePositiveRate() {
+    return falsePositiveRate;
+  }
+
+  public void setFalsePositiveRate( String falsePositiveRate ) {
+    this.falsePositiveRate = falsePositiveRate;
+  }
+
   public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore ) throws KettleXMLException {
     readData( stepnode );
   }
@@ -139,6 +184,9 @@ public class UniqueRowsByHashSetMeta extends BaseStepMeta implements StepMetaInt
       storeValues = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "store_values" ) );
       rejectDuplicateRow = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "reject_duplicate_row" ) );
       errorDescription = XMLHandler.getTagValue( stepnode, "error_description" );
+      dedupMode = Const.NVL( XMLHandler.getTagValue( stepnode, "dedup_mode" ), DEDUP_MODE_HASH_SET );
+      expectedRows = XMLHandler.getTagValue( stepnode, "expected_rows" );
+      falsePositiveRate = XMLHandler.getTagValue( stepnode, "false_positive_rate" );
 
       Node fields = XMLHandler.getSubNode( stepnode, "fields" );
       int nrfields = XMLHandler.countNodes( fields, "field" );
@@ -160,6 +208,9 @@ public class UniqueRowsByHashSetMeta extends BaseStepMeta implements StepMetaInt
   public void setDefault() {
     rejectDuplicateRow = false;
     errorDescription = null;
+    dedupMode = DEDUP_MODE_HASH_SET;
+    expectedRows = "1000000";
+    falsePositiveRate = "0.001";
     int nrfields = 0;
 
     allocate( nrfields );
@@ -179,6 +230,9 @@ public class UniqueRowsByHashSetMeta extends BaseStepMeta implements StepMetaInt
     retval.append( "      " + XMLHandler.addTagValue( "store_values", storeValues ) );
     retval.append( "      " + XMLHandler.addTagValue( "reject_duplicate_row", rejectDuplicateRow ) );
     retval.append( "      " + XMLHandler.addTagValue( "error_description", errorDescription ) );
+    retval.append( "      " + XMLHandler.addTagValue( "dedup_mode", dedupMode ) );
+    retval.append( "      " + XMLHandler.addTagValue( "expected_rows", expectedRows ) );
+    retval.append( "      " + XMLHandler.addTagValue( "false_positive_rate", falsePositiveRate ) );
     retval.append( "    <fields>" );
     for ( int i = 0; i < compareFields.length; i++ ) {
       retval.append( "      <field>" );
@@ -195,6 +249,9 @@ public class UniqueRowsByHashSetMeta extends BaseStepMeta implements StepMetaInt
       storeValues = rep.getStepAttributeBoolean( id_step, "store_values" );
       rejectDuplicateRow = rep.getStepAttributeBoolean( id_step, "reject_duplicate_row" );
       errorDescription = rep.getStepAttributeString( id_step, "error_description" );
+      dedupMode = Const.NVL( rep.getStepAttributeString( id_step, "dedup_mode" ), DEDUP_MODE_HASH_SET );
+      expectedRows = rep.getStepAttributeString( id_step, "expected_rows" );
+      falsePositiveRate = rep.getStepAttributeString( id_step, "false_positive_rate" );
       int nrfields = rep.countNrStepAttributes( id_step, "field_name" );
 
       allocate( nrfields );
@@ -213,6 +270,9 @@ public class UniqueRowsByHashSetMeta extends BaseStepMeta implements StepMetaInt
       rep.saveStepAttribute( id_transformation, id_step, "store_values", storeValues );
       rep.saveStepAttribute( id_transformation, id_step, "reject_duplicate_row", rejectDuplicateRow );
       rep.saveStepAttribute( id_transformation, id_step, "error_description", errorDescription );
+      rep.saveStepAttribute( id_transformation, id_step, "dedup_mode", dedupMode );
+      rep.saveStepAttribute( id_transformation, id_step, "expected_rows", expectedRows );
+      rep.saveStepAttribute( id_transformation, id_step, "false_positive_rate", falsePositiveRate );
       for ( int i = 0; i < compareFields.length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "field_name", compareFields[i] );
       }
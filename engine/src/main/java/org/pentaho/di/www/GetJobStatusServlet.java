@@ -25,8 +25,10 @@ package org.pentaho.di.www;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
+import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -40,6 +42,7 @@ import org.pentaho.di.core.util.EnvUtil;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.gui.Point;
+import org.pentaho.di.core.logging.BufferLine;
 import org.pentaho.di.core.logging.KettleLogStore;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
@@ -114,6 +117,12 @@ public class GetJobStatusServlet extends BaseHttpServlet implements CartePluginI
    <td>Start line number of the execution log to be included into response.</td>
    <td>integer, optional</td>
    </tr>
+   <tr>
+   <td>maxLines</td>
+   <td>Maximum number of log lines to include into response. The last log line number in the response is the one
+   to continue from with the next request.</td>
+   <td>integer, optional</td>
+   </tr>
    </tbody>
    </table>
 
@@ -216,6 +225,7 @@ public class GetJobStatusServlet extends BaseHttpServlet implements CartePluginI
     boolean useXML = "Y".equalsIgnoreCase( request.getParameter( "xml" ) );
     int numberOfTailLines = Const.toInt( request.getParameter( "tail" ), 0 );
     int startLineNr = Const.toInt( request.getParameter( "from" ), 0 );
+    int maxLines = Const.toInt( request.getParameter( StatusServletUtils.MAX_LINES_PARAMETER ), 0 );
 
     response.setStatus( HttpServletResponse.SC_OK );
 
@@ -280,7 +290,8 @@ public class GetJobStatusServlet extends BaseHttpServlet implements CartePluginI
           byte[] data = null;
           String logId = job.getLogChannelId();
           boolean finishedOrStopped = job.isFinished() || job.isStopped();
-          if ( finishedOrStopped && ( data = cache.get( logId, startLineNr ) ) != null ) {
+          boolean dontUseCache = maxLines > 0;
+          if ( finishedOrStopped && ( data = cache.get( logId, startLineNr ) ) != null && !dontUseCache ) {
             response.setContentLength( XML_HEADER.length + data.length );
             out = response.getOutputStream();
             out.write( XML_HEADER );
@@ -288,11 +299,10 @@ public class GetJobStatusServlet extends BaseHttpServlet implements CartePluginI
             out.flush();
           } else {
             int lastLineNr = KettleLogStore.getLastBufferLineNr();
-            String logText = getLogText( job, startLineNr, lastLineNr, numberOfTailLines );
-/*            if ( numberOfTailLines > 0 ) {
-              //Only asking for last numberOfTailLines log lines
-              logText = logText.substring( StringUtils.lastOrdinalIndexOf(  logText, "\n", numberOfTailLines + 1 ) + 1 );
-            }*/
+            List<BufferLine> logLines = getLogLines( job, startLineNr, lastLineNr, numberOfTailLines, maxLines );
+            if ( numberOfTailLines <= 0 ) {
+              lastLineNr = StatusServletUtils.getLastLogLineNr( logLines, maxLines, lastLineNr );
+            }
 
             response.setContentType( TEXT_XML );
             response.setCharacterEncoding( Const.XML_ENCODING );
@@ -302,28 +312,32 @@ public class GetJobStatusServlet extends BaseHttpServlet implements CartePluginI
             jobStatus.setLastLoggingLineNr( lastLineNr );
             jobStatus.setLogDate( job.getLogDate() );
 
-            // The log can be quite large at times, we are going to putIfAbsent a base64 encoding around a compressed
-            // stream
-
-
-            // of bytes to handle this one.
-            String loggingString = HttpUtil.encodeBase64ZippedString( logText );
-            jobStatus.setLoggingString( loggingString );
-
             // Also set the result object...
             //
             jobStatus.setResult( job.getResult() ); // might be null
 
-
-            String xml = jobStatus.getXML();
-            data = xml.getBytes( Charset.forName( Const.XML_ENCODING ) );
-            out = response.getOutputStream();
-            response.setContentLength( XML_HEADER.length + data.length );
-            out.write( XML_HEADER );
-            out.write( data );
-            out.flush();
-            if ( finishedOrStopped && ( jobStatus.isFinished() || jobStatus.isStopped() ) && logId != null ) {
+            if ( finishedOrStopped && ( jobStatus.isFinished() || jobStatus.isStopped() ) && logId != null && !dontUseCache ) {
+              // The log can be quite large at times, we are going to putIfAbsent a base64 encoding around a compressed
+              // stream of bytes to handle this one.
+              // The status of a finished job is kept in the cache, so build it once
+              //
+              jobStatus.setLoggingString( HttpUtil.encodeBase64ZippedString( getLogText( logLines ) ) );
+
+              String xml = jobStatus.getXML();
+              data = xml.getBytes( Charset.forName( Const.XML_ENCODING ) );
+              out = response.getOutputStream();
+              response.setContentLength( XML_HEADER.length + data.length );
+              out.write( XML_HEADER );
+              out.write( data );
+              out.flush();
               cache.put( logId, xml, startLineNr );
+            } else {
+              // Stream the status of a running job, the log is encoded while it's sent
+              //
+              out = response.getOutputStream();
+              out.write( XML_HEADER );
+              jobStatus.writeXML( out, logLines );
+              out.flush();
             }
           }
           response.flushBuffer();
@@ -426,9 +440,10 @@ public class GetJobStatusServlet extends BaseHttpServlet implements CartePluginI
 
           out.print( "<div class=\"row\" style=\"padding: 0px 0px 30px 0px;\">" );
           out.print( "<div class=\"workspaceHeading\">Job log</div>" );
-          out.println( "<textarea id=\"joblog\" cols=\"120\" rows=\"20\" wrap=\"off\" "
-              + "name=\"Job log\" readonly=\"readonly\" style=\"height: auto;\">"
-              + Encode.forHtml( getLogText( job, startLineNr, lastLineNr, numberOfTailLines ) ) + "</textarea>" );
+          out.print( "<textarea id=\"joblog\" cols=\"120\" rows=\"20\" wrap=\"off\" "
+              + "name=\"Job log\" readonly=\"readonly\" style=\"height: auto;\">" );
+          StatusServletUtils.writeHtmlLog( out, getLogLines( job, startLineNr, lastLineNr, numberOfTailLines, maxLines ) );
+          out.println( "</textarea>" );
           out.print( "</div>" );
 
           out.println( "<script type=\"text/javascript\">" );
@@ -510,11 +525,22 @@ public class GetJobStatusServlet extends BaseHttpServlet implements CartePluginI
     return CONTEXT_PATH;
   }
 
-  private String getLogText( Job job, int startLineNr, int lastLineNr, int numberOfTailLines ) throws KettleException {
+  private List<BufferLine> getLogLines( Job job, int startLineNr, int lastLineNr, int numberOfTailLines,
+                                        int maxLines ) {
+    String logChannelId = job.getLogChannel().getLogChannelId();
+    if ( numberOfTailLines > 0 ) {
+      return KettleLogStore.getAppender().getBufferTail( logChannelId, false, startLineNr, lastLineNr,
+        numberOfTailLines );
+    }
+    return KettleLogStore.getAppender().getBufferLines( logChannelId, false, startLineNr, lastLineNr, maxLines );
+  }
+
+  private String getLogText( List<BufferLine> logLines ) throws KettleException {
     try {
-      return KettleLogStore.getAppender().getBuffer(
-        job.getLogChannel().getLogChannelId(), false, startLineNr, lastLineNr, numberOfTailLines ).toString();
-    } catch ( OutOfMemoryError error ) {
+      StringWriter logText = new StringWriter();
+      KettleLogStore.getAppender().writeBuffer( logLines, logText );
+      return logText.toString();
+    } catch ( IOException | OutOfMemoryError error ) {
       throw new KettleException( BaseMessages.getString( PKG, "GetJobStatusServlet.Error.LogStringIsTooLong" ) );
     }
   }
@@ -25,8 +25,10 @@ package org.pentaho.di.www;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
+import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -40,6 +42,7 @@ import org.pentaho.di.core.util.EnvUtil;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.gui.Point;
+import org.pentaho.di.core.logging.BufferLine;
 import org.pentaho.di.core.logging.KettleLogStore;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
@@ -115,6 +118,12 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
    <td>Start line number of the execution log to be included into response.</td>
    <td>integer, optional</td>
    </tr>
+   <tr>
+   <td>maxLines</td>
+   <td>Maximum number of log lines to include into response. The last log line number in the response is the one
+   to continue from with the next request.</td>
+   <td>integer, optional</td>
+   </tr>
    </tbody>
    </table>
 
@@ -217,6 +226,7 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
     String prefix = isJettyMode() ? StatusServletUtils.STATIC_PATH : root + StatusServletUtils.RESOURCES_PATH;
     boolean useXML = "Y".equalsIgnoreCase( request.getParameter( "xml" ) );
     int startLineNr = Const.toInt( request.getParameter( "from" ), 0 );
+    int maxLines = Const.toInt( request.getParameter( StatusServletUtils.MAX_LINES_PARAMETER ), 0 );
 
     response.setStatus( HttpServletResponse.SC_OK );
 
@@ -258,7 +268,7 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
           String logId = trans.getLogChannelId();
           boolean finishedOrStopped = trans.isFinishedOrStopped();
           boolean sendResultXmlWithStatus = "Y".equalsIgnoreCase( request.getParameter( SEND_RESULT ) );
-          boolean dontUseCache = sendResultXmlWithStatus;
+          boolean dontUseCache = sendResultXmlWithStatus || maxLines > 0;
           if ( finishedOrStopped && ( data = cache.get( logId, startLineNr ) ) != null && !dontUseCache ) {
             response.setContentLength( XML_HEADER.length + data.length );
             out = response.getOutputStream();
@@ -267,8 +277,8 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
             out.flush();
           } else {
             int lastLineNr = KettleLogStore.getLastBufferLineNr();
-
-            String logText = getLogText( trans, startLineNr, lastLineNr );
+            List<BufferLine> logLines = getLogLines( trans, startLineNr, lastLineNr, maxLines );
+            lastLineNr = StatusServletUtils.getLastLogLineNr( logLines, maxLines, lastLineNr );
 
             response.setContentType( "text/xml" );
             response.setCharacterEncoding( Const.XML_ENCODING );
@@ -287,13 +297,6 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
               }
             }
 
-            // The log can be quite large at times, we are going to putIfAbsent a base64 encoding around a compressed
-            // stream
-            // of bytes to handle this one.
-            String loggingString = HttpUtil.encodeBase64ZippedString( logText );
-            transStatus.setLoggingString( loggingString );
-            //        transStatus.setLoggingUncompressedSize( logText.length() );
-
             // Also set the result object...
             //
             transStatus.setResult( trans.getResult() );
@@ -302,17 +305,30 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
             //
             transStatus.setPaused( trans.isPaused() );
 
-            // Send the result back as XML
-            //
-            String xml = transStatus.getXML( sendResultXmlWithStatus );
-            data = xml.getBytes( Charset.forName( Const.XML_ENCODING ) );
-            out = response.getOutputStream();
-            response.setContentLength( XML_HEADER.length + data.length );
-            out.write( XML_HEADER );
-            out.write( data );
-            out.flush();
             if ( finishedOrStopped && ( transStatus.isFinished() || transStatus.isStopped() ) && logId != null && !dontUseCache ) {
+              // The log can be quite large at times, we are going to putIfAbsent a base64 encoding around a compressed
+              // stream of bytes to handle this one.
+              // The status of a finished transformation is kept in the cache, so build it once
+              //
+              transStatus.setLoggingString( HttpUtil.encodeBase64ZippedString( getLogText( logLines ) ) );
+
+              // Send the result back as XML
+              //
+              String xml = transStatus.getXML( sendResultXmlWithStatus );
+              data = xml.getBytes( Charset.forName( Const.XML_ENCODING ) );
+              out = response.getOutputStream();
+              response.setContentLength( XML_HEADER.length + data.length );
+              out.write( XML_HEADER );
+              out.write( data );
+              out.flush();
               cache.put( logId, xml, startLineNr );
+            } else {
+              // Stream the status of a running transformation, the log is encoded while it's sent
+              //
+              out = response.getOutputStream();
+              out.write( XML_HEADER );
+              transStatus.writeXML( out, sendResultXmlWithStatus, logLines );
+              out.flush();
             }
           }
           response.flushBuffer();
@@ -476,10 +492,10 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
           // Put the logging below that.
           out.print( "<div class=\"row\" style=\"padding: 0px 0px 30px 0px;\">" );
           out.print( "<div class=\"workspaceHeading\" style=\"padding: 0px 0px 30px 0px;\">Transformation log</div>" );
-          out
-            .println( "<textarea id=\"translog\" cols=\"120\" rows=\"20\" "
-              + "wrap=\"off\" name=\"Transformation log\" readonly=\"readonly\" style=\"height: auto;\">"
-              + Encode.forHtml( getLogText( trans, startLineNr, lastLineNr ) ) + "</textarea>" );
+          out.print( "<textarea id=\"translog\" cols=\"120\" rows=\"20\" "
+            + "wrap=\"off\" name=\"Transformation log\" readonly=\"readonly\" style=\"height: auto;\">" );
+          StatusServletUtils.writeHtmlLog( out, getLogLines( trans, startLineNr, lastLineNr, maxLines ) );
+          out.println( "</textarea>" );
           out.print( "</div>" );
 
           out.println( "<script type=\"text/javascript\">" );
@@ -533,11 +549,17 @@ public class GetTransStatusServlet extends BaseHttpServlet implements CartePlugi
     return CONTEXT_PATH;
   }
 
-  private String getLogText( Trans trans, int startLineNr, int lastLineNr ) throws KettleException {
+  private List<BufferLine> getLogLines( Trans trans, int startLineNr, int lastLineNr, int maxLines ) {
+    return KettleLogStore.getAppender().getBufferLines(
+      trans.getLogChannel().getLogChannelId(), false, startLineNr, lastLineNr, maxLines );
+  }
+
+  private String getLogText( List<BufferLine> logLines ) throws KettleException {
     try {
-      return KettleLogStore.getAppender().getBuffer(
-        trans.getLogChannel().getLogChannelId(), false, startLineNr, lastLineNr ).toString();
-    } catch ( OutOfMemoryError error ) {
+      StringWriter logText = new StringWriter();
+      KettleLogStore.getAppender().writeBuffer( logLines, logText );
+      return logText.toString();
+    } catch ( IOException | OutOfMemoryError error ) {
       throw new KettleException( "Log string is too long", error );
     }
   }
@@ -210,6 +210,7 @@ public class PrepareExecutionTransServlet extends BaseHttpServlet implements Car
         trans.setArguments( executionConfiguration.getArgumentStrings() );
         trans.setReplayDate( executionConfiguration.getReplayDate() );
         trans.setSafeModeEnabled( executionConfiguration.isSafeModeEnabled() );
+        trans.setUsingVirtualThreads( executionConfiguration.isUsingVirtualThreads() );
         trans.setGatheringMetrics( executionConfiguration.isGatheringMetrics() );
         trans.injectVariables( executionConfiguration.getVariables() );
         trans.setPreviousResult( executionConfiguration.getPreviousResult() );
@@ -23,7 +23,10 @@
 package org.pentaho.di.www;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.util.Date;
+import java.util.List;
 
 import org.pentaho.di.cluster.HttpUtil;
 import org.pentaho.di.core.Const;
@@ -31,6 +34,7 @@ import org.pentaho.di.core.util.EnvUtil;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.Result;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.BufferLine;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.trans.Trans;
 import org.w3c.dom.Document;
@@ -65,8 +69,26 @@ public class SlaveServerJobStatus {
   }
 
   public String getXML() throws KettleException {
-    // See PDI-15781
-    boolean sendResultXmlWithStatus = EnvUtil.getSystemProperty( "KETTLE_COMPATIBILITY_SEND_RESULT_XML_WITH_FULL_STATUS", "N" ).equalsIgnoreCase( "Y" );
+    return getXMLBeforeLogging()
+      + "  " + XMLHandler.addTagValue( "logging_string", XMLHandler.buildCDATA( loggingString ) )
+      + getXMLAfterLogging();
+  }
+
+  /**
+   * Writes the same XML as {@link #getXML()}, but with the logging string encoded from the given log lines while it's
+   * written. This way the log of a long running job is never held in memory as a string.
+   *
+   * @param out      the stream to write the XML to
+   * @param logLines the log lines to send
+   */
+  public void writeXML( OutputStream out, List<BufferLine> logLines ) throws KettleException, IOException {
+    Charset charset = Charset.forName( Const.XML_ENCODING );
+    out.write( getXMLBeforeLogging().getBytes( charset ) );
+    StatusServletUtils.writeLoggingString( out, logLines );
+    out.write( getXMLAfterLogging().getBytes( charset ) );
+  }
+
+  private String getXMLBeforeLogging() {
     StringBuilder xml = new StringBuilder();
 
     xml.append( XMLHandler.openTag( XML_TAG ) ).append( Const.CR );
@@ -75,7 +97,15 @@ public class SlaveServerJobStatus {
     xml.append( "  " ).append( XMLHandler.addTagValue( "status_desc", statusDescription ) );
     xml.append( "  " ).append( XMLHandler.addTagValue( "error_desc", errorDescription ) );
     xml.append( "  " ).append( XMLHandler.addTagValue( "log_date", XMLHandler.date2string( logDate ) ) );
-    xml.append( "  " ).append( XMLHandler.addTagValue( "logging_string", XMLHandler.buildCDATA( loggingString ) ) );
+
+    return xml.toString();
+  }
+
+  private String getXMLAfterLogging() throws KettleException {
+    // See PDI-15781
+    boolean sendResultXmlWithStatus = EnvUtil.getSystemProperty( "KETTLE_COMPATIBILITY_SEND_RESULT_XML_WITH_FULL_STATUS", "N" ).equalsIgnoreCase( "Y" );
+    StringBuilder xml = new StringBuilder();
+
     xml.append( "  " ).append( XMLHandler.addTagValue( "first_log_line_nr", firstLoggingLineNr ) );
     xml.append( "  " ).append( XMLHandler.addTagValue( "last_log_line_nr", lastLoggingLineNr ) );
 
@@ -23,6 +23,8 @@
 package org.pentaho.di.www;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -33,6 +35,7 @@ import org.pentaho.di.core.util.EnvUtil;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.Result;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.BufferLine;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -87,6 +90,28 @@ public class SlaveServerTransStatus {
   }
 
   public String getXML( boolean sendResultXmlWithStatus ) throws KettleException {
+    return getXMLBeforeLogging( sendResultXmlWithStatus )
+      + "  " + XMLHandler.addTagValue( "logging_string", XMLHandler.buildCDATA( loggingString ) )
+      + getXMLAfterLogging();
+  }
+
+  /**
+   * Writes the same XML as {@link #getXML(boolean)}, but with the logging string encoded from the given log lines
+   * while it's written. This way the log of a long running transformation is never held in memory as a string.
+   *
+   * @param out                     the stream to write the XML to
+   * @param sendResultXmlWithStatus send the complete result XML
+   * @param logLines                the log lines to send
+   */
+  public void writeXML( OutputStream out, boolean sendResultXmlWithStatus, List<BufferLine> logLines )
+    throws KettleException, IOException {
+    Charset charset = Charset.forName( Const.XML_ENCODING );
+    out.write( getXMLBeforeLogging( sendResultXmlWithStatus ).getBytes( charset ) );
+    StatusServletUtils.writeLoggingString( out, logLines );
+    out.write( getXMLAfterLogging().getBytes( charset ) );
+  }
+
+  private String getXMLBeforeLogging( boolean sendResultXmlWithStatus ) throws KettleException {
     StringBuilder xml = new StringBuilder();
 
     xml.append( XMLHandler.openTag( XML_TAG ) ).append( Const.CR );
@@ -112,13 +137,13 @@ public class SlaveServerTransStatus {
       xml.append( resultXML );
     }
 
-    xml.append( "  " ).append( XMLHandler.addTagValue( "logging_string", XMLHandler.buildCDATA( loggingString ) ) );
-
-    xml.append( XMLHandler.closeTag( XML_TAG ) );
-
     return xml.toString();
   }
 
+  private String getXMLAfterLogging() {
+    return XMLHandler.closeTag( XML_TAG );
+  }
+
   public SlaveServerTransStatus( Node transStatusNode ) throws KettleException {
     this();
     id = XMLHandler.getTagValue( transStatusNode, "id" );
@@ -23,6 +23,12 @@
 package org.pentaho.di.www;
 
 import org.apache.commons.lang.StringUtils;
+import org.owasp.encoder.Encode;
+import org.pentaho.di.cluster.HttpUtil;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.logging.BufferLine;
+import org.pentaho.di.core.logging.KettleLogLayout;
+import org.pentaho.di.core.logging.KettleLogStore;
 import org.pentaho.di.core.logging.LogChannel;
 import org.pentaho.ui.xul.util.XmlParserFactoryProducer;
 import org.w3c.dom.Document;
@@ -34,6 +40,10 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
 import java.util.Optional;
 
 class StatusServletUtils {
@@ -48,9 +58,50 @@ class StatusServletUtils {
   private static final String LINK_HTML_PREFIX = "<link rel=\"stylesheet\" type=\"text/css\" href=\"";
   public static final String THEMES_PATH_COMPONENT = "themes";
 
+  /** The maximum number of log lines to return, the last line number in the status is the cursor for the next page */
+  static final String MAX_LINES_PARAMETER = "maxLines";
+
+  // The logging string element as XMLHandler.addTagValue() writes it
+  private static final String LOGGING_STRING_START = "  <logging_string>" + Encode.forXml( "<![CDATA[" );
+  private static final String LOGGING_STRING_END = Encode.forXml( "]]>" ) + "</logging_string>" + Const.CR;
+
   private StatusServletUtils() {
   }
 
+  /**
+   * @return the number of the last log line a client received with a page of log lines: the last line of a full page,
+   *         otherwise the last line in the buffer
+   */
+  static int getLastLogLineNr( List<BufferLine> logLines, int maxLines, int lastLineNr ) {
+    if ( maxLines > 0 && logLines.size() >= maxLines ) {
+      return logLines.get( logLines.size() - 1 ).getNr();
+    }
+    return lastLineNr;
+  }
+
+  /**
+   * Writes the logging string element of a status, compressing and encoding the log lines while they're written.
+   */
+  static void writeLoggingString( OutputStream out, List<BufferLine> logLines ) throws IOException {
+    Charset charset = Charset.forName( Const.XML_ENCODING );
+    out.write( LOGGING_STRING_START.getBytes( charset ) );
+    try ( Writer writer = HttpUtil.createBase64ZippedWriter( out ) ) {
+      KettleLogStore.getAppender().writeBuffer( logLines, writer );
+    }
+    out.write( LOGGING_STRING_END.getBytes( charset ) );
+  }
+
+  /**
+   * Writes log lines into an HTML page, one line at a time.
+   */
+  static void writeHtmlLog( Writer out, List<BufferLine> logLines ) throws IOException {
+    KettleLogLayout layout = KettleLogStore.getAppender().getLayout();
+    for ( BufferLine line : logLines ) {
+      Encode.forHtml( out, layout.format( line.getEvent() ) );
+      out.write( Const.CR );
+    }
+  }
+
 
   @SuppressWarnings( "javasecurity:S2083" )
   // root is ultimately derived from the servlet uri, which must be correct otherwise we couldn't have ended up here
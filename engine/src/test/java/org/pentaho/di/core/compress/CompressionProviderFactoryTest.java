@@ -37,9 +37,11 @@ import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.pentaho.di.core.compress.gzip.GZIPCompressionProvider;
+import org.pentaho.di.core.compress.gzip.ParallelGZIPCompressionProvider;
 import org.pentaho.di.core.compress.hadoopsnappy.HadoopSnappyCompressionProvider;
 import org.pentaho.di.core.compress.snappy.SnappyCompressionProvider;
 import org.pentaho.di.core.compress.zip.ZIPCompressionProvider;
+import org.pentaho.di.core.compress.zstd.ZstdCompressionProvider;
 import org.pentaho.di.core.plugins.PluginRegistry;
 import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
 
@@ -103,6 +105,16 @@ public class CompressionProviderFactoryTest {
     assertTrue( provider.getClass().isAssignableFrom( HadoopSnappyCompressionProvider.class ) );
     assertEquals( "Hadoop-snappy", provider.getName() );
     assertEquals( "Hadoop Snappy compression", provider.getDescription() );
+
+    provider = factory.createCompressionProviderInstance( "Parallel GZip" );
+    assertNotNull( provider );
+    assertTrue( provider.getClass().isAssignableFrom( ParallelGZIPCompressionProvider.class ) );
+    assertEquals( "Parallel GZip", provider.getName() );
+
+    provider = factory.createCompressionProviderInstance( "Zstd" );
+    assertNotNull( provider );
+    assertTrue( provider.getClass().isAssignableFrom( ZstdCompressionProvider.class ) );
+    assertEquals( "Zstd", provider.getName() );
   }
 
   /**
@@ -118,6 +130,8 @@ public class CompressionProviderFactoryTest {
         put( "GZip", false );
         put( "Snappy", false );
         put( "Hadoop-snappy", false );
+        put( "Parallel GZip", false );
+        put( "Zstd", false );
       }
     };
 
@@ -149,6 +163,8 @@ public class CompressionProviderFactoryTest {
         put( "GZip", false );
         put( "Snappy", false );
         put( "Hadoop-snappy", false );
+        put( "Parallel GZip", false );
+        put( "Zstd", false );
       }
     };
 
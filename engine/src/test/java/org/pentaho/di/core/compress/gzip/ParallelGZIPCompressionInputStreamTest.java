@@ -0,0 +1,173 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.gzip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+public class ParallelGZIPCompressionInputStreamTest {
+  private static final int BGZF_BLOCK_SIZE = 0xFF00;
+
+  @Test
+  public void testBGZFIsReadInParallel() throws IOException {
+    byte[] data = createData( 1000000 );
+    byte[] bgzf = bgzip( data );
+
+    InputStream in = ParallelGZIPCompressionInputStream.open( new ByteArrayInputStream( bgzf ), 4 );
+    assertTrue( in instanceof BGZFInputStream );
+    assertArrayEquals( data, readAll( in ) );
+
+    // Any gzip reader can read a BGZF file
+    assertArrayEquals( data, readAll( new GZIPInputStream( new ByteArrayInputStream( bgzf ) ) ) );
+  }
+
+  @Test
+  public void testGzipIsReadAhead() throws IOException {
+    byte[] data = createData( 3000000 );
+    ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+    // Two members, as written by concatenating gzip files
+    for ( int i = 0; i < 2; i++ ) {
+      try ( GZIPOutputStream out = new GZIPOutputStream( gzip ) {
+        @Override
+        public void close() throws IOException {
+          finish();
+        }
+      } ) {
+        out.write( data, i * data.length / 2, data.length / 2 );
+      }
+    }
+
+    InputStream in = ParallelGZIPCompressionInputStream.open( new ByteArrayInputStream( gzip.toByteArray() ), 4 );
+    assertTrue( in instanceof ReadAheadGZIPInputStream );
+    assertArrayEquals( data, readAll( in ) );
+  }
+
+  @Test
+  public void testSingleThreadReadsPlainGzip() throws IOException {
+    byte[] data = createData( 1000 );
+    InputStream in = ParallelGZIPCompressionInputStream.open( new ByteArrayInputStream( bgzip( data ) ), 1 );
+    assertTrue( in instanceof GZIPInputStream );
+    assertArrayEquals( data, readAll( in ) );
+  }
+
+  @Test
+  public void testIsBGZFLeavesTheStreamInPlace() throws IOException {
+    byte[] bgzf = bgzip( createData( 100 ) );
+    InputStream in = new BufferedInputStream( new ByteArrayInputStream( bgzf ) );
+    assertTrue( BGZFInputStream.isBGZF( in ) );
+    assertEquals( 31, in.read() );
+
+    assertFalse( BGZFInputStream.isBGZF( new BufferedInputStream( new ByteArrayInputStream( new byte[4] ) ) ) );
+  }
+
+  @Test
+  public void testCorruptBlockIsReported() throws IOException {
+    byte[] bgzf = bgzip( createData( 200000 ) );
+    // Flip a bit in the CRC of the first block
+    int firstBlockSize = ( bgzf[16] & 0xFF | ( bgzf[17] & 0xFF ) << 8 ) + 1;
+    bgzf[firstBlockSize - 8] ^= 1;
+
+    try ( InputStream in = new BGZFInputStream( new ByteArrayInputStream( bgzf ), 2 ) ) {
+      readAll( in );
+      fail( "The corrupt block should have been reported" );
+    } catch ( IOException e ) {
+      assertEquals( "BGZF block CRC mismatch", e.getMessage() );
+    }
+  }
+
+  private static byte[] createData( int size ) {
+    byte[] data = new byte[size];
+    Random random = new Random( size );
+    for ( int i = 0; i < size; i++ ) {
+      data[i] = (byte) ( 'a' + random.nextInt( 4 ) );
+    }
+    return data;
+  }
+
+  private static byte[] readAll( InputStream in ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[10000];
+    int n;
+    while ( ( n = in.read( buffer ) ) >= 0 ) {
+      out.write( buffer, 0, n );
+    }
+    in.close();
+    return out.toByteArray();
+  }
+
+  /**
+   * Write the data as BGZF blocks, followed by the empty end of file block.
+   */
+  private static byte[] bgzip( byte[] data ) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for ( int off = 0; off < data.length; off += BGZF_BLOCK_SIZE ) {
+      writeBlock( out, data, off, Math.min( BGZF_BLOCK_SIZE, data.length - off ) );
+    }
+    writeBlock( out, data, 0, 0 );
+    return out.toByteArray();
+  }
+
+  private static void writeBlock( ByteArrayOutputStream out, byte[] data, int off, int len ) {
+    Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+    deflater.setInput( data, off, len );
+    deflater.finish();
+    byte[] compressed = new byte[len + 1024];
+    int compressedSize = deflater.deflate( compressed );
+    deflater.end();
+
+    CRC32 crc = new CRC32();
+    crc.update( data, off, len );
+
+    out.write( new byte[] { 31, (byte) 139, 8, 4, 0, 0, 0, 0, 0, (byte) 255, 6, 0, 'B', 'C', 2, 0 }, 0, 16 );
+    writeShort( out, 18 + compressedSize + 8 - 1 );
+    out.write( compressed, 0, compressedSize );
+    writeInt( out, (int) crc.getValue() );
+    writeInt( out, len );
+  }
+
+  private static void writeShort( ByteArrayOutputStream out, int value ) {
+    out.write( value & 0xFF );
+    out.write( ( value >>> 8 ) & 0xFF );
+  }
+
+  private static void writeInt( ByteArrayOutputStream out, int value ) {
+    writeShort( out, value & 0xFFFF );
+    writeShort( out, value >>> 16 );
+  }
+}
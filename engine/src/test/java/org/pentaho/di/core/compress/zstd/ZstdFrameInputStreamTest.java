@@ -0,0 +1,131 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.compress.zstd;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+public class ZstdFrameInputStreamTest {
+
+  /**
+   * Returns the frames as they were split off, so splitting is tested without the zstd-jni library.
+   */
+  private static class FrameSplitter extends ZstdFrameInputStream {
+    FrameSplitter( InputStream in ) {
+      super( in, 3 );
+    }
+
+    @Override
+    protected byte[] decompress( byte[] frame ) {
+      return frame;
+    }
+  }
+
+  @Test
+  public void testFramesAreSplit() throws IOException {
+    byte[] first = frame( 0x20, new byte[] { 5 }, rawBlock( false, "hello" ), rleBlock( true, 'x', 40 ) );
+    byte[] second = frame( 0x04 | 0x01, new byte[] { 0x58, 7 }, rawBlock( true, "world" ), new byte[] { 1, 2, 3, 4 } );
+    byte[] third = frame( 0x40 | 0x20, new byte[] { 0, 1 }, rawBlock( true, "" ) );
+
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    file.write( first );
+    // A skippable frame with 3 bytes of user data
+    file.write( new byte[] { 0x5A, 0x2A, 0x4D, 0x18, 3, 0, 0, 0, 9, 9, 9 } );
+    file.write( second );
+    file.write( third );
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    expected.write( first );
+    expected.write( second );
+    expected.write( third );
+    assertArrayEquals( expected.toByteArray(), readAll( new FrameSplitter( new ByteArrayInputStream( file
+      .toByteArray() ) ) ) );
+  }
+
+  @Test
+  public void testTruncatedFrameIsReported() throws IOException {
+    byte[] frame = frame( 0x20, new byte[] { 5 }, rawBlock( true, "hello" ) );
+    byte[] truncated = new byte[frame.length - 2];
+    System.arraycopy( frame, 0, truncated, 0, truncated.length );
+    try {
+      readAll( new FrameSplitter( new ByteArrayInputStream( truncated ) ) );
+      fail( "The truncated frame should have been reported" );
+    } catch ( IOException e ) {
+      // expected
+    }
+  }
+
+  @Test( expected = IOException.class )
+  public void testOtherDataIsReported() throws IOException {
+    readAll( new FrameSplitter( new ByteArrayInputStream( "not zstd".getBytes() ) ) );
+  }
+
+  private static byte[] frame( int descriptor, byte[] header, byte[]... blocks ) throws IOException {
+    ByteArrayOutputStream frame = new ByteArrayOutputStream();
+    frame.write( new byte[] { 0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, (byte) descriptor } );
+    frame.write( header );
+    for ( byte[] block : blocks ) {
+      frame.write( block );
+    }
+    return frame.toByteArray();
+  }
+
+  private static byte[] rawBlock( boolean last, String content ) throws IOException {
+    ByteArrayOutputStream block = new ByteArrayOutputStream();
+    blockHeader( block, last, 0, content.length() );
+    block.write( content.getBytes() );
+    return block.toByteArray();
+  }
+
+  private static byte[] rleBlock( boolean last, char value, int size ) {
+    ByteArrayOutputStream block = new ByteArrayOutputStream();
+    blockHeader( block, last, 1, size );
+    block.write( value );
+    return block.toByteArray();
+  }
+
+  private static void blockHeader( ByteArrayOutputStream block, boolean last, int type, int size ) {
+    int header = size << 3 | type << 1 | ( last ? 1 : 0 );
+    block.write( header & 0xFF );
+    block.write( ( header >>> 8 ) & 0xFF );
+    block.write( ( header >>> 16 ) & 0xFF );
+  }
+
+  private static byte[] readAll( InputStream in ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[7];
+    int n;
+    while ( ( n = in.read( buffer ) ) >= 0 ) {
+      out.write( buffer, 0, n );
+    }
+    in.close();
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,121 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.steps.loadsave.validator.FieldLoadSaveValidator;
+
+public class ConsistentHashPartitionerTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Test
+  public void testSerialization() throws KettleException {
+    List<String> attributes = Arrays.asList( "FieldName", "VirtualNodes" );
+    Map<String, FieldLoadSaveValidator<?>> validators = new HashMap<String, FieldLoadSaveValidator<?>>();
+    validators.put( "VirtualNodes", new PositiveIntLoadSaveValidator() );
+    LoadSaveTester<ConsistentHashPartitioner> tester =
+      new LoadSaveTester<ConsistentHashPartitioner>( ConsistentHashPartitioner.class, attributes, attributes,
+        attributes, Collections.<String, String>emptyMap(), Collections.<String, String>emptyMap(), validators,
+        Collections.<String, FieldLoadSaveValidator<?>>emptyMap() );
+
+    tester.testSerialization();
+  }
+
+  @Test
+  public void testBalancedPartitions() throws KettleException {
+    ConsistentHashPartitioner partitioner = createPartitioner( 4 );
+    RowMetaInterface rowMeta = createRowMeta();
+
+    int[] counts = new int[4];
+    for ( int i = 0; i < 40000; i++ ) {
+      counts[partitioner.getPartition( rowMeta, new Object[] { "key" + i } )]++;
+    }
+    for ( int count : counts ) {
+      assertTrue( "Unbalanced partitions " + Arrays.toString( counts ), count > 7000 && count < 13000 );
+    }
+    assertEquals( partitioner.getPartition( rowMeta, new Object[] { "key1" } ),
+      partitioner.getPartition( rowMeta, new Object[] { "key1" } ) );
+  }
+
+  @Test
+  public void testAddingPartitionMovesFewKeys() throws KettleException {
+    ConsistentHashPartitioner fourPartitions = createPartitioner( 4 );
+    ConsistentHashPartitioner fivePartitions = createPartitioner( 5 );
+    RowMetaInterface rowMeta = createRowMeta();
+
+    int moved = 0;
+    for ( int i = 0; i < 10000; i++ ) {
+      Object[] row = new Object[] { "key" + i };
+      int before = fourPartitions.getPartition( rowMeta, row );
+      int after = fivePartitions.getPartition( rowMeta, row );
+      if ( before != after ) {
+        // A key only ever moves to the new partition
+        assertEquals( 4, after );
+        moved++;
+      }
+    }
+    // About a fifth of the keys, where a modulo would move four fifths of them
+    assertTrue( "Moved " + moved, moved > 1000 && moved < 3000 );
+  }
+
+  private static ConsistentHashPartitioner createPartitioner( int nrPartitions ) {
+    ConsistentHashPartitioner partitioner = new ConsistentHashPartitioner();
+    partitioner.setFieldName( "key" );
+    partitioner.setNrPartitions( nrPartitions );
+    return partitioner;
+  }
+
+  private static RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "key" ) );
+    return rowMeta;
+  }
+
+  static class PositiveIntLoadSaveValidator implements FieldLoadSaveValidator<Integer> {
+    @Override
+    public Integer getTestObject() {
+      return new Random().nextInt( 1000 ) + 1;
+    }
+
+    @Override
+    public boolean validateTestObject( Integer original, Object actual ) {
+      return original.equals( actual );
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaDataCombi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CooperativeTransExecutorTest {
+
+  private static final int ROW_SET_SIZE = 10;
+  private static final int NR_ROWS = 5000;
+
+  private Trans trans;
+
+  @Before
+  public void setUp() {
+    TransMeta transMeta = mock( TransMeta.class );
+    when( transMeta.getSizeRowset() ).thenReturn( ROW_SET_SIZE );
+    trans = mock( Trans.class );
+    when( trans.getTransMeta() ).thenReturn( transMeta );
+  }
+
+  @Test( timeout = 30000 )
+  public void testRowsFlowThroughSmallRowSet() throws Exception {
+    final RowSet rowSet = new BlockingRowSet( ROW_SET_SIZE );
+    rowSet.setThreadNameFromToCopy( "producer", 0, "consumer", 0 );
+    final AtomicInteger produced = new AtomicInteger();
+    final AtomicInteger consumed = new AtomicInteger();
+
+    StepMetaDataCombi producer = createCombi( "producer", Collections.emptyList(), Collections.singletonList( rowSet ) );
+    when( producer.step.processRow( any(), any() ) ).thenAnswer( invocation -> {
+      if ( produced.get() == NR_ROWS ) {
+        rowSet.setDone();
+        return false;
+      }
+      // The scheduler only gives the producer a turn when there is room in the row set
+      assertTrue( rowSet.size() < ROW_SET_SIZE );
+      rowSet.putRow( new RowMeta(), new Object[] { produced.incrementAndGet() } );
+      return true;
+    } );
+
+    StepMetaDataCombi consumer = createCombi( "consumer", Collections.singletonList( rowSet ), Collections.emptyList() );
+    when( consumer.step.processRow( any(), any() ) ).thenAnswer( invocation -> {
+      Object[] row = rowSet.getRowImmediate();
+      if ( row == null ) {
+        return !rowSet.isDone();
+      }
+      consumed.incrementAndGet();
+      return true;
+    } );
+
+    CooperativeTransExecutor executor = new CooperativeTransExecutor( trans );
+    assertTrue( executor.schedule( producer ) );
+    assertTrue( executor.schedule( consumer ) );
+    executor.start();
+
+    while ( executor.getNrActiveTasks() > 0 ) {
+      Thread.sleep( 10 );
+    }
+    assertEquals( NR_ROWS, produced.get() );
+    assertEquals( NR_ROWS, consumed.get() );
+    verify( producer.step ).markStop();
+    verify( consumer.step ).markStop();
+  }
+
+  @Test( timeout = 30000 )
+  public void testQuantumIsChargedInRows() throws Exception {
+    final AtomicLong linesWritten = new AtomicLong();
+    final AtomicInteger calls = new AtomicInteger();
+    final AtomicInteger callsInTurn = new AtomicInteger();
+    final AtomicInteger maxCallsInTurn = new AtomicInteger();
+
+    StepMetaDataCombi batching = createCombi( "batching", Collections.emptyList(), Collections.emptyList() );
+    when( batching.step.getLinesWritten() ).thenAnswer( invocation -> linesWritten.get() );
+    // The budget is calculated once per turn
+    when( batching.step.isPaused() ).thenAnswer( invocation -> {
+      callsInTurn.set( 0 );
+      return false;
+    } );
+    when( batching.step.processRow( any(), any() ) ).thenAnswer( invocation -> {
+      maxCallsInTurn.accumulateAndGet( callsInTurn.incrementAndGet(), Math::max );
+      linesWritten.addAndGet( 256 );
+      return calls.incrementAndGet() < 100;
+    } );
+
+    CooperativeTransExecutor executor = new CooperativeTransExecutor( trans );
+    assertTrue( executor.schedule( batching ) );
+    executor.start();
+
+    while ( executor.getNrActiveTasks() > 0 ) {
+      Thread.sleep( 10 );
+    }
+    assertEquals( 100, calls.get() );
+    assertEquals( 4, maxCallsInTurn.get() );
+  }
+
+  @Test( timeout = 30000 )
+  public void testFailedFinishEndsTask() throws Exception {
+    StepMetaDataCombi failing = createCombi( "failing", Collections.emptyList(), Collections.emptyList() );
+    when( failing.step.processRow( any(), any() ) ).thenReturn( false );
+    doThrow( new IllegalStateException( "dispose failed" ) ).when( failing.step ).dispose( any(), any() );
+
+    CooperativeTransExecutor executor = new CooperativeTransExecutor( trans );
+    assertTrue( executor.schedule( failing ) );
+    executor.start();
+
+    while ( executor.getNrActiveTasks() > 0 ) {
+      Thread.sleep( 10 );
+    }
+  }
+
+  @Test
+  public void testDedicatedSteps() {
+    when( trans.getVariable( Const.KETTLE_COOPERATIVE_DEDICATED_STEPS ) ).thenReturn( "Dummy, Abort" );
+    CooperativeTransExecutor executor = new CooperativeTransExecutor( trans );
+
+    StepMetaDataCombi dummy = createCombi( "dummy", Collections.emptyList(), Collections.emptyList() );
+    when( dummy.stepMeta.getStepID() ).thenReturn( "Dummy" );
+    assertFalse( executor.schedule( dummy ) );
+
+    StepMetaDataCombi select = createCombi( "select", Collections.emptyList(), Collections.emptyList() );
+    when( select.stepMeta.getStepID() ).thenReturn( "SelectValues" );
+    assertTrue( executor.schedule( select ) );
+  }
+
+  private StepMetaDataCombi createCombi( String stepname, List<RowSet> inputRowSets, List<RowSet> outputRowSets ) {
+    StepMetaDataCombi combi = new StepMetaDataCombi();
+    combi.stepname = stepname;
+    combi.copy = 0;
+    combi.stepMeta = mock( StepMeta.class );
+    combi.step = mock( StepInterface.class );
+    when( combi.step.getLogChannel() ).thenReturn( mock( LogChannelInterface.class ) );
+    when( combi.step.getInputRowSets() ).thenReturn( inputRowSets );
+    when( combi.step.getOutputRowSets() ).thenReturn( outputRowSets );
+    return combi;
+  }
+}
@@ -0,0 +1,67 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class PartitionKeyHasherTest {
+
+  @Test
+  public void testLazyConversionHashesLikeNormalStorage() throws KettleValueException {
+    ValueMetaInterface normalMeta = new ValueMetaString( "key" );
+    ValueMetaInterface binaryStringMeta = new ValueMetaString( "key" );
+    binaryStringMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    binaryStringMeta.setStorageMetadata( new ValueMetaString( "key" ) );
+
+    assertEquals( PartitionKeyHasher.hash( normalMeta, "some key" ),
+      PartitionKeyHasher.hash( binaryStringMeta, "some key".getBytes( StandardCharsets.UTF_8 ) ) );
+    assertEquals( PartitionKeyHasher.NULL_HASH, PartitionKeyHasher.hash( normalMeta, null ) );
+  }
+
+  @Test
+  public void testHashes() throws KettleValueException {
+    assertNotEquals( PartitionKeyHasher.hash( "abcd" ), PartitionKeyHasher.hash( "abcd\u0000" ) );
+    assertNotEquals( PartitionKeyHasher.hash( new byte[] { 1 } ), PartitionKeyHasher.hash( new byte[] { 1, 0 } ) );
+    assertNotEquals( PartitionKeyHasher.hash( 1L ), PartitionKeyHasher.hash( 2L ) );
+
+    ValueMetaInterface bigNumberMeta = new ValueMetaBigNumber( "amount" );
+    assertEquals( PartitionKeyHasher.hash( bigNumberMeta, new BigDecimal( "1.0" ) ),
+      PartitionKeyHasher.hash( bigNumberMeta, new BigDecimal( "1.00" ) ) );
+
+    for ( long i = 0; i < 1000; i++ ) {
+      int partition = PartitionKeyHasher.toPartition( PartitionKeyHasher.hash( i ), 7 );
+      assertTrue( partition >= 0 && partition < 7 );
+    }
+  }
+}
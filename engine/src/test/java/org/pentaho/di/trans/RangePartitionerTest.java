@@ -0,0 +1,123 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+
+public class RangePartitionerTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Test
+  public void testSerialization() throws KettleException {
+    List<String> attributes = Arrays.asList( "FieldName", "Boundaries" );
+    LoadSaveTester<RangePartitioner> tester = new LoadSaveTester<RangePartitioner>( RangePartitioner.class, attributes );
+
+    tester.testSerialization();
+  }
+
+  @Test
+  public void testSortedRanges() throws KettleException {
+    RangePartitioner partitioner = createPartitioner( 3, "10", "20" );
+    RowMetaInterface rowMeta = createRowMeta();
+
+    assertEquals( 0, partitioner.getPartition( rowMeta, new Object[] { null } ) );
+    assertEquals( 0, partitioner.getPartition( rowMeta, new Object[] { -5L } ) );
+    assertEquals( 0, partitioner.getPartition( rowMeta, new Object[] { 9L } ) );
+    assertEquals( 1, partitioner.getPartition( rowMeta, new Object[] { 10L } ) );
+    assertEquals( 1, partitioner.getPartition( rowMeta, new Object[] { 19L } ) );
+    assertEquals( 2, partitioner.getPartition( rowMeta, new Object[] { 20L } ) );
+    assertEquals( 2, partitioner.getPartition( rowMeta, new Object[] { 1000L } ) );
+  }
+
+  @Test
+  public void testInvalidBoundaries() throws KettleException {
+    RowMetaInterface rowMeta = createRowMeta();
+    try {
+      createPartitioner( 3, "20", "10" ).getPartition( rowMeta, new Object[] { 1L } );
+      fail( "Boundaries out of order" );
+    } catch ( KettleStepException e ) {
+      // expected
+    }
+    try {
+      createPartitioner( 2, "10", "20" ).getPartition( rowMeta, new Object[] { 1L } );
+      fail( "More boundaries than partitions" );
+    } catch ( KettleStepException e ) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testSampleBoundaries() throws KettleException {
+    RowMetaInterface rowMeta = createRowMeta();
+    List<Object> sample = new ArrayList<>();
+    for ( long i = 99; i >= 0; i-- ) {
+      sample.add( i );
+    }
+    sample.add( null );
+    assertArrayEquals( new String[] { "25", "50", "75" },
+      RangePartitioner.sampleBoundaries( rowMeta.getValueMeta( 0 ), sample, 4 ) );
+
+    // A dominant value doesn't give duplicate boundaries
+    sample.clear();
+    for ( long i = 0; i < 100; i++ ) {
+      sample.add( i < 90 ? 7L : i );
+    }
+    assertArrayEquals( new String[] { "7" }, RangePartitioner.sampleBoundaries( rowMeta.getValueMeta( 0 ), sample, 4 ) );
+
+    RangePartitioner partitioner = createPartitioner( 4, "25", "50", "75" );
+    int[] counts = new int[4];
+    for ( long i = 0; i < 100; i++ ) {
+      counts[partitioner.getPartition( rowMeta, new Object[] { i } )]++;
+    }
+    assertArrayEquals( new int[] { 25, 25, 25, 25 }, counts );
+  }
+
+  private static RangePartitioner createPartitioner( int nrPartitions, String... boundaries ) {
+    RangePartitioner partitioner = new RangePartitioner();
+    partitioner.setFieldName( "id" );
+    partitioner.setBoundaries( boundaries );
+    partitioner.setNrPartitions( nrPartitions );
+    return partitioner;
+  }
+
+  private static RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    return rowMeta;
+  }
+}
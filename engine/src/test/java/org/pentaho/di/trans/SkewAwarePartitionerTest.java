@@ -0,0 +1,91 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.steps.loadsave.validator.FieldLoadSaveValidator;
+
+public class SkewAwarePartitionerTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Test
+  public void testSerialization() throws KettleException {
+    List<String> attributes = Arrays.asList( "FieldName", "HotKeyPercentage", "HotKeySpread" );
+    Map<String, FieldLoadSaveValidator<?>> validators = new HashMap<String, FieldLoadSaveValidator<?>>();
+    validators.put( "HotKeyPercentage", new ConsistentHashPartitionerTest.PositiveIntLoadSaveValidator() );
+    LoadSaveTester<SkewAwarePartitioner> tester =
+      new LoadSaveTester<SkewAwarePartitioner>( SkewAwarePartitioner.class, attributes, attributes, attributes,
+        Collections.<String, String>emptyMap(), Collections.<String, String>emptyMap(), validators,
+        Collections.<String, FieldLoadSaveValidator<?>>emptyMap() );
+
+    tester.testSerialization();
+  }
+
+  @Test
+  public void testHotKeyIsSpread() throws KettleException {
+    SkewAwarePartitioner partitioner = new SkewAwarePartitioner();
+    partitioner.setFieldName( "id" );
+    partitioner.setNrPartitions( 8 );
+    partitioner.setHotKeyPercentage( 10 );
+    partitioner.setHotKeySpread( 4 );
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+
+    Set<Integer> hotPartitions = new HashSet<>();
+    Map<Long, Integer> coldPartitions = new HashMap<>();
+    for ( long i = 0; i < 20000; i++ ) {
+      // Every other row has the hot key
+      if ( i % 2 == 0 ) {
+        int partition = partitioner.getPartition( rowMeta, new Object[] { -1L } );
+        if ( i >= SkewAwarePartitioner.MIN_ROWS ) {
+          hotPartitions.add( partition );
+        }
+      } else {
+        Long key = ( i / 2 ) % 1000;
+        int partition = partitioner.getPartition( rowMeta, new Object[] { key } );
+        Integer previous = coldPartitions.put( key, partition );
+        if ( previous != null ) {
+          assertEquals( "Cold key " + key + " moved", previous.intValue(), partition );
+        }
+      }
+    }
+    assertEquals( 4, hotPartitions.size() );
+    assertEquals( 1000, coldPartitions.size() );
+  }
+}
@@ -27,6 +27,7 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.ClassRule;
@@ -189,4 +190,16 @@ public class TransExecutionConfigurationTest {
       assertEquals( "xml-copy", tec.getPassedBatchId(), tecCopy.getPassedBatchId() );
     }
   }
+
+  @Test
+  public void testVirtualThreadsXml() throws Exception {
+    TransExecutionConfiguration tec = new TransExecutionConfiguration();
+    assertFalse( tec.isUsingVirtualThreads() );
+    tec.setUsingVirtualThreads( true );
+
+    Document doc = XMLHandler.loadXMLString( tec.getXML() );
+    Node node = XMLHandler.getSubNode( doc, TransExecutionConfiguration.XML_TAG );
+    TransExecutionConfiguration tecCopy = new TransExecutionConfiguration( node );
+    assertTrue( tecCopy.isUsingVirtualThreads() );
+  }
 }
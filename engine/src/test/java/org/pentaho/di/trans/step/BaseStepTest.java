@@ -30,6 +30,7 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.RowMetaAndData;
@@ -68,6 +69,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -173,6 +175,17 @@ public class BaseStepTest {
       .getLogLevel();
   }
 
+  @Test
+  public void testGetSpillDirectory() {
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    assertEquals( System.getProperty( "java.io.tmpdir" ), baseStep.getSpillDirectory() );
+
+    baseStep.setVariable( "SPILL_BASE", "/data" );
+    baseStep.setVariable( Const.KETTLE_SPILL_DIRECTORY, "${SPILL_BASE}/spill" );
+    assertEquals( "/data/spill", baseStep.getSpillDirectory() );
+  }
+
   @Test
   public void testStepListenersConcurrentModification() throws InterruptedException {
     // Create a base step
@@ -288,6 +301,40 @@ public class BaseStepTest {
     assertNotSame( meta1, meta2 );
   }
 
+  @Test
+  public void putRowsAndGetRowsInBatches() throws Exception {
+    RowSet rowSet = new BlockingRowSet( 10 );
+
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep producer =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    producer.setStopped( false );
+    producer.setRepartitioning( StepPartitioningMeta.PARTITIONING_METHOD_NONE );
+    producer.setOutputRowSets( new ArrayList<>( Collections.singletonList( rowSet ) ) );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    Object[][] rows = new Object[][] { { 1L }, { 2L }, { 3L } };
+
+    producer.putRows( rowMeta, rows, rows.length );
+    rowSet.setDone();
+    assertEquals( 3, rowSet.size() );
+    assertEquals( 3, producer.getLinesWritten() );
+
+    BaseStep consumer =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    consumer.setStopped( false );
+    consumer.addRowSetToInputRowSets( rowSet );
+
+    Object[][] batch = new Object[10][];
+    assertEquals( 3, consumer.getRows( batch, batch.length ) );
+    for ( int i = 0; i < rows.length; i++ ) {
+      assertSame( rows[i], batch[i] );
+    }
+    assertEquals( 3, consumer.getLinesRead() );
+    assertEquals( 0, consumer.getRows( batch, batch.length ) );
+  }
+
   @Test
   public void testBuildLog() throws KettleValueException {
     BaseStep testObject = new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta,
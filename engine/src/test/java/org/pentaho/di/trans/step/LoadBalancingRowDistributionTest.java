@@ -0,0 +1,144 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+public class LoadBalancingRowDistributionTest {
+
+  private final LoadBalancingRowDistribution distribution = new LoadBalancingRowDistribution();
+
+  @Test
+  public void testRowGoesToShortestQueue() throws Exception {
+    List<RowSet> rowSets = createRowSets( 3 );
+    rowSets.get( 0 ).putRow( createRowMeta(), new Object[] { 1L } );
+    rowSets.get( 2 ).putRow( createRowMeta(), new Object[] { 2L } );
+    rowSets.get( 2 ).putRow( createRowMeta(), new Object[] { 3L } );
+    StepInterface step = createStep( rowSets );
+
+    distribution.distributeRow( createRowMeta(), new Object[] { 4L }, step );
+
+    assertEquals( 1, rowSets.get( 1 ).size() );
+    assertEquals( 4L, rowSets.get( 1 ).getRowImmediate()[0] );
+  }
+
+  @Test
+  public void testStuckCopyIsAvoided() throws Exception {
+    // Enough copies to choose between two random ones
+    List<RowSet> rowSets = createRowSets( 10 );
+    StepInterface step = createStep( rowSets );
+    RowSet stuck = rowSets.get( 3 );
+
+    for ( long i = 0; i < 10000; i++ ) {
+      distribution.distributeRow( createRowMeta(), new Object[] { i }, step );
+      // All copies but one take their rows immediately
+      for ( RowSet rowSet : rowSets ) {
+        if ( rowSet != stuck ) {
+          rowSet.getRowImmediate();
+        }
+      }
+    }
+    assertTrue( "The stuck copy got " + stuck.size() + " rows", stuck.size() <= 1 );
+  }
+
+  @Test
+  public void testServiceRates() throws Exception {
+    List<RowSet> rowSets = createRowSets( 2 );
+    RowDistributionLoad load = new RowDistributionLoad( rowSets );
+    RowMetaInterface rowMeta = createRowMeta();
+    for ( long i = 0; i < 100; i++ ) {
+      load.putRow( 0, rowMeta, new Object[] { i } );
+      load.putRow( 1, rowMeta, new Object[] { i } );
+    }
+    assertTrue( Double.isNaN( load.getServiceRate( 0 ) ) );
+
+    long now = System.nanoTime() + RowDistributionLoad.SAMPLE_INTERVAL_NANOS;
+    load.sample( now );
+    assertTrue( Double.isNaN( load.getServiceRate( 0 ) ) );
+
+    // In the next second the first copy takes 50 rows, the second one none
+    for ( int i = 0; i < 50; i++ ) {
+      rowSets.get( 0 ).getRowImmediate();
+    }
+    load.sample( now + 1000000000L );
+    assertEquals( 50.0, load.getServiceRate( 0 ), 0.001 );
+    assertEquals( 0.0, load.getServiceRate( 1 ), 0.001 );
+    assertEquals( 50L, load.getNrRowsTaken( 0 ) );
+    assertEquals( 51.0 / 50.0, load.getExpectedWait( 0 ), 0.001 );
+    assertEquals( Double.POSITIVE_INFINITY, load.getExpectedWait( 1 ), 0.0 );
+    assertEquals( 0, LoadBalancingRowDistribution.selectRowSet( load ) );
+
+    // An empty row set is never waited for
+    while ( rowSets.get( 1 ).getRowImmediate() != null ) {
+      // drain
+    }
+    assertEquals( 0.0, load.getExpectedWait( 1 ), 0.0 );
+    assertEquals( 1, LoadBalancingRowDistribution.selectRowSet( load ) );
+  }
+
+  @Test
+  public void testLoadIsTrackedPerRowSets() {
+    List<RowSet> rowSets = createRowSets( 2 );
+    RowDistributionLoad load = new RowDistributionLoad( rowSets );
+    assertTrue( load.isFor( rowSets ) );
+    assertTrue( !load.isFor( createRowSets( 2 ) ) );
+    assertTrue( !load.isFor( rowSets.subList( 0, 1 ) ) );
+    assertNotNull( load.getRowSet( 1 ) );
+  }
+
+  private static StepInterface createStep( List<RowSet> rowSets ) {
+    StepInterface step = mock( StepInterface.class );
+    RowDistributionLoad load = new RowDistributionLoad( rowSets );
+    when( step.getRowDistributionLoad() ).thenReturn( load );
+    when( step.getOutputRowSets() ).thenReturn( rowSets );
+    return step;
+  }
+
+  private static List<RowSet> createRowSets( int nrRowSets ) {
+    List<RowSet> rowSets = new ArrayList<>();
+    for ( int i = 0; i < nrRowSets; i++ ) {
+      rowSets.add( new BlockingRowSet( 100 ) );
+    }
+    return rowSets;
+  }
+
+  private static RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    return rowMeta;
+  }
+}
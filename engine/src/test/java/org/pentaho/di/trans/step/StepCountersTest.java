@@ -0,0 +1,104 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.di.trans.step;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StepCountersTest {
+
+  @Test
+  public void testAddSetAndSnapshot() {
+    StepCounters counters = new StepCounters();
+
+    assertEquals( 1, counters.addLinesRead( 1 ) );
+    assertEquals( 11, counters.addLinesRead( 10 ) );
+    assertEquals( 10, counters.addLinesRead( -1 ) );
+    counters.addLinesWritten( 2 );
+    counters.addLinesInput( 3 );
+    counters.addLinesOutput( 4 );
+    counters.addLinesUpdated( 5 );
+    counters.addLinesSkipped( 6 );
+    counters.setLinesRejected( 7 );
+
+    StepCounters.Snapshot snapshot = counters.snapshot();
+    assertEquals( 10, snapshot.getLinesRead() );
+    assertEquals( 2, snapshot.getLinesWritten() );
+    assertEquals( 3, snapshot.getLinesInput() );
+    assertEquals( 4, snapshot.getLinesOutput() );
+    assertEquals( 5, snapshot.getLinesUpdated() );
+    assertEquals( 6, snapshot.getLinesSkipped() );
+    assertEquals( 7, snapshot.getLinesRejected() );
+
+    counters.reset();
+    assertEquals( 0, counters.getLinesRead() );
+    assertEquals( 0, counters.getLinesRejected() );
+  }
+
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    final StepCounters counters = new StepCounters();
+    List<Thread> threads = new ArrayList<>();
+    for ( int t = 0; t < 4; t++ ) {
+      Thread thread = new Thread( () -> {
+        for ( int i = 0; i < 10000; i++ ) {
+          counters.addLinesWritten( 1 );
+        }
+      } );
+      threads.add( thread );
+      thread.start();
+    }
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+    assertEquals( 40000, counters.getLinesWritten() );
+  }
+
+  @Test
+  public void testSnapshotsWhileCounting() throws Exception {
+    final StepCounters counters = new StepCounters();
+    Thread step = new Thread( () -> {
+      for ( int i = 0; i < 100000; i++ ) {
+        counters.addLinesRead( 1 );
+        counters.addLinesWritten( 1 );
+      }
+    } );
+    step.start();
+    StepCounters.Snapshot previous = counters.snapshot();
+    while ( step.isAlive() ) {
+      // Approximate while the step runs, but a counter never goes back
+      StepCounters.Snapshot snapshot = counters.snapshot();
+      assertTrue( snapshot.getLinesRead() >= previous.getLinesRead() );
+      assertTrue( snapshot.getLinesWritten() >= previous.getLinesWritten() );
+      previous = snapshot;
+    }
+    step.join();
+    StepCounters.Snapshot snapshot = counters.snapshot();
+    assertEquals( 100000, snapshot.getLinesRead() );
+    assertEquals( 100000, snapshot.getLinesWritten() );
+  }
+}
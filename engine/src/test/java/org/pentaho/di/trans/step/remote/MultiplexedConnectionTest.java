@@ -0,0 +1,211 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class MultiplexedConnectionTest {
+  private static final BooleanSupplier NOT_STOPPED = () -> false;
+
+  private MultiplexedServer server;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    int port;
+    try ( ServerSocket socket = new ServerSocket( 0 ) ) {
+      port = socket.getLocalPort();
+    }
+    server = MultiplexedServer.acquire( port );
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    server.release();
+  }
+
+  @Test
+  public void testStreamsShareOneConnection() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "stream" ) );
+
+    List<Future<?>> writers = new ArrayList<>();
+    for ( int s = 0; s < 5; s++ ) {
+      final String key = "stream " + s;
+      // Register half of the writers before the readers open their streams, half after
+      if ( s % 2 == 0 ) {
+        writers.add( executor.submit( writeRows( server.openStream( key, BlockCompression.LZ4 ), rowMeta, key ) ) );
+      }
+    }
+
+    // Keep the connection open while the streams come and go
+    MultiplexedConnection shared = MultiplexedConnection.connect( "localhost", server.getPort() );
+    List<Future<Long>> readers = new ArrayList<>();
+    for ( int s = 0; s < 5; s++ ) {
+      MultiplexedConnection connection = MultiplexedConnection.connect( "localhost", server.getPort() );
+      assertSame( shared, connection );
+      RemoteStreamReader reader = connection.openStream( "stream " + s, 2 );
+      readers.add( executor.submit( readRows( reader, "stream " + s ) ) );
+    }
+    for ( int s = 1; s < 5; s += 2 ) {
+      final String key = "stream " + s;
+      writers.add( executor.submit( writeRows( server.openStream( key, BlockCompression.NONE ), rowMeta, key ) ) );
+    }
+
+    for ( Future<?> writer : writers ) {
+      writer.get();
+    }
+    for ( Future<Long> reader : readers ) {
+      assertEquals( 49995000L, (long) reader.get() );
+    }
+    assertEquals( 1, server.getNrConnections() );
+    shared.release();
+    assertTrue( shared.isClosed() );
+  }
+
+  @Test
+  public void testCreditsLimitTheBatchesInFlight() throws Exception {
+    RemoteStreamWriter writer = server.openStream( "limited", BlockCompression.NONE );
+    MultiplexedConnection connection = MultiplexedConnection.connect( "localhost", server.getPort() );
+    RemoteStreamReader reader = connection.openStream( "limited", 1 );
+    assertTrue( writer.awaitOpen( NOT_STOPPED ) );
+
+    assertTrue( writer.hasCredit() );
+    assertTrue( writer.sendBatch( new byte[] { 1 }, NOT_STOPPED ) );
+    assertFalse( writer.hasCredit() );
+    // Without a credit the writer only waits until it's stopped
+    assertFalse( writer.sendBatch( new byte[] { 2 }, () -> true ) );
+
+    reader.readBatch( NOT_STOPPED );
+    long start = System.currentTimeMillis();
+    while ( !writer.hasCredit() && System.currentTimeMillis() - start < 10000L ) {
+      Thread.sleep( 10L );
+    }
+    assertTrue( writer.hasCredit() );
+
+    writer.end();
+    assertNull( reader.readBatch( NOT_STOPPED ) );
+    writer.close();
+    reader.close();
+    assertTrue( connection.isClosed() );
+  }
+
+  @Test
+  public void testCancelledStream() throws Exception {
+    RemoteStreamWriter writer = server.openStream( "cancelled", BlockCompression.NONE );
+    MultiplexedConnection connection = MultiplexedConnection.connect( "localhost", server.getPort() );
+    RemoteStreamReader reader = connection.openStream( "cancelled", 1 );
+    assertTrue( writer.awaitOpen( NOT_STOPPED ) );
+    assertTrue( writer.sendBatch( new byte[] { 1 }, NOT_STOPPED ) );
+    reader.close();
+    try {
+      writer.sendBatch( new byte[] { 2 }, NOT_STOPPED );
+      writer.sendBatch( new byte[] { 3 }, NOT_STOPPED );
+      fail( "The cancelled stream should fail" );
+    } catch ( KettleException e ) {
+      // expected
+    } finally {
+      writer.close();
+    }
+  }
+
+  @Test
+  public void testFailureIsReported() throws Exception {
+    RemoteStreamWriter writer = server.openStream( "failing", BlockCompression.NONE );
+    MultiplexedConnection connection = MultiplexedConnection.connect( "localhost", server.getPort() );
+    RemoteStreamReader reader = connection.openStream( "failing", 1 );
+    assertTrue( writer.awaitOpen( NOT_STOPPED ) );
+    writer.fail( "Disk full" );
+    try {
+      reader.readMeta( NOT_STOPPED );
+      fail( "The failure should be reported to the reader" );
+    } catch ( KettleException e ) {
+      assertTrue( e.getMessage().contains( "Disk full" ) );
+    } finally {
+      writer.close();
+      reader.close();
+    }
+  }
+
+  private static Callable<Void> writeRows( RemoteStreamWriter writer, RowMetaInterface rowMeta, String key ) {
+    return () -> {
+      assertTrue( writer.awaitOpen( NOT_STOPPED ) );
+      writer.sendMeta( rowMeta );
+      RowBatchEncoder encoder = new RowBatchEncoder( rowMeta, 100, RowBatchEncoder.DEFAULT_MAX_BYTES );
+      for ( long i = 0; i < 10000; i++ ) {
+        encoder.addRow( new Object[] { i, key } );
+        if ( encoder.isFull() ) {
+          assertTrue( writer.sendBatch( encoder.finishBatch(), NOT_STOPPED ) );
+        }
+      }
+      writer.end();
+      writer.close();
+      return null;
+    };
+  }
+
+  private static Callable<Long> readRows( RemoteStreamReader reader, String key ) {
+    return () -> {
+      try {
+        RowMetaInterface rowMeta = reader.readMeta( NOT_STOPPED );
+        RowBatchDecoder decoder = new RowBatchDecoder( rowMeta );
+        long sum = 0L;
+        for ( byte[] batch = reader.readBatch( NOT_STOPPED ); batch != null; batch = reader.readBatch( NOT_STOPPED ) ) {
+          for ( Object[] row : decoder.decode( batch ) ) {
+            assertEquals( key, row[1] );
+            sum += (Long) row[0];
+          }
+        }
+        return sum;
+      } finally {
+        reader.close();
+      }
+    };
+  }
+}
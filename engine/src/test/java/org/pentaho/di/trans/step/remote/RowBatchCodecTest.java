@@ -0,0 +1,191 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step.remote;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+
+public class RowBatchCodecTest {
+
+  @Test
+  public void testAllTypesRoundTrip() throws Exception {
+    RowMetaInterface rowMeta = createRowMeta();
+    RowBatchEncoder encoder = new RowBatchEncoder( rowMeta );
+    RowBatchDecoder decoder = new RowBatchDecoder( rowMeta );
+
+    Object[][] rows = new Object[100][];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[i] = createRow( i );
+      encoder.addRow( rows[i] );
+    }
+    assertEquals( 100, encoder.getNrRows() );
+
+    Object[][] decoded = decoder.decode( encoder.finishBatch() );
+    assertEquals( 0, encoder.getNrRows() );
+    assertRowsEqual( rows, decoded );
+  }
+
+  @Test
+  public void testDictionaryAcrossBatches() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "country" ) );
+    RowBatchEncoder encoder = new RowBatchEncoder( rowMeta );
+    RowBatchDecoder decoder = new RowBatchDecoder( rowMeta );
+
+    String[] countries = { "Belgium", "Portugal", "Japan" };
+    for ( int i = 0; i < 300; i++ ) {
+      encoder.addRow( new Object[] { countries[i % 3] } );
+    }
+    byte[] first = encoder.finishBatch();
+    for ( int i = 0; i < 300; i++ ) {
+      encoder.addRow( new Object[] { countries[i % 3] } );
+    }
+    byte[] second = encoder.finishBatch();
+
+    // Only the first batch carries the strings themselves
+    assertTrue( second.length < first.length );
+    assertTrue( second.length < 400 );
+
+    Object[][] firstRows = decoder.decode( first );
+    Object[][] secondRows = decoder.decode( second );
+    for ( int i = 0; i < 300; i++ ) {
+      assertEquals( countries[i % 3], firstRows[i][0] );
+      assertEquals( countries[i % 3], secondRows[i][0] );
+    }
+  }
+
+  @Test
+  public void testBinaryStringStorage() throws Exception {
+    ValueMetaInterface storageMeta = new ValueMetaString( "lazy" );
+    ValueMetaInterface valueMeta = new ValueMetaString( "lazy" );
+    valueMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    valueMeta.setStorageMetadata( storageMeta );
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( valueMeta );
+
+    RowBatchEncoder encoder = new RowBatchEncoder( rowMeta );
+    encoder.addRow( new Object[] { "abc".getBytes( StandardCharsets.UTF_8 ) } );
+    encoder.addRow( new Object[] { null } );
+    Object[][] rows = new RowBatchDecoder( rowMeta ).decode( encoder.finishBatch() );
+
+    assertArrayEquals( "abc".getBytes( StandardCharsets.UTF_8 ), (byte[]) rows[0][0] );
+    assertNull( rows[1][0] );
+  }
+
+  @Test
+  public void testFullBatch() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    RowBatchEncoder encoder = new RowBatchEncoder( rowMeta, 10, 1024 );
+    for ( long i = 0; i < 9; i++ ) {
+      encoder.addRow( new Object[] { i } );
+    }
+    assertFalse( encoder.isFull() );
+    encoder.addRow( new Object[] { 9L } );
+    assertTrue( encoder.isFull() );
+  }
+
+  @Test
+  public void testBlockCompression() throws Exception {
+    RowMetaInterface rowMeta = createRowMeta();
+    RowBatchEncoder encoder = new RowBatchEncoder( rowMeta );
+    for ( int i = 0; i < 1000; i++ ) {
+      encoder.addRow( createRow( i ) );
+    }
+    byte[] batch = encoder.finishBatch();
+
+    byte[] compressed = BlockCompression.compress( BlockCompression.LZ4, batch );
+    assertTrue( compressed.length < batch.length );
+    assertArrayEquals( batch, BlockCompression.decompress( compressed ) );
+
+    byte[] stored = BlockCompression.compress( BlockCompression.NONE, batch );
+    assertArrayEquals( batch, BlockCompression.decompress( stored ) );
+
+    byte[] small = new byte[] { 1, 2, 3 };
+    assertArrayEquals( small, BlockCompression.decompress( BlockCompression.compress( BlockCompression.LZ4, small ) ) );
+  }
+
+  private static RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "timestamp" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "boolean" ) );
+    rowMeta.addValueMeta( new ValueMetaBinary( "binary" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+    return rowMeta;
+  }
+
+  private static Object[] createRow( int i ) {
+    if ( i % 7 == 3 ) {
+      return new Object[8];
+    }
+    Timestamp timestamp = new Timestamp( 1700000000000L + i * 1000L );
+    timestamp.setNanos( 123456789 + i );
+    return new Object[] {
+      i % 5 == 0 ? "" : "value " + ( i % 10 ),
+      i % 2 == 0 ? (long) i : -1000000000000L + i,
+      i / 3.0,
+      new Date( 1700000000000L - i * 86400000L ),
+      timestamp,
+      i % 2 == 0,
+      new byte[] { (byte) i, 0, (byte) -i },
+      new BigDecimal( "12345678901234567890.123" ).multiply( BigDecimal.valueOf( i - 50 ) ) };
+  }
+
+  private static void assertRowsEqual( Object[][] expected, Object[][] actual ) {
+    assertEquals( expected.length, actual.length );
+    for ( int r = 0; r < expected.length; r++ ) {
+      for ( int c = 0; c < expected[r].length; c++ ) {
+        if ( expected[r][c] instanceof byte[] ) {
+          assertArrayEquals( (byte[]) expected[r][c], (byte[]) actual[r][c] );
+        } else {
+          assertEquals( "row " + r + " column " + c, expected[r][c], actual[r][c] );
+        }
+      }
+    }
+  }
+}
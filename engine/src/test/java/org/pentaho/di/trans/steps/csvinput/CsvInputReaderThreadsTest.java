@@ -0,0 +1,132 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.TransTestingUtil;
+import org.pentaho.di.trans.step.RowAdapter;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.steps.StepMockUtil;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The rows read by reader threads from small splits of a file should be the rows read on the step thread, in the same
+ * order.
+ */
+public class CsvInputReaderThreadsTest extends CsvInputUnitTestBase {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private StepMockHelper<CsvInputMeta, StepDataInterface> stepMockHelper;
+  private File file;
+
+  @Before
+  public void setUp() throws Exception {
+    stepMockHelper = StepMockUtil.getStepMockHelper( CsvInputMeta.class, "CsvInputReaderThreadsTest" );
+
+    StringBuilder content = new StringBuilder( "a,b\r\n" );
+    for ( int i = 0; i < 500; i++ ) {
+      content.append( "key" ).append( i ).append( ',' );
+      if ( i % 7 == 0 ) {
+        content.append( "\"enclosed, value " ).append( i ).append( '"' );
+      } else {
+        content.append( "value" ).append( i );
+      }
+      content.append( i % 3 == 0 ? "\n" : "\r\n" );
+    }
+    file = createTestFile( "utf-8", content.toString() );
+  }
+
+  @After
+  public void cleanUp() {
+    stepMockHelper.cleanUp();
+    file.delete();
+  }
+
+  @Test
+  public void testReaderThreadsReadRowsInOrder() throws Exception {
+    CsvInputMeta meta = createMeta( file, createInputFileFields( "a", "b" ) );
+    meta.setHeaderPresent( true );
+    meta.setRowNumField( "rownum" );
+    List<Object[]> expected = read( meta, null, 0, 1 );
+    assertEquals( 500, expected.size() );
+
+    meta.setReaderThreads( "3" );
+    TransTestingUtil.assertResult( expected, read( meta, 101L, 0, 1 ) );
+    TransTestingUtil.assertResult( expected, read( meta, 4096L, 0, 1 ) );
+  }
+
+  @Test
+  public void testReaderThreadsInParallelCopies() throws Exception {
+    CsvInputMeta meta = createMeta( file, createInputFileFields( "a", "b" ) );
+    meta.setHeaderPresent( true );
+    List<Object[]> expected = read( meta, null, 0, 1 );
+
+    meta.setRunningInParallel( true );
+    meta.setReaderThreads( "2" );
+    List<Object[]> actual = new ArrayList<>();
+    for ( int copy = 0; copy < 3; copy++ ) {
+      actual.addAll( read( meta, 64L, copy, 3 ) );
+    }
+    TransTestingUtil.assertResult( expected, actual );
+  }
+
+  private List<Object[]> read( CsvInputMeta meta, Long splitSize, int stepNumber, int totalNumberOfSteps )
+    throws Exception {
+    CsvInput csvInput = new CsvInput( stepMockHelper.stepMeta, stepMockHelper.stepDataInterface, 0,
+      stepMockHelper.transMeta, stepMockHelper.trans );
+    CsvInputData data = new CsvInputData();
+    final List<Object[]> rows = new ArrayList<>();
+    csvInput.addRowListener( new RowAdapter() {
+      @Override
+      public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+        rows.add( row );
+      }
+    } );
+    try {
+      csvInput.init( meta, data );
+      if ( splitSize != null ) {
+        data.splitSize = splitSize;
+      }
+      data.stepNumber = stepNumber;
+      data.totalNumberOfSteps = totalNumberOfSteps;
+      while ( csvInput.processRow( meta, data ) ) {
+        // read all rows
+      }
+    } finally {
+      csvInput.dispose( meta, data );
+    }
+    return rows;
+  }
+}
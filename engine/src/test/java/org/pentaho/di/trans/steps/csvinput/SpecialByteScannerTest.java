@@ -0,0 +1,52 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SpecialByteScannerTest {
+  private final SpecialByteScanner scanner = new SpecialByteScanner( (byte) ',', (byte) '"', (byte) '\r', (byte) '\n' );
+
+  @Test
+  public void testFindsEachSpecialByteAtEachPosition() {
+    for ( char special : new char[] { ',', '"', '\r', '\n' } ) {
+      for ( int position = 0; position < 40; position++ ) {
+        byte[] bytes = new byte[40];
+        for ( int i = 0; i < bytes.length; i++ ) {
+          bytes[i] = (byte) ( i == position ? special : 'a' + i % 26 );
+        }
+        assertEquals( position, scanner.indexOf( bytes, 0, bytes.length ) );
+        assertEquals( position < 3 ? 40 : position, scanner.indexOf( bytes, 3, bytes.length ) );
+        assertEquals( position < 17 ? position : 17, scanner.indexOf( bytes, 0, 17 ) );
+      }
+    }
+  }
+
+  @Test
+  public void testIgnoresBytesCloseToSpecialBytes() {
+    byte[] bytes = new byte[] { '+', '-', '!', '#', '\t', '\f', 0x0B, (byte) 0xAC, (byte) 0x8D, 0, (byte) 0xFF, 'x' };
+    assertEquals( bytes.length, scanner.indexOf( bytes, 0, bytes.length ) );
+  }
+}
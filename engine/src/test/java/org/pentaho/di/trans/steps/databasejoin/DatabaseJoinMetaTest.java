@@ -55,7 +55,7 @@ public class DatabaseJoinMetaTest implements InitializerInterface<StepMetaInterf
     KettleEnvironment.init();
     PluginRegistry.init( false );
     List<String> attributes =
-        Arrays.asList( "sql", "rowLimit", "outerJoin", "variableReplace", "databaseMeta", "parameterField", "parameterType" );
+        Arrays.asList( "sql", "rowLimit", "batchSize", "outerJoin", "variableReplace", "databaseMeta", "parameterField", "parameterType" );
 
     Map<String, String> getterMap = new HashMap<String, String>();
     Map<String, String> setterMap = new HashMap<String, String>();
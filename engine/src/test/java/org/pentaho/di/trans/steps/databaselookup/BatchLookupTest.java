@@ -0,0 +1,207 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.database.H2DatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class BatchLookupTest {
+  private static final String URL = "jdbc:h2:mem:BATCH_LOOKUP";
+
+  private static Connection connection;
+
+  private DatabaseLookupMeta meta;
+  private DatabaseLookupData data;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    KettleEnvironment.init( false );
+    connection = DriverManager.getConnection( URL );
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "CREATE TABLE LOOKUP_TEST (ID INTEGER, CODE VARCHAR(10), NAME VARCHAR(20))" );
+      statement.execute( "INSERT INTO LOOKUP_TEST VALUES (1, 'A', 'one'), (2, 'A', 'two'), (3, 'A', 'three'), "
+        + "(3, 'B', 'three again'), (4, 'A', 'four')" );
+    }
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws SQLException {
+    connection.close();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    DatabaseMeta databaseMeta = new DatabaseMeta();
+    databaseMeta.setDatabaseInterface( new H2DatabaseMeta() );
+    databaseMeta.setName( "batch" );
+    databaseMeta.setDBName( "mem:BATCH_LOOKUP" );
+    databaseMeta.setDatabaseType( "H2" );
+
+    meta = new DatabaseLookupMeta();
+    meta.setDefault();
+    meta.setDatabaseMeta( databaseMeta );
+    meta.setReturnValueField( new String[] { "NAME" } );
+    meta.setReturnValueNewName( new String[] { "NAME" } );
+
+    data = new DatabaseLookupData();
+    data.db = new Database( mock( LoggingObjectInterface.class ), databaseMeta );
+    data.db.connect();
+  }
+
+  @After
+  public void tearDown() {
+    data.db.disconnect();
+  }
+
+  @Test
+  public void testOnlyEqualsConditionsAreBatchable() {
+    meta.setKeyCondition( new String[] { "=", "=" } );
+    assertTrue( BatchLookup.isBatchable( meta ) );
+    meta.setKeyCondition( new String[] { "=", "BETWEEN" } );
+    assertFalse( BatchLookup.isBatchable( meta ) );
+  }
+
+  @Test
+  public void testSqlOfSingleKey() {
+    useKeys( "ID" );
+    BatchLookup batchLookup = new BatchLookup( meta, data, 3 );
+    assertEquals( "SELECT NAME, ID FROM LOOKUP_TEST WHERE ID IN ( ?, ?, ? )",
+      batchLookup.getSql( null, "LOOKUP_TEST" ) );
+  }
+
+  @Test
+  public void testSqlOfSeveralKeys() {
+    useKeys( "ID", "CODE" );
+    BatchLookup batchLookup = new BatchLookup( meta, data, 2 );
+    assertEquals( "SELECT NAME, ID, CODE FROM LOOKUP_TEST WHERE ( ID = ? AND CODE = ? ) OR ( ID = ? AND CODE = ? )",
+      batchLookup.getSql( null, "LOOKUP_TEST" ) );
+  }
+
+  @Test
+  public void testRowsKeepTheirOrder() throws Exception {
+    useKeys( "ID" );
+    meta.setOrderByClause( "CODE" );
+    BatchLookup batchLookup = new BatchLookup( meta, data, 3 );
+    batchLookup.prepare( null, "LOOKUP_TEST" );
+
+    assertFalse( batchLookup.add( new Object[] { "a" }, new Object[] { 2L }, null ) );
+    assertFalse( batchLookup.add( new Object[] { "b" }, new Object[] { 9L }, null ) );
+    assertFalse( batchLookup.add( new Object[] { "c" }, new Object[] { 2L }, null ) );
+    assertFalse( batchLookup.add( new Object[] { "d" }, new Object[] { null }, null ) );
+    assertFalse( batchLookup.add( new Object[] { "e" }, new Object[] { 1L }, new Object[] { "cached" } ) );
+    assertTrue( batchLookup.add( new Object[] { "f" }, new Object[] { 3L }, null ) );
+
+    List<BatchLookup.WindowRow> rows = batchLookup.resolve();
+    assertEquals( 6, rows.size() );
+    assertArrayEquals( new Object[] { "two" }, rows.get( 0 ).getValues() );
+    assertNull( rows.get( 1 ).getValues() );
+    assertArrayEquals( new Object[] { "two" }, rows.get( 2 ).getValues() );
+    assertNull( rows.get( 3 ).getValues() );
+    assertArrayEquals( new Object[] { "cached" }, rows.get( 4 ).getValues() );
+    assertTrue( rows.get( 4 ).cacheHit );
+    // The first row of a key wins
+    assertArrayEquals( new Object[] { "three" }, rows.get( 5 ).getValues() );
+    assertEquals( "f", rows.get( 5 ).row[0] );
+
+    batchLookup.clear();
+    assertTrue( batchLookup.isEmpty() );
+    batchLookup.close();
+  }
+
+  @Test
+  public void testSeveralKeys() throws Exception {
+    useKeys( "ID", "CODE" );
+    BatchLookup batchLookup = new BatchLookup( meta, data, 4 );
+    batchLookup.prepare( null, "LOOKUP_TEST" );
+
+    batchLookup.add( new Object[] { "a" }, new Object[] { 3L, "B" }, null );
+    batchLookup.add( new Object[] { "b" }, new Object[] { 3L, "C" }, null );
+    batchLookup.add( new Object[] { "c" }, new Object[] { 4L, "A" }, null );
+
+    List<BatchLookup.WindowRow> rows = batchLookup.resolve();
+    assertArrayEquals( new Object[] { "three again" }, rows.get( 0 ).getValues() );
+    assertNull( rows.get( 1 ).getValues() );
+    assertArrayEquals( new Object[] { "four" }, rows.get( 2 ).getValues() );
+    batchLookup.close();
+  }
+
+  @Test
+  public void testMultipleResultsFailPerRow() throws Exception {
+    useKeys( "ID" );
+    meta.setFailingOnMultipleResults( true );
+    BatchLookup batchLookup = new BatchLookup( meta, data, 2 );
+    batchLookup.prepare( null, "LOOKUP_TEST" );
+
+    batchLookup.add( new Object[] { "a" }, new Object[] { 3L }, null );
+    batchLookup.add( new Object[] { "b" }, new Object[] { 1L }, null );
+
+    List<BatchLookup.WindowRow> rows = batchLookup.resolve();
+    try {
+      rows.get( 0 ).getValues();
+      fail( "Key 3 has two rows" );
+    } catch ( KettleDatabaseException e ) {
+      // expected
+    }
+    assertArrayEquals( new Object[] { "one" }, rows.get( 1 ).getValues() );
+    batchLookup.close();
+  }
+
+  private void useKeys( String... keys ) {
+    meta.setTableKeyField( keys );
+    String[] conditions = new String[ keys.length ];
+    RowMeta lookupMeta = new RowMeta();
+    for ( int i = 0; i < keys.length; i++ ) {
+      conditions[ i ] = "=";
+      lookupMeta.addValueMeta( "ID".equals( keys[ i ] ) ? new ValueMetaInteger( keys[ i ] )
+        : new ValueMetaString( keys[ i ] ) );
+    }
+    meta.setKeyCondition( conditions );
+    data.lookupMeta = lookupMeta;
+  }
+}
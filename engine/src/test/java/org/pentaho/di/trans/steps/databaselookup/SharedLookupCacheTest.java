@@ -0,0 +1,118 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SharedLookupCacheTest {
+  private RowMeta lookupMeta;
+
+  @Before
+  public void setUp() {
+    lookupMeta = new RowMeta();
+    lookupMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+  }
+
+  @Test
+  public void testStoredRowsAreFound() {
+    SharedLookupCache cache = new SharedLookupCache( "test", SharedLookupCache.DEFAULT_MAX_BYTES, 0 );
+    assertNull( cache.getRowFromCache( lookupMeta, new Object[] { 1L } ) );
+    cache.storeRowInCache( null, lookupMeta, new Object[] { 1L }, new Object[] { "one" } );
+    assertArrayEquals( new Object[] { "one" }, cache.getRowFromCache( lookupMeta, new Object[] { 1L } ) );
+
+    // The first value stored for a key is kept
+    cache.storeRowInCache( null, lookupMeta, new Object[] { 1L }, new Object[] { "uno" } );
+    assertArrayEquals( new Object[] { "one" }, cache.getRowFromCache( lookupMeta, new Object[] { 1L } ) );
+
+    assertEquals( 2L, cache.getHits() );
+    assertEquals( 1L, cache.getMisses() );
+    assertEquals( 1, cache.getSize() );
+  }
+
+  @Test
+  public void testMemoryIsBounded() {
+    SharedLookupCache cache = new SharedLookupCache( "test", 100000L, 0 );
+    for ( long i = 0; i < 10000; i++ ) {
+      lookup( cache, i );
+    }
+    assertTrue( cache.getWeightedSize() <= 100000L );
+    assertEquals( 10000L - cache.getSize(), cache.getEvictions() );
+  }
+
+  @Test
+  public void testNumberOfEntriesIsBounded() {
+    SharedLookupCache cache = new SharedLookupCache( "test", SharedLookupCache.DEFAULT_MAX_BYTES, 10 );
+    for ( long i = 0; i < 100; i++ ) {
+      lookup( cache, i );
+    }
+    assertEquals( 10, cache.getSize() );
+    assertEquals( 90L, cache.getEvictions() );
+  }
+
+  @Test
+  public void testFrequentKeysSurviveAScan() {
+    SharedLookupCache cache = new SharedLookupCache( "test", 100000L, 0 );
+    for ( long i = 1000; i < 21000; i++ ) {
+      lookup( cache, i );
+      lookup( cache, i % 50 );
+    }
+    for ( long i = 0; i < 50; i++ ) {
+      assertArrayEquals( new Object[] { "value " + i }, cache.getRowFromCache( lookupMeta, new Object[] { i } ) );
+    }
+  }
+
+  @Test
+  public void testCachesAreSharedByName() {
+    SharedLookupCache cache = SharedLookupCache.acquire( "shared", 1000L, 0 );
+    assertSame( cache, SharedLookupCache.acquire( "shared", 1000L, 0 ) );
+    SharedLookupCache other = SharedLookupCache.acquire( "other", 1000L, 0 );
+    assertNotSame( cache, other );
+
+    assertFalse( SharedLookupCache.release( cache ) );
+    assertTrue( SharedLookupCache.release( cache ) );
+    assertTrue( SharedLookupCache.release( other ) );
+
+    // The last release removed the cache
+    SharedLookupCache next = SharedLookupCache.acquire( "shared", 1000L, 0 );
+    assertNotSame( cache, next );
+    SharedLookupCache.release( next );
+  }
+
+  private void lookup( SharedLookupCache cache, long key ) {
+    Object[] lookupRow = new Object[] { key };
+    if ( cache.getRowFromCache( lookupMeta, lookupRow ) == null ) {
+      cache.storeRowInCache( null, lookupMeta, lookupRow, new Object[] { "value " + key } );
+    }
+  }
+}
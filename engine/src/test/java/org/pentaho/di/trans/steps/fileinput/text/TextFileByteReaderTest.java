@@ -0,0 +1,151 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.fileinput.text;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleFileException;
+
+public class TextFileByteReaderTest {
+
+  @Test
+  public void testFields() throws Exception {
+    assertLines( "a;b;c\n1;;3\n;\n", TextFileInputMeta.FILE_FORMAT_UNIX, "a|b|c", "1||3", "|" );
+  }
+
+  @Test
+  public void testLastLineWithoutLineBreak() throws Exception {
+    assertLines( "a;b\nc;d", TextFileInputMeta.FILE_FORMAT_MIXED, "a|b", "c|d" );
+  }
+
+  @Test
+  public void testEnclosures() throws Exception {
+    assertLines( "\"a;b\";\"c\"\"d\";\"\"\n\"x\"y;z\n", TextFileInputMeta.FILE_FORMAT_MIXED, "a;b|c\"d|", "x|z" );
+  }
+
+  @Test
+  public void testEscapes() throws Exception {
+    TextFileByteReader reader = reader( "a\\;b;\"c\\\"d\";e\\\\f\n", TextFileInputMeta.FILE_FORMAT_UNIX, "\\" );
+    assertTrue( reader.readLine() );
+    assertEquals( "a;b|c\"d|e\\f", fields( reader ) );
+  }
+
+  @Test
+  public void testLineBreakInEnclosure() throws Exception {
+    TextFileByteReader reader = reader( "\"a\r\nb\";c\r\nd;e\r\n", TextFileInputMeta.FILE_FORMAT_DOS, "" );
+    assertTrue( reader.readLine() );
+    assertEquals( "a\nb|c", fields( reader ) );
+    assertEquals( 1, reader.getNrLineBreaks() );
+    assertTrue( reader.readLine() );
+    assertEquals( "d|e", fields( reader ) );
+    assertEquals( 0, reader.getNrLineBreaks() );
+    assertFalse( reader.readLine() );
+  }
+
+  @Test
+  public void testMixedLineBreaks() throws Exception {
+    assertLines( "a\r\nb\rc\nd", TextFileInputMeta.FILE_FORMAT_MIXED, "a", "b", "c", "d" );
+    assertLines( "a\r\nb", TextFileInputMeta.FILE_FORMAT_UNIX, "a", "", "b" );
+  }
+
+  @Test( expected = KettleFileException.class )
+  public void testSingleLineBreakInDosFile() throws Exception {
+    TextFileByteReader reader = reader( "a\nb\r\n", TextFileInputMeta.FILE_FORMAT_DOS, "" );
+    reader.readLine();
+  }
+
+  @Test
+  public void testUtf8() throws Exception {
+    String line = "\u00e9t\u00e9;\u4e2d\u6587;x";
+    TextFileByteReader reader = reader( line + "\n", TextFileInputMeta.FILE_FORMAT_UNIX, "" );
+    assertTrue( reader.readLine() );
+    assertArrayEquals( "\u4e2d\u6587".getBytes( StandardCharsets.UTF_8 ), reader.getField( 1 ) );
+    assertEquals( line, reader.getLine( StandardCharsets.UTF_8 ) );
+  }
+
+  @Test
+  public void testLinesLongerThanTheBuffer() throws Exception {
+    char[] chars = new char[200000];
+    Arrays.fill( chars, 'x' );
+    String longField = new String( chars );
+    assertLines( "a;" + longField + "\n\"" + longField + "\";b\n", TextFileInputMeta.FILE_FORMAT_UNIX, "a|" + longField,
+      longField + "|b" );
+  }
+
+  @Test
+  public void testEmptyDelimiter() throws Exception {
+    TextFileByteReader reader =
+      new TextFileByteReader( new ByteArrayInputStream( "a;b\n\"c\";d\n".getBytes( StandardCharsets.UTF_8 ) ),
+        StandardCharsets.UTF_8, TextFileInputMeta.FILE_FORMAT_UNIX, "", "\"", "", true );
+    assertTrue( reader.readLine() );
+    assertEquals( "a;b", fields( reader ) );
+    assertTrue( reader.readLine() );
+    assertEquals( "c", fields( reader ) );
+    assertFalse( reader.readLine() );
+  }
+
+  @Test
+  public void testSupportedEncodings() {
+    assertTrue( TextFileByteReader.isSupported( "UTF-8" ) );
+    assertTrue( TextFileByteReader.isSupported( "ISO-8859-1" ) );
+    assertTrue( TextFileByteReader.isSupported( "windows-1252" ) );
+    assertFalse( TextFileByteReader.isSupported( "UTF-16" ) );
+    assertFalse( TextFileByteReader.isSupported( "Shift_JIS" ) );
+    assertFalse( TextFileByteReader.isSupported( "no such encoding" ) );
+  }
+
+  private static void assertLines( String content, int fileFormat, String... expected ) throws Exception {
+    TextFileByteReader reader = reader( content, fileFormat, "" );
+    List<String> lines = new ArrayList<>();
+    while ( reader.readLine() ) {
+      lines.add( fields( reader ) );
+    }
+    assertEquals( Arrays.asList( expected ), lines );
+  }
+
+  private static TextFileByteReader reader( String content, int fileFormat, String escape ) {
+    return new TextFileByteReader( new ByteArrayInputStream( content.getBytes( StandardCharsets.UTF_8 ) ),
+      StandardCharsets.UTF_8, fileFormat, ";", "\"", escape, true );
+  }
+
+  private static String fields( TextFileByteReader reader ) {
+    StringBuilder fields = new StringBuilder();
+    for ( int i = 0; i < reader.getNrFields(); i++ ) {
+      if ( i > 0 ) {
+        fields.append( '|' );
+      }
+      fields.append( new String( reader.getField( i ), StandardCharsets.UTF_8 ) );
+    }
+    return fields.toString();
+  }
+}
@@ -22,6 +22,8 @@
 
 package org.pentaho.di.trans.steps.fileinput.text;
 
+import java.nio.charset.StandardCharsets;
+
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.pentaho.di.core.variables.Variables;
@@ -250,4 +252,58 @@ public class TextFileInputContentParsingTest extends BaseTextParsingTest {
 
     check( new Object[][] { { "data", "1" } } );
   }
+
+  @Test
+  public void testLazyConversion() throws Exception {
+
+    meta.content.lazyConversionActive = true;
+    initByFile( "default.csv" );
+
+    setFields( new BaseFileField( "f1", -1, -1 ), new BaseFileField( "f2", -1, -1 ),
+      new BaseFileField( "f2", -1, -1 ) );
+
+    process();
+
+    check( new Object[][] {
+      { bytes( "first" ), bytes( "1" ), bytes( "1.1" ) },
+      { bytes( "second" ), bytes( "2" ), bytes( "2.2" ) },
+      { bytes( "third" ), bytes( "3" ), bytes( "3.3" ) } } );
+  }
+
+  @Test
+  public void testLazyConversionEscape() throws Exception {
+
+    meta.content.escapeCharacter = "\\";
+    meta.content.lazyConversionActive = true;
+    initByFile( "escape.csv" );
+
+    setFields( new BaseFileField( "f1", -1, -1 ), new BaseFileField( "f2", -1, -1 ),
+      new BaseFileField( "f2", -1, -1 ) );
+
+    process();
+
+    check( new Object[][] {
+      { bytes( "first" ), bytes( "1" ), bytes( "1.1" ) },
+      { bytes( "second" ), bytes( "2" ), bytes( "2.2" ) },
+      { bytes( "third;third" ), bytes( "3" ), bytes( "3.3" ) } } );
+  }
+
+  @Test
+  public void testLazyConversionBOM_UTF8() throws Exception {
+
+    meta.content.encoding = "UTF-8";
+    meta.content.header = false;
+    meta.content.lazyConversionActive = true;
+    initByFile( "test-BOM-UTF-8.txt" );
+
+    setFields( new BaseFileField( "f1", -1, -1 ), new BaseFileField( "f2", -1, -1 ) );
+
+    process();
+
+    check( new Object[][] { { bytes( "data" ), bytes( "1" ) } } );
+  }
+
+  private static byte[] bytes( String value ) {
+    return value.getBytes( StandardCharsets.UTF_8 );
+  }
 }
@@ -137,6 +137,12 @@ public class TextFileInputMetaNewInjectionTest extends BaseMetadataInjectionTest
       }
     } );
 
+    check( "LAZY_CONVERSION", new BooleanGetter() {
+      public boolean get() {
+        return meta.content.lazyConversionActive;
+      }
+    } );
+
     check( "INCLUDE_FILENAME", new BooleanGetter() {
       public boolean get() {
         return meta.content.includeFilename;
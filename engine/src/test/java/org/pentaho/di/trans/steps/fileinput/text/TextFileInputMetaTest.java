@@ -23,7 +23,9 @@
 package org.pentaho.di.trans.steps.fileinput.text;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
@@ -118,4 +120,17 @@ public class TextFileInputMetaTest {
     assertEquals( cloned.getFilter().length, inputMeta.getFilter().length );
   }
 
+  @Test
+  public void testLazyConversionNeedsASeparator() {
+    inputMeta.content.lazyConversionActive = true;
+    inputMeta.content.fileType = "CSV";
+    inputMeta.content.encoding = "UTF-8";
+    inputMeta.content.separator = ";";
+    assertTrue( inputMeta.isLazyConversionActive() );
+
+    // Without a separator the regular reader is used
+    inputMeta.content.separator = "";
+    assertFalse( inputMeta.isLazyConversionActive() );
+  }
+
 }
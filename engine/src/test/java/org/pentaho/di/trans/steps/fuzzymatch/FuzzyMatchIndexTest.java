@@ -0,0 +1,173 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.fuzzymatch;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+import org.pentaho.di.core.util.Utils;
+
+import com.wcohen.ss.Jaro;
+import com.wcohen.ss.JaroWinkler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FuzzyMatchIndexTest {
+  private static final String[] WORDS = { "Catrine", "Catriny", "Katrine", "John", "Jon", "Johan", "Smith", "Smyth",
+    "Schmidt", "Robert", "Rupert", "Rubin", "", "a", "ab ba", "Ab Ba" };
+
+  @Test
+  public void testLevenshteinCandidates() {
+    for ( int maximalDistance = 0; maximalDistance < 5; maximalDistance++ ) {
+      assertSameMatches( FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN, false, maximalDistance, 0 );
+      assertSameMatches( FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN, true, maximalDistance, 0 );
+      assertSameMatches( FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN, false, maximalDistance, 0 );
+    }
+  }
+
+  @Test
+  public void testPhoneticCandidates() {
+    assertSameMatches( FuzzyMatchMeta.OPERATION_TYPE_METAPHONE, false, 0, 0 );
+    assertSameMatches( FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX, false, 0, 0 );
+    assertSameMatches( FuzzyMatchMeta.OPERATION_TYPE_REFINED_SOUNDEX, false, 0, 0 );
+  }
+
+  @Test
+  public void testSimilarityCandidates() {
+    for ( double minimalSimilarity : new double[] { 0.1, 0.3, 0.5, 0.7, 0.9, 1.0 } ) {
+      assertSameMatches( FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY, false, 0, minimalSimilarity );
+    }
+    // Jaro never goes below 2/3 because of the length only, Jaro-Winkler never below 0.8
+    for ( double minimalSimilarity : new double[] { 0.7, 0.8, 0.9, 1.0 } ) {
+      assertSameMatches( FuzzyMatchMeta.OPERATION_TYPE_JARO, false, 0, minimalSimilarity );
+    }
+    for ( double minimalSimilarity : new double[] { 0.85, 0.9, 0.95, 1.0 } ) {
+      assertSameMatches( FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER, false, 0, minimalSimilarity );
+    }
+  }
+
+  @Test
+  public void testNoIndex() {
+    List<Object[]> look = lookupRows( WORDS );
+    assertNull( FuzzyMatchIndex.create( look, FuzzyMatchMeta.OPERATION_TYPE_NEEDLEMAN_WUNSH, false, 5, 0 ) );
+    assertNull( FuzzyMatchIndex.create( look, FuzzyMatchMeta.OPERATION_TYPE_JARO, false, 0, 0.5 ) );
+    assertNull( FuzzyMatchIndex.create( look, FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY, false, 0, 0 ) );
+
+    look.add( new Object[] { 42L } );
+    assertNull( FuzzyMatchIndex.create( look, FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN, false, 5, 0 ) );
+  }
+
+  @Test
+  public void testRandomValues() {
+    Random random = new Random( 42 );
+    String[] values = new String[500];
+    for ( int i = 0; i < values.length; i++ ) {
+      StringBuilder value = new StringBuilder();
+      int length = random.nextInt( 9 );
+      for ( int j = 0; j < length; j++ ) {
+        value.append( "abcAB ".charAt( random.nextInt( 6 ) ) );
+      }
+      values[i] = value.toString();
+    }
+    for ( int maximalDistance = 0; maximalDistance < 4; maximalDistance++ ) {
+      assertSameMatches( values, FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN, false, maximalDistance, 0 );
+      assertSameMatches( values, FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN, true, maximalDistance, 0 );
+    }
+    assertSameMatches( values, FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY, false, 0, 0.4 );
+    assertSameMatches( values, FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER, false, 0, 0.85 );
+  }
+
+  private static void assertSameMatches( int algorithmType, boolean caseSensitive, int maximalDistance,
+    double minimalSimilarity ) {
+    assertSameMatches( WORDS, algorithmType, caseSensitive, maximalDistance, minimalSimilarity );
+  }
+
+  /**
+   * The candidates must be in lookup order and contain every row passing the thresholds.
+   */
+  private static void assertSameMatches( String[] values, int algorithmType, boolean caseSensitive,
+    int maximalDistance, double minimalSimilarity ) {
+    Set<Object[]> look = new LinkedHashSet<>( lookupRows( values ) );
+    FuzzyMatchIndex index =
+      FuzzyMatchIndex.create( look, algorithmType, caseSensitive, maximalDistance, minimalSimilarity );
+    assertNotNull( index );
+
+    for ( String value : values ) {
+      if ( value.isEmpty() ) {
+        continue;
+      }
+      List<Object[]> candidates = index.getCandidates( value );
+      if ( candidates == null ) {
+        continue;
+      }
+      List<Object[]> expected = new ArrayList<>();
+      List<Object[]> matches = new ArrayList<>();
+      for ( Object[] row : look ) {
+        if ( candidates.contains( row ) ) {
+          expected.add( row );
+        }
+        if ( matches( (String) row[0], value, algorithmType, caseSensitive, maximalDistance, minimalSimilarity ) ) {
+          assertTrue( algorithmType + ": " + row[0] + " should match " + value, candidates.contains( row ) );
+        }
+      }
+      assertEquals( expected, candidates );
+    }
+  }
+
+  private static boolean matches( String cacheValue, String value, int algorithmType, boolean caseSensitive,
+    int maximalDistance, double minimalSimilarity ) {
+    String useCacheValue = caseSensitive ? cacheValue : cacheValue.toLowerCase();
+    String useValue = caseSensitive ? value : value.toLowerCase();
+    switch ( algorithmType ) {
+      case FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN:
+        return StringUtils.getLevenshteinDistance( useCacheValue, useValue ) <= maximalDistance;
+      case FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN:
+        return Utils.getDamerauLevenshteinDistance( useCacheValue, useValue ) <= maximalDistance;
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO:
+        return new Jaro().score( cacheValue, value ) >= minimalSimilarity;
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER:
+        return new JaroWinkler().score( cacheValue, value ) >= minimalSimilarity;
+      case FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY:
+        return LetterPairSimilarity.getSimiliarity( cacheValue, value ) >= minimalSimilarity;
+      default:
+        String encoded = FuzzyMatch.getEncodedMF( cacheValue, algorithmType );
+        return encoded != null && encoded.equals( FuzzyMatch.getEncodedMF( value, algorithmType ) );
+    }
+  }
+
+  private static List<Object[]> lookupRows( String[] values ) {
+    List<Object[]> rows = new ArrayList<>();
+    for ( String value : values ) {
+      rows.add( new Object[] { value, "extra" } );
+    }
+    return rows;
+  }
+}
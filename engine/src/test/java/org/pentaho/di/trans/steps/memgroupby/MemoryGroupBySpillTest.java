@@ -0,0 +1,145 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+public class MemoryGroupBySpillTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEP_NAME = "testStep";
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  @Test
+  public void testSpilledAggregatesMatchInMemoryAggregates() throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+
+    Random random = new Random( 3 );
+    List<Object[]> rows = new ArrayList<>();
+    for ( int i = 0; i < 5000; i++ ) {
+      rows.add( new Object[] { "key" + random.nextInt( 700 ), random.nextInt( 10 ) == 0 ? null
+        : Long.valueOf( random.nextInt( 100 ) ) } );
+    }
+
+    Map<String, List<Object>> inMemory = runStep( rowMeta, rows, null );
+    Map<String, List<Object>> spilled = runStep( rowMeta, rows, "4k" );
+
+    assertEquals( 700, inMemory.size() );
+    assertEquals( inMemory, spilled );
+  }
+
+  @Test
+  public void testNoSpillWithinBudget() throws Exception {
+    AggregateSpiller spiller = new AggregateSpiller( new RowMeta(), 1000L, System.getProperty( "java.io.tmpdir" ) );
+    int partition = spiller.getPartition( "key".hashCode() );
+    spiller.addBytes( partition, 1000L );
+    assertFalse( spiller.isOverBudget() );
+    spiller.addBytes( partition, 1L );
+    assertTrue( spiller.isOverBudget() );
+    assertEquals( partition, spiller.getColdestPartition() );
+  }
+
+  private Map<String, List<Object>> runStep( RowMetaInterface rowMeta, List<Object[]> rows, String budget )
+    throws KettleException {
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate( 1, 5 );
+    meta.getGroupField()[0] = "key";
+    int[] types = { MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL,
+      MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT, MemoryGroupByMeta.TYPE_GROUP_FIRST_INCL_NULL,
+      MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA };
+    for ( int i = 0; i < types.length; i++ ) {
+      meta.getAggregateField()[i] = "agg" + i;
+      meta.getSubjectField()[i] = "value";
+      meta.getAggregateType()[i] = types[i];
+    }
+
+    MemoryGroupByData data = new MemoryGroupByData();
+    data.map = new HashMap<>();
+
+    TransMeta transMeta = mock( TransMeta.class );
+    StepMeta stepMeta = new StepMeta( STEP_NAME, meta );
+    when( transMeta.findStep( STEP_NAME ) ).thenReturn( stepMeta );
+
+    MemoryGroupBy step = spy( new MemoryGroupBy( stepMeta, data, 0, transMeta, mock( Trans.class ) ) );
+    if ( budget != null ) {
+      step.setVariable( Const.KETTLE_MEMORY_GROUP_BY_MEMORY_BUDGET, budget );
+    }
+    Map<String, List<Object>> output = new TreeMap<>();
+    doAnswer( invocation -> {
+      Object[] row = invocation.getArgument( 1 );
+      List<Object> values = new ArrayList<>();
+      for ( int i = 1; i <= types.length; i++ ) {
+        values.add( row[ i ] == null ? null : row[ i ].toString() );
+      }
+      output.put( (String) row[ 0 ], values );
+      return null;
+    } ).when( step ).putRow( any(), any() );
+    doNothing().when( step ).setOutputDone();
+    doReturn( rowMeta ).when( step ).getInputRowMeta();
+
+    for ( Object[] row : rows ) {
+      doReturn( row.clone() ).when( step ).getRow();
+      step.processRow( meta, data );
+    }
+    doReturn( null ).when( step ).getRow();
+    step.processRow( meta, data );
+    return output;
+  }
+}
@@ -0,0 +1,201 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.mergejoin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+
+public class HashJoinerTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String TMP_DIR = System.getProperty( "java.io.tmpdir" );
+
+  private static RowMeta oneMeta;
+  private static RowMeta twoMeta;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+
+    oneMeta = new RowMeta();
+    oneMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    oneMeta.addValueMeta( new ValueMetaString( "name" ) );
+    twoMeta = new RowMeta();
+    twoMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    twoMeta.addValueMeta( new ValueMetaString( "value" ) );
+  }
+
+  @Test
+  public void testInnerJoin() throws Exception {
+    List<String> joined = join( false, false, -1L, rows( "a", 1, 2, 3 ), rows( "b", 2, 3, 3, 4 ) );
+    assertEquals( list( "2|a2|2|b2", "3|a3|3|b3", "3|a3|3|b3" ), joined );
+  }
+
+  @Test
+  public void testOuterJoins() throws Exception {
+    List<Object[]> one = rows( "a", 1, 2 );
+    List<Object[]> two = rows( "b", 2, 3 );
+    assertEquals( list( "1|a1|null|null", "2|a2|2|b2" ), join( true, false, -1L, one, two ) );
+    assertEquals( list( "2|a2|2|b2", "null|null|3|b3" ), join( false, true, -1L, one, two ) );
+    assertEquals( list( "1|a1|null|null", "2|a2|2|b2", "null|null|3|b3" ), join( true, true, -1L, one, two ) );
+  }
+
+  @Test
+  public void testNullKeysMatch() throws Exception {
+    List<Object[]> one = new ArrayList<>();
+    one.add( new Object[] { null, "a" } );
+    List<Object[]> two = new ArrayList<>();
+    two.add( new Object[] { null, "b" } );
+    assertEquals( list( "null|a|null|b" ), join( false, false, -1L, one, two ) );
+  }
+
+  @Test
+  public void testSpilledJoinMatchesInMemoryJoin() throws Exception {
+    Random random = new Random( 5 );
+    List<Object[]> one = new ArrayList<>();
+    for ( int i = 0; i < 3000; i++ ) {
+      long id = random.nextInt( 2000 );
+      one.add( new Object[] { id, "a" + id } );
+    }
+    List<Object[]> two = new ArrayList<>();
+    for ( int i = 0; i < 4000; i++ ) {
+      long id = random.nextInt( 2500 );
+      two.add( new Object[] { id, "b" + id } );
+    }
+
+    List<String> inMemory = join( true, true, -1L, one, two );
+    List<String> spilled = new ArrayList<>();
+    HashJoiner joiner = newJoiner( true, true, 4000L, spilled );
+    try {
+      addRows( joiner, one, two );
+      assertTrue( joiner.getNrSpilled() > 0 );
+    } finally {
+      joiner.close();
+    }
+    Collections.sort( spilled );
+    assertEquals( inMemory, spilled );
+  }
+
+  @Test
+  public void testStringKeysMatchLikeCompare() throws Exception {
+    ValueMetaString oneKey = new ValueMetaString( "key" );
+    oneKey.setIgnoreWhitespace( true );
+    oneKey.setCaseInsensitive( true );
+    RowMeta oneStringMeta = new RowMeta();
+    oneStringMeta.addValueMeta( oneKey );
+    RowMeta twoStringMeta = new RowMeta();
+    twoStringMeta.addValueMeta( new ValueMetaString( "key" ) );
+
+    List<String> joined = new ArrayList<>();
+    HashJoiner joiner = new HashJoiner( oneStringMeta, new int[] { 0 }, twoStringMeta, new int[] { 0 }, false, false,
+      -1L, TMP_DIR, row -> joined.add( row[0] + "|" + row[1] ) );
+    try {
+      List<Object[]> one = new ArrayList<>();
+      one.add( new Object[] { "  Apple " } );
+      one.add( new Object[] { "pear" } );
+      List<Object[]> two = new ArrayList<>();
+      two.add( new Object[] { "aPPLE" } );
+      two.add( new Object[] { "PEAR  " } );
+      two.add( new Object[] { "plum" } );
+      addRows( joiner, one, two );
+    } finally {
+      joiner.close();
+    }
+    Collections.sort( joined );
+    assertEquals( list( "  Apple |aPPLE", "pear|PEAR  " ), joined );
+  }
+
+  @Test
+  public void testSmallestInputIsBuildSide() throws Exception {
+    HashJoiner joiner = newJoiner( false, false, -1L, new ArrayList<String>() );
+    addRows( joiner, rows( "a", 1, 2, 3, 4, 5 ), rows( "b", 1 ) );
+    assertEquals( 1, joiner.getBuildSide() );
+  }
+
+  private static List<String> join( boolean keepOne, boolean keepTwo, long budget, List<Object[]> one,
+    List<Object[]> two ) throws KettleException {
+    List<String> joined = new ArrayList<>();
+    HashJoiner joiner = newJoiner( keepOne, keepTwo, budget, joined );
+    try {
+      addRows( joiner, one, two );
+    } finally {
+      joiner.close();
+    }
+    Collections.sort( joined );
+    return joined;
+  }
+
+  private static HashJoiner newJoiner( boolean keepOne, boolean keepTwo, long budget, final List<String> joined ) {
+    return new HashJoiner( oneMeta, new int[] { 0 }, twoMeta, new int[] { 0 }, keepOne, keepTwo, budget, TMP_DIR,
+      row -> joined.add( row[0] + "|" + row[1] + "|" + row[2] + "|" + row[3] ) );
+  }
+
+  /**
+   * Alternate between the inputs like the step does, so the smallest input ends first.
+   */
+  private static void addRows( HashJoiner joiner, List<Object[]> one, List<Object[]> two ) throws KettleException {
+    int max = Math.max( one.size(), two.size() );
+    for ( int i = 0; i <= max; i++ ) {
+      if ( i < one.size() ) {
+        joiner.addRow( 0, one.get( i ) );
+      } else {
+        joiner.endOfSide( 0 );
+      }
+      if ( i < two.size() ) {
+        joiner.addRow( 1, two.get( i ) );
+      } else {
+        joiner.endOfSide( 1 );
+      }
+    }
+  }
+
+  private static List<Object[]> rows( String prefix, long... ids ) {
+    List<Object[]> rows = new ArrayList<>();
+    for ( long id : ids ) {
+      rows.add( new Object[] { id, prefix + id } );
+    }
+    return rows;
+  }
+
+  private static List<String> list( String... values ) {
+    List<String> list = new ArrayList<>();
+    Collections.addAll( list, values );
+    return list;
+  }
+}
@@ -52,5 +52,10 @@ public class MergeJoinMetaInjectionStep extends BaseMetadataInjectionTest<MergeJ
         return meta.getKeyFields2()[0];
       }
     } );
+    check( "HASH_JOIN", new BooleanGetter() {
+      public boolean get() {
+        return meta.isHashJoin();
+      }
+    } );
   }
 }
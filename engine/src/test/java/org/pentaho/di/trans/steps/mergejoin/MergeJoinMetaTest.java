@@ -56,7 +56,7 @@ public class MergeJoinMetaTest {
 
   public MergeJoinMetaTest() {
     //SwitchCaseMeta bean-like attributes
-    List<String> attributes = Arrays.asList( "joinType", "keyFields1", "keyFields2" );
+    List<String> attributes = Arrays.asList( "joinType", "keyFields1", "keyFields2", "hashJoin" );
 
     Map<String, FieldLoadSaveValidator<?>> attrValidatorMap = new HashMap<String, FieldLoadSaveValidator<?>>();
 
@@ -66,11 +66,13 @@ public class MergeJoinMetaTest {
     getterMap.put( "joinType", "getJoinType" );
     getterMap.put( "keyFields1", "getKeyFields1" );
     getterMap.put( "keyFields2", "getKeyFields2" );
+    getterMap.put( "hashJoin", "isHashJoin" );
 
     Map<String, String> setterMap = new HashMap<String, String>();
     setterMap.put( "joinType", "setJoinType" );
     setterMap.put( "keyFields1", "setKeyFields1" );
     setterMap.put( "keyFields2", "setKeyFields2" );
+    setterMap.put( "hashJoin", "setHashJoin" );
 
     this.loadSaveTester = new LoadSaveTester( MergeJoinMeta.class,
       attributes,
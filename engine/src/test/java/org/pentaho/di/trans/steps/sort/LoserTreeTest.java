@@ -0,0 +1,86 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LoserTreeTest {
+
+  @Test
+  public void testMergesSortedSources() {
+    Random random = new Random( 7 );
+    for ( int iteration = 0; iteration < 500; iteration++ ) {
+      int nrSources = random.nextInt( 20 ) + 1;
+      List<Iterator<int[]>> sources = new ArrayList<>();
+      List<int[]> heads = new ArrayList<>();
+      List<Integer> expected = new ArrayList<>();
+      for ( int s = 0; s < nrSources; s++ ) {
+        List<int[]> source = new ArrayList<>();
+        int size = random.nextInt( 6 );
+        for ( int i = 0; i < size; i++ ) {
+          source.add( new int[] { random.nextInt( 10 ), s } );
+        }
+        source.sort( Comparator.comparingInt( e -> e[ 0 ] ) );
+        source.forEach( e -> expected.add( e[ 0 ] ) );
+        Iterator<int[]> iterator = source.iterator();
+        sources.add( iterator );
+        heads.add( iterator.hasNext() ? iterator.next() : null );
+      }
+      Collections.sort( expected );
+
+      LoserTree<int[]> tree = new LoserTree<>( heads, Comparator.comparingInt( e -> e[ 0 ] ) );
+      List<Integer> merged = new ArrayList<>();
+      int[] previous = null;
+      while ( !tree.isEmpty() ) {
+        int[] head = tree.peek();
+        assertEquals( head[ 1 ], tree.getWinner() );
+        // Equal elements come out in the order of their sources
+        assertTrue( previous == null || previous[ 0 ] < head[ 0 ] || previous[ 1 ] <= head[ 1 ] );
+        merged.add( head[ 0 ] );
+        previous = head;
+        Iterator<int[]> source = sources.get( tree.getWinner() );
+        tree.replaceWinner( source.hasNext() ? source.next() : null );
+      }
+      assertEquals( expected, merged );
+      assertNull( tree.peek() );
+    }
+  }
+
+  @Test
+  public void testNoSources() {
+    LoserTree<String> tree = new LoserTree<>( new ArrayList<String>(), Comparator.<String>naturalOrder() );
+    assertTrue( tree.isEmpty() );
+    assertNull( tree.peek() );
+  }
+}
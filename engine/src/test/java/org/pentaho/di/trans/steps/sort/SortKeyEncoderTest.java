@@ -0,0 +1,123 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SortKeyEncoderTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String[] STRINGS = { null, "", "a", "A", "ab", "aB", "b", " a", "a ", "\0", "\0a", "a\0",
+    "ÿ", "Ÿ", "µ", "μ", "😀", "￿", "ß", "SS" };
+  private static final double[] NUMBERS = { 0.0, -0.0, 1.5, -1.5, Double.NaN, Double.POSITIVE_INFINITY,
+    Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE };
+
+  @Test
+  public void testKeysSortLikeRowMeta() throws Exception {
+    Random random = new Random( 1 );
+    for ( int iteration = 0; iteration < 100; iteration++ ) {
+      RowMetaInterface rowMeta = new RowMeta();
+      rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+      rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+      rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+      rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+      rowMeta.addValueMeta( new ValueMetaBoolean( "boolean" ) );
+      for ( ValueMetaInterface valueMeta : rowMeta.getValueMetaList() ) {
+        valueMeta.setSortedDescending( random.nextBoolean() );
+        valueMeta.setCaseInsensitive( random.nextBoolean() );
+        valueMeta.setIgnoreWhitespace( random.nextBoolean() );
+      }
+      List<Integer> order = new ArrayList<>( Arrays.asList( 0, 1, 2, 3, 4 ) );
+      Collections.shuffle( order, random );
+      int[] fieldNrs = order.stream().mapToInt( Integer::intValue ).toArray();
+
+      List<Object[]> rows = new ArrayList<>();
+      for ( int i = 0; i < 40; i++ ) {
+        rows.add( new Object[] {
+          STRINGS[ random.nextInt( STRINGS.length ) ],
+          random.nextInt( 5 ) == 0 ? null : ( random.nextInt( 7 ) - 3 ) * ( random.nextBoolean() ? Long.MAX_VALUE / 3 : 1 ),
+          random.nextInt( 6 ) == 0 ? null : NUMBERS[ random.nextInt( NUMBERS.length ) ],
+          random.nextInt( 6 ) == 0 ? null : new Date( random.nextInt( 5 ) - 2 ),
+          random.nextInt( 4 ) == 0 ? null : random.nextBoolean(), } );
+      }
+
+      SortKeyEncoder encoder = new SortKeyEncoder( rowMeta, fieldNrs );
+      assertTrue( encoder.isComplete() );
+      byte[][] keys = encoder.encode( rows );
+      for ( int i = 0; i < rows.size(); i++ ) {
+        for ( int j = 0; j < rows.size(); j++ ) {
+          assertEquals( Arrays.toString( rows.get( i ) ) + " vs " + Arrays.toString( rows.get( j ) ),
+            Integer.signum( rowMeta.compare( rows.get( i ), rows.get( j ), fieldNrs ) ),
+            Integer.signum( Arrays.compareUnsigned( keys[ i ], keys[ j ] ) ) );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFieldsAfterUnsupportedTypeAreComparedOnValues() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    int[] fieldNrs = { 0, 1, 2 };
+
+    SortKeyEncoder encoder = new SortKeyEncoder( rowMeta, fieldNrs );
+    assertFalse( encoder.isComplete() );
+
+    Object[] row1 = { 1L, new BigDecimal( "2.5" ), "b" };
+    Object[] row2 = { 1L, new BigDecimal( "2.50" ), "a" };
+    Object[] row3 = { 0L, new BigDecimal( "9" ), "z" };
+    assertTrue( compare( encoder, row1, row2 ) > 0 );
+    assertTrue( compare( encoder, row2, row1 ) < 0 );
+    assertTrue( compare( encoder, row3, row2 ) < 0 );
+    assertEquals( 0, compare( encoder, row1, row1.clone() ) );
+  }
+
+  private static int compare( SortKeyEncoder encoder, Object[] row1, Object[] row2 ) throws Exception {
+    return encoder.compare( encoder.encode( row1 ), row1, encoder.encode( row2 ), row2 );
+  }
+}
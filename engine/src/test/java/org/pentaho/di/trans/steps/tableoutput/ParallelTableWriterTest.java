@@ -0,0 +1,158 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.tableoutput;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.database.H2DatabaseMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class ParallelTableWriterTest {
+  private static final String URL = "jdbc:h2:mem:PARALLEL_WRITER";
+  private static final String SQL = "INSERT INTO PARALLEL_TEST (ID, NAME) VALUES (?, ?)";
+
+  private static Connection connection;
+
+  private TableOutput step;
+  private DatabaseMeta databaseMeta;
+  private RowMeta rowMeta;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    KettleEnvironment.init( false );
+    // Keep the in-memory database around while the writers connect and disconnect
+    connection = DriverManager.getConnection( URL );
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "CREATE TABLE PARALLEL_TEST (ID INTEGER NOT NULL, NAME VARCHAR(20))" );
+    }
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws SQLException {
+    connection.close();
+  }
+
+  @Before
+  public void setUp() throws SQLException {
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( "DELETE FROM PARALLEL_TEST" );
+    }
+
+    databaseMeta = new DatabaseMeta();
+    databaseMeta.setDatabaseInterface( new H2DatabaseMeta() );
+    databaseMeta.setName( "parallel" );
+    databaseMeta.setDBName( "mem:PARALLEL_WRITER" );
+    databaseMeta.setDatabaseType( "H2" );
+
+    StepMeta stepMeta = new StepMeta( "Table output", new TableOutputMeta() );
+    TransMeta transMeta = mock( TransMeta.class );
+    doReturn( stepMeta ).when( transMeta ).findStep( anyString() );
+    step = new TableOutput( stepMeta, new TableOutputData(), 0, transMeta, mock( Trans.class ) );
+
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "ID" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "NAME" ) );
+  }
+
+  @Test
+  public void testWritersCommitTogether() throws Exception {
+    ParallelTableWriter writer = new ParallelTableWriter( step, databaseMeta, SQL, rowMeta, 3, 7 );
+    writer.start();
+    for ( long i = 0; i < 1000; i++ ) {
+      writer.addRow( new Object[] { i, "row " + i } );
+    }
+    writer.finish();
+    assertEquals( 1000L, writer.getNrRowsWritten() );
+
+    writer.end( true );
+    assertEquals( 1000, countRows() );
+    assertEquals( 499500, sumIds() );
+  }
+
+  @Test
+  public void testWritersRollBackTogether() throws Exception {
+    ParallelTableWriter writer = new ParallelTableWriter( step, databaseMeta, SQL, rowMeta, 3, 7 );
+    writer.start();
+    for ( long i = 0; i < 100; i++ ) {
+      writer.addRow( new Object[] { i, "row " + i } );
+    }
+    writer.finish();
+    writer.end( false );
+    assertEquals( 0, countRows() );
+  }
+
+  @Test
+  public void testFailedBatchIsReported() throws Exception {
+    ParallelTableWriter writer = new ParallelTableWriter( step, databaseMeta, SQL, rowMeta, 2, 5 );
+    writer.start();
+    try {
+      for ( long i = 0; i < 100; i++ ) {
+        writer.addRow( new Object[] { i == 42 ? null : i, "row " + i } );
+      }
+      writer.finish();
+      fail( "The row without an ID should have failed" );
+    } catch ( KettleException e ) {
+      // expected
+    } finally {
+      writer.end( false );
+    }
+    assertEquals( 0, countRows() );
+  }
+
+  private static int countRows() throws SQLException {
+    return queryInt( "SELECT COUNT(*) FROM PARALLEL_TEST" );
+  }
+
+  private static int sumIds() throws SQLException {
+    return queryInt( "SELECT SUM(ID) FROM PARALLEL_TEST" );
+  }
+
+  private static int queryInt( String sql ) throws SQLException {
+    try ( Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery( sql ) ) {
+      resultSet.next();
+      return resultSet.getInt( 1 );
+    }
+  }
+}
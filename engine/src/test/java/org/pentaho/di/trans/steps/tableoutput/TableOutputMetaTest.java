@@ -162,6 +162,7 @@ public class TableOutputMetaTest {
       + "    <schema>public</schema>\n"
       + "    <table>sales_csv</table>\n"
       + "    <commit>1000</commit>\n"
+      + "    <parallel_writers/>\n"
       + "    <truncate>Y</truncate>\n"
       + "    <ignore_errors>N</ignore_errors>\n"
       + "    <use_batch>Y</use_batch>\n"
@@ -205,6 +206,7 @@ public class TableOutputMetaTest {
     verify( rep ).saveStepAttribute( id_transformation, id_step, "schema", "public" );
     verify( rep ).saveStepAttribute( id_transformation, id_step, "table", "sales_csv" );
     verify( rep ).saveStepAttribute( id_transformation, id_step, "commit", "1000" );
+    verify( rep ).saveStepAttribute( id_transformation, id_step, "parallel_writers", null );
     verify( rep ).saveStepAttribute( id_transformation, id_step, "truncate", true );
     verify( rep ).saveStepAttribute( id_transformation, id_step, "ignore_errors", false );
     verify( rep ).saveStepAttribute( id_transformation, id_step, "use_batch", true );
@@ -25,6 +25,7 @@ package org.pentaho.di.trans.steps.tableoutput;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseInterface;
 import org.pentaho.di.core.database.DatabaseMeta;
@@ -40,10 +41,12 @@ import java.util.Map;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -120,6 +123,24 @@ public class TableOutputTest {
     verify( db ).truncateTable( any(), any() );
   }
 
+  @Test
+  public void testTruncateTable_commitsBeforeParallelWriters() throws Exception {
+    when( tableOutputMeta.truncateTable() ).thenReturn( true );
+    when( tableOutputSpy.getCopy() ).thenReturn( 0 );
+    when( tableOutputSpy.getUniqueStepNrAcrossSlaves() ).thenReturn( 0 );
+    when( tableOutputMeta.getTableName() ).thenReturn( "fooTable" );
+    when( tableOutputMeta.getSchemaName() ).thenReturn( "barSchema" );
+
+    tableOutputSpy.truncateTable();
+    verify( db, never() ).commit( anyBoolean() );
+
+    tableOutputData.nrParallelWriters = 4;
+    tableOutputSpy.truncateTable();
+    InOrder inOrder = inOrder( db );
+    inOrder.verify( db, times( 2 ) ).truncateTable( any(), any() );
+    inOrder.verify( db ).commit( true );
+  }
+
   @Test
   public void testTruncateTable_on_PartitionId() throws Exception {
     when( tableOutputMeta.truncateTable() ).thenReturn( true );
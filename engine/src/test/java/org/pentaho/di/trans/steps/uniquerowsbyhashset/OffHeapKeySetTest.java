@@ -0,0 +1,157 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.uniquerowsbyhashset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+
+public class OffHeapKeySetTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String TMP_DIR = System.getProperty( "java.io.tmpdir" );
+
+  private static RowMeta rowMeta;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+  }
+
+  @Test
+  public void testUniqueRowsOnKeyField() throws Exception {
+    List<String> unique = new ArrayList<>();
+    List<String> duplicates = new ArrayList<>();
+    OffHeapKeySet keySet = newKeySet( new int[] { 0 }, -1L, unique, duplicates );
+    try {
+      keySet.addRow( new Object[] { "a", 1L } );
+      keySet.addRow( new Object[] { "b", 2L } );
+      keySet.addRow( new Object[] { "a", 3L } );
+      keySet.addRow( new Object[] { null, 4L } );
+      keySet.addRow( new Object[] { null, 5L } );
+      keySet.finish();
+      assertEquals( 0, keySet.getNrSpilled() );
+      assertTrue( keySet.getMaxMemorySize() > 0L );
+    } finally {
+      keySet.close();
+    }
+    assertEquals( list( "a|1", "b|2", "null|4" ), unique );
+    assertEquals( list( "a|3", "null|5" ), duplicates );
+  }
+
+  @Test
+  public void testUniqueRowsOnCompleteRow() throws Exception {
+    List<String> unique = new ArrayList<>();
+    List<String> duplicates = new ArrayList<>();
+    OffHeapKeySet keySet = newKeySet( new int[0], -1L, unique, duplicates );
+    try {
+      keySet.addRow( new Object[] { "a", 1L } );
+      keySet.addRow( new Object[] { "a", 2L } );
+      keySet.addRow( new Object[] { "a", 1L } );
+      keySet.finish();
+    } finally {
+      keySet.close();
+    }
+    assertEquals( list( "a|1", "a|2" ), unique );
+    assertEquals( list( "a|1" ), duplicates );
+  }
+
+  @Test
+  public void testSpilledPartitionsKeepFirstRows() throws Exception {
+    Random random = new Random( 7 );
+    List<Object[]> rows = new ArrayList<>();
+    for ( long i = 0; i < 100000; i++ ) {
+      rows.add( new Object[] { "key" + random.nextInt( 50000 ), i } );
+    }
+
+    List<String> inMemory = new ArrayList<>();
+    OffHeapKeySet keySet = newKeySet( new int[] { 0 }, -1L, inMemory, new ArrayList<String>() );
+    try {
+      for ( Object[] row : rows ) {
+        keySet.addRow( row );
+      }
+      keySet.finish();
+    } finally {
+      keySet.close();
+    }
+
+    List<String> spilled = new ArrayList<>();
+    List<String> duplicates = new ArrayList<>();
+    keySet = newKeySet( new int[] { 0 }, 1000000L, spilled, duplicates );
+    try {
+      for ( Object[] row : rows ) {
+        keySet.addRow( row );
+      }
+      keySet.finish();
+      assertTrue( keySet.getNrSpilled() > 0 );
+    } finally {
+      keySet.close();
+    }
+
+    // The rows of spilled partitions come later, but it's still the first row of every key that is passed on
+    assertEquals( 100000, spilled.size() + duplicates.size() );
+    Collections.sort( inMemory );
+    Collections.sort( spilled );
+    assertEquals( inMemory, spilled );
+  }
+
+  private static OffHeapKeySet newKeySet( int[] fieldnrs, long budget, final List<String> unique,
+    final List<String> duplicates ) {
+    return new OffHeapKeySet( rowMeta, fieldnrs, budget, TMP_DIR, new OffHeapKeySet.RowHandler() {
+      @Override
+      public void uniqueRow( Object[] row ) {
+        unique.add( row[0] + "|" + row[1] );
+      }
+
+      @Override
+      public void duplicateRow( Object[] row ) {
+        duplicates.add( row[0] + "|" + row[1] );
+      }
+    } );
+  }
+
+  private static List<String> list( String... values ) {
+    List<String> list = new ArrayList<>();
+    Collections.addAll( list, values );
+    return list;
+  }
+}
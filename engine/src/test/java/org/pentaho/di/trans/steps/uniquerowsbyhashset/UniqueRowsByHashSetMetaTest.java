@@ -42,19 +42,26 @@ public class UniqueRowsByHashSetMetaTest {
   @Test
   public void testRoundTrip() throws KettleException {
     List<String> attributes =
-      Arrays.asList( "store_values", "reject_duplicate_row", "error_description", "name" );
+      Arrays.asList( "store_values", "reject_duplicate_row", "error_description", "name", "dedup_mode",
+        "expected_rows", "false_positive_rate" );
 
     Map<String, String> getterMap = new HashMap<String, String>();
     getterMap.put( "store_values", "getStoreValues" );
     getterMap.put( "reject_duplicate_row", "isRejectDuplicateRow" );
     getterMap.put( "error_description", "getErrorDescription" );
     getterMap.put( "name", "getCompareFields" );
+    getterMap.put( "dedup_mode", "getDedupMode" );
+    getterMap.put( "expected_rows", "getExpectedRows" );
+    getterMap.put( "false_positive_rate", "getFalsePositiveRate" );
 
     Map<String, String> setterMap = new HashMap<String, String>();
     setterMap.put( "store_values", "setStoreValues" );
     setterMap.put( "reject_duplicate_row", "setRejectDuplicateRow" );
     setterMap.put( "error_description", "setErrorDescription" );
     setterMap.put( "name", "setCompareFields" );
+    setterMap.put( "dedup_mode", "setDedupMode" );
+    setterMap.put( "expected_rows", "setExpectedRows" );
+    setterMap.put( "false_positive_rate", "setFalsePositiveRate" );
 
     Map<String, FieldLoadSaveValidator<?>> fieldLoadSaveValidatorAttributeMap =
       new HashMap<String, FieldLoadSaveValidator<?>>();
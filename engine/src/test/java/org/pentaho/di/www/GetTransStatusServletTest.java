@@ -25,9 +25,13 @@ package org.pentaho.di.www;
 import org.junit.Before;
 import org.junit.Test;
 import org.owasp.encoder.Encode;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.gui.Point;
 import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.logging.KettleLoggingEvent;
 import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.logging.LogLevel;
+import org.pentaho.di.core.logging.LogMessage;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.www.cache.CarteStatusCache;
@@ -36,15 +40,20 @@ import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -145,4 +154,53 @@ public class GetTransStatusServletTest {
 
   }
 
+  @Test
+  public void testGetTransStatusStreamsLogPage() throws Exception {
+    KettleLogStore.init();
+    CarteStatusCache cacheMock = mock( CarteStatusCache.class );
+    getTransStatusServlet.cache = cacheMock;
+    HttpServletRequest mockHttpServletRequest = mock( HttpServletRequest.class );
+    HttpServletResponse mockHttpServletResponse = mock( HttpServletResponse.class );
+    Trans mockTrans = mock( Trans.class );
+    LogChannelInterface mockChannelInterface = mock( LogChannelInterface.class );
+    final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    ServletOutputStream servletOutputStream = new ServletOutputStream() {
+      @Override
+      public void write( int b ) {
+        byteArrayOutputStream.write( b );
+      }
+    };
+
+    String logId = "streamedLogId";
+    int from = KettleLogStore.getLastBufferLineNr() + 1;
+    for ( int i = 0; i < 25; i++ ) {
+      KettleLoggingEvent event = new KettleLoggingEvent();
+      event.setMessage( new LogMessage( "streamed line " + i, logId, LogLevel.BASIC ) );
+      KettleLogStore.getAppender().addLogggingEvent( event );
+    }
+
+    when( mockHttpServletRequest.getContextPath() ).thenReturn( GetTransStatusServlet.CONTEXT_PATH );
+    when( mockHttpServletRequest.getParameter( "id" ) ).thenReturn( "123" );
+    when( mockHttpServletRequest.getParameter( "xml" ) ).thenReturn( "Y" );
+    when( mockHttpServletRequest.getParameter( "from" ) ).thenReturn( String.valueOf( from ) );
+    when( mockHttpServletRequest.getParameter( "maxLines" ) ).thenReturn( "10" );
+    when( mockHttpServletResponse.getOutputStream() ).thenReturn( servletOutputStream );
+    when( mockTransformationMap.getTransformation( any( CarteObjectEntry.class ) ) ).thenReturn( mockTrans );
+    when( mockTrans.getLogChannel() ).thenReturn( mockChannelInterface );
+    when( mockChannelInterface.getLogChannelId() ).thenReturn( logId );
+    when( mockTrans.getLogChannelId() ).thenReturn( logId );
+    when( mockTrans.getStatus() ).thenReturn( "Running" );
+
+    getTransStatusServlet.doGet( mockHttpServletRequest, mockHttpServletResponse );
+
+    SlaveServerTransStatus transStatus =
+      SlaveServerTransStatus.fromXML( byteArrayOutputStream.toString( Const.XML_ENCODING ) );
+    String loggingString = transStatus.getLoggingString();
+    assertTrue( loggingString.contains( "streamed line 9" ) );
+    assertFalse( loggingString.contains( "streamed line 10" ) );
+    assertEquals( KettleLogStore.getAppender().getBufferLines( logId, false, from, Integer.MAX_VALUE, 10 ).get( 9 ).getNr(),
+      transStatus.getLastLoggingLineNr() );
+    verify( cacheMock, never() ).put( anyString(), anyString(), anyInt() );
+  }
+
 }
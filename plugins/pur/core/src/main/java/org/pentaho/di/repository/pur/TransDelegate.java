@@ -106,6 +106,8 @@ public class TransDelegate extends AbstractDelegate implements ITransformer, ISh
 
   private static final String PROP_USING_THREAD_PRIORITIES = "USING_THREAD_PRIORITIES";
 
+  private static final String PROP_USING_VIRTUAL_THREADS = "USING_VIRTUAL_THREADS";
+
   static final String PROP_FEEDBACK_SIZE = "FEEDBACK_SIZE";
 
   private static final String PROP_FEEDBACK_SHOWN = "FEEDBACK_SHOWN";
@@ -581,6 +583,11 @@ public class TransDelegate extends AbstractDelegate implements ITransformer, ISh
       usingThreadPriorityManagement = rootNode.getProperty( PROP_USING_THREAD_PRIORITIES ).getBoolean();
     }
     transMeta.setUsingThreadPriorityManagment( usingThreadPriorityManagement );
+    boolean usingVirtualThreads = false;
+    if ( rootNode.hasProperty( PROP_USING_VIRTUAL_THREADS ) ) {
+      usingVirtualThreads = rootNode.getProperty( PROP_USING_VIRTUAL_THREADS ).getBoolean();
+    }
+    transMeta.setUsingVirtualThreads( usingVirtualThreads );
     transMeta.setSharedObjectsFile( getString( rootNode, PROP_SHARED_FILE ) );
     String transTypeCode = getString( rootNode, PROP_TRANSFORMATION_TYPE );
     transMeta.setTransformationType( TransformationType.getTransformationTypeByCode( transTypeCode ) );
@@ -832,6 +839,7 @@ public class TransDelegate extends AbstractDelegate implements ITransformer, ISh
     rootNode.setProperty( PROP_FEEDBACK_SHOWN, transMeta.isFeedbackShown() );
     rootNode.setProperty( PROP_FEEDBACK_SIZE, transMeta.getFeedbackSize() );
     rootNode.setProperty( PROP_USING_THREAD_PRIORITIES, transMeta.isUsingThreadPriorityManagment() );
+    rootNode.setProperty( PROP_USING_VIRTUAL_THREADS, transMeta.isUsingVirtualThreads() );
     rootNode.setProperty( PROP_SHARED_FILE, transMeta.getSharedObjectsFile() );
 
     rootNode.setProperty( PROP_CAPTURE_STEP_PERFORMANCE, transMeta.isCapturingStepPerformanceSnapShots() );
@@ -8266,12 +8266,12 @@ public class Spoon extends ApplicationWindow implements AddUndoPositionInterface
 
     // Close the logfile
     if ( fileLoggingEventListener != null ) {
+      KettleLogStore.getAppender().removeLoggingEventListener( fileLoggingEventListener );
       try {
         fileLoggingEventListener.close();
       } catch ( Exception e ) {
         LogChannel.GENERAL.logError( "Error closing logging file", e );
       }
-      KettleLogStore.getAppender().removeLoggingEventListener( fileLoggingEventListener );
     }
   }
 
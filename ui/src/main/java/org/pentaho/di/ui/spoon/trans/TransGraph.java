@@ -3909,6 +3909,7 @@ public class TransGraph extends AbstractGraph implements XulEventHandler, Redraw
             + trans.getTransMeta().getName() + "]..." );
 
           trans.setSafeModeEnabled( executionConfiguration.isSafeModeEnabled() );
+          trans.setUsingVirtualThreads( executionConfiguration.isUsingVirtualThreads() );
           trans.setGatheringMetrics( executionConfiguration.isGatheringMetrics() );
 
           // Launch the step preparation in a different thread.
@@ -4025,6 +4026,7 @@ public class TransGraph extends AbstractGraph implements XulEventHandler, Redraw
         //
         trans = new Trans( transMeta );
         trans.setSafeModeEnabled( executionConfiguration.isSafeModeEnabled() );
+        trans.setUsingVirtualThreads( executionConfiguration.isUsingVirtualThreads() );
         trans.setPreview( true );
         trans.setGatheringMetrics( executionConfiguration.isGatheringMetrics() );
         trans.setMetaStore( spoon.getMetaStore() );
@@ -0,0 +1,66 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.ui.trans.dialog;
+
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.trans.ConsistentHashPartitioner;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepPartitioningMeta;
+
+/**
+ * @since 10.3
+ */
+public class ConsistentHashPartitionerDialog extends FieldPartitionerDialog {
+
+  private ConsistentHashPartitioner partitioner;
+
+  private Text wVirtualNodes;
+
+  public ConsistentHashPartitionerDialog( Shell parent, StepMeta stepMeta, StepPartitioningMeta partitioningMeta,
+                                          TransMeta transMeta ) {
+    super( parent, stepMeta, partitioningMeta, transMeta );
+    partitioner = (ConsistentHashPartitioner) partitioningMeta.getPartitioner();
+  }
+
+  @Override
+  protected Control addSettings( Control lastControl, ModifyListener lsMod ) {
+    wVirtualNodes = addText( lastControl, "Virtual nodes per partition", lsMod );
+    return wVirtualNodes;
+  }
+
+  @Override
+  protected void getSettings() {
+    wVirtualNodes.setText( Integer.toString( partitioner.getVirtualNodes() ) );
+  }
+
+  @Override
+  protected void setSettings() {
+    partitioner.setVirtualNodes( Const.toInt( wVirtualNodes.getText(),
+      ConsistentHashPartitioner.DEFAULT_VIRTUAL_NODES ) );
+  }
+}
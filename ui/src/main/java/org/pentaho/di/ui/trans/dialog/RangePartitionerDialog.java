@@ -0,0 +1,201 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.ui.trans.dialog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.layout.FormAttachment;
+import org.eclipse.swt.layout.FormData;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.MessageBox;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.trans.RangePartitioner;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepPartitioningMeta;
+import org.pentaho.di.ui.core.dialog.EnterNumberDialog;
+import org.pentaho.di.ui.core.dialog.ErrorDialog;
+
+/**
+ * Edits the range boundaries, one per line. The boundaries can be sampled from a preview of the previous steps.
+ *
+ * @since 10.3
+ */
+public class RangePartitionerDialog extends FieldPartitionerDialog {
+
+  private RangePartitioner partitioner;
+
+  private Text wBoundaries;
+
+  public RangePartitionerDialog( Shell parent, StepMeta stepMeta, StepPartitioningMeta partitioningMeta,
+                                 TransMeta transMeta ) {
+    super( parent, stepMeta, partitioningMeta, transMeta );
+    partitioner = (RangePartitioner) partitioningMeta.getPartitioner();
+  }
+
+  @Override
+  protected Control addSettings( Control lastControl, ModifyListener lsMod ) {
+    Label wlBoundaries = new Label( shell, SWT.RIGHT );
+    wlBoundaries.setText( "Boundaries (one per line)" );
+    props.setLook( wlBoundaries );
+    FormData fdlBoundaries = new FormData();
+    fdlBoundaries.left = new FormAttachment( 0, 0 );
+    fdlBoundaries.right = new FormAttachment( middle, -margin );
+    fdlBoundaries.top = new FormAttachment( lastControl, margin );
+    wlBoundaries.setLayoutData( fdlBoundaries );
+
+    Button wSample = new Button( shell, SWT.PUSH );
+    wSample.setText( "Sample..." );
+    FormData fdSample = new FormData();
+    fdSample.right = new FormAttachment( 100, 0 );
+    fdSample.top = new FormAttachment( lastControl, margin );
+    wSample.setLayoutData( fdSample );
+    wSample.addListener( SWT.Selection, new Listener() {
+      public void handleEvent( Event e ) {
+        sample();
+      }
+    } );
+
+    wBoundaries = new Text( shell, SWT.MULTI | SWT.LEFT | SWT.BORDER | SWT.V_SCROLL );
+    props.setLook( wBoundaries );
+    wBoundaries.addModifyListener( lsMod );
+    FormData fdBoundaries = new FormData();
+    fdBoundaries.left = new FormAttachment( middle, 0 );
+    fdBoundaries.top = new FormAttachment( lastControl, margin );
+    fdBoundaries.right = new FormAttachment( wSample, -margin );
+    fdBoundaries.height = 150;
+    wBoundaries.setLayoutData( fdBoundaries );
+    return wBoundaries;
+  }
+
+  @Override
+  protected void getSettings() {
+    setBoundaries( partitioner.getBoundaries() );
+  }
+
+  private void setBoundaries( String[] boundaries ) {
+    StringBuilder text = new StringBuilder();
+    for ( String boundary : boundaries ) {
+      text.append( boundary ).append( Const.CR );
+    }
+    wBoundaries.setText( text.toString() );
+  }
+
+  @Override
+  protected void setSettings() {
+    List<String> boundaries = new ArrayList<>();
+    for ( String line : wBoundaries.getText().split( "\r?\n" ) ) {
+      if ( !line.isEmpty() ) {
+        boundaries.add( line );
+      }
+    }
+    partitioner.setBoundaries( boundaries.toArray( new String[boundaries.size()] ) );
+  }
+
+  /**
+   * Preview the previous steps and split the sampled values of the field in ranges of about the same size.
+   */
+  private void sample() {
+    String fieldName = wFieldname.getText();
+    int nrPartitions = partitioningMeta.getPartitionSchema() == null
+      ? 0 : partitioningMeta.getPartitionSchema().getPartitionIDs().size();
+    if ( nrPartitions < 2 ) {
+      showError( "The partition schema needs at least 2 partitions to sample the range boundaries." );
+      return;
+    }
+
+    List<StepMeta> previousSteps = transMeta.findPreviousSteps( stepMeta, false );
+    if ( Utils.isEmpty( fieldName ) || previousSteps.isEmpty() ) {
+      showError( "Select the partitioning field of the rows coming from the previous steps first." );
+      return;
+    }
+
+    EnterNumberDialog numberDialog = new EnterNumberDialog( shell, props.getDefaultPreviewSize(),
+      "Sample size", "The number of rows to sample from each previous step:" );
+    int sampleSize = numberDialog.open();
+    if ( sampleSize <= 0 ) {
+      return;
+    }
+
+    String[] stepNames = new String[previousSteps.size()];
+    int[] sampleSizes = new int[previousSteps.size()];
+    for ( int i = 0; i < stepNames.length; i++ ) {
+      stepNames[i] = previousSteps.get( i ).getName();
+      sampleSizes[i] = sampleSize;
+    }
+    TransPreviewProgressDialog progressDialog =
+      new TransPreviewProgressDialog( shell, transMeta, stepNames, sampleSizes );
+    progressDialog.open();
+    if ( progressDialog.isCancelled() ) {
+      return;
+    }
+
+    try {
+      ValueMetaInterface valueMeta = null;
+      List<Object> sample = new ArrayList<>();
+      for ( String stepName : stepNames ) {
+        RowMetaInterface rowMeta = progressDialog.getPreviewRowsMeta( stepName );
+        List<Object[]> rows = progressDialog.getPreviewRows( stepName );
+        int index = rowMeta == null ? -1 : rowMeta.indexOfValue( fieldName );
+        if ( index < 0 || rows == null ) {
+          continue;
+        }
+        if ( valueMeta == null ) {
+          valueMeta = rowMeta.getValueMeta( index );
+        }
+        for ( Object[] row : rows ) {
+          sample.add( rowMeta.getValueMeta( index ).convertToNormalStorageType( row[index] ) );
+        }
+      }
+      if ( valueMeta == null ) {
+        showError( "The previous steps didn't return any rows with field [" + fieldName + "]." );
+        return;
+      }
+
+      ValueMetaInterface keyMeta = valueMeta.clone();
+      keyMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+      setBoundaries( RangePartitioner.sampleBoundaries( keyMeta, sample, nrPartitions ) );
+    } catch ( Exception e ) {
+      new ErrorDialog( shell, "Error", "Error sampling the range boundaries:", e );
+    }
+  }
+
+  private void showError( String message ) {
+    MessageBox mb = new MessageBox( shell, SWT.OK | SWT.ICON_ERROR );
+    mb.setMessage( message );
+    mb.setText( "Error" );
+    mb.open();
+  }
+}
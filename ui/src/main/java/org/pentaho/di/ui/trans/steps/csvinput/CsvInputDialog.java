@@ -131,6 +131,8 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
   private boolean isReceivingInput;
   private Button wRunningInParallel;
   private Button wNewlinePossible;
+  private Label wlReaderThreads;
+  private TextVar wReaderThreads;
   private ComboVar wEncoding;
   private CCombo wFormat;
 
@@ -492,6 +494,27 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
     } );
     lastControl = wNewlinePossible;
 
+    // The number of reader threads
+    //
+    wlReaderThreads = new Label( shell, SWT.RIGHT );
+    wlReaderThreads.setText( BaseMessages.getString( PKG, inputMeta.getDescription( "READER_THREADS" ) ) );
+    wlReaderThreads.setToolTipText( BaseMessages.getString( PKG, inputMeta.getTooltip( "READER_THREADS" ) ) );
+    props.setLook( wlReaderThreads );
+    FormData fdlReaderThreads = new FormData();
+    fdlReaderThreads.top = new FormAttachment( lastControl, margin );
+    fdlReaderThreads.left = new FormAttachment( 0, 0 );
+    fdlReaderThreads.right = new FormAttachment( middle, -margin );
+    wlReaderThreads.setLayoutData( fdlReaderThreads );
+    wReaderThreads = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wReaderThreads );
+    wReaderThreads.addModifyListener( lsMod );
+    FormData fdReaderThreads = new FormData();
+    fdReaderThreads.top = new FormAttachment( lastControl, margin );
+    fdReaderThreads.left = new FormAttachment( middle, 0 );
+    fdReaderThreads.right = new FormAttachment( 100, 0 );
+    wReaderThreads.setLayoutData( fdReaderThreads );
+    lastControl = wReaderThreads;
+
     // Format
     Label wlFormat = new Label( shell, SWT.RIGHT );
     wlFormat.setText( BaseMessages.getString( PKG, inputMeta.getDescription( "FORMAT" ) ) );
@@ -670,6 +693,7 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
     wDelimiter.addSelectionListener( lsDef );
     wEnclosure.addSelectionListener( lsDef );
     wBufferSize.addSelectionListener( lsDef );
+    wReaderThreads.addSelectionListener( lsDef );
     wRowNumField.addSelectionListener( lsDef );
 
     // Allow the insertion of tabs as separator...
@@ -727,6 +751,8 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
     if ( !parallelPossible ) {
       wRunningInParallel.setSelection( false );
     }
+    wlReaderThreads.setEnabled( parallelPossible );
+    wReaderThreads.setEnabled( parallelPossible );
   }
 
   private void setEncodings() {
@@ -790,6 +816,7 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
     wHeaderPresent.setSelection( inputMeta.isHeaderPresent() );
     wRunningInParallel.setSelection( inputMeta.isRunningInParallel() );
     wNewlinePossible.setSelection( inputMeta.isNewlinePossibleInFields() );
+    wReaderThreads.setText( Const.NVL( inputMeta.getReaderThreads(), "" ) );
     wRowNumField.setText( Const.NVL( inputMeta.getRowNumField(), "" ) );
     wAddResult.setSelection( inputMeta.isAddResultFile() );
     wFormat.setText( Const.NVL( inputMeta.getFileFormat(), "" ) );
@@ -849,6 +876,7 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
     inputMeta.setAddResultFile( wAddResult.getSelection() );
     inputMeta.setRunningInParallel( wRunningInParallel.getSelection() );
     inputMeta.setNewlinePossibleInFields( wNewlinePossible.getSelection() );
+    inputMeta.setReaderThreads( wReaderThreads.getText() );
     inputMeta.setFileFormat( wFormat.getText() );
     inputMeta.setEncoding( wEncoding.getText() );
 
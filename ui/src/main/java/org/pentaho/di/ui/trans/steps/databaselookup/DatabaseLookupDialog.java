@@ -110,6 +110,10 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
   private Text wOrderBy;
   private FormData fdlOrderBy, fdOrderBy;
 
+  private Label wlBatchSize;
+  private Text wBatchSize;
+  private FormData fdlBatchSize, fdBatchSize;
+
   private Label wlFailMultiple;
   private Button wFailMultiple;
   private FormData fdlFailMultiple, fdFailMultiple;
@@ -481,6 +485,25 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     wOrderBy.setLayoutData( fdOrderBy );
     wOrderBy.addModifyListener( lsMod );
 
+    // Batch size line
+    wlBatchSize = new Label( shell, SWT.RIGHT );
+    wlBatchSize.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.BatchSize.Label" ) );
+    wlBatchSize.setToolTipText( BaseMessages.getString( PKG, "DatabaseLookupDialog.BatchSize.Tooltip" ) );
+    props.setLook( wlBatchSize );
+    fdlBatchSize = new FormData();
+    fdlBatchSize.left = new FormAttachment( 0, 0 );
+    fdlBatchSize.top = new FormAttachment( wOrderBy, margin );
+    fdlBatchSize.right = new FormAttachment( middle, -margin );
+    wlBatchSize.setLayoutData( fdlBatchSize );
+    wBatchSize = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wBatchSize );
+    fdBatchSize = new FormData();
+    fdBatchSize.left = new FormAttachment( middle, 0 );
+    fdBatchSize.top = new FormAttachment( wOrderBy, margin );
+    fdBatchSize.right = new FormAttachment( 100, 0 );
+    wBatchSize.setLayoutData( fdBatchSize );
+    wBatchSize.addModifyListener( lsMod );
+
     // THE BUTTONS
     wOK = new Button( shell, SWT.PUSH );
     wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) );
@@ -491,7 +514,7 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     wCancel = new Button( shell, SWT.PUSH );
     wCancel.setText( BaseMessages.getString( PKG, "System.Button.Cancel" ) );
 
-    setButtonPositions( new Button[] { wOK, wCancel, wGet, wGetLU }, margin, wOrderBy );
+    setButtonPositions( new Button[] { wOK, wCancel, wGet, wGetLU }, margin, wBatchSize );
 
     // Add listeners
     lsOK = new Listener() {
@@ -645,6 +668,10 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     wlCacheLoadAll.setEnabled( wCache.getSelection() );
     wFailMultiple.setEnabled( !wCache.getSelection() );
     wlFailMultiple.setEnabled( !wCache.getSelection() );
+
+    // There are no lookups to batch when all data is loaded in the cache
+    wBatchSize.setEnabled( !( wCache.getSelection() && wCacheLoadAll.getSelection() ) );
+    wlBatchSize.setEnabled( !( wCache.getSelection() && wCacheLoadAll.getSelection() ) );
   }
 
   /**
@@ -709,6 +736,7 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     }
     wFailMultiple.setSelection( input.isFailingOnMultipleResults() );
     wEatRows.setSelection( input.isEatingRowOnLookupFailure() );
+    wBatchSize.setText( "" + input.getBatchSize() );
 
     wKey.setRowNums();
     wKey.optWidth( true );
@@ -740,6 +768,7 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     input.setCached( wCache.getSelection() );
     input.setCacheSize( Const.toInt( wCachesize.getText(), 0 ) );
     input.setLoadingAllDataInCache( wCacheLoadAll.getSelection() );
+    input.setBatchSize( Const.toInt( wBatchSize.getText(), 0 ) );
 
     logDebug( BaseMessages.getString( PKG, "DatabaseLookupDialog.Log.FoundKeys", String.valueOf( nrkeys ) ) );
     //CHECKSTYLE:Indentation:OFF
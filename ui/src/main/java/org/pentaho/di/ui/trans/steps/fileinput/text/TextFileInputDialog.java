@@ -260,6 +260,9 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
   private Button wNoempty;
   private FormData fdlNoempty, fdNoempty;
 
+  private Label wlLazyConversion;
+  private Button wLazyConversion;
+
   private Label wlInclFilename;
   private Button wInclFilename;
   private FormData fdlInclFilename, fdInclFilename;
@@ -1305,12 +1308,29 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     fdNoempty.right = new FormAttachment( 100, 0 );
     wNoempty.setLayoutData( fdNoempty );
 
+    wlLazyConversion = new Label( wContentComp, SWT.RIGHT );
+    wlLazyConversion.setText( BaseMessages.getString( PKG, "TextFileInputDialog.LazyConversion.Label" ) );
+    props.setLook( wlLazyConversion );
+    FormData fdlLazyConversion = new FormData();
+    fdlLazyConversion.left = new FormAttachment( 0, 0 );
+    fdlLazyConversion.top = new FormAttachment( wNoempty, margin );
+    fdlLazyConversion.right = new FormAttachment( middle, -margin );
+    wlLazyConversion.setLayoutData( fdlLazyConversion );
+    wLazyConversion = new Button( wContentComp, SWT.CHECK );
+    props.setLook( wLazyConversion );
+    wLazyConversion.setToolTipText( BaseMessages.getString( PKG, "TextFileInputDialog.LazyConversion.Tooltip" ) );
+    FormData fdLazyConversion = new FormData();
+    fdLazyConversion.left = new FormAttachment( middle, 0 );
+    fdLazyConversion.top = new FormAttachment( wNoempty, margin );
+    fdLazyConversion.right = new FormAttachment( 100, 0 );
+    wLazyConversion.setLayoutData( fdLazyConversion );
+
     wlInclFilename = new Label( wContentComp, SWT.RIGHT );
     wlInclFilename.setText( BaseMessages.getString( PKG, "TextFileInputDialog.InclFilename.Label" ) );
     props.setLook( wlInclFilename );
     fdlInclFilename = new FormData();
     fdlInclFilename.left = new FormAttachment( 0, 0 );
-    fdlInclFilename.top = new FormAttachment( wNoempty, margin );
+    fdlInclFilename.top = new FormAttachment( wLazyConversion, margin );
     fdlInclFilename.right = new FormAttachment( middle, -margin );
     wlInclFilename.setLayoutData( fdlInclFilename );
     wInclFilename = new Button( wContentComp, SWT.CHECK );
@@ -1318,7 +1338,7 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     wInclFilename.setToolTipText( BaseMessages.getString( PKG, "TextFileInputDialog.InclFilename.Tooltip" ) );
     fdInclFilename = new FormData();
     fdInclFilename.left = new FormAttachment( middle, 0 );
-    fdInclFilename.top = new FormAttachment( wNoempty, margin );
+    fdInclFilename.top = new FormAttachment( wLazyConversion, margin );
     wInclFilename.setLayoutData( fdInclFilename );
 
     wlInclFilenameField = new Label( wContentComp, SWT.LEFT );
@@ -1326,14 +1346,14 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     props.setLook( wlInclFilenameField );
     fdlInclFilenameField = new FormData();
     fdlInclFilenameField.left = new FormAttachment( wInclFilename, margin );
-    fdlInclFilenameField.top = new FormAttachment( wNoempty, margin );
+    fdlInclFilenameField.top = new FormAttachment( wLazyConversion, margin );
     wlInclFilenameField.setLayoutData( fdlInclFilenameField );
     wInclFilenameField = new Text( wContentComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
     props.setLook( wInclFilenameField );
     wInclFilenameField.addModifyListener( lsMod );
     fdInclFilenameField = new FormData();
     fdInclFilenameField.left = new FormAttachment( wlInclFilenameField, margin );
-    fdInclFilenameField.top = new FormAttachment( wNoempty, margin );
+    fdInclFilenameField.top = new FormAttachment( wLazyConversion, margin );
     fdInclFilenameField.right = new FormAttachment( 100, 0 );
     wInclFilenameField.setLayoutData( fdInclFilenameField );
 
@@ -2215,6 +2235,7 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
       wCompression.setText( meta.content.fileCompression );
     }
     wNoempty.setSelection( meta.content.noEmptyLines );
+    wLazyConversion.setSelection( meta.content.lazyConversionActive );
     wInclFilename.setSelection( meta.content.includeFilename );
     wInclRownum.setSelection( meta.content.includeRowNumber );
     wRownumByFile.setSelection( meta.content.rowNumberByFile );
@@ -2503,6 +2524,7 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     meta.content.fileCompression = wCompression.getText();
     meta.content.dateFormatLenient = wDateLenient.getSelection();
     meta.content.noEmptyLines = wNoempty.getSelection();
+    meta.content.lazyConversionActive = wLazyConversion.getSelection();
     meta.content.encoding = wEncoding.getText();
     meta.content.length = wLength.getText();
 
@@ -142,6 +142,10 @@ public class FuzzyMatchDialog extends BaseStepDialog implements StepDialogInterf
   private TextVar wseparator;
   private FormData fdseparator, fdlseparator;
 
+  private Label wlScoringThreads;
+  private TextVar wScoringThreads;
+  private FormData fdScoringThreads, fdlScoringThreads;
+
   private CTabFolder wTabFolder;
   private FormData fdTabFolder;
 
@@ -501,6 +505,24 @@ public class FuzzyMatchDialog extends BaseStepDialog implements StepDialogInterf
     fdseparator.right = new FormAttachment( 100, 0 );
     wseparator.setLayoutData( fdseparator );
 
+    wlScoringThreads = new Label( wSettingsGroup, SWT.RIGHT );
+    wlScoringThreads.setText( BaseMessages.getString( PKG, "FuzzyMatchDialog.ScoringThreads.Label" ) );
+    props.setLook( wlScoringThreads );
+    fdlScoringThreads = new FormData();
+    fdlScoringThreads.left = new FormAttachment( 0, 0 );
+    fdlScoringThreads.top = new FormAttachment( wseparator, margin );
+    fdlScoringThreads.right = new FormAttachment( middle, -margin );
+    wlScoringThreads.setLayoutData( fdlScoringThreads );
+    wScoringThreads = new TextVar( transMeta, wSettingsGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wScoringThreads );
+    wScoringThreads.setToolTipText( BaseMessages.getString( PKG, "FuzzyMatchDialog.ScoringThreads.Tooltip" ) );
+    wScoringThreads.addModifyListener( lsMod );
+    fdScoringThreads = new FormData();
+    fdScoringThreads.left = new FormAttachment( middle, 0 );
+    fdScoringThreads.top = new FormAttachment( wseparator, margin );
+    fdScoringThreads.right = new FormAttachment( 100, 0 );
+    wScoringThreads.setLayoutData( fdScoringThreads );
+
     fdSettingsGroup = new FormData();
     fdSettingsGroup.left = new FormAttachment( 0, margin );
     fdSettingsGroup.top = new FormAttachment( wMainStreamGroup, margin );
@@ -752,6 +774,7 @@ public class FuzzyMatchDialog extends BaseStepDialog implements StepDialogInterf
     if ( input.getSeparator() != null ) {
       wseparator.setText( input.getSeparator() );
     }
+    wScoringThreads.setText( Const.NVL( input.getScoringThreads(), "" ) );
 
     if ( input.getValue() != null ) {
       for ( int i = 0; i < input.getValue().length; i++ ) {
@@ -798,6 +821,7 @@ public class FuzzyMatchDialog extends BaseStepDialog implements StepDialogInterf
     input.setOutputMatchField( wmatchField.getText() );
     input.setOutputValueField( wvalueField.getText() );
     input.setSeparator( wseparator.getText() );
+    input.setScoringThreads( wScoringThreads.getText() );
 
     int nrvalues = wReturn.nrNonEmpty();
     input.allocate( nrvalues );
@@ -61,6 +61,7 @@ import org.pentaho.di.ui.core.gui.GUIResource;
 import org.pentaho.di.ui.core.widget.ColumnInfo;
 import org.pentaho.di.ui.core.widget.TableView;
 import org.pentaho.di.ui.trans.step.BaseStepDialog;
+import org.pentaho.di.ui.trans.step.ComponentSelectionListener;
 
 public class MergeJoinDialog extends BaseStepDialog implements StepDialogInterface {
   private static Class<?> PKG = MergeJoinMeta.class; // for i18n purposes, needed by Translator2!!
@@ -79,6 +80,10 @@ public class MergeJoinDialog extends BaseStepDialog implements StepDialogInterfa
   private CCombo wType;
   private FormData fdlType, fdType;
 
+  private Label wlHashJoin;
+  private Button wHashJoin;
+  private FormData fdlHashJoin, fdHashJoin;
+
   private Label wlKeys1;
   private TableView wKeys1;
   private Button wbKeys1;
@@ -210,13 +215,32 @@ public class MergeJoinDialog extends BaseStepDialog implements StepDialogInterfa
     fdType.right = new FormAttachment( 100, 0 );
     wType.setLayoutData( fdType );
 
+    // Hash join
+    wlHashJoin = new Label( shell, SWT.RIGHT );
+    wlHashJoin.setText( BaseMessages.getString( PKG, "MergeJoinDialog.HashJoin.Label" ) );
+    props.setLook( wlHashJoin );
+    fdlHashJoin = new FormData();
+    fdlHashJoin.left = new FormAttachment( 0, 0 );
+    fdlHashJoin.right = new FormAttachment( middle, -margin );
+    fdlHashJoin.top = new FormAttachment( wType, margin );
+    wlHashJoin.setLayoutData( fdlHashJoin );
+    wHashJoin = new Button( shell, SWT.CHECK );
+    wHashJoin.setToolTipText( BaseMessages.getString( PKG, "MergeJoinDialog.HashJoin.Tooltip" ) );
+    props.setLook( wHashJoin );
+    fdHashJoin = new FormData();
+    fdHashJoin.left = new FormAttachment( middle, 0 );
+    fdHashJoin.top = new FormAttachment( wType, margin );
+    fdHashJoin.right = new FormAttachment( 100, 0 );
+    wHashJoin.setLayoutData( fdHashJoin );
+    wHashJoin.addSelectionListener( new ComponentSelectionListener( input ) );
+
     // THE KEYS TO MATCH for first step...
     wlKeys1 = new Label( shell, SWT.NONE );
     wlKeys1.setText( BaseMessages.getString( PKG, "MergeJoinDialog.Keys1.Label" ) );
     props.setLook( wlKeys1 );
     fdlKeys1 = new FormData();
     fdlKeys1.left = new FormAttachment( 0, 0 );
-    fdlKeys1.top = new FormAttachment( wType, margin );
+    fdlKeys1.top = new FormAttachment( wHashJoin, margin );
     wlKeys1.setLayoutData( fdlKeys1 );
 
     int nrKeyRows1 = ( input.getKeyFields1() != null ? input.getKeyFields1().length : 1 );
@@ -258,7 +282,7 @@ public class MergeJoinDialog extends BaseStepDialog implements StepDialogInterfa
     props.setLook( wlKeys2 );
     fdlKeys2 = new FormData();
     fdlKeys2.left = new FormAttachment( 50, 0 );
-    fdlKeys2.top = new FormAttachment( wType, margin );
+    fdlKeys2.top = new FormAttachment( wHashJoin, margin );
     wlKeys2.setLayoutData( fdlKeys2 );
 
     int nrKeyRows2 = ( input.getKeyFields2() != null ? input.getKeyFields2().length : 1 );
@@ -361,6 +385,7 @@ public class MergeJoinDialog extends BaseStepDialog implements StepDialogInterfa
     } else {
       wType.setText( MergeJoinMeta.join_types[0] );
     }
+    wHashJoin.setSelection( input.isHashJoin() );
 
     for ( int i = 0; i < input.getKeyFields1().length; i++ ) {
       TableItem item = wKeys1.table.getItem( i );
@@ -391,6 +416,7 @@ public class MergeJoinDialog extends BaseStepDialog implements StepDialogInterfa
     infoStreams.get( 0 ).setStepMeta( transMeta.findStep( wStep1.getText() ) );
     infoStreams.get( 1 ).setStepMeta( transMeta.findStep( wStep2.getText() ) );
     meta.setJoinType( wType.getText() );
+    meta.setHashJoin( wHashJoin.getSelection() );
 
     int nrKeys1 = wKeys1.nrNonEmpty();
     int nrKeys2 = wKeys2.nrNonEmpty();
@@ -417,9 +443,9 @@ public class MergeJoinDialog extends BaseStepDialog implements StepDialogInterfa
 
     getMeta( input );
 
-    // Show a warning (optional)
+    // Show a warning (optional), a hash join doesn't need sorted inputs
     //
-    if ( "Y".equalsIgnoreCase( props.getCustomParameter( STRING_SORT_WARNING_PARAMETER, "Y" ) ) ) {
+    if ( !input.isHashJoin() && "Y".equalsIgnoreCase( props.getCustomParameter( STRING_SORT_WARNING_PARAMETER, "Y" ) ) ) {
       MessageDialogWithToggle md =
         new MessageDialogWithToggle( shell,
           BaseMessages.getString( PKG, "MergeJoinDialog.InputNeedSort.DialogTitle" ),
@@ -135,6 +135,10 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
   private Button wBatch;
   private FormData fdlBatch, fdBatch;
 
+  private Label wlParallelWriters;
+  private TextVar wParallelWriters;
+  private FormData fdlParallelWriters, fdParallelWriters;
+
   private Label wlUsePart;
   private Button wUsePart;
   private FormData fdlUsePart, fdUsePart;
@@ -566,20 +570,39 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
       }
     } );
 
+    // Parallel writers
+    wlParallelWriters = new Label( wMainComp, SWT.RIGHT );
+    wlParallelWriters.setText( BaseMessages.getString( PKG, "TableOutputDialog.ParallelWriters.Label" ) );
+    props.setLook( wlParallelWriters );
+    fdlParallelWriters = new FormData();
+    fdlParallelWriters.left = new FormAttachment( 0, 0 );
+    fdlParallelWriters.top = new FormAttachment( wBatch, margin );
+    fdlParallelWriters.right = new FormAttachment( middle, -margin );
+    wlParallelWriters.setLayoutData( fdlParallelWriters );
+    wParallelWriters = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wParallelWriters.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.ParallelWriters.Tooltip" ) );
+    props.setLook( wParallelWriters );
+    wParallelWriters.addModifyListener( lsMod );
+    fdParallelWriters = new FormData();
+    fdParallelWriters.left = new FormAttachment( middle, 0 );
+    fdParallelWriters.top = new FormAttachment( wBatch, margin );
+    fdParallelWriters.right = new FormAttachment( 100, 0 );
+    wParallelWriters.setLayoutData( fdParallelWriters );
+
     // NameInField
     wlNameInField = new Label( wMainComp, SWT.RIGHT );
     wlNameInField.setText( BaseMessages.getString( PKG, "TableOutputDialog.NameInField.Label" ) );
     props.setLook( wlNameInField );
     fdlNameInField = new FormData();
     fdlNameInField.left = new FormAttachment( 0, 0 );
-    fdlNameInField.top = new FormAttachment( wBatch, margin * 5 );
+    fdlNameInField.top = new FormAttachment( wParallelWriters, margin * 5 );
     fdlNameInField.right = new FormAttachment( middle, -margin );
     wlNameInField.setLayoutData( fdlNameInField );
     wNameInField = new Button( wMainComp, SWT.CHECK );
     props.setLook( wNameInField );
     fdNameInField = new FormData();
     fdNameInField.left = new FormAttachment( middle, 0 );
-    fdNameInField.top = new FormAttachment( wBatch, margin * 5 );
+    fdNameInField.top = new FormAttachment( wParallelWriters, margin * 5 );
     fdNameInField.right = new FormAttachment( 100, 0 );
     wNameInField.setLayoutData( fdNameInField );
     wNameInField.addSelectionListener( new SelectionAdapter() {
@@ -851,6 +874,7 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
 
     wStepname.addSelectionListener( lsDef );
     wCommit.addSelectionListener( lsDef );
+    wParallelWriters.addSelectionListener( lsDef );
     wSchema.addSelectionListener( lsDef );
     wTable.addSelectionListener( lsDef );
     wPartField.addSelectionListener( lsDef );
@@ -1244,6 +1268,10 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     wlBatch.setEnabled( enableBatch );
     wBatch.setEnabled( enableBatch );
 
+    // The parallel writers only execute batch inserts
+    wlParallelWriters.setEnabled( useBatch );
+    wParallelWriters.setEnabled( useBatch );
+
     boolean specifyFields = wSpecifyFields.getSelection();
     wFields.setEnabled( specifyFields );
     wGetFields.setEnabled( specifyFields );
@@ -1291,6 +1319,7 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     wBatch.setSelection( input.useBatchUpdate() );
 
     wCommit.setText( input.getCommitSize() );
+    wParallelWriters.setText( Const.NVL( input.getParallelWriters(), "" ) );
 
     wUsePart.setSelection( input.isPartitioningEnabled() );
     wPartDaily.setSelection( input.isPartitioningDaily() );
@@ -1339,6 +1368,7 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     info.setTableName( wTable.getText() );
     info.setDatabaseMeta( transMeta.findDatabase( wConnection.getText() ) );
     info.setCommitSize( wCommit.getText() );
+    info.setParallelWriters( wParallelWriters.getText() );
     info.setTruncateTable( wTruncate.getSelection() );
     info.setIgnoreErrors( wIgnore.getSelection() );
     info.setUseBatchUpdate( wBatch.getSelection() );
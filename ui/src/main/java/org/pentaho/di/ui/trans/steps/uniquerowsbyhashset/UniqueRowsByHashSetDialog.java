@@ -29,6 +29,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.CCombo;
 import org.eclipse.swt.events.ModifyEvent;
 import org.eclipse.swt.events.ModifyListener;
 import org.eclipse.swt.events.SelectionAdapter;
@@ -88,6 +89,18 @@ public class UniqueRowsByHashSetDialog extends BaseStepDialog implements StepDia
   private TextVar wErrorDesc;
   private FormData fdlErrorDesc, fdErrorDesc;
 
+  private Label wlDedupMode;
+  private CCombo wDedupMode;
+  private FormData fdlDedupMode, fdDedupMode;
+
+  private Label wlExpectedRows;
+  private TextVar wExpectedRows;
+  private FormData fdlExpectedRows, fdExpectedRows;
+
+  private Label wlFalsePositiveRate;
+  private TextVar wFalsePositiveRate;
+  private FormData fdlFalsePositiveRate, fdFalsePositiveRate;
+
   private Group wSettings;
   private FormData fdSettings;
 
@@ -218,6 +231,68 @@ public class UniqueRowsByHashSetDialog extends BaseStepDialog implements StepDia
     fdErrorDesc.right = new FormAttachment( 100, 0 );
     wErrorDesc.setLayoutData( fdErrorDesc );
 
+    wlDedupMode = new Label( wSettings, SWT.RIGHT );
+    wlDedupMode.setText( BaseMessages.getString( PKG, "UniqueRowsByHashSetDialog.DedupMode.Label" ) );
+    props.setLook( wlDedupMode );
+    fdlDedupMode = new FormData();
+    fdlDedupMode.left = new FormAttachment( 0, 0 );
+    fdlDedupMode.top = new FormAttachment( wErrorDesc, margin );
+    fdlDedupMode.right = new FormAttachment( middle, -margin );
+    wlDedupMode.setLayoutData( fdlDedupMode );
+    wDedupMode = new CCombo( wSettings, SWT.BORDER | SWT.READ_ONLY );
+    props.setLook( wDedupMode );
+    wDedupMode.setToolTipText( BaseMessages.getString( PKG, "UniqueRowsByHashSetDialog.DedupMode.ToolTip" ) );
+    for ( String dedupMode : UniqueRowsByHashSetMeta.DEDUP_MODES ) {
+      wDedupMode.add( BaseMessages.getString( PKG, "UniqueRowsByHashSetDialog.DedupMode." + dedupMode ) );
+    }
+    fdDedupMode = new FormData();
+    fdDedupMode.left = new FormAttachment( middle, 0 );
+    fdDedupMode.top = new FormAttachment( wErrorDesc, margin );
+    fdDedupMode.right = new FormAttachment( 100, 0 );
+    wDedupMode.setLayoutData( fdDedupMode );
+    wDedupMode.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+        setDedupMode();
+      }
+    } );
+
+    wlExpectedRows = new Label( wSettings, SWT.RIGHT );
+    wlExpectedRows.setText( BaseMessages.getString( PKG, "UniqueRowsByHashSetDialog.ExpectedRows.Label" ) );
+    props.setLook( wlExpectedRows );
+    fdlExpectedRows = new FormData();
+    fdlExpectedRows.left = new FormAttachment( 0, 0 );
+    fdlExpectedRows.top = new FormAttachment( wDedupMode, margin );
+    fdlExpectedRows.right = new FormAttachment( middle, -margin );
+    wlExpectedRows.setLayoutData( fdlExpectedRows );
+    wExpectedRows = new TextVar( transMeta, wSettings, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wExpectedRows );
+    wExpectedRows.addModifyListener( lsMod );
+    fdExpectedRows = new FormData();
+    fdExpectedRows.left = new FormAttachment( middle, 0 );
+    fdExpectedRows.top = new FormAttachment( wDedupMode, margin );
+    fdExpectedRows.right = new FormAttachment( 100, 0 );
+    wExpectedRows.setLayoutData( fdExpectedRows );
+
+    wlFalsePositiveRate = new Label( wSettings, SWT.RIGHT );
+    wlFalsePositiveRate.setText( BaseMessages.getString( PKG, "UniqueRowsByHashSetDialog.FalsePositiveRate.Label" ) );
+    props.setLook( wlFalsePositiveRate );
+    fdlFalsePositiveRate = new FormData();
+    fdlFalsePositiveRate.left = new FormAttachment( 0, 0 );
+    fdlFalsePositiveRate.top = new FormAttachment( wExpectedRows, margin );
+    fdlFalsePositiveRate.right = new FormAttachment( middle, -margin );
+    wlFalsePositiveRate.setLayoutData( fdlFalsePositiveRate );
+    wFalsePositiveRate = new TextVar( transMeta, wSettings, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wFalsePositiveRate );
+    wFalsePositiveRate.setToolTipText( BaseMessages.getString(
+      PKG, "UniqueRowsByHashSetDialog.FalsePositiveRate.ToolTip" ) );
+    wFalsePositiveRate.addModifyListener( lsMod );
+    fdFalsePositiveRate = new FormData();
+    fdFalsePositiveRate.left = new FormAttachment( middle, 0 );
+    fdFalsePositiveRate.top = new FormAttachment( wExpectedRows, margin );
+    fdFalsePositiveRate.right = new FormAttachment( 100, 0 );
+    wFalsePositiveRate.setLayoutData( fdFalsePositiveRate );
+
     fdSettings = new FormData();
     fdSettings.left = new FormAttachment( 0, margin );
     fdSettings.top = new FormAttachment( wStepname, margin );
@@ -345,6 +420,23 @@ public class UniqueRowsByHashSetDialog extends BaseStepDialog implements StepDia
     wErrorDesc.setEnabled( wRejectDuplicateRow.getSelection() );
   }
 
+  private String getDedupMode() {
+    int index = wDedupMode.getSelectionIndex();
+    return UniqueRowsByHashSetMeta.DEDUP_MODES[ index < 0 ? 0 : index ];
+  }
+
+  private void setDedupMode() {
+    String dedupMode = getDedupMode();
+    boolean bloomFilter = UniqueRowsByHashSetMeta.DEDUP_MODE_BLOOM_FILTER.equals( dedupMode );
+    // Only the hash set can compare on hash codes alone
+    wlStoreValues.setEnabled( UniqueRowsByHashSetMeta.DEDUP_MODE_HASH_SET.equals( dedupMode ) );
+    wStoreValues.setEnabled( UniqueRowsByHashSetMeta.DEDUP_MODE_HASH_SET.equals( dedupMode ) );
+    wlExpectedRows.setEnabled( bloomFilter );
+    wExpectedRows.setEnabled( bloomFilter );
+    wlFalsePositiveRate.setEnabled( bloomFilter );
+    wFalsePositiveRate.setEnabled( bloomFilter );
+  }
+
   protected void setComboBoxes() {
     // Something was changed in the row.
     //
@@ -371,6 +463,11 @@ public class UniqueRowsByHashSetDialog extends BaseStepDialog implements StepDia
     if ( input.getErrorDescription() != null ) {
       wErrorDesc.setText( input.getErrorDescription() );
     }
+    int dedupMode = Const.indexOfString( input.getDedupMode(), UniqueRowsByHashSetMeta.DEDUP_MODES );
+    wDedupMode.select( dedupMode < 0 ? 0 : dedupMode );
+    wExpectedRows.setText( Const.NVL( input.getExpectedRows(), "" ) );
+    wFalsePositiveRate.setText( Const.NVL( input.getFalsePositiveRate(), "" ) );
+    setDedupMode();
     for ( int i = 0; i < input.getCompareFields().length; i++ ) {
       TableItem item = wFields.table.getItem( i );
       if ( input.getCompareFields()[i] != null ) {
@@ -408,6 +505,9 @@ public class UniqueRowsByHashSetDialog extends BaseStepDialog implements StepDia
     input.setStoreValues( wStoreValues.getSelection() );
     input.setRejectDuplicateRow( wRejectDuplicateRow.getSelection() );
     input.setErrorDescription( wErrorDesc.getText() );
+    input.setDedupMode( getDedupMode() );
+    input.setExpectedRows( wExpectedRows.getText() );
+    input.setFalsePositiveRate( wFalsePositiveRate.getText() );
     dispose();
   }
 